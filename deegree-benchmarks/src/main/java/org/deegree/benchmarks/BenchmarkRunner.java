@@ -0,0 +1,79 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks;
+
+import java.io.File;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the deegree benchmarks. All command line arguments of JMH are supported (e.g. <code>-f</code>,
+ * <code>-wi</code> or a regular expression selecting the benchmarks), if no result file is given with
+ * <code>-rff</code>, the results are written as JSON to <code>deegree-benchmarks-&lt;version&gt;.json</code> so runs
+ * of different releases can be compared.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args
+     *            JMH command line arguments
+     * @throws Exception
+     */
+    public static void main( String[] args )
+                            throws Exception {
+        CommandLineOptions cmdOptions = new CommandLineOptions( args );
+        ChainedOptionsBuilder options = new OptionsBuilder().parent( cmdOptions );
+        if ( cmdOptions.getIncludes().isEmpty() ) {
+            options.include( BenchmarkRunner.class.getPackage().getName() + ".*" );
+        }
+        if ( !cmdOptions.getResult().hasValue() ) {
+            String version = BenchmarkRunner.class.getPackage().getImplementationVersion();
+            File result = new File( "deegree-benchmarks-" + ( version == null ? "dev" : version ) + ".json" );
+            options.resultFormat( ResultFormatType.JSON ).result( result.getAbsolutePath() );
+        } else if ( !cmdOptions.getResultFormat().hasValue() ) {
+            options.resultFormat( ResultFormatType.JSON );
+        }
+        new Runner( options.build() ).run();
+    }
+
+}
@@ -0,0 +1,236 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.LinearRing;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.geometry.primitive.Ring;
+import org.deegree.geometry.standard.points.PackedPoints;
+
+/**
+ * Generates the synthetic fixtures of the benchmarks. All data is derived from a seeded {@link Random}, so every run
+ * (and every release) works on exactly the same input.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class SyntheticData {
+
+    /** Seed used by all benchmarks. */
+    public static final long SEED = 4711;
+
+    private static final GeometryFactory GEOM_FAC = new GeometryFactory();
+
+    private final Random random;
+
+    /**
+     * Creates a generator using the default {@link #SEED}.
+     */
+    public SyntheticData() {
+        this( SEED );
+    }
+
+    /**
+     * @param seed
+     *            of the random generator
+     */
+    public SyntheticData( long seed ) {
+        this.random = new Random( seed );
+    }
+
+    /**
+     * @return the random generator of this instance.
+     */
+    public Random getRandom() {
+        return random;
+    }
+
+    /**
+     * Creates the coordinates of a closed, star shaped ring around the given center. The ring is counter clockwise.
+     * 
+     * @param cx
+     *            x of the center
+     * @param cy
+     *            y of the center
+     * @param radius
+     *            maximum distance of a vertex to the center
+     * @param vertices
+     *            number of distinct vertices, must be at least 3
+     * @return the coordinates (x0, y0, x1, y1...), the first point is repeated as the last point
+     */
+    public double[] ringCoordinates( double cx, double cy, double radius, int vertices ) {
+        double[] angles = new double[vertices];
+        for ( int i = 0; i < vertices; ++i ) {
+            angles[i] = random.nextDouble() * 2 * Math.PI;
+        }
+        Arrays.sort( angles );
+        double[] coords = new double[( vertices + 1 ) * 2];
+        for ( int i = 0; i < vertices; ++i ) {
+            double r = radius * ( 0.5 + 0.5 * random.nextDouble() );
+            coords[2 * i] = cx + r * Math.cos( angles[i] );
+            coords[2 * i + 1] = cy + r * Math.sin( angles[i] );
+        }
+        coords[2 * vertices] = coords[0];
+        coords[2 * vertices + 1] = coords[1];
+        return coords;
+    }
+
+    /**
+     * Creates the coordinates of a random walk starting at the given point.
+     * 
+     * @param x
+     * @param y
+     * @param step
+     *            maximum length of a segment
+     * @param vertices
+     *            number of vertices, must be at least 2
+     * @return the coordinates (x0, y0, x1, y1...)
+     */
+    public double[] walkCoordinates( double x, double y, double step, int vertices ) {
+        double[] coords = new double[vertices * 2];
+        for ( int i = 0; i < vertices; ++i ) {
+            coords[2 * i] = x;
+            coords[2 * i + 1] = y;
+            x += ( random.nextDouble() - 0.5 ) * 2 * step;
+            y += ( random.nextDouble() - 0.5 ) * 2 * step;
+        }
+        return coords;
+    }
+
+    /**
+     * @param crs
+     * @param cx
+     * @param cy
+     * @param radius
+     * @param vertices
+     * @return a polygon without holes, see {@link #ringCoordinates(double, double, double, int)}
+     */
+    public Polygon polygon( ICRS crs, double cx, double cy, double radius, int vertices ) {
+        double[] coords = ringCoordinates( cx, cy, radius, vertices );
+        LinearRing exterior = GEOM_FAC.createLinearRing( null, crs, new PackedPoints( crs, coords, 2 ) );
+        return GEOM_FAC.createPolygon( null, crs, exterior, new ArrayList<Ring>() );
+    }
+
+    /**
+     * @param crs
+     * @param x
+     * @param y
+     * @param step
+     * @param vertices
+     * @return a line string, see {@link #walkCoordinates(double, double, double, int)}
+     */
+    public LineString lineString( ICRS crs, double x, double y, double step, int vertices ) {
+        double[] coords = walkCoordinates( x, y, step, vertices );
+        return GEOM_FAC.createLineString( null, crs, new PackedPoints( crs, coords, 2 ) );
+    }
+
+    /**
+     * Creates polygons which are randomly distributed in the given envelope.
+     * 
+     * @param env
+     *            the area to fill
+     * @param count
+     *            number of polygons
+     * @param vertices
+     *            number of vertices of each polygon
+     * @return the polygons
+     */
+    public List<Polygon> polygons( Envelope env, int count, int vertices ) {
+        double radius = Math.min( env.getSpan0(), env.getSpan1() ) / Math.sqrt( count );
+        List<Polygon> result = new ArrayList<Polygon>( count );
+        for ( int i = 0; i < count; ++i ) {
+            double cx = env.getMin().get0() + random.nextDouble() * env.getSpan0();
+            double cy = env.getMin().get1() + random.nextDouble() * env.getSpan1();
+            result.add( polygon( env.getCoordinateSystem(), cx, cy, radius, vertices ) );
+        }
+        return result;
+    }
+
+    /**
+     * Creates line strings which start randomly in the given envelope.
+     * 
+     * @param env
+     *            the area to fill
+     * @param count
+     *            number of lines
+     * @param vertices
+     *            number of vertices of each line
+     * @return the lines
+     */
+    public List<LineString> lineStrings( Envelope env, int count, int vertices ) {
+        double step = Math.min( env.getSpan0(), env.getSpan1() ) / Math.sqrt( count ) / Math.sqrt( vertices );
+        List<LineString> result = new ArrayList<LineString>( count );
+        for ( int i = 0; i < count; ++i ) {
+            double x = env.getMin().get0() + random.nextDouble() * env.getSpan0();
+            double y = env.getMin().get1() + random.nextDouble() * env.getSpan1();
+            result.add( lineString( env.getCoordinateSystem(), x, y, step, vertices ) );
+        }
+        return result;
+    }
+
+    /**
+     * Creates small random boxes in the given extent.
+     * 
+     * @param extent
+     *            minx, miny, maxx, maxy
+     * @param count
+     *            number of boxes
+     * @param maxSize
+     *            maximum width and height of a box
+     * @return the boxes as minx, miny, maxx, maxy
+     */
+    public List<float[]> boxes( float[] extent, int count, float maxSize ) {
+        List<float[]> result = new ArrayList<float[]>( count );
+        float w = extent[2] - extent[0] - maxSize;
+        float h = extent[3] - extent[1] - maxSize;
+        for ( int i = 0; i < count; ++i ) {
+            float x = extent[0] + random.nextFloat() * w;
+            float y = extent[1] + random.nextFloat() * h;
+            result.add( new float[] { x, y, x + random.nextFloat() * maxSize, y + random.nextFloat() * maxSize } );
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,206 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.filter;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static org.deegree.commons.tom.primitive.BaseType.INTEGER;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.GEOMETRY;
+import static org.deegree.feature.types.property.ValueRepresentation.INLINE;
+
+import java.io.StringReader;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.feature.xpath.TypedObjectNodeXPathEvaluator;
+import org.deegree.filter.Filter;
+import org.deegree.filter.xml.Filter200XMLDecoder;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the decoding of FES 2.0 filters ({@link Filter200XMLDecoder}) and the evaluation of the decoded filters
+ * on synthetic features.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+    private static final String FILTER_START = "<fes:Filter xmlns:fes=\"http://www.opengis.net/fes/2.0\" "
+                                               + "xmlns:gml=\"http://www.opengis.net/gml/3.2\">";
+
+    private static final String COMPARISON = FILTER_START + "<fes:And>"
+                                             + "<fes:PropertyIsGreaterThan><fes:ValueReference>population</fes:ValueReference>"
+                                             + "<fes:Literal>5000</fes:Literal></fes:PropertyIsGreaterThan>"
+                                             + "<fes:PropertyIsLike wildCard=\"*\" singleChar=\"?\" escapeChar=\"\\\">"
+                                             + "<fes:ValueReference>name</fes:ValueReference>"
+                                             + "<fes:Literal>feature_1*</fes:Literal></fes:PropertyIsLike>"
+                                             + "</fes:And></fes:Filter>";
+
+    private static final String SPATIAL = FILTER_START + "<fes:And>"
+                                          + "<fes:BBOX><fes:ValueReference>geom</fes:ValueReference>"
+                                          + "<gml:Envelope srsName=\"EPSG:25832\">"
+                                          + "<gml:lowerCorner>400000 5400000</gml:lowerCorner>"
+                                          + "<gml:upperCorner>600000 5800000</gml:upperCorner></gml:Envelope></fes:BBOX>"
+                                          + "<fes:PropertyIsLessThan><fes:ValueReference>population</fes:ValueReference>"
+                                          + "<fes:Literal>8000</fes:Literal></fes:PropertyIsLessThan>"
+                                          + "</fes:And></fes:Filter>";
+
+    private static final XMLInputFactory IN_FAC = XMLInputFactory.newInstance();
+
+    @Param({ "COMPARISON", "SPATIAL" })
+    public String filterType;
+
+    @Param({ "1000" })
+    public int features;
+
+    private String filterXml;
+
+    private Filter filter;
+
+    private List<Feature> featureList;
+
+    private final TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
+
+    /**
+     * Decodes the filter once and generates the features.
+     * 
+     * @throws Exception
+     */
+    @Setup
+    public void setup()
+                            throws Exception {
+        filterXml = "SPATIAL".equals( filterType ) ? SPATIAL : COMPARISON;
+        filter = parse();
+
+        ICRS crs = CRSManager.lookup( "EPSG:25832" );
+        List<PropertyType> props = new ArrayList<PropertyType>();
+        SimplePropertyType namePt = new SimplePropertyType( new QName( "name" ), 1, 1, STRING, null, null );
+        SimplePropertyType populationPt = new SimplePropertyType( new QName( "population" ), 1, 1, INTEGER, null,
+                                                                  null );
+        GeometryPropertyType geomPt = new GeometryPropertyType( new QName( "geom" ), 1, 1, null, null, GEOMETRY,
+                                                                DIM_2, INLINE );
+        props.add( namePt );
+        props.add( populationPt );
+        props.add( geomPt );
+        GenericFeatureType ft = new GenericFeatureType( new QName( "City" ), props, false );
+
+        SyntheticData data = new SyntheticData();
+        Envelope env = new GeometryFactory().createEnvelope( 280000, 5200000, 920000, 6100000, crs );
+        List<Polygon> polygons = data.polygons( env, features, 20 );
+        featureList = new ArrayList<Feature>( features );
+        for ( int i = 0; i < features; ++i ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( namePt, new PrimitiveValue( "feature_" + i ) ) );
+            values.add( new GenericProperty( populationPt,
+                                             new PrimitiveValue( BigInteger.valueOf( data.getRandom().nextInt( 10000 ) ) ) ) );
+            values.add( new GenericProperty( geomPt, polygons.get( i ) ) );
+            featureList.add( ft.newFeature( "f" + i, values, null ) );
+        }
+    }
+
+    /**
+     * @return the decoded filter
+     * @throws Exception
+     */
+    @Benchmark
+    public Filter decode()
+                            throws Exception {
+        return parse();
+    }
+
+    /**
+     * @return the number of matching features
+     * @throws Exception
+     */
+    @Benchmark
+    public int evaluate()
+                            throws Exception {
+        int matches = 0;
+        for ( Feature f : featureList ) {
+            if ( filter.evaluate( f, evaluator ) ) {
+                ++matches;
+            }
+        }
+        return matches;
+    }
+
+    private Filter parse()
+                            throws Exception {
+        XMLStreamReader xmlStream = IN_FAC.createXMLStreamReader( new StringReader( filterXml ) );
+        xmlStream.nextTag();
+        Filter result = Filter200XMLDecoder.parse( xmlStream );
+        xmlStream.close();
+        return result;
+    }
+
+}
@@ -0,0 +1,210 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.geometry;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static javax.xml.stream.XMLOutputFactory.IS_REPAIRING_NAMESPACES;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.io.WKBReader;
+import org.deegree.geometry.io.WKBWriter;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.gml.GMLInputFactory;
+import org.deegree.gml.GMLOutputFactory;
+import org.deegree.gml.GMLStreamReader;
+import org.deegree.gml.GMLStreamWriter;
+import org.deegree.gml.GMLVersion;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the GML 3 ({@link org.deegree.gml.geometry.GML3GeometryReader},
+ * {@link org.deegree.gml.geometry.GML3GeometryWriter}) and WKB ({@link WKBReader}, {@link WKBWriter}) geometry codecs
+ * on synthetic polygons.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryCodecBenchmark {
+
+    private static final XMLInputFactory IN_FAC = XMLInputFactory.newInstance();
+
+    private static final XMLOutputFactory OUT_FAC = XMLOutputFactory.newInstance();
+
+    static {
+        OUT_FAC.setProperty( IS_REPAIRING_NAMESPACES, true );
+    }
+
+    @Param({ "GML_31", "GML_32" })
+    public String gmlVersion;
+
+    @Param({ "10", "1000" })
+    public int vertices;
+
+    @Param({ "100" })
+    public int polygons;
+
+    private GMLVersion version;
+
+    private ICRS crs;
+
+    private List<Polygon> geometries;
+
+    private byte[][] gml;
+
+    private byte[][] wkb;
+
+    /**
+     * Generates the polygons and encodes them once to have the input of the read benchmarks.
+     * 
+     * @throws Exception
+     */
+    @Setup
+    public void setup()
+                            throws Exception {
+        version = GMLVersion.valueOf( gmlVersion );
+        crs = CRSManager.lookup( "EPSG:25832" );
+        Envelope env = new GeometryFactory().createEnvelope( 280000, 5200000, 920000, 6100000, crs );
+        geometries = new SyntheticData().polygons( env, polygons, vertices );
+        gml = new byte[polygons][];
+        wkb = new byte[polygons][];
+        for ( int i = 0; i < polygons; ++i ) {
+            gml[i] = writeGml( geometries.get( i ) );
+            wkb[i] = WKBWriter.write( geometries.get( i ) );
+        }
+    }
+
+    /**
+     * @return the encoded size, to make sure the work is not eliminated
+     * @throws Exception
+     */
+    @Benchmark
+    public long gmlWrite()
+                            throws Exception {
+        long size = 0;
+        for ( Polygon p : geometries ) {
+            size += writeGml( p ).length;
+        }
+        return size;
+    }
+
+    /**
+     * @return the parsed geometries
+     * @throws Exception
+     */
+    @Benchmark
+    public Geometry[] gmlRead()
+                            throws Exception {
+        Geometry[] result = new Geometry[gml.length];
+        for ( int i = 0; i < gml.length; ++i ) {
+            XMLStreamReader xmlReader = IN_FAC.createXMLStreamReader( new ByteArrayInputStream( gml[i] ) );
+            xmlReader.nextTag();
+            GMLStreamReader gmlReader = GMLInputFactory.createGMLStreamReader( version, xmlReader );
+            gmlReader.setDefaultCRS( crs );
+            result[i] = gmlReader.readGeometry();
+            xmlReader.close();
+        }
+        return result;
+    }
+
+    /**
+     * @return the encoded size, to make sure the work is not eliminated
+     * @throws Exception
+     */
+    @Benchmark
+    public long wkbWrite()
+                            throws Exception {
+        long size = 0;
+        for ( Polygon p : geometries ) {
+            size += WKBWriter.write( p ).length;
+        }
+        return size;
+    }
+
+    /**
+     * @return the parsed geometries
+     * @throws Exception
+     */
+    @Benchmark
+    public Geometry[] wkbRead()
+                            throws Exception {
+        Geometry[] result = new Geometry[wkb.length];
+        for ( int i = 0; i < wkb.length; ++i ) {
+            result[i] = WKBReader.read( wkb[i], crs );
+        }
+        return result;
+    }
+
+    private byte[] writeGml( Geometry geom )
+                            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        XMLStreamWriter xmlWriter = OUT_FAC.createXMLStreamWriter( bos, "UTF-8" );
+        GMLStreamWriter gmlWriter = GMLOutputFactory.createGMLStreamWriter( version, xmlWriter );
+        gmlWriter.write( geom );
+        gmlWriter.close();
+        return bos.toByteArray();
+    }
+
+}
@@ -0,0 +1,119 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.geometry;
+
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+
+import java.util.List;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.primitive.Polygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the transformation of synthetic polygons with the {@link GeometryTransformer}, from geographic WGS 84 to a
+ * projected (same datum) and to a projected (other datum) CRS.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeometryTransformBenchmark {
+
+    @Param({ "EPSG:3857", "EPSG:25832", "EPSG:31467" })
+    public String targetCrs;
+
+    @Param({ "10", "1000" })
+    public int vertices;
+
+    @Param({ "100" })
+    public int polygons;
+
+    private GeometryTransformer transformer;
+
+    private List<Polygon> geometries;
+
+    /**
+     * Generates the polygons in CRS:84 over Germany and creates the transformer.
+     * 
+     * @throws Exception
+     */
+    @Setup
+    public void setup()
+                            throws Exception {
+        ICRS source = CRSManager.lookup( "CRS:84" );
+        Envelope env = new GeometryFactory().createEnvelope( 6, 47.5, 14.5, 54.5, source );
+        geometries = new SyntheticData().polygons( env, polygons, vertices );
+        transformer = new GeometryTransformer( CRSManager.lookup( targetCrs ) );
+    }
+
+    /**
+     * @return the transformed geometries
+     * @throws Exception
+     */
+    @Benchmark
+    public Geometry[] transform()
+                            throws Exception {
+        Geometry[] result = new Geometry[geometries.size()];
+        int i = 0;
+        for ( Polygon p : geometries ) {
+            result[i++] = transformer.transform( p );
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,123 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.index;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.commons.index.RTree;
+import org.deegree.commons.utils.Pair;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the bulk loading and querying of the {@link RTree} with synthetic boxes.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RTreeBenchmark {
+
+    private static final float[] EXTENT = new float[] { 0, 0, 100000, 100000 };
+
+    @Param({ "10000", "100000" })
+    public int entries;
+
+    @Param({ "1000" })
+    public int queries;
+
+    private List<Pair<float[], Integer>> objects;
+
+    private List<float[]> queryBoxes;
+
+    private RTree<Integer> tree;
+
+    /**
+     * Generates the entries and query boxes and loads the tree used by the query benchmark.
+     */
+    @Setup
+    public void setup() {
+        SyntheticData data = new SyntheticData();
+        List<float[]> boxes = data.boxes( EXTENT, entries, 100 );
+        objects = new ArrayList<Pair<float[], Integer>>( entries );
+        for ( int i = 0; i < entries; ++i ) {
+            objects.add( new Pair<float[], Integer>( boxes.get( i ), i ) );
+        }
+        queryBoxes = data.boxes( EXTENT, queries, 2000 );
+        tree = bulkLoad();
+    }
+
+    /**
+     * @return the loaded tree
+     */
+    @Benchmark
+    public RTree<Integer> bulkLoad() {
+        RTree<Integer> result = new RTree<Integer>( EXTENT, -1 );
+        result.insertBulk( objects );
+        return result;
+    }
+
+    /**
+     * @return the number of hits of all queries
+     */
+    @Benchmark
+    public long query() {
+        long hits = 0;
+        for ( float[] box : queryBoxes ) {
+            hits += tree.query( box ).size();
+        }
+        return hits;
+    }
+
+}
@@ -0,0 +1,193 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.rendering;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
+import org.deegree.rendering.r2d.encoding.PngEncoder;
+import org.deegree.style.utils.ColorQuantizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link ColorQuantizer} and the PNG encoding of a synthetic map image, as done for the
+ * <code>image/png</code> and <code>image/png; mode=8bit</code> formats, with ImageIO and with the {@link PngEncoder}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PngEncodingBenchmark {
+
+    @Param({ "256", "1024" })
+    public int size;
+
+    @Param({ "1", "4", "9" })
+    public int level;
+
+    private BufferedImage image;
+
+    private BufferedImage quantized;
+
+    /**
+     * Paints a gradient with random, semi transparent polygons on top, resembling a rendered map.
+     */
+    @Setup
+    public void setup() {
+        image = new BufferedImage( size, size, TYPE_INT_ARGB );
+        Graphics2D g = image.createGraphics();
+        g.setPaint( new GradientPaint( 0, 0, new Color( 230, 240, 200 ), size, size, new Color( 120, 160, 220 ) ) );
+        g.fillRect( 0, 0, size, size );
+        SyntheticData data = new SyntheticData();
+        int polygons = size / 4;
+        for ( int i = 0; i < polygons; ++i ) {
+            double[] coords = data.ringCoordinates( data.getRandom().nextInt( size ), data.getRandom().nextInt( size ),
+                                                    size / 16, 12 );
+            int[] xs = new int[coords.length / 2];
+            int[] ys = new int[coords.length / 2];
+            for ( int j = 0; j < xs.length; ++j ) {
+                xs[j] = (int) coords[2 * j];
+                ys[j] = (int) coords[2 * j + 1];
+            }
+            g.setColor( new Color( data.getRandom().nextInt( 0x1000000 ) | 0x80000000, true ) );
+            g.fillPolygon( xs, ys, xs.length );
+            g.setColor( Color.DARK_GRAY );
+            g.drawPolygon( xs, ys, xs.length );
+        }
+        g.dispose();
+        quantized = ColorQuantizer.quantizeImage( image, 256, false, false );
+    }
+
+    /**
+     * @return the quantized image
+     */
+    @Benchmark
+    public BufferedImage quantize() {
+        return ColorQuantizer.quantizeImage( image, 256, false, false );
+    }
+
+    /**
+     * @return the size of the encoded image
+     * @throws Exception
+     */
+    @Benchmark
+    public int encodePng()
+                            throws Exception {
+        return encode( image );
+    }
+
+    /**
+     * @return the size of the encoded image
+     * @throws Exception
+     */
+    @Benchmark
+    public int encodeQuantizedPng()
+                            throws Exception {
+        return encode( quantized );
+    }
+
+    /**
+     * Quantization and encoding, as done for <code>image/png; mode=8bit</code>.
+     * 
+     * @return the size of the encoded image
+     * @throws Exception
+     */
+    @Benchmark
+    public int encodePng8()
+                            throws Exception {
+        return encode( ColorQuantizer.quantizeImage( image, 256, false, false ) );
+    }
+
+    /**
+     * @return the size of the encoded image
+     * @throws Exception
+     */
+    @Benchmark
+    public int pngEncoder()
+                            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PngEncoder.encode( image, bos, new ImageEncodingOptions( level, null, true ) );
+        return bos.size();
+    }
+
+    /**
+     * Quantization and encoding with the {@link PngEncoder}.
+     * 
+     * @return the size of the encoded image
+     * @throws Exception
+     */
+    @Benchmark
+    public int png8Encoder()
+                            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        PngEncoder.encode( ColorQuantizer.quantizeImage( image, 256, false, false ), bos,
+                           new ImageEncodingOptions( level, null, true ) );
+        return bos.size();
+    }
+
+    private static int encode( BufferedImage img )
+                            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        ImageIO.write( img, "png", bos );
+        return bos.size();
+    }
+
+}
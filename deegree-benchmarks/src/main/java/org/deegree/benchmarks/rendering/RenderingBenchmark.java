@@ -0,0 +1,172 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.rendering;
+
+import static java.awt.RenderingHints.KEY_ANTIALIASING;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_OFF;
+import static java.awt.RenderingHints.VALUE_ANTIALIAS_ON;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.LineString;
+import org.deegree.geometry.primitive.Polygon;
+import org.deegree.rendering.r2d.Java2DRenderer;
+import org.deegree.style.styling.LineStyling;
+import org.deegree.style.styling.PolygonStyling;
+import org.deegree.style.styling.components.Fill;
+import org.deegree.style.styling.components.Stroke;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the rendering of synthetic polygons and lines with the {@link Java2DRenderer}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderingBenchmark {
+
+    @Param({ "1000" })
+    public int geometries;
+
+    @Param({ "20", "500" })
+    public int vertices;
+
+    @Param({ "true", "false" })
+    public boolean antialias;
+
+    @Param({ "1024" })
+    public int size;
+
+    private Envelope bbox;
+
+    private List<Polygon> polygons;
+
+    private List<LineString> lines;
+
+    private PolygonStyling polygonStyling;
+
+    private LineStyling lineStyling;
+
+    /**
+     * Generates the geometries and stylings.
+     * 
+     * @throws Exception
+     */
+    @Setup
+    public void setup()
+                            throws Exception {
+        ICRS crs = CRSManager.lookup( "EPSG:25832" );
+        bbox = new GeometryFactory().createEnvelope( 400000, 5500000, 500000, 5600000, crs );
+        SyntheticData data = new SyntheticData();
+        polygons = data.polygons( bbox, geometries, vertices );
+        lines = data.lineStrings( bbox, geometries, vertices );
+
+        polygonStyling = new PolygonStyling();
+        polygonStyling.fill = new Fill();
+        polygonStyling.fill.color = new Color( 200, 120, 40, 180 );
+        polygonStyling.stroke = new Stroke();
+        polygonStyling.stroke.color = Color.BLACK;
+        polygonStyling.stroke.width = 1;
+
+        lineStyling = new LineStyling();
+        lineStyling.stroke = new Stroke();
+        lineStyling.stroke.color = new Color( 20, 60, 200 );
+        lineStyling.stroke.width = 2;
+    }
+
+    /**
+     * @return the rendered image
+     */
+    @Benchmark
+    public BufferedImage renderPolygons() {
+        BufferedImage img = new BufferedImage( size, size, TYPE_INT_ARGB );
+        Graphics2D g = createGraphics( img );
+        Java2DRenderer renderer = new Java2DRenderer( g, size, size, bbox );
+        for ( Polygon p : polygons ) {
+            renderer.render( polygonStyling, p );
+        }
+        g.dispose();
+        return img;
+    }
+
+    /**
+     * @return the rendered image
+     */
+    @Benchmark
+    public BufferedImage renderLines() {
+        BufferedImage img = new BufferedImage( size, size, TYPE_INT_ARGB );
+        Graphics2D g = createGraphics( img );
+        Java2DRenderer renderer = new Java2DRenderer( g, size, size, bbox );
+        for ( LineString l : lines ) {
+            renderer.render( lineStyling, l );
+        }
+        g.dispose();
+        return img;
+    }
+
+    private Graphics2D createGraphics( BufferedImage img ) {
+        Graphics2D g = img.createGraphics();
+        g.setRenderingHint( KEY_ANTIALIASING, antialias ? VALUE_ANTIALIAS_ON : VALUE_ANTIALIAS_OFF );
+        return g;
+    }
+
+}
@@ -0,0 +1,231 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.benchmarks.shape;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.deegree.geometry.utils.GeometryUtils.createEnvelope;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import org.deegree.benchmarks.SyntheticData;
+import org.deegree.commons.index.RTree;
+import org.deegree.commons.utils.Pair;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.persistence.shape.SHPReader;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the {@link SHPReader} on a synthetic polygon shape file: reading the envelopes (done when building the
+ * index), reading all geometries, and bbox queries through the index.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ShapeReaderBenchmark {
+
+    private static final int POLYGON = 5;
+
+    @Param({ "10000" })
+    public int records;
+
+    @Param({ "50" })
+    public int vertices;
+
+    private File shpFile;
+
+    private RandomAccessFile raf;
+
+    private SHPReader reader;
+
+    private Envelope bbox;
+
+    private Envelope queryBox;
+
+    /**
+     * Writes the shape file and opens the indexed reader.
+     * 
+     * @throws Exception
+     */
+    @Setup
+    public void setup()
+                            throws Exception {
+        ICRS crs = CRSManager.lookup( "EPSG:25832" );
+        bbox = new GeometryFactory().createEnvelope( 280000, 5200000, 920000, 6100000, crs );
+        queryBox = new GeometryFactory().createEnvelope( 500000, 5500000, 600000, 5600000, crs );
+        shpFile = File.createTempFile( "deegree-benchmark", ".shp" );
+        writePolygons( shpFile, new SyntheticData(), bbox, records, vertices );
+
+        raf = new RandomAccessFile( shpFile, "r" );
+        SHPReader unindexed = new SHPReader( raf, crs, null, false );
+        RTree<Long> rtree = new RTree<Long>( createEnvelope( bbox ), -1 );
+        rtree.insertBulk( unindexed.readEnvelopes().first );
+        reader = new SHPReader( raf, crs, rtree, false );
+    }
+
+    /**
+     * Closes and deletes the shape file.
+     * 
+     * @throws Exception
+     */
+    @TearDown
+    public void tearDown()
+                            throws Exception {
+        raf.close();
+        if ( !shpFile.delete() ) {
+            shpFile.deleteOnExit();
+        }
+    }
+
+    /**
+     * @return the envelopes of all records
+     */
+    @Benchmark
+    public List<Pair<float[], Long>> readEnvelopes() {
+        return reader.readEnvelopes().first;
+    }
+
+    /**
+     * @return all geometries
+     */
+    @Benchmark
+    public List<Pair<Integer, Geometry>> readAll() {
+        return reader.query( bbox, true, false );
+    }
+
+    /**
+     * @return the geometries intersecting a box of about 2% of the extent
+     */
+    @Benchmark
+    public List<Pair<Integer, Geometry>> queryExact() {
+        return reader.query( queryBox, true, true );
+    }
+
+    /**
+     * Writes a polygon shape file (without shx and dbf, which are not needed by the {@link SHPReader}).
+     */
+    private static void writePolygons( File file, SyntheticData data, Envelope env, int records, int vertices )
+                            throws IOException {
+        double radius = Math.min( env.getSpan0(), env.getSpan1() ) / Math.sqrt( records );
+        int points = vertices + 1;
+        // shape type, box, numParts, numPoints, one part index, points
+        int contentLength = 4 + 32 + 4 + 4 + 4 + points * 16;
+        int fileLength = 100 + records * ( 8 + contentLength );
+
+        ByteBuffer buf = ByteBuffer.allocate( fileLength );
+        buf.order( BIG_ENDIAN );
+        buf.putInt( 9994 );
+        buf.position( 24 );
+        buf.putInt( fileLength / 2 );
+        buf.order( LITTLE_ENDIAN );
+        buf.putInt( 1000 );
+        buf.putInt( POLYGON );
+        buf.putDouble( env.getMin().get0() );
+        buf.putDouble( env.getMin().get1() );
+        buf.putDouble( env.getMax().get0() );
+        buf.putDouble( env.getMax().get1() );
+        buf.putDouble( 0 );
+        buf.putDouble( 0 );
+        buf.putDouble( 0 );
+        buf.putDouble( 0 );
+
+        for ( int i = 0; i < records; ++i ) {
+            double cx = env.getMin().get0() + radius + data.getRandom().nextDouble() * ( env.getSpan0() - 2 * radius );
+            double cy = env.getMin().get1() + radius + data.getRandom().nextDouble() * ( env.getSpan1() - 2 * radius );
+            double[] coords = data.ringCoordinates( cx, cy, radius, vertices );
+            double minx = Double.MAX_VALUE, miny = Double.MAX_VALUE;
+            double maxx = -Double.MAX_VALUE, maxy = -Double.MAX_VALUE;
+            for ( int j = 0; j < coords.length; j += 2 ) {
+                minx = Math.min( minx, coords[j] );
+                maxx = Math.max( maxx, coords[j] );
+                miny = Math.min( miny, coords[j + 1] );
+                maxy = Math.max( maxy, coords[j + 1] );
+            }
+            buf.order( BIG_ENDIAN );
+            buf.putInt( i + 1 );
+            buf.putInt( contentLength / 2 );
+            buf.order( LITTLE_ENDIAN );
+            buf.putInt( POLYGON );
+            buf.putDouble( minx );
+            buf.putDouble( miny );
+            buf.putDouble( maxx );
+            buf.putDouble( maxy );
+            buf.putInt( 1 );
+            buf.putInt( points );
+            buf.putInt( 0 );
+            // outer rings are clockwise in shape files
+            for ( int j = points - 1; j >= 0; --j ) {
+                buf.putDouble( coords[2 * j] );
+                buf.putDouble( coords[2 * j + 1] );
+            }
+        }
+
+        FileOutputStream out = new FileOutputStream( file );
+        try {
+            out.write( buf.array() );
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,238 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.binary;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+import javax.xml.namespace.QName;
+
+/**
+ * Constants and low-level helpers shared by {@link BinaryFeatureWriter} and {@link BinaryFeatureReader}.
+ * <p>
+ * Layout of an encoded stream (all multi-byte numbers are big-endian):
+ * <ul>
+ * <li>magic bytes <code>DFB</code>, followed by one version byte</li>
+ * <li>any number of layers, each consisting of the marker byte <code>L</code>, an int32 length prefixed header, an
+ * optional int32 length prefixed {@link org.deegree.commons.index.PackedRTree} (in its own, little-endian format)
+ * and the length prefixed feature records, terminated by an int32 <code>0</code></li>
+ * </ul>
+ * Geometries are encoded as WKB, primitive values either natively (doubles, booleans) or using their text
+ * representation.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+final class BinaryFeatureEncoding {
+
+    static final byte[] MAGIC = { 'D', 'F', 'B' };
+
+    static final int VERSION = 1;
+
+    static final int LAYER = 'L';
+
+    static final int FLAG_INDEX = 1;
+
+    static final int KIND_PRIMITIVE = 0;
+
+    static final int KIND_GEOMETRY = 1;
+
+    static final int TAG_TEXT = 1;
+
+    static final int TAG_TYPED_TEXT = 2;
+
+    static final int TAG_DOUBLE = 3;
+
+    static final int TAG_BOOLEAN = 4;
+
+    static final int TAG_GEOMETRY = 5;
+
+    private BinaryFeatureEncoding() {
+        // avoid instantiation
+    }
+
+    static void writeVarInt( DataOutput out, int value )
+                            throws IOException {
+        while ( ( value & ~0x7F ) != 0 ) {
+            out.writeByte( ( value & 0x7F ) | 0x80 );
+            value >>>= 7;
+        }
+        out.writeByte( value );
+    }
+
+    /**
+     * Writes a string as varint (byte length + 1) and UTF-8 bytes, <code>null</code> is encoded as <code>0</code>.
+     */
+    static void writeString( DataOutput out, String s )
+                            throws IOException {
+        if ( s == null ) {
+            writeVarInt( out, 0 );
+            return;
+        }
+        byte[] bytes = s.getBytes( UTF_8 );
+        writeVarInt( out, bytes.length + 1 );
+        out.write( bytes );
+    }
+
+    static void writeQName( DataOutput out, QName name )
+                            throws IOException {
+        writeString( out, name.getNamespaceURI() );
+        writeString( out, name.getLocalPart() );
+        writeString( out, name.getPrefix() );
+    }
+
+    /**
+     * Converts a box to the float precision of the R-tree, rounding outwards so the result always contains the box.
+     */
+    static float[] toIndexBox( double minX, double minY, double maxX, double maxY ) {
+        return new float[] { roundDown( minX ), roundDown( minY ), roundUp( maxX ), roundUp( maxY ) };
+    }
+
+    private static float roundDown( double d ) {
+        float f = (float) d;
+        return f > d ? Math.nextDown( f ) : f;
+    }
+
+    private static float roundUp( double d ) {
+        float f = (float) d;
+        return f < d ? Math.nextUp( f ) : f;
+    }
+
+    /**
+     * Cursor based decoder for a byte array that has been read in one piece.
+     */
+    static class Decoder {
+
+        byte[] buf;
+
+        int pos;
+
+        int limit;
+
+        Decoder( byte[] buf, int limit ) {
+            reset( buf, limit );
+        }
+
+        void reset( byte[] buf, int limit ) {
+            this.buf = buf;
+            this.pos = 0;
+            this.limit = limit;
+        }
+
+        int readByte()
+                                throws IOException {
+            check( 1 );
+            return buf[pos++] & 0xFF;
+        }
+
+        int readVarInt()
+                                throws IOException {
+            int value = 0;
+            int shift = 0;
+            int b;
+            do {
+                if ( shift > 28 ) {
+                    throw new IOException( "Malformed variable length integer." );
+                }
+                b = readByte();
+                value |= ( b & 0x7F ) << shift;
+                shift += 7;
+            } while ( ( b & 0x80 ) != 0 );
+            return value;
+        }
+
+        int readInt()
+                                throws IOException {
+            check( 4 );
+            int v = ( ( buf[pos] & 0xFF ) << 24 ) | ( ( buf[pos + 1] & 0xFF ) << 16 ) | ( ( buf[pos + 2] & 0xFF ) << 8 )
+                    | ( buf[pos + 3] & 0xFF );
+            pos += 4;
+            return v;
+        }
+
+        long readLong()
+                                throws IOException {
+            long hi = readInt() & 0xFFFFFFFFL;
+            long lo = readInt() & 0xFFFFFFFFL;
+            return ( hi << 32 ) | lo;
+        }
+
+        double readDouble()
+                                throws IOException {
+            return Double.longBitsToDouble( readLong() );
+        }
+
+        String readString()
+                                throws IOException {
+            int len = readVarInt();
+            if ( len == 0 ) {
+                return null;
+            }
+            len--;
+            check( len );
+            String s = new String( buf, pos, len, UTF_8 );
+            pos += len;
+            return s;
+        }
+
+        QName readQName()
+                                throws IOException {
+            String ns = readString();
+            String local = readString();
+            String prefix = readString();
+            return new QName( ns, local, prefix == null ? "" : prefix );
+        }
+
+        byte[] readBytes( int len )
+                                throws IOException {
+            check( len );
+            byte[] bytes = new byte[len];
+            System.arraycopy( buf, pos, bytes, 0, len );
+            pos += len;
+            return bytes;
+        }
+
+        private void check( int len )
+                                throws IOException {
+            if ( len < 0 || pos + len > limit ) {
+                throw new IOException( "Unexpected end of binary feature record." );
+            }
+        }
+    }
+}
@@ -0,0 +1,441 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.binary;
+
+import static org.deegree.feature.binary.BinaryFeatureEncoding.FLAG_INDEX;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.KIND_GEOMETRY;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.LAYER;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.MAGIC;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_BOOLEAN;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_DOUBLE;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_GEOMETRY;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_TEXT;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_TYPED_TEXT;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.VERSION;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.toIndexBox;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2_OR_3;
+import static org.deegree.feature.types.property.ValueRepresentation.BOTH;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.index.PackedRTree;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.BaseType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.utils.CloseableIterator;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.binary.BinaryFeatureEncoding.Decoder;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.IteratorFeatureInputStream;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.GeometryPropertyType.GeometryType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.io.WKBReader;
+
+/**
+ * Reads {@link Feature}s that have been encoded using {@link BinaryFeatureWriter}.
+ * <p>
+ * If a bounding box is set (see {@link #setBoundingBox(Envelope)}), only features with a geometry that intersects it
+ * are returned. For spatially indexed layers, the records of all other features are skipped without decoding them.
+ * </p>
+ * 
+ * @see BinaryFeatureWriter
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BinaryFeatureReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private final AppSchema schema;
+
+    private final Map<QName, FeatureType> generatedTypes = new HashMap<QName, FeatureType>();
+
+    private final Decoder decoder = new Decoder( new byte[256], 0 );
+
+    private double[] bbox;
+
+    private boolean inLayer;
+
+    private FeatureType layerType;
+
+    private ICRS layerCrs;
+
+    private PropertyType[] columns;
+
+    private PrimitiveType[] columnTypes;
+
+    private long[] wanted;
+
+    private int wantedIdx;
+
+    private long offset;
+
+    /**
+     * Creates a new {@link BinaryFeatureReader} and reads the stream header.
+     * 
+     * @param is
+     *            stream to read from, must not be <code>null</code>
+     * @param schema
+     *            application schema used to look up the feature types, can be <code>null</code> (types are derived
+     *            from the encoded layer headers)
+     * @throws IOException
+     *             if the stream does not start with a valid header
+     */
+    public BinaryFeatureReader( InputStream is, AppSchema schema ) throws IOException {
+        this.in = new DataInputStream( new BufferedInputStream( is ) );
+        this.schema = schema;
+        byte[] magic = new byte[MAGIC.length + 1];
+        try {
+            in.readFully( magic );
+        } catch ( EOFException e ) {
+            throw new IOException( "Not a binary feature stream: stream is too short." );
+        }
+        for ( int i = 0; i < MAGIC.length; i++ ) {
+            if ( magic[i] != MAGIC[i] ) {
+                throw new IOException( "Not a binary feature stream: invalid header." );
+            }
+        }
+        if ( magic[MAGIC.length] != VERSION ) {
+            throw new IOException( "Unsupported binary feature stream version: " + magic[MAGIC.length] );
+        }
+    }
+
+    /**
+     * Restricts the returned features to the ones that intersect the given bounding box.
+     * 
+     * @param bbox
+     *            bounding box (in the crs of the encoded geometries), can be <code>null</code> (no restriction)
+     */
+    public void setBoundingBox( Envelope bbox ) {
+        if ( bbox == null ) {
+            this.bbox = null;
+        } else {
+            this.bbox = new double[] { bbox.getMin().get0(), bbox.getMin().get1(), bbox.getMax().get0(),
+                                      bbox.getMax().get1() };
+        }
+    }
+
+    /**
+     * Reads the next feature.
+     * 
+     * @return the next feature or <code>null</code>, if the end of the stream has been reached
+     * @throws IOException
+     *             if the stream cannot be read or is malformed
+     */
+    public Feature read()
+                            throws IOException {
+        while ( true ) {
+            if ( !inLayer && !readLayerHeader() ) {
+                return null;
+            }
+            int len = in.readInt();
+            if ( len == 0 ) {
+                inLayer = false;
+                continue;
+            }
+            if ( len < 0 ) {
+                throw new IOException( "Malformed binary feature stream: negative record length." );
+            }
+            long recordOffset = offset;
+            offset += 4 + len;
+            if ( wanted != null ) {
+                if ( wantedIdx >= wanted.length || wanted[wantedIdx] != recordOffset ) {
+                    skip( len );
+                    continue;
+                }
+                wantedIdx++;
+            }
+            readRecord( len );
+            // index boxes are slightly enlarged (float precision), so hits are tested as well
+            Feature f = decodeRecord( bbox != null );
+            if ( f != null ) {
+                return f;
+            }
+        }
+    }
+
+    /**
+     * Returns the remaining features as a {@link FeatureInputStream}.
+     * <p>
+     * Errors that occur while iterating are reported as {@link RuntimeException}s.
+     * </p>
+     * 
+     * @return feature stream, never <code>null</code>
+     */
+    public FeatureInputStream getFeatures() {
+        return new IteratorFeatureInputStream( new FeatureIterator() );
+    }
+
+    @Override
+    public void close()
+                            throws IOException {
+        in.close();
+    }
+
+    private boolean readLayerHeader()
+                            throws IOException {
+        int marker = in.read();
+        if ( marker == -1 ) {
+            return false;
+        }
+        if ( marker != LAYER ) {
+            throw new IOException( "Malformed binary feature stream: expected layer, found byte " + marker + "." );
+        }
+        readRecord( in.readInt() );
+        QName ftName = decoder.readQName();
+        String srsName = decoder.readString();
+        int flags = decoder.readByte();
+        decoder.readLong();
+        int numColumns = decoder.readVarInt();
+
+        layerCrs = srsName == null ? null : CRSManager.getCRSRef( srsName );
+        FeatureType ft = schema != null ? schema.getFeatureType( ftName ) : null;
+        columns = new PropertyType[numColumns];
+        columnTypes = new PrimitiveType[numColumns];
+        for ( int i = 0; i < numColumns; i++ ) {
+            QName name = decoder.readQName();
+            int kind = decoder.readByte();
+            String typeName = decoder.readString();
+            PropertyType pt = ft != null ? ft.getPropertyDeclaration( name ) : null;
+            if ( kind == KIND_GEOMETRY ) {
+                if ( pt == null ) {
+                    pt = new GeometryPropertyType( name, 0, -1, null, null, GeometryType.valueOf( typeName ),
+                                                   DIM_2_OR_3, BOTH );
+                }
+            } else {
+                columnTypes[i] = new PrimitiveType( BaseType.valueOf( typeName ) );
+                if ( pt == null ) {
+                    pt = new SimplePropertyType( name, 0, -1, columnTypes[i].getBaseType(), null, null );
+                }
+            }
+            columns[i] = pt;
+        }
+        if ( ft == null ) {
+            ft = generatedTypes.get( ftName );
+            if ( ft == null ) {
+                List<PropertyType> props = new ArrayList<PropertyType>( numColumns );
+                for ( PropertyType pt : columns ) {
+                    props.add( pt );
+                }
+                ft = new GenericFeatureType( ftName, props, false );
+                generatedTypes.put( ftName, ft );
+            }
+        }
+        layerType = ft;
+
+        wanted = null;
+        wantedIdx = 0;
+        offset = 0;
+        if ( ( flags & FLAG_INDEX ) != 0 ) {
+            int treeLength = in.readInt();
+            if ( bbox != null ) {
+                byte[] treeBytes = new byte[treeLength];
+                in.readFully( treeBytes );
+                PackedRTree tree = PackedRTree.loadFromBuffer( ByteBuffer.wrap( treeBytes ) );
+                List<Long> hits = tree.query( toIndexBox( bbox[0], bbox[1], bbox[2], bbox[3] ) );
+                wanted = new long[hits.size()];
+                for ( int i = 0; i < wanted.length; i++ ) {
+                    wanted[i] = hits.get( i );
+                }
+                Arrays.sort( wanted );
+            } else {
+                skip( treeLength );
+            }
+        }
+        inLayer = true;
+        return true;
+    }
+
+    private void readRecord( int len )
+                            throws IOException {
+        byte[] buf = decoder.buf;
+        if ( buf.length < len ) {
+            buf = new byte[Math.max( len, buf.length * 2 )];
+        }
+        in.readFully( buf, 0, len );
+        decoder.reset( buf, len );
+    }
+
+    private void skip( int len )
+                            throws IOException {
+        while ( len > 0 ) {
+            int skipped = in.skipBytes( len );
+            if ( skipped <= 0 ) {
+                throw new EOFException();
+            }
+            len -= skipped;
+        }
+    }
+
+    private Feature decodeRecord( boolean testBBox )
+                            throws IOException {
+        String fid = decoder.readString();
+        List<Property> props = new ArrayList<Property>();
+        boolean intersects = !testBBox;
+        for ( int i = 0; i < columns.length; i++ ) {
+            PropertyType pt = columns[i];
+            int count = decoder.readVarInt();
+            for ( int j = 0; j < count; j++ ) {
+                TypedObjectNode value = decodeValue( columnTypes[i] );
+                if ( !intersects && value instanceof Geometry ) {
+                    intersects = intersects( ( (Geometry) value ).getEnvelope() );
+                }
+                props.add( new GenericProperty( pt, pt.getName(), value ) );
+            }
+        }
+        if ( !intersects ) {
+            return null;
+        }
+        return layerType.newFeature( fid, props, null );
+    }
+
+    private TypedObjectNode decodeValue( PrimitiveType columnType )
+                            throws IOException {
+        int tag = decoder.readByte();
+        switch ( tag ) {
+        case TAG_TEXT:
+            return new PrimitiveValue( decoder.readString(), columnType );
+        case TAG_TYPED_TEXT:
+            PrimitiveType type = new PrimitiveType( BaseType.valueOf( decoder.readString() ) );
+            return new PrimitiveValue( decoder.readString(), type );
+        case TAG_DOUBLE:
+            return new PrimitiveValue( decoder.readDouble(), columnType );
+        case TAG_BOOLEAN:
+            return new PrimitiveValue( decoder.readByte() != 0, columnType );
+        case TAG_GEOMETRY:
+            byte[] wkb = decoder.readBytes( decoder.readVarInt() );
+            try {
+                return WKBReader.read( wkb, layerCrs );
+            } catch ( Exception e ) {
+                throw new IOException( "Cannot decode WKB geometry: " + e.getMessage(), e );
+            }
+        default:
+            throw new IOException( "Malformed binary feature record: unknown value tag " + tag + "." );
+        }
+    }
+
+    private boolean intersects( Envelope env ) {
+        return env != null && env.getMax().get0() >= bbox[0] && env.getMin().get0() <= bbox[2]
+               && env.getMax().get1() >= bbox[1] && env.getMin().get1() <= bbox[3];
+    }
+
+    private class FeatureIterator implements CloseableIterator<Feature> {
+
+        private Feature next;
+
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            if ( next == null && !done ) {
+                try {
+                    next = read();
+                } catch ( IOException e ) {
+                    throw new RuntimeException( e.getMessage(), e );
+                }
+                done = next == null;
+            }
+            return next != null;
+        }
+
+        @Override
+        public Feature next() {
+            if ( !hasNext() ) {
+                throw new NoSuchElementException();
+            }
+            Feature f = next;
+            next = null;
+            return f;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+            try {
+                BinaryFeatureReader.this.close();
+            } catch ( IOException e ) {
+                // nothing to do
+            }
+        }
+
+        @Override
+        public List<Feature> getAsListAndClose() {
+            return (List<Feature>) getAsCollectionAndClose( new LinkedList<Feature>() );
+        }
+
+        @Override
+        public Collection<Feature> getAsCollectionAndClose( Collection<Feature> collection ) {
+            while ( hasNext() ) {
+                collection.add( next() );
+            }
+            close();
+            return collection;
+        }
+    }
+}
@@ -0,0 +1,423 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.binary;
+
+import static org.deegree.commons.tom.primitive.BaseType.BOOLEAN;
+import static org.deegree.commons.tom.primitive.BaseType.DOUBLE;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.FLAG_INDEX;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.KIND_GEOMETRY;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.KIND_PRIMITIVE;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.LAYER;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.MAGIC;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_BOOLEAN;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_DOUBLE;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_GEOMETRY;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_TEXT;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.TAG_TYPED_TEXT;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.VERSION;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.toIndexBox;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.writeQName;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.writeString;
+import static org.deegree.feature.binary.BinaryFeatureEncoding.writeVarInt;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.GEOMETRY;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.index.PackedRTree;
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.BaseType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.utils.Pair;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.GeometryPropertyType.GeometryType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.io.WKBWriter;
+
+/**
+ * Writes {@link Feature}s in a compact, length prefixed binary encoding that can be read back using
+ * {@link BinaryFeatureReader}.
+ * <p>
+ * Features are grouped into layers, one per (consecutive) feature type. Layers can either be streamed using
+ * {@link #write(Feature)} or written at once using {@link #writeIndexed(Collection, int)}, which prepends a
+ * {@link PackedRTree} over the records (keeping their order), so readers can skip to the features that intersect a
+ * bounding box. Only feature types with simple and geometry properties are supported, see
+ * {@link #isSupported(FeatureType)}.
+ * </p>
+ * 
+ * @see BinaryFeatureReader
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BinaryFeatureWriter implements Closeable {
+
+    private final DataOutputStream out;
+
+    private final ICRS crs;
+
+    private final RecordBuffer record = new RecordBuffer();
+
+    private final DataOutputStream recordOut = new DataOutputStream( record );
+
+    private final double[] recordBox = new double[4];
+
+    private GeometryTransformer transformer;
+
+    private Collection<QName> propertyNames;
+
+    private FeatureType layerType;
+
+    private PropertyType[] columns;
+
+    /**
+     * Creates a new {@link BinaryFeatureWriter} and writes the stream header.
+     * 
+     * @param os
+     *            stream to write to, must not be <code>null</code>
+     * @param crs
+     *            crs to transform geometries into, can be <code>null</code> (geometries are written as they are)
+     * @throws IOException
+     */
+    public BinaryFeatureWriter( OutputStream os, ICRS crs ) throws IOException {
+        this.out = new DataOutputStream( os );
+        this.crs = crs;
+        out.write( MAGIC );
+        out.writeByte( VERSION );
+    }
+
+    /**
+     * Restricts the written properties to the given names.
+     * 
+     * @param propertyNames
+     *            names of the properties to write, can be <code>null</code> (all properties)
+     */
+    public void setPropertyNames( Collection<QName> propertyNames ) {
+        this.propertyNames = propertyNames;
+    }
+
+    /**
+     * Returns whether features of the given type can be encoded, i.e. whether all of its properties are simple or
+     * geometry properties.
+     * 
+     * @param ft
+     *            feature type, must not be <code>null</code>
+     * @return <code>true</code>, if the type is supported, <code>false</code> otherwise
+     */
+    public static boolean isSupported( FeatureType ft ) {
+        for ( PropertyType pt : ft.getPropertyDeclarations() ) {
+            if ( !( pt instanceof SimplePropertyType || pt instanceof GeometryPropertyType ) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the given feature, starting a new layer if its type differs from the one of the previous feature.
+     * 
+     * @param f
+     *            feature to write, must not be <code>null</code>
+     * @throws IOException
+     */
+    public void write( Feature f )
+                            throws IOException {
+        if ( f.getType() != layerType ) {
+            endLayer();
+            startLayer( f.getType(), 0, -1 );
+        }
+        encode( f );
+        out.writeInt( record.size() );
+        out.write( record.buffer(), 0, record.size() );
+    }
+
+    /**
+     * Writes the given features as spatially indexed layers (one for each feature type).
+     * 
+     * @param features
+     *            features to write, must not be <code>null</code>
+     * @param nodeSize
+     *            number of children per R-tree node, at least 2
+     * @throws IOException
+     */
+    public void writeIndexed( Collection<Feature> features, int nodeSize )
+                            throws IOException {
+        endLayer();
+        Map<FeatureType, List<Feature>> byType = new LinkedHashMap<FeatureType, List<Feature>>();
+        for ( Feature f : features ) {
+            List<Feature> list = byType.get( f.getType() );
+            if ( list == null ) {
+                list = new ArrayList<Feature>();
+                byType.put( f.getType(), list );
+            }
+            list.add( f );
+        }
+        for ( Entry<FeatureType, List<Feature>> e : byType.entrySet() ) {
+            writeIndexedLayer( e.getKey(), e.getValue(), nodeSize );
+        }
+    }
+
+    private void writeIndexedLayer( FeatureType ft, List<Feature> features, int nodeSize )
+                            throws IOException {
+        columns = getColumns( ft );
+        int n = features.size();
+        byte[][] records = new byte[n][];
+        List<Pair<float[], Long>> entries = new ArrayList<Pair<float[], Long>>( n );
+        long offset = 0;
+        for ( int i = 0; i < n; i++ ) {
+            encode( features.get( i ) );
+            records[i] = Arrays.copyOf( record.buffer(), record.size() );
+            float[] box = null;
+            if ( recordBox[0] <= recordBox[2] ) {
+                box = toIndexBox( recordBox[0], recordBox[1], recordBox[2], recordBox[3] );
+            }
+            entries.add( new Pair<float[], Long>( box, offset ) );
+            offset += 4 + records[i].length;
+        }
+        PackedRTree tree = new PackedRTree( nodeSize, false );
+        tree.insertBulk( entries );
+        ByteArrayOutputStream treeBytes = new ByteArrayOutputStream();
+        tree.write( Channels.newChannel( treeBytes ) );
+
+        writeLayerHeader( ft, FLAG_INDEX, n );
+        out.writeInt( treeBytes.size() );
+        treeBytes.writeTo( out );
+        for ( byte[] bytes : records ) {
+            out.writeInt( bytes.length );
+            out.write( bytes );
+        }
+        out.writeInt( 0 );
+        columns = null;
+    }
+
+    private void startLayer( FeatureType ft, int flags, long count )
+                            throws IOException {
+        columns = getColumns( ft );
+        layerType = ft;
+        writeLayerHeader( ft, flags, count );
+    }
+
+    private void writeLayerHeader( FeatureType ft, int flags, long count )
+                            throws IOException {
+        encodeLayerHeader( ft, flags, count );
+        out.writeByte( LAYER );
+        out.writeInt( record.size() );
+        out.write( record.buffer(), 0, record.size() );
+    }
+
+    private void encodeLayerHeader( FeatureType ft, int flags, long count )
+                            throws IOException {
+        record.reset();
+        writeQName( recordOut, ft.getName() );
+        writeString( recordOut, crs == null ? null : crs.getAlias() );
+        recordOut.writeByte( flags );
+        recordOut.writeLong( count );
+        writeVarInt( recordOut, columns.length );
+        for ( PropertyType pt : columns ) {
+            writeQName( recordOut, pt.getName() );
+            if ( pt instanceof GeometryPropertyType ) {
+                recordOut.writeByte( KIND_GEOMETRY );
+                GeometryType geomType = ( (GeometryPropertyType) pt ).getGeometryType();
+                writeString( recordOut, geomType == null ? GEOMETRY.name() : geomType.name() );
+            } else {
+                recordOut.writeByte( KIND_PRIMITIVE );
+                writeString( recordOut, ( (SimplePropertyType) pt ).getPrimitiveType().getBaseType().name() );
+            }
+        }
+        recordOut.flush();
+    }
+
+    private void endLayer()
+                            throws IOException {
+        if ( layerType != null ) {
+            out.writeInt( 0 );
+            layerType = null;
+            columns = null;
+        }
+    }
+
+    private PropertyType[] getColumns( FeatureType ft )
+                            throws IOException {
+        List<PropertyType> cols = new ArrayList<PropertyType>();
+        for ( PropertyType pt : ft.getPropertyDeclarations() ) {
+            if ( !( pt instanceof SimplePropertyType || pt instanceof GeometryPropertyType ) ) {
+                throw new IOException( "Cannot encode feature type '" + ft.getName() + "': property '" + pt.getName()
+                                       + "' is neither a simple nor a geometry property." );
+            }
+            if ( propertyNames == null || propertyNames.contains( pt.getName() ) ) {
+                cols.add( pt );
+            }
+        }
+        return cols.toArray( new PropertyType[cols.size()] );
+    }
+
+    private void encode( Feature f )
+                            throws IOException {
+        record.reset();
+        recordBox[0] = recordBox[1] = Double.POSITIVE_INFINITY;
+        recordBox[2] = recordBox[3] = Double.NEGATIVE_INFINITY;
+        writeString( recordOut, f.getId() );
+        List<TypedObjectNode> values = new ArrayList<TypedObjectNode>();
+        for ( PropertyType pt : columns ) {
+            values.clear();
+            for ( Property p : f.getProperties( pt.getName() ) ) {
+                if ( p.getValue() != null ) {
+                    values.add( p.getValue() );
+                }
+            }
+            writeVarInt( recordOut, values.size() );
+            for ( TypedObjectNode value : values ) {
+                encodeValue( pt, value );
+            }
+        }
+        recordOut.flush();
+    }
+
+    private void encodeValue( PropertyType pt, TypedObjectNode value )
+                            throws IOException {
+        if ( value instanceof Geometry ) {
+            Geometry geom = transform( (Geometry) value );
+            byte[] wkb;
+            try {
+                wkb = WKBWriter.write( geom );
+            } catch ( Exception e ) {
+                throw new IOException( "Cannot encode geometry as WKB: " + e.getMessage(), e );
+            }
+            recordOut.writeByte( TAG_GEOMETRY );
+            writeVarInt( recordOut, wkb.length );
+            recordOut.write( wkb );
+            Envelope env = geom.getEnvelope();
+            if ( env != null ) {
+                recordBox[0] = Math.min( recordBox[0], env.getMin().get0() );
+                recordBox[1] = Math.min( recordBox[1], env.getMin().get1() );
+                recordBox[2] = Math.max( recordBox[2], env.getMax().get0() );
+                recordBox[3] = Math.max( recordBox[3], env.getMax().get1() );
+            }
+            return;
+        }
+        BaseType columnType = null;
+        if ( pt instanceof SimplePropertyType ) {
+            columnType = ( (SimplePropertyType) pt ).getPrimitiveType().getBaseType();
+        }
+        if ( !( value instanceof PrimitiveValue ) ) {
+            recordOut.writeByte( TAG_TYPED_TEXT );
+            writeString( recordOut, BaseType.STRING.name() );
+            writeString( recordOut, value.toString() );
+            return;
+        }
+        PrimitiveValue pv = (PrimitiveValue) value;
+        BaseType type = pv.getType().getBaseType();
+        if ( type != columnType ) {
+            recordOut.writeByte( TAG_TYPED_TEXT );
+            writeString( recordOut, type.name() );
+            writeString( recordOut, pv.getAsText() );
+        } else if ( type == DOUBLE && pv.getValue() instanceof Number ) {
+            recordOut.writeByte( TAG_DOUBLE );
+            recordOut.writeDouble( ( (Number) pv.getValue() ).doubleValue() );
+        } else if ( type == BOOLEAN && pv.getValue() instanceof Boolean ) {
+            recordOut.writeByte( TAG_BOOLEAN );
+            recordOut.writeByte( ( (Boolean) pv.getValue() ) ? 1 : 0 );
+        } else {
+            recordOut.writeByte( TAG_TEXT );
+            writeString( recordOut, pv.getAsText() );
+        }
+    }
+
+    private Geometry transform( Geometry geom )
+                            throws IOException {
+        if ( crs == null || geom.getCoordinateSystem() == null || crs.equals( geom.getCoordinateSystem() ) ) {
+            return geom;
+        }
+        try {
+            if ( transformer == null ) {
+                transformer = new GeometryTransformer( crs );
+            }
+            return transformer.transform( geom );
+        } catch ( Exception e ) {
+            throw new IOException( "Cannot transform geometry to '" + crs.getAlias() + "': " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Flushes the underlying stream.
+     */
+    public void flush()
+                            throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Finishes the current layer and flushes the underlying stream, which is left open.
+     */
+    @Override
+    public void close()
+                            throws IOException {
+        endLayer();
+        out.flush();
+    }
+
+    private static class RecordBuffer extends ByteArrayOutputStream {
+
+        RecordBuffer() {
+            super( 256 );
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
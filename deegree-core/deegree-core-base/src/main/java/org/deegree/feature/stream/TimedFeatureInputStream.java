@@ -0,0 +1,123 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import java.util.Iterator;
+
+import org.deegree.commons.metrics.Timer;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+
+/**
+ * {@link FeatureInputStream} that stops a {@link Timer} once the backing stream has been consumed or closed. As many
+ * feature stores create their streams lazily, this makes the measured time include fetching the features.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class TimedFeatureInputStream implements FeatureInputStream {
+
+    private final FeatureInputStream rs;
+
+    private final Timer timer;
+
+    /**
+     * Creates a new {@link TimedFeatureInputStream}.
+     * 
+     * @param rs
+     *            stream to be measured, must not be <code>null</code>
+     * @param timer
+     *            started timer, must not be <code>null</code>
+     */
+    public TimedFeatureInputStream( FeatureInputStream rs, Timer timer ) {
+        this.rs = rs;
+        this.timer = timer;
+    }
+
+    @Override
+    public Iterator<Feature> iterator() {
+        final Iterator<Feature> iter = rs.iterator();
+        return new Iterator<Feature>() {
+
+            @Override
+            public boolean hasNext() {
+                boolean hasNext = iter.hasNext();
+                if ( !hasNext ) {
+                    timer.stop();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Feature next() {
+                return iter.next();
+            }
+
+            @Override
+            public void remove() {
+                iter.remove();
+            }
+        };
+    }
+
+    @Override
+    public FeatureCollection toCollection() {
+        try {
+            return rs.toCollection();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public int count() {
+        try {
+            return rs.count();
+        } finally {
+            timer.stop();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            rs.close();
+        } finally {
+            timer.stop();
+        }
+    }
+
+}
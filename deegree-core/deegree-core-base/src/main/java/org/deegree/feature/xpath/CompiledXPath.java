@@ -0,0 +1,282 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.xpath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.deegree.commons.tom.TypedObjectNode;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.xml.NamespaceBindings;
+import org.deegree.feature.xpath.node.AttributeNode;
+import org.deegree.feature.xpath.node.ElementNode;
+import org.deegree.feature.xpath.node.XPathNode;
+import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.expression.ValueReference;
+import org.jaxen.JaxenException;
+import org.jaxen.expr.Expr;
+import org.jaxen.expr.LocationPath;
+import org.jaxen.expr.NameStep;
+import org.jaxen.expr.Step;
+import org.jaxen.saxpath.Axis;
+
+/**
+ * A {@link ValueReference} compiled for repeated evaluation against {@link XPathNode}s.
+ * <p>
+ * Relative paths that consist only of child steps with an optional final attribute step (e.g.
+ * <code>app:address/app:street</code> or <code>app:name/@codeSpace</code>) are evaluated by walking the node graph
+ * directly. All other expressions are evaluated by Jaxen, the parsed expression is reused. Compiled expressions are
+ * immutable, thread-safe and cached per expression text and namespace bindings.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+abstract class CompiledXPath {
+
+    private static final int MAX_CACHE_SIZE = 4096;
+
+    private static final ConcurrentMap<String, CompiledXPath> CACHE = new ConcurrentHashMap<String, CompiledXPath>();
+
+    // navigator without document node, shared by all compiled expressions (it is stateless)
+    static final GMLObjectNavigator NAVIGATOR = new GMLObjectNavigator( null );
+
+    /**
+     * Returns the compiled form of the given {@link ValueReference}.
+     * 
+     * @param ref
+     *            must not be <code>null</code>
+     * @return compiled expression, never <code>null</code>
+     * @throws FilterEvaluationException
+     *             if the expression is not a valid XPath 1.0 expression
+     */
+    static CompiledXPath compile( ValueReference ref )
+                            throws FilterEvaluationException {
+        String key = getKey( ref );
+        CompiledXPath compiled = CACHE.get( key );
+        if ( compiled == null ) {
+            compiled = createStepPath( ref );
+            if ( compiled == null ) {
+                compiled = new JaxenPath( ref );
+            }
+            if ( CACHE.size() >= MAX_CACHE_SIZE ) {
+                CACHE.clear();
+            }
+            CACHE.putIfAbsent( key, compiled );
+        }
+        return compiled;
+    }
+
+    private static String getKey( ValueReference ref ) {
+        NamespaceBindings nsContext = ref.getNsContext();
+        List<String> prefixes = new ArrayList<String>();
+        Iterator<String> iter = nsContext.getPrefixes();
+        while ( iter.hasNext() ) {
+            prefixes.add( iter.next() );
+        }
+        if ( prefixes.isEmpty() ) {
+            return ref.getAsText();
+        }
+        Collections.sort( prefixes );
+        StringBuilder sb = new StringBuilder( ref.getAsText() );
+        for ( String prefix : prefixes ) {
+            sb.append( '|' ).append( prefix ).append( '=' ).append( nsContext.translateNamespacePrefixToUri( prefix ) );
+        }
+        return sb.toString();
+    }
+
+    private static StepPath createStepPath( ValueReference ref ) {
+        Expr expr = ref.getAsXPath();
+        if ( !( expr instanceof LocationPath ) || ( (LocationPath) expr ).isAbsolute() ) {
+            return null;
+        }
+        List<?> steps = ( (LocationPath) expr ).getSteps();
+        if ( steps.isEmpty() ) {
+            return null;
+        }
+        boolean[] attribute = new boolean[steps.size()];
+        String[] namespaces = new String[steps.size()];
+        String[] localNames = new String[steps.size()];
+        for ( int i = 0; i < steps.size(); i++ ) {
+            Step step = (Step) steps.get( i );
+            if ( !( step instanceof NameStep ) || !step.getPredicates().isEmpty() ) {
+                return null;
+            }
+            NameStep nameStep = (NameStep) step;
+            if ( nameStep.getAxis() == Axis.ATTRIBUTE && i == steps.size() - 1 ) {
+                attribute[i] = true;
+            } else if ( nameStep.getAxis() != Axis.CHILD ) {
+                return null;
+            }
+            if ( "*".equals( nameStep.getLocalName() ) ) {
+                return null;
+            }
+            String prefix = nameStep.getPrefix();
+            if ( prefix != null && !prefix.isEmpty() ) {
+                namespaces[i] = ref.getNsContext().translateNamespacePrefixToUri( prefix );
+                if ( namespaces[i] == null ) {
+                    // let Jaxen report the unbound prefix
+                    return null;
+                }
+            }
+            localNames[i] = nameStep.getLocalName();
+        }
+        return new StepPath( attribute, namespaces, localNames );
+    }
+
+    /**
+     * Evaluates the expression.
+     * 
+     * @param context
+     *            context node, must not be <code>null</code>
+     * @return selected values, never <code>null</code>
+     * @throws FilterEvaluationException
+     */
+    abstract TypedObjectNode[] eval( XPathNode<?> context )
+                            throws FilterEvaluationException;
+
+    private static boolean matchesNamespace( String stepNs, String nodeNs ) {
+        if ( stepNs == null || stepNs.isEmpty() ) {
+            return nodeNs == null || nodeNs.isEmpty();
+        }
+        return stepNs.equals( nodeNs );
+    }
+
+    /**
+     * Evaluates child and attribute steps by direct navigation.
+     */
+    private static class StepPath extends CompiledXPath {
+
+        private final boolean[] attribute;
+
+        private final String[] namespaces;
+
+        private final String[] localNames;
+
+        StepPath( boolean[] attribute, String[] namespaces, String[] localNames ) {
+            this.attribute = attribute;
+            this.namespaces = namespaces;
+            this.localNames = localNames;
+        }
+
+        @Override
+        TypedObjectNode[] eval( XPathNode<?> context ) {
+            List<XPathNode<?>> current = Collections.<XPathNode<?>> singletonList( context );
+            for ( int i = 0; i < localNames.length && !current.isEmpty(); i++ ) {
+                List<XPathNode<?>> next = new ArrayList<XPathNode<?>>();
+                for ( XPathNode<?> node : current ) {
+                    if ( attribute[i] ) {
+                        Iterator<?> iter = NAVIGATOR.getAttributeAxisIterator( node );
+                        while ( iter.hasNext() ) {
+                            AttributeNode<?> attr = (AttributeNode<?>) iter.next();
+                            if ( localNames[i].equals( attr.getLocalName() )
+                                 && matchesNamespace( namespaces[i], attr.getNamespaceUri() ) ) {
+                                next.add( attr );
+                            }
+                        }
+                    } else {
+                        Iterator<?> iter = NAVIGATOR.getChildAxisIterator( node );
+                        while ( iter.hasNext() ) {
+                            Object child = iter.next();
+                            if ( child instanceof ElementNode<?> ) {
+                                ElementNode<?> el = (ElementNode<?>) child;
+                                if ( localNames[i].equals( el.getLocalName() )
+                                     && matchesNamespace( namespaces[i], el.getNamespaceUri() ) ) {
+                                    next.add( el );
+                                }
+                            }
+                        }
+                    }
+                }
+                current = next;
+            }
+            TypedObjectNode[] result = new TypedObjectNode[current.size()];
+            int i = 0;
+            for ( XPathNode<?> node : current ) {
+                result[i++] = node.getValue();
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Evaluates arbitrary expressions using Jaxen.
+     */
+    private static class JaxenPath extends CompiledXPath {
+
+        private final GMLObjectXPath xpath;
+
+        JaxenPath( ValueReference ref ) throws FilterEvaluationException {
+            try {
+                xpath = new GMLObjectXPath( ref.getAsText(), null );
+                xpath.setNamespaceContext( ref.getNsContext() );
+                xpath.initContextSupport();
+            } catch ( JaxenException e ) {
+                throw new FilterEvaluationException( e.getMessage() );
+            }
+        }
+
+        @Override
+        TypedObjectNode[] eval( XPathNode<?> context )
+                                throws FilterEvaluationException {
+            List<?> selectedNodes;
+            try {
+                selectedNodes = xpath.selectNodes( context );
+            } catch ( JaxenException e ) {
+                throw new FilterEvaluationException( e.getMessage() );
+            }
+            TypedObjectNode[] resultValues = new TypedObjectNode[selectedNodes.size()];
+            int i = 0;
+            for ( Object node : selectedNodes ) {
+                if ( node instanceof XPathNode<?> ) {
+                    resultValues[i++] = ( (XPathNode<?>) node ).getValue();
+                } else if ( node instanceof String || node instanceof Double || node instanceof Boolean ) {
+                    resultValues[i++] = new PrimitiveValue( node );
+                } else {
+                    throw new RuntimeException( "Internal error. Encountered unexpected value of type '"
+                                                + node.getClass().getName() + "' (=" + node
+                                                + ") during XPath-evaluation." );
+                }
+            }
+            return resultValues;
+        }
+    }
+
+}
@@ -309,19 +309,36 @@ class GMLObjectNavigator extends DefaultNavigator {
     }
 
     /**
-     * Returns the top-level document node.
+     * Returns the top-level document node. If no root has been provided, the document node is derived from the topmost
+     * ancestor of the context node (which must be a {@link GMLObjectNode}).
      * 
      * @param contextNode
      *            any node in the document
      * @return the root node
      */
+    @SuppressWarnings("unchecked")
     @Override
     public Object getDocumentNode( Object contextNode ) {
-        if ( documentNode == null ) {
-            String msg = "getDocumentNode(Object) not possible, no document node provided";
-            throw new UnsupportedOperationException( msg );
+        if ( documentNode != null ) {
+            return documentNode;
+        }
+        if ( contextNode instanceof DocumentNode ) {
+            return contextNode;
         }
-        return documentNode;
+        if ( contextNode instanceof XPathNode<?> ) {
+            XPathNode<?> node = (XPathNode<?>) contextNode;
+            while ( node.getParent() != null ) {
+                node = node.getParent();
+            }
+            if ( node instanceof DocumentNode ) {
+                return node;
+            }
+            if ( node instanceof GMLObjectNode<?, ?> ) {
+                return new DocumentNode( (GMLObjectNode<GMLObject, GMLObject>) node );
+            }
+        }
+        String msg = "getDocumentNode(Object) not possible, no document node provided";
+        throw new UnsupportedOperationException( msg );
     }
 
     /**
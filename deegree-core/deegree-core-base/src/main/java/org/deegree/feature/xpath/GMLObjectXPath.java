@@ -96,4 +96,12 @@ public class GMLObjectXPath extends BaseXPath {
         setFunctionContext( fc );
         setNamespaceContext( nc );
     }
+
+    /**
+     * Eagerly creates the context support, so the expression can be evaluated by concurrent threads afterwards (as
+     * long as the namespace, function and variable contexts are not changed anymore).
+     */
+    void initContextSupport() {
+        getContextSupport();
+    }
 }
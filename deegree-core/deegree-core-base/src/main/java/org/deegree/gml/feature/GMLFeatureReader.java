@@ -87,7 +87,7 @@ import org.deegree.geometry.Envelope;
 import org.deegree.gml.GMLStreamReader;
 import org.deegree.gml.commons.AbstractGMLObjectReader;
 import org.deegree.gml.reference.FeatureReference;
-import org.deegree.gml.schema.GMLAppSchemaReader;
+import org.deegree.gml.schema.AppSchemaCache;
 import org.deegree.gml.schema.WellKnownGMLTypes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -501,8 +501,7 @@ public class GMLFeatureReader extends AbstractGMLObjectReader {
         // TODO handle multi-namespace schemas
         AppSchema schema = null;
         try {
-            GMLAppSchemaReader decoder = new GMLAppSchemaReader( gmlStreamReader.getVersion(), null, schemaUrls );
-            schema = decoder.extractAppSchema();
+            schema = AppSchemaCache.getAppSchema( gmlStreamReader.getVersion(), schemaUrls );
         } catch ( Throwable t ) {
             LOG.warn( Messages.getMessage( "BROKEN_SCHEMA", xmlStream.getSystemId(), t.getMessage() ), t );
             return new DynamicAppSchema();
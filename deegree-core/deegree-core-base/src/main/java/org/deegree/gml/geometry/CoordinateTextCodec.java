@@ -0,0 +1,572 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.gml.geometry;
+
+import static javax.xml.stream.XMLStreamConstants.CDATA;
+import static javax.xml.stream.XMLStreamConstants.CHARACTERS;
+import static javax.xml.stream.XMLStreamConstants.COMMENT;
+import static javax.xml.stream.XMLStreamConstants.END_DOCUMENT;
+import static javax.xml.stream.XMLStreamConstants.END_ELEMENT;
+import static javax.xml.stream.XMLStreamConstants.ENTITY_REFERENCE;
+import static javax.xml.stream.XMLStreamConstants.PROCESSING_INSTRUCTION;
+import static javax.xml.stream.XMLStreamConstants.SPACE;
+import static javax.xml.stream.XMLStreamConstants.START_ELEMENT;
+
+import java.util.Arrays;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.deegree.commons.xml.XMLParsingException;
+import org.deegree.commons.xml.stax.XMLStreamReaderWrapper;
+import org.deegree.geometry.io.CoordinateFormatter;
+import org.deegree.geometry.io.DecimalCoordinateFormatter;
+import org.deegree.geometry.io.DoubleCoordinateFormatter;
+
+/**
+ * Reads and writes the textual coordinate encodings of GML (<code>gml:pos</code>, <code>gml:posList</code>,
+ * <code>gml:coordinates</code>, ...).
+ * <p>
+ * Reading works on the character buffer of the StAX parser and converts ordinates without creating intermediate
+ * strings. Writing formats ordinates into a reusable character buffer that is handed to the {@link XMLStreamWriter}
+ * in chunks. The results are identical to {@link Double#parseDouble(String)} and the configured
+ * {@link CoordinateFormatter}: both fast paths fall back to these whenever a value cannot be handled exactly.
+ * </p>
+ * <p>
+ * Instances are not thread-safe.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+class CoordinateTextCodec {
+
+    private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12,
+                                           1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    private static final long[] LONG_POW10 = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L,
+                                              100000000L, 1000000000L, 10000000000L, 100000000000L,
+                                              1000000000000L, 10000000000000L, 100000000000000L,
+                                              1000000000000000L };
+
+    // mantissas with up to 15 digits are exactly representable as doubles
+    private static final int MAX_FAST_DIGITS = 15;
+
+    private static final double MAX_FAST_UNITS = 1e15;
+
+    private static final int MAX_FAST_CHARS = 32;
+
+    private static final int WRITE_BUFFER_SIZE = 4096;
+
+    // read buffers growing beyond this size are released after use
+    private static final int RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private static final double[] PROBES = { 0.0, 1.0, -1.0, 0.25, -7.125, 1234567.890123, -0.000123456,
+                                            987654.321987 };
+
+    private final XMLStreamWriter writer;
+
+    private final CoordinateFormatter formatter;
+
+    private final int places;
+
+    private final boolean plainDouble;
+
+    private char[] text = new char[256];
+
+    private int textLength;
+
+    private double[] values = new double[64];
+
+    private int numValues;
+
+    private int tupleDimension;
+
+    private char[] out;
+
+    private int outLength;
+
+    /**
+     * Creates a new {@link CoordinateTextCodec} for reading coordinates.
+     */
+    CoordinateTextCodec() {
+        this( null, null );
+    }
+
+    /**
+     * Creates a new {@link CoordinateTextCodec} for reading and writing coordinates.
+     * 
+     * @param writer
+     *            writer to write to, may be <code>null</code> (read-only)
+     * @param formatter
+     *            formatter that determines the output format of ordinates, may be <code>null</code> (read-only)
+     */
+    CoordinateTextCodec( XMLStreamWriter writer, CoordinateFormatter formatter ) {
+        this.writer = writer;
+        this.formatter = formatter;
+        if ( writer != null ) {
+            out = new char[WRITE_BUFFER_SIZE];
+        }
+        this.plainDouble = formatter instanceof DoubleCoordinateFormatter;
+        int places = -1;
+        if ( formatter instanceof DecimalCoordinateFormatter ) {
+            places = ( (DecimalCoordinateFormatter) formatter ).getDecimalPlaces();
+            if ( places >= LONG_POW10.length || !probe( places ) ) {
+                places = -1;
+            }
+        }
+        this.places = places;
+    }
+
+    /**
+     * Parses the text content of the current element as a whitespace-separated list of doubles.
+     * <ul>
+     * <li>Precondition: cursor must point at the <code>START_ELEMENT</code> event</li>
+     * <li>Postcondition: cursor points at the corresponding <code>END_ELEMENT</code> event</li>
+     * </ul>
+     * 
+     * @param xmlStream
+     *            must not be <code>null</code>
+     * @return parsed values, never <code>null</code>
+     * @throws XMLParsingException
+     *             if a value cannot be parsed as a double
+     * @throws XMLStreamException
+     */
+    double[] parseDoubleList( XMLStreamReaderWrapper xmlStream )
+                            throws XMLParsingException, XMLStreamException {
+        readElementText( xmlStream );
+        numValues = 0;
+        int i = 0;
+        while ( i < textLength ) {
+            if ( isWhitespace( text[i] ) ) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while ( i < textLength && !isWhitespace( text[i] ) ) {
+                i++;
+            }
+            addValue( parseDouble( xmlStream, start, i ) );
+        }
+        return getValues();
+    }
+
+    /**
+     * Parses the text content of the current element as a list of coordinate tuples (<code>gml:coordinates</code>).
+     * <p>
+     * Whitespace is treated as a tuple separator (unless it is used as coordinate separator), empty tuples are
+     * ignored. After the call, {@link #getTupleDimension()} returns the number of values per tuple.
+     * </p>
+     * <ul>
+     * <li>Precondition: cursor must point at the <code>START_ELEMENT</code> event</li>
+     * <li>Postcondition: cursor points at the corresponding <code>END_ELEMENT</code> event</li>
+     * </ul>
+     * 
+     * @param xmlStream
+     *            must not be <code>null</code>
+     * @param cs
+     *            coordinate separator characters, must not be <code>null</code>
+     * @param ts
+     *            tuple separator characters, must not be <code>null</code>
+     * @return values of all tuples, never <code>null</code>
+     * @throws XMLParsingException
+     *             if a value cannot be parsed as a double or the tuples have different dimensions
+     * @throws XMLStreamException
+     */
+    double[] parseTuples( XMLStreamReaderWrapper xmlStream, String cs, String ts )
+                            throws XMLParsingException, XMLStreamException {
+        readElementText( xmlStream );
+        numValues = 0;
+        tupleDimension = 0;
+        int tupleStart = 0;
+        int i = 0;
+        while ( i < textLength ) {
+            char c = text[i];
+            if ( isTupleSeparator( c, cs, ts ) ) {
+                endTuple( xmlStream, tupleStart );
+                tupleStart = numValues;
+                i++;
+            } else if ( cs.indexOf( c ) != -1 ) {
+                i++;
+            } else {
+                int start = i;
+                while ( i < textLength && cs.indexOf( text[i] ) == -1 && !isTupleSeparator( text[i], cs, ts ) ) {
+                    i++;
+                }
+                addValue( parseDouble( xmlStream, start, i ) );
+            }
+        }
+        endTuple( xmlStream, tupleStart );
+        return getValues();
+    }
+
+    /**
+     * Returns the number of values per tuple encountered by the last call to {@link #parseTuples}.
+     * 
+     * @return number of values per tuple, <code>0</code> if no tuple has been found
+     */
+    int getTupleDimension() {
+        return tupleDimension;
+    }
+
+    /**
+     * Appends the given ordinate to the output.
+     * 
+     * @param ordinate
+     *            ordinate to be written
+     * @throws XMLStreamException
+     */
+    void appendOrdinate( double ordinate )
+                            throws XMLStreamException {
+        if ( out.length - outLength < MAX_FAST_CHARS ) {
+            flush();
+        }
+        if ( places >= 0 && appendFixed( ordinate, places ) ) {
+            return;
+        }
+        appendString( plainDouble ? Double.toString( ordinate ) : formatter.format( ordinate ) );
+    }
+
+    /**
+     * Appends the given separator character to the output.
+     * 
+     * @param separator
+     *            separator to be written
+     * @throws XMLStreamException
+     */
+    void appendSeparator( char separator )
+                            throws XMLStreamException {
+        if ( outLength == out.length ) {
+            flush();
+        }
+        out[outLength++] = separator;
+    }
+
+    /**
+     * Appends the given ordinates to the output, separated by a single space.
+     * 
+     * @param ordinates
+     *            ordinates to be written, must not be <code>null</code>
+     * @throws XMLStreamException
+     */
+    void appendOrdinates( double[] ordinates )
+                            throws XMLStreamException {
+        for ( int i = 0; i < ordinates.length; i++ ) {
+            if ( i > 0 ) {
+                appendSeparator( ' ' );
+            }
+            appendOrdinate( ordinates[i] );
+        }
+    }
+
+    /**
+     * Writes pending output to the underlying {@link XMLStreamWriter}.
+     * 
+     * @throws XMLStreamException
+     */
+    void flush()
+                            throws XMLStreamException {
+        if ( outLength > 0 ) {
+            writer.writeCharacters( out, 0, outLength );
+            outLength = 0;
+        }
+    }
+
+    /**
+     * Parses a plain decimal number (optional sign, digits, optional fraction and exponent) with at most
+     * 15 significant digits. Within these bounds, a single correctly rounded multiplication or
+     * division yields exactly the result of {@link Double#parseDouble(String)}.
+     * 
+     * @return parsed value, or {@link Double#NaN} if the token has to be parsed by {@link Double#parseDouble(String)}
+     */
+    static double parseFast( char[] chars, int start, int end ) {
+        int i = start;
+        boolean negative = false;
+        if ( i < end && ( chars[i] == '-' || chars[i] == '+' ) ) {
+            negative = chars[i] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean hasDigits = false;
+        char c;
+        while ( i < end && ( c = chars[i] ) >= '0' && c <= '9' ) {
+            if ( mantissa != 0 || c != '0' ) {
+                if ( ++significantDigits > MAX_FAST_DIGITS ) {
+                    return Double.NaN;
+                }
+                mantissa = mantissa * 10 + ( c - '0' );
+            }
+            hasDigits = true;
+            i++;
+        }
+        if ( i < end && chars[i] == '.' ) {
+            i++;
+            while ( i < end && ( c = chars[i] ) >= '0' && c <= '9' ) {
+                if ( mantissa != 0 || c != '0' ) {
+                    if ( ++significantDigits > MAX_FAST_DIGITS ) {
+                        return Double.NaN;
+                    }
+                    mantissa = mantissa * 10 + ( c - '0' );
+                }
+                exponent--;
+                hasDigits = true;
+                i++;
+            }
+        }
+        if ( !hasDigits ) {
+            return Double.NaN;
+        }
+        if ( i < end && ( chars[i] == 'e' || chars[i] == 'E' ) ) {
+            i++;
+            boolean negativeExponent = false;
+            if ( i < end && ( chars[i] == '-' || chars[i] == '+' ) ) {
+                negativeExponent = chars[i] == '-';
+                i++;
+            }
+            int exponentValue = 0;
+            int exponentDigits = 0;
+            while ( i < end && ( c = chars[i] ) >= '0' && c <= '9' ) {
+                if ( ++exponentDigits > 3 ) {
+                    return Double.NaN;
+                }
+                exponentValue = exponentValue * 10 + ( c - '0' );
+                i++;
+            }
+            if ( exponentDigits == 0 ) {
+                return Double.NaN;
+            }
+            exponent += negativeExponent ? -exponentValue : exponentValue;
+        }
+        if ( i != end ) {
+            return Double.NaN;
+        }
+        double value;
+        if ( mantissa == 0 || exponent == 0 ) {
+            value = mantissa;
+        } else if ( exponent > 0 && exponent < POW10.length ) {
+            value = mantissa * POW10[exponent];
+        } else if ( exponent < 0 && -exponent < POW10.length ) {
+            value = mantissa / POW10[-exponent];
+        } else {
+            return Double.NaN;
+        }
+        return negative ? -value : value;
+    }
+
+    private double parseDouble( XMLStreamReaderWrapper xmlStream, int start, int end )
+                            throws XMLParsingException {
+        double value = parseFast( text, start, end );
+        if ( value == value ) {
+            return value;
+        }
+        String token = new String( text, start, end - start );
+        try {
+            return Double.parseDouble( token );
+        } catch ( NumberFormatException e ) {
+            String msg = "Value '" + token + "' cannot be parsed as a double.";
+            throw new XMLParsingException( xmlStream, msg );
+        }
+    }
+
+    private void readElementText( XMLStreamReaderWrapper xmlStream )
+                            throws XMLStreamException {
+        if ( xmlStream.getEventType() != START_ELEMENT ) {
+            throw new XMLStreamException( "parser must be on START_ELEMENT to read next text", xmlStream.getLocation() );
+        }
+        textLength = 0;
+        int eventType = xmlStream.next();
+        while ( eventType != END_ELEMENT ) {
+            if ( eventType == CHARACTERS || eventType == CDATA || eventType == SPACE ) {
+                appendText( xmlStream.getTextCharacters(), xmlStream.getTextStart(), xmlStream.getTextLength() );
+            } else if ( eventType == ENTITY_REFERENCE ) {
+                String s = xmlStream.getText();
+                appendText( s.toCharArray(), 0, s.length() );
+            } else if ( eventType == PROCESSING_INSTRUCTION || eventType == COMMENT ) {
+                // skipping
+            } else if ( eventType == END_DOCUMENT ) {
+                throw new XMLStreamException( "unexpected end of document when reading element text content",
+                                              xmlStream.getLocation() );
+            } else if ( eventType == START_ELEMENT ) {
+                throw new XMLStreamException( "element text content may not contain START_ELEMENT",
+                                              xmlStream.getLocation() );
+            } else {
+                throw new XMLStreamException( "Unexpected event type " + eventType, xmlStream.getLocation() );
+            }
+            eventType = xmlStream.next();
+        }
+    }
+
+    private void appendText( char[] chars, int start, int length ) {
+        if ( textLength + length > text.length ) {
+            text = Arrays.copyOf( text, Math.max( text.length * 2, textLength + length ) );
+        }
+        System.arraycopy( chars, start, text, textLength, length );
+        textLength += length;
+    }
+
+    private void addValue( double value ) {
+        if ( numValues == values.length ) {
+            values = Arrays.copyOf( values, values.length * 2 );
+        }
+        values[numValues++] = value;
+    }
+
+    private double[] getValues() {
+        double[] result = Arrays.copyOf( values, numValues );
+        if ( text.length > RETAINED_BUFFER_SIZE ) {
+            text = new char[256];
+        }
+        if ( values.length > RETAINED_BUFFER_SIZE ) {
+            values = new double[64];
+        }
+        return result;
+    }
+
+    private void endTuple( XMLStreamReaderWrapper xmlStream, int tupleStart )
+                            throws XMLParsingException {
+        int dim = numValues - tupleStart;
+        if ( dim == 0 ) {
+            return;
+        }
+        if ( tupleDimension == 0 ) {
+            tupleDimension = dim;
+        } else if ( dim != tupleDimension ) {
+            String msg = "Cannot parse coordinates: found tuples with " + tupleDimension + " and " + dim
+                         + " values. All tuples must have the same number of values.";
+            throw new XMLParsingException( xmlStream, msg );
+        }
+    }
+
+    private static boolean isTupleSeparator( char c, String cs, String ts ) {
+        return ts.indexOf( c ) != -1 || ( isWhitespace( c ) && cs.indexOf( c ) == -1 );
+    }
+
+    // same characters as the default delimiters of java.util.StringTokenizer
+    private static boolean isWhitespace( char c ) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    /**
+     * Appends the ordinate rounded to the given number of decimal places, which is what the <code>DecimalFormat</code>
+     * of the {@link DecimalCoordinateFormatter} produces (rounding mode half-even on the exact binary value).
+     * 
+     * @return <code>true</code>, if the ordinate has been appended, <code>false</code> if it has to be formatted by the
+     *         formatter (too large, not finite, close to a rounding tie or negative zero)
+     */
+    private boolean appendFixed( double ordinate, int places ) {
+        if ( Double.isNaN( ordinate ) || Double.isInfinite( ordinate ) ) {
+            return false;
+        }
+        double scaled = Math.abs( ordinate ) * POW10[places];
+        if ( !( scaled < MAX_FAST_UNITS ) ) {
+            return false;
+        }
+        double rounded = Math.rint( scaled );
+        // the scaled value is inexact, so values near a tie may round differently on the exact binary value
+        if ( Math.abs( Math.abs( scaled - rounded ) - 0.5 ) <= 2 * Math.ulp( scaled ) ) {
+            return false;
+        }
+        long units = (long) rounded;
+        if ( units == 0 && Double.doubleToRawLongBits( ordinate ) < 0 ) {
+            return false;
+        }
+        if ( ordinate < 0 ) {
+            out[outLength++] = '-';
+        }
+        appendLong( units / LONG_POW10[places] );
+        if ( places > 0 ) {
+            out[outLength++] = '.';
+            long fraction = units % LONG_POW10[places];
+            for ( int i = outLength + places - 1; i >= outLength; i-- ) {
+                out[i] = (char) ( '0' + fraction % 10 );
+                fraction /= 10;
+            }
+            outLength += places;
+        }
+        return true;
+    }
+
+    private void appendLong( long value ) {
+        int digits = 1;
+        while ( digits < LONG_POW10.length && value >= LONG_POW10[digits] ) {
+            digits++;
+        }
+        for ( int i = outLength + digits - 1; i >= outLength; i-- ) {
+            out[i] = (char) ( '0' + value % 10 );
+            value /= 10;
+        }
+        outLength += digits;
+    }
+
+    private void appendString( String s )
+                            throws XMLStreamException {
+        int length = s.length();
+        if ( length > out.length - outLength ) {
+            flush();
+            if ( length > out.length ) {
+                writer.writeCharacters( s );
+                return;
+            }
+        }
+        s.getChars( 0, length, out, outLength );
+        outLength += length;
+    }
+
+    // verifies that the fast path matches the formatter (e.g. locale specific symbols)
+    private boolean probe( int places ) {
+        if ( places < 0 ) {
+            return false;
+        }
+        char[] buffer = out;
+        out = new char[MAX_FAST_CHARS];
+        try {
+            for ( double probe : PROBES ) {
+                outLength = 0;
+                if ( appendFixed( probe, places ) ) {
+                    if ( !formatter.format( probe ).equals( new String( out, 0, outLength ) ) ) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            out = buffer;
+            outLength = 0;
+        }
+    }
+}
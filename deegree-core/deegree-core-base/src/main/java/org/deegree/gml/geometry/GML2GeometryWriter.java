@@ -100,7 +100,7 @@ public class GML2GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
 
     private final SFSProfiler simplifier;
 
-    private CoordinateFormatter formatter;
+    private final CoordinateTextCodec codec;
 
     private CoordinateTransformer transformer;
 
@@ -129,10 +129,11 @@ public class GML2GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
                            + ". Encoding will fail if a transformation is actually necessary." );
             }
         }
-        formatter = gmlStream.getCoordinateFormatter();
+        CoordinateFormatter formatter = gmlStream.getCoordinateFormatter();
         if ( formatter == null ) {
             formatter = new DecimalCoordinateFormatter( crsUnits );
         }
+        codec = new CoordinateTextCodec( writer, formatter );
     }
 
     @SuppressWarnings("unchecked")
@@ -199,15 +200,18 @@ public class GML2GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
         double[] ords = getTransformedCoordinate( point.getCoordinateSystem(), point.getAsArray() );
         writer.writeStartElement( "gml", "coord", GML21NS );
         writer.writeStartElement( "gml", "X", GML21NS );
-        writer.writeCharacters( formatter.format( ords[0] ) );
+        codec.appendOrdinate( ords[0] );
+        codec.flush();
         writer.writeEndElement();
         if ( ords.length > 1 ) {
             writer.writeStartElement( "gml", "Y", GML21NS );
-            writer.writeCharacters( formatter.format( ords[1] ) );
+            codec.appendOrdinate( ords[1] );
+            codec.flush();
             writer.writeEndElement();
             if ( ords.length > 2 ) {
                 writer.writeStartElement( "gml", "Z", GML21NS );
-                writer.writeCharacters( formatter.format( ords[2] ) );
+                codec.appendOrdinate( ords[2] );
+                codec.flush();
                 writer.writeEndElement();
             }
         }
@@ -221,21 +225,20 @@ public class GML2GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
         writer.writeAttribute( "decimal", "." );
         writer.writeAttribute( "cs", "," );
         writer.writeAttribute( "ts", " " );
-        StringBuilder sb = new StringBuilder();
         boolean first = true;
         for ( Point point : points ) {
             if ( !first ) {
-                sb.append( " " );
+                codec.appendSeparator( ' ' );
             }
             double[] ords = getTransformedCoordinate( point.getCoordinateSystem(), point.getAsArray() );
-            sb.append( formatter.format( ords[0] ) );
+            codec.appendOrdinate( ords[0] );
             for ( int i = 1; i < ords.length; i++ ) {
-                sb.append( "," );
-                sb.append( formatter.format( ords[i] ) );
+                codec.appendSeparator( ',' );
+                codec.appendOrdinate( ords[i] );
             }
             first = false;
         }
-        writer.writeCharacters( sb.toString() );
+        codec.flush();
         writer.writeEndElement();
     }
 
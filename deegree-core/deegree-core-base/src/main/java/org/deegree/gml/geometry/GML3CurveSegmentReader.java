@@ -992,8 +992,9 @@ class GML3CurveSegmentReader extends GML3GeometryBaseReader {
         if ( xmlStream.getEventType() == XMLStreamConstants.START_ELEMENT ) {
             String name = xmlStream.getLocalName();
             if ( "posList".equals( name ) ) {
-                controlPoints = parsePosList( xmlStream, crs );
+                Points points = parsePackedPosList( xmlStream, crs );
                 xmlStream.nextTag();
+                return points;
             } else if ( "coordinates".equals( name ) ) {
                 // deprecated since GML 3.1.0, only included for backward compatibility
                 controlPoints = parseCoordinates( xmlStream, crs );
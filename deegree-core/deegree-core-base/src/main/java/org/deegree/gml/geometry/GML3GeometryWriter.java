@@ -143,7 +143,7 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
 
     private final SFSProfiler simplifier;
 
-    private CoordinateFormatter formatter;
+    private final CoordinateTextCodec codec;
 
     private CoordinateTransformer transformer;
 
@@ -175,10 +175,11 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
                            + ". Encoding will fail if a transformation is actually necessary." );
             }
         }
-        formatter = gmlStreamWriter.getCoordinateFormatter();
+        CoordinateFormatter formatter = gmlStreamWriter.getCoordinateFormatter();
         if ( formatter == null ) {
             formatter = new DecimalCoordinateFormatter( crsUnits );
         }
+        codec = new CoordinateTextCodec( writer, formatter );
     }
 
     @SuppressWarnings("unchecked")
@@ -417,10 +418,8 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
 
         writer.writeStartElement( gmlNs, "pos" );
         double[] ordinates = getTransformedCoordinate( point.getCoordinateSystem(), point.getAsArray() );
-        writer.writeCharacters( formatter.format( ordinates[0] ) );
-        for ( int i = 1; i < ordinates.length; i++ ) {
-            writer.writeCharacters( " " + formatter.format( ordinates[i] ) );
-        }
+        codec.appendOrdinates( ordinates );
+        codec.flush();
         writer.writeEndElement();
     }
 
@@ -883,10 +882,8 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
             writer.writeStartElement( "gml", "lowerCorner", gmlNs );
         }
         double[] ordinates = env.getMin().getAsArray();
-        writer.writeCharacters( formatter.format( ordinates[0] ) );
-        for ( int i = 1; i < ordinates.length; i++ ) {
-            writer.writeCharacters( " " + formatter.format( ordinates[i] ) );
-        }
+        codec.appendOrdinates( ordinates );
+        codec.flush();
         writer.writeEndElement();
 
         if ( version == GML_30 ) {
@@ -895,10 +892,8 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
             writer.writeStartElement( "gml", "upperCorner", gmlNs );
         }
         ordinates = env.getMax().getAsArray();
-        writer.writeCharacters( formatter.format( ordinates[0] ) );
-        for ( int i = 1; i < ordinates.length; i++ ) {
-            writer.writeCharacters( " " + formatter.format( ordinates[i] ) );
-        }
+        codec.appendOrdinates( ordinates );
+        codec.flush();
         writer.writeEndElement();
         writer.writeEndElement();
     }
@@ -1515,13 +1510,14 @@ public class GML3GeometryWriter extends AbstractGMLObjectWriter implements GMLGe
                 final double[] ordinates = getTransformedCoordinate( p.getCoordinateSystem(), p.getAsArray() );
                 for ( int i = 0; i < ordinates.length; i++ ) {
                     if ( !first ) {
-                        writer.writeCharacters( " " + formatter.format( ordinates[i] ) );
+                        codec.appendSeparator( ' ' );
                     } else {
-                        writer.writeCharacters( formatter.format( ordinates[i] ) );
                         first = false;
                     }
+                    codec.appendOrdinate( ordinates[i] );
                 }
             }
+            codec.flush();
             writer.writeEndElement();
         } else {
             for ( final Point p : points ) {
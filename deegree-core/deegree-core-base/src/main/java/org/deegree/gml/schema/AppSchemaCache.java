@@ -0,0 +1,377 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.gml.schema;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.xerces.xs.StringList;
+import org.apache.xerces.xs.XSNamespaceItemList;
+import org.deegree.commons.xml.GenericLSInput;
+import org.deegree.commons.xml.schema.RedirectingEntityResolver;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.gml.GMLVersion;
+import org.deegree.workspace.Destroyable;
+import org.deegree.workspace.Initializable;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.DefaultWorkspace;
+import org.slf4j.Logger;
+import org.w3c.dom.ls.LSInput;
+
+/**
+ * Workspace-wide cache for compiled GML application schemas.
+ * <p>
+ * Loading large schemas (INSPIRE, AAA, CityGML, ...) takes seconds and lots of memory, so every set of schema
+ * documents is only compiled once and then shared by all resources (feature stores, WFS clients, GML readers) that
+ * refer to it. Entries are keyed by GML version and resolved schema URLs (or system id and content hash for schema
+ * documents that have been retrieved already). Additionally, the content of all local documents that have been
+ * included or imported is hashed, so edited schema files are picked up. The cache is cleared when the workspace is
+ * destroyed.
+ * </p>
+ * <p>
+ * If the workspace contains a directory <code>appschemas</code>, remote schema documents are mirrored there (see
+ * {@link RedirectingEntityResolver#setMirrorDirectory(File)}), so restarts don't need to fetch them again.
+ * </p>
+ * <p>
+ * NOTE: Feature types of the {@link AppSchema} instances returned by {@link #getAppSchema(GMLVersion, String...)} are
+ * shared as well. Code that builds its own schema from these types (e.g. mapped SQL feature store schemas) must use
+ * {@link #getSchemaInfoSet(GMLVersion, String...)} and a new {@link GMLAppSchemaReader} instead.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class AppSchemaCache implements Initializable, Destroyable {
+
+    private static final Logger LOG = getLogger( AppSchemaCache.class );
+
+    static final int MAX_ENTRIES = 32;
+
+    private static final String MIRROR_DIR = "appschemas";
+
+    private static final int LOCK_STRIPES = 16;
+
+    private static final Map<String, Entry> keyToEntry = new LinkedHashMap<String, Entry>( 16, 0.75f, true ) {
+
+        private static final long serialVersionUID = 8469862381386377305L;
+
+        @Override
+        protected boolean removeEldestEntry( Map.Entry<String, Entry> eldest ) {
+            if ( size() > MAX_ENTRIES ) {
+                LOG.debug( "Evicting application schema '{}'.", eldest.getKey() );
+                return true;
+            }
+            return false;
+        }
+    };
+
+    // fixed set of locks (selected by key hash), so a schema is only compiled once if requested concurrently
+    private static final Object[] locks = new Object[LOCK_STRIPES];
+
+    static {
+        for ( int i = 0; i < locks.length; i++ ) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Returns the (shared) {@link GMLSchemaInfoSet} for the given schema documents.
+     * 
+     * @param gmlVersion
+     *            gml version of the schema files, can be null (auto-detect GML version)
+     * @param schemaUrls
+     *            resolved URLs of the schema documents, must not be <code>null</code> and contain at least one entry
+     * @return schema infoset, never <code>null</code>
+     * @throws ClassCastException
+     * @throws ClassNotFoundException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public static GMLSchemaInfoSet getSchemaInfoSet( final GMLVersion gmlVersion, final String... schemaUrls )
+                            throws ClassCastException, ClassNotFoundException, InstantiationException,
+                            IllegalAccessException {
+        return getEntry( createKey( "url", gmlVersion, schemaUrls ), null, new SchemaLoader() {
+            @Override
+            public GMLSchemaInfoSet load()
+                                    throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+                // loading redirects the URLs in place
+                return new GMLSchemaInfoSet( gmlVersion, schemaUrls.clone() );
+            }
+        } ).schema;
+    }
+
+    /**
+     * Returns the (shared) {@link GMLSchemaInfoSet} for the given schema file (which may be a directory).
+     * 
+     * @param gmlVersion
+     *            gml version of the schema files, can be null (auto-detect GML version)
+     * @param schemaFile
+     *            schema file or directory with schema files, must not be <code>null</code>
+     * @return schema infoset, never <code>null</code>
+     * @throws ClassCastException
+     * @throws ClassNotFoundException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     * @throws MalformedURLException
+     * @throws UnsupportedEncodingException
+     */
+    public static GMLSchemaInfoSet getSchemaInfoSet( GMLVersion gmlVersion, File schemaFile )
+                            throws ClassCastException, ClassNotFoundException, InstantiationException,
+                            IllegalAccessException, MalformedURLException, UnsupportedEncodingException {
+        return getSchemaInfoSet( gmlVersion, GMLAppSchemaReader.getSchemaURLs( schemaFile ) );
+    }
+
+    /**
+     * Returns the (shared) {@link AppSchema} for the given schema documents.
+     * 
+     * @param gmlVersion
+     *            gml version of the schema files, can be null (auto-detect GML version)
+     * @param schemaUrls
+     *            resolved URLs of the schema documents, must not be <code>null</code> and contain at least one entry
+     * @return application schema, never <code>null</code>, must not be modified
+     * @throws ClassCastException
+     * @throws ClassNotFoundException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public static AppSchema getAppSchema( final GMLVersion gmlVersion, final String... schemaUrls )
+                            throws ClassCastException, ClassNotFoundException, InstantiationException,
+                            IllegalAccessException {
+        return getEntry( createKey( "url", gmlVersion, schemaUrls ), null, new SchemaLoader() {
+            @Override
+            public GMLSchemaInfoSet load()
+                                    throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+                return new GMLSchemaInfoSet( gmlVersion, schemaUrls.clone() );
+            }
+        } ).getAppSchema();
+    }
+
+    /**
+     * Returns the (shared) {@link AppSchema} for a schema document that has already been retrieved, e.g. a
+     * <code>DescribeFeatureType</code> response. The document is identified by its system id and the hash of its
+     * content.
+     * 
+     * @param gmlVersion
+     *            gml version of the schema, can be null (auto-detect GML version)
+     * @param systemId
+     *            system id of the document (used for resolving relative references), may be <code>null</code>
+     * @param content
+     *            content of the schema document, must not be <code>null</code> and is consumed by this method
+     * @return application schema, never <code>null</code>, must not be modified
+     * @throws IOException
+     *             if the content cannot be read
+     * @throws ClassCastException
+     * @throws ClassNotFoundException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public static AppSchema getAppSchema( final GMLVersion gmlVersion, final String systemId, InputStream content )
+                            throws IOException, ClassCastException, ClassNotFoundException, InstantiationException,
+                            IllegalAccessException {
+        final byte[] bytes = IOUtils.toByteArray( content );
+        return getEntry( createKey( "content", gmlVersion, systemId ), DigestUtils.md5Hex( bytes ), new SchemaLoader() {
+            @Override
+            public GMLSchemaInfoSet load()
+                                    throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+                LSInput input = new GenericLSInput();
+                input.setByteStream( new ByteArrayInputStream( bytes ) );
+                input.setSystemId( systemId );
+                return new GMLSchemaInfoSet( gmlVersion, input );
+            }
+        } ).getAppSchema();
+    }
+
+    /**
+     * Removes all cached schemas.
+     */
+    public static void clear() {
+        synchronized ( keyToEntry ) {
+            keyToEntry.clear();
+        }
+    }
+
+    static int size() {
+        synchronized ( keyToEntry ) {
+            return keyToEntry.size();
+        }
+    }
+
+    @Override
+    public void init( Workspace workspace ) {
+        clear();
+        if ( workspace instanceof DefaultWorkspace ) {
+            File mirrorDir = new File( ( (DefaultWorkspace) workspace ).getLocation(), MIRROR_DIR );
+            if ( mirrorDir.isDirectory() ) {
+                LOG.info( "Mirroring remote schema documents in '" + mirrorDir + "'." );
+                RedirectingEntityResolver.setMirrorDirectory( mirrorDir );
+            }
+        }
+    }
+
+    @Override
+    public void destroy( Workspace workspace ) {
+        RedirectingEntityResolver.setMirrorDirectory( null );
+        clear();
+    }
+
+    private static Entry getEntry( String key, String contentHash, SchemaLoader loader )
+                            throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+        synchronized ( locks[( key.hashCode() & Integer.MAX_VALUE ) % locks.length] ) {
+            Entry entry;
+            synchronized ( keyToEntry ) {
+                entry = keyToEntry.get( key );
+            }
+            if ( entry != null && entry.isUpToDate( contentHash ) ) {
+                LOG.debug( "Using cached application schema '{}'.", key );
+                return entry;
+            }
+            long begin = System.currentTimeMillis();
+            GMLSchemaInfoSet schema = loader.load();
+            Set<String> localDocs = getLocalDocuments( schema );
+            entry = new Entry( contentHash, localDocs, fingerprint( localDocs ), schema );
+            LOG.info( "Loaded application schema '" + key + "' in " + ( System.currentTimeMillis() - begin ) + " ms." );
+            synchronized ( keyToEntry ) {
+                keyToEntry.put( key, entry );
+            }
+            return entry;
+        }
+    }
+
+    private static String createKey( String type, GMLVersion gmlVersion, String... schemaUrls ) {
+        StringBuilder sb = new StringBuilder();
+        sb.append( type ).append( '|' ).append( gmlVersion );
+        for ( String schemaUrl : schemaUrls ) {
+            sb.append( '|' ).append( schemaUrl );
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the URLs of all local documents that the schema has been built from (including imported and included
+     * ones). Remote documents are identified by their URL only, fetching them for every lookup would defeat the purpose
+     * of the cache.
+     */
+    private static Set<String> getLocalDocuments( GMLSchemaInfoSet schema ) {
+        Set<String> localDocs = new TreeSet<String>();
+        XSNamespaceItemList nsItems = schema.getNamespaces();
+        for ( int i = 0; i < nsItems.getLength(); i++ ) {
+            StringList locations = nsItems.item( i ).getDocumentLocations();
+            for ( int j = 0; j < locations.getLength(); j++ ) {
+                String location = locations.item( j );
+                if ( location != null && location.startsWith( "file:" ) ) {
+                    localDocs.add( location );
+                }
+            }
+        }
+        return localDocs;
+    }
+
+    /**
+     * Hashes the content of the given local documents, so changes are noticed.
+     */
+    private static String fingerprint( Set<String> localDocs ) {
+        StringBuilder sb = new StringBuilder();
+        for ( String localDoc : localDocs ) {
+            InputStream is = null;
+            try {
+                is = new FileInputStream( new File( new URI( localDoc ) ) );
+                sb.append( DigestUtils.md5Hex( is ) );
+            } catch ( Exception e ) {
+                LOG.debug( "Cannot hash '" + localDoc + "': " + e.getLocalizedMessage() );
+            } finally {
+                IOUtils.closeQuietly( is );
+            }
+            sb.append( '|' );
+        }
+        return sb.toString();
+    }
+
+    private interface SchemaLoader {
+
+        GMLSchemaInfoSet load()
+                                throws ClassNotFoundException, InstantiationException, IllegalAccessException;
+    }
+
+    private static class Entry {
+
+        private final String contentHash;
+
+        private final Set<String> localDocs;
+
+        private final String fingerprint;
+
+        private final GMLSchemaInfoSet schema;
+
+        private AppSchema appSchema;
+
+        private Entry( String contentHash, Set<String> localDocs, String fingerprint, GMLSchemaInfoSet schema ) {
+            this.contentHash = contentHash;
+            this.localDocs = localDocs;
+            this.fingerprint = fingerprint;
+            this.schema = schema;
+        }
+
+        private boolean isUpToDate( String contentHash ) {
+            if ( this.contentHash == null ? contentHash != null : !this.contentHash.equals( contentHash ) ) {
+                return false;
+            }
+            return fingerprint.equals( fingerprint( localDocs ) );
+        }
+
+        private synchronized AppSchema getAppSchema()
+                                throws ClassNotFoundException, InstantiationException, IllegalAccessException {
+            if ( appSchema == null ) {
+                appSchema = new GMLAppSchemaReader( schema, null ).extractAppSchema();
+            }
+            return appSchema;
+        }
+    }
+
+}
@@ -158,7 +158,21 @@ public class GMLAppSchemaReader {
         this( new GMLSchemaInfoSet( gmlVersion, inputs ), namespaceHints );
     }
 
-    private GMLAppSchemaReader( final GMLSchemaInfoSet gmlSchema, final Map<String, String> namespaceHints )
+    /**
+     * Creates a new {@link GMLAppSchemaReader} from an already loaded {@link GMLSchemaInfoSet}, e.g. one that is shared
+     * via the {@link AppSchemaCache}.
+     *
+     * @param gmlSchema
+     *            GML schema infoset, must not be <code>null</code>
+     * @param namespaceHints
+     *            optional hints (key: prefix, value: namespaces) for generating 'nice' qualified feature type and
+     *            property type names, may be null
+     * @throws ClassCastException
+     * @throws ClassNotFoundException
+     * @throws InstantiationException
+     * @throws IllegalAccessException
+     */
+    public GMLAppSchemaReader( final GMLSchemaInfoSet gmlSchema, final Map<String, String> namespaceHints )
                             throws ClassCastException, ClassNotFoundException, InstantiationException,
                             IllegalAccessException {
         this.gmlSchema = gmlSchema;
@@ -199,7 +213,7 @@ public class GMLAppSchemaReader {
         objectTypeFactory = new GmlObjectTypeFactory( gmlSchema, nsToPrefix );
     }
 
-    private static String[] getSchemaURLs( File schemaFile )
+    static String[] getSchemaURLs( File schemaFile )
                             throws MalformedURLException, UnsupportedEncodingException {
         List<String> schemaUrls = new ArrayList<String>();
         if ( !schemaFile.exists() ) {
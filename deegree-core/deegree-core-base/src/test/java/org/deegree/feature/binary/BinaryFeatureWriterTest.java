@@ -0,0 +1,223 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.binary;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.deegree.commons.tom.primitive.BaseType.BOOLEAN;
+import static org.deegree.commons.tom.primitive.BaseType.DOUBLE;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POINT;
+import static org.deegree.feature.types.property.ValueRepresentation.INLINE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Point;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BinaryFeatureWriter} and {@link BinaryFeatureReader}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BinaryFeatureWriterTest {
+
+    private static final String NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( NS, "name", "app" );
+
+    private static final QName VALUE = new QName( NS, "value", "app" );
+
+    private static final QName FLAG = new QName( NS, "flag", "app" );
+
+    private static final QName GEOM = new QName( NS, "geom", "app" );
+
+    private final PropertyType[] props = { new SimplePropertyType( NAME, 0, 1, STRING, null, null ),
+                                          new SimplePropertyType( VALUE, 0, 1, DOUBLE, null, null ),
+                                          new SimplePropertyType( FLAG, 0, 1, BOOLEAN, null, null ),
+                                          new GeometryPropertyType( GEOM, 0, 1, null, null, POINT, DIM_2, INLINE ) };
+
+    private final FeatureType ft = new GenericFeatureType( new QName( NS, "Place", "app" ),
+                                                           asList( props ), false );
+
+    private final GeometryFactory geomFac = new GeometryFactory();
+
+    @Test
+    public void testRoundTrip()
+                            throws Exception {
+        List<Feature> features = createFeatures( 10 );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        for ( Feature f : features ) {
+            writer.write( f );
+        }
+        writer.close();
+
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        for ( Feature expected : features ) {
+            Feature f = reader.read();
+            assertEquals( expected.getId(), f.getId() );
+            assertEquals( ft.getName(), f.getName() );
+            assertEquals( getText( expected, NAME ), getText( f, NAME ) );
+            assertEquals( getText( expected, VALUE ), getText( f, VALUE ) );
+            assertEquals( getText( expected, FLAG ), getText( f, FLAG ) );
+            Point p = (Point) f.getProperties( GEOM ).get( 0 ).getValue();
+            Point q = (Point) expected.getProperties( GEOM ).get( 0 ).getValue();
+            assertEquals( q.get0(), p.get0(), 0 );
+            assertEquals( q.get1(), p.get1(), 0 );
+        }
+        assertNull( reader.read() );
+    }
+
+    @Test
+    public void testIndexedBoundingBox()
+                            throws Exception {
+        List<Feature> features = createFeatures( 100 );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        writer.writeIndexed( features, 4 );
+        writer.close();
+
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        reader.setBoundingBox( geomFac.createEnvelope( 10.5, 10.5, 20.5, 20.5, null ) );
+        List<String> ids = new ArrayList<String>();
+        Feature f;
+        while ( ( f = reader.read() ) != null ) {
+            ids.add( f.getId() );
+        }
+        assertEquals( 10, ids.size() );
+        for ( int i = 11; i <= 20; i++ ) {
+            assertTrue( ids.contains( "PLACE_" + i ) );
+        }
+    }
+
+    @Test
+    public void testIndexedKeepsOrder()
+                            throws Exception {
+        List<Feature> features = createFeatures( 50 );
+        Collections.reverse( features );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        writer.writeIndexed( features, 4 );
+        writer.close();
+
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        for ( Feature expected : features ) {
+            assertEquals( expected.getId(), reader.read().getId() );
+        }
+        assertNull( reader.read() );
+    }
+
+    @Test
+    public void testIndexedBoundingBoxBeyondFloatPrecision()
+                            throws Exception {
+        // neighbouring doubles that are mapped to the same float
+        double x = 4500000.123456789;
+        List<Feature> features = new ArrayList<Feature>();
+        for ( int i = 0; i < 3; i++ ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( props[3], GEOM, geomFac.createPoint( null, x + i * 1E-6, 0, null ) ) );
+            features.add( ft.newFeature( "PLACE_" + i, values, null ) );
+        }
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        writer.writeIndexed( features, 2 );
+        writer.close();
+
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        reader.setBoundingBox( geomFac.createEnvelope( x + 0.5E-6, -1, x + 1.5E-6, 1, null ) );
+        assertEquals( "PLACE_1", reader.read().getId() );
+        assertNull( reader.read() );
+    }
+
+    @Test
+    public void testPropertyNames()
+                            throws Exception {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        writer.setPropertyNames( singletonList( NAME ) );
+        writer.write( createFeatures( 1 ).get( 0 ) );
+        writer.close();
+
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        Feature f = reader.read();
+        assertEquals( "Place 0", getText( f, NAME ) );
+        assertTrue( f.getProperties( GEOM ).isEmpty() );
+        assertEquals( 1, f.getType().getPropertyDeclarations().size() );
+    }
+
+    private List<Feature> createFeatures( int num ) {
+        List<Feature> features = new ArrayList<Feature>();
+        for ( int i = 0; i < num; i++ ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( props[0], NAME, new PrimitiveValue( "Place " + i,
+                                                                                  new PrimitiveType( STRING ) ) ) );
+            values.add( new GenericProperty( props[1], VALUE,
+                                             new PrimitiveValue( i * 0.5, new PrimitiveType( DOUBLE ) ) ) );
+            values.add( new GenericProperty( props[2], FLAG, new PrimitiveValue( i % 2 == 0,
+                                                                                  new PrimitiveType( BOOLEAN ) ) ) );
+            values.add( new GenericProperty( props[3], GEOM, geomFac.createPoint( null, i, i, null ) ) );
+            features.add( ft.newFeature( "PLACE_" + i, values, null ) );
+        }
+        return features;
+    }
+
+    private static String getText( Feature f, QName propName ) {
+        return ( (PrimitiveValue) f.getProperties( propName ).get( 0 ).getValue() ).getAsText();
+    }
+}
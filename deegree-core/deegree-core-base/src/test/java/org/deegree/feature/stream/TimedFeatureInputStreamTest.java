@@ -0,0 +1,123 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import java.util.Arrays;
+import java.util.Iterator;
+
+import org.deegree.commons.metrics.MetricName;
+import org.deegree.commons.metrics.MetricsRegistry;
+import org.deegree.feature.Feature;
+import org.deegree.feature.GenericFeatureCollection;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TimedFeatureInputStream}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class TimedFeatureInputStreamTest {
+
+    private static final MetricName NAME = new MetricName( "test", new String[] { "store" }, "memory" );
+
+    private MetricsRegistry registry;
+
+    @Before
+    public void createRegistry() {
+        registry = new MetricsRegistry();
+    }
+
+    @Test
+    public void testTimerStopsWhenIterationIsFinished() {
+        TimedFeatureInputStream rs = createStream();
+        Iterator<Feature> iter = rs.iterator();
+        iter.next();
+        assertEquals( 1, inFlight() );
+        iter.next();
+        assertEquals( 1, inFlight() );
+        iter.hasNext();
+        assertEquals( 0, inFlight() );
+        assertEquals( 1, recorded() );
+        rs.close();
+        assertEquals( 1, recorded() );
+    }
+
+    @Test
+    public void testTimerStopsOnClose() {
+        TimedFeatureInputStream rs = createStream();
+        rs.iterator().next();
+        rs.close();
+        assertEquals( 0, inFlight() );
+        assertEquals( 1, recorded() );
+    }
+
+    @Test
+    public void testTimerStopsOnToCollection() {
+        TimedFeatureInputStream rs = createStream();
+        assertEquals( 2, rs.toCollection().size() );
+        assertEquals( 0, inFlight() );
+        assertEquals( 1, recorded() );
+    }
+
+    @Test
+    public void testTimerStopsOnCount() {
+        TimedFeatureInputStream rs = createStream();
+        assertEquals( 2, rs.count() );
+        assertEquals( 0, inFlight() );
+        assertEquals( 1, recorded() );
+    }
+
+    private TimedFeatureInputStream createStream() {
+        Feature[] features = new Feature[] { mock( Feature.class ), mock( Feature.class ) };
+        FeatureInputStream rs = new MemoryFeatureInputStream( new GenericFeatureCollection( null,
+                                                                                            Arrays.asList( features ) ) );
+        return new TimedFeatureInputStream( rs, registry.startTimer( NAME ) );
+    }
+
+    private long inFlight() {
+        return registry.getInFlightCounts().get( NAME );
+    }
+
+    private long recorded() {
+        return registry.getSnapshots().get( NAME ).getCount();
+    }
+
+}
@@ -321,6 +321,20 @@ public class GMLObjectXPathTest {
         }
     }
 
+    @Test
+    public void testCompiledPathRespectsNamespaceBindings()
+                            throws FilterEvaluationException {
+        String xpath = "gml:featureMember/app:Philosopher/app:name";
+        TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
+        assertEquals( 7, evaluator.eval( fc, new ValueReference( xpath, nsContext ) ).length );
+        assertEquals( 7, evaluator.eval( fc, new ValueReference( xpath, nsContext ) ).length );
+
+        SimpleNamespaceContext otherContext = new SimpleNamespaceContext();
+        otherContext.addNamespace( "gml", "http://www.opengis.net/gml" );
+        otherContext.addNamespace( "app", "http://www.deegree.org/other" );
+        assertEquals( 0, evaluator.eval( fc, new ValueReference( xpath, otherContext ) ).length );
+    }
+
     @Test
     public void testXPath19()
                             throws FilterEvaluationException {
@@ -0,0 +1,198 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.gml.geometry;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.deegree.commons.xml.XMLParsingException;
+import org.deegree.commons.xml.stax.XMLStreamReaderWrapper;
+import org.deegree.geometry.io.CoordinateFormatter;
+import org.deegree.geometry.io.DecimalCoordinateFormatter;
+import org.deegree.geometry.io.DoubleCoordinateFormatter;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CoordinateTextCodec}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class CoordinateTextCodecTest {
+
+    private static final String[] TOKENS = { "0", "-0", "+1", "1.", ".5", "0.1", "-0.000123", "1e22", "1E-22",
+                                            "1.5e+3", "7.123456", "123456789012345", "1234567890123456789",
+                                            "0.30000000000000004", "4.9e-324", "1.7976931348623157E308", "1e400",
+                                            "NaN", "-Infinity", "1d" };
+
+    @Test
+    public void testParseFastMatchesParseDouble() {
+        for ( String token : TOKENS ) {
+            assertSameAsParseDouble( token );
+        }
+        Random random = new Random( 42 );
+        for ( int i = 0; i < 100000; i++ ) {
+            double value = ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 16 ) - 4 );
+            assertSameAsParseDouble( Double.toString( value ) );
+            assertSameAsParseDouble( new DecimalCoordinateFormatter( random.nextInt( 10 ) ).format( value ) );
+        }
+    }
+
+    @Test
+    public void testParseFastIsUsedForTypicalOrdinates() {
+        for ( String token : new String[] { "7.123456", "-52.5", "3456789.123", "0.000001" } ) {
+            double value = CoordinateTextCodec.parseFast( token.toCharArray(), 0, token.length() );
+            assertEquals( Double.parseDouble( token ), value, 0.0 );
+        }
+    }
+
+    @Test
+    public void testParseDoubleList()
+                            throws XMLStreamException {
+        XMLStreamReaderWrapper xmlStream = open( "<posList>1.0 2.5\n\t-3e2 <![CDATA[4 5]]>.5  <!-- x -->6</posList>" );
+        double[] values = new CoordinateTextCodec().parseDoubleList( xmlStream );
+        assertArrayEquals( new double[] { 1.0, 2.5, -300.0, 4.0, 5.5, 6.0 }, values, 0.0 );
+        assertEquals( "posList", xmlStream.getLocalName() );
+    }
+
+    @Test
+    public void testParseTuples()
+                            throws XMLStreamException {
+        CoordinateTextCodec codec = new CoordinateTextCodec();
+        double[] values = codec.parseTuples( open( "<coordinates>1,2 3,4\n 5,,6 </coordinates>" ), ",", " " );
+        assertArrayEquals( new double[] { 1, 2, 3, 4, 5, 6 }, values, 0.0 );
+        assertEquals( 2, codec.getTupleDimension() );
+
+        values = codec.parseTuples( open( "<coordinates>1 2 3;4 5 6</coordinates>" ), " ", ";" );
+        assertArrayEquals( new double[] { 1, 2, 3, 4, 5, 6 }, values, 0.0 );
+        assertEquals( 3, codec.getTupleDimension() );
+    }
+
+    @Test(expected = XMLParsingException.class)
+    public void testParseTuplesWithDifferentDimensions()
+                            throws XMLStreamException {
+        new CoordinateTextCodec().parseTuples( open( "<coordinates>1,2 3,4,5</coordinates>" ), ",", " " );
+    }
+
+    @Test(expected = XMLParsingException.class)
+    public void testParseInvalidValue()
+                            throws XMLStreamException {
+        new CoordinateTextCodec().parseDoubleList( open( "<pos>1.0 abc</pos>" ) );
+    }
+
+    @Test
+    public void testWriteMatchesDecimalFormatter()
+                            throws XMLStreamException {
+        Random random = new Random( 4711 );
+        for ( int places = 0; places < 10; places++ ) {
+            double[] values = new double[20000];
+            for ( int i = 0; i < values.length; i++ ) {
+                double value = ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 14 ) - 4 );
+                if ( i % 4 == 0 ) {
+                    // exact and near rounding ties
+                    value = ( Math.floor( value * Math.pow( 10, places ) ) + 0.5 ) / Math.pow( 10, places );
+                }
+                values[i] = value;
+            }
+            values[0] = -0.0;
+            values[1] = -1e-12;
+            values[2] = 1e20;
+            values[3] = Double.NaN;
+            assertSameAsFormatter( new DecimalCoordinateFormatter( places ), values );
+        }
+    }
+
+    @Test
+    public void testWriteMatchesDoubleFormatter()
+                            throws XMLStreamException {
+        Random random = new Random( 7 );
+        double[] values = new double[1000];
+        for ( int i = 0; i < values.length; i++ ) {
+            values[i] = ( random.nextDouble() - 0.5 ) * Math.pow( 10, random.nextInt( 14 ) - 4 );
+        }
+        assertSameAsFormatter( new DoubleCoordinateFormatter(), values );
+    }
+
+    private static void assertSameAsParseDouble( String token ) {
+        double value = CoordinateTextCodec.parseFast( token.toCharArray(), 0, token.length() );
+        if ( value == value ) {
+            assertEquals( token, Double.doubleToRawLongBits( Double.parseDouble( token ) ),
+                          Double.doubleToRawLongBits( value ) );
+        }
+    }
+
+    private static void assertSameAsFormatter( CoordinateFormatter formatter, double[] values )
+                            throws XMLStreamException {
+        StringWriter out = new StringWriter();
+        XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter( out );
+        writer.writeStartElement( "posList" );
+        CoordinateTextCodec codec = new CoordinateTextCodec( writer, formatter );
+        StringBuilder expected = new StringBuilder( "<posList>" );
+        for ( int i = 0; i < values.length; i++ ) {
+            if ( i > 0 ) {
+                codec.appendSeparator( ' ' );
+                expected.append( ' ' );
+            }
+            codec.appendOrdinate( values[i] );
+            expected.append( formatter.format( values[i] ) );
+        }
+        codec.flush();
+        writer.writeEndElement();
+        writer.close();
+        expected.append( "</posList>" );
+        assertTrue( expected.length() > values.length );
+        assertEquals( expected.toString(), out.toString() );
+    }
+
+    private static XMLStreamReaderWrapper open( String xml )
+                            throws XMLStreamException {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader( new StringReader( xml ) );
+        XMLStreamReaderWrapper xmlStream = new XMLStreamReaderWrapper( reader, null );
+        xmlStream.nextTag();
+        return xmlStream;
+    }
+}
@@ -0,0 +1,151 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.gml.schema;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.URL;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.deegree.feature.types.AppSchema;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests for {@link AppSchemaCache}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class AppSchemaCacheTest {
+
+    private final URL schemaUrl = AppSchemaCacheTest.class.getResource( "../misc/schema/Philosopher.xsd" );
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @After
+    public void clearCache() {
+        AppSchemaCache.clear();
+    }
+
+    @Test
+    public void testSameSchemaUrlsShareSchema()
+                            throws Exception {
+        AppSchema schema1 = AppSchemaCache.getAppSchema( null, schemaUrl.toString() );
+        AppSchema schema2 = AppSchemaCache.getAppSchema( null, schemaUrl.toString() );
+        assertSame( schema1, schema2 );
+        assertSame( schema1.getGMLSchema(), AppSchemaCache.getSchemaInfoSet( null, schemaUrl.toString() ) );
+        assertEquals( 4, schema1.getFeatureTypes( "http://www.deegree.org/app", true, true ).size() );
+        assertEquals( 1, AppSchemaCache.size() );
+    }
+
+    @Test
+    public void testClearReloadsSchema()
+                            throws Exception {
+        AppSchema schema1 = AppSchemaCache.getAppSchema( null, schemaUrl.toString() );
+        AppSchemaCache.clear();
+        AppSchema schema2 = AppSchemaCache.getAppSchema( null, schemaUrl.toString() );
+        assertNotSame( schema1, schema2 );
+    }
+
+    @Test
+    public void testContentHashIsPartOfKey()
+                            throws Exception {
+        byte[] content = readSchema();
+        AppSchema schema1 = AppSchemaCache.getAppSchema( null, schemaUrl.toString(),
+                                                         new ByteArrayInputStream( content ) );
+        AppSchema schema2 = AppSchemaCache.getAppSchema( null, schemaUrl.toString(),
+                                                         new ByteArrayInputStream( content ) );
+        assertSame( schema1, schema2 );
+
+        byte[] changed = ( new String( content, "UTF-8" ) + "<!-- changed -->" ).getBytes( "UTF-8" );
+        AppSchema schema3 = AppSchemaCache.getAppSchema( null, schemaUrl.toString(),
+                                                         new ByteArrayInputStream( changed ) );
+        assertNotSame( schema1, schema3 );
+    }
+
+    @Test
+    public void testContentAndUrlEntriesAreSeparate()
+                            throws Exception {
+        AppSchema schema1 = AppSchemaCache.getAppSchema( null, schemaUrl.toString() );
+        AppSchema schema2 = AppSchemaCache.getAppSchema( null, schemaUrl.toString(),
+                                                         new ByteArrayInputStream( readSchema() ) );
+        assertNotSame( schema1, schema2 );
+        assertEquals( 2, AppSchemaCache.size() );
+        assertSame( schema1, AppSchemaCache.getAppSchema( null, schemaUrl.toString() ) );
+    }
+
+    @Test
+    public void testChangedIncludeReloadsSchema()
+                            throws Exception {
+        File included = tmp.newFile( "Philosopher.xsd" );
+        FileUtils.writeByteArrayToFile( included, readSchema() );
+        File root = tmp.newFile( "Root.xsd" );
+        FileUtils.writeStringToFile( root, "<xsd:schema xmlns:xsd=\"http://www.w3.org/2001/XMLSchema\" "
+                                           + "targetNamespace=\"http://www.deegree.org/app\">"
+                                           + "<xsd:include schemaLocation=\"Philosopher.xsd\"/></xsd:schema>",
+                                     "UTF-8" );
+        String rootUrl = root.toURI().toString();
+
+        AppSchema schema1 = AppSchemaCache.getAppSchema( null, rootUrl );
+        assertSame( schema1, AppSchemaCache.getAppSchema( null, rootUrl ) );
+
+        FileUtils.writeStringToFile( included, "<!-- changed -->", "UTF-8", true );
+        AppSchema schema2 = AppSchemaCache.getAppSchema( null, rootUrl );
+        assertNotSame( schema1, schema2 );
+        assertEquals( 4, schema2.getFeatureTypes( "http://www.deegree.org/app", true, true ).size() );
+    }
+
+    private byte[] readSchema()
+                            throws Exception {
+        InputStream is = schemaUrl.openStream();
+        try {
+            return IOUtils.toByteArray( is );
+        } finally {
+            is.close();
+        }
+    }
+
+}
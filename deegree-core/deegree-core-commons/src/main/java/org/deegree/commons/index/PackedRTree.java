@@ -0,0 +1,427 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import static java.lang.Float.NaN;
+import static java.lang.Float.isNaN;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.deegree.commons.utils.Pair;
+
+/**
+ * Read-only R-tree of <code>long</code> values (e.g. file offsets) that is bulk loaded by sorting the entries along a
+ * Hilbert curve and packing them into full nodes bottom-up.
+ * <p>
+ * All nodes live in a single flat buffer (bounding box as four floats plus a long per node), which is written to disk
+ * as is. A tree loaded with {@link #loadFromDisk(File)} is memory-mapped and queried directly on the mapped buffer,
+ * so opening even large indexes is instant and does not use heap space for the nodes.
+ * </p>
+ * <p>
+ * Leaf entries hold the inserted values, inner nodes the buffer index of their first child. The levels are stored
+ * leaves first, the root is the last node. Entries without an envelope never match a non-null query box.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class PackedRTree extends SpatialIndex<Long> {
+
+    private static final int MAGIC = 0x44505254;
+
+    private static final int VERSION = 1;
+
+    private static final int NODE_BYTES = 24;
+
+    private static final int HILBERT_MAX = ( 1 << 15 ) - 1;
+
+    private final int nodeSize;
+
+    private boolean extraFlag;
+
+    private ByteBuffer nodes;
+
+    // exclusive end index of each level, leaves first
+    private int[] levelEnds = new int[0];
+
+    private int numNodes;
+
+    /**
+     * Creates a new empty tree, use {@link #insertBulk(List)} to fill it.
+     * 
+     * @param nodeSize
+     *            maximum number of children per node, must be at least 2
+     * @param extraFlag
+     *            a flag that is stored with the tree, see {@link #getExtraFlag()}
+     */
+    public PackedRTree( int nodeSize, boolean extraFlag ) {
+        if ( nodeSize < 2 ) {
+            throw new IllegalArgumentException( "Node size must be at least 2." );
+        }
+        this.nodeSize = nodeSize;
+        this.extraFlag = extraFlag;
+    }
+
+    /**
+     * Memory-maps a tree written by {@link #writeTreeToDisk(File)}.
+     * 
+     * @param file
+     *            the index file, must not be <code>null</code>
+     * @return the mapped tree, never <code>null</code>
+     * @throws IOException
+     *             if the file cannot be read or is not a packed R-tree index
+     */
+    public static PackedRTree loadFromDisk( File file )
+                            throws IOException {
+        RandomAccessFile raf = new RandomAccessFile( file, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            return loadFromBuffer( channel.map( READ_ONLY, 0, channel.size() ) );
+        } catch ( IOException e ) {
+            throw new IOException( "Packed R-tree index " + file + " could not be loaded: " + e.getMessage(), e );
+        } finally {
+            // the mapping stays valid after closing the file
+            raf.close();
+        }
+    }
+
+    /**
+     * Creates a tree that is queried directly on the given buffer, e.g. a section of a larger memory-mapped file. The
+     * tree starts at the current position and ends at the limit of the buffer, in the format written by
+     * {@link #write(WritableByteChannel)}. The buffer itself is not modified.
+     * 
+     * @param buffer
+     *            the buffer containing the tree, must not be <code>null</code>
+     * @return the tree, never <code>null</code>
+     * @throws IOException
+     *             if the buffer does not contain a packed R-tree index
+     */
+    public static PackedRTree loadFromBuffer( ByteBuffer buffer )
+                            throws IOException {
+        ByteBuffer data = buffer.slice().order( LITTLE_ENDIAN );
+        if ( data.capacity() < 20 || data.getInt( 0 ) != MAGIC ) {
+            throw new IOException( "Not a packed R-tree index." );
+        }
+        if ( data.getInt( 4 ) != VERSION ) {
+            throw new IOException( "Unsupported packed R-tree index version " + data.getInt( 4 ) + "." );
+        }
+        PackedRTree tree = new PackedRTree( data.getInt( 12 ), data.getInt( 8 ) != 0 );
+        int numLevels = data.getInt( 16 );
+        int headerLength = 20 + 4 * numLevels;
+        tree.levelEnds = new int[numLevels];
+        for ( int i = 0; i < numLevels; ++i ) {
+            tree.levelEnds[i] = data.getInt( 20 + 4 * i );
+        }
+        tree.numNodes = numLevels == 0 ? 0 : tree.levelEnds[numLevels - 1];
+        if ( data.capacity() != headerLength + (long) tree.numNodes * NODE_BYTES ) {
+            throw new IOException( "Packed R-tree index is truncated." );
+        }
+        data.position( headerLength );
+        tree.nodes = data.slice().order( LITTLE_ENDIAN );
+        return tree;
+    }
+
+    /**
+     * Writes the tree to the given file. The file is replaced atomically, so trees currently mapped from it stay
+     * valid.
+     * 
+     * @param file
+     *            the target file, must not be <code>null</code>
+     * @throws IOException
+     */
+    public void writeTreeToDisk( File file )
+                            throws IOException {
+        File tmp = new File( file.getPath() + ".tmp" );
+        RandomAccessFile raf = new RandomAccessFile( tmp, "rw" );
+        try {
+            raf.setLength( 0 );
+            write( raf.getChannel() );
+        } finally {
+            raf.close();
+        }
+        try {
+            Files.move( tmp.toPath(), file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            Files.move( tmp.toPath(), file.toPath(), REPLACE_EXISTING );
+        }
+    }
+
+    /**
+     * Writes the tree to the given channel, readable with {@link #loadFromBuffer(ByteBuffer)}.
+     * 
+     * @param channel
+     *            the target channel, must not be <code>null</code>
+     * @throws IOException
+     */
+    public void write( WritableByteChannel channel )
+                            throws IOException {
+        ByteBuffer header = ByteBuffer.allocate( 20 + 4 * levelEnds.length ).order( LITTLE_ENDIAN );
+        header.putInt( MAGIC ).putInt( VERSION ).putInt( extraFlag ? 1 : 0 ).putInt( nodeSize );
+        header.putInt( levelEnds.length );
+        for ( int end : levelEnds ) {
+            header.putInt( end );
+        }
+        header.flip();
+        while ( header.hasRemaining() ) {
+            channel.write( header );
+        }
+        if ( nodes != null ) {
+            ByteBuffer data = nodes.duplicate();
+            data.clear();
+            while ( data.hasRemaining() ) {
+                channel.write( data );
+            }
+        }
+    }
+
+    /**
+     * @return the flag given on construction
+     */
+    public boolean getExtraFlag() {
+        return extraFlag;
+    }
+
+    /**
+     * @return the number of values in the tree
+     */
+    public int size() {
+        return levelEnds.length == 0 ? 0 : levelEnds[0];
+    }
+
+    @Override
+    public List<Long> query( float[] envelope ) {
+        List<Long> result = new ArrayList<Long>();
+        if ( numNodes == 0 ) {
+            return result;
+        }
+        ByteBuffer buffer = nodes.duplicate().order( LITTLE_ENDIAN );
+        int[] stack = new int[16 * levelEnds.length];
+        int top = 0;
+        stack[top++] = numNodes - 1;
+        stack[top++] = levelEnds.length - 1;
+        while ( top > 0 ) {
+            int level = stack[--top];
+            int node = stack[--top];
+            int first = (int) buffer.getLong( node * NODE_BYTES + 16 );
+            int last = Math.min( first + nodeSize, levelEnds[level - 1] );
+            for ( int child = first; child < last; ++child ) {
+                if ( envelope != null && !intersects( buffer, child, envelope ) ) {
+                    continue;
+                }
+                if ( level == 1 ) {
+                    result.add( buffer.getLong( child * NODE_BYTES + 16 ) );
+                } else {
+                    if ( top + 2 > stack.length ) {
+                        stack = Arrays.copyOf( stack, stack.length * 2 );
+                    }
+                    stack[top++] = child;
+                    stack[top++] = level - 1;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static boolean intersects( ByteBuffer buffer, int node, float[] env ) {
+        int pos = node * NODE_BYTES;
+        // comparisons with NaN (entries without envelope) are always false
+        return buffer.getFloat( pos ) <= env[2] && buffer.getFloat( pos + 8 ) >= env[0]
+               && buffer.getFloat( pos + 4 ) <= env[3] && buffer.getFloat( pos + 12 ) >= env[1];
+    }
+
+    /**
+     * Replaces the contents of this tree with the given entries. Envelopes may be <code>null</code>.
+     */
+    @Override
+    public void insertBulk( List<Pair<float[], Long>> listOfObjects ) {
+        int numItems = listOfObjects.size();
+        if ( numItems == 0 ) {
+            clear();
+            return;
+        }
+
+        float[] extent = new float[] { Float.MAX_VALUE, Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE };
+        for ( Pair<float[], Long> p : listOfObjects ) {
+            float[] env = p.first;
+            if ( env != null ) {
+                extent[0] = Math.min( extent[0], env[0] );
+                extent[1] = Math.min( extent[1], env[1] );
+                extent[2] = Math.max( extent[2], env[2] );
+                extent[3] = Math.max( extent[3], env[3] );
+            }
+        }
+
+        // sort by hilbert value of the envelope centers, keys are (hilbert value << 32 | item index)
+        long[] keys = new long[numItems];
+        for ( int i = 0; i < numItems; ++i ) {
+            float[] env = listOfObjects.get( i ).first;
+            long h = Integer.MAX_VALUE;
+            if ( env != null ) {
+                h = hilbert( scale( ( env[0] + env[2] ) / 2, extent[0], extent[2] ),
+                             scale( ( env[1] + env[3] ) / 2, extent[1], extent[3] ) );
+            }
+            keys[i] = h << 32 | i;
+        }
+        Arrays.sort( keys );
+
+        List<Integer> ends = new ArrayList<Integer>();
+        int count = numItems;
+        int total = numItems;
+        ends.add( total );
+        do {
+            count = ( count + nodeSize - 1 ) / nodeSize;
+            total += count;
+            ends.add( total );
+        } while ( count > 1 );
+
+        ByteBuffer buffer = ByteBuffer.allocate( total * NODE_BYTES ).order( LITTLE_ENDIAN );
+        for ( long key : keys ) {
+            Pair<float[], Long> p = listOfObjects.get( (int) key );
+            float[] env = p.first;
+            if ( env == null ) {
+                buffer.putFloat( NaN ).putFloat( NaN ).putFloat( NaN ).putFloat( NaN );
+            } else {
+                buffer.putFloat( env[0] ).putFloat( env[1] ).putFloat( env[2] ).putFloat( env[3] );
+            }
+            buffer.putLong( p.second );
+        }
+
+        int levelStart = 0;
+        for ( int level = 1; level < ends.size(); ++level ) {
+            int levelEnd = ends.get( level - 1 );
+            for ( int first = levelStart; first < levelEnd; first += nodeSize ) {
+                float minx = NaN, miny = NaN, maxx = NaN, maxy = NaN;
+                int last = Math.min( first + nodeSize, levelEnd );
+                for ( int child = first; child < last; ++child ) {
+                    int pos = child * NODE_BYTES;
+                    float cminx = buffer.getFloat( pos );
+                    if ( isNaN( cminx ) ) {
+                        continue;
+                    }
+                    if ( isNaN( minx ) ) {
+                        minx = cminx;
+                        miny = buffer.getFloat( pos + 4 );
+                        maxx = buffer.getFloat( pos + 8 );
+                        maxy = buffer.getFloat( pos + 12 );
+                    } else {
+                        minx = Math.min( minx, cminx );
+                        miny = Math.min( miny, buffer.getFloat( pos + 4 ) );
+                        maxx = Math.max( maxx, buffer.getFloat( pos + 8 ) );
+                        maxy = Math.max( maxy, buffer.getFloat( pos + 12 ) );
+                    }
+                }
+                buffer.putFloat( minx ).putFloat( miny ).putFloat( maxx ).putFloat( maxy );
+                buffer.putLong( first );
+            }
+            levelStart = levelEnd;
+        }
+
+        levelEnds = new int[ends.size()];
+        for ( int i = 0; i < levelEnds.length; ++i ) {
+            levelEnds[i] = ends.get( i );
+        }
+        numNodes = total;
+        nodes = buffer;
+    }
+
+    private static int scale( float value, float min, float max ) {
+        if ( max <= min ) {
+            return 0;
+        }
+        return (int) ( HILBERT_MAX * ( ( value - min ) / ( max - min ) ) );
+    }
+
+    /**
+     * Computes the position of a point on a Hilbert curve filling a 2^15 x 2^15 grid.
+     */
+    static long hilbert( int x, int y ) {
+        long d = 0;
+        for ( int s = 1 << 14; s > 0; s >>= 1 ) {
+            int rx = ( x & s ) > 0 ? 1 : 0;
+            int ry = ( y & s ) > 0 ? 1 : 0;
+            d += (long) s * s * ( ( 3 * rx ) ^ ry );
+            if ( ry == 0 ) {
+                if ( rx == 1 ) {
+                    x = HILBERT_MAX - x;
+                    y = HILBERT_MAX - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    @Override
+    public void clear() {
+        nodes = null;
+        levelEnds = new int[0];
+        numNodes = 0;
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             always, packed trees can only be bulk loaded
+     */
+    @Override
+    public boolean insert( float[] envelope, Long object ) {
+        throw new UnsupportedOperationException( "Packed R-trees can only be bulk loaded." );
+    }
+
+    /**
+     * @throws UnsupportedOperationException
+     *             always, packed trees can only be bulk loaded
+     */
+    @Override
+    public boolean remove( Long object ) {
+        throw new UnsupportedOperationException( "Packed R-trees can only be bulk loaded." );
+    }
+
+}
@@ -0,0 +1,164 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free latency histogram with logarithmic buckets in the style of an HDR histogram. Values (in microseconds)
+ * below 32 are counted exactly, larger values are counted in buckets with a relative width of 1/16, so every reported
+ * percentile is within about 6% of the real value. Recording never blocks and the memory used is constant (about 8kB).
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LatencyHistogram {
+
+    // 2^SUB_BUCKET_BITS exact values, then HALF_SUB_BUCKETS buckets per power of two
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS >> 1;
+
+    private static final int BUCKETS = ( 64 - SUB_BUCKET_BITS ) * HALF_SUB_BUCKETS + SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray( BUCKETS );
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator( Math::max, 0 );
+
+    /**
+     * Records a duration.
+     * 
+     * @param micros
+     *            the duration in microseconds, negative values are recorded as 0
+     */
+    public void record( long micros ) {
+        long value = micros < 0 ? 0 : micros;
+        counts.incrementAndGet( bucket( value ) );
+        count.increment();
+        sum.add( value );
+        max.accumulate( value );
+    }
+
+    /**
+     * Records the time elapsed since the given start.
+     * 
+     * @param startNanos
+     *            the start time, as returned by {@link System#nanoTime()}
+     */
+    public void recordSince( long startNanos ) {
+        record( ( System.nanoTime() - startNanos ) / 1000 );
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Creates a snapshot of this histogram. Values recorded while the snapshot is taken may or may not be part of it.
+     * 
+     * @return a snapshot, never <code>null</code>
+     */
+    public LatencySnapshot getSnapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for ( int i = 0; i < BUCKETS; ++i ) {
+            copy[i] = counts.get( i );
+            total += copy[i];
+        }
+        return new LatencySnapshot( total, sum.sum(), max.get(), valueAt( copy, total, 0.5 ),
+                                    valueAt( copy, total, 0.9 ), valueAt( copy, total, 0.99 ),
+                                    valueAt( copy, total, 0.999 ) );
+    }
+
+    /**
+     * Resets all counters, values recorded concurrently may get lost.
+     */
+    public void reset() {
+        for ( int i = 0; i < BUCKETS; ++i ) {
+            counts.set( i, 0 );
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int bucket( long value ) {
+        if ( value < SUB_BUCKETS ) {
+            return (int) value;
+        }
+        int shift = 64 - Long.numberOfLeadingZeros( value ) - SUB_BUCKET_BITS;
+        return shift * HALF_SUB_BUCKETS + (int) ( value >>> shift );
+    }
+
+    /**
+     * @return the highest value which is counted in the given bucket
+     */
+    static long highestValue( int bucket ) {
+        if ( bucket < SUB_BUCKETS ) {
+            return bucket;
+        }
+        int shift = bucket / HALF_SUB_BUCKETS - 1;
+        long lowest = ( (long) ( bucket - shift * HALF_SUB_BUCKETS ) ) << shift;
+        return lowest + ( 1L << shift ) - 1;
+    }
+
+    private static long valueAt( long[] counts, long total, double quantile ) {
+        if ( total == 0 ) {
+            return 0;
+        }
+        long rank = (long) Math.ceil( quantile * total );
+        long seen = 0;
+        for ( int i = 0; i < counts.length; ++i ) {
+            seen += counts[i];
+            if ( seen >= rank ) {
+                return highestValue( i );
+            }
+        }
+        return highestValue( counts.length - 1 );
+    }
+
+}
@@ -0,0 +1,148 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+/**
+ * An immutable snapshot of a {@link LatencyHistogram}. All values are in microseconds.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LatencySnapshot {
+
+    private final long count;
+
+    private final long sum;
+
+    private final long max;
+
+    private final long p50;
+
+    private final long p90;
+
+    private final long p99;
+
+    private final long p999;
+
+    /**
+     * @param count
+     *            number of recorded values
+     * @param sum
+     *            sum of all recorded values
+     * @param max
+     *            maximum recorded value
+     * @param p50
+     *            median
+     * @param p90
+     *            90th percentile
+     * @param p99
+     *            99th percentile
+     * @param p999
+     *            99.9th percentile
+     */
+    public LatencySnapshot( long count, long sum, long max, long p50, long p90, long p99, long p999 ) {
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of all recorded values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * @return the mean of all recorded values, 0 if nothing was recorded
+     */
+    public long getMean() {
+        return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * @return the maximum recorded value
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return the median
+     */
+    public long getP50() {
+        return p50;
+    }
+
+    /**
+     * @return the 90th percentile
+     */
+    public long getP90() {
+        return p90;
+    }
+
+    /**
+     * @return the 99th percentile
+     */
+    public long getP99() {
+        return p99;
+    }
+
+    /**
+     * @return the 99.9th percentile
+     */
+    public long getP999() {
+        return p999;
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + ", mean=" + getMean() + "us, p50=" + p50 + "us, p90=" + p90 + "us, p99=" + p99
+               + "us, p999=" + p999 + "us, max=" + max + "us";
+    }
+
+}
@@ -0,0 +1,155 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.util.Arrays;
+
+/**
+ * Identifies a metric of the {@link MetricsRegistry}: a category (e.g. <code>deegree_request</code>) and an ordered list
+ * of labels (e.g. <code>service=WMS</code>, <code>operation=GetMap</code>).
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public final class MetricName implements Comparable<MetricName> {
+
+    private final String category;
+
+    private final String[] labelNames;
+
+    private final String[] labelValues;
+
+    private final int hash;
+
+    /**
+     * @param category
+     *            of the metric, must not be <code>null</code>
+     * @param labelNames
+     *            names of the labels, must not be <code>null</code>
+     * @param labelValues
+     *            values of the labels, same length as the label names, <code>null</code> values are replaced with an
+     *            empty string
+     */
+    public MetricName( String category, String[] labelNames, String... labelValues ) {
+        if ( labelNames.length != labelValues.length ) {
+            throw new IllegalArgumentException( "Got " + labelNames.length + " label names but " + labelValues.length
+                                                + " values." );
+        }
+        this.category = category;
+        this.labelNames = labelNames;
+        this.labelValues = new String[labelValues.length];
+        for ( int i = 0; i < labelValues.length; ++i ) {
+            this.labelValues[i] = labelValues[i] == null ? "" : labelValues[i];
+        }
+        this.hash = 31 * category.hashCode() + Arrays.hashCode( this.labelValues );
+    }
+
+    /**
+     * @return the category, never <code>null</code>
+     */
+    public String getCategory() {
+        return category;
+    }
+
+    /**
+     * @return the label names, never <code>null</code>
+     */
+    public String[] getLabelNames() {
+        return labelNames.clone();
+    }
+
+    /**
+     * @return the label values, never <code>null</code>
+     */
+    public String[] getLabelValues() {
+        return labelValues.clone();
+    }
+
+    /**
+     * @return the labels in the Prometheus text format, e.g. <code>service="WMS",operation="GetMap"</code>
+     */
+    public String getLabels() {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < labelNames.length; ++i ) {
+            if ( i > 0 ) {
+                sb.append( ',' );
+            }
+            sb.append( labelNames[i] ).append( "=\"" );
+            String v = labelValues[i];
+            for ( int j = 0; j < v.length(); ++j ) {
+                char c = v.charAt( j );
+                if ( c == '\\' || c == '"' ) {
+                    sb.append( '\\' ).append( c );
+                } else if ( c == '\n' ) {
+                    sb.append( "\\n" );
+                } else {
+                    sb.append( c );
+                }
+            }
+            sb.append( '"' );
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals( Object other ) {
+        if ( this == other ) {
+            return true;
+        }
+        if ( !( other instanceof MetricName ) ) {
+            return false;
+        }
+        MetricName that = (MetricName) other;
+        return hash == that.hash && category.equals( that.category ) && Arrays.equals( labelNames, that.labelNames )
+               && Arrays.equals( labelValues, that.labelValues );
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public int compareTo( MetricName o ) {
+        return toString().compareTo( o.toString() );
+    }
+
+    @Override
+    public String toString() {
+        return category + "{" + getLabels() + "}";
+    }
+
+}
@@ -0,0 +1,277 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+
+/**
+ * Central registry of the runtime metrics of deegree: latency histograms and in-flight gauges of requests (per service
+ * and operation), layers (per layer and phase) and feature store queries (per store and feature type). Recording is
+ * lock-free, metrics are created on first use.
+ * <p>
+ * To protect against an unbounded number of metrics (e.g. from arbitrary request names), at most
+ * {@link #MAX_METRICS} metrics are created, further values are recorded in an <code>overflow</code> metric of the
+ * category.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class MetricsRegistry implements MetricsMXBean {
+
+    private static final Logger LOG = getLogger( MetricsRegistry.class );
+
+    /** Category of the request metrics. */
+    public static final String REQUESTS = "deegree_request";
+
+    /** Category of the layer metrics. */
+    public static final String LAYERS = "deegree_layer";
+
+    /** Category of the feature store metrics. */
+    public static final String FEATURE_STORES = "deegree_featurestore_query";
+
+    /** Maximum number of metrics. */
+    public static final int MAX_METRICS = 5000;
+
+    private static final String[] REQUEST_LABELS = { "service", "operation" };
+
+    private static final String[] LAYER_LABELS = { "layer", "phase" };
+
+    private static final String[] FEATURE_STORE_LABELS = { "store", "featuretype" };
+
+    private static final String[] OVERFLOW_LABELS = { "overflow" };
+
+    private static final String OBJECT_NAME = "org.deegree:type=Metrics";
+
+    private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+    private final ConcurrentMap<MetricName, LatencyHistogram> histograms = new ConcurrentHashMap<MetricName, LatencyHistogram>();
+
+    private final ConcurrentMap<MetricName, LongAdder> inFlight = new ConcurrentHashMap<MetricName, LongAdder>();
+
+    /**
+     * Use {@link #getInstance()}, this constructor is only public for tests.
+     */
+    public MetricsRegistry() {
+        // nothing to do
+    }
+
+    /**
+     * @return the registry used by all deegree components
+     */
+    public static MetricsRegistry getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts a timer for a request to an OGC service.
+     * 
+     * @param service
+     *            e.g. WMS
+     * @param operation
+     *            e.g. GetMap
+     * @return a started timer
+     */
+    public static Timer requestTimer( String service, String operation ) {
+        return INSTANCE.startTimer( new MetricName( REQUESTS, REQUEST_LABELS, service, operation ) );
+    }
+
+    /**
+     * Starts a timer for a layer.
+     * 
+     * @param layer
+     *            name of the layer
+     * @param phase
+     *            prepare (creating the layer data), render or info (which include fetching the features)
+     * @return a started timer
+     */
+    public static Timer layerTimer( String layer, String phase ) {
+        return INSTANCE.startTimer( new MetricName( LAYERS, LAYER_LABELS, layer, phase ) );
+    }
+
+    /**
+     * Starts a timer for a feature store query.
+     * 
+     * @param store
+     *            id of the feature store
+     * @param featureType
+     *            the (first) queried feature type, may be <code>null</code>
+     * @return a started timer
+     */
+    public static Timer featureStoreTimer( String store, String featureType ) {
+        return INSTANCE.startTimer( new MetricName( FEATURE_STORES, FEATURE_STORE_LABELS, store, featureType ) );
+    }
+
+    /**
+     * @param name
+     *            of the metric
+     * @return a started timer, the elapsed time is recorded in the histogram of the given metric
+     */
+    public Timer startTimer( MetricName name ) {
+        MetricName n = limit( name );
+        return new Timer( getHistogram( n ), getInFlightCounter( n ) );
+    }
+
+    /**
+     * @param name
+     *            of the metric
+     * @return the histogram of the metric, created if necessary
+     */
+    public LatencyHistogram getHistogram( MetricName name ) {
+        MetricName n = limit( name );
+        LatencyHistogram result = histograms.get( n );
+        if ( result == null ) {
+            LatencyHistogram created = new LatencyHistogram();
+            result = histograms.putIfAbsent( n, created );
+            if ( result == null ) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    private LongAdder getInFlightCounter( MetricName name ) {
+        LongAdder result = inFlight.get( name );
+        if ( result == null ) {
+            LongAdder created = new LongAdder();
+            result = inFlight.putIfAbsent( name, created );
+            if ( result == null ) {
+                result = created;
+            }
+        }
+        return result;
+    }
+
+    private MetricName limit( MetricName name ) {
+        if ( histograms.size() < MAX_METRICS || histograms.containsKey( name ) ) {
+            return name;
+        }
+        LOG.debug( "Maximum number of metrics reached, recording {} as overflow.", name );
+        return new MetricName( name.getCategory(), OVERFLOW_LABELS, "true" );
+    }
+
+    /**
+     * @return snapshots of all histograms, sorted by name
+     */
+    public Map<MetricName, LatencySnapshot> getSnapshots() {
+        Map<MetricName, LatencySnapshot> result = new TreeMap<MetricName, LatencySnapshot>();
+        for ( Map.Entry<MetricName, LatencyHistogram> e : histograms.entrySet() ) {
+            result.put( e.getKey(), e.getValue().getSnapshot() );
+        }
+        return result;
+    }
+
+    /**
+     * @return the in-flight operations of all metrics, sorted by name
+     */
+    public Map<MetricName, Long> getInFlightCounts() {
+        Map<MetricName, Long> result = new TreeMap<MetricName, Long>();
+        for ( Map.Entry<MetricName, LongAdder> e : inFlight.entrySet() ) {
+            result.put( e.getKey(), e.getValue().sum() );
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, LatencySnapshot> getLatencies() {
+        Map<String, LatencySnapshot> result = new TreeMap<String, LatencySnapshot>();
+        for ( Map.Entry<MetricName, LatencySnapshot> e : getSnapshots().entrySet() ) {
+            result.put( e.getKey().toString(), e.getValue() );
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getInFlight() {
+        Map<String, Long> result = new TreeMap<String, Long>();
+        for ( Map.Entry<MetricName, Long> e : getInFlightCounts().entrySet() ) {
+            result.put( e.getKey().toString(), e.getValue() );
+        }
+        return result;
+    }
+
+    @Override
+    public void reset() {
+        for ( LatencyHistogram h : histograms.values() ) {
+            h.reset();
+        }
+    }
+
+    /**
+     * Registers the registry returned by {@link #getInstance()} with the platform MBean server, does nothing if it is
+     * already registered.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( !server.isRegistered( name ) ) {
+                server.registerMBean( INSTANCE, name );
+            }
+        } catch ( Exception e ) {
+            LOG.warn( "Could not register the metrics MBean: {}", e.getLocalizedMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+    /**
+     * Removes the registry from the platform MBean server (if registered).
+     */
+    public static void unregisterMBean() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName( OBJECT_NAME );
+            if ( server.isRegistered( name ) ) {
+                server.unregisterMBean( name );
+            }
+        } catch ( Exception e ) {
+            LOG.debug( "Could not unregister the metrics MBean: {}", e.getLocalizedMessage() );
+            LOG.trace( "Stack trace:", e );
+        }
+    }
+
+}
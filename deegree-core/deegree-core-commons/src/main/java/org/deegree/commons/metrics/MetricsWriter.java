@@ -0,0 +1,114 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Writes the metrics of a {@link MetricsRegistry} in the Prometheus text exposition format. Every latency histogram is
+ * exported as a summary (in seconds) with the quantiles 0.5, 0.9, 0.99 and 0.999, plus a gauge with the maximum and a
+ * gauge with the in-flight operations.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class MetricsWriter {
+
+    private static final String[] QUANTILES = { "0.5", "0.9", "0.99", "0.999" };
+
+    /**
+     * @param registry
+     *            to export, must not be <code>null</code>
+     * @param out
+     *            to write to, must not be <code>null</code>, will not be closed
+     * @throws IOException
+     */
+    public static void write( MetricsRegistry registry, Writer out )
+                            throws IOException {
+        String category = null;
+        for ( Map.Entry<MetricName, LatencySnapshot> e : registry.getSnapshots().entrySet() ) {
+            MetricName name = e.getKey();
+            LatencySnapshot s = e.getValue();
+            String family = name.getCategory() + "_seconds";
+            if ( !name.getCategory().equals( category ) ) {
+                category = name.getCategory();
+                out.write( "# TYPE " + family + " summary\n" );
+            }
+            String labels = name.getLabels();
+            String sep = labels.isEmpty() ? "" : ",";
+            long[] values = { s.getP50(), s.getP90(), s.getP99(), s.getP999() };
+            for ( int i = 0; i < QUANTILES.length; ++i ) {
+                out.write( family + "{" + labels + sep + "quantile=\"" + QUANTILES[i] + "\"} " + seconds( values[i] )
+                           + "\n" );
+            }
+            out.write( family + "_sum{" + labels + "} " + seconds( s.getSum() ) + "\n" );
+            out.write( family + "_count{" + labels + "} " + s.getCount() + "\n" );
+        }
+        writeGauges( registry, out );
+        out.flush();
+    }
+
+    private static void writeGauges( MetricsRegistry registry, Writer out )
+                            throws IOException {
+        String category = null;
+        for ( Map.Entry<MetricName, LatencySnapshot> e : registry.getSnapshots().entrySet() ) {
+            MetricName name = e.getKey();
+            String family = name.getCategory() + "_seconds_max";
+            if ( !name.getCategory().equals( category ) ) {
+                category = name.getCategory();
+                out.write( "# TYPE " + family + " gauge\n" );
+            }
+            out.write( family + "{" + name.getLabels() + "} " + seconds( e.getValue().getMax() ) + "\n" );
+        }
+        category = null;
+        for ( Map.Entry<MetricName, Long> e : registry.getInFlightCounts().entrySet() ) {
+            MetricName name = e.getKey();
+            String family = name.getCategory() + "_in_flight";
+            if ( !name.getCategory().equals( category ) ) {
+                category = name.getCategory();
+                out.write( "# TYPE " + family + " gauge\n" );
+            }
+            out.write( family + "{" + name.getLabels() + "} " + e.getValue() + "\n" );
+        }
+    }
+
+    private static String seconds( long micros ) {
+        return Double.toString( micros / 1e6 );
+    }
+
+}
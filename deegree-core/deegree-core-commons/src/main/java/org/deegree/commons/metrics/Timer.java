@@ -0,0 +1,80 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Measures one execution of an operation, created by {@link MetricsRegistry#startTimer(MetricName)}. The operation is
+ * counted as in-flight until {@link #stop()} is called. The timer may be stopped by another thread than the one that
+ * started it (e.g. the one consuming a lazy feature stream), it is recorded exactly once.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public final class Timer {
+
+    private final LatencyHistogram histogram;
+
+    private final LongAdder inFlight;
+
+    private final long start;
+
+    private final AtomicBoolean stopped = new AtomicBoolean();
+
+    Timer( LatencyHistogram histogram, LongAdder inFlight ) {
+        this.histogram = histogram;
+        this.inFlight = inFlight;
+        this.start = System.nanoTime();
+        inFlight.increment();
+    }
+
+    /**
+     * Records the elapsed time, subsequent calls have no effect.
+     * 
+     * @return the elapsed time in microseconds
+     */
+    public long stop() {
+        long micros = ( System.nanoTime() - start ) / 1000;
+        if ( stopped.compareAndSet( false, true ) ) {
+            inFlight.decrement();
+            histogram.record( micros );
+        }
+        return micros;
+    }
+
+}
@@ -212,6 +212,7 @@ public class StreamBufferStore extends OutputStream {
         } else {
             os = new ByteArrayOutputStream( limit );
         }
+        bytesWritten = 0;
     }
 
     private void switchToFile()
@@ -0,0 +1,180 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.xml;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.net.URL;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamSource;
+
+import org.slf4j.Logger;
+
+/**
+ * An XSLT stylesheet that is compiled once and reused for many transformations.
+ * <p>
+ * The compiled {@link Templates} are created on first use. For stylesheets in the file system, the modification time
+ * is checked before each use and the stylesheet is compiled again if it has changed. Instances are thread safe.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class XsltStylesheet {
+
+    private static final Logger LOG = getLogger( XsltStylesheet.class );
+
+    private final URL url;
+
+    private final File file;
+
+    private volatile Templates templates;
+
+    private volatile SAXTransformerFactory saxFactory;
+
+    private volatile long lastModified;
+
+    /**
+     * @param url
+     *            location of the stylesheet, must not be <code>null</code>
+     */
+    public XsltStylesheet( URL url ) {
+        this.url = url;
+        File f = null;
+        if ( "file".equals( url.getProtocol() ) ) {
+            try {
+                f = new File( url.toURI() );
+            } catch ( URISyntaxException e ) {
+                LOG.debug( "Cannot convert '{}' to a file, changes will not be detected.", url );
+            }
+        }
+        this.file = f;
+    }
+
+    /**
+     * @return the location of the stylesheet, never <code>null</code>
+     */
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * Returns the compiled stylesheet, compiling it first if it has not been compiled yet or has changed.
+     * <p>
+     * The stylesheet is compiled with the context class loader of the calling thread.
+     * </p>
+     * 
+     * @return the compiled stylesheet, never <code>null</code>
+     * @throws TransformerConfigurationException
+     *             if the stylesheet cannot be compiled
+     */
+    public Templates getTemplates()
+                            throws TransformerConfigurationException {
+        long modified = file == null ? 0 : file.lastModified();
+        Templates current = templates;
+        if ( current != null && modified == lastModified ) {
+            return current;
+        }
+        synchronized ( this ) {
+            if ( templates == null || modified != lastModified ) {
+                if ( templates != null ) {
+                    LOG.info( "Stylesheet '{}' has changed, recompiling.", url );
+                }
+                TransformerFactory fac = TransformerFactory.newInstance();
+                templates = fac.newTemplates( new StreamSource( url.toExternalForm() ) );
+                saxFactory = fac.getFeature( SAXTransformerFactory.FEATURE ) ? (SAXTransformerFactory) fac : null;
+                lastModified = modified;
+            }
+            return templates;
+        }
+    }
+
+    /**
+     * @return a new transformer for the stylesheet, never <code>null</code>
+     * @throws TransformerConfigurationException
+     *             if the stylesheet cannot be compiled
+     */
+    public Transformer newTransformer()
+                            throws TransformerConfigurationException {
+        return getTemplates().newTransformer();
+    }
+
+    /**
+     * Returns a SAX handler that transforms the received document to the given result.
+     * 
+     * @param result
+     *            result of the transformation, must not be <code>null</code>
+     * @return the handler, or <code>null</code> if the XSLT processor does not support SAX input
+     * @throws TransformerConfigurationException
+     *             if the stylesheet cannot be compiled
+     */
+    public TransformerHandler newTransformerHandler( Result result )
+                            throws TransformerConfigurationException {
+        Templates t = getTemplates();
+        SAXTransformerFactory fac = saxFactory;
+        if ( fac == null ) {
+            return null;
+        }
+        TransformerHandler handler = fac.newTransformerHandler( t );
+        handler.setResult( result );
+        return handler;
+    }
+
+    /**
+     * Transforms the given source.
+     * 
+     * @param source
+     *            source document, must not be <code>null</code>
+     * @param result
+     *            result of the transformation, must not be <code>null</code>
+     * @throws TransformerException
+     */
+    public void transform( Source source, Result result )
+                            throws TransformerException {
+        newTransformer().transform( source, result );
+    }
+}
@@ -35,9 +35,18 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.commons.xml.schema;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URISyntaxException;
 import java.net.URL;
 
+import org.apache.commons.io.IOUtils;
+
 import org.apache.xerces.xni.XMLResourceIdentifier;
 import org.apache.xerces.xni.XNIException;
 import org.apache.xerces.xni.parser.XMLEntityResolver;
@@ -48,6 +57,10 @@ import org.slf4j.LoggerFactory;
 /**
  * Xerces entity resolver that performs redirection of requests for OpenGIS core schemas (e.g. GML) to a local copy on
  * the classpath.
+ * <p>
+ * Optionally, other remote (HTTP) schema documents can be kept in a {@link #setMirrorDirectory(File) mirror
+ * directory}, so they are only fetched once and not on every restart.
+ * </p>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider </a>
  * @author last edited by: $Author:$
@@ -64,6 +77,11 @@ public class RedirectingEntityResolver implements XMLEntityResolver {
 
     private static final URL baseURL;
 
+    // separates host and port in mirror directory names, not allowed in host names (unlike '_')
+    private static final char PORT_SEPARATOR = '+';
+
+    private static volatile File mirrorDir;
+
     static {
         baseURL = RedirectingEntityResolver.class.getResource( ROOT );
         if ( baseURL == null ) {
@@ -98,12 +116,137 @@ public class RedirectingEntityResolver implements XMLEntityResolver {
         return systemId;
     }
 
+    /**
+     * Sets the directory for keeping local copies of remote schema documents.
+     * <p>
+     * Documents are stored using their original host and path (e.g.
+     * <code>http/inspire.ec.europa.eu/schemas/ad/4.0/Addresses.xsd</code>), so relative references between them keep
+     * working. A non-default port is appended to the host name, separated by <code>+</code> (which cannot occur in
+     * host names). URLs with query strings (e.g. <code>DescribeFeatureType</code> requests) are never mirrored.
+     * Mirrored documents are not refreshed, delete them to force a reload.
+     * </p>
+     * 
+     * @param dir
+     *            mirror directory, may be <code>null</code> (disables mirroring)
+     */
+    public static void setMirrorDirectory( File dir ) {
+        mirrorDir = dir;
+    }
+
+    /**
+     * Redirects the given entity URL like {@link #redirect(String)}, but additionally returns the URL of a local copy
+     * for remote documents if a {@link #setMirrorDirectory(File) mirror directory} is set.
+     * 
+     * @param systemId
+     *            entity URL, must not be <code>null</code>
+     * @return redirected URL, identical to input if it cannot be redirected or mirrored, never <code>null</code>
+     */
+    public String redirectOrMirror( String systemId ) {
+        String redirected = redirect( systemId );
+        File dir = mirrorDir;
+        if ( dir == null || !redirected.equals( systemId ) ) {
+            return redirected;
+        }
+        String url = systemId;
+        // relative reference from a mirrored document to a document that may not be mirrored yet
+        String original = getMirroredUrl( dir, systemId );
+        if ( original != null ) {
+            redirected = redirect( original );
+            if ( !redirected.equals( original ) ) {
+                return redirected;
+            }
+            url = original;
+        }
+        File file = getMirrorFile( dir, url );
+        if ( file == null ) {
+            return systemId;
+        }
+        try {
+            mirror( url, file );
+            return file.toURI().toString();
+        } catch ( IOException e ) {
+            LOG.warn( "Could not mirror '" + url + "': " + e.getLocalizedMessage() );
+            return url;
+        }
+    }
+
+    private static File getMirrorFile( File dir, String url ) {
+        URL u;
+        try {
+            u = new URL( url );
+        } catch ( MalformedURLException e ) {
+            return null;
+        }
+        String protocol = u.getProtocol();
+        String path = u.getPath();
+        if ( !( "http".equals( protocol ) || "https".equals( protocol ) ) || u.getQuery() != null
+             || u.getHost().isEmpty() || path.isEmpty() || path.endsWith( "/" ) || path.contains( ".." ) ) {
+            return null;
+        }
+        String host = u.getPort() == -1 ? u.getHost() : u.getHost() + PORT_SEPARATOR + u.getPort();
+        return new File( new File( new File( dir, protocol ), host ), path.substring( 1 ) );
+    }
+
+    private static String getMirroredUrl( File dir, String systemId ) {
+        if ( !systemId.startsWith( "file:" ) ) {
+            return null;
+        }
+        URI base = dir.toURI();
+        URI relative;
+        try {
+            relative = base.relativize( new URI( systemId ).normalize() );
+        } catch ( URISyntaxException e ) {
+            return null;
+        }
+        if ( relative.isAbsolute() ) {
+            return null;
+        }
+        // protocol/host[+port]/path
+        String[] parts = relative.getPath().split( "/", 3 );
+        if ( parts.length < 3 ) {
+            return null;
+        }
+        int portSep = parts[1].indexOf( PORT_SEPARATOR );
+        String host = portSep == -1 ? parts[1] : parts[1].substring( 0, portSep ) + ":"
+                                                 + parts[1].substring( portSep + 1 );
+        return parts[0] + "://" + host + "/" + parts[2];
+    }
+
+    private static void mirror( String url, File file )
+                            throws IOException {
+        if ( file.exists() ) {
+            return;
+        }
+        File parent = file.getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() ) {
+            throw new IOException( "Cannot create directory '" + parent + "'." );
+        }
+        LOG.info( "Mirroring schema document '" + url + "' to '" + file + "'." );
+        File tmpFile = File.createTempFile( file.getName(), ".part", parent );
+        InputStream is = null;
+        OutputStream os = null;
+        try {
+            is = new URL( url ).openStream();
+            os = new FileOutputStream( tmpFile );
+            IOUtils.copy( is, os );
+        } finally {
+            IOUtils.closeQuietly( is );
+            IOUtils.closeQuietly( os );
+        }
+        if ( !tmpFile.renameTo( file ) ) {
+            tmpFile.delete();
+            if ( !file.exists() ) {
+                throw new IOException( "Cannot rename '" + tmpFile + "' to '" + file + "'." );
+            }
+        }
+    }
+
     @Override
     public XMLInputSource resolveEntity( XMLResourceIdentifier identifier )
                             throws XNIException, IOException {
 
         String systemId = identifier.getExpandedSystemId();
-        String redirectedSystemId = systemId != null ? redirect( systemId ) : null;
+        String redirectedSystemId = systemId != null ? redirectOrMirror( systemId ) : null;
         LOG.debug( "'" + systemId + "' -> '" + redirectedSystemId + "'" );
         return new XMLInputSource( null, redirectedSystemId, null );
     }
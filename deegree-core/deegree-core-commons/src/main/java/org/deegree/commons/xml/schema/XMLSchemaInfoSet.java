@@ -465,7 +465,7 @@ public class XMLSchemaInfoSet {
 
         RedirectingEntityResolver resolver = new RedirectingEntityResolver();
         for ( int i = 0; i < schemaUrls.length; i++ ) {
-            schemaUrls[i] = resolver.redirect( schemaUrls[i] );
+            schemaUrls[i] = resolver.redirectOrMirror( schemaUrls[i] );
         }
         schemaLoader.setEntityResolver( resolver );
 
@@ -0,0 +1,438 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.xml.stax;
+
+import static javax.xml.XMLConstants.DEFAULT_NS_PREFIX;
+import static javax.xml.XMLConstants.NULL_NS_URI;
+import static javax.xml.XMLConstants.XMLNS_ATTRIBUTE;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.ext.LexicalHandler;
+import org.xml.sax.helpers.AttributesImpl;
+import org.xml.sax.helpers.NamespaceSupport;
+
+/**
+ * {@link XMLStreamWriter} that forwards the written events to a SAX {@link ContentHandler}, e.g. a
+ * <code>TransformerHandler</code> of an XSLT processor.
+ * <p>
+ * This allows to feed XML produced by StAX based encoders directly into SAX consumers, without serializing and
+ * re-parsing it. Namespace prefixes of elements and attributes are resolved when the start tag is complete, so
+ * namespaces may be declared after the start element has been written. Comments and CDATA sections are only
+ * forwarded if the handler also implements {@link LexicalHandler}. {@link #close()} does not end the document, use
+ * {@link #writeEndDocument()} for that.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ContentHandlerXMLStreamWriter implements XMLStreamWriter {
+
+    private final ContentHandler handler;
+
+    private final LexicalHandler lexicalHandler;
+
+    private final NamespaceSupport nsSupport = new NamespaceSupport();
+
+    private final Deque<String[]> openElements = new ArrayDeque<String[]>();
+
+    private final Deque<List<String>> openMappings = new ArrayDeque<List<String>>();
+
+    private final List<String[]> pendingAttributes = new ArrayList<String[]>();
+
+    private List<String> pendingMappings;
+
+    private String[] pendingElement;
+
+    private boolean pendingEmpty;
+
+    /**
+     * @param handler
+     *            handler to forward the events to, must not be <code>null</code>
+     */
+    public ContentHandlerXMLStreamWriter( ContentHandler handler ) {
+        this.handler = handler;
+        this.lexicalHandler = handler instanceof LexicalHandler ? (LexicalHandler) handler : null;
+    }
+
+    @Override
+    public void writeStartElement( String localName )
+                            throws XMLStreamException {
+        startElement( null, null, localName, false );
+    }
+
+    @Override
+    public void writeStartElement( String namespaceURI, String localName )
+                            throws XMLStreamException {
+        startElement( null, namespaceURI, localName, false );
+    }
+
+    @Override
+    public void writeStartElement( String prefix, String localName, String namespaceURI )
+                            throws XMLStreamException {
+        startElement( prefix, namespaceURI, localName, false );
+    }
+
+    @Override
+    public void writeEmptyElement( String namespaceURI, String localName )
+                            throws XMLStreamException {
+        startElement( null, namespaceURI, localName, true );
+    }
+
+    @Override
+    public void writeEmptyElement( String prefix, String localName, String namespaceURI )
+                            throws XMLStreamException {
+        startElement( prefix, namespaceURI, localName, true );
+    }
+
+    @Override
+    public void writeEmptyElement( String localName )
+                            throws XMLStreamException {
+        startElement( null, null, localName, true );
+    }
+
+    private void startElement( String prefix, String namespaceURI, String localName, boolean empty )
+                            throws XMLStreamException {
+        flushStartElement();
+        nsSupport.pushContext();
+        pendingElement = new String[] { prefix, namespaceURI == null ? NULL_NS_URI : namespaceURI, localName };
+        pendingMappings = new ArrayList<String>();
+        pendingEmpty = empty;
+    }
+
+    @Override
+    public void writeEndElement()
+                            throws XMLStreamException {
+        flushStartElement();
+        if ( openElements.isEmpty() ) {
+            throw new XMLStreamException( "No open element to end." );
+        }
+        endElement();
+    }
+
+    private void endElement()
+                            throws XMLStreamException {
+        String[] element = openElements.pop();
+        List<String> mappings = openMappings.pop();
+        try {
+            handler.endElement( element[0], element[1], element[2] );
+            for ( String prefix : mappings ) {
+                handler.endPrefixMapping( prefix );
+            }
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+        nsSupport.popContext();
+    }
+
+    @Override
+    public void writeEndDocument()
+                            throws XMLStreamException {
+        flushStartElement();
+        while ( !openElements.isEmpty() ) {
+            endElement();
+        }
+        try {
+            handler.endDocument();
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void close() {
+        // nothing to do
+    }
+
+    @Override
+    public void flush() {
+        // nothing to do
+    }
+
+    @Override
+    public void writeAttribute( String localName, String value )
+                            throws XMLStreamException {
+        writeAttribute( null, null, localName, value );
+    }
+
+    @Override
+    public void writeAttribute( String prefix, String namespaceURI, String localName, String value )
+                            throws XMLStreamException {
+        if ( pendingElement == null ) {
+            throw new XMLStreamException( "Attributes can only be written directly after a start element." );
+        }
+        pendingAttributes.add( new String[] { prefix, namespaceURI == null ? NULL_NS_URI : namespaceURI, localName,
+                                             value } );
+    }
+
+    @Override
+    public void writeAttribute( String namespaceURI, String localName, String value )
+                            throws XMLStreamException {
+        writeAttribute( null, namespaceURI, localName, value );
+    }
+
+    @Override
+    public void writeNamespace( String prefix, String namespaceURI )
+                            throws XMLStreamException {
+        if ( pendingElement == null ) {
+            throw new XMLStreamException( "Namespaces can only be written directly after a start element." );
+        }
+        if ( prefix == null || XMLNS_ATTRIBUTE.equals( prefix ) ) {
+            prefix = DEFAULT_NS_PREFIX;
+        }
+        nsSupport.declarePrefix( prefix, namespaceURI == null ? NULL_NS_URI : namespaceURI );
+        if ( !pendingMappings.contains( prefix ) ) {
+            pendingMappings.add( prefix );
+        }
+    }
+
+    @Override
+    public void writeDefaultNamespace( String namespaceURI )
+                            throws XMLStreamException {
+        writeNamespace( DEFAULT_NS_PREFIX, namespaceURI );
+    }
+
+    @Override
+    public void writeComment( String data )
+                            throws XMLStreamException {
+        flushStartElement();
+        if ( lexicalHandler != null ) {
+            try {
+                lexicalHandler.comment( data.toCharArray(), 0, data.length() );
+            } catch ( SAXException e ) {
+                throw new XMLStreamException( e.getMessage(), e );
+            }
+        }
+    }
+
+    @Override
+    public void writeProcessingInstruction( String target )
+                            throws XMLStreamException {
+        writeProcessingInstruction( target, "" );
+    }
+
+    @Override
+    public void writeProcessingInstruction( String target, String data )
+                            throws XMLStreamException {
+        flushStartElement();
+        try {
+            handler.processingInstruction( target, data );
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void writeCData( String data )
+                            throws XMLStreamException {
+        flushStartElement();
+        try {
+            if ( lexicalHandler != null ) {
+                lexicalHandler.startCDATA();
+            }
+            handler.characters( data.toCharArray(), 0, data.length() );
+            if ( lexicalHandler != null ) {
+                lexicalHandler.endCDATA();
+            }
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void writeDTD( String dtd ) {
+        // not forwarded
+    }
+
+    @Override
+    public void writeEntityRef( String name )
+                            throws XMLStreamException {
+        flushStartElement();
+        try {
+            handler.skippedEntity( name );
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void writeStartDocument()
+                            throws XMLStreamException {
+        try {
+            handler.startDocument();
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public void writeStartDocument( String version )
+                            throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeStartDocument( String encoding, String version )
+                            throws XMLStreamException {
+        writeStartDocument();
+    }
+
+    @Override
+    public void writeCharacters( String text )
+                            throws XMLStreamException {
+        writeCharacters( text.toCharArray(), 0, text.length() );
+    }
+
+    @Override
+    public void writeCharacters( char[] text, int start, int len )
+                            throws XMLStreamException {
+        flushStartElement();
+        try {
+            handler.characters( text, start, len );
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+    }
+
+    @Override
+    public String getPrefix( String uri ) {
+        if ( uri == null ) {
+            return null;
+        }
+        if ( uri.equals( nsSupport.getURI( DEFAULT_NS_PREFIX ) ) ) {
+            return DEFAULT_NS_PREFIX;
+        }
+        return nsSupport.getPrefix( uri );
+    }
+
+    @Override
+    public void setPrefix( String prefix, String uri ) {
+        nsSupport.declarePrefix( prefix == null ? DEFAULT_NS_PREFIX : prefix, uri == null ? NULL_NS_URI : uri );
+    }
+
+    @Override
+    public void setDefaultNamespace( String uri ) {
+        setPrefix( DEFAULT_NS_PREFIX, uri );
+    }
+
+    @Override
+    public void setNamespaceContext( NamespaceContext context ) {
+        throw new UnsupportedOperationException( "Setting the namespace context is not supported." );
+    }
+
+    @Override
+    public NamespaceContext getNamespaceContext() {
+        return new NamespaceContext() {
+
+            @Override
+            public String getNamespaceURI( String prefix ) {
+                return nsSupport.getURI( prefix );
+            }
+
+            @Override
+            public String getPrefix( String namespaceURI ) {
+                return ContentHandlerXMLStreamWriter.this.getPrefix( namespaceURI );
+            }
+
+            @SuppressWarnings({ "rawtypes", "unchecked" })
+            @Override
+            public Iterator getPrefixes( String namespaceURI ) {
+                return Collections.list( nsSupport.getPrefixes( namespaceURI ) ).iterator();
+            }
+        };
+    }
+
+    @Override
+    public Object getProperty( String name ) {
+        throw new IllegalArgumentException( "Property '" + name + "' is not supported." );
+    }
+
+    private void flushStartElement()
+                            throws XMLStreamException {
+        if ( pendingElement == null ) {
+            return;
+        }
+        String uri = pendingElement[1];
+        String localName = pendingElement[2];
+        String qName = qualify( pendingElement[0], uri, localName, true );
+        AttributesImpl attrs = new AttributesImpl();
+        for ( String[] attr : pendingAttributes ) {
+            attrs.addAttribute( attr[1], attr[2], qualify( attr[0], attr[1], attr[2], false ), "CDATA", attr[3] );
+        }
+        List<String> mappings = pendingMappings;
+        boolean empty = pendingEmpty;
+        pendingElement = null;
+        pendingMappings = null;
+        pendingAttributes.clear();
+        try {
+            for ( String prefix : mappings ) {
+                handler.startPrefixMapping( prefix, nsSupport.getURI( prefix ) );
+            }
+            handler.startElement( uri, localName, qName, attrs );
+        } catch ( SAXException e ) {
+            throw new XMLStreamException( e.getMessage(), e );
+        }
+        openElements.push( new String[] { uri, localName, qName } );
+        openMappings.push( mappings );
+        if ( empty ) {
+            endElement();
+        }
+    }
+
+    private String qualify( String prefix, String uri, String localName, boolean element ) {
+        if ( prefix == null ) {
+            if ( uri.isEmpty() ) {
+                return localName;
+            }
+            prefix = element ? getPrefix( uri ) : nsSupport.getPrefix( uri );
+        }
+        if ( prefix == null || prefix.isEmpty() ) {
+            return localName;
+        }
+        return prefix + ":" + localName;
+    }
+}
@@ -0,0 +1,160 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.deegree.commons.utils.Pair;
+import org.junit.Test;
+
+/**
+ * Tests for {@link PackedRTree}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class PackedRTreeTest {
+
+    private static List<Pair<float[], Long>> createEntries( int num ) {
+        Random rnd = new Random( 42 );
+        List<Pair<float[], Long>> list = new ArrayList<Pair<float[], Long>>();
+        for ( int i = 0; i < num; ++i ) {
+            float x = rnd.nextFloat() * 1000;
+            float y = rnd.nextFloat() * 1000;
+            float[] env = i % 50 == 0 ? null : new float[] { x, y, x + rnd.nextFloat() * 10, y + rnd.nextFloat() * 10 };
+            list.add( new Pair<float[], Long>( env, (long) i * 100 ) );
+        }
+        return list;
+    }
+
+    private static List<Long> bruteForce( List<Pair<float[], Long>> entries, float[] box ) {
+        List<Long> result = new ArrayList<Long>();
+        for ( Pair<float[], Long> p : entries ) {
+            float[] env = p.first;
+            if ( env != null && env[0] <= box[2] && env[2] >= box[0] && env[1] <= box[3] && env[3] >= box[1] ) {
+                result.add( p.second );
+            }
+        }
+        Collections.sort( result );
+        return result;
+    }
+
+    private static void assertQueries( PackedRTree tree, List<Pair<float[], Long>> entries ) {
+        Random rnd = new Random( 7 );
+        for ( int i = 0; i < 100; ++i ) {
+            float x = rnd.nextFloat() * 1000;
+            float y = rnd.nextFloat() * 1000;
+            float[] box = new float[] { x, y, x + rnd.nextFloat() * 200, y + rnd.nextFloat() * 200 };
+            List<Long> result = tree.query( box );
+            Collections.sort( result );
+            assertEquals( bruteForce( entries, box ), result );
+        }
+    }
+
+    @Test
+    public void testQuery() {
+        List<Pair<float[], Long>> entries = createEntries( 5000 );
+        PackedRTree tree = new PackedRTree( 16, false );
+        tree.insertBulk( entries );
+        assertEquals( 5000, tree.size() );
+        assertQueries( tree, entries );
+    }
+
+    @Test
+    public void testQueryWithoutEnvelope() {
+        List<Pair<float[], Long>> entries = createEntries( 500 );
+        PackedRTree tree = new PackedRTree( 4, false );
+        tree.insertBulk( entries );
+        assertEquals( 500, tree.query( null ).size() );
+    }
+
+    @Test
+    public void testSingleAndEmpty() {
+        PackedRTree tree = new PackedRTree( 16, false );
+        assertTrue( tree.query( new float[] { 0, 0, 1, 1 } ).isEmpty() );
+        List<Pair<float[], Long>> entries = new ArrayList<Pair<float[], Long>>();
+        entries.add( new Pair<float[], Long>( new float[] { 0, 0, 1, 1 }, 5L ) );
+        tree.insertBulk( entries );
+        assertEquals( Collections.singletonList( 5L ), tree.query( new float[] { 0.5f, 0.5f, 2, 2 } ) );
+        assertTrue( tree.query( new float[] { 2, 2, 3, 3 } ).isEmpty() );
+    }
+
+    @Test
+    public void testFromStorage()
+                            throws IOException {
+        List<Pair<float[], Long>> entries = createEntries( 3000 );
+        PackedRTree tree = new PackedRTree( 8, true );
+        tree.insertBulk( entries );
+        File file = File.createTempFile( "packedrtree", ".idx" );
+        file.deleteOnExit();
+        tree.writeTreeToDisk( file );
+
+        PackedRTree loaded = PackedRTree.loadFromDisk( file );
+        assertTrue( loaded.getExtraFlag() );
+        assertEquals( 3000, loaded.size() );
+        assertQueries( loaded, entries );
+    }
+
+    @Test
+    public void testFromBufferSection()
+                            throws IOException {
+        List<Pair<float[], Long>> entries = createEntries( 1000 );
+        PackedRTree tree = new PackedRTree( 16, false );
+        tree.insertBulk( entries );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        bos.write( new byte[] { 1, 2, 3 } );
+        tree.write( Channels.newChannel( bos ) );
+
+        ByteBuffer buffer = ByteBuffer.wrap( bos.toByteArray() );
+        buffer.position( 3 );
+        PackedRTree loaded = PackedRTree.loadFromBuffer( buffer );
+        assertEquals( 3, buffer.position() );
+        assertEquals( 1000, loaded.size() );
+        assertQueries( loaded, entries );
+    }
+
+}
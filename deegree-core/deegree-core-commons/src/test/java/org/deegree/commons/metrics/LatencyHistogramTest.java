@@ -0,0 +1,146 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LatencyHistogram} and {@link MetricsRegistry}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsAreMonotonic() {
+        int last = -1;
+        for ( long v = 0; v < 1000000; v += 7 ) {
+            int bucket = LatencyHistogram.bucket( v );
+            assertTrue( bucket >= last );
+            assertTrue( LatencyHistogram.highestValue( bucket ) >= v );
+            last = bucket;
+        }
+    }
+
+    @Test
+    public void testRelativeError() {
+        for ( long v = 1; v < 100000000L; v = v * 3 + 1 ) {
+            long reported = LatencyHistogram.highestValue( LatencyHistogram.bucket( v ) );
+            assertTrue( reported >= v );
+            assertTrue( ( reported - v ) <= v / 16 );
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram h = new LatencyHistogram();
+        for ( int i = 1; i <= 1000; ++i ) {
+            h.record( i );
+        }
+        LatencySnapshot s = h.getSnapshot();
+        assertEquals( 1000, s.getCount() );
+        assertEquals( 500500, s.getSum() );
+        assertEquals( 1000, s.getMax() );
+        assertEquals( 500, s.getP50(), 500 / 16 );
+        assertEquals( 900, s.getP90(), 900 / 16 );
+        assertEquals( 990, s.getP99(), 990 / 16 );
+        h.reset();
+        assertEquals( 0, h.getSnapshot().getCount() );
+        assertEquals( 0, h.getSnapshot().getP50() );
+    }
+
+    @Test
+    public void testTimerAndExport()
+                            throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricName name = new MetricName( MetricsRegistry.REQUESTS, new String[] { "service", "operation" }, "WMS",
+                                          "GetMap" );
+        Timer timer = registry.startTimer( name );
+        assertEquals( Long.valueOf( 1 ), registry.getInFlightCounts().get( name ) );
+        timer.stop();
+        timer.stop();
+        assertEquals( Long.valueOf( 0 ), registry.getInFlightCounts().get( name ) );
+        assertEquals( 1, registry.getHistogram( name ).getCount() );
+
+        StringWriter out = new StringWriter();
+        MetricsWriter.write( registry, out );
+        String text = out.toString();
+        assertTrue( text.contains( "# TYPE deegree_request_seconds summary" ) );
+        assertTrue( text.contains( "deegree_request_seconds_count{service=\"WMS\",operation=\"GetMap\"} 1" ) );
+        assertTrue( text.contains( "deegree_request_in_flight{service=\"WMS\",operation=\"GetMap\"} 0" ) );
+    }
+
+    @Test
+    public void testTimerStoppedConcurrently()
+                            throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        MetricName name = new MetricName( MetricsRegistry.REQUESTS, new String[] { "service", "operation" }, "WFS",
+                                          "GetFeature" );
+        for ( int i = 0; i < 100; ++i ) {
+            final Timer timer = registry.startTimer( name );
+            final CountDownLatch start = new CountDownLatch( 1 );
+            Thread[] threads = new Thread[4];
+            for ( int j = 0; j < threads.length; ++j ) {
+                threads[j] = new Thread() {
+                    @Override
+                    public void run() {
+                        try {
+                            start.await();
+                        } catch ( InterruptedException e ) {
+                            return;
+                        }
+                        timer.stop();
+                    }
+                };
+                threads[j].start();
+            }
+            start.countDown();
+            for ( Thread t : threads ) {
+                t.join();
+            }
+        }
+        assertEquals( Long.valueOf( 0 ), registry.getInFlightCounts().get( name ) );
+        assertEquals( 100, registry.getHistogram( name ).getCount() );
+    }
+
+}
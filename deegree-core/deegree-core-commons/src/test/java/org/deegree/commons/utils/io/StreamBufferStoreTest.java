@@ -69,4 +69,17 @@ public class StreamBufferStoreTest {
         }
         os.close();
     }
+
+    @Test
+    public void testResetClearsSize()
+                            throws IOException {
+
+        StreamBufferStore os = new StreamBufferStore( 16 );
+        os.write( new byte[10] );
+        os.reset();
+        Assert.assertEquals( 0, os.size() );
+        os.write( new byte[12] );
+        Assert.assertEquals( 12, os.size() );
+        os.close();
+    }
 }
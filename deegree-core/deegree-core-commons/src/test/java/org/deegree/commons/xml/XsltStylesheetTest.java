@@ -0,0 +1,110 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.xml;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.transform.Templates;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the compilation caching of {@link XsltStylesheet}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class XsltStylesheetTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testCompiledOnce()
+                            throws Exception {
+        File xslt = writeStylesheet( tmp.newFile( "test.xsl" ), "first" );
+        XsltStylesheet stylesheet = new XsltStylesheet( xslt.toURI().toURL() );
+        Templates templates = stylesheet.getTemplates();
+        assertEquals( "first", transform( stylesheet ) );
+        assertEquals( "first", transform( stylesheet ) );
+        assertSame( templates, stylesheet.getTemplates() );
+    }
+
+    @Test
+    public void testChangedStylesheetIsRecompiled()
+                            throws Exception {
+        File xslt = writeStylesheet( tmp.newFile( "test.xsl" ), "first" );
+        XsltStylesheet stylesheet = new XsltStylesheet( xslt.toURI().toURL() );
+        Templates templates = stylesheet.getTemplates();
+        assertEquals( "first", transform( stylesheet ) );
+
+        long modified = xslt.lastModified();
+        writeStylesheet( xslt, "second" );
+        // file systems may only store seconds
+        xslt.setLastModified( modified + 2000 );
+        assertEquals( "second", transform( stylesheet ) );
+        assertNotSame( templates, stylesheet.getTemplates() );
+    }
+
+    private static File writeStylesheet( File file, String text )
+                            throws IOException {
+        FileUtils.writeStringToFile( file, "<xsl:stylesheet version=\"1.0\" "
+                                           + "xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\">"
+                                           + "<xsl:output method=\"text\"/><xsl:template match=\"/\">" + text
+                                           + "</xsl:template></xsl:stylesheet>", "UTF-8" );
+        return file;
+    }
+
+    private static String transform( XsltStylesheet stylesheet )
+                            throws Exception {
+        StringWriter out = new StringWriter();
+        stylesheet.transform( new StreamSource( new StringReader( "<a/>" ) ), new StreamResult( out ) );
+        return out.toString();
+    }
+
+}
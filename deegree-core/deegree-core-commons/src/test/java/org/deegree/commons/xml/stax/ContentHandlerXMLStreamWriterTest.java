@@ -0,0 +1,113 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.commons.xml.stax;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.sax.SAXTransformerFactory;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link ContentHandlerXMLStreamWriter}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ContentHandlerXMLStreamWriterTest {
+
+    private static final String APP = "http://www.deegree.org/app";
+
+    private static final String XSLT = "<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'"
+                                       + " xmlns:app='" + APP + "'><xsl:output method='text'/>"
+                                       + "<xsl:template match='/'><xsl:for-each select='//app:name'>"
+                                       + "<xsl:value-of select='.'/>;<xsl:value-of select='@lang'/>|"
+                                       + "</xsl:for-each></xsl:template></xsl:stylesheet>";
+
+    private void writeDocument( XMLStreamWriter writer )
+                            throws XMLStreamException {
+        writer.writeStartDocument();
+        writer.writeStartElement( "app", "Features", APP );
+        writer.writeNamespace( "app", APP );
+        writer.writeStartElement( APP, "name" );
+        writer.writeAttribute( "lang", "de" );
+        writer.writeCharacters( "Bonn" );
+        writer.writeEndElement();
+        writer.writeComment( "ignored" );
+        writer.writeStartElement( APP, "name" );
+        writer.writeAttribute( "lang", "en" );
+        writer.writeCData( "Cologne" );
+        writer.writeEndElement();
+        writer.writeEmptyElement( APP, "name" );
+        writer.writeEndDocument();
+    }
+
+    @Test
+    public void testIdentity()
+                            throws Exception {
+        SAXTransformerFactory fac = (SAXTransformerFactory) TransformerFactory.newInstance();
+        TransformerHandler handler = fac.newTransformerHandler();
+        handler.getTransformer().setOutputProperty( OutputKeys.OMIT_XML_DECLARATION, "yes" );
+        StringWriter result = new StringWriter();
+        handler.setResult( new StreamResult( result ) );
+        writeDocument( new ContentHandlerXMLStreamWriter( handler ) );
+        String xml = result.toString();
+        assertEquals( "<app:Features xmlns:app=\"" + APP + "\"><app:name lang=\"de\">Bonn</app:name><!--ignored-->"
+                      + "<app:name lang=\"en\"><![CDATA[Cologne]]></app:name><app:name/></app:Features>", xml );
+    }
+
+    @Test
+    public void testXslt()
+                            throws Exception {
+        SAXTransformerFactory fac = (SAXTransformerFactory) TransformerFactory.newInstance();
+        TransformerHandler handler = fac.newTransformerHandler( new StreamSource( new StringReader( XSLT ) ) );
+        StringWriter result = new StringWriter();
+        handler.setResult( new StreamResult( result ) );
+        writeDocument( new ContentHandlerXMLStreamWriter( handler ) );
+        assertEquals( "Bonn;de|Cologne;en|;|", result.toString() );
+    }
+
+}
@@ -40,6 +40,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 import org.deegree.coverage.AbstractCoverage;
 import org.deegree.coverage.Coverage;
 import org.deegree.coverage.ResolutionInfo;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.RasterDataFactory;
 import org.deegree.coverage.raster.data.info.BandType;
 import org.deegree.coverage.raster.data.info.RasterDataInfo;
 import org.deegree.coverage.raster.geom.RasterGeoReference;
@@ -272,6 +274,48 @@ public abstract class AbstractRaster extends AbstractCoverage {
      */
     public abstract SimpleRaster getAsSimpleRaster();
 
+    /**
+     * Returns the pixel at the given world coordinate. Only the data needed for this pixel is read, if the raster
+     * supports it. The default implementation samples {@link #getAsSimpleRaster()}.
+     * 
+     * @param x
+     *            x coordinate in the crs of this raster
+     * @param y
+     *            y coordinate in the crs of this raster
+     * @param result
+     *            will hold the samples of all bands, may be <code>null</code>
+     * @return the samples of all bands (as raw bytes, see {@link RasterDataInfo}), or <code>null</code> if the
+     *         coordinate is outside of the raster
+     */
+    public byte[] samplePixel( double x, double y, byte[] result ) {
+        return getAsSimpleRaster().samplePixel( x, y, result );
+    }
+
+    /**
+     * Returns the pixels at the given world coordinates, e.g. for profiles or time series, see
+     * {@link #samplePixel(double, double, byte[])}.
+     * 
+     * @param coordinates
+     *            x and y coordinate of each point (in the crs of this raster), one point after the other
+     * @return raster data with one column per point and a single row, points outside of the raster have no data
+     *         values
+     */
+    public RasterData samplePixels( double[] coordinates ) {
+        int numPoints = coordinates.length / 2;
+        RasterDataInfo dataInfo = getRasterDataInfo();
+        RasterData result = RasterDataFactory.createRasterData( numPoints, 1, dataInfo, null, false );
+        byte[] noData = dataInfo.getNoDataPixel( new byte[0] );
+        byte[] pixel = null;
+        for ( int i = 0; i < numPoints; ++i ) {
+            byte[] sample = samplePixel( coordinates[2 * i], coordinates[2 * i + 1], pixel );
+            if ( sample != null ) {
+                pixel = sample;
+            }
+            result.setPixel( i, 0, sample == null ? noData : sample );
+        }
+        return result;
+    }
+
     @Override
     public String toString() {
         return "AbstractRaster: " + envelopeString();
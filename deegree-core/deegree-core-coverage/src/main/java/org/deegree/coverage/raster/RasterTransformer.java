@@ -38,11 +38,15 @@ package org.deegree.coverage.raster;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
+import javax.media.jai.Warp;
 import javax.media.jai.WarpPolynomial;
 import javax.vecmath.Point3d;
 
 import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
 import org.deegree.coverage.raster.geom.RasterGeoReference;
 import org.deegree.coverage.raster.geom.RasterRect;
 import org.deegree.coverage.raster.interpolation.Interpolation;
@@ -76,8 +80,21 @@ public class RasterTransformer extends Transformer {
 
     private final int refPointsGridSize = 10;
 
+    /** number of reference points (per axis) of the polynomials fitted for the blocks of the approximation grid */
+    private static final int BLOCK_REF_POINTS = 5;
+
+    /** blocks of the approximation grid are not subdivided any further if they are smaller than this */
+    private static final int MIN_BLOCK_SIZE = 16;
+
+    /** the minimum number of destination pixels for which the transformation is split into parallel tasks */
+    private static final int MIN_PARALLEL_PIXELS = 256 * 256;
+
     private byte[] backgroundValue;
 
+    private boolean parallel;
+
+    private double maxApproximationError = -1;
+
     // private CoordinateSystem srcCRS;
 
     /**
@@ -143,7 +160,8 @@ public class RasterTransformer extends Transformer {
 
             // get the (transformed) subraster which intersects with the given envelope.
             AbstractRaster source = getSubRaster( srcCRS, sourceRaster, dstEnvelope );
-            if ( source.getColumns() == dstHeight && source.getRows() == dstWidth ) {
+            if ( ( srcCRS == null || srcCRS.equals( getTargetCRS() ) ) && source.getColumns() == dstWidth
+                 && source.getRows() == dstHeight ) {
                 // no need to interpolate.
                 return source;
             }
@@ -166,34 +184,172 @@ public class RasterTransformer extends Transformer {
             // use warp to calculate the correct sample positions in the source raster.
             // the warp is a cubic polynomial function created of 100 points in the dstEnvelope. This function will map
             // points from the source crs to the target crs very accurate.
-            WarpPolynomial warp = createWarp( dstWidth, dstHeight, srcCRS, srcREnv, dstREnv );
-            warpTransform( warp, interpolation, dstData );
+            List<WarpBlock> blocks;
+            if ( maxApproximationError > 0 && srcCRS != null && !srcCRS.equals( getTargetCRS() ) ) {
+                // use a polynomial per block of the destination grid, where the approximation is good enough
+                blocks = new ArrayList<WarpBlock>();
+                planBlocks( 0, 0, dstWidth, dstHeight, srcCRS, srcREnv, dstREnv, blocks );
+            } else {
+                WarpPolynomial warp = createWarp( dstWidth, dstHeight, srcCRS, srcREnv, dstREnv );
+                blocks = createRowBands( warp, dstWidth, dstHeight );
+            }
+            if ( parallel && blocks.size() > 1 && dstWidth * (long) dstHeight >= MIN_PARALLEL_PIXELS ) {
+                // load the buffers before the workers start reading and writing concurrently
+                prepareBuffer( srcData );
+                prepareBuffer( dstData );
+                ForkJoinPool.commonPool().invoke( new WarpTask( blocks, 0, blocks.size(), interpolationType, srcData,
+                                                                dstData ) );
+            } else {
+                for ( WarpBlock block : blocks ) {
+                    warpTransform( block, interpolation, dstData );
+                }
+            }
 
             return new SimpleRaster( dstData, dstEnvelope, dstREnv, null );
         }
     }
 
+    private static void prepareBuffer( RasterData data ) {
+        if ( data instanceof ByteBufferRasterData ) {
+            ( (ByteBufferRasterData) data ).getByteBuffer();
+        }
+    }
+
+    /**
+     * Splits the destination grid into bands of rows which are all mapped with the given warp. Without parallel
+     * processing a single band covers the whole grid.
+     */
+    private List<WarpBlock> createRowBands( Warp warp, int dstWidth, int dstHeight ) {
+        List<WarpBlock> bands = new ArrayList<WarpBlock>();
+        int bandHeight = dstHeight;
+        if ( parallel ) {
+            int tasks = 4 * Runtime.getRuntime().availableProcessors();
+            bandHeight = Math.max( MIN_BLOCK_SIZE, ( dstHeight + tasks - 1 ) / tasks );
+        }
+        for ( int y = 0; y < dstHeight; y += bandHeight ) {
+            bands.add( new WarpBlock( new RasterRect( 0, y, dstWidth, Math.min( bandHeight, dstHeight - y ) ), warp ) );
+        }
+        return bands;
+    }
+
     /**
-     * @param warp
+     * Fills the region of the given block in the destination raster. Blocks are disjoint, so different blocks may be
+     * processed concurrently (using different {@link Interpolation} instances), the result is always the same.
+     * 
+     * @param block
      * @param interpolation
      * @param dstData
      */
-    private void warpTransform( WarpPolynomial warp, Interpolation interpolation, RasterData dstData ) {
+    private static void warpTransform( WarpBlock block, Interpolation interpolation, RasterData dstData ) {
+        RasterRect rect = block.rect;
         byte[] pixel = new byte[dstData.getBands() * dstData.getDataType().getSize()];
-        float[] srcCoords = new float[dstData.getColumns() * 2];
-        for ( int y = 0; y < dstData.getRows(); y++ ) {
+        float[] srcCoords = new float[rect.width * 2];
+        for ( int y = rect.y; y < rect.y + rect.height; y++ ) {
             // look-up the pixel positions in the source raster for every pixel in this row, the srcCoords will contain
             // the x,y ([2n],[2n+1]) values in the source raster (defined in the native CRS) for this row of pixels.
-            warp.warpRect( 0, y, dstData.getColumns(), 1, srcCoords );
-            for ( int x = 0; x < dstData.getColumns(); x++ ) {
+            block.warp.warpRect( rect.x, y, rect.width, 1, srcCoords );
+            for ( int x = 0; x < rect.width; x++ ) {
                 // get the interpolated pixel and set the value into the result raster
                 interpolation.getPixel( srcCoords[x * 2], srcCoords[x * 2 + 1], pixel );
-                dstData.setPixel( x, y, pixel );
+                dstData.setPixel( rect.x + x, y, pixel );
             }
         }
 
     }
 
+    /**
+     * Recursively subdivides the given region of the destination grid until a polynomial fitted for a block maps all
+     * check points with an error smaller than the maximum approximation error. Blocks which are not approximated well
+     * enough at the minimum block size are transformed exactly.
+     */
+    private void planBlocks( int x, int y, int width, int height, ICRS srcCRS, RasterGeoReference srcREnv,
+                             RasterGeoReference dstREnv, List<WarpBlock> blocks )
+                            throws TransformationException {
+        RasterRect rect = new RasterRect( x, y, width, height );
+        if ( width >= BLOCK_REF_POINTS && height >= BLOCK_REF_POINTS ) {
+            WarpPolynomial warp = createWarp( rect, BLOCK_REF_POINTS, srcCRS, srcREnv, dstREnv );
+            if ( getApproximationError( warp, rect, srcCRS, srcREnv, dstREnv ) <= maxApproximationError ) {
+                blocks.add( new WarpBlock( rect, warp ) );
+                return;
+            }
+        }
+        if ( width > MIN_BLOCK_SIZE || height > MIN_BLOCK_SIZE ) {
+            int w0 = width > MIN_BLOCK_SIZE ? width / 2 : width;
+            int h0 = height > MIN_BLOCK_SIZE ? height / 2 : height;
+            planBlocks( x, y, w0, h0, srcCRS, srcREnv, dstREnv, blocks );
+            if ( w0 < width ) {
+                planBlocks( x + w0, y, width - w0, h0, srcCRS, srcREnv, dstREnv, blocks );
+            }
+            if ( h0 < height ) {
+                planBlocks( x, y + h0, w0, height - h0, srcCRS, srcREnv, dstREnv, blocks );
+                if ( w0 < width ) {
+                    planBlocks( x + w0, y + h0, width - w0, height - h0, srcCRS, srcREnv, dstREnv, blocks );
+                }
+            }
+            return;
+        }
+        LOG.trace( "Using exact transformation for block {}", rect );
+        blocks.add( new WarpBlock( rect, new ExactWarp( rect, transformExact( rect, 1, srcCRS, srcREnv, dstREnv ) ) ) );
+    }
+
+    /**
+     * @return the maximum distance (in source pixels) between the approximated and the exact source coordinates of a
+     *         4x4 grid of check points inside the given block, the check points are located between the reference
+     *         points of the polynomial
+     */
+    private double getApproximationError( WarpPolynomial warp, RasterRect rect, ICRS srcCRS,
+                                          RasterGeoReference srcREnv, RasterGeoReference dstREnv )
+                            throws TransformationException {
+        int checkPoints = 4;
+        int periodX = Math.max( 1, rect.width / checkPoints );
+        int periodY = Math.max( 1, rect.height / checkPoints );
+        RasterRect checkRect = new RasterRect( rect.x + periodX / 2, rect.y + periodY / 2, periodX * checkPoints,
+                                               periodY * checkPoints );
+        float[] exact = transformExact( checkRect, periodX, periodY, srcCRS, srcREnv, dstREnv );
+        float[] approx = new float[exact.length];
+        warp.warpSparseRect( checkRect.x, checkRect.y, checkRect.width, checkRect.height, periodX, periodY, approx );
+        double maxError = 0;
+        for ( int i = 0; i < exact.length; i += 2 ) {
+            double dx = exact[i] - approx[i];
+            double dy = exact[i + 1] - approx[i + 1];
+            maxError = Math.max( maxError, Math.sqrt( dx * dx + dy * dy ) );
+        }
+        return maxError;
+    }
+
+    private float[] transformExact( RasterRect rect, int period, ICRS srcCRS, RasterGeoReference srcREnv,
+                                    RasterGeoReference dstREnv )
+                            throws TransformationException {
+        return transformExact( rect, period, period, srcCRS, srcREnv, dstREnv );
+    }
+
+    /**
+     * Transforms the (sparse) destination pixels of the given rectangle into source raster coordinates, using the same
+     * pixel center convention as the {@link Warp} implementations of JAI.
+     * 
+     * @return the x,y ([2n],[2n+1]) source raster coordinates, row by row
+     */
+    private float[] transformExact( RasterRect rect, int periodX, int periodY, ICRS srcCRS,
+                                    RasterGeoReference srcREnv, RasterGeoReference dstREnv )
+                            throws TransformationException {
+        List<Point3d> points = new ArrayList<Point3d>();
+        for ( int j = rect.y; j < rect.y + rect.height; j += periodY ) {
+            for ( int i = rect.x; i < rect.x + rect.width; i += periodX ) {
+                double[] dstWCoords = dstREnv.getWorldCoordinate( i + 0.5, j + 0.5 );
+                points.add( new Point3d( dstWCoords[0], dstWCoords[1], Double.NaN ) );
+            }
+        }
+        List<Point3d> resultList = transformDstToSrc( srcCRS, points );
+        float[] result = new float[resultList.size() * 2];
+        int k = 0;
+        for ( Point3d point : resultList ) {
+            double[] srcRCoords = srcREnv.getRasterCoordinateUnrounded( point.x, point.y );
+            result[k++] = (float) ( srcRCoords[0] - 0.5 );
+            result[k++] = (float) ( srcRCoords[1] - 0.5 );
+        }
+        return result;
+    }
+
     /**
      * Create a new raster that contains all data we need for the transformation.
      * 
@@ -236,17 +392,23 @@ public class RasterTransformer extends Transformer {
     private WarpPolynomial createWarp( int dstWidth, int dstHeight, ICRS srcCRS, RasterGeoReference srcREnv,
                                        RasterGeoReference dstREnv )
                             throws TransformationException {
+        return createWarp( new RasterRect( 0, 0, dstWidth, dstHeight ), refPointsGridSize, srcCRS, srcREnv, dstREnv );
+    }
+
+    private WarpPolynomial createWarp( RasterRect rect, int gridSize, ICRS srcCRS, RasterGeoReference srcREnv,
+                                       RasterGeoReference dstREnv )
+                            throws TransformationException {
         int k = 0;
         // create/calculate reference points
-        float dx = ( dstWidth - 1 ) / (float) ( refPointsGridSize - 1 );
-        float dy = ( dstHeight - 1 ) / (float) ( refPointsGridSize - 1 );
-        float[] srcCoords = new float[refPointsGridSize * refPointsGridSize * 2];
-        float[] dstCoords = new float[refPointsGridSize * refPointsGridSize * 2];
-        List<Point3d> points = new ArrayList<Point3d>( refPointsGridSize * refPointsGridSize );
-        for ( int j = 0; j < refPointsGridSize; j++ ) {
-            for ( int i = 0; i < refPointsGridSize; i++ ) {
-                dstCoords[k] = i * dx;
-                dstCoords[k + 1] = j * dy;
+        float dx = ( rect.width - 1 ) / (float) ( gridSize - 1 );
+        float dy = ( rect.height - 1 ) / (float) ( gridSize - 1 );
+        float[] srcCoords = new float[gridSize * gridSize * 2];
+        float[] dstCoords = new float[gridSize * gridSize * 2];
+        List<Point3d> points = new ArrayList<Point3d>( gridSize * gridSize );
+        for ( int j = 0; j < gridSize; j++ ) {
+            for ( int i = 0; i < gridSize; i++ ) {
+                dstCoords[k] = rect.x + i * dx;
+                dstCoords[k + 1] = rect.y + j * dy;
                 double[] dstWCoords = dstREnv.getWorldCoordinate( (int) dstCoords[k], (int) dstCoords[k + 1] );
                 points.add( new Point3d( dstWCoords[0], dstWCoords[1], Double.NaN ) );
                 k += 2;
@@ -331,6 +493,122 @@ public class RasterTransformer extends Transformer {
         this.backgroundValue = backgroundValue == null ? null : Arrays.copyOf( backgroundValue, backgroundValue.length );
     }
 
+    /**
+     * Enables the parallel transformation of large rasters. The destination raster is split into disjoint blocks which
+     * are filled by the tasks of the common fork-join pool, the result is identical to the result of the serial
+     * transformation.
+     * 
+     * @param parallel
+     *            true if large rasters should be transformed in parallel, false by default
+     */
+    public void setParallel( boolean parallel ) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Enables the adaptive approximation grid. Instead of a single polynomial for the whole destination raster, the
+     * destination raster is subdivided into blocks until a polynomial fitted for each block deviates less than the
+     * given error from the exact transformation. Blocks which can not be approximated well enough are transformed
+     * exactly, pixel by pixel.
+     * 
+     * @param maxError
+     *            the maximum error in source pixels, a value &lt;= 0 disables the approximation grid (default)
+     */
+    public void setMaxApproximationError( double maxError ) {
+        this.maxApproximationError = maxError;
+    }
+
+    /**
+     * A disjoint region of the destination raster and the warp which maps it to the source raster.
+     */
+    private static class WarpBlock {
+
+        final RasterRect rect;
+
+        final Warp warp;
+
+        WarpBlock( RasterRect rect, Warp warp ) {
+            this.rect = rect;
+            this.warp = warp;
+        }
+    }
+
+    /**
+     * {@link Warp} with precomputed (exactly transformed) source coordinates for all pixels of a block.
+     */
+    private static class ExactWarp extends Warp {
+
+        private static final long serialVersionUID = -2811592781925880493L;
+
+        private final RasterRect rect;
+
+        private final float[] coords;
+
+        ExactWarp( RasterRect rect, float[] coords ) {
+            this.rect = rect;
+            this.coords = coords;
+        }
+
+        @Override
+        public float[] warpSparseRect( int x, int y, int width, int height, int periodX, int periodY, float[] destRect ) {
+            if ( destRect == null ) {
+                destRect = new float[2 * ( ( width + periodX - 1 ) / periodX ) * ( ( height + periodY - 1 ) / periodY )];
+            }
+            int k = 0;
+            for ( int j = y; j < y + height; j += periodY ) {
+                for ( int i = x; i < x + width; i += periodX ) {
+                    int pos = 2 * ( ( j - rect.y ) * rect.width + ( i - rect.x ) );
+                    destRect[k++] = coords[pos];
+                    destRect[k++] = coords[pos + 1];
+                }
+            }
+            return destRect;
+        }
+    }
+
+    /**
+     * Fills a range of {@link WarpBlock}s, splitting the range until a single block is left.
+     */
+    private static class WarpTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 4262434862397958165L;
+
+        private final List<WarpBlock> blocks;
+
+        private final int from;
+
+        private final int to;
+
+        private final InterpolationType interpolationType;
+
+        private final RasterData srcData;
+
+        private final RasterData dstData;
+
+        WarpTask( List<WarpBlock> blocks, int from, int to, InterpolationType interpolationType, RasterData srcData,
+                  RasterData dstData ) {
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+            this.interpolationType = interpolationType;
+            this.srcData = srcData;
+            this.dstData = dstData;
+        }
+
+        @Override
+        protected void compute() {
+            if ( to - from == 1 ) {
+                // interpolations hold internal buffers, so every task needs its own instance
+                Interpolation interpolation = InterpolationFactory.getInterpolation( interpolationType, srcData );
+                warpTransform( blocks.get( from ), interpolation, dstData );
+            } else {
+                int mid = ( from + to ) >>> 1;
+                invokeAll( new WarpTask( blocks, from, mid, interpolationType, srcData, dstData ),
+                           new WarpTask( blocks, mid, to, interpolationType, srcData, dstData ) );
+            }
+        }
+    }
+
     // private void debugRasterFile( AbstractRaster source ) {
     // File tmpFile = null;
     // try {
@@ -39,6 +39,7 @@ import org.deegree.coverage.Coverage;
 import org.deegree.coverage.raster.data.RasterData;
 import org.deegree.coverage.raster.data.info.BandType;
 import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.ByteBufferRasterData;
 import org.deegree.coverage.raster.geom.RasterGeoReference;
 import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
 import org.deegree.coverage.raster.geom.RasterRect;
@@ -285,6 +286,19 @@ public class SimpleRaster extends AbstractRaster {
         return this;
     }
 
+    @Override
+    public byte[] samplePixel( double x, double y, byte[] result ) {
+        int[] pos = getRasterReference().getRasterCoordinate( x, y );
+        if ( pos[0] < 0 || pos[1] < 0 || pos[0] >= getColumns() || pos[1] >= getRows() ) {
+            return null;
+        }
+        RasterData data = getRasterData();
+        if ( data instanceof ByteBufferRasterData ) {
+            return ( (ByteBufferRasterData) data ).samplePixel( pos[0], pos[1], result );
+        }
+        return data.getPixel( pos[0], pos[1], result );
+    }
+
     @Override
     public String toString() {
         return "SimpleRaster: " + envelopeString();
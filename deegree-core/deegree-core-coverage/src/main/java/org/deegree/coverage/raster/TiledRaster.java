@@ -53,6 +53,7 @@ import org.deegree.coverage.raster.utils.RasterFactory;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
+import org.deegree.geometry.GeometryFactory;
 import org.deegree.geometry.primitive.Curve;
 import org.deegree.geometry.primitive.Point;
 import org.deegree.workspace.ResourceMetadata;
@@ -73,6 +74,8 @@ public class TiledRaster extends AbstractRaster {
 
     private static final Logger LOG = getLogger( TiledRaster.class );
 
+    private static final GeometryFactory GEOM_FACTORY = new GeometryFactory();
+
     private TileContainer tileContainer;
 
     /**
@@ -288,6 +291,25 @@ public class TiledRaster extends AbstractRaster {
         return result;
     }
 
+    /**
+     * Looks up the tiles containing the coordinate in the tile container and samples the first one that has data
+     * there, without loading any other tile data.
+     */
+    @Override
+    public byte[] samplePixel( double x, double y, byte[] result ) {
+        Envelope point = GEOM_FACTORY.createEnvelope( x, y, x, y, getCoordinateSystem() );
+        List<AbstractRaster> tiles = getTileContainer().getTiles( point );
+        if ( tiles != null ) {
+            for ( AbstractRaster tile : tiles ) {
+                byte[] pixel = tile.samplePixel( x, y, result );
+                if ( pixel != null ) {
+                    return pixel;
+                }
+            }
+        }
+        return null;
+    }
+
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
@@ -89,7 +89,10 @@ public class CacheRasterReader extends GridFileReader {
 
     private long lastReadAccess;
 
-    private long inMemorySize;
+    // reference bit of the clock eviction of the ConcurrentCacheManager
+    private volatile boolean referenced;
+
+    private volatile long inMemorySize;
 
     private RasterCache cacheManager;
 
@@ -321,6 +324,7 @@ public class CacheRasterReader extends GridFileReader {
 //                clear( true );
 //            }
             lastReadAccess = currentTimeMillis();
+            referenced = true;
 
             // now get the data in memory
             RasterRect intersection = snapToGrid( rect );
@@ -451,6 +455,17 @@ public class CacheRasterReader extends GridFileReader {
         return lastReadAccess;
     }
 
+    /**
+     * Clears the reference bit which is set on every read access.
+     * 
+     * @return true if this reader was read since the last call to this method.
+     */
+    boolean clearReferenced() {
+        boolean result = referenced;
+        referenced = false;
+        return result;
+    }
+
     /**
      * @return the current amount of memory this cached reader has on byte buffers.
      * 
@@ -560,14 +575,21 @@ public class CacheRasterReader extends GridFileReader {
             synchronized ( LOCK ) {
                 entryBuffer = entry.getBuffer();
             }
+            ByteBuffer allocated = null;
             if ( entryBuffer == null ) {
                 // allocation of the buffer should not be in the synchronized block, it may cause a dead lock with the
                 // raster cache.
                 entryBuffer = allocateTileBuffer( false, true );
+                allocated = entryBuffer;
             }
 
             synchronized ( LOCK ) {
-                if ( !entry.isInMemory() ) {
+                if ( entry.isInMemory() ) {
+                    RasterCache.recordHit();
+                    // another thread may have loaded the tile while the buffer was allocated.
+                    entryBuffer = entry.getBuffer();
+                } else {
+                    RasterCache.recordMiss();
                     // check the cache file
                     if ( entry.isOnFile() ) {
                         try {
@@ -584,6 +606,10 @@ public class CacheRasterReader extends GridFileReader {
                     this.inMemorySize += entry.setBuffer( entryBuffer );
                 }
             }
+            if ( allocated != null && allocated != entryBuffer ) {
+                // the allocated buffer was not used, same as for the allocation this must not be synchronized.
+                RasterCache.releaseMemory( allocated.capacity() );
+            }
             result = entryBuffer.asReadOnlyBuffer();
         }
         return result;
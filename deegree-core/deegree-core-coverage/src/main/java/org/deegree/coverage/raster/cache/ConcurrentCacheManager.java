@@ -0,0 +1,334 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.cache;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+
+/**
+ * The <code>ConcurrentCacheManager</code> is an alternative to the memory accounting of the {@link RasterCache} which
+ * does not serialize allocating threads on a global lock. Memory and disk usage are kept in atomic counters, the
+ * readers themselves account for the memory of their tiles. Readers are evicted with a CLOCK (second chance) sweep
+ * over the registered readers instead of sorting all readers by their access time.
+ * <p>
+ * Once the used memory crosses the high-water mark a background thread evicts readers until the low-water mark is
+ * reached, allocating threads only evict by themselves if the maximum cache memory is exceeded.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+final class ConcurrentCacheManager {
+
+    private static final Logger LOG = getLogger( ConcurrentCacheManager.class );
+
+    /** Fraction of the cache memory which triggers the background eviction. */
+    static final double HIGH_WATER_MARK = 0.85;
+
+    /** Fraction of the cache memory an eviction pass tries to get below. */
+    static final double LOW_WATER_MARK = 0.5;
+
+    private final List<CacheRasterReader> readers = new CopyOnWriteArrayList<CacheRasterReader>();
+
+    // fast lookup of the registered readers, guarded by the readers list
+    private final Set<CacheRasterReader> registered;
+
+    private final AtomicLong usedMemory = new AtomicLong();
+
+    private final AtomicLong usedDisk = new AtomicLong();
+
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final AtomicBoolean evictionScheduled = new AtomicBoolean();
+
+    private final ExecutorService evictor;
+
+    private volatile long maxMemory;
+
+    private volatile long maxDisk;
+
+    // position of the clock hand, guarded by the eviction lock
+    private int hand;
+
+    /**
+     * @param maxMemory
+     *            the amount of memory (in bytes) which may be used for caching.
+     * @param maxDisk
+     *            the amount of disk space (in bytes) which may be used for cache files.
+     */
+    ConcurrentCacheManager( long maxMemory, long maxDisk ) {
+        this.maxMemory = maxMemory;
+        this.maxDisk = maxDisk;
+        this.registered = Collections.newSetFromMap( new IdentityHashMap<CacheRasterReader, Boolean>() );
+        this.evictor = Executors.newSingleThreadExecutor( new ThreadFactory() {
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread t = new Thread( r, "deegree-raster-cache-evictor" );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+    }
+
+    /**
+     * Accounts for the given amount of memory. If the maximum amount of cache memory is exceeded, the calling thread
+     * evicts readers until the low-water mark is reached, if the high-water mark is exceeded a background eviction is
+     * scheduled.
+     * 
+     * @param requiredMemory
+     *            some process may need.
+     * @return the amount of currently used cache memory, which is only an approximation.
+     */
+    long allocate( long requiredMemory ) {
+        long used = usedMemory.addAndGet( requiredMemory );
+        if ( used > maxMemory ) {
+            LOG.debug( "Cache memory exceeded ({} MB > {} MB), evicting in the requesting thread.",
+                       used / ( 1024d * 1024 ), maxMemory / ( 1024d * 1024 ) );
+            evict( Math.round( maxMemory * LOW_WATER_MARK ) );
+        } else if ( used > maxMemory * HIGH_WATER_MARK ) {
+            scheduleEviction();
+        }
+        return usedMemory.get();
+    }
+
+    /**
+     * Removes the given amount of memory from the accounted memory, e.g. if an allocated buffer was not used.
+     * 
+     * @param releasedMemory
+     *            memory which is no longer used by the cache.
+     */
+    void release( long releasedMemory ) {
+        usedMemory.addAndGet( -releasedMemory );
+    }
+
+    /**
+     * Registers the given reader, a reader which was already registered is ignored.
+     * 
+     * @param reader
+     * @return true if the reader was added.
+     */
+    boolean register( CacheRasterReader reader ) {
+        synchronized ( readers ) {
+            if ( !registered.add( reader ) ) {
+                return false;
+            }
+            usedMemory.addAndGet( reader.currentApproxMemory() );
+            usedDisk.addAndGet( reader.cacheFileSize() );
+            readers.add( reader );
+        }
+        return true;
+    }
+
+    /**
+     * @return the registered readers, iterating over the result is safe while other threads modify the cache.
+     */
+    List<CacheRasterReader> readers() {
+        return readers;
+    }
+
+    /**
+     * Clears all readers (optionally deleting their cache files) and removes them from this manager.
+     * 
+     * @param deleteCacheFiles
+     */
+    void clear( boolean deleteCacheFiles ) {
+        evictionLock.lock();
+        try {
+            synchronized ( readers ) {
+                for ( CacheRasterReader r : readers ) {
+                    r.clear( deleteCacheFiles );
+                }
+                readers.clear();
+                registered.clear();
+                usedMemory.set( 0 );
+                usedDisk.set( 0 );
+                hand = 0;
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Stops the background eviction thread, the manager may not be used afterwards.
+     */
+    void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    /**
+     * Sets the maximum memory and disk space to 0, causing every allocation to evict.
+     */
+    void disable() {
+        maxMemory = 0;
+        maxDisk = 0;
+    }
+
+    /**
+     * @return the approximate amount of memory used by the cached readers.
+     */
+    long getUsedMemory() {
+        return usedMemory.get();
+    }
+
+    /**
+     * @return the approximate amount of disk space used by the cache files.
+     */
+    long getUsedDisk() {
+        return usedDisk.get();
+    }
+
+    /**
+     * @return the maximum amount of memory used for caching.
+     */
+    long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return the maximum amount of disk space used for caching.
+     */
+    long getMaxDisk() {
+        return maxDisk;
+    }
+
+    private void scheduleEviction() {
+        if ( evictionScheduled.compareAndSet( false, true ) ) {
+            try {
+                evictor.execute( new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            evict( Math.round( maxMemory * LOW_WATER_MARK ) );
+                        } catch ( Throwable t ) {
+                            LOG.warn( "Background eviction of the raster cache failed: {}", t.getLocalizedMessage() );
+                            LOG.trace( "Stack trace:", t );
+                        } finally {
+                            evictionScheduled.set( false );
+                        }
+                    }
+                } );
+            } catch ( RejectedExecutionException e ) {
+                evictionScheduled.set( false );
+            }
+        }
+    }
+
+    /**
+     * Sweeps the clock hand over the registered readers until the used memory is below the given target. Readers which
+     * were read since the last sweep get a second chance, the others write their tiles to their cache file (if they
+     * have one) or drop their memory buffers.
+     * 
+     * @param target
+     *            amount of memory to get below.
+     */
+    void evict( long target ) {
+        evictionLock.lock();
+        try {
+            if ( usedMemory.get() <= target ) {
+                // another thread already did the work.
+                return;
+            }
+            Object[] snapshot = readers.toArray();
+            int n = snapshot.length;
+            // two full rotations, the first one may only clear the reference bits.
+            for ( int step = 0; step < 2 * n && usedMemory.get() > target; ++step ) {
+                hand = ( hand + 1 ) % n;
+                CacheRasterReader next = (CacheRasterReader) snapshot[hand];
+                if ( next.clearReferenced() ) {
+                    continue;
+                }
+                evict( next );
+            }
+            if ( usedMemory.get() > target ) {
+                // could not get the required memory, the accounted values may have drifted from the real ones.
+                updateUsedSpace( snapshot );
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void evict( CacheRasterReader next ) {
+        long onDisk = next.cacheFileSize();
+        if ( usedDisk.get() > maxDisk && onDisk > 0 ) {
+            // just delete the cache file and any in memory data.
+            usedMemory.addAndGet( -next.clear( true ) );
+            usedDisk.addAndGet( -onDisk );
+            RasterCache.recordEviction( false );
+        } else {
+            long mem = next.currentApproxMemory();
+            if ( mem > 0 && next.canCreateCacheFile() ) {
+                usedMemory.addAndGet( -next.dispose( false ) );
+                usedDisk.addAndGet( next.cacheFileSize() - onDisk );
+                RasterCache.recordEviction( true );
+            } else if ( mem > 0 ) {
+                // dispose does not report the memory of readers without a cache file.
+                next.dispose( true );
+                usedMemory.addAndGet( next.currentApproxMemory() - mem );
+                RasterCache.recordEviction( false );
+            }
+        }
+    }
+
+    private void updateUsedSpace( Object[] snapshot ) {
+        long mem = 0;
+        long disk = 0;
+        for ( Object o : snapshot ) {
+            CacheRasterReader r = (CacheRasterReader) o;
+            mem += r.currentApproxMemory();
+            disk += r.cacheFileSize();
+        }
+        LOG.debug( "Resetting currently used memory from: {} to: {}", ( usedMemory.get() / ( 1024 * 1024d ) ),
+                   ( mem / ( 1024 * 1024d ) ) );
+        usedMemory.set( mem );
+        usedDisk.set( disk );
+    }
+
+}
@@ -49,6 +49,7 @@ import java.util.SortedSet;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.deegree.commons.utils.StringUtils;
 import org.deegree.coverage.raster.SimpleRaster;
@@ -66,6 +67,11 @@ import org.slf4j.Logger;
  * <p>
  * The RasterCache memory size and the amount of disk space can be set by adding the keys
  * {@link #DEF_RASTER_CACHE_MEM_SIZE} and {@link #DEF_RASTER_CACHE_DISK_SIZE} to the JVM.
+ * <p>
+ * By default all memory accounting is done under a global lock. Setting the {@link #DEF_RASTER_CACHE_MANAGER} key to
+ * <code>concurrent</code> switches to the {@link ConcurrentCacheManager}, which uses atomic counters, a CLOCK eviction
+ * and evicts in a background thread once the high-water mark is crossed. The hit, miss and eviction counters of both
+ * managers are available through {@link #getStatistics()}.
  * 
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  * @author last edited by: $Author$
@@ -87,6 +93,12 @@ public class RasterCache {
     /** A key which can be given to the JVM to define the amount of disk memory used for caching (e.g. 1024m). */
     public static final String DEF_RASTER_CACHE_DISK_SIZE = "deegree.raster.cache.disksize";
 
+    /**
+     * A key which can be given to the JVM to select the memory manager of the cache, <code>concurrent</code> selects
+     * the {@link ConcurrentCacheManager}, all other values the default (globally locked) memory accounting.
+     */
+    public static final String DEF_RASTER_CACHE_MANAGER = "deegree.raster.cache.manager";
+
     private static long maxCacheMem;
 
     private static long maxCacheDisk;
@@ -108,6 +120,16 @@ public class RasterCache {
 
     private static long currentlyUsedDisk = 0;
 
+    private static volatile ConcurrentCacheManager concurrentManager;
+
+    private static final LongAdder hits = new LongAdder();
+
+    private static final LongAdder misses = new LongAdder();
+
+    private static final LongAdder evictions = new LongAdder();
+
+    private static final LongAdder diskSpills = new LongAdder();
+
     private final static ConcurrentSkipListSet<CacheRasterReader> cache = new ConcurrentSkipListSet<CacheRasterReader>(
                                                                                                                         new CacheComparator() );
     static {
@@ -151,6 +173,17 @@ public class RasterCache {
                           ( mm / ( 1024 * 1024 ) ) + "Mb", DEF_RASTER_CACHE_DISK_SIZE );
             }
             maxCacheDisk = mm;
+
+            ConcurrentCacheManager old = concurrentManager;
+            if ( old != null ) {
+                old.shutdown();
+            }
+            if ( "concurrent".equalsIgnoreCase( System.getProperty( DEF_RASTER_CACHE_MANAGER ) ) ) {
+                LOG.info( "Using the concurrent raster cache manager." );
+                concurrentManager = new ConcurrentCacheManager( maxCacheMem, maxCacheDisk );
+            } else {
+                concurrentManager = null;
+            }
         }
     }
 
@@ -171,6 +204,10 @@ public class RasterCache {
     public static void reset( boolean deleteCachedFile ) {
         clear( deleteCachedFile );
         evaluateProperties();
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        diskSpills.reset();
     }
 
     /**
@@ -256,6 +293,10 @@ public class RasterCache {
      * @return the currentlyUsedMemory
      */
     public static final long getCurrentlyUsedMemory() {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            return manager.getUsedMemory();
+        }
         return currentlyUsedMemory;
     }
 
@@ -263,6 +304,10 @@ public class RasterCache {
      * @return the currentlyUsedDisk
      */
     public static final long getCurrentlyUsedDisk() {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            return manager.getUsedDisk();
+        }
         return currentlyUsedDisk;
     }
 
@@ -270,9 +315,63 @@ public class RasterCache {
      * @return the number of cached readers.
      */
     public static int size() {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            return manager.readers().size();
+        }
         return cache.size();
     }
 
+    /**
+     * @return a snapshot of the hit, miss, eviction and disk spill counters and the current memory and disk usage of
+     *         the raster cache.
+     */
+    public static RasterCacheStatistics getStatistics() {
+        ConcurrentCacheManager manager = concurrentManager;
+        long maxMem = manager != null ? manager.getMaxMemory() : maxCacheMem;
+        long maxDisk = manager != null ? manager.getMaxDisk() : maxCacheDisk;
+        return new RasterCacheStatistics( hits.sum(), misses.sum(), evictions.sum(), diskSpills.sum(),
+                                          getCurrentlyUsedMemory(), maxMem, getCurrentlyUsedDisk(), maxDisk, size() );
+    }
+
+    /**
+     * Called by the readers if a requested tile was found in memory.
+     */
+    static void recordHit() {
+        hits.increment();
+    }
+
+    /**
+     * Called by the readers if a requested tile had to be read from the cache file or the original raster.
+     */
+    static void recordMiss() {
+        misses.increment();
+    }
+
+    /**
+     * Called by the memory managers if the memory of a reader was freed.
+     * 
+     * @param spilledToDisk
+     *            true if the tiles of the reader were written to its cache file.
+     */
+    static void recordEviction( boolean spilledToDisk ) {
+        evictions.increment();
+        if ( spilledToDisk ) {
+            diskSpills.increment();
+        }
+    }
+
+    /**
+     * @return the readers of the active memory manager.
+     */
+    private static Iterator<CacheRasterReader> readers() {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            return manager.readers().iterator();
+        }
+        return cache.iterator();
+    }
+
     /**
      * Clears all Memory buffers from all known cached readers, removes the cache files (if requested) and removes all
      * readers from the cache. Note, all information on the currently rasters is lost.
@@ -282,6 +381,10 @@ public class RasterCache {
      * 
      */
     public static void clear( boolean deleteCacheFiles ) {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            manager.clear( deleteCacheFiles );
+        }
         synchronized ( MEM_LOCK ) {
             Iterator<CacheRasterReader> it = cache.iterator();
             while ( it != null && it.hasNext() ) {
@@ -322,7 +425,7 @@ public class RasterCache {
      */
     public static void flush() {
         synchronized ( MEM_LOCK ) {
-            Iterator<CacheRasterReader> it = cache.iterator();
+            Iterator<CacheRasterReader> it = readers();
             while ( it != null && it.hasNext() ) {
                 CacheRasterReader next = it.next();
                 if ( next != null ) {
@@ -337,7 +440,7 @@ public class RasterCache {
      */
     public static void dispose() {
         synchronized ( MEM_LOCK ) {
-            Iterator<CacheRasterReader> it = cache.iterator();
+            Iterator<CacheRasterReader> it = readers();
             long allocatedMem = 0;
             int i = 1;
             while ( it != null && it.hasNext() ) {
@@ -364,6 +467,10 @@ public class RasterCache {
      * @return the amount of currently used cache memory, which is only an approximation.
      */
     public static long freeMemory( long requiredMemory ) {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            return manager.allocate( requiredMemory );
+        }
         synchronized ( MEM_LOCK ) {
             LOG.debug( "Currently used cache memory:{} MB, totalCacheMemory:{} MB", currentlyUsedMemory
                                                                                     / ( 1024d * 1024 ),
@@ -377,6 +484,24 @@ public class RasterCache {
         return currentlyUsedMemory;
     }
 
+    /**
+     * Returns memory which was requested with {@link #freeMemory(long)} but is not used by the cache after all (e.g.
+     * a buffer which was allocated for a tile that another thread has loaded in the meantime).
+     * 
+     * @param releasedMemory
+     *            the amount of memory to release.
+     */
+    static void releaseMemory( long releasedMemory ) {
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            manager.release( releasedMemory );
+            return;
+        }
+        synchronized ( MEM_LOCK ) {
+            currentlyUsedMemory -= releasedMemory;
+        }
+    }
+
     private static void disposeMemory( long requiredMemory ) {
         synchronized ( MEM_LOCK ) {
             if ( currentlyUsedMemory + requiredMemory > maxCacheMem ) {
@@ -396,14 +521,17 @@ public class RasterCache {
                                 // file.
                                 currentlyUsedMemory -= next.clear( true );
                                 currentlyUsedDisk -= onDisk;
+                                recordEviction( false );
                             } else {
                                 long mem = next.currentApproxMemory();
                                 if ( mem > 0 && next.canCreateCacheFile() ) {
                                     currentlyUsedMemory -= next.dispose( false );
                                     // add the new cache file size
                                     currentlyUsedDisk += ( next.cacheFileSize() - onDisk );
+                                    recordEviction( true );
                                 } else if ( mem > 0 ) {
                                     currentlyUsedMemory -= next.dispose( true );
+                                    recordEviction( false );
                                 }
                             }
                         }
@@ -455,10 +583,15 @@ public class RasterCache {
      */
     private static void addReader( CacheRasterReader reader ) {
         boolean added = false;
-        synchronized ( MEM_LOCK ) {
-            currentlyUsedMemory += reader.currentApproxMemory();
-            currentlyUsedDisk += reader.cacheFileSize();
-            added = cache.add( reader );
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            added = manager.register( reader );
+        } else {
+            synchronized ( MEM_LOCK ) {
+                currentlyUsedMemory += reader.currentApproxMemory();
+                currentlyUsedDisk += reader.cacheFileSize();
+                added = cache.add( reader );
+            }
         }
         if ( !added ) {
             LOG.debug( "Not adding reader ({}) to cache because it is already in the cache.", reader );
@@ -592,6 +725,10 @@ public class RasterCache {
     public static void disableAllCaches() {
         maxCacheMem = 0;
         maxCacheDisk = 0;
+        ConcurrentCacheManager manager = concurrentManager;
+        if ( manager != null ) {
+            manager.disable();
+        }
     }
 
 }
@@ -0,0 +1,175 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.cache;
+
+/**
+ * The <code>RasterCacheStatistics</code> is an immutable snapshot of the counters of the {@link RasterCache}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RasterCacheStatistics {
+
+    private final long hits;
+
+    private final long misses;
+
+    private final long evictions;
+
+    private final long diskSpills;
+
+    private final long usedMemory;
+
+    private final long maxMemory;
+
+    private final long usedDisk;
+
+    private final long maxDisk;
+
+    private final int readers;
+
+    /**
+     * @param hits
+     *            number of tile requests which were answered from memory
+     * @param misses
+     *            number of tile requests which had to read from a cache file or the original raster
+     * @param evictions
+     *            number of times a reader had to give up its memory
+     * @param diskSpills
+     *            number of evictions which wrote the memory of a reader to its cache file
+     * @param usedMemory
+     *            approximate memory used by the cache
+     * @param maxMemory
+     *            maximum memory of the cache
+     * @param usedDisk
+     *            approximate disk space used by the cache files
+     * @param maxDisk
+     *            maximum disk space of the cache
+     * @param readers
+     *            number of cached readers
+     */
+    RasterCacheStatistics( long hits, long misses, long evictions, long diskSpills, long usedMemory, long maxMemory,
+                           long usedDisk, long maxDisk, int readers ) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.diskSpills = diskSpills;
+        this.usedMemory = usedMemory;
+        this.maxMemory = maxMemory;
+        this.usedDisk = usedDisk;
+        this.maxDisk = maxDisk;
+        this.readers = readers;
+    }
+
+    /**
+     * @return the number of tile requests which were answered from memory.
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of tile requests which had to read from a cache file or the original raster.
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of times a reader had to give up its memory.
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the number of evictions which wrote the memory of a reader to its cache file.
+     */
+    public long getDiskSpills() {
+        return diskSpills;
+    }
+
+    /**
+     * @return the approximate memory used by the cache.
+     */
+    public long getUsedMemory() {
+        return usedMemory;
+    }
+
+    /**
+     * @return the maximum memory of the cache.
+     */
+    public long getMaxMemory() {
+        return maxMemory;
+    }
+
+    /**
+     * @return the approximate disk space used by the cache files.
+     */
+    public long getUsedDisk() {
+        return usedDisk;
+    }
+
+    /**
+     * @return the maximum disk space of the cache.
+     */
+    public long getMaxDisk() {
+        return maxDisk;
+    }
+
+    /**
+     * @return the number of cached readers.
+     */
+    public int getReaders() {
+        return readers;
+    }
+
+    /**
+     * @return the ratio of hits to all tile requests, 0 if no tile was requested.
+     */
+    public double getHitRatio() {
+        long total = hits + misses;
+        return total == 0 ? 0 : ( (double) hits ) / total;
+    }
+
+    @Override
+    public String toString() {
+        return "hits: " + hits + ", misses: " + misses + ", evictions: " + evictions + ", disk spills: " + diskSpills
+               + ", memory: " + usedMemory + "/" + maxMemory + ", disk: " + usedDisk + "/" + maxDisk + ", readers: "
+               + readers;
+    }
+
+}
@@ -50,9 +50,10 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.lang.ref.SoftReference;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.deegree.commons.annotations.LoggingNotes;
 import org.deegree.commons.index.QTree;
@@ -89,7 +90,7 @@ public class DiskBasedTileContainer implements TileContainer {
 
     private ResolutionInfo resolutionInfo;
 
-    private HashMap<File, SoftReference<AbstractRaster>> cache = new HashMap<File, SoftReference<AbstractRaster>>();
+    private final ConcurrentMap<File, SoftReference<AbstractRaster>> cache = new ConcurrentHashMap<File, SoftReference<AbstractRaster>>();
 
     private RasterIOOptions options;
 
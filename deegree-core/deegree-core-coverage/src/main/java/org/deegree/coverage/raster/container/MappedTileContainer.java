@@ -0,0 +1,531 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.container;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.deegree.coverage.raster.utils.RasterFactory.loadRasterFromFile;
+import static org.deegree.geometry.utils.GeometryUtils.createEnvelope;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.deegree.commons.annotations.LoggingNotes;
+import org.deegree.commons.index.PackedRTree;
+import org.deegree.commons.utils.Pair;
+import org.deegree.coverage.ResolutionInfo;
+import org.deegree.coverage.persistence.DefaultCoverageBuilder.QTreeInfo;
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.SampleResolution;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.slf4j.Logger;
+
+/**
+ * {@link TileContainer} for a directory of raster files, indexed by a memory-mapped binary index file.
+ * <p>
+ * The index file ({@value #INDEX_FILE}) is versioned and consists of a header, a small metadata block, a table of the
+ * tile file names (relative to the directory) and a {@link PackedRTree} over the tile envelopes. Opening it only maps
+ * the file and reads the metadata, queries run directly on the mapped tree and table, so even huge pyramids open
+ * instantly and the index does not use heap space.
+ * </p>
+ * <p>
+ * Loaded tiles are kept in a {@link TileCache} with a fixed maximum number of tiles (least recently used tiles are
+ * evicted), which may be used by several threads at once.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+@LoggingNotes(debug = "logs when raster files could not be loaded", trace = "logs stack traces")
+public class MappedTileContainer implements TileContainer {
+
+    private static final Logger LOG = getLogger( MappedTileContainer.class );
+
+    /** Name of the index file in the raster directory. */
+    public static final String INDEX_FILE = "deegree-pyramid.mtx";
+
+    /** Number of tiles that are cached if {@link RasterIOOptions#MAX_CACHED_TILES} is not set. */
+    public static final int DEFAULT_MAX_CACHED_TILES = 256;
+
+    private static final int MAGIC = 0x58545044;
+
+    private static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 32;
+
+    private static final int ENTRY_BYTES = 8;
+
+    private static final Charset UTF8 = Charset.forName( "UTF-8" );
+
+    private final File directory;
+
+    private final int numTiles;
+
+    private final ByteBuffer table;
+
+    private final ByteBuffer names;
+
+    private final PackedRTree tree;
+
+    private Envelope envelope;
+
+    private RasterDataInfo rasterDataInfo;
+
+    private RasterGeoReference rasterGeoReference;
+
+    private ResolutionInfo resolutionInfo;
+
+    private RasterIOOptions options;
+
+    private final TileCache cache;
+
+    private final TileCache.TileLoader loader = new TileCache.TileLoader() {
+        @Override
+        public AbstractRaster load( int tile )
+                                throws IOException {
+            return loadRasterFromFile( getTileFile( tile ), options, null );
+        }
+    };
+
+    private MappedTileContainer( File indexFile, ByteBuffer buffer, int maxCachedTiles ) throws IOException {
+        directory = indexFile.getAbsoluteFile().getParentFile();
+        if ( buffer.capacity() < HEADER_BYTES || buffer.getInt( 0 ) != MAGIC ) {
+            throw new IOException( "File " + indexFile + " is not a tile index." );
+        }
+        if ( buffer.getInt( 4 ) != VERSION ) {
+            throw new IOException( "Unsupported tile index version " + buffer.getInt( 4 ) + " in " + indexFile + "." );
+        }
+        numTiles = buffer.getInt( 8 );
+        int metadataLength = buffer.getInt( 12 );
+        long namesOffset = buffer.getLong( 16 );
+        long treeOffset = buffer.getLong( 24 );
+        long tableOffset = HEADER_BYTES + metadataLength;
+        if ( tableOffset + (long) numTiles * ENTRY_BYTES != namesOffset || namesOffset > treeOffset
+             || treeOffset > buffer.capacity() ) {
+            throw new IOException( "Tile index " + indexFile + " is corrupt." );
+        }
+
+        byte[] metadata = new byte[metadataLength];
+        ByteBuffer dup = buffer.duplicate();
+        dup.position( HEADER_BYTES );
+        dup.get( metadata );
+        readMetadata( new DataInputStream( new ByteArrayInputStream( metadata ) ) );
+
+        table = section( buffer, tableOffset, namesOffset );
+        names = section( buffer, namesOffset, treeOffset );
+        dup.limit( buffer.capacity() ).position( (int) treeOffset );
+        tree = PackedRTree.loadFromBuffer( dup );
+        cache = new TileCache( maxCachedTiles );
+    }
+
+    private static ByteBuffer section( ByteBuffer buffer, long start, long end ) {
+        ByteBuffer dup = buffer.duplicate();
+        dup.limit( (int) end ).position( (int) start );
+        return dup.slice().order( LITTLE_ENDIAN );
+    }
+
+    /**
+     * Memory-maps an index file written by {@link #create(File, QTreeInfo, List, List, RasterIOOptions, int)}.
+     * 
+     * @param indexFile
+     *            the index file in the raster directory, must not be <code>null</code>
+     * @param maxCachedTiles
+     *            maximum number of tiles kept in memory, must be positive
+     * @return the container, never <code>null</code>
+     * @throws IOException
+     *             if the file cannot be read or is not a (supported) tile index
+     */
+    public static MappedTileContainer open( File indexFile, int maxCachedTiles )
+                            throws IOException {
+        LOG.debug( "Mapping tile index file {}.", indexFile );
+        RandomAccessFile raf = new RandomAccessFile( indexFile, "r" );
+        try {
+            FileChannel channel = raf.getChannel();
+            if ( channel.size() > Integer.MAX_VALUE ) {
+                throw new IOException( "Tile index " + indexFile + " is too large." );
+            }
+            ByteBuffer buffer = channel.map( READ_ONLY, 0, channel.size() ).order( LITTLE_ENDIAN );
+            return new MappedTileContainer( indexFile, buffer, maxCachedTiles );
+        } finally {
+            // the mapping stays valid after closing the file
+            raf.close();
+        }
+    }
+
+    /**
+     * Writes the index file for the given tiles and maps it. The file is replaced atomically, so containers currently
+     * mapping the old file stay valid.
+     * 
+     * @param indexFile
+     *            the index file in the raster directory, must not be <code>null</code>
+     * @param info
+     *            envelope and raster reference of the tiles, must not be <code>null</code>
+     * @param files
+     *            the tile files, must not be <code>null</code>
+     * @param rasters
+     *            the tiles loaded from the files (in the same order), must not be <code>null</code> or empty
+     * @param options
+     *            used to load the tiles, must not be <code>null</code>
+     * @param maxCachedTiles
+     *            maximum number of tiles kept in memory, must be positive
+     * @return the container, never <code>null</code>
+     * @throws IOException
+     *             if the index file cannot be written
+     */
+    public static MappedTileContainer create( File indexFile, QTreeInfo info, List<File> files,
+                                              List<AbstractRaster> rasters, RasterIOOptions options,
+                                              int maxCachedTiles )
+                            throws IOException {
+        LOG.debug( "Writing tile index file {}.", indexFile );
+        File dir = indexFile.getAbsoluteFile().getParentFile();
+        AbstractRaster first = rasters.get( 0 );
+
+        ByteArrayOutputStream metadata = new ByteArrayOutputStream();
+        writeMetadata( new DataOutputStream( metadata ), info.envelope, first.getRasterDataInfo(),
+                       info.rasterGeoReference, first.getResolutionInfo(), options );
+
+        ByteArrayOutputStream nameBytes = new ByteArrayOutputStream();
+        ByteBuffer entries = ByteBuffer.allocate( rasters.size() * ENTRY_BYTES ).order( LITTLE_ENDIAN );
+        List<Pair<float[], Long>> envelopes = new ArrayList<Pair<float[], Long>>( rasters.size() );
+        Iterator<File> iter = files.iterator();
+        for ( AbstractRaster r : rasters ) {
+            byte[] name = getRelativeName( dir, iter.next() ).getBytes( UTF8 );
+            entries.putInt( nameBytes.size() ).putInt( name.length );
+            nameBytes.write( name );
+            envelopes.add( new Pair<float[], Long>( createEnvelope( r.getEnvelope() ), (long) envelopes.size() ) );
+        }
+        PackedRTree tree = new PackedRTree( 16, false );
+        tree.insertBulk( envelopes );
+
+        long namesOffset = HEADER_BYTES + metadata.size() + entries.capacity();
+        ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES ).order( LITTLE_ENDIAN );
+        header.putInt( MAGIC ).putInt( VERSION ).putInt( rasters.size() ).putInt( metadata.size() );
+        header.putLong( namesOffset ).putLong( namesOffset + nameBytes.size() );
+        header.flip();
+        entries.flip();
+
+        File tmp = new File( indexFile.getPath() + ".tmp" );
+        RandomAccessFile raf = new RandomAccessFile( tmp, "rw" );
+        try {
+            raf.setLength( 0 );
+            FileChannel channel = raf.getChannel();
+            for ( ByteBuffer buf : new ByteBuffer[] { header, ByteBuffer.wrap( metadata.toByteArray() ), entries,
+                                                     ByteBuffer.wrap( nameBytes.toByteArray() ) } ) {
+                while ( buf.hasRemaining() ) {
+                    channel.write( buf );
+                }
+            }
+            tree.write( channel );
+        } finally {
+            raf.close();
+        }
+        try {
+            Files.move( tmp.toPath(), indexFile.toPath(), REPLACE_EXISTING, ATOMIC_MOVE );
+        } catch ( IOException e ) {
+            Files.move( tmp.toPath(), indexFile.toPath(), REPLACE_EXISTING );
+        }
+
+        MappedTileContainer container = open( indexFile, maxCachedTiles );
+        // keep the tiles that were just loaded, as far as they fit
+        for ( int i = 0; i < rasters.size() && i < maxCachedTiles; ++i ) {
+            container.cache.put( i, rasters.get( i ) );
+        }
+        return container;
+    }
+
+    private static String getRelativeName( File dir, File file ) {
+        try {
+            return dir.toPath().relativize( file.getAbsoluteFile().toPath() ).toString().replace( File.separatorChar,
+                                                                                                  '/' );
+        } catch ( IllegalArgumentException e ) {
+            return file.getAbsolutePath();
+        }
+    }
+
+    /**
+     * @param options
+     *            may be <code>null</code>
+     * @return true, if the options request a memory-mapped tile index, see {@link RasterIOOptions#TILE_INDEX}
+     */
+    public static boolean isRequested( RasterIOOptions options ) {
+        return options != null && "mapped".equalsIgnoreCase( options.get( RasterIOOptions.TILE_INDEX ) );
+    }
+
+    /**
+     * @param options
+     *            may be <code>null</code>
+     * @return the configured maximum number of cached tiles, or {@link #DEFAULT_MAX_CACHED_TILES}
+     */
+    public static int getMaxCachedTiles( RasterIOOptions options ) {
+        String value = options == null ? null : options.get( RasterIOOptions.MAX_CACHED_TILES );
+        if ( value != null ) {
+            try {
+                int max = Integer.parseInt( value.trim() );
+                if ( max > 0 ) {
+                    return max;
+                }
+            } catch ( NumberFormatException e ) {
+                // use default
+            }
+            LOG.warn( "Ignoring invalid maximum number of cached tiles '{}'.", value );
+        }
+        return DEFAULT_MAX_CACHED_TILES;
+    }
+
+    private static void writeMetadata( DataOutputStream out, Envelope envelope, RasterDataInfo dataInfo,
+                                       RasterGeoReference geoRef, ResolutionInfo resInfo, RasterIOOptions options )
+                            throws IOException {
+        out.writeDouble( envelope.getMin().get0() );
+        out.writeDouble( envelope.getMin().get1() );
+        out.writeDouble( envelope.getMax().get0() );
+        out.writeDouble( envelope.getMax().get1() );
+        writeGeoReference( out, geoRef );
+
+        out.writeInt( dataInfo.bands );
+        for ( BandType band : dataInfo.bandInfo ) {
+            out.writeUTF( band.name() );
+        }
+        out.writeUTF( dataInfo.dataType.name() );
+        out.writeUTF( dataInfo.interleaveType == null ? "" : dataInfo.interleaveType.name() );
+        writeBytes( out, dataInfo.noDataPixel );
+
+        List<SampleResolution> resolutions = resInfo == null ? null : resInfo.getNativeResolutions();
+        if ( resolutions == null || resolutions.isEmpty() ) {
+            out.writeBoolean( false );
+        } else {
+            out.writeBoolean( true );
+            out.writeDouble( resolutions.get( 0 ).getResolution( 0 ) );
+            out.writeDouble( resolutions.get( 0 ).getResolution( 1 ) );
+        }
+
+        out.writeBoolean( options.getRasterGeoReference() != null );
+        if ( options.getRasterGeoReference() != null ) {
+            writeGeoReference( out, options.getRasterGeoReference() );
+        }
+        writeBytes( out, options.getNoDataValue() );
+        out.writeInt( options.getKeys().size() );
+        for ( String key : options.getKeys() ) {
+            out.writeUTF( key );
+            out.writeUTF( options.get( key ) );
+        }
+        out.flush();
+    }
+
+    private void readMetadata( DataInputStream in )
+                            throws IOException {
+        double[] env = new double[] { in.readDouble(), in.readDouble(), in.readDouble(), in.readDouble() };
+        rasterGeoReference = readGeoReference( in );
+        envelope = new GeometryFactory().createEnvelope( env[0], env[1], env[2], env[3],
+                                                         rasterGeoReference.getCrs() );
+
+        BandType[] bands = new BandType[in.readInt()];
+        for ( int i = 0; i < bands.length; ++i ) {
+            bands[i] = BandType.valueOf( in.readUTF() );
+        }
+        DataType dataType = DataType.valueOf( in.readUTF() );
+        String interleave = in.readUTF();
+        rasterDataInfo = new RasterDataInfo( readBytes( in ), bands, dataType,
+                                             interleave.isEmpty() ? null : InterleaveType.valueOf( interleave ) );
+
+        if ( in.readBoolean() ) {
+            resolutionInfo = new ResolutionInfo( new SampleResolution( new double[] { in.readDouble(),
+                                                                                      in.readDouble() } ) );
+        } else {
+            resolutionInfo = new ResolutionInfo();
+        }
+
+        options = new RasterIOOptions();
+        if ( in.readBoolean() ) {
+            options.setRasterGeoReference( readGeoReference( in ) );
+        }
+        options.setNoData( readBytes( in ) );
+        int numOptions = in.readInt();
+        for ( int i = 0; i < numOptions; ++i ) {
+            options.add( in.readUTF(), in.readUTF() );
+        }
+    }
+
+    private static void writeGeoReference( DataOutputStream out, RasterGeoReference geoRef )
+                            throws IOException {
+        out.writeUTF( geoRef.getOriginLocation().name() );
+        out.writeDouble( geoRef.getResolutionX() );
+        out.writeDouble( geoRef.getResolutionY() );
+        out.writeDouble( geoRef.getRotationX() );
+        out.writeDouble( geoRef.getRotationY() );
+        out.writeDouble( geoRef.getOriginEasting() );
+        out.writeDouble( geoRef.getOriginNorthing() );
+        ICRS crs = geoRef.getCrs();
+        out.writeUTF( crs == null ? "" : crs.getAlias() );
+    }
+
+    private static RasterGeoReference readGeoReference( DataInputStream in )
+                            throws IOException {
+        OriginLocation location = OriginLocation.valueOf( in.readUTF() );
+        double resX = in.readDouble();
+        double resY = in.readDouble();
+        double rotX = in.readDouble();
+        double rotY = in.readDouble();
+        double originX = in.readDouble();
+        double originY = in.readDouble();
+        String crs = in.readUTF();
+        return new RasterGeoReference( location, resX, resY, rotX, rotY, originX, originY,
+                                       crs.isEmpty() ? null : CRSManager.getCRSRef( crs ) );
+    }
+
+    private static void writeBytes( DataOutputStream out, byte[] bytes )
+                            throws IOException {
+        out.writeInt( bytes == null ? -1 : bytes.length );
+        if ( bytes != null ) {
+            out.write( bytes );
+        }
+    }
+
+    private static byte[] readBytes( DataInputStream in )
+                            throws IOException {
+        int length = in.readInt();
+        if ( length < 0 ) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully( bytes );
+        return bytes;
+    }
+
+    /**
+     * @param tile
+     *            number of the tile
+     * @return the raster file of the tile
+     */
+    File getTileFile( int tile ) {
+        int offset = table.getInt( tile * ENTRY_BYTES );
+        byte[] name = new byte[table.getInt( tile * ENTRY_BYTES + 4 )];
+        ByteBuffer buf = names.duplicate();
+        buf.position( offset );
+        buf.get( name );
+        File file = new File( new String( name, UTF8 ) );
+        return file.isAbsolute() ? file : new File( directory, file.getPath() );
+    }
+
+    @Override
+    public List<AbstractRaster> getTiles( Envelope env ) {
+        List<Long> tiles = tree.query( createEnvelope( env ) );
+        List<AbstractRaster> result = new ArrayList<AbstractRaster>( tiles.size() );
+        for ( Long tile : tiles ) {
+            try {
+                result.add( cache.get( tile.intValue(), loader ) );
+            } catch ( IOException e ) {
+                LOG.debug( "Raster file '{}' could not be loaded: '{}'.", getTileFile( tile.intValue() ),
+                           e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Envelope getEnvelope() {
+        return envelope;
+    }
+
+    @Override
+    public RasterDataInfo getRasterDataInfo() {
+        return rasterDataInfo;
+    }
+
+    @Override
+    public RasterGeoReference getRasterReference() {
+        return rasterGeoReference;
+    }
+
+    @Override
+    public ResolutionInfo getResolutionInfo() {
+        return resolutionInfo;
+    }
+
+    /**
+     * @return the number of tiles in the index
+     */
+    public int getNumberOfTiles() {
+        return numTiles;
+    }
+
+    /**
+     * @return the number of tiles currently kept in memory
+     */
+    public int getNumberOfCachedTiles() {
+        return cache.size();
+    }
+
+    /**
+     * @return the number of tiles evicted from memory so far
+     */
+    public long getNumberOfEvictedTiles() {
+        return cache.getEvictions();
+    }
+
+    /**
+     * Evicts all loaded tiles from memory.
+     */
+    public void clearCache() {
+        cache.clear();
+    }
+
+}
@@ -0,0 +1,213 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.container;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.deegree.coverage.raster.AbstractRaster;
+
+/**
+ * Size-bounded, thread-safe cache of tile handles, keyed by tile number.
+ * <p>
+ * The least recently used tile is evicted as soon as more than the maximum number of tiles are cached. A tile that is
+ * requested by several threads at once is only loaded once, the other threads wait for that load.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+class TileCache {
+
+    /**
+     * Loads a tile that is not cached.
+     */
+    interface TileLoader {
+
+        /**
+         * @param tile
+         *            number of the tile
+         * @return the tile, never <code>null</code>
+         * @throws IOException
+         */
+        AbstractRaster load( int tile )
+                                throws IOException;
+    }
+
+    private final int maxTiles;
+
+    private final Map<Integer, AbstractRaster> tiles;
+
+    private final ConcurrentHashMap<Integer, FutureTask<AbstractRaster>> pending = new ConcurrentHashMap<Integer, FutureTask<AbstractRaster>>();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxTiles
+     *            maximum number of cached tiles, must be positive
+     */
+    TileCache( final int maxTiles ) {
+        if ( maxTiles < 1 ) {
+            throw new IllegalArgumentException( "The maximum number of cached tiles must be positive." );
+        }
+        this.maxTiles = maxTiles;
+        this.tiles = new LinkedHashMap<Integer, AbstractRaster>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = 2318569254378913052L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<Integer, AbstractRaster> eldest ) {
+                if ( size() > maxTiles ) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached tile, or loads and caches it.
+     * 
+     * @param tile
+     *            number of the tile
+     * @param loader
+     *            used if the tile is not cached, must not be <code>null</code>
+     * @return the tile, never <code>null</code>
+     * @throws IOException
+     *             if loading the tile failed
+     */
+    AbstractRaster get( final int tile, final TileLoader loader )
+                            throws IOException {
+        AbstractRaster raster = getCached( tile );
+        if ( raster != null ) {
+            return raster;
+        }
+        FutureTask<AbstractRaster> task = new FutureTask<AbstractRaster>( new Callable<AbstractRaster>() {
+            @Override
+            public AbstractRaster call()
+                                    throws IOException {
+                // another thread may have finished loading in the meantime
+                AbstractRaster raster = getCached( tile );
+                if ( raster == null ) {
+                    raster = loader.load( tile );
+                    put( tile, raster );
+                }
+                return raster;
+            }
+        } );
+        FutureTask<AbstractRaster> running = pending.putIfAbsent( tile, task );
+        if ( running == null ) {
+            running = task;
+            task.run();
+        }
+        try {
+            return running.get();
+        } catch ( ExecutionException e ) {
+            if ( e.getCause() instanceof IOException ) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException( e.getCause() );
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while waiting for tile " + tile + "." );
+        } finally {
+            if ( running == task ) {
+                pending.remove( tile, task );
+            }
+        }
+    }
+
+    private AbstractRaster getCached( int tile ) {
+        synchronized ( tiles ) {
+            return tiles.get( tile );
+        }
+    }
+
+    /**
+     * Adds a tile, possibly evicting the least recently used one.
+     * 
+     * @param tile
+     *            number of the tile
+     * @param raster
+     *            the tile, must not be <code>null</code>
+     */
+    void put( int tile, AbstractRaster raster ) {
+        synchronized ( tiles ) {
+            tiles.put( tile, raster );
+        }
+    }
+
+    /**
+     * Evicts all tiles.
+     */
+    void clear() {
+        synchronized ( tiles ) {
+            evictions.addAndGet( tiles.size() );
+            tiles.clear();
+        }
+    }
+
+    /**
+     * @return the number of cached tiles
+     */
+    int size() {
+        synchronized ( tiles ) {
+            return tiles.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of cached tiles
+     */
+    int getMaxTiles() {
+        return maxTiles;
+    }
+
+    /**
+     * @return the number of tiles evicted so far
+     */
+    long getEvictions() {
+        return evictions.get();
+    }
+
+}
@@ -254,6 +254,48 @@ public class BufferAccess {
         }
     }
 
+    /**
+     * Reads a single pixel of the view from the reader, without instantiating the buffer. How much data is actually
+     * read depends on the reader: readers supporting windowed access only read the bytes (or the tile) containing the
+     * pixel, others (e.g. the XYZ reader) still parse the whole file.
+     * 
+     * @param x
+     *            x coordinate in the view
+     * @param y
+     *            y coordinate in the view
+     * @return the samples of all original bands of the pixel, or <code>null</code> if there is no reader, the pixel
+     *         is outside of the data or the reader could not (or does not support to) read it
+     */
+    byte[] readPixel( int x, int y ) {
+        int dataX = view.x + x;
+        int dataY = view.y + y;
+        if ( reader == null || dataX < maxViewData.x || dataY < maxViewData.y
+             || dataX >= maxViewData.x + maxViewData.width || dataY >= maxViewData.y + maxViewData.height ) {
+            return null;
+        }
+        byte[] pixel = new byte[dataInfo.bands * dataInfo.dataSize];
+        try {
+            BufferResult result = reader.read( new RasterRect( dataX, dataY, 1, 1 ),
+                                               ByteBufferPool.allocate( pixel.length, false ) );
+            if ( result == null || result.getRect().width != 1 || result.getRect().height != 1 ) {
+                return null;
+            }
+            // a single pixel has the same layout for all interleave types
+            ByteBuffer buffer = result.getResult();
+            for ( int i = 0; i < pixel.length; ++i ) {
+                pixel[i] = buffer.get( i );
+            }
+        } catch ( IOException e ) {
+            LOG.debug( "Pixel {},{} could not be read: {}", new Object[] { dataX, dataY, e.getLocalizedMessage() } );
+            return null;
+        } catch ( RuntimeException e ) {
+            // some readers do not support windowed reads at all (e.g. UnsupportedOperationException)
+            LOG.debug( "Pixel {},{} could not be read: {}", new Object[] { dataX, dataY, e.getLocalizedMessage() } );
+            return null;
+        }
+        return pixel;
+    }
+
     /**
      * Fills the entire buffer with no data values. Note this operation is only possible on writable buffers.
      */
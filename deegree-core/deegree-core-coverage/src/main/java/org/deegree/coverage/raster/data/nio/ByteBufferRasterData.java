@@ -73,6 +73,12 @@ import org.slf4j.Logger;
  * this feature you are able to create subsets without copying the data. Though the current deegree SimpleRaster
  * implementation makes no use of it.
  * 
+ * <p>
+ * The byte pixel and sample accessors use absolute buffer access and never move the position of the (shared) byte
+ * buffer. A relative bulk get after setting the position is not atomic, so threads reading the same raster could read
+ * each others pixels. With absolute access, several threads (e.g. of the parallel RasterTransformer) may read the
+ * raster and write disjoint pixels concurrently.
+ * 
  * @author <a href="mailto:tonnhofer@lat-lon.de">Oliver Tonnhofer</a>
  * @author last edited by: $Author$
  * 
@@ -617,6 +623,37 @@ public abstract class ByteBufferRasterData implements RasterData {
         // return data.getInt( calculatePos( x, y, band ) );
     }
 
+    /**
+     * Returns the pixel at the given position like {@link #getPixel(int, int, byte[])}. If the data was not loaded
+     * yet, only the pixel is read from the underlying reader, instead of loading all data of this raster.
+     * 
+     * @param x
+     *            column of the pixel
+     * @param y
+     *            row of the pixel
+     * @param result
+     *            will hold the result, may be <code>null</code>
+     * @return the pixel samples of the bands of the view, no data values if the pixel is outside of the data
+     */
+    public byte[] samplePixel( int x, int y, byte[] result ) {
+        if ( dataAccess.hasDataBuffer() || 0 > x || x >= getOriginalWidth() || 0 > y || y >= getOriginalHeight() ) {
+            return getPixel( x, y, result );
+        }
+        byte[] pixel = dataAccess.readPixel( x, y );
+        if ( pixel == null ) {
+            return getPixel( x, y, result );
+        }
+        int numBands = getView().dataInfo.bands;
+        int sampleSize = getView().dataInfo.dataSize;
+        if ( result == null || result.length < ( numBands * sampleSize ) ) {
+            result = new byte[numBands * sampleSize];
+        }
+        for ( int b = 0; b < numBands; b++ ) {
+            System.arraycopy( pixel, getView().getBandOffset( b ) * sampleSize, result, b * sampleSize, sampleSize );
+        }
+        return result;
+    }
+
     public byte[] getPixel( int x, int y, byte[] result ) {
         // operates on the getView().
         int numBands = getView().dataInfo.bands;
@@ -638,9 +675,11 @@ public abstract class ByteBufferRasterData implements RasterData {
             if ( pos == -1 ) {// the position is outside the databuffer.
                 System.arraycopy( getView().dataInfo.noDataPixel, b * sampleSize, result, b * sampleSize, sampleSize );
             } else {
+                // absolute access, the buffer position is shared by all threads reading this raster
                 ByteBuffer buf = getByteBuffer();
-                buf.position( pos );
-                buf.get( result, b * sampleSize, sampleSize );
+                for ( int i = 0; i < sampleSize; ++i ) {
+                    result[b * sampleSize + i] = buf.get( pos + i );
+                }
             }
         }
 
@@ -656,9 +695,11 @@ public abstract class ByteBufferRasterData implements RasterData {
             System.arraycopy( getView().dataInfo.noDataPixel, getView().getBandOffset( band ), result, 0,
                               getView().dataInfo.dataSize );
         } else {
+            // absolute access, the buffer position is shared by all threads reading this raster
             ByteBuffer buf = getByteBuffer();
-            buf.position( pos );
-            buf.get( result, 0, getView().dataInfo.dataSize );
+            for ( int i = 0; i < getView().dataInfo.dataSize; ++i ) {
+                result[i] = buf.get( pos + i );
+            }
         }
         return result;
     }
@@ -856,8 +897,11 @@ public abstract class ByteBufferRasterData implements RasterData {
             int sampleSize = getView().dataInfo.dataSize;
             ByteBuffer buf = getByteBuffer();
             for ( int b = 0; b < getView().dataInfo.bands; b++ ) {
-                buf.position( calculatePos( x, y, b ) );
-                buf.put( result, b * sampleSize, sampleSize );
+                // absolute access, so threads may write disjoint regions of the raster concurrently
+                int pos = calculatePos( x, y, b );
+                for ( int i = 0; i < sampleSize; ++i ) {
+                    buf.put( pos + i, result[b * sampleSize + i] );
+                }
             }
         }
     }
@@ -910,9 +954,12 @@ public abstract class ByteBufferRasterData implements RasterData {
         if ( value == null || value.length < getView().dataInfo.dataSize ) {
             return;
         }
+        // absolute access, so threads may write disjoint regions of the raster concurrently
         ByteBuffer buf = getByteBuffer();
-        buf.position( calculatePos( x, y, band ) );
-        buf.put( value, 0, getView().dataInfo.dataSize );
+        int pos = calculatePos( x, y, band );
+        for ( int i = 0; i < getView().dataInfo.dataSize; ++i ) {
+            buf.put( pos + i, value[i] );
+        }
     }
 
     public void setSubset( int x0, int y0, int width, int height, RasterData sourceRaster ) {
@@ -174,7 +174,8 @@ public class PixelInterleavedRasterData extends ByteBufferRasterData {
             super.setPixel( x, y, result );
             return;
         }
-        ByteBuffer data = getByteBuffer();
+        // duplicate, the position of the shared buffer must not be moved by concurrent writers
+        ByteBuffer data = getByteBuffer().duplicate();
         data.position( calculatePos( x, y ) );
         data.put( result, 0, dataInfo.noDataPixel.length );
     }
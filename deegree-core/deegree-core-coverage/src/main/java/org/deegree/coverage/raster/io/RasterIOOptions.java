@@ -39,8 +39,10 @@ import java.io.File;
 import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 import org.deegree.commons.utils.FileUtils;
 import org.deegree.coverage.raster.data.container.RasterDataContainerFactory;
@@ -120,6 +122,17 @@ public class RasterIOOptions implements Serializable {
      */
     public static final String ORIGIN_OF_RASTER = "raster_origin";
 
+    /**
+     * Set this key to <code>mapped</code> to index tiled raster directories with a memory-mapped tile index instead of
+     * a serialized one.
+     */
+    public static final String TILE_INDEX = "tile_index";
+
+    /**
+     * Maximum number of tiles a memory-mapped tile index keeps loaded, see {@link #TILE_INDEX}.
+     */
+    public static final String MAX_CACHED_TILES = "max_cached_tiles";
+
     private final Map<String, String> options = new HashMap<String, String>();
 
     private RasterGeoReference geoRef;
@@ -196,6 +209,13 @@ public class RasterIOOptions implements Serializable {
         return options.get( key );
     }
 
+    /**
+     * @return the keys of all options that are set, never <code>null</code>
+     */
+    public Set<String> getKeys() {
+        return Collections.unmodifiableSet( options.keySet() );
+    }
+
     /**
      * Return a RasterIOOption object with the format set according to the given file.
      * 
@@ -0,0 +1,119 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+
+/**
+ * Incremental counterpart of the {@link RasterWriter}. Instead of a fully materialized raster, implementations receive
+ * the rows of the result raster in consecutive strips (top to bottom) and write each strip to the output stream
+ * immediately, so only a single strip has to be kept in memory.
+ * <p>
+ * The life cycle of a strip writer is: one call to {@link #begin}, any number of calls to {@link #writeStrip} or
+ * {@link #writeNoDataRows} until all rows announced in {@link #begin} have been written, and finally one call to
+ * {@link #finish}. Instances are not thread safe and must not be reused.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public interface RasterStripWriter {
+
+    /**
+     * Starts writing a raster of the given size, i.e. writes the header information of the format.
+     * 
+     * @param geoRef
+     *            the geo reference of the complete raster, never <code>null</code>
+     * @param columns
+     *            number of columns of the complete raster
+     * @param rows
+     *            number of rows of the complete raster
+     * @param info
+     *            the data layout of the strips which will be written, never <code>null</code>
+     * @param out
+     *            the stream to write to, will not be closed
+     * @param options
+     *            additional information for the writer (separator, etc.), may be <code>null</code>
+     * @throws IOException
+     */
+    public void begin( RasterGeoReference geoRef, int columns, int rows, RasterDataInfo info, OutputStream out,
+                       RasterIOOptions options )
+                            throws IOException;
+
+    /**
+     * Writes all rows of the given strip. The strip must have the number of columns and the data layout given in
+     * {@link #begin}.
+     * 
+     * @param strip
+     *            the next rows of the raster
+     * @throws IOException
+     */
+    public void writeStrip( RasterData strip )
+                            throws IOException;
+
+    /**
+     * Writes the given number of rows filled with the no data value, e.g. for strips which do not intersect the source
+     * data at all.
+     * 
+     * @param rows
+     *            number of rows to write
+     * @throws IOException
+     */
+    public void writeNoDataRows( int rows )
+                            throws IOException;
+
+    /**
+     * Writes any trailing information and flushes the stream.
+     * 
+     * @throws IOException
+     *             if fewer rows than announced have been written
+     */
+    public void finish()
+                            throws IOException;
+
+    /**
+     * @param info
+     *            the data layout of the raster to write
+     * @return true if this writer supports rasters of the given layout
+     */
+    public boolean canWrite( RasterDataInfo info );
+
+}
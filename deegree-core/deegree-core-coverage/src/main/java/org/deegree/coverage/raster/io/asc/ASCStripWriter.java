@@ -0,0 +1,218 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.asc;
+
+import static org.deegree.coverage.raster.io.RasterIOOptions.OPT_TEXT_SEPARATOR;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+import org.deegree.cs.coordinatesystems.ICRS;
+
+/**
+ * {@link RasterStripWriter} for esri asc/grd text files, using the same layout as the {@link ASCWriter}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ASCStripWriter implements RasterStripWriter {
+
+    private BufferedWriter writer;
+
+    private String separator;
+
+    private DataType type;
+
+    private String noData;
+
+    private int columns;
+
+    private int remainingRows;
+
+    @Override
+    public boolean canWrite( RasterDataInfo info ) {
+        return info != null && info.bands == 1 && info.dataType != DataType.UNDEFINED;
+    }
+
+    @Override
+    public void begin( RasterGeoReference geoRef, int columns, int rows, RasterDataInfo info, OutputStream out,
+                       RasterIOOptions options )
+                            throws IOException {
+        if ( !canWrite( info ) ) {
+            throw new IOException( "The asc writer can only write rasters with one band." );
+        }
+        this.writer = new BufferedWriter( new OutputStreamWriter( out ) );
+        this.columns = columns;
+        this.remainingRows = rows;
+        this.type = info.dataType;
+        this.separator = options == null ? null : options.get( OPT_TEXT_SEPARATOR );
+        if ( separator == null ) {
+            separator = " ";
+        }
+
+        // convert to outer, because we iterate of x,y as whole values and not (0.5,0.5);
+        RasterGeoReference rasterReference = geoRef.createRelocatedReference( OriginLocation.OUTER );
+        double[] worldCoordinate = rasterReference.getWorldCoordinate( 0, rows );
+        int axis = 0;
+        int northing = 1;
+        ICRS crs = geoRef.getCrs();
+        if ( crs != null ) {
+            axis = crs.getEasting();
+            northing = crs.getNorthing();
+        }
+        writer.write( "ncols " + columns );
+        writer.newLine();
+        writer.write( "nrows " + rows );
+        writer.newLine();
+        writer.write( "xllcorner " + worldCoordinate[axis] );
+        writer.newLine();
+        writer.write( "yllcorner " + worldCoordinate[northing] );
+        writer.newLine();
+        writer.write( "cellsize " + rasterReference.getResolutionX() );
+        writer.newLine();
+        writer.write( "nodata_value " + info.getFloatNoDataForBand( 0 ) );
+        writer.newLine();
+        noData = getNoDataSample( info );
+    }
+
+    @Override
+    public void writeStrip( RasterData strip )
+                            throws IOException {
+        if ( strip.getColumns() != columns ) {
+            throw new IOException( "Strip has " + strip.getColumns() + " columns, expected " + columns );
+        }
+        int rows = strip.getRows();
+        checkRows( rows );
+        for ( int y = 0; y < rows; ++y ) {
+            writeRow( strip, y );
+            writer.newLine();
+        }
+        remainingRows -= rows;
+    }
+
+    @Override
+    public void writeNoDataRows( int rows )
+                            throws IOException {
+        checkRows( rows );
+        for ( int y = 0; y < rows; ++y ) {
+            for ( int i = 0; i < columns; ++i ) {
+                writer.write( noData );
+                if ( i + 1 < columns ) {
+                    writer.write( separator );
+                }
+            }
+            writer.newLine();
+        }
+        remainingRows -= rows;
+    }
+
+    @Override
+    public void finish()
+                            throws IOException {
+        writer.flush();
+        if ( remainingRows != 0 ) {
+            throw new IOException( "Raster is incomplete, " + remainingRows + " rows are missing." );
+        }
+        // don't close the stream.
+    }
+
+    private void checkRows( int rows )
+                            throws IOException {
+        if ( rows > remainingRows ) {
+            throw new IOException( "Too many rows written, only " + remainingRows + " rows left." );
+        }
+    }
+
+    private static String getNoDataSample( RasterDataInfo info ) {
+        switch ( info.dataType ) {
+        case BYTE:
+            return Integer.toString( 0xFF & info.getByteNoDataForBand( 0 ) );
+        case DOUBLE:
+            return Double.toString( info.getDoubleNoDataForBand( 0 ) );
+        case FLOAT:
+            return Float.toString( info.getFloatNoDataForBand( 0 ) );
+        case INT:
+            return Integer.toString( info.getIntNoDataForBand( 0 ) );
+        case SHORT:
+            return Integer.toString( info.getShortNoDataForBand( 0 ) );
+        case USHORT:
+            return Integer.toString( 0xFFFF & info.getShortNoDataForBand( 0 ) );
+        default:
+            throw new UnsupportedOperationException( "The asc writer does not know how to interpret your data." );
+        }
+    }
+
+    private void writeRow( RasterData data, int y )
+                            throws IOException {
+        for ( int i = 0; i < columns; ++i ) {
+            switch ( type ) {
+            case BYTE:
+                writer.write( Integer.toString( 0xFF & data.getByteSample( i, y, 0 ) ) );
+                break;
+            case DOUBLE:
+                writer.write( Double.toString( data.getDoubleSample( i, y, 0 ) ) );
+                break;
+            case FLOAT:
+                writer.write( Float.toString( data.getFloatSample( i, y, 0 ) ) );
+                break;
+            case INT:
+                writer.write( Integer.toString( data.getIntSample( i, y, 0 ) ) );
+                break;
+            case SHORT:
+                writer.write( Integer.toString( data.getShortSample( i, y, 0 ) ) );
+                break;
+            case USHORT:
+                writer.write( Integer.toString( 0xFFFF & data.getShortSample( i, y, 0 ) ) );
+                break;
+            case UNDEFINED:
+                throw new UnsupportedOperationException( "The asc writer does not know how to interpret your data." );
+            }
+            if ( i + 1 < columns ) {
+                writer.write( separator );
+            }
+        }
+    }
+
+}
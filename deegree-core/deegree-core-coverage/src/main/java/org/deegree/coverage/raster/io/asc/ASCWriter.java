@@ -296,6 +296,7 @@ public class ASCWriter implements RasterWriter {
                             throws IOException {
         BufferedWriter bw = new BufferedWriter( new OutputStreamWriter( out ) );
         write( raster, bw, options );
+        bw.flush();
         // don't close the stream.
     }
 }
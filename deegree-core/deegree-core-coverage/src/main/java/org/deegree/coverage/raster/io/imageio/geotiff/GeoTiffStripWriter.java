@@ -0,0 +1,511 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.imageio.geotiff;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+
+/**
+ * {@link RasterStripWriter} which writes uncompressed, striped (big endian) GeoTIFF files without using ImageIO. Because
+ * the data is not compressed, the offsets of all strips are known in advance, so the header and the image file
+ * directory are written first and the incoming rows are appended to the stream as they arrive. If the image data does
+ * not fit into a classic TIFF (4GB), a BigTIFF is written.
+ * <p>
+ * Following geotiff tags are exported: ModelPixelScale, ModelTiepoint and the GeoKeyDirectory (see
+ * {@link GeoTiffWriter}).
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class GeoTiffStripWriter implements RasterStripWriter {
+
+    /** approximate size of a single strip in the tiff file, as recommended by the tiff specification */
+    private static final int TIFF_STRIP_SIZE = 8192;
+
+    private static final int TYPE_ASCII = 2;
+
+    private static final int TYPE_SHORT = 3;
+
+    private static final int TYPE_LONG = 4;
+
+    private static final int TYPE_DOUBLE = 12;
+
+    private static final int TYPE_LONG8 = 16;
+
+    private static final int TAG_IMAGE_WIDTH = 256;
+
+    private static final int TAG_IMAGE_LENGTH = 257;
+
+    private static final int TAG_BITS_PER_SAMPLE = 258;
+
+    private static final int TAG_COMPRESSION = 259;
+
+    private static final int TAG_PHOTOMETRIC = 262;
+
+    private static final int TAG_STRIP_OFFSETS = 273;
+
+    private static final int TAG_SAMPLES_PER_PIXEL = 277;
+
+    private static final int TAG_ROWS_PER_STRIP = 278;
+
+    private static final int TAG_STRIP_BYTE_COUNTS = 279;
+
+    private static final int TAG_PLANAR_CONFIGURATION = 284;
+
+    private static final int TAG_EXTRA_SAMPLES = 338;
+
+    private static final int TAG_SAMPLE_FORMAT = 339;
+
+    private static final int TAG_MODEL_PIXEL_SCALE = 33550;
+
+    private static final int TAG_MODEL_TIE_POINT = 33922;
+
+    private static final int TAG_GEO_KEY_DIRECTORY = 34735;
+
+    private static final int TAG_GDAL_NODATA = 42113;
+
+    private DataOutputStream out;
+
+    private RasterDataInfo info;
+
+    private int columns;
+
+    private int rows;
+
+    private int writtenRows;
+
+    private byte[] rowBuffer;
+
+    private ByteBuffer rowView;
+
+    @Override
+    public boolean canWrite( RasterDataInfo info ) {
+        return info != null && info.bands > 0 && info.dataType != DataType.UNDEFINED;
+    }
+
+    @Override
+    public void begin( RasterGeoReference geoRef, int columns, int rows, RasterDataInfo info, OutputStream out,
+                       RasterIOOptions options )
+                            throws IOException {
+        if ( !canWrite( info ) ) {
+            throw new IOException( "The GeoTIFF strip writer can not write rasters of type " + info );
+        }
+        long rowSize = (long) columns * info.bands * info.dataSize;
+        if ( rowSize > Integer.MAX_VALUE ) {
+            throw new IOException( "A single row of the raster exceeds the maximum size of " + Integer.MAX_VALUE
+                                   + " bytes." );
+        }
+        this.out = new DataOutputStream( new BufferedOutputStream( out, 64 * 1024 ) );
+        this.info = info;
+        this.columns = columns;
+        this.rows = rows;
+        this.rowBuffer = new byte[(int) rowSize];
+        this.rowView = ByteBuffer.wrap( rowBuffer );
+
+        int rowsPerStrip = (int) Math.max( 1, Math.min( rows, TIFF_STRIP_SIZE / Math.max( 1, rowSize ) ) );
+        int strips = ( rows + rowsPerStrip - 1 ) / rowsPerStrip;
+        long imageSize = rowSize * rows;
+
+        List<Entry> entries = createEntries( geoRef, rowsPerStrip, strips, rowSize );
+        boolean bigTiff = imageSize + getHeaderSize( entries, false ) > 0xFFFFFFFFL;
+        long dataOffset = getHeaderSize( entries, bigTiff );
+
+        long[] offsets = new long[strips];
+        long[] byteCounts = new long[strips];
+        for ( int i = 0; i < strips; ++i ) {
+            offsets[i] = dataOffset + i * rowsPerStrip * rowSize;
+            byteCounts[i] = Math.min( rowsPerStrip, rows - (long) i * rowsPerStrip ) * rowSize;
+        }
+        for ( Entry e : entries ) {
+            if ( e.tag == TAG_STRIP_OFFSETS ) {
+                e.setLongs( offsets, bigTiff );
+            } else if ( e.tag == TAG_STRIP_BYTE_COUNTS ) {
+                e.setLongs( byteCounts, bigTiff );
+            }
+        }
+        writeHeader( entries, bigTiff );
+    }
+
+    @Override
+    public void writeStrip( RasterData strip )
+                            throws IOException {
+        if ( strip.getColumns() != columns ) {
+            throw new IOException( "Strip has " + strip.getColumns() + " columns, expected " + columns );
+        }
+        if ( strip.getBands() != info.bands || strip.getDataType() != info.dataType ) {
+            throw new IOException( "The data layout of the strip does not match the layout of the raster." );
+        }
+        int stripRows = strip.getRows();
+        checkRows( stripRows );
+        for ( int y = 0; y < stripRows; ++y ) {
+            fillRow( strip, y );
+            out.write( rowBuffer );
+        }
+        writtenRows += stripRows;
+    }
+
+    @Override
+    public void writeNoDataRows( int noDataRows )
+                            throws IOException {
+        checkRows( noDataRows );
+        byte[] noData = info.getNoDataPixel( (byte[]) null );
+        if ( noData.length != info.bands * info.dataSize ) {
+            throw new IOException( "The no data value does not match the data layout of the raster." );
+        }
+        for ( int i = 0; i < rowBuffer.length; i += noData.length ) {
+            System.arraycopy( noData, 0, rowBuffer, i, noData.length );
+        }
+        for ( int y = 0; y < noDataRows; ++y ) {
+            out.write( rowBuffer );
+        }
+        writtenRows += noDataRows;
+    }
+
+    @Override
+    public void finish()
+                            throws IOException {
+        out.flush();
+        if ( writtenRows != rows ) {
+            throw new IOException( "Raster is incomplete, " + ( rows - writtenRows ) + " rows are missing." );
+        }
+        // don't close the stream.
+    }
+
+    private void checkRows( int stripRows )
+                            throws IOException {
+        if ( writtenRows + stripRows > rows ) {
+            throw new IOException( "Too many rows written, only " + ( rows - writtenRows ) + " rows left." );
+        }
+    }
+
+    /**
+     * Copies the given row of the strip into the (pixel interleaved, big endian) row buffer.
+     */
+    private void fillRow( RasterData strip, int y ) {
+        int bands = info.bands;
+        int pixelStride = bands * info.dataSize;
+        for ( int b = 0; b < bands; ++b ) {
+            int pos = b * info.dataSize;
+            switch ( info.dataType ) {
+            case BYTE:
+                byte[] bytes = strip.getBytes( 0, y, columns, 1, b, null );
+                for ( int x = 0; x < columns; ++x, pos += pixelStride ) {
+                    rowBuffer[pos] = bytes[x];
+                }
+                break;
+            case SHORT:
+            case USHORT:
+                short[] shorts = strip.getShorts( 0, y, columns, 1, b, null );
+                for ( int x = 0; x < columns; ++x, pos += pixelStride ) {
+                    rowView.putShort( pos, shorts[x] );
+                }
+                break;
+            case INT:
+                int[] ints = strip.getInts( 0, y, columns, 1, b, null );
+                for ( int x = 0; x < columns; ++x, pos += pixelStride ) {
+                    rowView.putInt( pos, ints[x] );
+                }
+                break;
+            case FLOAT:
+                float[] floats = strip.getFloats( 0, y, columns, 1, b, null );
+                for ( int x = 0; x < columns; ++x, pos += pixelStride ) {
+                    rowView.putFloat( pos, floats[x] );
+                }
+                break;
+            case DOUBLE:
+                double[] doubles = strip.getDoubles( 0, y, columns, 1, b, null );
+                for ( int x = 0; x < columns; ++x, pos += pixelStride ) {
+                    rowView.putDouble( pos, doubles[x] );
+                }
+                break;
+            case UNDEFINED:
+                throw new UnsupportedOperationException( "The GeoTIFF writer does not know how to interpret your data." );
+            }
+        }
+    }
+
+    private List<Entry> createEntries( RasterGeoReference geoRef, int rowsPerStrip, int strips, long rowSize ) {
+        int bands = info.bands;
+        boolean rgb = info.dataType == DataType.BYTE && bands >= 3;
+
+        // entries must be sorted by their tag
+        List<Entry> entries = new ArrayList<Entry>();
+        entries.add( Entry.longs( TAG_IMAGE_WIDTH, columns ) );
+        entries.add( Entry.longs( TAG_IMAGE_LENGTH, rows ) );
+        entries.add( Entry.shorts( TAG_BITS_PER_SAMPLE, repeat( info.dataSize * 8, bands ) ) );
+        entries.add( Entry.shorts( TAG_COMPRESSION, 1 ) );
+        entries.add( Entry.shorts( TAG_PHOTOMETRIC, rgb ? 2 : 1 ) );
+        entries.add( new Entry( TAG_STRIP_OFFSETS, strips ) );
+        entries.add( Entry.shorts( TAG_SAMPLES_PER_PIXEL, bands ) );
+        entries.add( Entry.longs( TAG_ROWS_PER_STRIP, rowsPerStrip ) );
+        entries.add( new Entry( TAG_STRIP_BYTE_COUNTS, strips ) );
+        entries.add( Entry.shorts( TAG_PLANAR_CONFIGURATION, 1 ) );
+        int extraSamples = bands - ( rgb ? 3 : 1 );
+        if ( extraSamples > 0 ) {
+            int[] extra = new int[extraSamples];
+            // the fourth band of rgb rasters is the (unassociated) alpha channel, everything else is unspecified
+            extra[0] = ( rgb && bands == 4 ) ? 2 : 0;
+            entries.add( Entry.shorts( TAG_EXTRA_SAMPLES, extra ) );
+        }
+        entries.add( Entry.shorts( TAG_SAMPLE_FORMAT, repeat( getSampleFormat( info.dataType ), bands ) ) );
+        if ( geoRef != null ) {
+            entries.add( Entry.doubles( TAG_MODEL_PIXEL_SCALE, geoRef.getResolutionX(),
+                                        Math.abs( geoRef.getResolutionY() ), 0 ) );
+            entries.add( Entry.doubles( TAG_MODEL_TIE_POINT, 0, 0, 0, geoRef.getOriginEasting(),
+                                        geoRef.getOriginNorthing(), 0 ) );
+            char[] geoKeys = GeoTiffWriter.createGeoKeys( geoRef );
+            if ( geoKeys.length > 4 ) {
+                int[] keys = new int[geoKeys.length];
+                for ( int i = 0; i < keys.length; ++i ) {
+                    keys[i] = geoKeys[i];
+                }
+                entries.add( Entry.shorts( TAG_GEO_KEY_DIRECTORY, keys ) );
+            }
+        }
+        if ( bands == 1 ) {
+            entries.add( Entry.ascii( TAG_GDAL_NODATA, getNoDataString() ) );
+        }
+        return entries;
+    }
+
+    private String getNoDataString() {
+        switch ( info.dataType ) {
+        case BYTE:
+            return Integer.toString( 0xFF & info.getByteNoDataForBand( 0 ) );
+        case SHORT:
+            return Integer.toString( info.getShortNoDataForBand( 0 ) );
+        case USHORT:
+            return Integer.toString( 0xFFFF & info.getShortNoDataForBand( 0 ) );
+        case INT:
+            return Integer.toString( info.getIntNoDataForBand( 0 ) );
+        case FLOAT:
+            return Float.toString( info.getFloatNoDataForBand( 0 ) );
+        default:
+            return Double.toString( info.getDoubleNoDataForBand( 0 ) );
+        }
+    }
+
+    private static int getSampleFormat( DataType type ) {
+        switch ( type ) {
+        case SHORT:
+        case INT:
+            return 2;
+        case FLOAT:
+        case DOUBLE:
+            return 3;
+        default:
+            return 1;
+        }
+    }
+
+    private static int[] repeat( int value, int count ) {
+        int[] result = new int[count];
+        for ( int i = 0; i < count; ++i ) {
+            result[i] = value;
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of bytes of the tiff header, the image file directory and all values which are not stored
+     *         inline, i.e. the offset of the image data.
+     */
+    private static long getHeaderSize( List<Entry> entries, boolean bigTiff ) {
+        int inlineSize = bigTiff ? 8 : 4;
+        long size = bigTiff ? ( 16 + 8 + entries.size() * 20 + 8 ) : ( 8 + 2 + entries.size() * 12 + 4 );
+        for ( Entry e : entries ) {
+            long length = e.getLength( bigTiff );
+            if ( length > inlineSize ) {
+                size += length + ( length & 1 );
+            }
+        }
+        return size;
+    }
+
+    private void writeHeader( List<Entry> entries, boolean bigTiff )
+                            throws IOException {
+        int inlineSize = bigTiff ? 8 : 4;
+        // big endian
+        out.writeByte( 'M' );
+        out.writeByte( 'M' );
+        long valueOffset;
+        if ( bigTiff ) {
+            out.writeShort( 43 );
+            out.writeShort( 8 );
+            out.writeShort( 0 );
+            out.writeLong( 16 );
+            out.writeLong( entries.size() );
+            valueOffset = 16 + 8 + entries.size() * 20 + 8;
+        } else {
+            out.writeShort( 42 );
+            out.writeInt( 8 );
+            out.writeShort( entries.size() );
+            valueOffset = 8 + 2 + entries.size() * 12 + 4;
+        }
+        for ( Entry e : entries ) {
+            long length = e.getLength( bigTiff );
+            out.writeShort( e.tag );
+            out.writeShort( e.type );
+            if ( bigTiff ) {
+                out.writeLong( e.count );
+            } else {
+                out.writeInt( (int) e.count );
+            }
+            if ( length <= inlineSize ) {
+                out.write( e.values );
+                for ( long i = length; i < inlineSize; ++i ) {
+                    out.writeByte( 0 );
+                }
+            } else {
+                if ( bigTiff ) {
+                    out.writeLong( valueOffset );
+                } else {
+                    out.writeInt( (int) valueOffset );
+                }
+                valueOffset += length + ( length & 1 );
+            }
+        }
+        // no further image file directories
+        if ( bigTiff ) {
+            out.writeLong( 0 );
+        } else {
+            out.writeInt( 0 );
+        }
+        for ( Entry e : entries ) {
+            long length = e.getLength( bigTiff );
+            if ( length > inlineSize ) {
+                out.write( e.values );
+                if ( ( length & 1 ) != 0 ) {
+                    // values must begin on a word boundary
+                    out.writeByte( 0 );
+                }
+            }
+        }
+    }
+
+    /**
+     * A single entry of the image file directory, the values are already encoded (big endian).
+     */
+    private static class Entry {
+
+        final int tag;
+
+        final long count;
+
+        int type;
+
+        byte[] values;
+
+        Entry( int tag, long count ) {
+            this.tag = tag;
+            this.count = count;
+            // offsets and byte counts are filled in, when the layout of the file is known
+            this.type = TYPE_LONG;
+        }
+
+        static Entry shorts( int tag, int... values ) {
+            Entry e = new Entry( tag, values.length );
+            e.type = TYPE_SHORT;
+            ByteBuffer buffer = ByteBuffer.allocate( values.length * 2 );
+            for ( int v : values ) {
+                buffer.putShort( (short) v );
+            }
+            e.values = buffer.array();
+            return e;
+        }
+
+        static Entry longs( int tag, int value ) {
+            Entry e = new Entry( tag, 1 );
+            e.values = ByteBuffer.allocate( 4 ).putInt( value ).array();
+            return e;
+        }
+
+        static Entry doubles( int tag, double... values ) {
+            Entry e = new Entry( tag, values.length );
+            e.type = TYPE_DOUBLE;
+            ByteBuffer buffer = ByteBuffer.allocate( values.length * 8 );
+            for ( double v : values ) {
+                buffer.putDouble( v );
+            }
+            e.values = buffer.array();
+            return e;
+        }
+
+        static Entry ascii( int tag, String value ) {
+            byte[] chars = value.getBytes();
+            Entry e = new Entry( tag, chars.length + 1 );
+            e.type = TYPE_ASCII;
+            e.values = new byte[chars.length + 1];
+            System.arraycopy( chars, 0, e.values, 0, chars.length );
+            return e;
+        }
+
+        void setLongs( long[] longs, boolean bigTiff ) {
+            ByteBuffer buffer = ByteBuffer.allocate( longs.length * ( bigTiff ? 8 : 4 ) );
+            for ( long l : longs ) {
+                if ( bigTiff ) {
+                    buffer.putLong( l );
+                } else {
+                    buffer.putInt( (int) l );
+                }
+            }
+            type = bigTiff ? TYPE_LONG8 : TYPE_LONG;
+            values = buffer.array();
+        }
+
+        long getLength( boolean bigTiff ) {
+            if ( values == null ) {
+                // not yet filled offsets or byte counts
+                return count * ( bigTiff ? 8 : 4 );
+            }
+            return values.length;
+        }
+    }
+
+}
@@ -157,11 +157,7 @@ public class GeoTiffWriter {
      *         type.
      */
     private static TIFFField createDirectoryTag( RasterGeoReference geoRef ) {
-        Map<Integer, char[]> geoKeyDirectoryTag = new HashMap<Integer, char[]>();
-        addCRS( geoKeyDirectoryTag, geoRef.getCrs() );
-        addGTRasterTypeGeoKey( geoKeyDirectoryTag, geoRef.getOriginLocation() );
-        // space for the header and the keys.
-        char[] geoKeys = extractGeoKeys( geoKeyDirectoryTag );
+        char[] geoKeys = createGeoKeys( geoRef );
         if ( geoKeys.length > 4 ) {
             TIFFTag tag = GEO_TAG_SET.getTag( GeoTIFFTagSet.TAG_GEO_KEY_DIRECTORY );
             return new TIFFField( tag, TIFFTag.TIFF_SHORT, geoKeys.length, geoKeys );
@@ -169,6 +165,22 @@ public class GeoTiffWriter {
         return null;
     }
 
+    /**
+     * Creates the values of the geo key directory (header and keys) for the given geo reference, see
+     * {@link #createDirectoryTag(RasterGeoReference)}.
+     * 
+     * @param geoRef
+     *            to get the crs and the raster type from
+     * @return the header and the keys of the geo key directory, if no keys were added the array has a length of 4.
+     */
+    static char[] createGeoKeys( RasterGeoReference geoRef ) {
+        Map<Integer, char[]> geoKeyDirectoryTag = new HashMap<Integer, char[]>();
+        addCRS( geoKeyDirectoryTag, geoRef.getCrs() );
+        addGTRasterTypeGeoKey( geoKeyDirectoryTag, geoRef.getOriginLocation() );
+        // space for the header and the keys.
+        return extractGeoKeys( geoKeyDirectoryTag );
+    }
+
     /**
      * @param geoKeyDirectoryTag2
      * @param originLocation
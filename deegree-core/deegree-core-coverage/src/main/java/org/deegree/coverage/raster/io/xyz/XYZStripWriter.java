@@ -0,0 +1,197 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.io.xyz;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+
+/**
+ * {@link RasterStripWriter} for xyz text files. In contrast to the {@link XYZWriter}, which writes the points column by
+ * column, the points are written row by row (from top to bottom), which is the order the strips arrive in.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class XYZStripWriter implements RasterStripWriter {
+
+    private BufferedWriter writer;
+
+    private RasterGeoReference geoRef;
+
+    private String separator;
+
+    private DataType type;
+
+    private String noData;
+
+    private int columns;
+
+    private int rows;
+
+    private int currentRow;
+
+    @Override
+    public boolean canWrite( RasterDataInfo info ) {
+        return info != null && info.bands == 1 && info.dataType != DataType.UNDEFINED;
+    }
+
+    @Override
+    public void begin( RasterGeoReference geoRef, int columns, int rows, RasterDataInfo info, OutputStream out,
+                       RasterIOOptions options )
+                            throws IOException {
+        if ( !canWrite( info ) ) {
+            throw new IOException( "The xyz writer can only write rasters with one band." );
+        }
+        this.writer = new BufferedWriter( new OutputStreamWriter( out ) );
+        // same reference as the XYZWriter, so both writers create the same coordinates
+        this.geoRef = geoRef.createRelocatedReference( OriginLocation.CENTER );
+        this.columns = columns;
+        this.rows = rows;
+        this.type = info.dataType;
+        this.separator = options == null ? null : options.get( XYZRasterIOProvider.XYZ_SEPARATOR );
+        if ( separator == null ) {
+            separator = " ";
+        }
+        this.noData = getNoDataSample( info );
+    }
+
+    @Override
+    public void writeStrip( RasterData strip )
+                            throws IOException {
+        if ( strip.getColumns() != columns ) {
+            throw new IOException( "Strip has " + strip.getColumns() + " columns, expected " + columns );
+        }
+        int stripRows = strip.getRows();
+        checkRows( stripRows );
+        for ( int y = 0; y < stripRows; ++y ) {
+            for ( int x = 0; x < columns; ++x ) {
+                writeCoordinate( x, currentRow );
+                writer.write( getSample( strip, x, y ) );
+                writer.newLine();
+            }
+            ++currentRow;
+        }
+    }
+
+    @Override
+    public void writeNoDataRows( int noDataRows )
+                            throws IOException {
+        checkRows( noDataRows );
+        for ( int y = 0; y < noDataRows; ++y ) {
+            for ( int x = 0; x < columns; ++x ) {
+                writeCoordinate( x, currentRow );
+                writer.write( noData );
+                writer.newLine();
+            }
+            ++currentRow;
+        }
+    }
+
+    @Override
+    public void finish()
+                            throws IOException {
+        writer.flush();
+        if ( currentRow != rows ) {
+            throw new IOException( "Raster is incomplete, " + ( rows - currentRow ) + " rows are missing." );
+        }
+        // don't close the stream.
+    }
+
+    private void checkRows( int stripRows )
+                            throws IOException {
+        if ( currentRow + stripRows > rows ) {
+            throw new IOException( "Too many rows written, only " + ( rows - currentRow ) + " rows left." );
+        }
+    }
+
+    private void writeCoordinate( int x, int y )
+                            throws IOException {
+        double[] worldCoords = geoRef.getWorldCoordinate( x + 0.5, y + 0.5 );
+        writer.write( Double.toString( worldCoords[0] ) );
+        writer.write( separator );
+        writer.write( Double.toString( worldCoords[1] ) );
+        writer.write( separator );
+    }
+
+    private String getSample( RasterData data, int x, int y ) {
+        switch ( type ) {
+        case BYTE:
+            return Integer.toString( 0xFF & data.getByteSample( x, y, 0 ) );
+        case DOUBLE:
+            return Double.toString( data.getDoubleSample( x, y, 0 ) );
+        case FLOAT:
+            return Float.toString( data.getFloatSample( x, y, 0 ) );
+        case INT:
+            return Integer.toString( data.getIntSample( x, y, 0 ) );
+        case SHORT:
+            return Integer.toString( data.getShortSample( x, y, 0 ) );
+        case USHORT:
+            return Integer.toString( 0xFFFF & data.getShortSample( x, y, 0 ) );
+        default:
+            throw new UnsupportedOperationException( "The xyz writer does not know how to interpret your data." );
+        }
+    }
+
+    private static String getNoDataSample( RasterDataInfo info ) {
+        switch ( info.dataType ) {
+        case BYTE:
+            return Integer.toString( 0xFF & info.getByteNoDataForBand( 0 ) );
+        case DOUBLE:
+            return Double.toString( info.getDoubleNoDataForBand( 0 ) );
+        case FLOAT:
+            return Float.toString( info.getFloatNoDataForBand( 0 ) );
+        case INT:
+            return Integer.toString( info.getIntNoDataForBand( 0 ) );
+        case SHORT:
+            return Integer.toString( info.getShortNoDataForBand( 0 ) );
+        case USHORT:
+            return Integer.toString( 0xFFFF & info.getShortNoDataForBand( 0 ) );
+        default:
+            throw new UnsupportedOperationException( "The xyz writer does not know how to interpret your data." );
+        }
+    }
+
+}
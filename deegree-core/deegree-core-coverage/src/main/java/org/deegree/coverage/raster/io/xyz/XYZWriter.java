@@ -304,6 +304,7 @@ public class XYZWriter implements RasterWriter {
                             throws IOException {
         BufferedWriter bw = new BufferedWriter( new OutputStreamWriter( out ) );
         write( raster, bw, options );
+        bw.flush();
         // don't close the stream.
     }
 
@@ -37,12 +37,23 @@ package org.deegree.coverage.raster.utils;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import org.deegree.coverage.raster.AbstractRaster;
 import org.deegree.coverage.raster.RasterTransformer;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
 import org.deegree.coverage.raster.geom.Grid;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterRect;
 import org.deegree.coverage.raster.interpolation.InterpolationType;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.exceptions.TransformationException;
 import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryTransformer;
 import org.slf4j.Logger;
 
 /**
@@ -58,6 +69,9 @@ public class CoverageTransform {
 
     private static final Logger LOG = getLogger( CoverageTransform.class );
 
+    /** the (approximate) maximum number of bytes of a single strip of the result raster */
+    public static final int DEFAULT_STRIP_SIZE = 4 * 1024 * 1024;
+
     /**
      * Returns a subset of the raster, transformed into to SRS of the target envelope.
      * 
@@ -71,11 +85,33 @@ public class CoverageTransform {
      */
     public static AbstractRaster transform( AbstractRaster raster, Envelope env, Grid grid, String interpolation )
                             throws TransformationException {
+        return transform( raster, env, grid, interpolation, -1 );
+    }
+
+    /**
+     * Returns a subset of the raster, transformed into the SRS of the target envelope. The transformation may be
+     * approximated, see {@link RasterTransformer#setMaxApproximationError(double)}.
+     * 
+     * @param raster
+     * @param env
+     * @param grid
+     * @param interpolation
+     * @param maxApproximationError
+     *            the maximum error in source pixels, a value &lt;= 0 transforms exactly
+     * @return the transformation result
+     * @throws TransformationException
+     *             if the transformation fails
+     */
+    public static AbstractRaster transform( AbstractRaster raster, Envelope env, Grid grid, String interpolation,
+                                            double maxApproximationError )
+                            throws TransformationException {
         LOG.debug( "Transforming raster with envelope '{}' and grid '{}', interpolation method '{}'.",
                    new Object[] { env, grid, interpolation } );
         AbstractRaster result;
         try {
             RasterTransformer transf = new RasterTransformer( env.getCoordinateSystem() );
+            transf.setParallel( true );
+            transf.setMaxApproximationError( maxApproximationError );
             result = transf.transform( raster, env, grid.getWidth(), grid.getHeight(),
                                        InterpolationType.fromString( interpolation ) );
         } catch ( Exception e ) {
@@ -84,4 +120,87 @@ public class CoverageTransform {
         }
         return result;
     }
+
+    /**
+     * Transforms a subset of the raster into the SRS of the target envelope strip by strip and hands each strip to the
+     * given writer. In contrast to {@link #transform(AbstractRaster, Envelope, Grid, String)} the result raster is never
+     * materialized completely, only the source data and the result of a single strip is held in memory.
+     * 
+     * @param raster
+     *            the source raster
+     * @param env
+     *            the requested envelope (already in the target crs)
+     * @param grid
+     *            the size of the result raster
+     * @param interpolation
+     *            the interpolation method
+     * @param writer
+     *            to hand the strips to, the writer will be finished by this method
+     * @param out
+     *            the stream to write to, will not be closed
+     * @param options
+     *            for the writer, may be <code>null</code>
+     * @param stripSize
+     *            the maximum number of bytes of a single strip, at least one row is transformed at once
+     * @throws TransformationException
+     *             if the transformation of a strip fails (strips which do not intersect the source raster are written
+     *             as no data rows)
+     * @throws IOException
+     *             if writing the result fails
+     */
+    public static void transform( AbstractRaster raster, Envelope env, Grid grid, String interpolation,
+                                  RasterStripWriter writer, OutputStream out, RasterIOOptions options, int stripSize )
+                            throws TransformationException, IOException {
+        LOG.debug( "Transforming raster with envelope '{}' and grid '{}' in strips, interpolation method '{}'.",
+                   new Object[] { env, grid, interpolation } );
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        RasterDataInfo info = raster.getRasterDataInfo();
+        if ( info == null || !writer.canWrite( info ) ) {
+            throw new IOException( "The writer is not able to write rasters of type " + info );
+        }
+        RasterGeoReference dstRef = RasterGeoReference.create( raster.getRasterReference().getOriginLocation(), env,
+                                                               width, height );
+        int rowSize = Math.max( 1, width * info.bands * info.dataSize );
+        int stripRows = Math.max( 1, Math.min( height, stripSize / rowSize ) );
+        InterpolationType type = InterpolationType.fromString( interpolation );
+        RasterTransformer transf = new RasterTransformer( env.getCoordinateSystem() );
+        transf.setParallel( true );
+
+        Envelope srcEnv = raster.getEnvelope();
+        ICRS srcCrs = raster.getCoordinateSystem();
+        GeometryTransformer toSource = null;
+        if ( srcCrs != null && !srcCrs.equals( env.getCoordinateSystem() ) ) {
+            toSource = new GeometryTransformer( srcCrs );
+        }
+
+        writer.begin( dstRef, width, height, info, out, options );
+        boolean hasData = false;
+        for ( int y = 0; y < height; y += stripRows ) {
+            int rows = Math.min( stripRows, height - y );
+            Envelope stripEnv = dstRef.getEnvelope( new RasterRect( 0, y, width, rows ), env.getCoordinateSystem() );
+            if ( !overlaps( toSource == null ? stripEnv : toSource.transform( stripEnv ), srcEnv ) ) {
+                LOG.trace( "No source data for strip at row {}.", y );
+                writer.writeNoDataRows( rows );
+                continue;
+            }
+            AbstractRaster strip = transf.transform( raster, stripEnv, width, rows, type );
+            SimpleRaster simpleStrip = strip.getAsSimpleRaster();
+            if ( simpleStrip.getColumns() != width || simpleStrip.getRows() != rows ) {
+                throw new TransformationException( "Transformed strip has size " + simpleStrip.getColumns() + "x"
+                                                   + simpleStrip.getRows() + ", expected " + width + "x" + rows );
+            }
+            writer.writeStrip( simpleStrip.getReadOnlyRasterData() );
+            hasData = true;
+        }
+        writer.finish();
+        if ( !hasData ) {
+            LOG.debug( "No source data found for envelope '{}', the result contains no data values only.", env );
+        }
+    }
+
+    private static boolean overlaps( Envelope env, Envelope other ) {
+        return env.getMax().get0() > other.getMin().get0() && env.getMin().get0() < other.getMax().get0()
+               && env.getMax().get1() > other.getMin().get1() && env.getMin().get1() < other.getMax().get1();
+    }
 }
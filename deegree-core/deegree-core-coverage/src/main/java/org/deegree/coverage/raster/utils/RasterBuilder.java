@@ -56,6 +56,8 @@ import org.deegree.coverage.raster.TiledRaster;
 import org.deegree.coverage.raster.container.DiskBasedTileContainer;
 import org.deegree.coverage.raster.container.GriddedBlobTileContainer;
 import org.deegree.coverage.raster.container.IndexedMemoryTileContainer;
+import org.deegree.coverage.raster.container.MappedTileContainer;
+import org.deegree.coverage.raster.container.TileContainer;
 import org.deegree.coverage.raster.data.info.DataType;
 import org.deegree.coverage.raster.data.info.RasterDataInfo;
 import org.deegree.coverage.raster.geom.RasterGeoReference;
@@ -269,7 +271,8 @@ public class RasterBuilder {
      *         the given extension.
      */
     private static AbstractRaster buildTiledRaster( File directory, boolean recursive, RasterIOOptions options ) {
-        File indexFile = new File( directory, "deegree-pyramid.idx" );
+        boolean mapped = MappedTileContainer.isRequested( options );
+        File indexFile = new File( directory, mapped ? MappedTileContainer.INDEX_FILE : "deegree-pyramid.idx" );
         if ( !indexFile.exists() || indexFile.lastModified() < directory.lastModified() ) {
             LOG.info( "Scanning for files in directory: {}", directory.getAbsolutePath() );
             List<File> coverageFiles = FileUtils.findFilesForExtensions( directory, recursive,
@@ -315,8 +318,22 @@ public class RasterBuilder {
                     QTreeInfo inf = buildTiledRaster( coverageFiles, rasters, opts );
                     Envelope domain = inf.envelope;
 
-                    DiskBasedTileContainer container = new DiskBasedTileContainer( inf, coverageFiles, rasters, opts );
-                    container.export( indexFile );
+                    TileContainer container = null;
+                    if ( mapped ) {
+                        try {
+                            container = MappedTileContainer.create( indexFile, inf, coverageFiles, rasters, opts,
+                                                                    MappedTileContainer.getMaxCachedTiles( opts ) );
+                        } catch ( IOException e ) {
+                            LOG.warn( "Tile index {} could not be written: {}", indexFile, e.getLocalizedMessage() );
+                            LOG.trace( "Stack trace:", e );
+                            container = new DiskBasedTileContainer( inf, coverageFiles, rasters, opts );
+                        }
+                    } else {
+                        DiskBasedTileContainer diskContainer = new DiskBasedTileContainer( inf, coverageFiles,
+                                                                                           rasters, opts );
+                        diskContainer.export( indexFile );
+                        container = diskContainer;
+                    }
                     // if ( rasters.size() > 1000 ) {
                     // container = new IndexedMemoryTileContainer( domain, inf.rasterGeoReference, inf.numberOfObjects
                     // );
@@ -333,10 +350,23 @@ public class RasterBuilder {
             return raster;
         }
 
-        DiskBasedTileContainer container = new DiskBasedTileContainer( indexFile );
-        if ( !container.isInitialized() ) {
-            indexFile.delete();
-            return buildTiledRaster( directory, recursive, options );
+        TileContainer container;
+        if ( mapped ) {
+            try {
+                container = MappedTileContainer.open( indexFile, MappedTileContainer.getMaxCachedTiles( options ) );
+            } catch ( IOException e ) {
+                LOG.debug( "Tile index {} could not be opened, rebuilding it: {}", indexFile, e.getLocalizedMessage() );
+                LOG.trace( "Stack trace:", e );
+                indexFile.delete();
+                return buildTiledRaster( directory, recursive, options );
+            }
+        } else {
+            DiskBasedTileContainer diskContainer = new DiskBasedTileContainer( indexFile );
+            if ( !diskContainer.isInitialized() ) {
+                indexFile.delete();
+                return buildTiledRaster( directory, recursive, options );
+            }
+            container = diskContainer;
         }
         AbstractRaster raster = new TiledRaster( container, null );
         raster.setCoordinateSystem( container.getRasterReference().getCrs() );
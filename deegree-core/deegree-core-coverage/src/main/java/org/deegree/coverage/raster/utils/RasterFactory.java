@@ -81,7 +81,11 @@ import org.deegree.coverage.raster.geom.RasterRect;
 import org.deegree.coverage.raster.io.RasterIOOptions;
 import org.deegree.coverage.raster.io.RasterIOProvider;
 import org.deegree.coverage.raster.io.RasterReader;
+import org.deegree.coverage.raster.io.RasterStripWriter;
 import org.deegree.coverage.raster.io.RasterWriter;
+import org.deegree.coverage.raster.io.asc.ASCStripWriter;
+import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffStripWriter;
+import org.deegree.coverage.raster.io.xyz.XYZStripWriter;
 import org.deegree.geometry.Envelope;
 import org.deegree.workspace.ResourceMetadata;
 import org.slf4j.Logger;
@@ -223,6 +227,30 @@ public class RasterFactory {
         writer.write( raster, out, options );
     }
 
+    /**
+     * Returns a writer which is able to write rasters of the given format strip by strip.
+     * 
+     * @param format
+     *            the output format (tiff, geotiff, asc, grd or xyz)
+     * @return a new {@link RasterStripWriter} or <code>null</code> if the format can not be written incrementally
+     */
+    public static RasterStripWriter getRasterStripWriter( String format ) {
+        if ( format == null ) {
+            return null;
+        }
+        String f = format.toLowerCase();
+        if ( "tiff".equals( f ) || "tif".equals( f ) || "geotiff".equals( f ) || "image/tiff".equals( f ) ) {
+            return new GeoTiffStripWriter();
+        }
+        if ( "asc".equals( f ) || "grd".equals( f ) ) {
+            return new ASCStripWriter();
+        }
+        if ( "xyz".equals( f ) ) {
+            return new XYZStripWriter();
+        }
+        return null;
+    }
+
     private static ServiceLoader<RasterIOProvider> getRasterIOLoader() {
         return ServiceLoader.load( RasterIOProvider.class );
     }
@@ -0,0 +1,229 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.deegree.coverage.raster.utils.CoverageTransform.transform;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.deegree.coverage.raster.container.MemoryTileContainer;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+import org.deegree.coverage.raster.geom.Grid;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the point sampling of {@link SimpleRaster} and {@link TiledRaster}, see
+ * {@link AbstractRaster#samplePixel(double, double, byte[])} and {@link AbstractRaster#samplePixels(double[])}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RasterSamplingTest {
+
+    private static final int COLUMNS = 20;
+
+    private static final int ROWS = 16;
+
+    private static final double RES = 10;
+
+    private static final double MIN_X = 420000;
+
+    private static final double MIN_Y = 4500000;
+
+    private static final byte[] NO_DATA = new byte[] { 9, 9, 9 };
+
+    private static final RasterDataInfo INFO = new RasterDataInfo( NO_DATA, new BandType[] { BandType.RED,
+                                                                                            BandType.GREEN,
+                                                                                            BandType.BLUE },
+                                                                   DataType.BYTE, InterleaveType.PIXEL );
+
+    private static final GeometryFactory FAC = new GeometryFactory();
+
+    private static ICRS crs;
+
+    private static SimpleRaster simple;
+
+    private static TiledRaster tiled;
+
+    /**
+     * Creates a simple raster and a tiled raster (2x2 tiles) with the same content.
+     */
+    @BeforeClass
+    public static void init() {
+        crs = CRSManager.getCRSRef( "epsg:26912" );
+        simple = createRaster( 0, 0, COLUMNS, ROWS );
+        int halfCols = COLUMNS / 2;
+        int halfRows = ROWS / 2;
+        MemoryTileContainer tiles = new MemoryTileContainer();
+        tiles.addTile( createRaster( 0, 0, halfCols, halfRows ) );
+        tiles.addTile( createRaster( halfCols, 0, halfCols, halfRows ) );
+        tiles.addTile( createRaster( 0, halfRows, halfCols, halfRows ) );
+        tiles.addTile( createRaster( halfCols, halfRows, halfCols, halfRows ) );
+        tiled = new TiledRaster( tiles, null );
+    }
+
+    @Test
+    public void testSimpleRasterSamplePixel() {
+        assertArrayEquals( expected( 0, 0 ), simple.samplePixel( worldX( 0 ), worldY( 0 ), null ) );
+        assertArrayEquals( expected( 13, 5 ), simple.samplePixel( worldX( 13 ), worldY( 5 ), null ) );
+        assertArrayEquals( expected( COLUMNS - 1, ROWS - 1 ),
+                           simple.samplePixel( worldX( COLUMNS - 1 ), worldY( ROWS - 1 ), new byte[3] ) );
+    }
+
+    @Test
+    public void testSimpleRasterSamplePixelOutside() {
+        assertNull( simple.samplePixel( MIN_X - 1, worldY( 0 ), null ) );
+        assertNull( simple.samplePixel( worldX( 0 ), MIN_Y - 1, null ) );
+        assertNull( simple.samplePixel( MIN_X + COLUMNS * RES + 1, worldY( 0 ), null ) );
+        assertNull( simple.samplePixel( worldX( 0 ), MIN_Y + ROWS * RES + 1, null ) );
+    }
+
+    @Test
+    public void testSimpleRasterSamplePixelOfBandSubset() {
+        SimpleRaster blue = simple.getSubRaster( simple.getEnvelope(), new BandType[] { BandType.BLUE } );
+        byte[] pixel = blue.samplePixel( worldX( 7 ), worldY( 3 ), null );
+        assertEquals( 1, pixel.length );
+        assertEquals( expected( 7, 3 )[2], pixel[0] );
+    }
+
+    @Test
+    public void testSimpleRasterSamplePixelOfSubRaster() {
+        Envelope env = FAC.createEnvelope( MIN_X + 5 * RES, MIN_Y + 2 * RES, MIN_X + 12 * RES, MIN_Y + 9 * RES, crs );
+        SimpleRaster sub = simple.getSubRaster( env );
+        assertArrayEquals( expected( 6, 10 ), sub.samplePixel( worldX( 6 ), worldY( 10 ), null ) );
+        assertNull( sub.samplePixel( worldX( 2 ), worldY( 10 ), null ) );
+    }
+
+    @Test
+    public void testTiledRasterSamplePixel() {
+        for ( int row = 0; row < ROWS; row += 3 ) {
+            for ( int col = 0; col < COLUMNS; col += 3 ) {
+                assertArrayEquals( "pixel " + col + "," + row, expected( col, row ),
+                                   tiled.samplePixel( worldX( col ), worldY( row ), null ) );
+            }
+        }
+        assertNull( tiled.samplePixel( MIN_X - 1, worldY( 0 ), null ) );
+        assertNull( tiled.samplePixel( worldX( 0 ), MIN_Y + ROWS * RES + 1, null ) );
+    }
+
+    @Test
+    public void testSamplePixelsNoData() {
+        double[] coords = new double[] { worldX( 2 ), worldY( 4 ), MIN_X - 1, MIN_Y - 1, worldX( 15 ), worldY( 12 ) };
+        RasterData simpleData = simple.samplePixels( coords );
+        RasterData tiledData = tiled.samplePixels( coords );
+        assertEquals( 3, simpleData.getColumns() );
+        assertEquals( 1, simpleData.getRows() );
+        assertArrayEquals( expected( 2, 4 ), simpleData.getPixel( 0, 0, null ) );
+        assertArrayEquals( NO_DATA, simpleData.getPixel( 1, 0, null ) );
+        assertArrayEquals( expected( 15, 12 ), simpleData.getPixel( 2, 0, null ) );
+        for ( int i = 0; i < 3; ++i ) {
+            assertArrayEquals( simpleData.getPixel( i, 0, null ), tiledData.getPixel( i, 0, null ) );
+        }
+    }
+
+    /**
+     * Sampling the center of a click box must yield the same value as the former nearest neighbour transformation of
+     * the box to a 1x1 raster.
+     */
+    @Test
+    public void testSamplePixelEqualsNearestNeighbourTransform()
+                            throws Exception {
+        for ( int row = 1; row < ROWS; row += 4 ) {
+            for ( int col = 1; col < COLUMNS; col += 4 ) {
+                double x = worldX( col );
+                double y = worldY( row );
+                Envelope bbox = FAC.createEnvelope( x - RES / 2, y - RES / 2, x + RES / 2, y + RES / 2, crs );
+                for ( AbstractRaster raster : new AbstractRaster[] { simple, tiled } ) {
+                    Grid grid = Grid.fromSize( 1, 1, MAX_VALUE, bbox );
+                    SimpleRaster old = transform( raster, bbox, grid, "NEAREST_NEIGHBOR" ).getAsSimpleRaster();
+                    assertArrayEquals( "pixel " + col + "," + row, old.getRasterData().getPixel( 0, 0, null ),
+                                       raster.samplePixel( x, y, null ) );
+                }
+            }
+        }
+    }
+
+    private static SimpleRaster createRaster( int minCol, int minRow, int columns, int rows ) {
+        PixelInterleavedRasterData data = new PixelInterleavedRasterData( new RasterRect( 0, 0, columns, rows ),
+                                                                          columns, rows, INFO );
+        for ( int y = 0; y < rows; ++y ) {
+            for ( int x = 0; x < columns; ++x ) {
+                data.setPixel( x, y, expected( minCol + x, minRow + y ) );
+            }
+        }
+        // row 0 is the upper row of the raster
+        double maxY = MIN_Y + ( ROWS - minRow ) * RES;
+        Envelope env = FAC.createEnvelope( MIN_X + minCol * RES, maxY - rows * RES, MIN_X + ( minCol + columns ) * RES,
+                                           maxY, crs );
+        return new SimpleRaster( data, env, RasterGeoReference.create( OriginLocation.OUTER, env, columns, rows ),
+                                 null );
+    }
+
+    /**
+     * @return a world x coordinate inside of the given column (not at the pixel center, nor at its border)
+     */
+    private static double worldX( int column ) {
+        return MIN_X + ( column + 0.33 ) * RES;
+    }
+
+    /**
+     * @return a world y coordinate inside of the given row (not at the pixel center, nor at its border)
+     */
+    private static double worldY( int row ) {
+        return MIN_Y + ( ROWS - row - 0.33 ) * RES;
+    }
+
+    private static byte[] expected( int column, int row ) {
+        int index = row * COLUMNS + column;
+        return new byte[] { (byte) index, (byte) ( index >> 8 ), (byte) ( 3 * index + 1 ) };
+    }
+
+}
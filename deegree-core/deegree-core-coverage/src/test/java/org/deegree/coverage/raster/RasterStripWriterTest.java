@@ -0,0 +1,213 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+import org.deegree.coverage.raster.geom.Grid;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+import org.deegree.coverage.raster.io.asc.ASCStripWriter;
+import org.deegree.coverage.raster.io.imageio.geotiff.GeoTiffStripWriter;
+import org.deegree.coverage.raster.utils.CoverageTransform;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.Test;
+
+/**
+ * Tests the {@link RasterStripWriter} implementations against the results of the {@link RasterFactory}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RasterStripWriterTest {
+
+    private static final int WIDTH = 7;
+
+    private static final int HEIGHT = 5;
+
+    private static final float NO_DATA = -1f;
+
+    private final RasterDataInfo info = new RasterDataInfo( ByteBuffer.allocate( 4 ).putFloat( NO_DATA ).array(),
+                                                            new BandType[] { BandType.BAND_0 }, DataType.FLOAT,
+                                                            InterleaveType.PIXEL );
+
+    private final Envelope env = new GeometryFactory().createEnvelope( 1000, 2000, 1070, 2050,
+                                                                       CRSManager.getCRSRef( "epsg:26912" ) );
+
+    private final RasterGeoReference ref = RasterGeoReference.create( OriginLocation.OUTER, env, WIDTH, HEIGHT );
+
+    /**
+     * Writes two strips and a row of no data values and reads the resulting tiff.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testGeoTiffStrips()
+                            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterStripWriter writer = new GeoTiffStripWriter();
+        writer.begin( ref, WIDTH, HEIGHT, info, out, null );
+        writer.writeStrip( createStrip( 0, 2 ) );
+        writer.writeNoDataRows( 1 );
+        writer.writeStrip( createStrip( 3, 2 ) );
+        writer.finish();
+
+        RasterIOOptions options = new RasterIOOptions();
+        options.add( RasterIOOptions.OPT_FORMAT, "tiff" );
+        AbstractRaster raster = RasterFactory.loadRasterFromStream( new ByteArrayInputStream( out.toByteArray() ),
+                                                                    options );
+        RasterData data = raster.getAsSimpleRaster().getRasterData();
+        assertEquals( WIDTH, data.getColumns() );
+        assertEquals( HEIGHT, data.getRows() );
+        for ( int y = 0; y < HEIGHT; ++y ) {
+            for ( int x = 0; x < WIDTH; ++x ) {
+                float expected = y == 2 ? NO_DATA : getValue( x, y );
+                assertEquals( expected, data.getFloatSample( x, y, 0 ), 0 );
+            }
+        }
+    }
+
+    /**
+     * The strip writer must create the same asc file as the {@link RasterFactory}.
+     * 
+     * @throws IOException
+     */
+    @Test
+    public void testASCStrips()
+                            throws IOException {
+        RasterIOOptions options = new RasterIOOptions();
+        options.add( RasterIOOptions.OPT_FORMAT, "asc" );
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        SimpleRaster raster = new SimpleRaster( createStrip( 0, HEIGHT ), env, ref, null );
+        RasterFactory.saveRasterToStream( raster, expected, options );
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        RasterStripWriter writer = new ASCStripWriter();
+        writer.begin( ref, WIDTH, HEIGHT, info, out, options );
+        writer.writeStrip( createStrip( 0, 3 ) );
+        writer.writeStrip( createStrip( 3, 2 ) );
+        writer.finish();
+
+        assertEquals( new String( expected.toByteArray() ), new String( out.toByteArray() ) );
+    }
+
+    /**
+     * Too few rows must be reported when finishing.
+     * 
+     * @throws IOException
+     */
+    @Test(expected = IOException.class)
+    public void testIncompleteRaster()
+                            throws IOException {
+        RasterStripWriter writer = new GeoTiffStripWriter();
+        writer.begin( ref, WIDTH, HEIGHT, info, new ByteArrayOutputStream(), null );
+        writer.writeStrip( createStrip( 0, 2 ) );
+        writer.finish();
+    }
+
+    /**
+     * Strips outside of the source raster are written as no data rows, the others are transformed.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testTransformStripsOutsideSource()
+                            throws Exception {
+        SimpleRaster raster = new SimpleRaster( createStrip( 0, HEIGHT ), env, ref, null );
+        // twice the height of the source, the upper half does not intersect it
+        Envelope request = new GeometryFactory().createEnvelope( 1000, 2000, 1070, 2100, env.getCoordinateSystem() );
+        final List<Object> rows = new ArrayList<Object>();
+        RasterStripWriter writer = new ASCStripWriter() {
+            @Override
+            public void writeStrip( RasterData strip )
+                                    throws IOException {
+                rows.add( strip.getFloatSample( 0, 0, 0 ) );
+                super.writeStrip( strip );
+            }
+
+            @Override
+            public void writeNoDataRows( int count )
+                                    throws IOException {
+                rows.add( null );
+                super.writeNoDataRows( count );
+            }
+        };
+        CoverageTransform.transform( raster, request, Grid.fromSize( WIDTH, 2 * HEIGHT, Integer.MAX_VALUE, request ),
+                                     "NEAREST_NEIGHBOR", writer, new ByteArrayOutputStream(), null, WIDTH * 4 );
+
+        assertEquals( 2 * HEIGHT, rows.size() );
+        for ( int y = 0; y < HEIGHT; ++y ) {
+            assertNull( rows.get( y ) );
+            assertEquals( getValue( 0, y ), (Float) rows.get( HEIGHT + y ), 0 );
+        }
+    }
+
+    private RasterData createStrip( int firstRow, int rows ) {
+        PixelInterleavedRasterData data = new PixelInterleavedRasterData( new RasterRect( 0, 0, WIDTH, rows ), WIDTH,
+                                                                          rows, info );
+        for ( int y = 0; y < rows; ++y ) {
+            for ( int x = 0; x < WIDTH; ++x ) {
+                data.setFloatSample( x, y, 0, getValue( x, firstRow + y ) );
+            }
+        }
+        return data;
+    }
+
+    private static float getValue( int x, int y ) {
+        return y * 10 + x + 0.5f;
+    }
+
+}
@@ -0,0 +1,161 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster;
+
+import static org.deegree.coverage.raster.interpolation.InterpolationType.BILINEAR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the serial and the parallel transformation of the {@link RasterTransformer}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RasterTransformerTest {
+
+    private static final int SIZE = 400;
+
+    private static SimpleRaster source;
+
+    private static Envelope dstEnvelope;
+
+    /**
+     * Creates a float raster in utm (zone 12) with a gradient.
+     */
+    @BeforeClass
+    public static void init() {
+        RasterDataInfo info = new RasterDataInfo( new BandType[] { BandType.BAND_0 }, DataType.FLOAT,
+                                                  InterleaveType.PIXEL );
+        PixelInterleavedRasterData data = new PixelInterleavedRasterData( new RasterRect( 0, 0, SIZE, SIZE ), SIZE,
+                                                                          SIZE, info );
+        for ( int y = 0; y < SIZE; ++y ) {
+            for ( int x = 0; x < SIZE; ++x ) {
+                data.setFloatSample( x, y, 0, x * 0.25f + y * 1.5f );
+            }
+        }
+        GeometryFactory fac = new GeometryFactory();
+        Envelope env = fac.createEnvelope( 420000, 4500000, 440000, 4520000, CRSManager.getCRSRef( "epsg:26912" ) );
+        source = new SimpleRaster( data, env, RasterGeoReference.create( OriginLocation.OUTER, env, SIZE, SIZE ),
+                                   null );
+        dstEnvelope = fac.createEnvelope( -111.9, 40.7, -111.7, 40.85, CRSManager.getCRSRef( "epsg:4326" ) );
+    }
+
+    /**
+     * The parallel transformation must create exactly the same raster as the serial one.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testParallelIsIdentical()
+                            throws Exception {
+        RasterData serial = transform( false, -1 );
+        RasterData parallel = transform( true, -1 );
+        assertIdentical( serial, parallel );
+    }
+
+    /**
+     * The parallel transformation with an approximation grid must create exactly the same raster as the serial one.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testApproximationGridParallelIsIdentical()
+                            throws Exception {
+        RasterData serial = transform( false, 0.1 );
+        RasterData parallel = transform( true, 0.1 );
+        assertIdentical( serial, parallel );
+    }
+
+    /**
+     * The approximation grid must not deviate noticeably from the global polynomial for a smooth transformation.
+     * 
+     * @throws Exception
+     */
+    @Test
+    public void testApproximationGridIsClose()
+                            throws Exception {
+        RasterData global = transform( false, -1 );
+        RasterData approximated = transform( false, 0.1 );
+        int different = 0;
+        for ( int y = 0; y < global.getRows(); ++y ) {
+            for ( int x = 0; x < global.getColumns(); ++x ) {
+                // neighbouring pixels differ by at most 1.75, a sub pixel error must be less than that
+                if ( Math.abs( global.getFloatSample( x, y, 0 ) - approximated.getFloatSample( x, y, 0 ) ) > 1.75f ) {
+                    ++different;
+                }
+            }
+        }
+        assertTrue( different < global.getColumns() * global.getRows() / 100 );
+    }
+
+    private static RasterData transform( boolean parallel, double maxError )
+                            throws Exception {
+        RasterTransformer transformer = new RasterTransformer( dstEnvelope.getCoordinateSystem() );
+        transformer.setParallel( parallel );
+        transformer.setMaxApproximationError( maxError );
+        AbstractRaster result = transformer.transform( source, dstEnvelope, 512, 384, BILINEAR );
+        return result.getAsSimpleRaster().getRasterData();
+    }
+
+    private static void assertIdentical( RasterData expected, RasterData actual ) {
+        assertEquals( expected.getColumns(), actual.getColumns() );
+        assertEquals( expected.getRows(), actual.getRows() );
+        for ( int y = 0; y < expected.getRows(); ++y ) {
+            for ( int x = 0; x < expected.getColumns(); ++x ) {
+                int e = Float.floatToRawIntBits( expected.getFloatSample( x, y, 0 ) );
+                int a = Float.floatToRawIntBits( actual.getFloatSample( x, y, 0 ) );
+                assertEquals( "pixel " + x + "," + y, e, a );
+            }
+        }
+    }
+
+}
@@ -401,6 +401,46 @@ public class TestRasterCache {
 
     }
 
+    /**
+     * Test the concurrent cache manager, eviction must keep the memory below the maximum and the counters must reflect
+     * the requests.
+     * 
+     * @throws IOException
+     * @throws URISyntaxException
+     */
+    @Test
+    public void testConcurrentManager()
+                            throws IOException, URISyntaxException {
+        System.setProperty( RasterCache.DEF_RASTER_CACHE_MANAGER, "concurrent" );
+        try {
+            setRasterCache();
+            TiledRaster tR = buildTiledRaster( OriginLocation.CENTER );
+            AbstractRaster raster = buildRaster( OriginLocation.CENTER, "overview.png", "png", "epsg:26912" );
+
+            tR.getSubRaster( tR.getEnvelope() ).getAsSimpleRaster();
+            RasterCacheStatistics stats = RasterCache.getStatistics();
+            Assert.assertEquals( 4, stats.getMisses() );
+            Assert.assertEquals( 0, stats.getHits() );
+            checkMemSize( TILED_RASTER_SIZE );
+
+            tR.getSubRaster( tR.getEnvelope() ).getAsSimpleRaster();
+            stats = RasterCache.getStatistics();
+            Assert.assertEquals( 4, stats.getHits() );
+
+            // 3000000 + 3012012 > 4Mb, the tiles of the tiled raster must give up their memory
+            ( (ByteBufferRasterData) raster.getSubRaster( raster.getEnvelope() ).getAsSimpleRaster().getRasterData() ).getByteBuffer();
+            stats = RasterCache.getStatistics();
+            Assert.assertTrue( stats.getEvictions() > 0 );
+            Assert.assertTrue( stats.getDiskSpills() > 0 );
+            Assert.assertTrue( stats.getUsedMemory() <= stats.getMaxMemory() );
+            Assert.assertTrue( stats.getUsedDisk() > 0 );
+            clearCache();
+        } finally {
+            System.setProperty( RasterCache.DEF_RASTER_CACHE_MANAGER, "" );
+            RasterCache.reset( true );
+        }
+    }
+
     private void clearCache() {
         // clear cache
         RasterCache.clear( true );
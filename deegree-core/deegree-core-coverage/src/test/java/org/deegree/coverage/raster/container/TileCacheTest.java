@@ -0,0 +1,175 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.container;
+
+import static org.deegree.coverage.raster.utils.RasterFactory.createEmptyRaster;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.Test;
+
+/**
+ * Tests for {@link TileCache}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class TileCacheTest {
+
+    private static AbstractRaster createTile( int tile ) {
+        RasterDataInfo info = new RasterDataInfo( new BandType[] { BandType.BAND_0 }, DataType.BYTE,
+                                                  InterleaveType.PIXEL );
+        Envelope env = new GeometryFactory().createEnvelope( tile * 10, 0, tile * 10 + 10, 10, null );
+        RasterGeoReference ref = RasterGeoReference.create( OriginLocation.OUTER, env, 1.0, 1.0 );
+        return createEmptyRaster( info, env, ref );
+    }
+
+    private static class CountingLoader implements TileCache.TileLoader {
+
+        final AtomicInteger loads = new AtomicInteger();
+
+        @Override
+        public AbstractRaster load( int tile )
+                                throws IOException {
+            loads.incrementAndGet();
+            return createTile( tile );
+        }
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed()
+                            throws IOException {
+        TileCache cache = new TileCache( 2 );
+        CountingLoader loader = new CountingLoader();
+        AbstractRaster first = cache.get( 0, loader );
+        cache.get( 1, loader );
+        assertSame( first, cache.get( 0, loader ) );
+        // evicts tile 1, tile 0 was used more recently
+        cache.get( 2, loader );
+        assertEquals( 2, cache.size() );
+        assertEquals( 1, cache.getEvictions() );
+        assertSame( first, cache.get( 0, loader ) );
+        assertEquals( 3, loader.loads.get() );
+        cache.get( 1, loader );
+        assertEquals( 4, loader.loads.get() );
+
+        cache.clear();
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test
+    public void testConcurrentRequestsLoadOnce()
+                            throws Exception {
+        final TileCache cache = new TileCache( 4 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final AtomicInteger loads = new AtomicInteger();
+        final TileCache.TileLoader loader = new TileCache.TileLoader() {
+            @Override
+            public AbstractRaster load( int tile )
+                                    throws IOException {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch ( InterruptedException e ) {
+                    throw new IOException( e );
+                }
+                return createTile( tile );
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool( 8 );
+        try {
+            List<Future<AbstractRaster>> results = new ArrayList<Future<AbstractRaster>>();
+            for ( int i = 0; i < 8; ++i ) {
+                results.add( executor.submit( new Callable<AbstractRaster>() {
+                    @Override
+                    public AbstractRaster call()
+                                            throws IOException {
+                        return cache.get( 5, loader );
+                    }
+                } ) );
+            }
+            Thread.sleep( 100 );
+            release.countDown();
+            AbstractRaster raster = results.get( 0 ).get();
+            for ( Future<AbstractRaster> result : results ) {
+                assertSame( raster, result.get() );
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals( 1, loads.get() );
+    }
+
+    @Test
+    public void testFailedLoadIsNotCached() {
+        TileCache cache = new TileCache( 4 );
+        TileCache.TileLoader failing = new TileCache.TileLoader() {
+            @Override
+            public AbstractRaster load( int tile )
+                                    throws IOException {
+                throw new IOException( "missing" );
+            }
+        };
+        try {
+            cache.get( 3, failing );
+            fail( "Expected an IOException." );
+        } catch ( IOException e ) {
+            assertEquals( "missing", e.getMessage() );
+        }
+        assertEquals( 0, cache.size() );
+    }
+
+}
@@ -0,0 +1,310 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.coverage.raster.data.nio;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.data.container.BufferResult;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterReader;
+import org.junit.Test;
+
+/**
+ * Tests the single pixel access of {@link BufferAccess#readPixel(int, int)} and
+ * {@link ByteBufferRasterData#samplePixel(int, int, byte[])}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BufferAccessTest {
+
+    private static final int WIDTH = 8;
+
+    private static final int HEIGHT = 6;
+
+    private static final RasterDataInfo INFO = new RasterDataInfo( new BandType[] { BandType.RED, BandType.GREEN,
+                                                                                   BandType.BLUE }, DataType.BYTE,
+                                                                   InterleaveType.PIXEL );
+
+    @Test
+    public void testReadPixelReadsSinglePixel() {
+        TestReader reader = new TestReader( TestReader.READ );
+        ByteBufferRasterData data = createData( reader );
+        assertArrayEquals( expected( 5, 3 ), data.dataAccess.readPixel( 5, 3 ) );
+        assertEquals( 1, reader.reads.size() );
+        assertEquals( new RasterRect( 5, 3, 1, 1 ), reader.reads.get( 0 ) );
+        assertFalse( data.dataAccess.hasDataBuffer() );
+    }
+
+    @Test
+    public void testReadPixelOutside() {
+        TestReader reader = new TestReader( TestReader.READ );
+        ByteBufferRasterData data = createData( reader );
+        assertNull( data.dataAccess.readPixel( -1, 0 ) );
+        assertNull( data.dataAccess.readPixel( WIDTH, 0 ) );
+        assertNull( data.dataAccess.readPixel( 0, HEIGHT ) );
+        assertTrue( reader.reads.isEmpty() );
+    }
+
+    @Test
+    public void testReadPixelWithoutReader() {
+        ByteBufferRasterData data = createData( null );
+        assertNull( data.dataAccess.readPixel( 1, 1 ) );
+    }
+
+    @Test
+    public void testReadPixelUnsupported() {
+        ByteBufferRasterData data = createData( new TestReader( TestReader.UNSUPPORTED ) );
+        assertNull( data.dataAccess.readPixel( 1, 1 ) );
+    }
+
+    @Test
+    public void testReadPixelNullResult() {
+        ByteBufferRasterData data = createData( new TestReader( TestReader.NULL_RESULT ) );
+        assertNull( data.dataAccess.readPixel( 1, 1 ) );
+    }
+
+    @Test
+    public void testSamplePixel() {
+        TestReader reader = new TestReader( TestReader.READ );
+        ByteBufferRasterData data = createData( reader );
+        assertArrayEquals( expected( 7, 5 ), data.samplePixel( 7, 5, null ) );
+        assertArrayEquals( expected( 0, 0 ), data.samplePixel( 0, 0, new byte[3] ) );
+        assertEquals( 2, reader.reads.size() );
+        assertFalse( data.dataAccess.hasDataBuffer() );
+    }
+
+    @Test
+    public void testPixelAccessKeepsBufferPosition() {
+        ByteBufferRasterData data = createData( new TestReader( TestReader.READ ) );
+        ByteBuffer buf = data.getByteBuffer();
+        buf.position( 7 );
+        assertArrayEquals( expected( 5, 3 ), data.getPixel( 5, 3, null ) );
+        assertEquals( expected( 5, 3 )[1], data.getSample( 5, 3, 1, null )[0] );
+        data.setPixel( 1, 1, new byte[] { 1, 2, 3 } );
+        data.setSample( 2, 1, 2, new byte[] { 4 } );
+        assertEquals( 7, buf.position() );
+        assertArrayEquals( new byte[] { 1, 2, 3 }, data.getPixel( 1, 1, null ) );
+        assertEquals( 4, data.getSample( 2, 1, 2, null )[0] );
+    }
+
+    @Test
+    public void testSamplePixelFallsBackOnUnsupportedRead() {
+        TestReader reader = new TestReader( TestReader.UNSUPPORTED );
+        ByteBufferRasterData data = createData( reader );
+        assertArrayEquals( expected( 4, 2 ), data.samplePixel( 4, 2, null ) );
+        assertTrue( data.dataAccess.hasDataBuffer() );
+    }
+
+    @Test
+    public void testSamplePixelFallsBackOnNullResult() {
+        TestReader reader = new TestReader( TestReader.NULL_RESULT );
+        ByteBufferRasterData data = createData( reader );
+        assertArrayEquals( expected( 4, 2 ), data.samplePixel( 4, 2, null ) );
+        assertTrue( data.dataAccess.hasDataBuffer() );
+    }
+
+    @Test
+    public void testSamplePixelUsesLoadedData() {
+        TestReader reader = new TestReader( TestReader.READ );
+        ByteBufferRasterData data = createData( reader );
+        data.getPixel( 0, 0, null );
+        int reads = reader.reads.size();
+        assertArrayEquals( expected( 6, 1 ), data.samplePixel( 6, 1, null ) );
+        assertEquals( reads, reader.reads.size() );
+    }
+
+    @Test
+    public void testSamplePixelOfSubset() {
+        ByteBufferRasterData data = createData( new TestReader( TestReader.READ ) );
+        ByteBufferRasterData subset = data.getSubset( new RasterRect( 2, 1, 4, 4 ) );
+        assertArrayEquals( expected( 5, 4 ), subset.samplePixel( 3, 3, null ) );
+    }
+
+    @Test
+    public void testSamplePixelOfBandSubset() {
+        ByteBufferRasterData data = createData( new TestReader( TestReader.READ ) );
+        ByteBufferRasterData subset = data.getSubset( new RasterRect( 0, 0, WIDTH, HEIGHT ),
+                                                      new BandType[] { BandType.GREEN, BandType.BLUE } );
+        byte[] pixel = expected( 3, 2 );
+        byte[] result = subset.samplePixel( 3, 2, null );
+        assertEquals( 2, result.length );
+        assertEquals( pixel[1], result[0] );
+        assertEquals( pixel[2], result[1] );
+        assertArrayEquals( result, subset.getPixel( 3, 2, null ) );
+    }
+
+    private static ByteBufferRasterData createData( RasterReader reader ) {
+        return new PixelInterleavedRasterData( new RasterRect( 0, 0, WIDTH, HEIGHT ), WIDTH, HEIGHT, reader, INFO );
+    }
+
+    private static byte value( int x, int y, int band ) {
+        return (byte) ( ( y * WIDTH + x ) * 3 + band );
+    }
+
+    private static byte[] expected( int x, int y ) {
+        return new byte[] { value( x, y, 0 ), value( x, y, 1 ), value( x, y, 2 ) };
+    }
+
+    /**
+     * Serves the generated pixel interleaved test data and records the requested rectangles.
+     */
+    private static class TestReader implements RasterReader {
+
+        static final int READ = 0;
+
+        /** windowed reads are not supported, like the JAI reader */
+        static final int UNSUPPORTED = 1;
+
+        /** windowed reads yield nothing, like the ASC reader */
+        static final int NULL_RESULT = 2;
+
+        final List<RasterRect> reads = new ArrayList<RasterRect>();
+
+        private final int mode;
+
+        TestReader( int mode ) {
+            this.mode = mode;
+        }
+
+        @Override
+        public BufferResult read( RasterRect rect, ByteBuffer result )
+                                throws IOException {
+            reads.add( rect );
+            boolean window = rect.width < WIDTH || rect.height < HEIGHT;
+            if ( window && mode == UNSUPPORTED ) {
+                throw new UnsupportedOperationException( "Windowed reads are not supported" );
+            }
+            if ( window && mode == NULL_RESULT ) {
+                return null;
+            }
+            int pos = 0;
+            for ( int y = rect.y; y < rect.y + rect.height; ++y ) {
+                for ( int x = rect.x; x < rect.x + rect.width; ++x ) {
+                    for ( int b = 0; b < 3; ++b ) {
+                        result.put( pos++, value( x, y, b ) );
+                    }
+                }
+            }
+            return new BufferResult( rect, result );
+        }
+
+        @Override
+        public AbstractRaster load( File filename, RasterIOOptions options ) {
+            return null;
+        }
+
+        @Override
+        public AbstractRaster load( InputStream stream, RasterIOOptions options ) {
+            return null;
+        }
+
+        @Override
+        public boolean canLoad( File filename ) {
+            return false;
+        }
+
+        @Override
+        public Set<String> getSupportedFormats() {
+            return null;
+        }
+
+        @Override
+        public boolean shouldCreateCacheFile() {
+            return false;
+        }
+
+        @Override
+        public File file() {
+            return null;
+        }
+
+        @Override
+        public int getWidth() {
+            return WIDTH;
+        }
+
+        @Override
+        public int getHeight() {
+            return HEIGHT;
+        }
+
+        @Override
+        public RasterGeoReference getGeoReference() {
+            return null;
+        }
+
+        @Override
+        public RasterDataInfo getRasterDataInfo() {
+            return INFO;
+        }
+
+        @Override
+        public boolean canReadTiles() {
+            return true;
+        }
+
+        @Override
+        public String getDataLocationId() {
+            return "test";
+        }
+
+        @Override
+        public void dispose() {
+            // nothing to do
+        }
+    }
+
+}
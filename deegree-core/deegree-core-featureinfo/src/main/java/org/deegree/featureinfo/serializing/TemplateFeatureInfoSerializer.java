@@ -40,31 +40,30 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.featureinfo.serializing;
 
-import static org.deegree.featureinfo.templating.TemplatingUtils.runTemplate;
-
 import java.io.IOException;
 
 import javax.xml.stream.XMLStreamException;
 
 import org.deegree.featureinfo.FeatureInfoContext;
 import org.deegree.featureinfo.FeatureInfoParams;
+import org.deegree.featureinfo.templating.FeatureInfoTemplate;
 
 public class TemplateFeatureInfoSerializer implements FeatureInfoSerializer {
 
-    private final String fiFile;
+    private final FeatureInfoTemplate template;
 
     public TemplateFeatureInfoSerializer() {
         this( null );
     }
 
     public TemplateFeatureInfoSerializer( final String fiFile ) {
-        this.fiFile = fiFile;
+        this.template = new FeatureInfoTemplate( fiFile );
     }
 
     @Override
     public void serialize( FeatureInfoParams params, FeatureInfoContext context )
                             throws IOException, XMLStreamException {
 
-        runTemplate( context.getOutputStream(), fiFile, params.getFeatureCollection(), params.isWithGeometries() );
+        template.evaluate( context.getOutputStream(), params.getFeatureCollection(), params.isWithGeometries() );
     }
 }
@@ -3,15 +3,21 @@ package org.deegree.featureinfo.serializing;
 import static org.deegree.gml.GMLOutputFactory.createGMLStreamWriter;
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 
 import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamWriter;
+import javax.xml.transform.sax.TransformerHandler;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
 
-import org.deegree.commons.xml.XsltUtils;
+import org.deegree.commons.xml.XsltStylesheet;
+import org.deegree.commons.xml.stax.ContentHandlerXMLStreamWriter;
 import org.deegree.commons.xml.stax.IndentingXMLStreamWriter;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
@@ -29,13 +35,13 @@ public class XsltFeatureInfoSerializer implements FeatureInfoSerializer {
 
     private final GMLVersion gmlVersion;
 
-    private final URL xslt;
+    private final XsltStylesheet xslt;
 
     private final Workspace workspace;
 
     public XsltFeatureInfoSerializer( GMLVersion version, URL xslt, Workspace workspace ) {
         this.gmlVersion = version;
-        this.xslt = xslt;
+        this.xslt = new XsltStylesheet( xslt );
         this.workspace = workspace;
     }
 
@@ -45,13 +51,7 @@ public class XsltFeatureInfoSerializer implements FeatureInfoSerializer {
         FeatureCollection col = params.getFeatureCollection();
         ClassLoader loader = Thread.currentThread().getContextClassLoader();
         Thread.currentThread().setContextClassLoader( workspace.getModuleClassLoader() );
-        ByteArrayOutputStream bos = new ByteArrayOutputStream();
         try {
-            XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter( bos );
-            if ( LOG.isDebugEnabled() ) {
-                out = new IndentingXMLStreamWriter( out );
-            }
-            GMLStreamWriter writer = createGMLStreamWriter( gmlVersion, out );
             if ( nsBindings == null ) {
                 nsBindings = new HashMap<String, String>();
             }
@@ -60,15 +60,29 @@ public class XsltFeatureInfoSerializer implements FeatureInfoSerializer {
                 if ( schema != null )
                     nsBindings.putAll( schema.getNamespaceBindings() );
             }
-            writer.setNamespaceBindings( nsBindings );
-            writer.write( col );
-            writer.close();
-            bos.flush();
-            bos.close();
-            if ( LOG.isDebugEnabled() ) {
-                LOG.debug( "GML before XSLT:\n{}", new String( bos.toByteArray(), "UTF-8" ) );
+            OutputStream os = context.getOutputStream();
+            TransformerHandler handler = LOG.isDebugEnabled() ? null
+                                                              : xslt.newTransformerHandler( new StreamResult( os ) );
+            if ( handler != null ) {
+                // GML events go straight into the XSLT processor
+                XMLStreamWriter out = new ContentHandlerXMLStreamWriter( handler );
+                out.writeStartDocument();
+                writeGml( out, col, nsBindings );
+                out.writeEndDocument();
+            } else {
+                ByteArrayOutputStream bos = new ByteArrayOutputStream();
+                XMLStreamWriter out = XMLOutputFactory.newInstance().createXMLStreamWriter( bos );
+                if ( LOG.isDebugEnabled() ) {
+                    out = new IndentingXMLStreamWriter( out );
+                }
+                writeGml( out, col, nsBindings );
+                bos.close();
+                if ( LOG.isDebugEnabled() ) {
+                    LOG.debug( "GML before XSLT:\n{}", new String( bos.toByteArray(), "UTF-8" ) );
+                }
+                xslt.transform( new StreamSource( new ByteArrayInputStream( bos.toByteArray() ) ),
+                                new StreamResult( os ) );
             }
-            XsltUtils.transform( bos.toByteArray(), this.xslt, context.getOutputStream() );
         } catch ( Throwable e ) {
             LOG.warn( "Unable to transform GML for feature info: {}.", e.getLocalizedMessage() );
             LOG.trace( "Stack trace:", e );
@@ -77,4 +91,12 @@ public class XsltFeatureInfoSerializer implements FeatureInfoSerializer {
         }
     }
 
+    private void writeGml( XMLStreamWriter out, FeatureCollection col, Map<String, String> nsBindings )
+                            throws Exception {
+        GMLStreamWriter writer = createGMLStreamWriter( gmlVersion, out );
+        writer.setNamespaceBindings( nsBindings );
+        writer.write( col );
+        writer.close();
+    }
+
 }
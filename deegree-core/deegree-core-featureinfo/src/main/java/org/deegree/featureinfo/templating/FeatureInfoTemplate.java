@@ -0,0 +1,162 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.featureinfo.templating;
+
+import static java.util.Collections.singletonList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.HashMap;
+
+import org.antlr.runtime.ANTLRInputStream;
+import org.antlr.runtime.CommonTokenStream;
+import org.antlr.runtime.RecognitionException;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.featureinfo.FeatureInfoManager;
+import org.deegree.featureinfo.templating.lang.PropertyTemplateCall;
+import org.deegree.featureinfo.templating.lang.TemplateWriter;
+import org.slf4j.Logger;
+
+/**
+ * A feature info template that is parsed once and evaluated for many requests.
+ * <p>
+ * The template file is parsed on first use and parsed again when its modification time changes. The output is only
+ * written to the response if the evaluation succeeds. Instances are thread safe.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureInfoTemplate {
+
+    private static final Logger LOG = getLogger( FeatureInfoTemplate.class );
+
+    private final File file;
+
+    private volatile HashMap<String, Object> defs;
+
+    private volatile long lastModified;
+
+    /**
+     * @param fiFile
+     *            template file, can be <code>null</code> (internal default HTML template)
+     */
+    public FeatureInfoTemplate( String fiFile ) {
+        this.file = fiFile == null ? null : new File( fiFile );
+    }
+
+    /**
+     * Evaluates the template for the given features.
+     * 
+     * @param response
+     *            stream to write to, must not be <code>null</code>
+     * @param col
+     *            features, must not be <code>null</code>
+     * @param geometries
+     *            <code>true</code>, if geometry properties should be included
+     */
+    public void evaluate( OutputStream response, FeatureCollection col, boolean geometries )
+                            throws IOException {
+        PrintWriter out = new PrintWriter( new OutputStreamWriter( response, "UTF-8" ) );
+        try {
+            HashMap<String, Object> defs = getDefinitions();
+            // evaluate into a buffer, a failing template must not leave a truncated document in the response
+            StringWriter buffer = new StringWriter();
+            TemplateWriter writer = new TemplateWriter( buffer );
+            new PropertyTemplateCall( "start", singletonList( "*" ), false ).eval( writer, defs, col, geometries );
+            writer.flush();
+            out.println( buffer.toString() );
+        } catch ( Throwable e ) {
+            if ( file == null ) {
+                LOG.error( "Could not load internal template for GFI response." );
+            } else {
+                LOG.error( "Could not load template '{}' for GFI response.", file );
+            }
+            LOG.trace( "Stack trace:", e );
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * @return the parsed template definitions, parsed again if the template file has been modified
+     */
+    HashMap<String, Object> getDefinitions()
+                            throws IOException, RecognitionException {
+        long modified = file == null ? 0 : file.lastModified();
+        HashMap<String, Object> current = defs;
+        if ( current != null && modified == lastModified ) {
+            return current;
+        }
+        synchronized ( this ) {
+            if ( defs == null || modified != lastModified ) {
+                if ( defs != null ) {
+                    LOG.info( "Template '{}' has changed, reloading.", file );
+                }
+                defs = parse();
+                lastModified = modified;
+            }
+            return defs;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private HashMap<String, Object> parse()
+                            throws IOException, RecognitionException {
+        InputStream in;
+        if ( file == null ) {
+            in = FeatureInfoManager.class.getResourceAsStream( "html.gfi" );
+        } else {
+            in = new FileInputStream( file );
+        }
+        try {
+            Templating2Lexer lexer = new Templating2Lexer( new ANTLRInputStream( in ) );
+            CommonTokenStream cts = new CommonTokenStream( lexer );
+            cts.fill();
+            Templating2Parser parser = new Templating2Parser( cts );
+            return (HashMap<String, Object>) (HashMap<?, ?>) parser.definitions();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -41,24 +41,12 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.featureinfo.templating;
 
-import static java.util.Collections.singletonList;
-import static org.slf4j.LoggerFactory.getLogger;
-
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
-import org.antlr.runtime.ANTLRInputStream;
-import org.antlr.runtime.CharStream;
-import org.antlr.runtime.CommonTokenStream;
 import org.deegree.feature.FeatureCollection;
-import org.deegree.featureinfo.FeatureInfoManager;
-import org.deegree.featureinfo.templating.lang.PropertyTemplateCall;
-import org.slf4j.Logger;
 
 /**
  * Utility method to run a template against a feature collection.
@@ -70,40 +58,35 @@ import org.slf4j.Logger;
  */
 public class TemplatingUtils {
 
-    private static final Logger LOG = getLogger( TemplatingUtils.class );
-
+    private static final String INTERNAL_TEMPLATE = "";
+
+    private static final ConcurrentMap<String, FeatureInfoTemplate> templates = new ConcurrentHashMap<String, FeatureInfoTemplate>();
+
+    /**
+     * Evaluates the given template, the parsed template is cached (see {@link FeatureInfoTemplate}).
+     * 
+     * @param response
+     *            stream to write to, must not be <code>null</code>
+     * @param fiFile
+     *            template file, can be <code>null</code> (internal default HTML template)
+     * @param col
+     *            features, must not be <code>null</code>
+     * @param geometries
+     *            <code>true</code>, if geometry properties should be included
+     * @throws IOException
+     */
     public static void runTemplate( OutputStream response, String fiFile, FeatureCollection col, boolean geometries )
                             throws IOException {
-        PrintWriter out = new PrintWriter( new OutputStreamWriter( response, "UTF-8" ) );
-
-        try {
-            InputStream in;
-            if ( fiFile == null ) {
-                in = FeatureInfoManager.class.getResourceAsStream( "html.gfi" );
-            } else {
-                in = new FileInputStream( fiFile );
-            }
-
-            CharStream input = new ANTLRInputStream( in );
-            Templating2Lexer lexer = new Templating2Lexer( input );
-            CommonTokenStream cts = new CommonTokenStream( lexer );
-            cts.fill();
-            Templating2Parser parser = new Templating2Parser( cts );
-            HashMap<String, Object> defs = (HashMap) parser.definitions();
-
-            StringBuilder sb = new StringBuilder();
-            new PropertyTemplateCall( "start", singletonList( "*" ), false ).eval( sb, defs, col, geometries );
-            out.println( sb.toString() );
-        } catch ( Throwable e ) {
-            if ( fiFile == null ) {
-                LOG.error( "Could not load internal template for GFI response." );
-            } else {
-                LOG.error( "Could not load template '{}' for GFI response.", fiFile );
+        String key = fiFile == null ? INTERNAL_TEMPLATE : fiFile;
+        FeatureInfoTemplate template = templates.get( key );
+        if ( template == null ) {
+            FeatureInfoTemplate newTemplate = new FeatureInfoTemplate( fiFile );
+            template = templates.putIfAbsent( key, newTemplate );
+            if ( template == null ) {
+                template = newTemplate;
             }
-            LOG.trace( "Stack trace:", e );
-        } finally {
-            out.close();
         }
+        template.evaluate( response, col, geometries );
     }
 
 }
@@ -53,20 +53,20 @@ public class GMLId {
     private static final Logger LOG = getLogger( GMLId.class );
 
     /**
-     * @param sb
+     * @param out
      * @param o
      * @param parent
      */
-    public void eval( StringBuilder sb, Object o, Feature parent ) {
+    public void eval( TemplateWriter out, Object o, Feature parent ) {
         if ( o instanceof Feature ) {
             String id = ( (Feature) o ).getId();
             if ( id != null && !id.isEmpty() ) {
-                sb.append( id );
+                out.append( id );
             }
         } else if ( parent != null ) {
             String id = parent.getId();
             if ( id != null && !id.isEmpty() ) {
-                sb.append( id );
+                out.append( id );
             }
         } else {
             LOG.warn( "Trying to get GML id from property without parent information." );
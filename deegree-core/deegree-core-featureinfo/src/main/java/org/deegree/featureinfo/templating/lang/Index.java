@@ -51,12 +51,12 @@ public class Index {
 
     /**
      * @param <T>
-     * @param sb
+     * @param out
      * @param val
      * @param vals
      */
-    public <T> void eval( StringBuilder sb, T val, List<T> vals ) {
-        sb.append( vals.indexOf( val ) + 1 );
+    public <T> void eval( TemplateWriter out, T val, List<T> vals ) {
+        out.print( vals.indexOf( val ) + 1 );
     }
 
     @Override
@@ -78,10 +78,10 @@ public class Link {
     }
 
     /**
-     * @param sb
+     * @param out
      * @param o
      */
-    public void eval( StringBuilder sb, Object o ) {
+    public void eval( TemplateWriter out, Object o ) {
         if ( !( o instanceof Property ) ) {
             LOG.warn( "Trying to get value as link while current object is a feature." );
             return;
@@ -97,9 +97,9 @@ public class Link {
         }
         // TODO price question: what's the Java Way to sgml-quote?
         val = val.replace( "&", "&amp;" );
-        sb.append( "<a target='_blank' href='" ).append( val ).append( "'>" );
-        sb.append( text == null ? val : text );
-        sb.append( "</a>" );
+        out.append( "<a target='_blank' href='" ).append( val ).append( "'>" );
+        out.append( text == null ? val : text );
+        out.append( "</a>" );
     }
 
     @Override
@@ -70,11 +70,11 @@ public class MapCall {
     }
 
     /**
-     * @param sb
+     * @param out
      * @param defs
      * @param o
      */
-    public void eval( StringBuilder sb, HashMap<String, Object> defs, Object o ) {
+    public void eval( TemplateWriter out, HashMap<String, Object> defs, Object o ) {
         Object def = defs.get( name );
         if ( def == null ) {
             LOG.warn( "No map template definition with name '{}'.", name );
@@ -117,10 +117,10 @@ public class MapCall {
 
         if ( !md.map.containsKey( key ) ) {
             LOG.warn( "Map template definition with name '{}' does not contain key '{}'.", name, key );
-            sb.append( key );
+            out.append( key );
             return;
         }
-        sb.append( md.map.get( key ) );
+        out.append( md.map.get( key ) );
     }
 
     /**
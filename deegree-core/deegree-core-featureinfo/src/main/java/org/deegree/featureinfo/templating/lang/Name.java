@@ -51,15 +51,15 @@ import org.deegree.feature.Feature;
 public class Name {
 
     /**
-     * @param sb
+     * @param out
      * @param o
      */
-    public void eval( StringBuilder sb, Object o ) {
+    public void eval( TemplateWriter out, Object o ) {
         if ( o instanceof Feature ) {
-            sb.append( ( (Feature) o ).getName().getLocalPart() );
+            out.append( ( (Feature) o ).getName().getLocalPart() );
         }
         if ( o instanceof Property ) {
-            sb.append( ( (Property) o ).getName().getLocalPart() );
+            out.append( ( (Property) o ).getName().getLocalPart() );
         }
     }
 
@@ -67,22 +67,22 @@ public class OddEven {
     }
 
     /**
-     * @param sb
+     * @param out
      * @param defs
      * @param obj
      * @param idx
      * @param geometries
      */
-    public void eval( StringBuilder sb, HashMap<String, Object> defs, Object obj, int idx, boolean geometries ) {
+    public void eval( TemplateWriter out, HashMap<String, Object> defs, Object obj, int idx, boolean geometries ) {
         if ( idx % 2 == 0 ^ odd ) {
             return;
         }
 
         if ( obj instanceof Feature ) {
-            new FeatureTemplateCall( name, singletonList( "*" ), false ).eval( sb, defs, obj, geometries );
+            new FeatureTemplateCall( name, singletonList( "*" ), false ).eval( out, defs, obj, geometries );
         }
         if ( obj instanceof Property ) {
-            new PropertyTemplateCall( name, singletonList( "*" ), false ).eval( sb, defs, obj, geometries );
+            new PropertyTemplateCall( name, singletonList( "*" ), false ).eval( out, defs, obj, geometries );
         }
     }
 
@@ -41,7 +41,6 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 
 import org.deegree.commons.tom.gml.property.Property;
@@ -66,8 +65,6 @@ public class PropertyTemplateCall {
 
     private List<String> patterns;
 
-    private HashSet<Object> visited = new HashSet<Object>();
-
     private final boolean negate;
 
     /**
@@ -81,18 +78,17 @@ public class PropertyTemplateCall {
         this.negate = negate;
     }
 
-    private void eval( StringBuilder sb, TemplateDefinition t, Object obj, HashMap<String, Object> defs,
+    private void eval( TemplateWriter out, TemplateDefinition t, Object obj, HashMap<String, Object> defs,
                        List<Property> list, Feature parent, boolean geometries ) {
         Property p = null;
         if ( obj instanceof Property ) {
             p = (Property) obj;
         }
         if ( p != null ) {
-            if ( visited.contains( p ) ) {
+            if ( !out.visit( this, p ) ) {
                 // TODO add link?
                 return;
             }
-            visited.add( p );
 
             if ( p.getValue() instanceof Geometry && !geometries ) {
                 return;
@@ -102,53 +98,53 @@ public class PropertyTemplateCall {
         for ( Object o : t.body ) {
             if ( o instanceof FeatureTemplateCall ) {
                 if ( p != null && ( p.getValue() instanceof Feature ) ) {
-                    ( (FeatureTemplateCall) o ).eval( sb, defs, p.getValue(), geometries );
+                    ( (FeatureTemplateCall) o ).eval( out, defs, p.getValue(), geometries );
                 }
                 if ( p == null && obj instanceof FeatureCollection ) {
-                    ( (FeatureTemplateCall) o ).eval( sb, defs, obj, geometries );
+                    ( (FeatureTemplateCall) o ).eval( out, defs, obj, geometries );
                 }
             }
             if ( o instanceof String ) {
-                sb.append( o );
+                out.print( o );
             }
             if ( p == null ) {
                 continue;
             }
             if ( o instanceof MapCall ) {
-                ( (MapCall) o ).eval( sb, defs, p );
+                ( (MapCall) o ).eval( out, defs, p );
             }
             if ( o instanceof PropertyTemplateCall ) {
                 LOG.warn( "Trying to call template '{}' as property template while current object is property.",
                           ( (PropertyTemplateCall) o ).name );
             }
             if ( o instanceof Name ) {
-                ( (Name) o ).eval( sb, p );
+                ( (Name) o ).eval( out, p );
             }
             if ( o instanceof Value ) {
-                ( (Value) o ).eval( sb, p );
+                ( (Value) o ).eval( out, p );
             }
             if ( o instanceof Link ) {
-                ( (Link) o ).eval( sb, p );
+                ( (Link) o ).eval( out, p );
             }
             if ( o instanceof Index ) {
-                ( (Index) o ).eval( sb, p, list );
+                ( (Index) o ).eval( out, p, list );
             }
             if ( o instanceof OddEven ) {
-                ( (OddEven) o ).eval( sb, defs, p, 1 + list.indexOf( p ), geometries );
+                ( (OddEven) o ).eval( out, defs, p, 1 + list.indexOf( p ), geometries );
             }
             if ( o instanceof GMLId ) {
-                ( (GMLId) o ).eval( sb, p, parent );
+                ( (GMLId) o ).eval( out, p, parent );
             }
         }
     }
 
     /**
-     * @param sb
+     * @param out
      * @param defs
      * @param obj
      * @param geometries
      */
-    public void eval( StringBuilder sb, HashMap<String, Object> defs, Object obj, boolean geometries ) {
+    public void eval( TemplateWriter out, HashMap<String, Object> defs, Object obj, boolean geometries ) {
         Object def = defs.get( name );
         if ( def == null ) {
             LOG.warn( "No template definition with name '{}'.", name );
@@ -157,11 +153,11 @@ public class PropertyTemplateCall {
         TemplateDefinition t = (TemplateDefinition) def;
 
         if ( obj instanceof Property ) {
-            eval( sb, t, obj, defs, Collections.<Property> singletonList( (Property) obj ), null, geometries );
+            eval( out, t, obj, defs, Collections.<Property> singletonList( (Property) obj ), null, geometries );
             return;
         }
         if ( obj instanceof FeatureCollection ) {
-            eval( sb, t, obj, defs, null, (Feature) obj, geometries );
+            eval( out, t, obj, defs, null, (Feature) obj, geometries );
             return;
         }
         List<Property> inputProps = ( (Feature) obj ).getProperties();
@@ -172,7 +168,7 @@ public class PropertyTemplateCall {
         LOG.debug( "Property template call '{}' matches objects '{}'.", name, props );
 
         for ( Property p : props ) {
-            eval( sb, t, p, defs, props, (Feature) obj, geometries );
+            eval( out, t, p, defs, props, (Feature) obj, geometries );
         }
     }
 
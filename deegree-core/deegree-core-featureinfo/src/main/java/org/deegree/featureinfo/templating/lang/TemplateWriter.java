@@ -0,0 +1,84 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.featureinfo.templating.lang;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Output of a single template evaluation.
+ * <p>
+ * Besides writing the output, it keeps track of the objects each template call has already been evaluated for (to
+ * avoid cycles). As this state belongs to one evaluation, parsed template definitions can be shared between
+ * concurrent evaluations.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class TemplateWriter extends PrintWriter {
+
+    private final Map<Object, Set<Object>> visited = new IdentityHashMap<Object, Set<Object>>();
+
+    /**
+     * @param out
+     *            writer to write the evaluated template to, must not be <code>null</code>
+     */
+    public TemplateWriter( Writer out ) {
+        super( out );
+    }
+
+    /**
+     * @param call
+     *            template call, must not be <code>null</code>
+     * @param obj
+     *            object the call is evaluated for
+     * @return <code>true</code>, if the call has not been evaluated for the object before, <code>false</code>
+     *         otherwise
+     */
+    boolean visit( Object call, Object obj ) {
+        Set<Object> objs = visited.get( call );
+        if ( objs == null ) {
+            objs = new HashSet<Object>();
+            visited.put( call, objs );
+        }
+        return objs.add( obj );
+    }
+}
@@ -54,13 +54,13 @@ public class Value {
     private static final Logger LOG = getLogger( Value.class );
 
     /**
-     * @param sb
+     * @param out
      * @param o
      */
-    public void eval( StringBuilder sb, Object o ) {
+    public void eval( TemplateWriter out, Object o ) {
         if ( o instanceof Property ) {
             try {
-                sb.append( ( (Property) o ).getValue() );
+                out.print( ( (Property) o ).getValue() );
             } catch ( UnsupportedOperationException e ) {
                 LOG.error( "The error '{}' occurred while converting a property to a string, "
                            + "probably the WKT writer cannot convert a geometry.", e.getLocalizedMessage() );
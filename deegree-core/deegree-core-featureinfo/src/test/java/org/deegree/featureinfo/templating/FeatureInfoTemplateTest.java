@@ -0,0 +1,142 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.featureinfo.templating;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
+import javax.xml.namespace.QName;
+
+import org.apache.commons.io.FileUtils;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.GenericFeature;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.types.GenericFeatureType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the parse-once caching and the evaluation of {@link FeatureInfoTemplate}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureInfoTemplateTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void testParsedOnce()
+                            throws IOException {
+        File file = writeTemplate( tmp.newFile( "test.gfi" ), "first" );
+        FeatureInfoTemplate template = new FeatureInfoTemplate( file.getPath() );
+        HashMap<String, Object> defs = template.getDefinitions();
+        String first = evaluate( template );
+        assertTrue( first, first.contains( "first Test" ) );
+        assertEquals( first, evaluate( template ) );
+        assertSame( defs, template.getDefinitions() );
+    }
+
+    @Test
+    public void testChangedTemplateIsReloaded()
+                            throws IOException {
+        File file = writeTemplate( tmp.newFile( "test.gfi" ), "first" );
+        FeatureInfoTemplate template = new FeatureInfoTemplate( file.getPath() );
+        HashMap<String, Object> defs = template.getDefinitions();
+        assertTrue( evaluate( template ).contains( "first Test" ) );
+
+        long modified = file.lastModified();
+        writeTemplate( file, "second" );
+        // file systems may only store seconds
+        file.setLastModified( modified + 2000 );
+        String second = evaluate( template );
+        assertTrue( second, second.contains( "second Test" ) );
+        assertNotSame( defs, template.getDefinitions() );
+    }
+
+    @Test
+    public void testSelfReferencingTemplate()
+                            throws IOException {
+        File file = tmp.newFile( "self.gfi" );
+        FileUtils.writeStringToFile( file, "<?template start>\n<?feature *:self>\n\n"
+                                           + "<?template self>\n<li><?name></li><?feature *:self>\n", "UTF-8" );
+        FeatureInfoTemplate template = new FeatureInfoTemplate( file.getPath() );
+        // the nested call stops at the feature it has already been evaluated for
+        assertEquals( 2, count( evaluate( template ), "<li>Test</li>" ) );
+        // the guard belongs to a single evaluation
+        assertEquals( 2, count( evaluate( template ), "<li>Test</li>" ) );
+    }
+
+    private static File writeTemplate( File file, String text )
+                            throws IOException {
+        FileUtils.writeStringToFile( file, "<?template start>\n<?feature *:feature>\n\n<?template feature>\n" + text
+                                           + " <?name>\n", "UTF-8" );
+        return file;
+    }
+
+    private static String evaluate( FeatureInfoTemplate template )
+                            throws IOException {
+        GenericFeatureType type = new GenericFeatureType( new QName( "Test" ), new ArrayList<PropertyType>(), false );
+        Feature feature = new GenericFeature( type, "f1", new ArrayList<Property>(), null );
+        FeatureCollection col = new GenericFeatureCollection( null, Collections.singletonList( feature ) );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        template.evaluate( out, col, false );
+        return out.toString( "UTF-8" );
+    }
+
+    private static int count( String s, String part ) {
+        int count = 0;
+        for ( int i = s.indexOf( part ); i != -1; i = s.indexOf( part, i + 1 ) ) {
+            ++count;
+        }
+        return count;
+    }
+
+}
@@ -58,6 +58,7 @@ import org.deegree.geometry.standard.multi.DefaultMultiGeometry;
 import org.deegree.geometry.standard.multi.DefaultMultiLineString;
 import org.deegree.geometry.standard.multi.DefaultMultiPoint;
 import org.deegree.geometry.standard.multi.DefaultMultiPolygon;
+import org.deegree.geometry.standard.points.PackedPoints;
 import org.deegree.geometry.standard.points.PointsList;
 import org.deegree.geometry.standard.primitive.DefaultLineString;
 import org.deegree.geometry.standard.primitive.DefaultPoint;
@@ -177,6 +178,25 @@ public class SimpleGeometryFactory {
         return inspect( new PointsList( points ) );
     }
 
+    /**
+     * Creates a {@link Points} object that is backed by the given coordinate array.
+     * <p>
+     * The returned points are anonymous, i.e. they don't carry ids. The array is not copied and must not be modified
+     * afterwards.
+     * </p>
+     * 
+     * @param crs
+     *            coordinate reference system, may be null
+     * @param coordinates
+     *            coordinate values (x0, y0, [z0,] x1, y1, [z1,] ...), must not be <code>null</code>
+     * @param dimension
+     *            number of coordinate values per point
+     * @return created {@link Points}
+     */
+    public Points createPoints( ICRS crs, double[] coordinates, int dimension ) {
+        return inspect( new PackedPoints( crs, coordinates, dimension ) );
+    }
+
     /**
      * Creates a {@link Polygon} surface.
      * 
@@ -59,6 +59,8 @@ public class DecimalCoordinateFormatter implements CoordinateFormatter {
 
     private final DecimalFormat decimalFormat;
 
+    private final int decimalPlaces;
+
     /**
      * Creates a new {@link DecimalCoordinateFormatter} instance that uses {@link #DEFAULT_PLACES}.
      */
@@ -87,6 +89,7 @@ public class DecimalCoordinateFormatter implements CoordinateFormatter {
         DecimalFormatSymbols symbols = new DecimalFormatSymbols();
         symbols.setDecimalSeparator( '.' );
         decimalFormat = new DecimalFormat( pattern.toString(), symbols );
+        this.decimalPlaces = decimalPlaces;
     }
 
     /**
@@ -106,6 +109,7 @@ public class DecimalCoordinateFormatter implements CoordinateFormatter {
         DecimalFormatSymbols symbols = new DecimalFormatSymbols();
         symbols.setDecimalSeparator( '.' );
         decimalFormat = new DecimalFormat( pattern.toString(), symbols );
+        this.decimalPlaces = decimalPlaces;
     }
 
     /**
@@ -116,6 +120,17 @@ public class DecimalCoordinateFormatter implements CoordinateFormatter {
      */
     public DecimalCoordinateFormatter( DecimalFormat decimalFormat ) {
         this.decimalFormat = decimalFormat;
+        this.decimalPlaces = -1;
+    }
+
+    /**
+     * Returns the fixed number of decimal places that this formatter produces.
+     * 
+     * @return number of decimal places, or <code>-1</code> if the formatter has been created from a custom
+     *         {@link DecimalFormat}
+     */
+    public int getDecimalPlaces() {
+        return decimalPlaces;
     }
 
     @Override
@@ -101,27 +101,22 @@ public class PackedPoints implements Points {
 
             private int idx = 0;
 
-            @SuppressWarnings("synthetic-access")
-            private double[] pointCoordinates = new double[dimension];
-
-            @SuppressWarnings("synthetic-access")
-            private DefaultPoint point = new DefaultPoint( null, crs, null, pointCoordinates );
-
             @Override
             public boolean hasNext() {
                 return idx < coordinates.length;
             }
 
+            @SuppressWarnings("synthetic-access")
             @Override
             public Point next() {
                 if ( !hasNext() ) {
                     throw new NoSuchElementException();
                 }
-                for ( int i = 0; i < dimension; i++ ) {
-                    pointCoordinates[i] = coordinates[idx + i];
-                }
+                // every point gets its own ordinates, callers may keep references to returned points
+                double[] pointCoordinates = new double[dimension];
+                System.arraycopy( coordinates, idx, pointCoordinates, 0, dimension );
                 idx += dimension;
-                return point;
+                return new DefaultPoint( null, crs, null, pointCoordinates );
             }
 
             @Override
@@ -152,7 +147,7 @@ public class PackedPoints implements Points {
 
     @Override
     public Envelope expandEnvelope( Envelope env ) {
-        for ( int i = 0; i < coordinates.length; i += 2 ) {
+        for ( int i = 0; i < coordinates.length; i += dimension ) {
             env.expandToInclude( coordinates[i], coordinates[i + 1] );
         }
         return env;
@@ -160,60 +155,72 @@ public class PackedPoints implements Points {
 
     @Override
     public Coordinate getCoordinate( int index ) {
-        Point point = get( index );
-        return new Coordinate( point.get0(), point.get1(), point.get2() );
+        int idx = index * dimension;
+        return new Coordinate( coordinates[idx], coordinates[idx + 1], getThirdOrdinate( idx ) );
     }
 
     @Override
     public void getCoordinate( int index, Coordinate coord ) {
-        Point point = get( index );
-        coord.x = point.get0();
-        coord.y = point.get1();
-        coord.z = point.get2();
+        int idx = index * dimension;
+        coord.x = coordinates[idx];
+        coord.y = coordinates[idx + 1];
+        coord.z = getThirdOrdinate( idx );
     }
 
     @Override
     public Coordinate getCoordinateCopy( int index ) {
-        Point point = get( index );
-        return new Coordinate( point.get0(), point.get1(), point.get2() );
+        return getCoordinate( index );
     }
 
     @Override
     public double getOrdinate( int index, int ordinateIndex ) {
-        return get( index ).get( ordinateIndex );
+        if ( ordinateIndex < 0 || ordinateIndex >= dimension ) {
+            throw new IndexOutOfBoundsException();
+        }
+        return coordinates[index * dimension + ordinateIndex];
     }
 
     @Override
     public double getX( int index ) {
-        return get( index ).get0();
+        return coordinates[index * dimension];
     }
 
     @Override
     public double getY( int index ) {
-        return get( index ).get1();
+        return coordinates[index * dimension + 1];
     }
 
     @Override
     public void setOrdinate( int index, int ordinateIndex, double value ) {
-        throw new UnsupportedOperationException();
+        if ( ordinateIndex < 0 || ordinateIndex >= dimension ) {
+            throw new IndexOutOfBoundsException();
+        }
+        coordinates[index * dimension + ordinateIndex] = value;
     }
 
     @Override
     public Coordinate[] toCoordinateArray() {
         Coordinate[] coords = new Coordinate[coordinates.length / dimension];
         for ( int i = 0; i < coords.length; i++ ) {
-            coords[i] = new Coordinate( coordinates[i * 2], coordinates[i * 2 + 1] );
+            coords[i] = new Coordinate( coordinates[i * dimension], coordinates[i * dimension + 1] );
         }
         return coords;
     }
 
     @Override
     public Object clone() {
-        throw new UnsupportedOperationException();
+        return new PackedPoints( crs, coordinates.clone(), dimension );
     }
 
     @Override
     public CoordinateSequence copy() {
         throw new UnsupportedOperationException();
     }
+
+    private double getThirdOrdinate( int idx ) {
+        if ( dimension > 2 ) {
+            return coordinates[idx + 2];
+        }
+        return Double.NaN;
+    }
 }
@@ -50,6 +50,19 @@ import org.deegree.geometry.Geometry;
  */
 public interface GeometryParticleConverter extends ParticleConverter<Geometry> {
 
+    /**
+     * Returns an SQL snippet for SELECTing a generalized version of the geometry. Used for rendering, where details
+     * below the pixel size are not visible anyway.
+     * 
+     * @param tableAlias
+     *            alias of the table that contains the geometry column, can be <code>null</code>
+     * @param tolerance
+     *            simplification tolerance in units of the storage CRS, a value &lt;= 0 means no simplification
+     * @return select snippet, never <code>null</code>, identical to {@link #getSelectSnippet(String)} if the database
+     *         does not support simplification
+     */
+    public String getSelectSnippet( String tableAlias, double tolerance );
+
     public String getSrid();
 
     public ICRS getCrs();
@@ -55,6 +55,7 @@ import org.deegree.rendering.r2d.context.MapOptions;
 import org.deegree.rendering.r2d.context.MapOptions.Antialias;
 import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
 import org.deegree.rendering.r2d.context.MapOptions.Quality;
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
 import org.deegree.style.persistence.StyleStore;
 import org.deegree.style.persistence.StyleStoreProvider;
 import org.deegree.style.se.unevaluated.Style;
@@ -247,7 +248,16 @@ public final class ConfigUtils {
         if ( cfg.isOpaque() != null ) {
             opaque = cfg.isOpaque();
         }
-        return new MapOptions( quali, interpol, alias, maxFeats, rad, opaque );
+        MapOptions options = new MapOptions( quali, interpol, alias, maxFeats, rad, opaque );
+        if ( cfg.getImageEncoding() != null ) {
+            try {
+                options.setImageEncoding( ImageEncodingOptions.parse( cfg.getImageEncoding().getCompressionLevel(),
+                                                                      cfg.getImageEncoding().getFilter() ) );
+            } catch ( IllegalArgumentException e ) {
+                LOG.warn( "Ignoring invalid image encoding options: {}", e.getMessage() );
+            }
+        }
+        return options;
     }
 
     public static Map<String, Dimension<?>> parseDimensions( String layerName, List<DimensionType> dimensions ) {
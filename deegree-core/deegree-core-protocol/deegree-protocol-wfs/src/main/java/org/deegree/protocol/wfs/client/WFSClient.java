@@ -56,7 +56,6 @@ import org.apache.axiom.om.OMElement;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.tom.ows.Version;
 import org.deegree.commons.utils.io.StreamBufferStore;
-import org.deegree.commons.xml.GenericLSInput;
 import org.deegree.commons.xml.stax.XMLStreamUtils;
 import org.deegree.cs.exceptions.TransformationException;
 import org.deegree.cs.exceptions.UnknownCRSException;
@@ -66,7 +65,7 @@ import org.deegree.feature.types.FeatureType;
 import org.deegree.filter.Filter;
 import org.deegree.filter.xml.Filter110XMLEncoder;
 import org.deegree.gml.GMLVersion;
-import org.deegree.gml.schema.GMLAppSchemaReader;
+import org.deegree.gml.schema.AppSchemaCache;
 import org.deegree.protocol.ows.client.AbstractOWSClient;
 import org.deegree.protocol.ows.exception.OWSExceptionReport;
 import org.deegree.protocol.ows.http.OwsHttpResponse;
@@ -81,7 +80,6 @@ import org.deegree.protocol.wfs.getgmlobject.GetGmlObject;
 import org.deegree.protocol.wfs.metadata.WFSFeatureType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.w3c.dom.ls.LSInput;
 
 /**
  * API-level client for accessing servers that implement the <a
@@ -228,11 +226,8 @@ public class WFSClient extends AbstractOWSClient<WFSCapabilitiesAdapter> {
             }
 
             try {
-                LSInput input = new GenericLSInput();
-                input.setByteStream( tmpStore.getInputStream() );
-                input.setSystemId( xmlStream.getLocation().getSystemId() );
-                GMLAppSchemaReader schemaDecoder = new GMLAppSchemaReader( null, null, input );
-                schema = schemaDecoder.extractAppSchema();
+                schema = AppSchemaCache.getAppSchema( null, xmlStream.getLocation().getSystemId(),
+                                                      tmpStore.getInputStream() );
             } catch ( Throwable t ) {
                 String msg = "Error parsing DescribeFeatureType response as GML application schema: " + t.getMessage();
                 throw new IOException( msg, t );
@@ -0,0 +1,88 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d;
+
+import java.awt.Font;
+import java.awt.Shape;
+
+import org.deegree.style.styling.TextStyling;
+
+/**
+ * A label that follows a line (or a polygon boundary). The glyph outlines are laid out when the label is created, so
+ * the label placement can test them for collisions before they are drawn.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class CurveLabel extends Label {
+
+    private final Shape textShape;
+
+    private final Shape haloShape;
+
+    /**
+     * @param styling
+     *            never <code>null</code>
+     * @param font
+     *            never <code>null</code>
+     * @param text
+     *            never <code>null</code>
+     * @param textShape
+     *            the glyph outlines in screen coordinates, never <code>null</code>
+     * @param haloShape
+     *            the outline of the halo in screen coordinates, may be <code>null</code>
+     */
+    public CurveLabel( TextStyling styling, Font font, String text, Shape textShape, Shape haloShape ) {
+        super( styling, font, text );
+        this.textShape = textShape;
+        this.haloShape = haloShape;
+    }
+
+    /**
+     * @return the glyph outlines in screen coordinates, never <code>null</code>
+     */
+    public Shape getTextShape() {
+        return textShape;
+    }
+
+    /**
+     * @return the outline of the halo in screen coordinates, may be <code>null</code>
+     */
+    public Shape getHaloShape() {
+        return haloShape;
+    }
+
+}
@@ -41,10 +41,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.rendering.r2d;
 
-import static org.deegree.commons.utils.math.MathUtils.isZero;
 import static org.deegree.rendering.r2d.OrientationFixer.fixOrientation;
 
-import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometries;
 import org.deegree.geometry.Geometry;
@@ -57,9 +55,6 @@ import org.deegree.geometry.standard.AbstractDefaultGeometry;
 import org.deegree.geometry.standard.DefaultEnvelope;
 import org.deegree.geometry.standard.primitive.DefaultPoint;
 import org.deegree.geometry.standard.primitive.DefaultSurface;
-import org.deegree.style.styling.LineStyling;
-import org.deegree.style.styling.PolygonStyling;
-import org.deegree.style.styling.components.Stroke;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -78,9 +73,12 @@ class GeometryClipper {
 
     private final Polygon clippingArea;
 
+    private final Envelope clippingEnvelope;
+
     GeometryClipper( final Envelope viewPort, final int width ) {
         this.viewPort = viewPort;
         this.clippingArea = calculateClippingArea( viewPort, width );
+        this.clippingEnvelope = clippingArea.getEnvelope();
     }
 
     private Polygon calculateClippingArea( final Envelope bbox, final int width ) {
@@ -103,7 +101,7 @@ class GeometryClipper {
      * @return the clipped geometry or the original geometry if the geometry lays completely in the drawing area.
      */
     Geometry clipGeometry( final Geometry geom ) {
-        return clipGeometry( geom, clippingArea );
+        return clipGeometry( geom, clippingArea, clippingEnvelope );
     }
 
     /**
@@ -117,7 +115,7 @@ class GeometryClipper {
     MultiPoint calculateInteriorPoints( final Geometry geom ) {
         if ( geom == null )
             return null;
-        Geometry clippedGeometry = clipGeometry( geom, viewPort );
+        Geometry clippedGeometry = clipGeometry( geom, viewPort, viewPort );
         List<Point> points = new ArrayList<Point>();
         if ( clippedGeometry != null && clippedGeometry instanceof DefaultSurface ) {
             points.add( ( (DefaultSurface) clippedGeometry ).getInteriorPoint() );
@@ -132,9 +130,18 @@ class GeometryClipper {
         return new GeometryFactory().createMultiPoint( null, geom.getCoordinateSystem(), points );
     }
 
-
-    Geometry clipGeometry( final Geometry geom, Geometry clippingArea ) {
-        if ( clippingArea != null && !clippingArea.contains( geom ) ) {
+    private Geometry clipGeometry( final Geometry geom, final Geometry clippingArea, final Envelope clippingEnvelope ) {
+        // the clipping areas are rectangles, so comparing envelopes decides the common cases without JTS overlays
+        final Envelope env = geom.getEnvelope();
+        if ( env != null ) {
+            if ( isDisjoint( env, clippingEnvelope ) ) {
+                return null;
+            }
+            if ( isWithin( env, clippingEnvelope ) ) {
+                return geom;
+            }
+        }
+        if ( !clippingArea.contains( geom ) ) {
             try {
                 Geometry clippedGeometry = clippingArea.getIntersection( geom );
                 if ( clippedGeometry == null ) {
@@ -158,6 +165,16 @@ class GeometryClipper {
         return geom;
     }
 
+    private static boolean isDisjoint( final Envelope env, final Envelope clip ) {
+        return env.getMax().get0() < clip.getMin().get0() || env.getMin().get0() > clip.getMax().get0()
+               || env.getMax().get1() < clip.getMin().get1() || env.getMin().get1() > clip.getMax().get1();
+    }
+
+    private static boolean isWithin( final Envelope env, final Envelope clip ) {
+        return env.getMin().get0() >= clip.getMin().get0() && env.getMax().get0() <= clip.getMax().get0()
+               && env.getMin().get1() >= clip.getMin().get1() && env.getMax().get1() <= clip.getMax().get1();
+    }
+
     /**
      * Check if the passed Geometry is a Polygon (or the first Geometry of a Collection) and the exterior Ring has CW orientation  
      * 
@@ -196,27 +213,4 @@ class GeometryClipper {
         return false;
     }
 
-    public static boolean isGenerationExpensive( PolygonStyling styling ) {
-        if ( styling == null )
-            return false;
-        
-        return ( !isZero( styling.perpendicularOffset ) || isGenerationExpensive( styling.stroke ));
-    }
-
-    public static boolean isGenerationExpensive( LineStyling styling ) {
-        if ( styling == null )
-            return false;
-        
-        return ( !isZero( styling.perpendicularOffset ) || isGenerationExpensive( styling.stroke ) );
-    }
-
-    private static boolean isGenerationExpensive( Stroke styling ) {
-        if ( styling == null )
-            return false;
-
-        if ( styling.dasharray != null || styling.stroke != null )
-            return true;
-
-        return false;
-    }
 }
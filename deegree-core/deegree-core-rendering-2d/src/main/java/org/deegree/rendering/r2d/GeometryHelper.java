@@ -80,8 +80,11 @@ class GeometryHelper {
 
     private AffineTransform worldToScreen;
 
+    private final GeometryPreparer preparer;
+
     GeometryHelper( Envelope bbox, int width, AffineTransform worldToScreen ) {
         this.worldToScreen = worldToScreen;
+        this.preparer = new GeometryPreparer( worldToScreen, bbox );
         try {
             if ( bbox.getCoordinateSystem() != null && ( !bbox.getCoordinateSystem().getAlias().equals( "CRS:1" ) ) ) {
                 transformer = new GeometryTransformer( bbox.getCoordinateSystem() );
@@ -122,6 +125,27 @@ class GeometryHelper {
         return line;
     }
 
+    /**
+     * Converts the curve into a screen path for drawing. Other than {@link #fromCurve(Curve, boolean)}, the path is
+     * clipped to the (padded) viewport and vertices falling onto the same pixel are dropped.
+     * 
+     * @param curve
+     *            the curve in world coordinates, never <code>null</code>
+     * @param ring
+     *            true, if the curve is a polygon ring
+     * @return the path in screen coordinates, <code>null</code> if the curve is outside of the viewport
+     */
+    Double fromCurveClipped( Curve curve, boolean ring ) {
+        curve = linearizer.linearize( curve, new NumPointsCriterion( 100 ) );
+        Points points = curve.getControlPoints();
+        int dim = points.getDimension();
+        double[] coords = points.getAsArray();
+        if ( dim < 2 || coords.length != dim * points.size() ) {
+            return fromCurve( curve, ring );
+        }
+        return preparer.prepare( coords, dim, ring );
+    }
+
     <T extends Geometry> T transform( T g ) {
         if ( g == null ) {
             LOG.warn( "Trying to transform null geometry." );
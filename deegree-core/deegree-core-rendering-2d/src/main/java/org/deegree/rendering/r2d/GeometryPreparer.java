@@ -0,0 +1,337 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d;
+
+import static java.lang.Math.floor;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D.Double;
+
+import org.deegree.geometry.Envelope;
+
+/**
+ * Prepares linear coordinate sequences for Java2D rendering. The coordinates are transformed to device space, clipped
+ * against the (padded) viewport and consecutive vertices that fall onto the same device pixel are dropped, before the
+ * resulting path is built from primitive arrays.
+ * <p>
+ * Rings are clipped with the Sutherland-Hodgman algorithm, which keeps their orientation and yields the correct fill
+ * area (edges along the clipping rectangle lie outside of the visible area because of the padding). Lines are clipped
+ * segment-wise with the Liang-Barsky algorithm and may be split into several sub paths.
+ * </p>
+ * <p>
+ * Instances keep reusable buffers and are not thread safe, just like the renderer they belong to.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+class GeometryPreparer {
+
+    /** Padding of the clipping rectangle in pixels, wide strokes and offsets must not reveal the clipped edges. */
+    static final double PADDING = 100;
+
+    private final double m00, m01, m02, m10, m11, m12;
+
+    private final double clipMinX, clipMinY, clipMaxX, clipMaxY;
+
+    private double[] xs = new double[256];
+
+    private double[] ys = new double[256];
+
+    private double[] clipXs = new double[256];
+
+    private double[] clipYs = new double[256];
+
+    private final double[] p = new double[4];
+
+    private final double[] q = new double[4];
+
+    GeometryPreparer( AffineTransform worldToScreen, Envelope bbox ) {
+        m00 = worldToScreen.getScaleX();
+        m01 = worldToScreen.getShearX();
+        m02 = worldToScreen.getTranslateX();
+        m10 = worldToScreen.getShearY();
+        m11 = worldToScreen.getScaleY();
+        m12 = worldToScreen.getTranslateY();
+        double x0 = m00 * bbox.getMin().get0() + m01 * bbox.getMin().get1() + m02;
+        double y0 = m10 * bbox.getMin().get0() + m11 * bbox.getMin().get1() + m12;
+        double x1 = m00 * bbox.getMax().get0() + m01 * bbox.getMax().get1() + m02;
+        double y1 = m10 * bbox.getMax().get0() + m11 * bbox.getMax().get1() + m12;
+        clipMinX = min( x0, x1 ) - PADDING;
+        clipMinY = min( y0, y1 ) - PADDING;
+        clipMaxX = max( x0, x1 ) + PADDING;
+        clipMaxY = max( y0, y1 ) + PADDING;
+    }
+
+    /**
+     * @param coords
+     *            world coordinates, <code>dim</code> ordinates per point, must not be <code>null</code>
+     * @param dim
+     *            the number of ordinates per point, at least 2
+     * @param ring
+     *            true, if the coordinates form a closed ring
+     * @return the prepared path in device space, <code>null</code> if nothing of it is visible
+     */
+    Double prepare( double[] coords, int dim, boolean ring ) {
+        int n = coords.length / dim;
+        if ( n == 0 ) {
+            return null;
+        }
+        ensureCapacity( n );
+        double minX = java.lang.Double.POSITIVE_INFINITY, minY = minX;
+        double maxX = java.lang.Double.NEGATIVE_INFINITY, maxY = maxX;
+        for ( int i = 0, j = 0; i < n; ++i, j += dim ) {
+            double x = coords[j], y = coords[j + 1];
+            double dx = m00 * x + m01 * y + m02;
+            double dy = m10 * x + m11 * y + m12;
+            xs[i] = dx;
+            ys[i] = dy;
+            minX = min( minX, dx );
+            minY = min( minY, dy );
+            maxX = max( maxX, dx );
+            maxY = max( maxY, dy );
+        }
+        if ( maxX < clipMinX || minX > clipMaxX || maxY < clipMinY || minY > clipMaxY ) {
+            return null;
+        }
+        boolean inside = minX >= clipMinX && maxX <= clipMaxX && minY >= clipMinY && maxY <= clipMaxY;
+        Double path = new Double( Double.WIND_NON_ZERO, min( n, 1024 ) );
+        if ( ring ) {
+            if ( n > 1 && xs[n - 1] == xs[0] && ys[n - 1] == ys[0] ) {
+                --n;
+            }
+            if ( !inside ) {
+                n = clipRing( n );
+                if ( n < 3 ) {
+                    return null;
+                }
+            }
+            append( path, xs, ys, 0, n, true );
+        } else if ( inside ) {
+            append( path, xs, ys, 0, n, false );
+        } else {
+            clipLine( path, n );
+        }
+        return path.getCurrentPoint() == null ? null : path;
+    }
+
+    private void ensureCapacity( int n ) {
+        // the buffers are swapped while clipping rings, so their sizes may differ
+        if ( xs.length < n ) {
+            int size = max( n, xs.length * 2 );
+            xs = new double[size];
+            ys = new double[size];
+        }
+        ensureClipCapacity( n );
+    }
+
+    private void ensureClipCapacity( int needed ) {
+        if ( clipXs.length < needed ) {
+            int size = max( needed, clipXs.length * 2 );
+            clipXs = new double[size];
+            clipYs = new double[size];
+        }
+    }
+
+    /**
+     * Appends the vertices, dropping those that fall onto the same device pixel as the previously appended one. The
+     * last vertex of a line is always kept, so a line always ends at its true end point.
+     */
+    private static void append( Double path, double[] x, double[] y, int from, int to, boolean close ) {
+        path.moveTo( x[from], y[from] );
+        int lastX = (int) floor( x[from] );
+        int lastY = (int) floor( y[from] );
+        int last = close ? to : to - 1;
+        for ( int i = from + 1; i < last; ++i ) {
+            int px = (int) floor( x[i] );
+            int py = (int) floor( y[i] );
+            if ( px != lastX || py != lastY ) {
+                path.lineTo( x[i], y[i] );
+                lastX = px;
+                lastY = py;
+            }
+        }
+        if ( close ) {
+            path.closePath();
+        } else {
+            path.lineTo( x[to - 1], y[to - 1] );
+        }
+    }
+
+    /**
+     * Sutherland-Hodgman clipping of the ring in xs/ys against the clipping rectangle.
+     * 
+     * @return the number of vertices of the clipped ring, which is stored in xs/ys again
+     */
+    private int clipRing( int n ) {
+        n = clipEdge( n, 0, clipMinX );
+        n = clipEdge( n, 1, clipMaxX );
+        n = clipEdge( n, 2, clipMinY );
+        return clipEdge( n, 3, clipMaxY );
+    }
+
+    private int clipEdge( int n, int edge, double v ) {
+        if ( n == 0 ) {
+            return 0;
+        }
+        // every vertex yields at most two output vertices (non-convex rings may cross the edge at every vertex)
+        ensureClipCapacity( 2 * n );
+        double[] inX = xs, inY = ys, outX = clipXs, outY = clipYs;
+        int m = 0;
+        double px = inX[n - 1], py = inY[n - 1];
+        boolean pIn = isInside( edge, v, px, py );
+        for ( int i = 0; i < n; ++i ) {
+            double cx = inX[i], cy = inY[i];
+            boolean cIn = isInside( edge, v, cx, cy );
+            if ( cIn != pIn ) {
+                double t;
+                if ( edge < 2 ) {
+                    t = ( v - px ) / ( cx - px );
+                    outX[m] = v;
+                    outY[m] = py + t * ( cy - py );
+                } else {
+                    t = ( v - py ) / ( cy - py );
+                    outX[m] = px + t * ( cx - px );
+                    outY[m] = v;
+                }
+                ++m;
+            }
+            if ( cIn ) {
+                outX[m] = cx;
+                outY[m] = cy;
+                ++m;
+            }
+            px = cx;
+            py = cy;
+            pIn = cIn;
+        }
+        xs = outX;
+        ys = outY;
+        clipXs = inX;
+        clipYs = inY;
+        return m;
+    }
+
+    private static boolean isInside( int edge, double v, double x, double y ) {
+        switch ( edge ) {
+        case 0:
+            return x >= v;
+        case 1:
+            return x <= v;
+        case 2:
+            return y >= v;
+        default:
+            return y <= v;
+        }
+    }
+
+    /**
+     * Liang-Barsky clipping of the line in xs/ys, every visible run of segments becomes a sub path.
+     */
+    private void clipLine( Double path, int n ) {
+        double[] outX = clipXs, outY = clipYs;
+        int m = 0;
+        if ( n == 1 ) {
+            if ( contains( xs[0], ys[0] ) ) {
+                append( path, xs, ys, 0, 1, false );
+            }
+            return;
+        }
+        for ( int i = 1; i < n; ++i ) {
+            double x0 = xs[i - 1], y0 = ys[i - 1];
+            double dx = xs[i] - x0, dy = ys[i] - y0;
+            double t0 = 0, t1 = 1;
+            p[0] = -dx;
+            p[1] = dx;
+            p[2] = -dy;
+            p[3] = dy;
+            q[0] = x0 - clipMinX;
+            q[1] = clipMaxX - x0;
+            q[2] = y0 - clipMinY;
+            q[3] = clipMaxY - y0;
+            boolean visible = true;
+            for ( int k = 0; k < 4 && visible; ++k ) {
+                if ( p[k] == 0 ) {
+                    visible = q[k] >= 0;
+                } else {
+                    double r = q[k] / p[k];
+                    if ( p[k] < 0 ) {
+                        if ( r > t1 ) {
+                            visible = false;
+                        } else if ( r > t0 ) {
+                            t0 = r;
+                        }
+                    } else {
+                        if ( r < t0 ) {
+                            visible = false;
+                        } else if ( r < t1 ) {
+                            t1 = r;
+                        }
+                    }
+                }
+            }
+            if ( !visible ) {
+                if ( m > 0 ) {
+                    append( path, outX, outY, 0, m, false );
+                    m = 0;
+                }
+                continue;
+            }
+            if ( m == 0 ) {
+                outX[0] = x0 + t0 * dx;
+                outY[0] = y0 + t0 * dy;
+                m = 1;
+            }
+            outX[m] = x0 + t1 * dx;
+            outY[m] = y0 + t1 * dy;
+            ++m;
+            if ( t1 < 1 ) {
+                append( path, outX, outY, 0, m, false );
+                m = 0;
+            }
+        }
+        if ( m > 0 ) {
+            append( path, outX, outY, 0, m, false );
+        }
+    }
+
+    private boolean contains( double x, double y ) {
+        return x >= clipMinX && x <= clipMaxX && y >= clipMinY && y <= clipMaxY;
+    }
+
+}
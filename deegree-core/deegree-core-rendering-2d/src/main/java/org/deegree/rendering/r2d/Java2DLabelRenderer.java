@@ -51,6 +51,8 @@ import static org.slf4j.LoggerFactory.getLogger;
 
 import java.awt.BasicStroke;
 import java.awt.Font;
+import java.awt.Shape;
+import java.awt.Stroke;
 import java.awt.font.FontRenderContext;
 import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
@@ -131,9 +133,9 @@ public class Java2DLabelRenderer implements LabelRenderer {
         if ( geom instanceof Point ) {
             labelList.add( createLabel( styling, font, text, (Point) geom ) );
         } else if ( geom instanceof Surface && styling.linePlacement != null ) {
-            textRenderer.render( styling, font, text, (Surface) geom );
+            createCurveLabels( styling, font, text, (Surface) geom );
         } else if ( geom instanceof Curve && styling.linePlacement != null ) {
-            textRenderer.render( styling, font, text, (Curve) geom );
+            createCurveLabel( styling, font, text, (Curve) geom );
         } else if ( geom instanceof Polygon && styling.auto ) {
             handlePolygonWithAutoPlacement( styling, font, text, (Polygon) geom );
         } else if ( geom instanceof GeometricPrimitive ) {
@@ -193,8 +195,41 @@ public class Java2DLabelRenderer implements LabelRenderer {
         }
     }
 
+    private void createCurveLabels( TextStyling styling, Font font, String text, Surface surface ) {
+        for ( Curve curve : Java2DTextRenderer.getBoundaryRings( surface ) ) {
+            createCurveLabel( styling, font, text, curve );
+        }
+    }
+
+    private void createCurveLabel( TextStyling styling, Font font, String text, Curve c ) {
+        Stroke stroke = textRenderer.createTextStroke( styling, font, text );
+        if ( stroke == null ) {
+            return;
+        }
+        Double line = context.geomHelper.fromCurve( c, false );
+        Shape haloShape = null;
+        if ( styling.halo != null ) {
+            haloShape = textRenderer.createHaloStroke( styling, font, text ).createStrokedShape( line );
+        }
+        labelList.add( new CurveLabel( styling, font, text, stroke.createStrokedShape( line ), haloShape ) );
+    }
+
+    private void render( CurveLabel label ) {
+        TextStyling styling = label.getStyling();
+        if ( label.getHaloShape() != null ) {
+            context.fillRenderer.applyFill( styling.halo.fill, styling.uom );
+            renderer.graphics.fill( label.getHaloShape() );
+        }
+        context.fillRenderer.applyFill( styling.fill, styling.uom );
+        renderer.graphics.fill( label.getTextShape() );
+    }
+
     @Override
     public void render( Label pLabel ) {
+        if ( pLabel instanceof CurveLabel ) {
+            render( (CurveLabel) pLabel );
+            return;
+        }
 
         renderer.graphics.setFont( pLabel.getFont() );
         AffineTransform transform = renderer.graphics.getTransform();
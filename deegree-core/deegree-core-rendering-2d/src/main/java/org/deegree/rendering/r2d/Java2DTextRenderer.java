@@ -54,7 +54,9 @@ import java.awt.font.TextLayout;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Path2D.Double;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import org.deegree.commons.annotations.LoggingNotes;
 import org.deegree.geometry.Geometry;
@@ -158,16 +160,28 @@ public class Java2DTextRenderer implements TextRenderer {
     }
 
     void render( TextStyling styling, Font font, String text, Surface surface ) {
+        for ( Curve curve : getBoundaryRings( surface ) ) {
+            render( styling, font, text, curve );
+        }
+    }
+
+    /**
+     * @param surface
+     *            surface to label along its boundary, never <code>null</code>
+     * @return the boundary rings of all patches, never <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the surface contains non-planar patches
+     */
+    static List<Curve> getBoundaryRings( Surface surface ) {
+        List<Curve> rings = new ArrayList<Curve>();
         for ( SurfacePatch patch : surface.getPatches() ) {
             if ( patch instanceof PolygonPatch ) {
-                PolygonPatch polygonPatch = (PolygonPatch) patch;
-                for ( Curve curve : polygonPatch.getBoundaryRings() ) {
-                    render( styling, font, text, curve );
-                }
+                rings.addAll( ( (PolygonPatch) patch ).getBoundaryRings() );
             } else {
                 throw new IllegalArgumentException( "Cannot render non-planar surfaces." );
             }
         }
+        return rings;
     }
 
     void render( TextStyling styling, Font font, String text, Point p ) {
@@ -212,18 +226,14 @@ public class Java2DTextRenderer implements TextRenderer {
     }
 
     void render( TextStyling styling, Font font, String text, Curve c ) {
-        java.awt.Stroke stroke = new TextStroke( text, font, styling.linePlacement );
-        if ( isZero( ( (TextStroke) stroke ).getLineHeight() ) ) {
+        Stroke stroke = createTextStroke( styling, font, text );
+        if ( stroke == null ) {
             return;
         }
-        stroke = applyOffset( styling, stroke );
         Double line = renderer.rendererContext.geomHelper.fromCurve( c, false );
         if ( styling.halo != null ) {
-            Stroke haloStroke = new HaloStroke( text, font, styling.linePlacement, styling.halo, styling.uom,
-                                                renderer.rendererContext.uomCalculator );
-            haloStroke = applyOffset( styling, haloStroke );
             renderer.rendererContext.fillRenderer.applyFill( styling.halo.fill, styling.uom );
-            renderer.graphics.setStroke( haloStroke );
+            renderer.graphics.setStroke( createHaloStroke( styling, font, text ) );
             renderer.graphics.draw( line );
         }
 
@@ -265,7 +275,28 @@ public class Java2DTextRenderer implements TextRenderer {
         return font;
     }
 
-    private java.awt.Stroke applyOffset( TextStyling styling, java.awt.Stroke stroke ) {
+    /**
+     * @return the stroke drawing the text along a line (including the perpendicular offset), <code>null</code> if the
+     *         text has no height
+     */
+    Stroke createTextStroke( TextStyling styling, Font font, String text ) {
+        TextStroke stroke = new TextStroke( text, font, styling.linePlacement );
+        if ( isZero( stroke.getLineHeight() ) ) {
+            return null;
+        }
+        return applyOffset( styling, stroke );
+    }
+
+    /**
+     * @return the stroke drawing the halo of a text along a line (including the perpendicular offset)
+     */
+    Stroke createHaloStroke( TextStyling styling, Font font, String text ) {
+        Stroke haloStroke = new HaloStroke( text, font, styling.linePlacement, styling.halo, styling.uom,
+                                            renderer.rendererContext.uomCalculator );
+        return applyOffset( styling, haloStroke );
+    }
+
+    private Stroke applyOffset( TextStyling styling, Stroke stroke ) {
         if ( !isZero( styling.linePlacement.perpendicularOffset ) ) {
             stroke = new OffsetStroke( styling.linePlacement.perpendicularOffset, stroke,
                                        styling.linePlacement.perpendicularOffsetType );
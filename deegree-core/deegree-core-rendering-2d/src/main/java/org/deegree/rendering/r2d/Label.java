@@ -81,6 +81,15 @@ public class Label {
         
     }
     
+    /**
+     * Constructor for labels without a single text layout (see {@link CurveLabel}).
+     */
+    protected Label( TextStyling pStyling, Font pFont, String pText ) {
+        mStyling = pStyling;
+        mFont = pFont;
+        mText = pText;
+    }
+
     public TextLayout getLayout() {
         return mLayout;
     }
@@ -95,9 +95,14 @@ class PolygonRenderer {
                 // inside and thus no substraction etc. is needed. This speeds up things SIGNIFICANTLY
                 GeneralPath polygon = new GeneralPath( WIND_EVEN_ODD );
                 for ( Curve curve : polygonPatch.getBoundaryRings() ) {
-                    Double d = geomHelper.fromCurve( curve, true );
-                    lines.add( d );
-                    polygon.append( d, false );
+                    Double d = geomHelper.fromCurveClipped( curve, true );
+                    if ( d != null ) {
+                        lines.add( d );
+                        polygon.append( d, false );
+                    }
+                }
+                if ( lines.isEmpty() ) {
+                    continue;
                 }
 
                 fillRenderer.applyFill( styling.fill, styling.uom );
@@ -49,7 +49,6 @@ import static java.awt.RenderingHints.VALUE_RENDER_QUALITY;
 import static java.awt.RenderingHints.VALUE_RENDER_SPEED;
 import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_OFF;
 import static java.awt.RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
-import static javax.imageio.ImageIO.write;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
 import java.awt.Graphics2D;
@@ -57,6 +56,8 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.OutputStream;
 
+import org.deegree.rendering.r2d.encoding.ImageEncoder;
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
 import org.deegree.style.utils.ColorQuantizer;
 import org.deegree.style.utils.ImageUtils;
 
@@ -75,6 +76,8 @@ public class ImageRenderContext extends Java2DRenderContext {
     
     private final RenderingInfo info;
 
+    private ImageEncodingOptions encoding;
+
     private ImageRenderContext( RenderingInfo info, BufferedImage image, Graphics2D graphics, OutputStream outputStream ) {
         super( info, graphics, outputStream );
         
@@ -100,20 +103,15 @@ public class ImageRenderContext extends Java2DRenderContext {
             graphics.dispose();
             
             if ( outputStream != null ) {
-                BufferedImage image = this.image;
-                String format = this.format.substring( this.format.indexOf( "/" ) + 1 );
-                if ( format.equals( "x-ms-bmp" ) ) {
-                    format = "bmp";
-                }
-                if ( format.equals( "png; subtype=8bit" ) || format.equals( "png; mode=8bit" ) ) {
-                    image = ColorQuantizer.quantizeImage( image, 256, false, false );
-                    format = "png";
-                }
-                
-                if (info.getSerializer() != null){
+                if ( info.getSerializer() != null ) {
+                    BufferedImage image = this.image;
+                    String format = ImageEncoder.getFormatName( this.format );
+                    if ( format.equals( "png8" ) ) {
+                        image = ColorQuantizer.quantizeImage( image, 256, false, false );
+                    }
                     info.getSerializer().serialize( info, image, outputStream );
                 } else {
-                    return write( image, format, outputStream );
+                    return ImageEncoder.encode( image, format, outputStream, encoding );
                 }
             }
         } finally {
@@ -127,6 +125,14 @@ public class ImageRenderContext extends Java2DRenderContext {
         applyQuality( options );
         applyInterpolation( options );
         applyAntialias( options );
+        applyEncoding( options );
+    }
+
+    private void applyEncoding( MapOptions options ) {
+        ImageEncodingOptions layerEncoding = options.getImageEncoding();
+        if ( layerEncoding != null ) {
+            encoding = layerEncoding.merge( encoding );
+        }
     }
 
     private void applyAntialias( MapOptions options ) {
@@ -10,9 +10,15 @@ import org.deegree.rendering.r2d.Java2DRasterRenderer;
 import org.deegree.rendering.r2d.Java2DRenderer;
 import org.deegree.rendering.r2d.Java2DTextRenderer;
 import org.deegree.rendering.r2d.Java2DTileRenderer;
-import org.deegree.rendering.r2d.labelplacement.AutoLabelPlacement;
+import org.deegree.rendering.r2d.labelplacement.LabelPlacementEngine;
 
 public abstract class Java2DRenderContext implements RenderContext {
+
+    /**
+     * System property to enable the simulated annealing of conflicting labels, set to <code>true</code> to improve the
+     * greedy placement (off by default).
+     */
+    public static final String LABEL_ANNEALING = "deegree.rendering.labels.annealing";
     
     protected final Graphics2D graphics;
     
@@ -28,9 +34,15 @@ public abstract class Java2DRenderContext implements RenderContext {
 
     protected final Java2DTileRenderer tileRenderer;
 
+    private final int width;
+
+    private final int height;
+
     public Java2DRenderContext( RenderingInfo info, Graphics2D graphics, OutputStream outputStream ) {        
         this.graphics = graphics;
         this.outputStream = outputStream;
+        this.width = info.getWidth();
+        this.height = info.getHeight();
         
         renderer = new Java2DRenderer( graphics, info.getWidth(), info.getHeight(), info.getEnvelope(),
                                        info.getPixelSize() * 1000 );
@@ -67,13 +79,11 @@ public abstract class Java2DRenderContext implements RenderContext {
     
     @Override
     public void optimizeAndDrawLabels() {
-        //Optimize Label Placement here, if pointplacement set to auto=true
-        try{
-            new AutoLabelPlacement(labelRenderer.getLabels(), renderer );
-        } catch ( Throwable e ) {
-            e.printStackTrace();
-        }
-        labelRenderer.render( );
+        boolean anneal = Boolean.getBoolean( LABEL_ANNEALING );
+        LabelPlacementEngine engine = new LabelPlacementEngine( width, height, renderer.rendererContext.uomCalculator,
+                                                                anneal );
+        labelRenderer.render( engine.place( labelRenderer.getLabels() ) );
+        labelRenderer.getLabels().clear();
     }
     
     @Override
@@ -35,6 +35,8 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.rendering.r2d.context;
 
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
+
 /**
  * 
  * @author <a href="mailto:schmitz@lat-lon.de">Andreas Schmitz</a>
@@ -54,6 +56,8 @@ public class MapOptions {
 
     private boolean opaque;
 
+    private ImageEncodingOptions imageEncoding;
+
     public MapOptions( Quality quality, Interpolation interpol, Antialias antialias, int maxFeatures,
                        int featureInfoRadius ) {
         this( quality, interpol, antialias, maxFeatures, featureInfoRadius, false );
@@ -159,6 +163,21 @@ public class MapOptions {
         this.opaque = opaque;
     }
 
+    /**
+     * @return the options for encoding the rendered image, may be <code>null</code>
+     */
+    public ImageEncodingOptions getImageEncoding() {
+        return imageEncoding;
+    }
+
+    /**
+     * @param imageEncoding
+     *            the options for encoding the rendered image, may be <code>null</code>
+     */
+    public void setImageEncoding( ImageEncodingOptions imageEncoding ) {
+        this.imageEncoding = imageEncoding;
+    }
+
     /**
      * <code>Quality</code>
      * 
@@ -58,6 +58,18 @@ public class MapOptionsHelper {
         insertInterpolation( layer, options, layerDefaults, globalDefaults );
         insertMaxFeatures( layer, options, layerDefaults, globalDefaults );
         insertRadius( layer, options, layerDefaults, globalDefaults );
+        insertImageEncoding( layer, options, layerDefaults, globalDefaults );
+    }
+
+    private static void insertImageEncoding( String layer, MapOptionsMaps options, MapOptions layerDefaults,
+                                             MapOptions globalDefaults ) {
+        if ( options.getImageEncoding( layer ) == null ) {
+            if ( layerDefaults != null && layerDefaults.getImageEncoding() != null ) {
+                options.setImageEncoding( layer, layerDefaults.getImageEncoding() );
+            } else if ( globalDefaults != null && globalDefaults.getImageEncoding() != null ) {
+                options.setImageEncoding( layer, globalDefaults.getImageEncoding() );
+            }
+        }
     }
 
     private static void insertRadius( String layer, MapOptionsMaps options, MapOptions layerDefaults,
@@ -42,6 +42,7 @@ import java.util.Map.Entry;
 import org.deegree.rendering.r2d.context.MapOptions.Antialias;
 import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
 import org.deegree.rendering.r2d.context.MapOptions.Quality;
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
 
 /**
  * 
@@ -108,6 +109,11 @@ public class MapOptionsMaps {
         return opts == null ? null : opts.getInterpolation();
     }
 
+    public ImageEncodingOptions getImageEncoding( String layer ) {
+        MapOptions opts = options.get( layer );
+        return opts == null ? null : opts.getImageEncoding();
+    }
+
     public void setMaxFeatures( String layer, int maxFeatures ) {
         if ( options.get( layer ) == null ) {
             options.put( layer, new MapOptions( null, null, null, maxFeatures, -1 ) );
@@ -148,9 +154,18 @@ public class MapOptionsMaps {
         }
     }
 
+    public void setImageEncoding( String layer, ImageEncodingOptions encoding ) {
+        if ( options.get( layer ) == null ) {
+            options.put( layer, new MapOptions( null, null, null, -1, -1 ) );
+        }
+        options.get( layer ).setImageEncoding( encoding );
+    }
+
     public MapOptions get( String layer ) {
-        return new MapOptions( getQuality( layer ), getInterpolation( layer ), getAntialias( layer ),
-                               getMaxFeatures( layer ), getFeatureInfoRadius( layer ) );
+        MapOptions opts = new MapOptions( getQuality( layer ), getInterpolation( layer ), getAntialias( layer ),
+                                          getMaxFeatures( layer ), getFeatureInfoRadius( layer ) );
+        opts.setImageEncoding( getImageEncoding( layer ) );
+        return opts;
     }
 
 }
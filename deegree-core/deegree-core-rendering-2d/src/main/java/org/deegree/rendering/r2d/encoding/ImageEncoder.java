@@ -0,0 +1,155 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.encoding;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.spi.ImageWriterSpi;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.deegree.style.utils.ColorQuantizer;
+import org.slf4j.Logger;
+
+/**
+ * Entry point for encoding rendered images into output formats.
+ * <p>
+ * <code>image/png</code> and the 8 bit variants (<code>image/png; mode=8bit</code>,
+ * <code>image/png; subtype=8bit</code>) are written with the {@link PngEncoder}, the 8 bit ones after quantizing the
+ * image with the {@link ColorQuantizer}. All other formats are written using ImageIO, with the writer provider looked
+ * up once per format and an in-memory image output stream instead of the default file cache.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ImageEncoder {
+
+    private static final Logger LOG = getLogger( ImageEncoder.class );
+
+    private static final ConcurrentMap<String, ImageWriterSpi> WRITERS = new ConcurrentHashMap<String, ImageWriterSpi>();
+
+    private ImageEncoder() {
+        // no instances
+    }
+
+    /**
+     * @param format
+     *            a mime type like <code>image/png</code> or an ImageIO format name
+     * @return the ImageIO format name, e.g. <code>png</code>, or <code>png8</code> for the 8 bit PNG variants
+     */
+    public static String getFormatName( String format ) {
+        String name = format.substring( format.indexOf( "/" ) + 1 );
+        if ( name.equals( "x-ms-bmp" ) ) {
+            return "bmp";
+        }
+        if ( name.equals( "png; subtype=8bit" ) || name.equals( "png; mode=8bit" ) ) {
+            return "png8";
+        }
+        return name;
+    }
+
+    /**
+     * Encodes the image. The stream is not closed.
+     * 
+     * @param img
+     *            the image to encode, must not be <code>null</code>
+     * @param format
+     *            the mime type or format name, must not be <code>null</code>
+     * @param out
+     *            the stream to write to, must not be <code>null</code>
+     * @param options
+     *            the encoding options, may be <code>null</code> for the defaults
+     * @return false, if no encoder is available for the format and image
+     * @throws IOException
+     */
+    public static boolean encode( BufferedImage img, String format, OutputStream out, ImageEncodingOptions options )
+                            throws IOException {
+        String name = getFormatName( format );
+        if ( name.equals( "png8" ) ) {
+            PngEncoder.encode( ColorQuantizer.quantizeImage( img, 256, false, false ), out, options );
+            return true;
+        }
+        if ( name.equals( "png" ) ) {
+            PngEncoder.encode( img, out, options );
+            return true;
+        }
+        ImageWriterSpi spi = getWriterSpi( name );
+        if ( spi == null || !spi.canEncodeImage( img ) ) {
+            return ImageIO.write( img, name, out );
+        }
+        ImageWriter writer = spi.createWriterInstance();
+        ImageOutputStream ios = new MemoryCacheImageOutputStream( out );
+        try {
+            writer.setOutput( ios );
+            writer.write( img );
+        } finally {
+            writer.dispose();
+            // only flushes, the underlying stream stays open
+            ios.close();
+        }
+        return true;
+    }
+
+    private static ImageWriterSpi getWriterSpi( String name ) {
+        ImageWriterSpi spi = WRITERS.get( name );
+        if ( spi == null ) {
+            Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName( name );
+            if ( !writers.hasNext() ) {
+                return null;
+            }
+            ImageWriter writer = writers.next();
+            spi = writer.getOriginatingProvider();
+            writer.dispose();
+            if ( spi == null ) {
+                return null;
+            }
+            LOG.debug( "Using {} for image format {}.", spi.getClass().getName(), name );
+            WRITERS.putIfAbsent( name, spi );
+        }
+        return spi;
+    }
+
+}
@@ -0,0 +1,150 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.encoding;
+
+import static java.util.zip.Deflater.BEST_COMPRESSION;
+import static java.util.zip.Deflater.NO_COMPRESSION;
+
+/**
+ * Options for the encoding of rendered images. A compression level of -1 and a filter of <code>null</code> select
+ * the defaults of the encoder. Instances are immutable.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ImageEncodingOptions {
+
+    /** the compression level used if none has been configured, a good trade-off between speed and size */
+    public static final int DEFAULT_COMPRESSION_LEVEL = 4;
+
+    /** the default options */
+    public static final ImageEncodingOptions DEFAULT = new ImageEncodingOptions( -1, null, true );
+
+    private final int compressionLevel;
+
+    private final PngFilter filter;
+
+    private final boolean parallel;
+
+    /**
+     * @param compressionLevel
+     *            the deflate level between 0 (fastest) and 9 (smallest), -1 for the default
+     * @param filter
+     *            the PNG scanline filter, may be <code>null</code> for the default (adaptive filtering for true colour
+     *            images, no filtering for palette images)
+     * @param parallel
+     *            true, if large images may be compressed in parallel blocks
+     */
+    public ImageEncodingOptions( int compressionLevel, PngFilter filter, boolean parallel ) {
+        if ( compressionLevel < -1 || compressionLevel > BEST_COMPRESSION ) {
+            throw new IllegalArgumentException( "Compression level must be between " + NO_COMPRESSION + " and "
+                                                + BEST_COMPRESSION + ", but was " + compressionLevel + "." );
+        }
+        this.compressionLevel = compressionLevel;
+        this.filter = filter;
+        this.parallel = parallel;
+    }
+
+    /**
+     * @return the configured compression level, -1 if the default is used
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * @return the compression level to use, never -1
+     */
+    public int getEffectiveCompressionLevel() {
+        return compressionLevel == -1 ? DEFAULT_COMPRESSION_LEVEL : compressionLevel;
+    }
+
+    /**
+     * @return the configured scanline filter, may be <code>null</code>
+     */
+    public PngFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * @return true, if large images may be compressed in parallel blocks
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Combines the options of two layers which are rendered into the same image. The higher compression level wins,
+     * as one layer asking for small images should not be overruled by another one with default settings. The filter
+     * of these options takes precedence over the other one's.
+     * 
+     * @param other
+     *            may be <code>null</code>
+     * @return the combined options, never <code>null</code>
+     */
+    public ImageEncodingOptions merge( ImageEncodingOptions other ) {
+        if ( other == null || other == this ) {
+            return this;
+        }
+        int level = Math.max( compressionLevel, other.compressionLevel );
+        PngFilter filter = this.filter != null ? this.filter : other.filter;
+        return new ImageEncodingOptions( level, filter, parallel && other.parallel );
+    }
+
+    /**
+     * Parses configuration values.
+     * 
+     * @param compressionLevel
+     *            may be <code>null</code>
+     * @param filter
+     *            name of a {@link PngFilter} (case insensitive), may be <code>null</code>
+     * @return the options, never <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the level is out of range or the filter is unknown
+     */
+    public static ImageEncodingOptions parse( Integer compressionLevel, String filter ) {
+        int level = compressionLevel == null ? -1 : compressionLevel;
+        PngFilter f = filter == null ? null : PngFilter.valueOf( filter.trim().toUpperCase() );
+        return new ImageEncodingOptions( level, f, true );
+    }
+
+    @Override
+    public String toString() {
+        return "compression level " + getEffectiveCompressionLevel() + ", filter "
+               + ( filter == null ? "default" : filter );
+    }
+
+}
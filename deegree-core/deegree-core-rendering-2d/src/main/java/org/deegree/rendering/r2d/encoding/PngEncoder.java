@@ -0,0 +1,681 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.encoding;
+
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static java.awt.image.DataBuffer.TYPE_BYTE;
+import static java.util.zip.Deflater.DEFAULT_STRATEGY;
+import static java.util.zip.Deflater.FILTERED;
+import static java.util.zip.Deflater.NO_FLUSH;
+import static java.util.zip.Deflater.SYNC_FLUSH;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.ComponentColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes {@link BufferedImage}s as PNG, with a configurable compression level and scanline filter.
+ * <p>
+ * Palette images (8 bit {@link IndexColorModel}) are written as indexed PNG, everything else as 8 bit RGB or RGBA.
+ * Integer and byte interleaved rasters are read directly, other images are converted scanline by scanline. The
+ * {@link Deflater}s and row buffers are kept in a small pool and reused. Images with more than
+ * {@value #MIN_PARALLEL_BYTES} bytes of image data may be compressed in parallel: the filtered data is split into
+ * blocks which are deflated independently (each one primed with the preceding 32 KiB as dictionary) and concatenated
+ * into a single zlib stream.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public final class PngEncoder {
+
+    /** the minimum number of bytes of image data for which the compression is split into parallel tasks */
+    static final int MIN_PARALLEL_BYTES = 1 << 20;
+
+    private static final int BLOCK_BYTES = 1 << 18;
+
+    private static final int WINDOW_SIZE = 1 << 15;
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final byte[] SIGNATURE = { (byte) 137, 80, 78, 71, 13, 10, 26, 10 };
+
+    private static final byte[] IHDR = { 'I', 'H', 'D', 'R' };
+
+    private static final byte[] PLTE = { 'P', 'L', 'T', 'E' };
+
+    private static final byte[] TRNS = { 't', 'R', 'N', 'S' };
+
+    private static final byte[] IDAT = { 'I', 'D', 'A', 'T' };
+
+    private static final byte[] IEND = { 'I', 'E', 'N', 'D' };
+
+    private static final int COLOR_TYPE_RGB = 2;
+
+    private static final int COLOR_TYPE_PALETTE = 3;
+
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    /** the maximum number of idle encoder states kept for reuse */
+    static final int POOL_SIZE = Math.max( 2, Runtime.getRuntime().availableProcessors() );
+
+    // bounded (instead of thread local), states that do not fit are ended, so the native zlib memory is released
+    private static final BlockingQueue<EncoderState> POOL = new ArrayBlockingQueue<EncoderState>( POOL_SIZE );
+
+    private PngEncoder() {
+        // no instances
+    }
+
+    /**
+     * Writes the image as PNG. The stream is not closed.
+     * 
+     * @param img
+     *            the image to encode, must not be <code>null</code>
+     * @param out
+     *            the stream to write to, must not be <code>null</code>
+     * @param options
+     *            the encoding options, may be <code>null</code> for the defaults
+     * @throws IOException
+     */
+    public static void encode( BufferedImage img, OutputStream out, ImageEncodingOptions options )
+                            throws IOException {
+        if ( options == null ) {
+            options = ImageEncodingOptions.DEFAULT;
+        }
+        long imageBytes = ( img.getWidth() * 4L + 1 ) * img.getHeight();
+        boolean parallel = options.isParallel() && imageBytes >= MIN_PARALLEL_BYTES && imageBytes < Integer.MAX_VALUE
+                           && ForkJoinPool.getCommonPoolParallelism() > 1;
+        encode( img, out, options, parallel );
+    }
+
+    static void encode( BufferedImage img, OutputStream out, ImageEncodingOptions options, boolean parallel )
+                            throws IOException {
+        EncoderState state = borrow();
+        try {
+            encode( img, out, options, parallel, state );
+        } finally {
+            release( state );
+        }
+    }
+
+    private static void encode( BufferedImage img, OutputStream out, ImageEncodingOptions options, boolean parallel,
+                                EncoderState state )
+                            throws IOException {
+        Scanlines lines = Scanlines.create( img );
+        PngFilter filter = options.getFilter();
+        if ( filter == null ) {
+            filter = lines.colorType == COLOR_TYPE_PALETTE ? PngFilter.NONE : PngFilter.ADAPTIVE;
+        }
+        int level = options.getEffectiveCompressionLevel();
+        int strategy = filter == PngFilter.NONE ? DEFAULT_STRATEGY : FILTERED;
+
+        ChunkWriter writer = new ChunkWriter( out, state );
+        out.write( SIGNATURE );
+        writeHeader( writer, img.getWidth(), img.getHeight(), lines.colorType );
+        if ( lines.colorType == COLOR_TYPE_PALETTE ) {
+            writePalette( writer, (IndexColorModel) img.getColorModel() );
+        }
+        if ( parallel && ( lines.rowBytes + 1L ) * img.getHeight() < Integer.MAX_VALUE ) {
+            writeParallel( writer, lines, filter, level, strategy, state );
+        } else {
+            writeSerial( writer, lines, filter, level, strategy, state );
+        }
+        writer.writeChunk( IEND, null, 0, 0 );
+        out.flush();
+    }
+
+    /**
+     * @return an idle encoder state from the pool, or a new one if the pool is empty
+     */
+    static EncoderState borrow() {
+        EncoderState state = POOL.poll();
+        return state != null ? state : new EncoderState();
+    }
+
+    /**
+     * Returns the state to the pool. If the pool is full, the state is discarded and its {@link Deflater}s are ended.
+     */
+    static void release( EncoderState state ) {
+        if ( !POOL.offer( state ) ) {
+            state.end();
+        }
+    }
+
+    static int idleStates() {
+        return POOL.size();
+    }
+
+    private static void writeHeader( ChunkWriter writer, int width, int height, int colorType )
+                            throws IOException {
+        byte[] data = new byte[13];
+        putInt( data, 0, width );
+        putInt( data, 4, height );
+        data[8] = 8;
+        data[9] = (byte) colorType;
+        // compression, filter method and interlace are all 0
+        writer.writeChunk( IHDR, data, 0, data.length );
+    }
+
+    private static void writePalette( ChunkWriter writer, IndexColorModel icm )
+                            throws IOException {
+        int size = icm.getMapSize();
+        byte[] reds = new byte[size];
+        byte[] greens = new byte[size];
+        byte[] blues = new byte[size];
+        byte[] alphas = new byte[size];
+        icm.getReds( reds );
+        icm.getGreens( greens );
+        icm.getBlues( blues );
+        icm.getAlphas( alphas );
+        byte[] plte = new byte[3 * size];
+        int lastTranslucent = -1;
+        for ( int i = 0; i < size; ++i ) {
+            plte[3 * i] = reds[i];
+            plte[3 * i + 1] = greens[i];
+            plte[3 * i + 2] = blues[i];
+            if ( alphas[i] != (byte) 255 ) {
+                lastTranslucent = i;
+            }
+        }
+        writer.writeChunk( PLTE, plte, 0, plte.length );
+        if ( lastTranslucent >= 0 ) {
+            writer.writeChunk( TRNS, alphas, 0, lastTranslucent + 1 );
+        }
+    }
+
+    private static void writeSerial( ChunkWriter writer, Scanlines lines, PngFilter filter, int level, int strategy,
+                                     EncoderState state )
+                            throws IOException {
+        int rowBytes = lines.rowBytes;
+        byte[] prev = state.prev( rowBytes );
+        byte[] cur = state.cur( rowBytes );
+        byte[] filtered = state.filtered( rowBytes );
+        Arrays.fill( prev, 0, rowBytes, (byte) 0 );
+
+        Deflater deflater = state.zlib;
+        prepare( deflater, level, strategy );
+        try {
+            for ( int y = 0; y < lines.height; ++y ) {
+                lines.read( y, cur, state );
+                filterRow( filter, cur, prev, rowBytes, lines.bpp, filtered, 0, state );
+                deflater.setInput( filtered, 0, rowBytes + 1 );
+                while ( !deflater.needsInput() ) {
+                    writer.deflate( deflater );
+                }
+                byte[] tmp = prev;
+                prev = cur;
+                cur = tmp;
+            }
+            deflater.finish();
+            while ( !deflater.finished() ) {
+                writer.deflate( deflater );
+            }
+            writer.flushData();
+        } finally {
+            deflater.reset();
+        }
+    }
+
+    private static void writeParallel( ChunkWriter writer, Scanlines lines, PngFilter filter, final int level,
+                                       final int strategy, EncoderState state )
+                            throws IOException {
+        int rowBytes = lines.rowBytes;
+        final byte[] data = new byte[( rowBytes + 1 ) * lines.height];
+        byte[] prev = new byte[rowBytes];
+        byte[] cur = new byte[rowBytes];
+        for ( int y = 0; y < lines.height; ++y ) {
+            lines.read( y, cur, state );
+            filterRow( filter, cur, prev, rowBytes, lines.bpp, data, y * ( rowBytes + 1 ), state );
+            byte[] tmp = prev;
+            prev = cur;
+            cur = tmp;
+        }
+
+        List<ForkJoinTask<byte[]>> tasks = new ArrayList<ForkJoinTask<byte[]>>();
+        for ( int off = 0; off < data.length; off += BLOCK_BYTES ) {
+            final int start = off;
+            final int end = Math.min( data.length, off + BLOCK_BYTES );
+            tasks.add( ForkJoinPool.commonPool().submit( new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    return deflateBlock( data, start, end, level, strategy );
+                }
+            } ) );
+        }
+        Adler32 adler = new Adler32();
+        adler.update( data, 0, data.length );
+
+        byte[] header = new byte[2];
+        header[0] = 0x78;
+        header[1] = (byte) zlibFlags( level );
+        writer.writeData( header, 0, 2 );
+        for ( ForkJoinTask<byte[]> task : tasks ) {
+            byte[] block;
+            try {
+                block = task.get();
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while compressing PNG data." );
+            } catch ( ExecutionException e ) {
+                throw new IOException( "Compressing PNG data failed: " + e.getCause().getMessage(), e.getCause() );
+            }
+            writer.writeData( block, 0, block.length );
+        }
+        byte[] trailer = new byte[4];
+        putInt( trailer, 0, (int) adler.getValue() );
+        writer.writeData( trailer, 0, 4 );
+        writer.flushData();
+    }
+
+    /**
+     * Deflates one block of a parallel compressed image as raw deflate data. All but the last block end with a sync
+     * flush, so the blocks can simply be concatenated.
+     */
+    static byte[] deflateBlock( byte[] data, int start, int end, int level, int strategy ) {
+        EncoderState state = borrow();
+        Deflater deflater = state.raw;
+        prepare( deflater, level, strategy );
+        try {
+            if ( start > 0 ) {
+                int dictStart = Math.max( 0, start - WINDOW_SIZE );
+                deflater.setDictionary( data, dictStart, start - dictStart );
+            }
+            deflater.setInput( data, start, end - start );
+            byte[] buf = new byte[Math.max( 1024, ( end - start ) / 2 )];
+            int len = 0;
+            while ( !deflater.needsInput() ) {
+                if ( len == buf.length ) {
+                    buf = Arrays.copyOf( buf, buf.length * 2 );
+                }
+                len += deflater.deflate( buf, len, buf.length - len, NO_FLUSH );
+            }
+            if ( end == data.length ) {
+                deflater.finish();
+                while ( !deflater.finished() ) {
+                    if ( len == buf.length ) {
+                        buf = Arrays.copyOf( buf, buf.length * 2 );
+                    }
+                    len += deflater.deflate( buf, len, buf.length - len, NO_FLUSH );
+                }
+            } else {
+                int n;
+                do {
+                    if ( len == buf.length ) {
+                        buf = Arrays.copyOf( buf, buf.length * 2 );
+                    }
+                    int space = buf.length - len;
+                    n = deflater.deflate( buf, len, space, SYNC_FLUSH );
+                    len += n;
+                    if ( n < space ) {
+                        break;
+                    }
+                } while ( true );
+            }
+            return Arrays.copyOf( buf, len );
+        } finally {
+            deflater.reset();
+            release( state );
+        }
+    }
+
+    private static void prepare( Deflater deflater, int level, int strategy ) {
+        deflater.reset();
+        deflater.setLevel( level );
+        deflater.setStrategy( strategy );
+    }
+
+    static int zlibFlags( int level ) {
+        int flevel;
+        if ( level < 2 ) {
+            flevel = 0;
+        } else if ( level < 6 ) {
+            flevel = 1;
+        } else if ( level == 6 ) {
+            flevel = 2;
+        } else {
+            flevel = 3;
+        }
+        int flags = flevel << 6;
+        int rem = ( 0x78 * 256 + flags ) % 31;
+        return rem == 0 ? flags : flags + 31 - rem;
+    }
+
+    /**
+     * Filters a scanline and writes the filter type followed by the filtered bytes to <code>out</code>.
+     */
+    static void filterRow( PngFilter filter, byte[] cur, byte[] prev, int len, int bpp, byte[] out, int outOff,
+                           EncoderState state ) {
+        if ( filter != PngFilter.ADAPTIVE ) {
+            out[outOff] = (byte) filter.getType();
+            applyFilter( filter.getType(), cur, prev, len, bpp, out, outOff + 1 );
+            return;
+        }
+        byte[] scratch = state.scratch( len );
+        long best = Long.MAX_VALUE;
+        for ( int type = 0; type < 5; ++type ) {
+            long sum = applyFilter( type, cur, prev, len, bpp, scratch, 0 );
+            if ( sum < best ) {
+                best = sum;
+                out[outOff] = (byte) type;
+                System.arraycopy( scratch, 0, out, outOff + 1, len );
+            }
+        }
+    }
+
+    /**
+     * @return the sum of the absolute values of the filtered bytes (interpreted as signed), used by the adaptive
+     *         filter selection
+     */
+    private static long applyFilter( int type, byte[] cur, byte[] prev, int len, int bpp, byte[] out, int off ) {
+        long sum = 0;
+        switch ( type ) {
+        case 0:
+            System.arraycopy( cur, 0, out, off, len );
+            for ( int i = 0; i < len; ++i ) {
+                sum += Math.abs( cur[i] );
+            }
+            return sum;
+        case 1:
+            for ( int i = 0; i < len; ++i ) {
+                int left = i < bpp ? 0 : cur[i - bpp] & 0xff;
+                byte b = (byte) ( ( cur[i] & 0xff ) - left );
+                out[off + i] = b;
+                sum += Math.abs( b );
+            }
+            return sum;
+        case 2:
+            for ( int i = 0; i < len; ++i ) {
+                byte b = (byte) ( ( cur[i] & 0xff ) - ( prev[i] & 0xff ) );
+                out[off + i] = b;
+                sum += Math.abs( b );
+            }
+            return sum;
+        case 3:
+            for ( int i = 0; i < len; ++i ) {
+                int left = i < bpp ? 0 : cur[i - bpp] & 0xff;
+                byte b = (byte) ( ( cur[i] & 0xff ) - ( ( left + ( prev[i] & 0xff ) ) >> 1 ) );
+                out[off + i] = b;
+                sum += Math.abs( b );
+            }
+            return sum;
+        default:
+            for ( int i = 0; i < len; ++i ) {
+                int a = i < bpp ? 0 : cur[i - bpp] & 0xff;
+                int b = prev[i] & 0xff;
+                int c = i < bpp ? 0 : prev[i - bpp] & 0xff;
+                byte f = (byte) ( ( cur[i] & 0xff ) - paeth( a, b, c ) );
+                out[off + i] = f;
+                sum += Math.abs( f );
+            }
+            return sum;
+        }
+    }
+
+    private static int paeth( int a, int b, int c ) {
+        int p = a + b - c;
+        int pa = Math.abs( p - a );
+        int pb = Math.abs( p - b );
+        int pc = Math.abs( p - c );
+        if ( pa <= pb && pa <= pc ) {
+            return a;
+        }
+        return pb <= pc ? b : c;
+    }
+
+    private static void putInt( byte[] buf, int off, int value ) {
+        buf[off] = (byte) ( value >>> 24 );
+        buf[off + 1] = (byte) ( value >>> 16 );
+        buf[off + 2] = (byte) ( value >>> 8 );
+        buf[off + 3] = (byte) value;
+    }
+
+    /**
+     * Reusable resources of one encoding, pooled.
+     */
+    static class EncoderState {
+
+        final Deflater zlib = new Deflater( ImageEncodingOptions.DEFAULT_COMPRESSION_LEVEL, false );
+
+        final Deflater raw = new Deflater( ImageEncodingOptions.DEFAULT_COMPRESSION_LEVEL, true );
+
+        final CRC32 crc = new CRC32();
+
+        final byte[] chunk = new byte[CHUNK_SIZE];
+
+        private byte[] prev = new byte[0], cur = new byte[0], filtered = new byte[0], scratch = new byte[0];
+
+        private int[] pixels = new int[0];
+
+        byte[] prev( int len ) {
+            return prev.length >= len ? prev : ( prev = new byte[len] );
+        }
+
+        byte[] cur( int len ) {
+            return cur.length >= len ? cur : ( cur = new byte[len] );
+        }
+
+        byte[] filtered( int len ) {
+            return filtered.length >= len + 1 ? filtered : ( filtered = new byte[len + 1] );
+        }
+
+        byte[] scratch( int len ) {
+            return scratch.length >= len ? scratch : ( scratch = new byte[len] );
+        }
+
+        int[] pixels( int len ) {
+            return pixels.length >= len ? pixels : ( pixels = new int[len] );
+        }
+
+        /**
+         * Releases the native resources of the {@link Deflater}s, the state must not be used afterwards.
+         */
+        void end() {
+            zlib.end();
+            raw.end();
+        }
+
+    }
+
+    /**
+     * Writes PNG chunks. Compressed image data is collected in the chunk buffer of the encoder state and written as
+     * IDAT chunks of up to 64 KiB.
+     */
+    private static class ChunkWriter {
+
+        private final OutputStream out;
+
+        private final CRC32 crc;
+
+        private final byte[] data;
+
+        private final byte[] head = new byte[8];
+
+        private int pos;
+
+        ChunkWriter( OutputStream out, EncoderState state ) {
+            this.out = out;
+            this.crc = state.crc;
+            this.data = state.chunk;
+        }
+
+        void writeChunk( byte[] type, byte[] buf, int off, int len )
+                                throws IOException {
+            putInt( head, 0, len );
+            System.arraycopy( type, 0, head, 4, 4 );
+            out.write( head, 0, 8 );
+            crc.reset();
+            crc.update( type, 0, 4 );
+            if ( len > 0 ) {
+                out.write( buf, off, len );
+                crc.update( buf, off, len );
+            }
+            putInt( head, 0, (int) crc.getValue() );
+            out.write( head, 0, 4 );
+        }
+
+        void deflate( Deflater deflater )
+                                throws IOException {
+            pos += deflater.deflate( data, pos, data.length - pos );
+            if ( pos == data.length ) {
+                flushData();
+            }
+        }
+
+        void writeData( byte[] buf, int off, int len )
+                                throws IOException {
+            while ( len > 0 ) {
+                int n = Math.min( len, data.length - pos );
+                System.arraycopy( buf, off, data, pos, n );
+                pos += n;
+                off += n;
+                len -= n;
+                if ( pos == data.length ) {
+                    flushData();
+                }
+            }
+        }
+
+        void flushData()
+                                throws IOException {
+            if ( pos > 0 ) {
+                writeChunk( IDAT, data, 0, pos );
+                pos = 0;
+            }
+        }
+
+    }
+
+    /**
+     * Reads the scanlines of an image as unfiltered PNG bytes.
+     */
+    private static class Scanlines {
+
+        final BufferedImage img;
+
+        final Raster raster;
+
+        final int width, height, colorType, bpp, rowBytes;
+
+        private final boolean direct, packed;
+
+        private Scanlines( BufferedImage img, int colorType, int bpp, boolean direct, boolean packed ) {
+            this.img = img;
+            this.raster = img.getRaster();
+            this.width = img.getWidth();
+            this.height = img.getHeight();
+            this.colorType = colorType;
+            this.bpp = bpp;
+            this.rowBytes = width * bpp;
+            this.direct = direct;
+            this.packed = packed;
+        }
+
+        static Scanlines create( BufferedImage img ) {
+            ColorModel cm = img.getColorModel();
+            Raster raster = img.getRaster();
+            if ( cm instanceof IndexColorModel && raster.getNumBands() == 1
+                 && raster.getTransferType() == TYPE_BYTE && raster.getSampleModel().getSampleSize( 0 ) == 8 ) {
+                return new Scanlines( img, COLOR_TYPE_PALETTE, 1, true, false );
+            }
+            boolean alpha = cm.hasAlpha();
+            int bpp = alpha ? 4 : 3;
+            int colorType = alpha ? COLOR_TYPE_RGBA : COLOR_TYPE_RGB;
+            if ( img.getType() == TYPE_INT_ARGB || img.getType() == TYPE_INT_RGB ) {
+                return new Scanlines( img, colorType, bpp, false, true );
+            }
+            boolean interleaved = cm instanceof ComponentColorModel && raster.getTransferType() == TYPE_BYTE
+                                  && raster.getNumBands() == bpp && !cm.isAlphaPremultiplied()
+                                  && cm.getColorSpace().isCS_sRGB()
+                                  && cm.getColorSpace().getType() == ColorSpace.TYPE_RGB;
+            if ( interleaved ) {
+                for ( int i = 0; i < bpp; ++i ) {
+                    interleaved &= raster.getSampleModel().getSampleSize( i ) == 8;
+                }
+            }
+            return new Scanlines( img, colorType, bpp, interleaved, false );
+        }
+
+        void read( int y, byte[] row, EncoderState state ) {
+            if ( direct ) {
+                raster.getDataElements( 0, y, width, 1, row );
+                return;
+            }
+            int[] px = state.pixels( width );
+            if ( packed ) {
+                raster.getDataElements( 0, y, width, 1, px );
+            } else {
+                img.getRGB( 0, y, width, 1, px, 0, width );
+            }
+            int j = 0;
+            if ( bpp == 4 ) {
+                for ( int x = 0; x < width; ++x ) {
+                    int p = px[x];
+                    row[j++] = (byte) ( p >> 16 );
+                    row[j++] = (byte) ( p >> 8 );
+                    row[j++] = (byte) p;
+                    row[j++] = (byte) ( p >>> 24 );
+                }
+            } else {
+                for ( int x = 0; x < width; ++x ) {
+                    int p = px[x];
+                    row[j++] = (byte) ( p >> 16 );
+                    row[j++] = (byte) ( p >> 8 );
+                    row[j++] = (byte) p;
+                }
+            }
+        }
+
+    }
+
+}
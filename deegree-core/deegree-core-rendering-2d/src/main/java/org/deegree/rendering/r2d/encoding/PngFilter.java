@@ -0,0 +1,78 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.encoding;
+
+/**
+ * The scanline filters of the PNG format. {@link #ADAPTIVE} selects the best filter for each scanline using the
+ * minimum sum of absolute differences heuristic.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public enum PngFilter {
+
+    /** no filtering */
+    NONE( 0 ),
+
+    /** difference to the pixel on the left */
+    SUB( 1 ),
+
+    /** difference to the pixel above */
+    UP( 2 ),
+
+    /** difference to the average of the left and the upper pixel */
+    AVERAGE( 3 ),
+
+    /** difference to the Paeth predictor */
+    PAETH( 4 ),
+
+    /** per scanline choice of one of the other filters */
+    ADAPTIVE( -1 );
+
+    private final int type;
+
+    private PngFilter( int type ) {
+        this.type = type;
+    }
+
+    /**
+     * @return the filter type byte as written in front of each scanline, -1 for {@link #ADAPTIVE}
+     */
+    public int getType() {
+        return type;
+    }
+
+}
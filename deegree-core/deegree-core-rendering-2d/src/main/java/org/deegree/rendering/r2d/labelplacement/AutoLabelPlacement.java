@@ -60,8 +60,9 @@ import org.deegree.style.utils.UomCalculator;
  * @author last edited by: $Author$
  * 
  * @version $Revision$, $Date$
+ * @deprecated builds a quadratic collision matrix, use {@link LabelPlacementEngine} instead
  */
-
+@Deprecated
 public class AutoLabelPlacement {
     
     private static final Logger LOG = getLogger( AutoLabelPlacement.class );
@@ -0,0 +1,213 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.labelplacement;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Uniform grid over the screen that stores the boxes occupied by placed labels. Testing a box only looks at the
+ * labels in the grid cells the box covers, so placing <code>n</code> labels costs about <code>O(n)</code> instead of
+ * <code>O(n^2)</code>. Boxes touching each other do not intersect.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+class LabelCollisionIndex {
+
+    private final int cellSize;
+
+    private final int cols;
+
+    private final int rows;
+
+    private final List<Entry>[] cells;
+
+    /**
+     * @param width
+     *            width of the screen in pixels
+     * @param height
+     *            height of the screen in pixels
+     * @param cellSize
+     *            edge length of the grid cells in pixels
+     */
+    @SuppressWarnings("unchecked")
+    LabelCollisionIndex( int width, int height, int cellSize ) {
+        this.cellSize = cellSize;
+        this.cols = Math.max( 1, ( width + cellSize - 1 ) / cellSize );
+        this.rows = Math.max( 1, ( height + cellSize - 1 ) / cellSize );
+        this.cells = new List[cols * rows];
+    }
+
+    /**
+     * @param boxes
+     *            boxes to test, must not be <code>null</code>
+     * @return true, if any of the boxes intersects a box in the index
+     */
+    boolean intersects( Rectangle2D[] boxes ) {
+        for ( Rectangle2D box : boxes ) {
+            if ( intersects( box ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean intersects( Rectangle2D box ) {
+        int minCol = col( box.getMinX() ), maxCol = col( box.getMaxX() );
+        int minRow = row( box.getMinY() ), maxRow = row( box.getMaxY() );
+        for ( int r = minRow; r <= maxRow; r++ ) {
+            for ( int c = minCol; c <= maxCol; c++ ) {
+                List<Entry> cell = cells[r * cols + c];
+                if ( cell == null ) {
+                    continue;
+                }
+                for ( Entry e : cell ) {
+                    if ( intersects( e.box, box ) ) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param box
+     *            box to test, must not be <code>null</code>
+     * @return the owners of all boxes in the index that intersect the given box, never <code>null</code>
+     */
+    Set<Object> query( Rectangle2D box ) {
+        Set<Object> owners = Collections.newSetFromMap( new IdentityHashMap<Object, Boolean>() );
+        int minCol = col( box.getMinX() ), maxCol = col( box.getMaxX() );
+        int minRow = row( box.getMinY() ), maxRow = row( box.getMaxY() );
+        for ( int r = minRow; r <= maxRow; r++ ) {
+            for ( int c = minCol; c <= maxCol; c++ ) {
+                List<Entry> cell = cells[r * cols + c];
+                if ( cell == null ) {
+                    continue;
+                }
+                for ( Entry e : cell ) {
+                    if ( intersects( e.box, box ) ) {
+                        owners.add( e.owner );
+                    }
+                }
+            }
+        }
+        return owners;
+    }
+
+    /**
+     * @param boxes
+     *            boxes to add, must not be <code>null</code>
+     * @param owner
+     *            the label the boxes belong to, must not be <code>null</code>
+     */
+    void add( Rectangle2D[] boxes, Object owner ) {
+        for ( Rectangle2D box : boxes ) {
+            Entry entry = new Entry( box, owner );
+            int minCol = col( box.getMinX() ), maxCol = col( box.getMaxX() );
+            int minRow = row( box.getMinY() ), maxRow = row( box.getMaxY() );
+            for ( int r = minRow; r <= maxRow; r++ ) {
+                for ( int c = minCol; c <= maxCol; c++ ) {
+                    int idx = r * cols + c;
+                    if ( cells[idx] == null ) {
+                        cells[idx] = new ArrayList<Entry>( 4 );
+                    }
+                    cells[idx].add( entry );
+                }
+            }
+        }
+    }
+
+    /**
+     * @param boxes
+     *            the boxes that have been added for the owner, must not be <code>null</code>
+     * @param owner
+     *            the label the boxes belong to, must not be <code>null</code>
+     */
+    void remove( Rectangle2D[] boxes, Object owner ) {
+        for ( Rectangle2D box : boxes ) {
+            int minCol = col( box.getMinX() ), maxCol = col( box.getMaxX() );
+            int minRow = row( box.getMinY() ), maxRow = row( box.getMaxY() );
+            for ( int r = minRow; r <= maxRow; r++ ) {
+                for ( int c = minCol; c <= maxCol; c++ ) {
+                    List<Entry> cell = cells[r * cols + c];
+                    if ( cell == null ) {
+                        continue;
+                    }
+                    for ( int i = cell.size() - 1; i >= 0; i-- ) {
+                        if ( cell.get( i ).owner == owner ) {
+                            cell.remove( i );
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    static boolean intersects( Rectangle2D a, Rectangle2D b ) {
+        return a.getMinX() < b.getMaxX() && a.getMaxX() > b.getMinX() && a.getMinY() < b.getMaxY()
+               && a.getMaxY() > b.getMinY();
+    }
+
+    private int col( double x ) {
+        int c = (int) Math.floor( x / cellSize );
+        return c < 0 ? 0 : ( c >= cols ? cols - 1 : c );
+    }
+
+    private int row( double y ) {
+        int r = (int) Math.floor( y / cellSize );
+        return r < 0 ? 0 : ( r >= rows ? rows - 1 : r );
+    }
+
+    private static class Entry {
+
+        final Rectangle2D box;
+
+        final Object owner;
+
+        Entry( Rectangle2D box, Object owner ) {
+            this.box = box;
+            this.owner = owner;
+        }
+    }
+
+}
@@ -0,0 +1,467 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.labelplacement;
+
+import static java.lang.Math.toRadians;
+import static org.deegree.rendering.r2d.labelplacement.PointLabelPositionOptions.anchorPointX;
+import static org.deegree.rendering.r2d.labelplacement.PointLabelPositionOptions.anchorPointY;
+import static org.deegree.rendering.r2d.labelplacement.PointLabelPositionOptions.displacmentMultiplicatorX;
+import static org.deegree.rendering.r2d.labelplacement.PointLabelPositionOptions.displacmentMultiplicatorY;
+import static org.deegree.rendering.r2d.labelplacement.PointLabelPositionOptions.qualities;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.deegree.rendering.r2d.CurveLabel;
+import org.deegree.rendering.r2d.Label;
+import org.deegree.style.styling.TextStyling;
+import org.deegree.style.utils.UomCalculator;
+import org.slf4j.Logger;
+
+/**
+ * Places {@link Label}s so that they do not overlap.
+ * <p>
+ * Labels are processed by descending {@link TextStyling#priority} (keeping the creation order for labels of the same
+ * priority). Each label is placed greedily at its best candidate position that does not collide with an already placed
+ * label. Labels with {@link TextStyling#auto} have the eight candidate positions of
+ * {@link PointLabelPositionOptions} (ordered by quality), all other labels only their styled position. Occupied space
+ * is tracked in a {@link LabelCollisionIndex}, so the cost grows about linearly with the number of labels.
+ * </p>
+ * <p>
+ * If an auto placed label does not fit, simulated annealing may be run on the small cluster of auto placed labels
+ * around it, trying to move the neighbours to make room. The result is only accepted if all labels of the cluster can
+ * be placed without collisions. Labels that cannot be placed are dropped, unless {@link TextStyling#allowOverlap} is
+ * set.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LabelPlacementEngine {
+
+    private static final Logger LOG = getLogger( LabelPlacementEngine.class );
+
+    private static final int CELL_SIZE = 64;
+
+    private static final int MAX_CLUSTER_SIZE = 16;
+
+    private static final int ITERATIONS_PER_LABEL = 50;
+
+    // total number of annealing steps per map, bounds the cost for very dense maps
+    private static final int MAX_ANNEALING_STEPS = 100000;
+
+    private static final float OVERLAP_COST = 40;
+
+    private final UomCalculator uomCalculator;
+
+    private final LabelCollisionIndex index;
+
+    private final boolean anneal;
+
+    // fixed seed, so repeated requests render the same map
+    private final Random random = new Random( 4711 );
+
+    private int annealingSteps;
+
+    /**
+     * @param width
+     *            width of the map in pixels
+     * @param height
+     *            height of the map in pixels
+     * @param uomCalculator
+     *            used to convert displacements and halo radii to pixels, must not be <code>null</code>
+     * @param anneal
+     *            true, if conflicting auto placed labels should be resolved by simulated annealing
+     */
+    public LabelPlacementEngine( int width, int height, UomCalculator uomCalculator, boolean anneal ) {
+        this.uomCalculator = uomCalculator;
+        this.index = new LabelCollisionIndex( width, height, CELL_SIZE );
+        this.anneal = anneal;
+    }
+
+    /**
+     * Places the given labels. The draw positions of auto placed labels are updated.
+     * 
+     * @param labels
+     *            labels to place, must not be <code>null</code>
+     * @return the labels to draw, in drawing order, never <code>null</code>
+     */
+    public List<Label> place( List<Label> labels ) {
+        long start = System.currentTimeMillis();
+        List<Candidates> sorted = new ArrayList<Candidates>( labels.size() );
+        for ( Label label : labels ) {
+            Candidates c = createCandidates( label );
+            if ( c != null ) {
+                sorted.add( c );
+            }
+        }
+        Collections.sort( sorted, new Comparator<Candidates>() {
+            @Override
+            public int compare( Candidates c1, Candidates c2 ) {
+                return Double.compare( c2.label.getStyling().priority, c1.label.getStyling().priority );
+            }
+        } );
+
+        int dropped = 0;
+        for ( Candidates c : sorted ) {
+            int free = findFreeCandidate( c );
+            if ( free >= 0 ) {
+                select( c, free );
+            } else if ( c.label.getStyling().allowOverlap ) {
+                select( c, 0 );
+            } else if ( !( anneal && c.boxes.length > 1 && resolveConflict( c ) ) ) {
+                dropped++;
+            }
+        }
+
+        List<Label> result = new ArrayList<Label>( sorted.size() - dropped );
+        // draw labels with a low priority first, so labels with a higher priority end up on top
+        for ( int i = sorted.size() - 1; i >= 0; i-- ) {
+            Candidates c = sorted.get( i );
+            if ( c.selected >= 0 ) {
+                if ( c.drawPositions != null ) {
+                    c.label.setDrawPosition( c.drawPositions[c.selected] );
+                }
+                result.add( c.label );
+            }
+        }
+        LOG.debug( "Placed {} of {} labels in {} ms ({} annealing steps).",
+                   new Object[] { result.size(), labels.size(), System.currentTimeMillis() - start, annealingSteps } );
+        return result;
+    }
+
+    private int findFreeCandidate( Candidates c ) {
+        for ( int i = 0; i < c.boxes.length; i++ ) {
+            if ( !index.intersects( c.boxes[i] ) ) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void select( Candidates c, int candidate ) {
+        c.selected = candidate;
+        index.add( c.boxes[candidate], c );
+    }
+
+    private void unselect( Candidates c ) {
+        index.remove( c.boxes[c.selected], c );
+        c.selected = -1;
+    }
+
+    /**
+     * Tries to make room for the given label by moving the auto placed labels around it.
+     * 
+     * @return true, if the label has been placed
+     */
+    private boolean resolveConflict( Candidates c ) {
+        if ( annealingSteps >= MAX_ANNEALING_STEPS ) {
+            return false;
+        }
+        List<Candidates> cluster = new ArrayList<Candidates>();
+        cluster.add( c );
+        for ( Object o : index.query( c.extent ) ) {
+            Candidates neighbour = (Candidates) o;
+            if ( neighbour.boxes.length == 1 || neighbour.label.getStyling().allowOverlap ) {
+                continue;
+            }
+            if ( cluster.size() == MAX_CLUSTER_SIZE ) {
+                return false;
+            }
+            cluster.add( neighbour );
+        }
+        if ( cluster.size() == 1 ) {
+            return false;
+        }
+
+        int[] previous = new int[cluster.size()];
+        for ( int k = 1; k < cluster.size(); k++ ) {
+            previous[k] = cluster.get( k ).selected;
+            unselect( cluster.get( k ) );
+        }
+        previous[0] = -1;
+
+        int[] solution = anneal( cluster, previous );
+
+        // accept the solution only if the whole cluster fits (neighbours first, they have been placed before)
+        int placed = 0;
+        for ( int k = cluster.size() - 1; k >= 0; k-- ) {
+            Candidates member = cluster.get( k );
+            if ( index.intersects( member.boxes[solution[k]] ) ) {
+                break;
+            }
+            select( member, solution[k] );
+            placed++;
+        }
+        if ( placed == cluster.size() ) {
+            return true;
+        }
+        for ( int k = cluster.size() - 1; k >= cluster.size() - placed; k-- ) {
+            unselect( cluster.get( k ) );
+        }
+        for ( int k = 1; k < cluster.size(); k++ ) {
+            select( cluster.get( k ), previous[k] );
+        }
+        return false;
+    }
+
+    private int[] anneal( List<Candidates> cluster, int[] previous ) {
+        int n = cluster.size();
+        int[] current = new int[n];
+        // collisions of each candidate with the labels outside of the cluster
+        int[][] fixed = new int[n][];
+        for ( int k = 0; k < n; k++ ) {
+            Candidates member = cluster.get( k );
+            current[k] = previous[k] < 0 ? 0 : previous[k];
+            fixed[k] = new int[member.boxes.length];
+            for ( int i = 0; i < member.boxes.length; i++ ) {
+                fixed[k][i] = index.intersects( member.boxes[i] ) ? 1 : 0;
+            }
+        }
+
+        int currentOverlaps = 0;
+        for ( int k = 0; k < n; k++ ) {
+            currentOverlaps += fixed[k][current[k]] + overlaps( cluster, current, k, current[k], k );
+        }
+
+        int[] best = current.clone();
+        int bestOverlaps = currentOverlaps;
+        double temperature = OVERLAP_COST;
+        int steps = ITERATIONS_PER_LABEL * n;
+        int step = 0;
+        for ( ; step < steps && bestOverlaps > 0; step++ ) {
+            if ( step % n == 0 ) {
+                temperature *= 0.9;
+            }
+            int k = random.nextInt( n );
+            Candidates member = cluster.get( k );
+            int old = current[k];
+            int candidate = random.nextInt( member.boxes.length );
+            if ( candidate == old ) {
+                continue;
+            }
+            int overlapDelta = fixed[k][candidate] - fixed[k][old] + overlaps( cluster, current, k, candidate, n )
+                               - overlaps( cluster, current, k, old, n );
+            float qualityDelta = member.qualities[candidate] - member.qualities[old];
+            float delta = qualityDelta + OVERLAP_COST * overlapDelta;
+            if ( delta <= 0 || random.nextDouble() < Math.exp( -delta / temperature ) ) {
+                current[k] = candidate;
+                currentOverlaps += overlapDelta;
+                if ( currentOverlaps < bestOverlaps ) {
+                    bestOverlaps = currentOverlaps;
+                    best = current.clone();
+                }
+            }
+        }
+        annealingSteps += step;
+        return best;
+    }
+
+    /**
+     * Counts the overlaps of a candidate of cluster member <code>k</code> with the selected candidates of the members
+     * with an index below <code>limit</code> (except <code>k</code> itself).
+     */
+    private static int overlaps( List<Candidates> cluster, int[] selection, int k, int candidate, int limit ) {
+        Rectangle2D[] boxes = cluster.get( k ).boxes[candidate];
+        int overlaps = 0;
+        for ( int j = 0; j < limit; j++ ) {
+            if ( j != k && intersects( boxes, cluster.get( j ).boxes[selection[j]] ) ) {
+                overlaps++;
+            }
+        }
+        return overlaps;
+    }
+
+    private static boolean intersects( Rectangle2D[] boxes1, Rectangle2D[] boxes2 ) {
+        for ( Rectangle2D b1 : boxes1 ) {
+            for ( Rectangle2D b2 : boxes2 ) {
+                if ( LabelCollisionIndex.intersects( b1, b2 ) ) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Candidates createCandidates( Label label ) {
+        TextStyling styling = label.getStyling();
+        double halo = styling.halo == null ? 0 : uomCalculator.considerUOM( styling.halo.radius, styling.uom );
+        if ( label instanceof CurveLabel ) {
+            Rectangle2D[] boxes = getGlyphBoxes( ( (CurveLabel) label ).getTextShape(), halo );
+            if ( boxes.length == 0 ) {
+                return null;
+            }
+            return new Candidates( label, new Rectangle2D[][] { boxes }, null, new float[] { 0 } );
+        }
+        if ( !styling.auto ) {
+            Point2D.Double p = label.getDrawPosition();
+            return new Candidates( label, new Rectangle2D[][] { { getBox( label, p.x, p.y, halo ) } },
+                                   new Point2D.Double[] { p }, new float[] { 0 } );
+        }
+
+        double dx = uomCalculator.considerUOM( styling.displacementX, styling.uom );
+        double dy = uomCalculator.considerUOM( styling.displacementY, styling.uom );
+        Point2D.Double origin = label.getOrigin();
+        Rectangle2D bounds = label.getLayout().getBounds();
+        Integer[] order = new Integer[qualities.length];
+        for ( int i = 0; i < order.length; i++ ) {
+            order[i] = i;
+        }
+        Arrays.sort( order, new Comparator<Integer>() {
+            @Override
+            public int compare( Integer i1, Integer i2 ) {
+                return Float.compare( qualities[i1], qualities[i2] );
+            }
+        } );
+        Rectangle2D[][] boxes = new Rectangle2D[order.length][];
+        Point2D.Double[] positions = new Point2D.Double[order.length];
+        float[] q = new float[order.length];
+        for ( int n = 0; n < order.length; n++ ) {
+            int i = order[n];
+            double x = origin.x + dx * displacmentMultiplicatorX[i] + 0.5 - anchorPointX[i] * bounds.getWidth();
+            double y = origin.y - dy * displacmentMultiplicatorY[i] + 0.5 + anchorPointY[i] * bounds.getHeight();
+            positions[n] = new Point2D.Double( x, y );
+            boxes[n] = new Rectangle2D[] { getBox( label, x, y, halo ) };
+            q[n] = qualities[i];
+        }
+        return new Candidates( label, boxes, positions, q );
+    }
+
+    private static Rectangle2D getBox( Label label, double x, double y, double halo ) {
+        Rectangle2D bounds = label.getLayout().getBounds();
+        Rectangle2D box = new Rectangle2D.Double( x + bounds.getX() - halo, y + bounds.getY() - halo,
+                                                  bounds.getWidth() + 2 * halo, bounds.getHeight() + 2 * halo );
+        double rotation = label.getStyling().rotation;
+        if ( rotation != 0 ) {
+            Point2D.Double origin = label.getOrigin();
+            AffineTransform t = AffineTransform.getRotateInstance( toRadians( rotation ), origin.x, origin.y );
+            box = t.createTransformedShape( box ).getBounds2D();
+        }
+        return box;
+    }
+
+    /**
+     * Collects the bounding boxes of the glyph outlines, outlines with overlapping boxes (e.g. the outer and inner
+     * outline of an 'o') are merged.
+     */
+    private static Rectangle2D[] getGlyphBoxes( Shape shape, double halo ) {
+        List<Rectangle2D> boxes = new ArrayList<Rectangle2D>();
+        double[] coords = new double[6];
+        Rectangle2D current = null;
+        for ( PathIterator iter = shape.getPathIterator( null ); !iter.isDone(); iter.next() ) {
+            int type = iter.currentSegment( coords );
+            if ( type == PathIterator.SEG_CLOSE ) {
+                continue;
+            }
+            int points = type == PathIterator.SEG_CUBICTO ? 3 : ( type == PathIterator.SEG_QUADTO ? 2 : 1 );
+            if ( type == PathIterator.SEG_MOVETO ) {
+                Rectangle2D last = boxes.isEmpty() ? null : boxes.get( boxes.size() - 1 );
+                if ( current != null ) {
+                    if ( last != null && LabelCollisionIndex.intersects( last, current ) ) {
+                        last.add( current );
+                    } else {
+                        boxes.add( current );
+                    }
+                }
+                current = new Rectangle2D.Double( coords[0], coords[1], 0, 0 );
+                continue;
+            }
+            for ( int i = 0; i < points; i++ ) {
+                current.add( coords[2 * i], coords[2 * i + 1] );
+            }
+        }
+        if ( current != null ) {
+            Rectangle2D last = boxes.isEmpty() ? null : boxes.get( boxes.size() - 1 );
+            if ( last != null && LabelCollisionIndex.intersects( last, current ) ) {
+                last.add( current );
+            } else {
+                boxes.add( current );
+            }
+        }
+        for ( Rectangle2D box : boxes ) {
+            box.setRect( box.getX() - halo, box.getY() - halo, box.getWidth() + 2 * halo, box.getHeight() + 2 * halo );
+        }
+        return boxes.toArray( new Rectangle2D[boxes.size()] );
+    }
+
+    /**
+     * The candidate positions of a label.
+     */
+    private static class Candidates {
+
+        final Label label;
+
+        final Rectangle2D[][] boxes;
+
+        final Point2D.Double[] drawPositions;
+
+        final float[] qualities;
+
+        // union of all candidate boxes
+        final Rectangle2D extent;
+
+        int selected = -1;
+
+        Candidates( Label label, Rectangle2D[][] boxes, Point2D.Double[] drawPositions, float[] qualities ) {
+            this.label = label;
+            this.boxes = boxes;
+            this.drawPositions = drawPositions;
+            this.qualities = qualities;
+            Rectangle2D extent = null;
+            for ( Rectangle2D[] candidate : boxes ) {
+                for ( Rectangle2D box : candidate ) {
+                    if ( extent == null ) {
+                        extent = (Rectangle2D) box.clone();
+                    } else {
+                        extent.add( box );
+                    }
+                }
+            }
+            this.extent = extent;
+        }
+    }
+
+}
@@ -0,0 +1,190 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d;
+
+import static java.awt.geom.PathIterator.SEG_CLOSE;
+import static java.awt.geom.PathIterator.SEG_LINETO;
+import static java.awt.geom.PathIterator.SEG_MOVETO;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D.Double;
+import java.awt.geom.PathIterator;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test cases for {@link GeometryPreparer}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class GeometryPreparerTest {
+
+    private GeometryPreparer preparer;
+
+    @Before
+    public void setup() {
+        // 100x100 pixels, one world unit per pixel, y axis flipped
+        final Envelope bbox = new GeometryFactory().createEnvelope( 0, 0, 100, 100, null );
+        final AffineTransform worldToScreen = new AffineTransform( 1, 0, 0, -1, 0, 100 );
+        preparer = new GeometryPreparer( worldToScreen, bbox );
+    }
+
+    @Test
+    public void testDisjointLineIsDropped() {
+        assertNull( preparer.prepare( new double[] { 500, 500, 600, 600 }, 2, false ) );
+    }
+
+    @Test
+    public void testVisibleLineIsTransformed() {
+        final Double path = preparer.prepare( new double[] { 10, 10, 20, 30 }, 2, false );
+        final double[][] segs = segments( path );
+        assertEquals( 2, segs.length );
+        assertSegment( segs[0], SEG_MOVETO, 10, 90 );
+        assertSegment( segs[1], SEG_LINETO, 20, 70 );
+    }
+
+    @Test
+    public void testVerticesOnSamePixelAreDropped() {
+        final double[] coords = new double[2 * 1000];
+        for ( int i = 0; i < 1000; ++i ) {
+            coords[2 * i] = 10 + i * 0.0001;
+            coords[2 * i + 1] = 10.5;
+        }
+        final double[][] segs = segments( preparer.prepare( coords, 2, false ) );
+        // start point and true end point remain
+        assertEquals( 2, segs.length );
+        assertSegment( segs[1], SEG_LINETO, coords[1998], 89.5 );
+    }
+
+    @Test
+    public void testLineIsSplitAtViewport() {
+        // leaves the padded viewport on the right and comes back
+        final Double path = preparer.prepare( new double[] { 50, 50, 1000, 50, 1000, 60, 50, 60 }, 2, false );
+        final double[][] segs = segments( path );
+        assertEquals( 4, segs.length );
+        assertSegment( segs[0], SEG_MOVETO, 50, 50 );
+        assertSegment( segs[1], SEG_LINETO, 200, 50 );
+        assertSegment( segs[2], SEG_MOVETO, 200, 40 );
+        assertSegment( segs[3], SEG_LINETO, 50, 40 );
+    }
+
+    @Test
+    public void testRingIsClippedToPaddedViewport() {
+        final Double path = preparer.prepare( new double[] { -1000, -1000, 1000, -1000, 1000, 1000, -1000, 1000,
+                                                            -1000, -1000 }, 2, true );
+        final Rectangle2D bounds = path.getBounds2D();
+        assertEquals( -100, bounds.getMinX(), 1e-9 );
+        assertEquals( -100, bounds.getMinY(), 1e-9 );
+        assertEquals( 200, bounds.getMaxX(), 1e-9 );
+        assertEquals( 200, bounds.getMaxY(), 1e-9 );
+        final double[][] segs = segments( path );
+        assertEquals( SEG_CLOSE, (int) segs[segs.length - 1][0] );
+        assertTrue( path.contains( 50, 50 ) );
+    }
+
+    @Test
+    public void testRingKeepsOrientation() {
+        // counter-clockwise in world coordinates, partly outside
+        final Double path = preparer.prepare( new double[] { 50, 50, 5000, 50, 5000, 60, 50, 60, 50, 50 }, 2, true );
+        final double[][] segs = segments( path );
+        double area = 0;
+        for ( int i = 0; i < segs.length - 2; ++i ) {
+            area += segs[i][1] * segs[i + 1][2] - segs[i + 1][1] * segs[i][2];
+        }
+        area += segs[segs.length - 2][1] * segs[0][2] - segs[0][1] * segs[segs.length - 2][2];
+        // y axis is flipped, so the ring is clockwise in screen space
+        assertTrue( area < 0 );
+        assertEquals( 150 * 10, -area / 2, 1e-9 );
+    }
+
+    @Test
+    public void testNonConvexRingIsClipped() {
+        // comb with 200 teeth crossing the right clipping edge, every vertex crosses the edge
+        final double[] coords = new double[2 * 403];
+        int k = 0;
+        for ( int i = 0; i < 200; ++i ) {
+            coords[k++] = 50;
+            coords[k++] = -50 + i;
+            coords[k++] = 1000;
+            coords[k++] = -49.5 + i;
+        }
+        coords[k++] = 0;
+        coords[k++] = 150;
+        coords[k++] = 0;
+        coords[k++] = -50;
+        coords[k++] = 50;
+        coords[k++] = -50;
+        final Double path = preparer.prepare( coords, 2, true );
+        assertEquals( 200, path.getBounds2D().getMaxX(), 1e-9 );
+        // spine and first tooth (world y -49.5)
+        assertTrue( path.contains( 25, 50 ) );
+        assertTrue( path.contains( 60, 149.5 ) );
+        final double[][] segs = segments( path );
+        assertEquals( SEG_CLOSE, (int) segs[segs.length - 1][0] );
+    }
+
+    @Test
+    public void testDisjointRingIsDropped() {
+        assertNull( preparer.prepare( new double[] { 500, 500, 600, 500, 600, 600, 500, 500 }, 2, true ) );
+    }
+
+    private static void assertSegment( final double[] seg, final int type, final double x, final double y ) {
+        assertEquals( type, (int) seg[0] );
+        assertEquals( x, seg[1], 1e-9 );
+        assertEquals( y, seg[2], 1e-9 );
+    }
+
+    private static double[][] segments( final Double path ) {
+        final List<double[]> segs = new ArrayList<double[]>();
+        final double[] coords = new double[6];
+        for ( final PathIterator iter = path.getPathIterator( null ); !iter.isDone(); iter.next() ) {
+            final int type = iter.currentSegment( coords );
+            segs.add( new double[] { type, coords[0], coords[1] } );
+        }
+        return segs.toArray( new double[segs.size()][] );
+    }
+
+}
@@ -0,0 +1,192 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.encoding;
+
+import static java.awt.image.BufferedImage.TYPE_3BYTE_BGR;
+import static java.awt.image.BufferedImage.TYPE_4BYTE_ABGR;
+import static java.awt.image.BufferedImage.TYPE_INT_ARGB;
+import static java.awt.image.BufferedImage.TYPE_INT_RGB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import javax.imageio.ImageIO;
+
+import org.deegree.style.utils.ColorQuantizer;
+import org.junit.Test;
+
+/**
+ * Encodes images with the {@link PngEncoder} and checks that ImageIO reads back the same pixels.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class PngEncoderTest {
+
+    private static BufferedImage createImage( int width, int height, int type ) {
+        BufferedImage img = new BufferedImage( width, height, type );
+        Graphics2D g = img.createGraphics();
+        g.setPaint( new GradientPaint( 0, 0, new Color( 230, 240, 200, 40 ), width, height,
+                                       new Color( 120, 160, 220, 255 ) ) );
+        g.fillRect( 0, 0, width, height );
+        Random rnd = new Random( 42 );
+        for ( int i = 0; i < 50; ++i ) {
+            g.setColor( new Color( rnd.nextInt( 0x1000000 ) | ( rnd.nextInt( 256 ) << 24 ), true ) );
+            g.fillOval( rnd.nextInt( width ), rnd.nextInt( height ), rnd.nextInt( 60 ), rnd.nextInt( 60 ) );
+        }
+        g.dispose();
+        return img;
+    }
+
+    private static BufferedImage roundTrip( BufferedImage img, ImageEncodingOptions options )
+                            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngEncoder.encode( img, out, options );
+        return ImageIO.read( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+    private static BufferedImage roundTrip( BufferedImage img, ImageEncodingOptions options, boolean parallel )
+                            throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PngEncoder.encode( img, out, options, parallel );
+        return ImageIO.read( new ByteArrayInputStream( out.toByteArray() ) );
+    }
+
+    private static void assertSamePixels( BufferedImage expected, BufferedImage actual ) {
+        assertEquals( expected.getWidth(), actual.getWidth() );
+        assertEquals( expected.getHeight(), actual.getHeight() );
+        boolean alpha = expected.getColorModel().hasAlpha();
+        for ( int y = 0; y < expected.getHeight(); ++y ) {
+            for ( int x = 0; x < expected.getWidth(); ++x ) {
+                int e = expected.getRGB( x, y );
+                int a = actual.getRGB( x, y );
+                if ( !alpha ) {
+                    e |= 0xff000000;
+                }
+                if ( e != a ) {
+                    assertEquals( "Pixel " + x + "," + y, Integer.toHexString( e ), Integer.toHexString( a ) );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testAllFilters()
+                            throws IOException {
+        BufferedImage img = createImage( 97, 61, TYPE_INT_ARGB );
+        for ( PngFilter filter : PngFilter.values() ) {
+            for ( int level : new int[] { 0, 1, 6, 9 } ) {
+                assertSamePixels( img, roundTrip( img, new ImageEncodingOptions( level, filter, false ) ) );
+            }
+        }
+    }
+
+    @Test
+    public void testImageTypes()
+                            throws IOException {
+        for ( int type : new int[] { TYPE_INT_RGB, TYPE_4BYTE_ABGR, TYPE_3BYTE_BGR } ) {
+            BufferedImage img = createImage( 80, 50, type );
+            assertSamePixels( img, roundTrip( img, null ) );
+        }
+    }
+
+    @Test
+    public void testPalette()
+                            throws IOException {
+        BufferedImage img = ColorQuantizer.quantizeImage( createImage( 120, 90, TYPE_INT_ARGB ), 256, false, false );
+        BufferedImage read = roundTrip( img, null );
+        assertSamePixels( img, read );
+    }
+
+    @Test
+    public void testParallel()
+                            throws IOException {
+        BufferedImage img = createImage( 700, 500, TYPE_INT_ARGB );
+        for ( int level : new int[] { 0, 4, 9 } ) {
+            ImageEncodingOptions options = new ImageEncodingOptions( level, null, true );
+            assertSamePixels( img, roundTrip( img, options, true ) );
+            assertSamePixels( img, roundTrip( img, options, false ) );
+        }
+    }
+
+    @Test
+    public void testZlibHeaderCheck() {
+        for ( int level = 0; level < 10; ++level ) {
+            assertEquals( 0, ( 0x78 * 256 + PngEncoder.zlibFlags( level ) ) % 31 );
+        }
+    }
+
+    @Test
+    public void testStatePoolIsBounded()
+                            throws IOException {
+        PngEncoder.EncoderState[] states = new PngEncoder.EncoderState[PngEncoder.POOL_SIZE + 1];
+        for ( int i = 0; i < states.length; ++i ) {
+            states[i] = PngEncoder.borrow();
+        }
+        for ( PngEncoder.EncoderState state : states ) {
+            PngEncoder.release( state );
+        }
+        assertEquals( PngEncoder.POOL_SIZE, PngEncoder.idleStates() );
+        // pooled states are still usable
+        BufferedImage img = createImage( 32, 32, TYPE_INT_RGB );
+        assertSamePixels( img, roundTrip( img, null ) );
+    }
+
+    @Test
+    public void testImageEncoderFormats()
+                            throws IOException {
+        BufferedImage img = createImage( 64, 64, TYPE_INT_ARGB );
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertTrue( ImageEncoder.encode( img, "image/png; mode=8bit", out, null ) );
+        BufferedImage read = ImageIO.read( new ByteArrayInputStream( out.toByteArray() ) );
+        assertEquals( 64, read.getWidth() );
+
+        BufferedImage rgb = createImage( 64, 64, TYPE_INT_RGB );
+        out = new ByteArrayOutputStream();
+        assertTrue( ImageEncoder.encode( rgb, "image/gif", out, null ) );
+        assertEquals( 64, ImageIO.read( new ByteArrayInputStream( out.toByteArray() ) ).getHeight() );
+        assertEquals( "bmp", ImageEncoder.getFormatName( "image/x-ms-bmp" ) );
+    }
+
+}
@@ -0,0 +1,89 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.labelplacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Rectangle2D;
+
+import org.junit.Test;
+
+/**
+ * Tests for {@link LabelCollisionIndex}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LabelCollisionIndexTest {
+
+    private static Rectangle2D[] box( double x, double y, double w, double h ) {
+        return new Rectangle2D[] { new Rectangle2D.Double( x, y, w, h ) };
+    }
+
+    @Test
+    public void testIntersectsAcrossCells() {
+        LabelCollisionIndex index = new LabelCollisionIndex( 256, 256, 64 );
+        index.add( box( 50, 50, 100, 20 ), "a" );
+        assertTrue( index.intersects( box( 140, 60, 30, 30 ) ) );
+        assertFalse( index.intersects( box( 150, 60, 30, 30 ) ) );
+        assertFalse( index.intersects( box( 50, 70, 100, 20 ) ) );
+    }
+
+    @Test
+    public void testOutsideOfScreen() {
+        LabelCollisionIndex index = new LabelCollisionIndex( 256, 256, 64 );
+        index.add( box( -40, -40, 50, 50 ), "a" );
+        assertTrue( index.intersects( box( -20, 0, 5, 5 ) ) );
+        assertFalse( index.intersects( box( 300, 300, 5, 5 ) ) );
+    }
+
+    @Test
+    public void testQueryAndRemove() {
+        LabelCollisionIndex index = new LabelCollisionIndex( 256, 256, 64 );
+        Rectangle2D[] a = box( 10, 10, 100, 10 );
+        Rectangle2D[] b = box( 120, 10, 100, 10 );
+        index.add( a, "a" );
+        index.add( b, "b" );
+        assertEquals( 2, index.query( new Rectangle2D.Double( 0, 0, 256, 30 ) ).size() );
+        index.remove( a, "a" );
+        assertFalse( index.intersects( box( 20, 12, 5, 5 ) ) );
+        assertTrue( index.intersects( box( 130, 12, 5, 5 ) ) );
+        assertEquals( 1, index.query( new Rectangle2D.Double( 0, 0, 256, 30 ) ).size() );
+    }
+
+}
@@ -0,0 +1,143 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.rendering.r2d.labelplacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.font.TextLayout;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.deegree.rendering.r2d.Label;
+import org.deegree.style.styling.TextStyling;
+import org.deegree.style.utils.UomCalculator;
+import org.junit.Test;
+
+/**
+ * Tests for {@link LabelPlacementEngine}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class LabelPlacementEngineTest {
+
+    private static final Font FONT = new Font( "SansSerif", Font.PLAIN, 12 );
+
+    private static final FontRenderContext FRC = new FontRenderContext( null, true, true );
+
+    private static LabelPlacementEngine engine() {
+        return new LabelPlacementEngine( 256, 256, new UomCalculator( 0.28, 1 ), false );
+    }
+
+    private static Label label( String text, double x, double y, boolean auto ) {
+        TextStyling styling = new TextStyling();
+        styling.auto = auto;
+        Label label = new Label( styling, FONT, text ) {
+            // only the protected constructor is accessible here
+        };
+        label.mLayout = new TextLayout( text, FONT, FRC );
+        label.mOrigin = new Point2D.Double( x, y );
+        label.mDrawPosition = new Point2D.Double( x, y );
+        return label;
+    }
+
+    private static List<Label> labels( Label... labels ) {
+        List<Label> list = new ArrayList<Label>();
+        for ( Label label : labels ) {
+            list.add( label );
+        }
+        return list;
+    }
+
+    private static Rectangle2D box( Label label ) {
+        Rectangle2D bounds = label.getLayout().getBounds();
+        Point2D.Double p = label.getDrawPosition();
+        return new Rectangle2D.Double( p.x + bounds.getX(), p.y + bounds.getY(), bounds.getWidth(),
+                                       bounds.getHeight() );
+    }
+
+    @Test
+    public void testOverlappingLabelsOneRendered() {
+        Label first = label( "Bonn", 100, 100, false );
+        Label second = label( "Beuel", 105, 102, false );
+        List<Label> placed = engine().place( labels( first, second ) );
+        assertEquals( 1, placed.size() );
+        assertSame( first, placed.get( 0 ) );
+    }
+
+    @Test
+    public void testDisjointLabelsBothRendered() {
+        Label first = label( "Bonn", 20, 40, false );
+        Label second = label( "Beuel", 150, 200, false );
+        List<Label> placed = engine().place( labels( first, second ) );
+        assertEquals( 2, placed.size() );
+    }
+
+    @Test
+    public void testHigherPriorityWins() {
+        Label first = label( "Bonn", 100, 100, false );
+        Label second = label( "Beuel", 105, 102, false );
+        second.getStyling().priority = 1;
+        List<Label> placed = engine().place( labels( first, second ) );
+        assertEquals( 1, placed.size() );
+        assertSame( second, placed.get( 0 ) );
+    }
+
+    @Test
+    public void testAutoPlacedLabelIsMoved() {
+        Label first = label( "Bonn", 100, 100, true );
+        Label second = label( "Beuel", 100, 100, true );
+        List<Label> placed = engine().place( labels( first, second ) );
+        assertEquals( 2, placed.size() );
+        assertFalse( LabelCollisionIndex.intersects( box( first ), box( second ) ) );
+    }
+
+    @Test
+    public void testAllowOverlap() {
+        Label first = label( "Bonn", 100, 100, false );
+        Label second = label( "Beuel", 105, 102, false );
+        second.getStyling().allowOverlap = true;
+        List<Label> placed = engine().place( labels( first, second ) );
+        assertEquals( 2, placed.size() );
+    }
+
+}
@@ -0,0 +1,69 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.sqldialect.filter.mssql;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Tests the SQL snippets of {@link MSSQLGeometryConverter}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class MSSQLGeometryConverterTest {
+
+    @Test
+    public void testGeneralizedSelectSnippet() {
+        MSSQLGeometryConverter converter = new MSSQLGeometryConverter( "geom", null, "4326", true );
+        assertEquals( "X1.geom.Reduce(0.5).STAsBinary()", converter.getSelectSnippet( "X1", 0.5 ) );
+        assertEquals( "geom.Reduce(0.5).STAsBinary()", converter.getSelectSnippet( null, 0.5 ) );
+    }
+
+    @Test
+    public void testNoGeneralization() {
+        MSSQLGeometryConverter converter = new MSSQLGeometryConverter( "geom", null, "4326", true );
+        assertEquals( "X1.geom.STAsBinary()", converter.getSelectSnippet( "X1", 0 ) );
+    }
+
+    @Test
+    public void testNoGeneralizationOf3dColumns() {
+        MSSQLGeometryConverter converter = new MSSQLGeometryConverter( "geom", null, "4326", false );
+        assertEquals( "X1.geom.ToString()", converter.getSelectSnippet( "X1", 0.5 ) );
+    }
+
+}
@@ -97,6 +97,17 @@ public class PostGISGeometryConverter implements GeometryParticleConverter {
         return asewkb + "(" + column + ")";
     }
 
+    @Override
+    public String getSelectSnippet( String tableAlias, double tolerance ) {
+        if ( tolerance <= 0 ) {
+            return getSelectSnippet( tableAlias );
+        }
+        String asewkb = useLegacyPredicates ? "AsEWKB" : "ST_AsEWKB";
+        String simplify = useLegacyPredicates ? "SimplifyPreserveTopology" : "ST_SimplifyPreserveTopology";
+        String col = tableAlias != null ? tableAlias + "." + column : column;
+        return asewkb + "(" + simplify + "(" + col + "," + tolerance + "))";
+    }
+
     @Override
     public Geometry toParticle( ResultSet rs, int colIndex )
                             throws SQLException {
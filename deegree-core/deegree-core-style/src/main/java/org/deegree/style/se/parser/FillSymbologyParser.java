@@ -99,7 +99,7 @@ class FillSymbologyParser {
                 if ( pair != null ) {
                     base.graphic = pair.first;
                     if ( pair.second != null ) {
-                        contn = new Continuation<Fill>( contn ) {
+                        contn = new Continuation<Fill>( contn, pair.second ) {
                             @Override
                             public void updateStep( Fill base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 pair.second.evaluate( base.graphic, f, evaluator );
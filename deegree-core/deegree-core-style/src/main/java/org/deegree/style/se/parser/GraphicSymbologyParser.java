@@ -119,7 +119,7 @@ class GraphicSymbologyParser {
                 if ( pair != null ) {
                     base.mark = pair.first;
                     if ( pair.second != null ) {
-                        contn = new Continuation<Graphic>( contn ) {
+                        contn = new Continuation<Graphic>( contn, pair.second ) {
                             @Override
                             public void updateStep( Graphic base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 pair.second.evaluate( base.mark, f, evaluator );
@@ -131,7 +131,7 @@ class GraphicSymbologyParser {
                 try {
                     final Triple<BufferedImage, String, Continuation<List<Pair<BufferedImage, String>>>> p = parseExternalGraphic( in );
                     if ( p.third != null ) {
-                        contn = new Continuation<Graphic>( contn ) {
+                        contn = new Continuation<Graphic>( contn, p.third ) {
                             @Override
                             public void updateStep( Graphic base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 LinkedList<Pair<BufferedImage, String>> list = new LinkedList<Pair<BufferedImage, String>>();
@@ -309,7 +309,7 @@ class GraphicSymbologyParser {
                     final Pair<Fill, Continuation<Fill>> fill = context.fillParser.parseFill( in );
                     base.fill = fill.first;
                     if ( fill.second != null ) {
-                        contn = new Continuation<Mark>( contn ) {
+                        contn = new Continuation<Mark>( contn, fill.second ) {
                             @Override
                             public void updateStep( Mark base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 fill.second.evaluate( base.fill, f, evaluator );
@@ -320,7 +320,7 @@ class GraphicSymbologyParser {
                     final Pair<Stroke, Continuation<Stroke>> stroke = context.strokeParser.parseStroke( in );
                     base.stroke = stroke.first;
                     if ( stroke.second != null ) {
-                        contn = new Continuation<Mark>( contn ) {
+                        contn = new Continuation<Mark>( contn, stroke.second ) {
                             @Override
                             public void updateStep( Mark base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 stroke.second.evaluate( base.stroke, f, evaluator );
@@ -386,7 +386,7 @@ class GraphicSymbologyParser {
                             return size() > 256; // yeah, hardcoded max size... TODO
                         }
                     };
-                    contn = new Continuation<List<Pair<BufferedImage, String>>>() {
+                    contn = new Continuation<List<Pair<BufferedImage, String>>>( null, sbcontn ) {
                         @Override
                         public void updateStep( List<Pair<BufferedImage, String>> base, Feature f,
                                                 XPathEvaluator<Feature> evaluator ) {
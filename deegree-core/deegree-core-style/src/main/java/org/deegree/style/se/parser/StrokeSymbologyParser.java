@@ -204,7 +204,7 @@ class StrokeSymbologyParser {
         if ( pair != null ) {
             base.fill = pair.first;
             if ( pair.second != null ) {
-                contn = new Continuation<Stroke>( contn ) {
+                contn = new Continuation<Stroke>( contn, pair.second ) {
                     @Override
                     public void updateStep( Stroke base, Feature f, XPathEvaluator<Feature> evaluator ) {
                         pair.second.evaluate( base.fill, f, evaluator );
@@ -229,7 +229,7 @@ class StrokeSymbologyParser {
                 if ( pair != null ) {
                     base.stroke = pair.first;
                     if ( pair.second != null ) {
-                        contn = new Continuation<Stroke>( contn ) {
+                        contn = new Continuation<Stroke>( contn, pair.second ) {
                             @Override
                             public void updateStep( Stroke base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 pair.second.evaluate( base.stroke, f, evaluator );
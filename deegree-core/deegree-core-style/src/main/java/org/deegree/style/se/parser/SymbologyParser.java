@@ -59,6 +59,7 @@ import java.io.IOException;
 import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -225,7 +226,7 @@ public class SymbologyParser {
                 baseOrEvaluated.graphic = pair.first;
 
                 if ( pair.second != null ) {
-                    return new Symbolizer<PointStyling>( baseOrEvaluated, new Continuation<PointStyling>() {
+                    return new Symbolizer<PointStyling>( baseOrEvaluated, new Continuation<PointStyling>( null, pair.second ) {
                         @Override
                         public void updateStep( PointStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                             pair.second.evaluate( base.graphic, f, evaluator );
@@ -513,7 +514,7 @@ public class SymbologyParser {
                     baseOrEvaluated.stroke = pair.first;
 
                     if ( pair.second != null ) {
-                        contn = new Continuation<LineStyling>( contn ) {
+                        contn = new Continuation<LineStyling>( contn, pair.second ) {
                             @Override
                             public void updateStep( LineStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 pair.second.evaluate( base.stroke, f, evaluator );
@@ -573,7 +574,7 @@ public class SymbologyParser {
                     baseOrEvaluated.stroke = pair.first;
 
                     if ( pair.second != null ) {
-                        contn = new Continuation<PolygonStyling>( contn ) {
+                        contn = new Continuation<PolygonStyling>( contn, pair.second ) {
                             @Override
                             public void updateStep( PolygonStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 pair.second.evaluate( base.stroke, f, evaluator );
@@ -588,7 +589,7 @@ public class SymbologyParser {
                     baseOrEvaluated.fill = fillPair.first;
 
                     if ( fillPair.second != null ) {
-                        contn = new Continuation<PolygonStyling>( contn ) {
+                        contn = new Continuation<PolygonStyling>( contn, fillPair.second ) {
                             @Override
                             public void updateStep( PolygonStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 fillPair.second.evaluate( base.fill, f, evaluator );
@@ -706,7 +707,13 @@ public class SymbologyParser {
                 }
                 updater.update( obj, text.isEmpty() ? "" : text.getFirst().first );
             } else {
-                contn = new Continuation<T>( contn ) {
+                List<Expression> exprs = new ArrayList<Expression>();
+                for ( Pair<String, Pair<Expression, String>> p : text ) {
+                    if ( p.second != null ) {
+                        exprs.add( p.second.first );
+                    }
+                }
+                contn = new Continuation<T>( contn, exprs ) {
                     @Override
                     public void updateStep( T base, Feature f, XPathEvaluator<Feature> evaluator ) {
                         StringBuilder tmp = new StringBuilder();
@@ -774,6 +781,16 @@ public class SymbologyParser {
                 xmlText = res.first;
                 label = res.second;
             } else if ( in.getLocalName().equals( "LabelPlacement" ) ) {
+                String priority = in.getAttributeValue( null, "priority" );
+                if ( priority != null ) {
+                    try {
+                        baseOrEvaluated.priority = Double.parseDouble( priority );
+                    } catch ( NumberFormatException e ) {
+                        LOG.warn( "Ignoring invalid label priority '{}'.", priority );
+                    }
+                }
+                String allowOverlap = in.getAttributeValue( null, "allowOverlap" );
+                baseOrEvaluated.allowOverlap = allowOverlap != null && allowOverlap.equalsIgnoreCase( "true" );
                 while ( !( in.isEndElement() && in.getLocalName().equalsIgnoreCase( "LabelPlacement" ) ) ) {
                     in.nextTag();
 
@@ -860,7 +877,7 @@ public class SymbologyParser {
                             baseOrEvaluated.linePlacement = pair.first;
 
                             if ( pair.second != null ) {
-                                contn = new Continuation<TextStyling>( contn ) {
+                                contn = new Continuation<TextStyling>( contn, pair.second ) {
                                     @Override
                                     public void updateStep( TextStyling base, Feature f,
                                                             XPathEvaluator<Feature> evaluator ) {
@@ -877,7 +894,7 @@ public class SymbologyParser {
                     baseOrEvaluated.halo = haloPair.first;
 
                     if ( haloPair.second != null ) {
-                        contn = new Continuation<TextStyling>( contn ) {
+                        contn = new Continuation<TextStyling>( contn, haloPair.second ) {
                             @Override
                             public void updateStep( TextStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 haloPair.second.evaluate( base.halo, f, evaluator );
@@ -891,7 +908,7 @@ public class SymbologyParser {
                     baseOrEvaluated.font = fontPair.first;
 
                     if ( fontPair.second != null ) {
-                        contn = new Continuation<TextStyling>( contn ) {
+                        contn = new Continuation<TextStyling>( contn, fontPair.second ) {
                             @Override
                             public void updateStep( TextStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 fontPair.second.evaluate( base.font, f, evaluator );
@@ -905,7 +922,7 @@ public class SymbologyParser {
                     baseOrEvaluated.fill = fillPair.first;
 
                     if ( fillPair.second != null ) {
-                        contn = new Continuation<TextStyling>( contn ) {
+                        contn = new Continuation<TextStyling>( contn, fillPair.second ) {
                             @Override
                             public void updateStep( TextStyling base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 fillPair.second.evaluate( base.fill, f, evaluator );
@@ -1013,7 +1030,7 @@ public class SymbologyParser {
                     baseOrEvaluated.fill = fillPair.first;
 
                     if ( fillPair.second != null ) {
-                        contn = new Continuation<Halo>( contn ) {
+                        contn = new Continuation<Halo>( contn, fillPair.second ) {
                             @Override
                             public void updateStep( Halo base, Feature f, XPathEvaluator<Feature> evaluator ) {
                                 fillPair.second.evaluate( base.fill, f, evaluator );
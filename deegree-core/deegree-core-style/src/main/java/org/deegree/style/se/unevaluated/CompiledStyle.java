@@ -0,0 +1,232 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.style.se.unevaluated;
+
+import static org.deegree.style.se.parser.SymbologyParser.ELSEFILTER;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.deegree.commons.utils.DoublePair;
+import org.deegree.commons.utils.Pair;
+import org.deegree.commons.utils.Triple;
+import org.deegree.feature.Feature;
+import org.deegree.filter.Filter;
+import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.XPathEvaluator;
+import org.deegree.geometry.Geometry;
+import org.deegree.style.se.parser.SymbologyParser.FilterContinuation;
+import org.deegree.style.styling.Styling;
+import org.deegree.style.styling.TextStyling;
+import org.slf4j.Logger;
+
+/**
+ * The rules of a {@link Style} compiled into flat arrays once, so evaluating a feature neither walks the rule
+ * continuations nor looks up labels. Scale constraints are resolved by {@link #filter(double)} before any filter is
+ * evaluated, and the result shares the compiled rules of the unfiltered style. Symbolizers without dynamic parts
+ * return their shared (immutable) styling, so rules without a filter and with static symbolizers only just determine
+ * the geometries.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+final class CompiledStyle {
+
+    private static final Logger LOG = getLogger( CompiledStyle.class );
+
+    private final Rule[] rules;
+
+    private final Map<Symbolizer<TextStyling>, Continuation<StringBuffer>> labels;
+
+    CompiledStyle( Collection<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>> rules,
+                   Map<Symbolizer<TextStyling>, Continuation<StringBuffer>> labels ) {
+        this.rules = new Rule[rules.size()];
+        this.labels = labels;
+        int i = 0;
+        for ( Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair> rule : rules ) {
+            this.rules[i++] = new Rule( rule.first, rule.second, labels );
+        }
+    }
+
+    private CompiledStyle( Rule[] rules, Map<Symbolizer<TextStyling>, Continuation<StringBuffer>> labels ) {
+        this.rules = rules;
+        this.labels = labels;
+    }
+
+    /**
+     * @param scale
+     * @return the compiled style with the rules applying to the scale, may be this
+     */
+    CompiledStyle filter( double scale ) {
+        int cnt = 0;
+        for ( Rule rule : rules ) {
+            if ( rule.appliesTo( scale ) ) {
+                ++cnt;
+            }
+        }
+        if ( cnt == rules.length ) {
+            return this;
+        }
+        Rule[] filtered = new Rule[cnt];
+        cnt = 0;
+        for ( Rule rule : rules ) {
+            if ( rule.appliesTo( scale ) ) {
+                filtered[cnt++] = rule;
+            }
+        }
+        return new CompiledStyle( filtered, labels );
+    }
+
+    /**
+     * Evaluates the rules in order, with the same semantics as evaluating the rule continuations: an else filter
+     * applies if no symbolizer was selected by the preceding rules, and all filters apply if the feature is
+     * <code>null</code>.
+     * 
+     * @param f
+     *            may be null
+     * @param evaluator
+     * @param res
+     *            to add the stylings, geometries and label texts to
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    void evaluate( Feature f, XPathEvaluator<Feature> evaluator, List<Triple<Styling, LinkedList<Geometry>, String>> res ) {
+        int selected = 0;
+        StringBuffer sb = null;
+        String text = null;
+        for ( Rule rule : rules ) {
+            Symbolizer<?>[] syms = rule.symbolizers;
+            Continuation<StringBuffer>[] texts = rule.labels;
+            if ( syms == null ) {
+                LinkedList<Symbolizer<?>> list = new LinkedList<Symbolizer<?>>();
+                rule.contn.evaluate( list, f, evaluator );
+                syms = list.toArray( new Symbolizer<?>[list.size()] );
+                texts = new Continuation[syms.length];
+                for ( int i = 0; i < syms.length; ++i ) {
+                    texts[i] = labels.get( syms[i] );
+                }
+            } else if ( !rule.matches( f, evaluator, selected ) ) {
+                continue;
+            }
+            selected += syms.length;
+            for ( int i = 0; i < syms.length; ++i ) {
+                Pair<?, LinkedList<Geometry>> p = syms[i].evaluate( f, evaluator );
+                if ( texts[i] != null ) {
+                    if ( sb == null ) {
+                        sb = new StringBuffer();
+                    } else {
+                        sb.setLength( 0 );
+                    }
+                    texts[i].evaluate( sb, f, evaluator );
+                    text = sb.toString();
+                }
+                res.add( new Triple<Styling, LinkedList<Geometry>, String>( (Styling) p.first, p.second, text ) );
+            }
+        }
+    }
+
+    private static final class Rule {
+
+        private final double minScale;
+
+        private final double maxScale;
+
+        // null, if the rule has no filter or is not a filter rule
+        private final Filter filter;
+
+        // set if the rule is not compiled (not a filter or insert continuation)
+        private final Continuation<LinkedList<Symbolizer<?>>> contn;
+
+        private final Symbolizer<?>[] symbolizers;
+
+        private final Continuation<StringBuffer>[] labels;
+
+        @SuppressWarnings({ "rawtypes", "unchecked" })
+        Rule( Continuation<LinkedList<Symbolizer<?>>> contn, DoublePair scales,
+              Map<Symbolizer<TextStyling>, Continuation<StringBuffer>> labels ) {
+            minScale = scales.first;
+            maxScale = scales.second;
+            List<Symbolizer<?>> syms = null;
+            if ( contn instanceof FilterContinuation ) {
+                filter = ( (FilterContinuation) contn ).filter;
+                syms = ( (FilterContinuation) contn ).getSymbolizers();
+            } else {
+                filter = null;
+                if ( contn instanceof Style.InsertContinuation ) {
+                    syms = new LinkedList<Symbolizer<?>>();
+                    contn.evaluate( (LinkedList) syms, null, null );
+                }
+            }
+            if ( syms == null ) {
+                this.contn = contn;
+                symbolizers = null;
+                this.labels = null;
+                return;
+            }
+            this.contn = null;
+            symbolizers = syms.toArray( new Symbolizer<?>[syms.size()] );
+            this.labels = new Continuation[symbolizers.length];
+            for ( int i = 0; i < symbolizers.length; ++i ) {
+                this.labels[i] = labels.get( symbolizers[i] );
+            }
+        }
+
+        boolean appliesTo( double scale ) {
+            return minScale <= scale && maxScale >= scale;
+        }
+
+        boolean matches( Feature f, XPathEvaluator<Feature> evaluator, int selected ) {
+            if ( filter == null || f == null ) {
+                return true;
+            }
+            if ( filter == ELSEFILTER ) {
+                return selected == 0;
+            }
+            try {
+                return filter.evaluate( f, evaluator );
+            } catch ( FilterEvaluationException e ) {
+                LOG.warn( "Evaluating the following expression resulted in an error '{}':\n'{}'",
+                          e.getLocalizedMessage(), filter.toString() );
+                LOG.debug( "Stack trace:", e );
+                return false;
+            }
+        }
+
+    }
+
+}
@@ -36,7 +36,14 @@
 
 package org.deegree.style.se.unevaluated;
 
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import org.deegree.feature.Feature;
+import org.deegree.filter.Expression;
 import org.deegree.filter.XPathEvaluator;
 
 /**
@@ -52,6 +59,11 @@ public abstract class Continuation<T> {
 
     private Continuation<T> next;
 
+    // expressions evaluated by this step, null if unknown
+    private List<Expression> expressions;
+
+    private Continuation<?> nested;
+
     /**
      *
      */
@@ -66,6 +78,29 @@ public abstract class Continuation<T> {
         this.next = next;
     }
 
+    /**
+     * @param next
+     *            may be null
+     * @param expressions
+     *            the expressions this step evaluates, must not be <code>null</code>
+     */
+    public Continuation( Continuation<T> next, List<Expression> expressions ) {
+        this.next = next;
+        this.expressions = expressions;
+    }
+
+    /**
+     * @param next
+     *            may be null
+     * @param nested
+     *            the continuation this step delegates to, must not be <code>null</code>
+     */
+    public Continuation( Continuation<T> next, Continuation<?> nested ) {
+        this.next = next;
+        this.nested = nested;
+        this.expressions = emptyList();
+    }
+
     /**
      * @param base
      * @param obj
@@ -83,6 +118,36 @@ public abstract class Continuation<T> {
         }
     }
 
+    /**
+     * @return this step and its successors in evaluation order, calling {@link #updateStep} on each of them is
+     *         equivalent to {@link #evaluate}
+     */
+    List<Continuation<T>> getSteps() {
+        List<Continuation<T>> steps = new ArrayList<Continuation<T>>();
+        for ( Continuation<T> step = this; step != null; step = step.next ) {
+            steps.add( step );
+        }
+        return steps;
+    }
+
+    /**
+     * Collects the expressions evaluated by this continuation, its nested continuations and its successors.
+     * 
+     * @param exprs
+     *            to add the expressions to, must not be <code>null</code>
+     * @return false, if a step does not expose the expressions it evaluates (exprs is incomplete then)
+     */
+    public boolean collectExpressions( Collection<Expression> exprs ) {
+        if ( expressions == null ) {
+            return false;
+        }
+        exprs.addAll( expressions );
+        if ( nested != null && !nested.collectExpressions( exprs ) ) {
+            return false;
+        }
+        return next == null || next.collectExpressions( exprs );
+    }
+
     /**
      * <code>Updater</code>
      * 
@@ -47,6 +47,7 @@ import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -59,6 +60,7 @@ import org.deegree.commons.utils.DoublePair;
 import org.deegree.commons.utils.Pair;
 import org.deegree.commons.utils.Triple;
 import org.deegree.feature.Feature;
+import org.deegree.filter.Expression;
 import org.deegree.filter.XPathEvaluator;
 import org.deegree.filter.function.geometry.IsCurve;
 import org.deegree.filter.function.geometry.IsPoint;
@@ -122,6 +124,9 @@ public class Style implements Copyable<Style> {
 
     private boolean prefersGetLegendGraphicUrl;
 
+    // compiled lazily on first evaluation, shared by the styles filtered by scale
+    private volatile CompiledStyle compiled;
+
     /**
      * @param rules
      * @param labels
@@ -217,7 +222,18 @@ public class Style implements Copyable<Style> {
                 LOG.debug( "Not using rule because of scale constraints, in style with name '{}'.", name );
             }
         }
-        return new Style( rules, labels, null, name, featureType );
+        Style style = new Style( rules, labels, null, name, featureType );
+        style.compiled = getCompiled().filter( scale );
+        return style;
+    }
+
+    private CompiledStyle getCompiled() {
+        CompiledStyle compiled = this.compiled;
+        if ( compiled == null ) {
+            compiled = new CompiledStyle( rules, labels );
+            this.compiled = compiled;
+        }
+        return compiled;
     }
 
     /**
@@ -254,38 +270,21 @@ public class Style implements Copyable<Style> {
             return list;
         }
 
-        LinkedList<Object> res = new LinkedList<Object>();
+        LinkedList<Triple<Styling, LinkedList<Geometry>, String>> res = new LinkedList<Triple<Styling, LinkedList<Geometry>, String>>();
         if ( featureType != null && !f.getType().getName().equals( featureType ) ) {
             LOG.debug( "Not using style because feature type constraint does not match." );
-            return (LinkedList) res;
-        }
-
-        StringBuffer sb = new StringBuffer();
-        LinkedList<Symbolizer<?>> list = new LinkedList<Symbolizer<?>>();
-        for ( Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair> pair : rules ) {
-            pair.first.evaluate( list, f, evaluator );
+            return res;
         }
 
-        String text = null;
-        for ( Symbolizer<?> s : list ) {
-            Pair<?, ?> p = s.evaluate( f, evaluator );
-
-            if ( labels.containsKey( s ) ) {
-                sb.setLength( 0 );
-                labels.get( s ).evaluate( sb, f, evaluator );
-                text = sb.toString();
-            }
-            res.add( new Triple<Object, Object, String>( p.first, p.second, text ) );
-        }
-
-        return (LinkedList) res;
+        getCompiled().evaluate( f, evaluator, res );
+        return res;
     }
 
     /**
-     * @return the live list of rules
+     * @return the rules, the list can not be modified (the rules are compiled on first evaluation)
      */
-    public LinkedList<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>> getRules() {
-        return rules;
+    public List<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>> getRules() {
+        return Collections.unmodifiableList( rules );
     }
 
     /**
@@ -363,6 +362,34 @@ public class Style implements Copyable<Style> {
         return true;
     }
 
+    /**
+     * Collects the expressions the symbolizers and labels of this style evaluate for a feature. Rule filters are not
+     * included.
+     * 
+     * @param exprs
+     *            to add the expressions to, must not be <code>null</code>
+     * @return false, if the expressions cannot be determined completely
+     */
+    public boolean collectExpressions( Collection<Expression> exprs ) {
+        for ( Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair> rule : rules ) {
+            if ( !( rule.first instanceof FilterContinuation || rule.first instanceof InsertContinuation ) ) {
+                return false;
+            }
+            LinkedList<Symbolizer<?>> base = new LinkedList<Symbolizer<?>>();
+            rule.first.evaluate( base, null, null );
+            for ( Symbolizer<?> s : base ) {
+                if ( !s.collectExpressions( exprs ) ) {
+                    return false;
+                }
+                Continuation<StringBuffer> label = labels.get( s );
+                if ( label != null && !label.collectExpressions( exprs ) ) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
     /**
      * @return Polygon.class, if the IsSurface function is used, Point.class for IsPoint and LineString.class for
      *         IsCurve
@@ -461,6 +488,7 @@ public class Style implements Copyable<Style> {
         style.legendFile = legendFile;
         style.legendUrl = legendUrl;
         style.prefersGetLegendGraphicUrl = prefersGetLegendGraphicUrl;
+        style.compiled = compiled;
         return style;
     }
 }
@@ -38,6 +38,7 @@ package org.deegree.style.se.unevaluated;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -76,6 +77,9 @@ public class Symbolizer<T extends Styling<T>> {
 
     private Continuation<T> next;
 
+    // the steps of next, flattened once so evaluation does not walk the chain per feature
+    private final Continuation<T>[] steps;
+
     private Expression geometry;
 
     private String name;
@@ -108,6 +112,7 @@ public class Symbolizer<T extends Styling<T>> {
      * @param line
      * @param col
      */
+    @SuppressWarnings("unchecked")
     public Symbolizer( T base, Continuation<T> next, Expression geometry, String name, String file, int line, int col ) {
         if ( geometry == null ) {
             LOG.debug( "In file '{}', line {}, column {}: no geometry property defined, using first geometry property as default.",
@@ -115,6 +120,7 @@ public class Symbolizer<T extends Styling<T>> {
         }
         this.base = base;
         this.next = next;
+        this.steps = next == null ? null : next.getSteps().toArray( new Continuation[0] );
         this.geometry = geometry;
         this.name = name;
         this.file = file;
@@ -247,7 +253,9 @@ public class Symbolizer<T extends Styling<T>> {
             return pair;
         }
 
-        next.evaluate( evald, f, evaluator );
+        for ( Continuation<T> step : steps ) {
+            step.updateStep( evald, f, evaluator );
+        }
         // if ( id != null ) {
         // cache.put( id, pair.first );
         // }
@@ -269,4 +277,18 @@ public class Symbolizer<T extends Styling<T>> {
         return geometry;
     }
 
+    /**
+     * Collects the expressions evaluated for a feature: the geometry expression and the dynamic parts of the styling.
+     * 
+     * @param exprs
+     *            to add the expressions to, must not be <code>null</code>
+     * @return false, if the expressions cannot be determined completely
+     */
+    public boolean collectExpressions( Collection<Expression> exprs ) {
+        if ( geometry != null ) {
+            exprs.add( geometry );
+        }
+        return evaluated != null || next == null || next.collectExpressions( exprs );
+    }
+
 }
\ No newline at end of file
@@ -112,6 +112,16 @@ public class TextStyling implements Styling<TextStyling> {
      */
     public boolean auto = false;
 
+    /**
+     * Labels with a higher priority are placed first when labels collide. Default is 0.
+     */
+    public double priority = 0.0;
+
+    /**
+     * If true, labels are drawn even if they collide with other labels. Default is false.
+     */
+    public boolean allowOverlap = false;
+
           
     /**
      *
@@ -135,6 +145,8 @@ public class TextStyling implements Styling<TextStyling> {
         copy.halo = halo == null ? null : halo.copy();
         copy.uom = uom;
         copy.auto = auto;
+        copy.priority = priority;
+        copy.allowOverlap = allowOverlap;
         return copy;
     }
 
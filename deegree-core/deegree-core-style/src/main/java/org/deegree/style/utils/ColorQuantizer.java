@@ -60,9 +60,12 @@ package org.deegree.style.utils;
 import java.awt.AlphaComposite;
 import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
 import java.awt.image.DataBufferByte;
 import java.awt.image.DataBufferInt;
 import java.awt.image.IndexColorModel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 
 /*
  * Modifications by Juerg Lehni:
@@ -272,6 +275,10 @@ public class ColorQuantizer {
 
     public static final int MAX_RGB = 255;
 
+    private static final int INVERSE_CACHE_BITS = 12;
+
+    private static final int INVERSE_CACHE_SIZE = 1 << INVERSE_CACHE_BITS;
+
     static class ClosestColor {
         int distance;
 
@@ -475,10 +482,15 @@ public class ColorQuantizer {
             int pixels[] = ( (DataBufferInt) row.getRaster().getDataBuffer() ).getData();
             // make sure alpha values do not add up for each row:
             g2d.setComposite( AlphaComposite.Src );
+            int[] direct = getPixels( image );
             // calculate scanline by scanline in order to safe memory.
             // It also seems to run faster like that
             for ( y = 0; y < height; y++ ) {
-                g2d.drawImage( image, null, 0, -y );
+                if ( direct != null ) {
+                    System.arraycopy( direct, y * width, pixels, 0, width );
+                } else {
+                    g2d.drawImage( image, null, 0, -y );
+                }
                 // now pixels contains the rgb values of the row y!
                 if ( this.numNodes > MAX_NODES ) {
                     // Prune one level if the color tree is too large.
@@ -611,14 +623,24 @@ public class ColorQuantizer {
                 int pixels[] = ( (DataBufferInt) row.getRaster().getDataBuffer() ).getData();
                 // make sure alpha values do not add up for each row:
                 g2d.setComposite( AlphaComposite.Src );
+                int[] direct = getPixels( image );
+                // cache of the color map indices of recently seen colors, map images usually contain few distinct
+                // colors, so most pixels are resolved without searching the tree
+                int[] cachedColors = new int[INVERSE_CACHE_SIZE];
+                byte[] cachedIndices = new byte[INVERSE_CACHE_SIZE];
+                boolean[] cached = new boolean[INVERSE_CACHE_SIZE];
                 // calculate scanline by scanline in order to safe memory.
                 // It also seems to run faster like that
                 Node node;
-                int x, y, i, id;
+                int x, y, i, id, key, slot;
                 int pixel, red, green, blue, alpha;
                 int pos = 0;
                 for ( y = 0; y < height; y++ ) {
-                    g2d.drawImage( image, null, 0, -y );
+                    if ( direct != null ) {
+                        System.arraycopy( direct, y * width, pixels, 0, width );
+                    } else {
+                        g2d.drawImage( image, null, 0, -y );
+                    }
                     // now pixels contains the rgb values of the row y!
                     // filter this row now:
                     for ( x = 0; x < width; ) {
@@ -632,8 +654,12 @@ public class ColorQuantizer {
                             alpha = alpha < 128 ? 0 : 0xff;
 
                         byte col;
+                        key = ( pixel & 0xffffff ) | ( alpha << 24 );
+                        slot = ( key * 0x9E3779B1 ) >>> ( 32 - INVERSE_CACHE_BITS );
                         if ( alpha == 0 && this.addTransparency ) {
                             col = 0; // transparency color is at position 0 of color map
+                        } else if ( cached[slot] && cachedColors[slot] == key ) {
+                            col = cachedIndices[slot];
                         } else {
                             // walk the tree to find the cube containing that
                             // color
@@ -650,6 +676,9 @@ public class ColorQuantizer {
                             closest.distance = Integer.MAX_VALUE;
                             node.parent.findClosestColor( red, green, blue, alpha, closest );
                             col = (byte) closest.colorIndex;
+                            cached[slot] = true;
+                            cachedColors[slot] = key;
+                            cachedIndices[slot] = col;
                         }
 
                         // first color
@@ -668,6 +697,27 @@ public class ColorQuantizer {
         }
     }
 
+    /**
+     * @return the backing pixel array of an unshared {@link BufferedImage#TYPE_INT_ARGB} image with one int per pixel
+     *         and no padding, <code>null</code> otherwise
+     */
+    static int[] getPixels( BufferedImage image ) {
+        if ( image.getType() != BufferedImage.TYPE_INT_ARGB ) {
+            return null;
+        }
+        WritableRaster raster = image.getRaster();
+        if ( raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+             || !( raster.getSampleModel() instanceof SinglePixelPackedSampleModel ) ) {
+            return null;
+        }
+        SinglePixelPackedSampleModel sm = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBuffer buffer = raster.getDataBuffer();
+        if ( sm.getScanlineStride() != image.getWidth() || buffer.getNumBanks() != 1 || buffer.getOffset() != 0 ) {
+            return null;
+        }
+        return ( (DataBufferInt) buffer ).getData();
+    }
+
     public static BufferedImage quantizeImage( BufferedImage image, int maxColors, boolean dither, boolean alphaToBitmask ) {
         Cube cube = new Cube( maxColors );
         cube.classifyImageColors( image, alphaToBitmask );
@@ -35,16 +35,20 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.style.utils;
 
+import static java.util.Collections.addAll;
 import static org.deegree.style.se.parser.SymbologyParser.ELSEFILTER;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.deegree.commons.utils.Pair;
 import org.deegree.filter.Expression;
+import org.deegree.filter.Filters;
 import org.deegree.filter.Operator;
 import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.expression.ValueReference;
 import org.deegree.filter.logical.Or;
 import org.deegree.style.se.parser.SymbologyParser.FilterContinuation;
 import org.deegree.style.se.unevaluated.Style;
@@ -63,7 +67,7 @@ public class Styles {
         OperatorFilter sldFilter = null;
         outer: if ( style != null ) {
             // the full use of generics here will defeat the compiler
-            LinkedList<Pair> rules = (LinkedList) style.filter( scale ).getRules();
+            List<Pair> rules = (List) style.filter( scale ).getRules();
             for ( Pair p : rules ) {
                 if ( p.first == null ) {
                     sldFilter = null;
@@ -93,6 +97,66 @@ public class Styles {
         return sldFilter;
     }
 
+    /**
+     * Determines the properties that a style reads from features, i.e. the ones used in rule filters, geometry
+     * expressions, dynamic symbolizer parameters and labels. Scale constraints are not considered, so the style should
+     * have been filtered by scale before.
+     * 
+     * @param style
+     *            may be <code>null</code>
+     * @return the referenced properties, empty for default styles, <code>null</code> if they cannot be determined
+     */
+    public static Set<ValueReference> getReferencedProperties( Style style ) {
+        if ( style == null ) {
+            return null;
+        }
+        Set<ValueReference> props = new LinkedHashSet<ValueReference>();
+        if ( style.isDefault() ) {
+            return props;
+        }
+        List<Expression> exprs = new ArrayList<Expression>();
+        if ( !style.collectExpressions( exprs ) ) {
+            return null;
+        }
+        for ( Expression expr : exprs ) {
+            if ( !addPropertyNames( expr, props ) ) {
+                return null;
+            }
+        }
+        // do not use full generics here, the compiler will be defeated
+        List<Pair> rules = (List) style.getRules();
+        for ( Pair rule : rules ) {
+            if ( rule.first instanceof FilterContinuation ) {
+                FilterContinuation contn = (FilterContinuation) rule.first;
+                if ( contn.filter != null && contn.filter != ELSEFILTER ) {
+                    addAll( props, Filters.getPropertyNames( contn.filter ) );
+                }
+            }
+        }
+        return props;
+    }
+
+    private static boolean addPropertyNames( Expression expr, Set<ValueReference> props ) {
+        if ( expr == null ) {
+            return true;
+        }
+        switch ( expr.getType() ) {
+        case VALUE_REFERENCE:
+            props.add( (ValueReference) expr );
+            return true;
+        case CUSTOM:
+            // SE functions like Categorize or Recode do not expose their parameters
+            return false;
+        default:
+            for ( Expression param : expr.getParams() ) {
+                if ( !addPropertyNames( param, props ) ) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
     public static List<Expression> getGeometryExpressions( Style style ) {
         List<Expression> list = new ArrayList<Expression>();
 
@@ -102,7 +166,7 @@ public class Styles {
 
         // do not use full generics here, else compilation will fail
         // it's always fun to see how easy the compiler can be defeated...
-        LinkedList<Pair> rules = (LinkedList) style.getRules();
+        List<Pair> rules = (List) style.getRules();
         for ( Pair rule : rules ) {
             if ( rule.first instanceof FilterContinuation ) {
                 for ( Symbolizer<?> s : ( (FilterContinuation) rule.first ).getSymbolizers() ) {
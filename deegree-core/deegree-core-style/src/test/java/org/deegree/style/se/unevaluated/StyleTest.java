@@ -0,0 +1,192 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.style.se.unevaluated;
+
+import static java.lang.Double.NEGATIVE_INFINITY;
+import static java.lang.Double.POSITIVE_INFINITY;
+import static org.deegree.style.se.parser.SymbologyParser.ELSEFILTER;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.utils.DoublePair;
+import org.deegree.commons.utils.Pair;
+import org.deegree.commons.utils.Triple;
+import org.deegree.feature.Feature;
+import org.deegree.feature.GenericFeature;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.filter.Filter;
+import org.deegree.filter.XPathEvaluator;
+import org.deegree.geometry.Geometry;
+import org.deegree.style.se.parser.SymbologyParser.FilterContinuation;
+import org.deegree.style.styling.LineStyling;
+import org.deegree.style.styling.PolygonStyling;
+import org.deegree.style.styling.Styling;
+import org.deegree.style.styling.TextStyling;
+import org.junit.Test;
+
+/**
+ * Tests the rule evaluation of {@link Style}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class StyleTest {
+
+    private final GenericFeatureType type = new GenericFeatureType( new QName( "Test" ),
+                                                                    StyleTest.<PropertyType> none(), false );
+
+    private final PolygonStyling matched = new PolygonStyling();
+
+    private final PolygonStyling other = new PolygonStyling();
+
+    private final LineStyling always = new LineStyling();
+
+    private final LineStyling dynamic = new LineStyling();
+
+    private Style createStyle() {
+        List<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>> rules = new ArrayList<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>>();
+        addRule( rules, new IdFilter( "a" ), new Symbolizer<PolygonStyling>( matched, null, null, null, 0, 0 ), 0,
+                 POSITIVE_INFINITY );
+        addRule( rules, ELSEFILTER, new Symbolizer<PolygonStyling>( other, null, null, null, 0, 0 ), 0,
+                 POSITIVE_INFINITY );
+        addRule( rules, null, new Symbolizer<LineStyling>( always, null, null, null, 0, 0 ), 0, 100 );
+        Continuation<LineStyling> width = new Continuation<LineStyling>() {
+            @Override
+            public void updateStep( LineStyling base, Feature obj, XPathEvaluator<Feature> evaluator ) {
+                base.stroke.width = obj.getId().length();
+            }
+        };
+        addRule( rules, null, new Symbolizer<LineStyling>( dynamic, width, null, null, null, 0, 0 ), 0, 10 );
+        return new Style( rules, new HashMap<Symbolizer<TextStyling>, Continuation<StringBuffer>>(), null, "test",
+                          null );
+    }
+
+    private static void addRule( List<Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>> rules,
+                                 Filter filter, Symbolizer<?> sym, double min, double max ) {
+        LinkedList<Symbolizer<?>> syms = new LinkedList<Symbolizer<?>>();
+        syms.add( sym );
+        rules.add( new Pair<Continuation<LinkedList<Symbolizer<?>>>, DoublePair>(
+                                                                                  new FilterContinuation( filter, syms,
+                                                                                                          null ),
+                                                                                  new DoublePair( min, max ) ) );
+    }
+
+    private List<Styling> evaluate( Style style, String id ) {
+        Feature f = new GenericFeature( type, id, StyleTest.<Property> none(), null );
+        List<Styling> stylings = new ArrayList<Styling>();
+        for ( Triple<Styling, LinkedList<Geometry>, String> t : style.evaluate( f, null ) ) {
+            stylings.add( t.first );
+        }
+        return stylings;
+    }
+
+    @Test
+    public void testFilterAndElseRules() {
+        Style style = createStyle();
+        List<Styling> a = evaluate( style, "a" );
+        assertEquals( 3, a.size() );
+        assertSame( matched, a.get( 0 ) );
+        assertSame( always, a.get( 1 ) );
+
+        List<Styling> b = evaluate( style, "b" );
+        assertEquals( 3, b.size() );
+        assertSame( other, b.get( 0 ) );
+        assertSame( always, b.get( 1 ) );
+    }
+
+    @Test
+    public void testDynamicSymbolizerIsCopied() {
+        Style style = createStyle();
+        LineStyling first = (LineStyling) evaluate( style, "a" ).get( 2 );
+        LineStyling second = (LineStyling) evaluate( style, "bbb" ).get( 2 );
+        assertNotSame( dynamic, first );
+        assertNotSame( first, second );
+        assertEquals( 1, first.stroke.width, 0 );
+        assertEquals( 3, second.stroke.width, 0 );
+    }
+
+    @Test
+    public void testFilterByScale() {
+        Style style = createStyle();
+        assertEquals( 2, evaluate( style.filter( 50 ), "a" ).size() );
+        assertEquals( 1, evaluate( style.filter( 500 ), "b" ).size() );
+        assertEquals( 3, evaluate( style.filter( 5 ), "b" ).size() );
+        assertEquals( 0, evaluate( style.filter( NEGATIVE_INFINITY ), "b" ).size() );
+        assertEquals( 3, evaluate( style.filter( 5 ).copy(), "a" ).size() );
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testRulesCannotBeModified() {
+        Style style = createStyle();
+        evaluate( style, "a" );
+        style.getRules().clear();
+    }
+
+    private static <T> List<T> none() {
+        return new ArrayList<T>();
+    }
+
+    private static class IdFilter implements Filter {
+
+        private final String id;
+
+        IdFilter( String id ) {
+            this.id = id;
+        }
+
+        @Override
+        public <T> boolean evaluate( T obj, XPathEvaluator<T> evaluator ) {
+            return id.equals( ( (Feature) obj ).getId() );
+        }
+
+        @Override
+        public Type getType() {
+            return null;
+        }
+
+    }
+
+}
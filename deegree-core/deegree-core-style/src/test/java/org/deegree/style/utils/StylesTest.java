@@ -0,0 +1,130 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.style.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.HashSet;
+import java.util.Set;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.style.se.parser.SymbologyParser;
+import org.deegree.style.se.unevaluated.Style;
+import org.junit.Test;
+
+/**
+ * Tests the determination of the properties referenced by a style ({@link Styles#getReferencedProperties(Style)}).
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class StylesTest {
+
+    private static final String START = "<FeatureTypeStyle xmlns='http://www.opengis.net/se' "
+                                        + "xmlns:ogc='http://www.opengis.net/ogc' version='1.1.0'>";
+
+    private static final String END = "</FeatureTypeStyle>";
+
+    @Test
+    public void testFilterGeometryParameterAndLabel()
+                            throws XMLStreamException {
+        Style style = parse( START + "<Rule><ogc:Filter><ogc:PropertyIsEqualTo>"
+                             + "<ogc:PropertyName>type</ogc:PropertyName><ogc:Literal>road</ogc:Literal>"
+                             + "</ogc:PropertyIsEqualTo></ogc:Filter><LineSymbolizer>"
+                             + "<Geometry><ogc:PropertyName>geom</ogc:PropertyName></Geometry>"
+                             + "<Stroke><SvgParameter name='stroke-width'><ogc:PropertyName>width</ogc:PropertyName>"
+                             + "</SvgParameter></Stroke></LineSymbolizer></Rule>"
+                             + "<Rule><ElseFilter/><TextSymbolizer><Label><ogc:PropertyName>name</ogc:PropertyName>"
+                             + "</Label></TextSymbolizer></Rule>" + END );
+        Set<String> names = getNames( style );
+        assertEquals( 4, names.size() );
+        assertTrue( names.contains( "type" ) );
+        assertTrue( names.contains( "geom" ) );
+        assertTrue( names.contains( "width" ) );
+        assertTrue( names.contains( "name" ) );
+    }
+
+    @Test
+    public void testStaticStyle()
+                            throws XMLStreamException {
+        Style style = parse( START + "<Rule><LineSymbolizer><Stroke><SvgParameter name='stroke-width'>2"
+                             + "</SvgParameter></Stroke></LineSymbolizer></Rule>" + END );
+        assertTrue( getNames( style ).isEmpty() );
+    }
+
+    @Test
+    public void testCategorizeIsUndetermined()
+                            throws XMLStreamException {
+        Style style = parse( START + "<Rule><TextSymbolizer><Label><Categorize fallbackValue='1'><LookupValue>"
+                             + "<ogc:PropertyName>count</ogc:PropertyName></LookupValue><Value>1</Value>"
+                             + "<Threshold>10</Threshold><Value>2</Value></Categorize></Label></TextSymbolizer>"
+                             + "</Rule>" + END );
+        assertNull( Styles.getReferencedProperties( style ) );
+    }
+
+    @Test
+    public void testDefaultStyle() {
+        assertTrue( Styles.getReferencedProperties( new Style() ).isEmpty() );
+    }
+
+    @Test
+    public void testNullStyle() {
+        assertNull( Styles.getReferencedProperties( null ) );
+    }
+
+    private static Set<String> getNames( Style style ) {
+        Set<String> names = new HashSet<String>();
+        for ( ValueReference ref : Styles.getReferencedProperties( style ) ) {
+            names.add( ref.getAsText() );
+        }
+        return names;
+    }
+
+    private static Style parse( String xml )
+                            throws XMLStreamException {
+        XMLStreamReader in = XMLInputFactory.newInstance().createXMLStreamReader( new StringReader( xml ) );
+        in.nextTag();
+        return SymbologyParser.INSTANCE.parse( in );
+    }
+
+}
@@ -40,6 +40,9 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.feature.persistence;
 
+import org.deegree.commons.metrics.MetricsRegistry;
+import org.deegree.commons.metrics.Timer;
+import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.geometry.Envelope;
 
@@ -80,4 +83,28 @@ public class FeatureStores {
         return env;
     }
 
+    /**
+     * Starts a timer for the given queries in the {@link MetricsRegistry}, labeled with the feature store id and the
+     * (first) queried feature type.
+     * 
+     * @param fs
+     *            the queried feature store, must not be <code>null</code>
+     * @param queries
+     *            the queries, must not be <code>null</code>
+     * @return the started timer, wrap the result stream in a
+     *         {@link org.deegree.feature.stream.TimedFeatureInputStream} (which stops it when the stream has been
+     *         consumed or closed), or stop it if the query fails
+     */
+    public static Timer startQueryTimer( FeatureStore fs, Query... queries ) {
+        String id = null;
+        if ( fs.getMetadata() != null && fs.getMetadata().getIdentifier() != null ) {
+            id = fs.getMetadata().getIdentifier().getId();
+        }
+        String ftName = null;
+        if ( queries.length > 0 && queries[0].getTypeNames() != null && queries[0].getTypeNames().length > 0 ) {
+            ftName = queries[0].getTypeNames()[0].getFeatureTypeName().getLocalPart();
+        }
+        return MetricsRegistry.featureStoreTimer( id, ftName );
+    }
+
 }
@@ -41,8 +41,10 @@ import static org.deegree.feature.persistence.query.Query.QueryHint.HINT_SCALE;
 import static org.deegree.filter.Filters.extractPrefilterBBoxConstraint;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -50,12 +52,19 @@ import org.deegree.cs.coordinatesystems.CRS;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.feature.persistence.FeatureStore;
 import org.deegree.filter.Filter;
+import org.deegree.filter.Filters;
 import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.expression.ValueReference;
 import org.deegree.filter.projection.ProjectionClause;
+import org.deegree.filter.projection.PropertyName;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.filter.spatial.BBOX;
 import org.deegree.geometry.Envelope;
 import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.jaxen.expr.Expr;
+import org.jaxen.expr.LocationPath;
+import org.jaxen.expr.NameStep;
+import org.jaxen.saxpath.Axis;
 
 /**
  * Encapsulates the parameter of a query to a {@link FeatureStore}.
@@ -173,6 +182,30 @@ public class Query {
      */
     public Query( TypeName[] typeNames, Filter filter, SortProperty[] sortBy, int scale, int maxFeatures,
                   double resolution ) {
+        this( typeNames, filter, sortBy, scale, maxFeatures, resolution, null );
+    }
+
+    /**
+     * Creates a new {@link Query} instance.
+     * 
+     * @param typeNames
+     *            feature type names to be queried, must not be <code>null</code> and contain at least one entry
+     * @param filter
+     *            filter to be applied, can be <code>null</code>, if not <code>null</code>, all contained geometry
+     *            operands must have a non-null {@link CRS}
+     * @param sortBy
+     *            sort criteria to be applied, can be <code>null</code>
+     * @param scale
+     *            if scale is positive, a scale query hint will be used
+     * @param maxFeatures
+     *            may be -1 if no limit needs to be exercised
+     * @param resolution
+     *            if resolution is positive, a pixel resolution hint will be used
+     * @param projections
+     *            projections to be applied to returned features, can be <code>null</code> (all properties)
+     */
+    public Query( TypeName[] typeNames, Filter filter, SortProperty[] sortBy, int scale, int maxFeatures,
+                  double resolution, List<ProjectionClause> projections ) {
         this.typeNames = typeNames;
         this.filter = filter;
         if ( sortBy != null ) {
@@ -187,7 +220,11 @@ public class Query {
         if ( resolution > 0 ) {
             hints.put( HINT_RESOLUTION, resolution );
         }
-        this.projections = emptyList();
+        if ( projections != null ) {
+            this.projections = projections;
+        } else {
+            this.projections = emptyList();
+        }
     }
 
     public Object getHint( QueryHint code ) {
@@ -271,6 +308,90 @@ public class Query {
         return projections;
     }
 
+    /**
+     * Determines the names of the (top-level) properties that a feature store has to populate to answer this query,
+     * i.e. the ones selected by the {@link PropertyName} projections plus the ones used in filter and sort criteria.
+     * Stores may use this to skip columns or attributes, but must still populate properties not returned here if they
+     * are geometries or otherwise required (e.g. identifiers).
+     * <p>
+     * Unqualified names are included without namespace, so callers should check both the qualified and the local
+     * name of a property (see {@link #isRequired(Set, QName)}).
+     * </p>
+     * 
+     * @return names of the required properties, <code>null</code> if all properties are required
+     */
+    public Set<QName> getRequiredPropertyNames() {
+        if ( projections.isEmpty() ) {
+            return null;
+        }
+        Set<QName> names = new HashSet<QName>();
+        for ( ProjectionClause projection : projections ) {
+            if ( !( projection instanceof PropertyName )
+                 || !addFirstStep( ( (PropertyName) projection ).getPropertyName(), names ) ) {
+                return null;
+            }
+        }
+        if ( filter != null ) {
+            for ( ValueReference propName : Filters.getPropertyNames( filter ) ) {
+                if ( !addFirstStep( propName, names ) ) {
+                    return null;
+                }
+            }
+        }
+        for ( SortProperty sortProp : sortBy ) {
+            if ( !addFirstStep( sortProp.getSortProperty(), names ) ) {
+                return null;
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Checks whether a property is contained in a set returned by {@link #getRequiredPropertyNames()}.
+     * 
+     * @param required
+     *            required property names, may be <code>null</code> (all properties are required)
+     * @param propName
+     *            name of the property, must not be <code>null</code>
+     * @return true, if the property has to be populated
+     */
+    public static boolean isRequired( Set<QName> required, QName propName ) {
+        return required == null || required.contains( propName )
+               || required.contains( new QName( propName.getLocalPart() ) );
+    }
+
+    private static boolean addFirstStep( ValueReference propName, Set<QName> names ) {
+        QName name = propName.getAsQName();
+        if ( name != null ) {
+            names.add( name );
+            return true;
+        }
+        Expr xpath = propName.getAsXPath();
+        if ( !( xpath instanceof LocationPath ) || ( (LocationPath) xpath ).isAbsolute() ) {
+            return false;
+        }
+        List<?> steps = ( (LocationPath) xpath ).getSteps();
+        if ( steps.isEmpty() || !( steps.get( 0 ) instanceof NameStep ) ) {
+            return false;
+        }
+        NameStep step = (NameStep) steps.get( 0 );
+        if ( step.getAxis() == Axis.ATTRIBUTE && steps.size() == 1 ) {
+            // attributes of the feature itself (e.g. gml:id) are always available
+            return true;
+        }
+        if ( step.getAxis() != Axis.CHILD || step.getLocalName().equals( "*" ) ) {
+            return false;
+        }
+        String prefix = step.getPrefix();
+        if ( prefix.isEmpty() ) {
+            names.add( new QName( step.getLocalName() ) );
+        } else {
+            String ns = propName.getNsContext().translateNamespacePrefixToUri( prefix );
+            names.add( new QName( ns, step.getLocalName(), prefix ) );
+        }
+        return true;
+    }
+
     /**
      * @return -1, if no limit has been set
      */
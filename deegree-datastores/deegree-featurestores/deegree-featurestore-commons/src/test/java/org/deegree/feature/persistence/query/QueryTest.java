@@ -0,0 +1,151 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.commons.xml.NamespaceBindings;
+import org.deegree.filter.Filter;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.comparison.PropertyIsEqualTo;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.projection.ProjectionClause;
+import org.deegree.filter.projection.PropertyName;
+import org.deegree.filter.sort.SortProperty;
+import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.junit.Test;
+
+/**
+ * Tests the determination of the properties required to answer a {@link Query}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class QueryTest {
+
+    private static final String APP_NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( APP_NS, "name", "app" );
+
+    private static final QName TYPE = new QName( APP_NS, "type", "app" );
+
+    private static final QName RANK = new QName( APP_NS, "rank", "app" );
+
+    private static final QName ADDRESS = new QName( APP_NS, "address", "app" );
+
+    @Test
+    public void testNoProjections() {
+        assertNull( createQuery( null ).getRequiredPropertyNames() );
+    }
+
+    @Test
+    public void testProjectionFilterAndSort() {
+        Literal<PrimitiveValue> road = new Literal<PrimitiveValue>( "road" );
+        Filter filter = new OperatorFilter( new PropertyIsEqualTo( new ValueReference( TYPE ), road, true, null ) );
+        SortProperty[] sortBy = new SortProperty[] { new SortProperty( new ValueReference( RANK ), true ) };
+        Query query = new Query( new TypeName[] { new TypeName( new QName( APP_NS, "Road" ), null ) }, filter,
+                                 sortBy, -1, -1, -1, projections( new ValueReference( NAME ) ) );
+        Set<QName> required = query.getRequiredPropertyNames();
+        assertEquals( 3, required.size() );
+        assertTrue( required.contains( NAME ) );
+        assertTrue( required.contains( TYPE ) );
+        assertTrue( required.contains( RANK ) );
+    }
+
+    @Test
+    public void testFirstStepOfPath() {
+        Query query = createQuery( projections( path( "app:address/app:street" ), path( "@gml:id" ) ) );
+        Set<QName> required = query.getRequiredPropertyNames();
+        assertEquals( 1, required.size() );
+        assertTrue( required.contains( ADDRESS ) );
+    }
+
+    @Test
+    public void testUnqualifiedName() {
+        Set<QName> required = createQuery( projections( path( "name" ) ) ).getRequiredPropertyNames();
+        assertTrue( required.contains( new QName( "name" ) ) );
+        assertTrue( Query.isRequired( required, NAME ) );
+        assertFalse( Query.isRequired( required, TYPE ) );
+    }
+
+    @Test
+    public void testWildcardRequiresAllProperties() {
+        assertNull( createQuery( projections( path( "app:*" ) ) ).getRequiredPropertyNames() );
+        assertNull( createQuery( projections( path( "*/app:name" ) ) ).getRequiredPropertyNames() );
+    }
+
+    @Test
+    public void testAbsolutePathRequiresAllProperties() {
+        assertNull( createQuery( projections( path( "/app:Road/app:name" ) ) ).getRequiredPropertyNames() );
+    }
+
+    @Test
+    public void testIsRequiredWithoutProjection() {
+        assertTrue( Query.isRequired( null, NAME ) );
+    }
+
+    private static Query createQuery( List<ProjectionClause> projections ) {
+        return new Query( new TypeName[] { new TypeName( new QName( APP_NS, "Road" ), null ) }, null, null, -1, -1,
+                          -1, projections );
+    }
+
+    private static List<ProjectionClause> projections( ValueReference... propNames ) {
+        List<ProjectionClause> projections = new ArrayList<ProjectionClause>();
+        for ( ValueReference propName : propNames ) {
+            projections.add( new PropertyName( propName, null, null ) );
+        }
+        return projections;
+    }
+
+    private static ValueReference path( String xpath ) {
+        NamespaceBindings nsContext = new NamespaceBindings();
+        nsContext.addNamespace( "app", APP_NS );
+        nsContext.addNamespace( "gml", "http://www.opengis.net/gml/3.2" );
+        return new ValueReference( xpath, nsContext );
+    }
+
+}
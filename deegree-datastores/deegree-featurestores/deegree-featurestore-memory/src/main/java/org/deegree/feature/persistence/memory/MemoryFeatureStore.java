@@ -35,11 +35,14 @@
  ----------------------------------------------------------------------------*/
 package org.deegree.feature.persistence.memory;
 
+import static org.deegree.feature.persistence.FeatureStores.startQueryTimer;
+
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
 
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.db.ConnectionProvider;
@@ -53,6 +56,7 @@ import org.deegree.feature.persistence.lock.LockManager;
 import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.stream.CombinedFeatureInputStream;
 import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
 import org.deegree.feature.types.AppSchema;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.filter.FilterEvaluationException;
@@ -83,7 +87,8 @@ public class MemoryFeatureStore implements FeatureStore {
 
     private DefaultLockManager lockManager;
 
-    private StoredFeatures storedFeatures;
+    // current published version, never modified, replaced on commit
+    private volatile StoredFeatures storedFeatures;
 
     private MemoryFeatureStoreMetadata metadata;
 
@@ -125,7 +130,16 @@ public class MemoryFeatureStore implements FeatureStore {
     @Override
     public FeatureInputStream query( Query query )
                             throws FilterEvaluationException, FeatureStoreException {
-        return storedFeatures.query( query );
+        Timer timer = startQueryTimer( this, query );
+        FeatureInputStream rs = null;
+        try {
+            rs = storedFeatures.query( query );
+        } finally {
+            if ( rs == null ) {
+                timer.stop();
+            }
+        }
+        return new TimedFeatureInputStream( rs, timer );
     }
 
     @Override
@@ -207,6 +221,7 @@ public class MemoryFeatureStore implements FeatureStore {
             }
         }
 
+        // cheap, feature types are only copied when they are modified
         StoredFeatures workingCopy = new StoredFeatures( schema, storageCRS, storedFeatures );
         this.activeTransaction = new MemoryFeatureStoreTransaction( this, workingCopy, lockManager );
         this.transactionHolder = Thread.currentThread();
@@ -225,7 +240,7 @@ public class MemoryFeatureStore implements FeatureStore {
      * @param newFeatures
      * @throws FeatureStoreException
      */
-    void releaseTransaction( MemoryFeatureStoreTransaction ta, StoredFeatures newFeatures )
+    synchronized void releaseTransaction( MemoryFeatureStoreTransaction ta, StoredFeatures newFeatures )
                             throws FeatureStoreException {
         if ( ta.getStore() != this ) {
             String msg = Messages.getMessage( "TA_NOT_OWNER" );
@@ -240,7 +255,7 @@ public class MemoryFeatureStore implements FeatureStore {
         }
         this.activeTransaction = null;
         this.transactionHolder = null;
-        // notifyAll();
+        notifyAll();
     }
 
     @Override
@@ -44,6 +44,8 @@ package org.deegree.feature.persistence.memory;
 import static org.deegree.protocol.wfs.transaction.action.IDGenMode.USE_EXISTING;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
 import java.net.URL;
 import java.util.HashMap;
 import java.util.List;
@@ -53,7 +55,10 @@ import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.persistence.CRSManager;
 import org.deegree.db.ConnectionProvider;
 import org.deegree.db.ConnectionProviderProvider;
+import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.binary.BinaryFeatureReader;
 import org.deegree.feature.i18n.Messages;
 import org.deegree.feature.persistence.FeatureStore;
 import org.deegree.feature.persistence.FeatureStoreException;
@@ -67,7 +72,9 @@ import org.deegree.feature.types.AppSchema;
 import org.deegree.gml.GMLInputFactory;
 import org.deegree.gml.GMLStreamReader;
 import org.deegree.gml.GMLVersion;
+import org.deegree.gml.schema.AppSchemaCache;
 import org.deegree.gml.schema.GMLAppSchemaReader;
+import org.deegree.gml.schema.GMLSchemaInfoSet;
 import org.deegree.workspace.ResourceBuilder;
 import org.deegree.workspace.ResourceInitException;
 import org.deegree.workspace.Workspace;
@@ -114,15 +121,16 @@ public class MemoryFeatureStoreBuilder implements ResourceBuilder<FeatureStore>
                 gmlVersionType = jaxbSchemaURL.getVersion();
             }
 
-            GMLAppSchemaReader decoder = null;
+            GMLVersion gmlVersion = GMLVersion.valueOf( gmlVersionType.name() );
+            GMLSchemaInfoSet schemaInfoSet = null;
             if ( schemaURLs.length == 1 && schemaURLs[0].startsWith( "file:" ) ) {
                 File file = new File( new URL( schemaURLs[0] ).toURI() );
-                decoder = new GMLAppSchemaReader( GMLVersion.valueOf( gmlVersionType.name() ),
-                                                  getHintMap( config.getNamespaceHint() ), file );
+                schemaInfoSet = AppSchemaCache.getSchemaInfoSet( gmlVersion, file );
             } else {
-                decoder = new GMLAppSchemaReader( GMLVersion.valueOf( gmlVersionType.name() ),
-                                                  getHintMap( config.getNamespaceHint() ), schemaURLs );
+                schemaInfoSet = AppSchemaCache.getSchemaInfoSet( gmlVersion, schemaURLs );
             }
+            GMLAppSchemaReader decoder = new GMLAppSchemaReader( schemaInfoSet,
+                                                                 getHintMap( config.getNamespaceHint() ) );
             schema = decoder.extractAppSchema();
             if ( config.getStorageCRS() != null ) {
                 storageCRS = CRSManager.lookup( config.getStorageCRS() );
@@ -162,9 +170,45 @@ public class MemoryFeatureStoreBuilder implements ResourceBuilder<FeatureStore>
                 }
             }
         }
+        for ( String binaryFile : config.getBinaryFeatureCollection() ) {
+            if ( binaryFile != null ) {
+                try {
+                    File file = metadata.getLocation().resolveToFile( binaryFile.trim() );
+                    LOG.info( "Populating feature store with features from binary file '" + file + "'..." );
+                    FeatureCollection fc = readBinaryFeatures( file, schema );
+                    FeatureStoreTransaction ta = fs.acquireTransaction();
+                    int fids = ta.performInsert( fc, USE_EXISTING ).size();
+                    LOG.info( "Inserted " + fids + " features." );
+                    ta.commit();
+                } catch ( Exception e ) {
+                    String msg = Messages.getMessage( "STORE_MANAGER_STORE_SETUP_ERROR", e.getMessage() );
+                    LOG.error( msg );
+                    LOG.trace( "Stack trace:", e );
+                    throw new ResourceInitException( msg, e );
+                }
+            }
+        }
         return fs;
     }
 
+    /**
+     * Reads all features from a file in the binary feature encoding, see {@link BinaryFeatureReader}.
+     */
+    static FeatureCollection readBinaryFeatures( File file, AppSchema schema )
+                            throws IOException {
+        FeatureCollection fc = new GenericFeatureCollection();
+        BinaryFeatureReader reader = new BinaryFeatureReader( new FileInputStream( file ), schema );
+        try {
+            Feature f;
+            while ( ( f = reader.read() ) != null ) {
+                fc.add( f );
+            }
+        } finally {
+            reader.close();
+        }
+        return fc;
+    }
+
     private static Map<String, String> getHintMap( List<NamespaceHint> hints ) {
         Map<String, String> prefixToNs = new HashMap<String, String>();
         for ( NamespaceHint namespaceHint : hints ) {
@@ -548,7 +548,8 @@ class MemoryFeatureStoreTransaction implements FeatureStoreTransaction {
 
                 for ( Feature feature : update ) {
                     updatedFids.add( feature.getId() );
-                    new FeatureUpdater().update( feature, replacementProps );
+                    // do not modify features of the published version, concurrent readers may be using them
+                    new FeatureUpdater().update( sf.copyForUpdate( feature ), replacementProps );
                     if ( lock != null ) {
                         lock.release( feature.getId() );
                     }
@@ -47,6 +47,7 @@ import javax.xml.namespace.QName;
 import org.deegree.commons.index.RTree;
 import org.deegree.commons.tom.Reference;
 import org.deegree.commons.tom.gml.GMLObject;
+import org.deegree.commons.tom.gml.property.Property;
 import org.deegree.commons.utils.Pair;
 import org.deegree.cs.coordinatesystems.ICRS;
 import org.deegree.cs.exceptions.UnknownCRSException;
@@ -75,6 +76,12 @@ import org.slf4j.LoggerFactory;
 
 /**
  * Encapsulates stored feature instances plus index structures for id and spatial queries.
+ * <p>
+ * Instances are versions of the store contents: a version that has been published by a commit is never modified
+ * again, so readers can query it without locking. A transaction works on a new version created from the current one,
+ * which shares the data of all feature types with its predecessor until a type is modified for the first time (copy
+ * on write). On commit, only the indexes of the modified types are rebuilt.
+ * </p>
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -91,11 +98,10 @@ class StoredFeatures {
 
     private final TypedObjectNodeXPathEvaluator evaluator = new TypedObjectNodeXPathEvaluator();
 
-    private final Map<FeatureType, FeatureCollection> ftToFeatures = new HashMap<FeatureType, FeatureCollection>();
+    private final Map<FeatureType, StoredFeatureType> ftToData;
 
-    private final Map<String, GMLObject> idToObject = new HashMap<String, GMLObject>();
-
-    private final Map<FeatureType, RTree<Feature>> ftToIndex = new HashMap<FeatureType, RTree<Feature>>();
+    // types whose data has been copied for (and may be modified by) this version
+    private final Set<FeatureType> modified = new HashSet<FeatureType>();
 
     /**
      * Creates a new {@link StoredFeatures} instance.
@@ -105,28 +111,18 @@ class StoredFeatures {
      * @param storageCRS
      *            target CRS for stored geometries, can be <code>null</code> (no CRS normalization)
      * @param former
-     *            stored features to copy from, can be <code>null</code> (new instance will be empty)
-     * @throws FeatureStoreException
+     *            stored features to start from, can be <code>null</code> (new instance will be empty)
      */
-    StoredFeatures( AppSchema schema, ICRS storageCRS, StoredFeatures former ) throws FeatureStoreException {
+    StoredFeatures( AppSchema schema, ICRS storageCRS, StoredFeatures former ) {
         this.schema = schema;
         this.storageCRS = storageCRS;
-        initFtToFeaturesMap( schema, former );
-        try {
-            rebuildIndexes();
-        } catch ( UnknownCRSException e ) {
-            throw new FeatureStoreException( e.getMessage(), e );
-        }
-    }
-
-    private void initFtToFeaturesMap( AppSchema schema, StoredFeatures former ) {
-        for ( FeatureType ft : schema.getFeatureTypes( null, true, false ) ) {
-            FeatureCollection fc = new GenericFeatureCollection();
-            if ( former != null ) {
-                FeatureCollection oldFc = former.ftToFeatures.get( ft );
-                fc.addAll( oldFc );
+        if ( former != null ) {
+            ftToData = new HashMap<FeatureType, StoredFeatureType>( former.ftToData );
+        } else {
+            ftToData = new HashMap<FeatureType, StoredFeatureType>();
+            for ( FeatureType ft : schema.getFeatureTypes( null, true, false ) ) {
+                ftToData.put( ft, new StoredFeatureType() );
             }
-            ftToFeatures.put( ft, fc );
         }
     }
 
@@ -135,10 +131,11 @@ class StoredFeatures {
      * 
      * @param ft
      *            feature type, must not be <code>null</code>
-     * @return stored features of the given type, never <code>null</code>
+     * @return stored features of the given type, never <code>null</code>, must not be modified
      */
     FeatureCollection getFeatures( FeatureType ft ) {
-        return ftToFeatures.get( ft );
+        StoredFeatureType data = ftToData.get( ft );
+        return data != null ? data.features : null;
     }
 
     /**
@@ -168,11 +165,13 @@ class StoredFeatures {
             }
 
             // determine / filter features
-            fc = ftToFeatures.get( ft );
+            StoredFeatureType data = ftToData.get( ft );
+            fc = data.features;
 
             // perform index filtering
-            Envelope ftEnv = ftToFeatures.get( ft ).getEnvelope();
-            if ( query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null ) {
+            Envelope ftEnv = fc.getEnvelope();
+            if ( query.getPrefilterBBoxEnvelope() != null && ftEnv != null && storageCRS != null
+                 && data.index != null ) {
                 Envelope prefilterBox = query.getPrefilterBBoxEnvelope();
                 if ( prefilterBox.getCoordinateSystem() != null
                      && !prefilterBox.getCoordinateSystem().equals( storageCRS ) ) {
@@ -185,8 +184,7 @@ class StoredFeatures {
                 }
 
                 float[] floats = toFloats( prefilterBox );
-                RTree<Feature> index = ftToIndex.get( ft );
-                fc = new GenericFeatureCollection( null, index.query( floats ) );
+                fc = new GenericFeatureCollection( null, data.index.query( floats ) );
             }
 
             if ( query.getFilter() != null ) {
@@ -200,7 +198,7 @@ class StoredFeatures {
             }
             Set<Feature> features = new HashSet<Feature>();
             for ( ResourceId id : ( (IdFilter) query.getFilter() ).getSelectedIds() ) {
-                GMLObject object = idToObject.get( id.getRid() );
+                GMLObject object = getObjectById( id.getRid() );
                 if ( object != null && object instanceof Feature ) {
                     features.add( (Feature) object );
                 }
@@ -218,7 +216,13 @@ class StoredFeatures {
     }
 
     GMLObject getObjectById( String id ) {
-        return idToObject.get( id );
+        for ( StoredFeatureType data : ftToData.values() ) {
+            GMLObject object = data.idToObject.get( id );
+            if ( object != null ) {
+                return object;
+            }
+        }
+        return null;
     }
 
     /**
@@ -229,137 +233,173 @@ class StoredFeatures {
      * @return envelope, can be <code>null</code>
      */
     Envelope getEnvelope( QName ftName ) {
-        return ftToFeatures.get( schema.getFeatureType( ftName ) ).getEnvelope();
+        return ftToData.get( schema.getFeatureType( ftName ) ).features.getEnvelope();
     }
 
     /**
-     * Adds the given {@link Feature} instance and updates the index structures.
+     * Adds the given {@link Feature} instance and updates the id lookup table. The spatial index is updated by
+     * {@link #rebuildIndexes()}.
      * 
      * @param features
      *            feature to be added, must not be <code>null</code> and must have an id (as well as every geometry)
      */
     void addFeature( Feature feature ) {
-        FeatureType ft = feature.getType();
-        FeatureCollection fc = ftToFeatures.get( ft );
-        if ( fc == null ) {
-            fc = new GenericFeatureCollection();
-            ftToFeatures.put( ft, fc );
-        }
-        fc.add( feature );
-        idToObject.put( feature.getId(), feature );
-        if ( feature.getEnvelope() != null ) {
-            RTree<Feature> rTree = ftToIndex.get( ft );
-            float[] insertBox = toFloats( feature.getEnvelope() );
-            if ( rTree == null ) {
-                rTree = new RTree<Feature>( insertBox, 16 );
-            }
-            rTree.insert( insertBox, feature );
-        }
+        StoredFeatureType data = getModifiable( feature.getType() );
+        data.features.add( feature );
+        data.addIds( feature );
     }
 
     /**
-     * Removes the given {@link Feature} instance and updates the index structures.
+     * Removes the given {@link Feature} instance and updates the id lookup table. The spatial index is updated by
+     * {@link #rebuildIndexes()}.
      * 
      * @param feature
      *            feature to be removed, must not be <code>null</code>
      */
     void removeFeature( Feature feature ) {
-        idToObject.remove( feature.getId() );
+        StoredFeatureType data = getModifiable( feature.getType() );
+        data.features.remove( feature );
+        data.removeIds( feature );
+    }
+
+    /**
+     * Replaces the given stored {@link Feature} with a copy that can be modified without affecting published versions.
+     * 
+     * @param feature
+     *            stored feature, must not be <code>null</code>
+     * @return the copy, never <code>null</code>
+     */
+    Feature copyForUpdate( Feature feature ) {
         FeatureType ft = feature.getType();
-        RTree<Feature> rTree = ftToIndex.get( ft );
-        if ( rTree != null ) {
-            rTree.remove( feature );
-        }
-        FeatureCollection fc = ftToFeatures.get( ft );
-        if ( fc != null ) {
-            fc.remove( feature );
+        Feature copy = ft.newFeature( feature.getId(), new ArrayList<Property>( feature.getProperties() ),
+                                      feature.getExtraProperties() );
+        removeFeature( feature );
+        addFeature( copy );
+        return copy;
+    }
+
+    private StoredFeatureType getModifiable( FeatureType ft ) {
+        StoredFeatureType data = ftToData.get( ft );
+        if ( !modified.contains( ft ) ) {
+            data = data == null ? new StoredFeatureType() : new StoredFeatureType( data );
+            ftToData.put( ft, data );
+            modified.add( ft );
         }
+        return data;
     }
 
+    /**
+     * Recalculates the envelopes and spatial indexes of all feature types modified in this version. Must be called
+     * before the version is published.
+     * 
+     * @throws UnknownCRSException
+     */
     void rebuildIndexes()
                             throws UnknownCRSException {
-
         long begin = System.currentTimeMillis();
-        rebuildFeatureCollectionEnvelopes();
+        for ( FeatureType ft : modified ) {
+            ftToData.get( ft ).rebuildIndex();
+        }
         long elapsed = System.currentTimeMillis() - begin;
-        LOG.debug( "Recalculating bounding boxes took {} [ms]", elapsed );
-
-        begin = System.currentTimeMillis();
-        rebuildRtrees();
-        elapsed = System.currentTimeMillis() - begin;
-        LOG.debug( "Building spatial indexes took {} [ms]", elapsed );
+        LOG.debug( "Rebuilding envelopes and spatial indexes of {} feature type(s) took {} [ms]", modified.size(),
+                   elapsed );
+        modified.clear();
+    }
 
-        begin = System.currentTimeMillis();
-        rebuildIdToObjectMap();
-        elapsed = System.currentTimeMillis() - begin;
-        LOG.debug( "Building id lookup table took {} [ms]", elapsed );
+    private static float[] toFloats( Envelope env ) {
+        return new float[] { (float) env.getMin().get0(), (float) env.getMin().get1(), (float) env.getMax().get0(),
+                            (float) env.getMax().get1() };
     }
 
-    private void rebuildFeatureCollectionEnvelopes() {
-        for ( FeatureCollection fc : ftToFeatures.values() ) {
-            fc.setEnvelope( fc.calcEnvelope() );
+    /**
+     * Features of one type plus their index structures.
+     */
+    private static class StoredFeatureType {
+
+        private final FeatureCollection features;
+
+        // features and geometries contained in the features of this type
+        private final Map<String, GMLObject> idToObject;
+
+        private RTree<Feature> index;
+
+        private StoredFeatureType() {
+            features = new GenericFeatureCollection();
+            idToObject = new HashMap<String, GMLObject>();
+        }
+
+        private StoredFeatureType( StoredFeatureType former ) {
+            features = new GenericFeatureCollection();
+            features.addAll( former.features );
+            idToObject = new HashMap<String, GMLObject>( former.idToObject );
+        }
+
+        private void addIds( Feature feature ) {
+            new GMLObjectWalker( new IdVisitor() {
+                @Override
+                void visit( String id, GMLObject o ) {
+                    idToObject.put( id, o );
+                }
+            } ).traverse( feature );
         }
-    }
 
-    private void rebuildRtrees() {
-        ftToIndex.clear();
-        for ( FeatureType ft : ftToFeatures.keySet() ) {
-            FeatureCollection fc = ftToFeatures.get( ft );
-            Envelope env = fc.getEnvelope();
+        private void removeIds( Feature feature ) {
+            new GMLObjectWalker( new IdVisitor() {
+                @Override
+                void visit( String id, GMLObject o ) {
+                    idToObject.remove( id, o );
+                }
+            } ).traverse( feature );
+        }
+
+        private void rebuildIndex() {
+            Envelope env = features.calcEnvelope();
+            features.setEnvelope( env );
+            index = null;
             if ( env != null ) {
                 RTree<Feature> index = new RTree<Feature>( toFloats( env ), 16 );
-                List<Pair<float[], Feature>> fBboxes = new ArrayList<Pair<float[], Feature>>( fc.size() );
-                for ( Feature f : fc ) {
+                List<Pair<float[], Feature>> fBboxes = new ArrayList<Pair<float[], Feature>>( features.size() );
+                for ( Feature f : features ) {
                     Envelope fEnv = f.getEnvelope();
                     if ( fEnv != null ) {
-                        float[] floats = toFloats( fEnv );
-                        fBboxes.add( new Pair<float[], Feature>( floats, f ) );
+                        fBboxes.add( new Pair<float[], Feature>( toFloats( fEnv ), f ) );
                     }
                 }
                 index.insertBulk( fBboxes );
-                ftToIndex.put( ft, index );
+                this.index = index;
             }
         }
     }
 
-    private void rebuildIdToObjectMap() {
-        idToObject.clear();
-        GMLObjectVisitor visitor = new GMLObjectVisitor() {
-            @Override
-            public boolean visitGeometry( Geometry geom ) {
-                idToObject.put( geom.getId(), geom );
-                return true;
-            }
+    private static abstract class IdVisitor implements GMLObjectVisitor {
 
-            @Override
-            public boolean visitFeature( Feature feature ) {
-                if ( feature instanceof Reference<?> ) {
-                    return false;
-                }
-                idToObject.put( feature.getId(), feature );
-                return true;
-            }
+        abstract void visit( String id, GMLObject o );
 
-            @Override
-            public boolean visitObject( GMLObject o ) {
-                return true;
+        @Override
+        public boolean visitGeometry( Geometry geom ) {
+            if ( geom.getId() != null ) {
+                visit( geom.getId(), geom );
             }
+            return true;
+        }
 
-            @Override
-            public boolean visitReference( Reference<?> ref ) {
+        @Override
+        public boolean visitFeature( Feature feature ) {
+            if ( feature instanceof Reference<?> ) {
                 return false;
             }
-        };
+            visit( feature.getId(), feature );
+            return true;
+        }
 
-        for ( FeatureCollection fc : ftToFeatures.values() ) {
-            for ( Feature f : fc ) {
-                new GMLObjectWalker( visitor ).traverse( f );
-            }
+        @Override
+        public boolean visitObject( GMLObject o ) {
+            return true;
         }
-    }
 
-    private float[] toFloats( Envelope env ) {
-        return new float[] { (float) env.getMin().get0(), (float) env.getMin().get1(), (float) env.getMax().get0(),
-                            (float) env.getMax().get1() };
+        @Override
+        public boolean visitReference( Reference<?> ref ) {
+            return false;
+        }
     }
 }
@@ -0,0 +1,172 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.memory;
+
+import static java.util.Arrays.asList;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POINT;
+import static org.deegree.feature.types.property.ValueRepresentation.INLINE;
+import static org.deegree.protocol.wfs.transaction.action.IDGenMode.USE_EXISTING;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.db.ConnectionProvider;
+import org.deegree.db.ConnectionProviderProvider;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.binary.BinaryFeatureWriter;
+import org.deegree.feature.persistence.FeatureStoreTransaction;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericAppSchema;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.deegree.workspace.standard.DefaultWorkspace;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests loading features in the binary feature encoding into a {@link MemoryFeatureStore}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class MemoryFeatureStoreBuilderTest {
+
+    private static final String NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( NS, "name", "app" );
+
+    private static final QName GEOM = new QName( NS, "geom", "app" );
+
+    private final PropertyType[] props = { new SimplePropertyType( NAME, 0, 1, STRING, null, null ),
+                                          new GeometryPropertyType( GEOM, 0, 1, null, null, POINT, DIM_2, INLINE ) };
+
+    private final FeatureType ft = new GenericFeatureType( new QName( NS, "Place", "app" ), asList( props ), false );
+
+    private final AppSchema schema = new GenericAppSchema( new FeatureType[] { ft }, null, null, null, null, null );
+
+    private DefaultWorkspace workspace;
+
+    @Before
+    public void setUp() {
+        workspace = new DefaultWorkspace( new File( "nix" ) );
+        workspace.initAll();
+    }
+
+    @After
+    public void shutDown() {
+        workspace.destroy();
+    }
+
+    @Test
+    public void testReadBinaryFeatures()
+                            throws Exception {
+        File file = writeFeatures( 5, false );
+        FeatureCollection fc = MemoryFeatureStoreBuilder.readBinaryFeatures( file, schema );
+        assertEquals( 5, fc.size() );
+        int i = 0;
+        for ( Feature f : fc ) {
+            assertEquals( "PLACE_" + i, f.getId() );
+            assertSame( ft, f.getType() );
+            Point p = (Point) f.getProperties( GEOM ).get( 0 ).getValue();
+            assertEquals( i, p.get0(), 0 );
+            i++;
+        }
+    }
+
+    @Test
+    public void testInsertIndexedBinaryFeatures()
+                            throws Exception {
+        File file = writeFeatures( 20, true );
+        ConnectionProvider prov = workspace.getResource( ConnectionProviderProvider.class, "LOCK_DB" );
+        MemoryFeatureStore store = new MemoryFeatureStore( schema, null, null, prov );
+        FeatureStoreTransaction ta = store.acquireTransaction();
+        ta.performInsert( MemoryFeatureStoreBuilder.readBinaryFeatures( file, schema ), USE_EXISTING );
+        ta.commit();
+
+        TypeName[] typeNames = new TypeName[] { new TypeName( ft.getName(), null ) };
+        FeatureCollection fc = store.query( new Query( typeNames, null, null, null, null ) ).toCollection();
+        assertEquals( 20, fc.size() );
+        assertTrue( store.getObjectById( "PLACE_7" ) instanceof Feature );
+    }
+
+    private File writeFeatures( int num, boolean indexed )
+                            throws Exception {
+        GeometryFactory geomFac = new GeometryFactory();
+        List<Feature> features = new ArrayList<Feature>();
+        for ( int i = 0; i < num; i++ ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( props[0], NAME, new PrimitiveValue( "Place " + i,
+                                                                                  new PrimitiveType( STRING ) ) ) );
+            values.add( new GenericProperty( props[1], GEOM, geomFac.createPoint( null, i, i, null ) ) );
+            features.add( ft.newFeature( "PLACE_" + i, values, null ) );
+        }
+        File file = File.createTempFile( "features", ".bin" );
+        file.deleteOnExit();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( new FileOutputStream( file ), null );
+        if ( indexed ) {
+            writer.writeIndexed( features, 4 );
+        } else {
+            for ( Feature f : features ) {
+                writer.write( f );
+            }
+        }
+        writer.close();
+        return file;
+    }
+
+}
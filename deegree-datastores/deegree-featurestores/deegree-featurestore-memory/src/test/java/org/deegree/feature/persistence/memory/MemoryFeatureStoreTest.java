@@ -193,6 +193,26 @@ public class MemoryFeatureStoreTest {
         Assert.assertTrue( o instanceof Feature );
     }
 
+    @Test
+    public void testDeleteVisibleAfterCommitOnly()
+                            throws FeatureStoreException {
+        FeatureStoreTransaction ta = store.acquireTransaction();
+        Assert.assertEquals( 1, ta.performDelete( new IdFilter( "PHILOSOPHER_7" ), null ) );
+        Assert.assertTrue( store.getObjectById( "PHILOSOPHER_7" ) instanceof Feature );
+        ta.commit();
+        Assert.assertNull( store.getObjectById( "PHILOSOPHER_7" ) );
+        Assert.assertTrue( store.getObjectById( "PHILOSOPHER_6" ) instanceof Feature );
+    }
+
+    @Test
+    public void testRollbackKeepsVersion()
+                            throws FeatureStoreException {
+        FeatureStoreTransaction ta = store.acquireTransaction();
+        ta.performDelete( new IdFilter( "PHILOSOPHER_7" ), null );
+        ta.rollback();
+        Assert.assertTrue( store.getObjectById( "PHILOSOPHER_7" ) instanceof Feature );
+    }
+
     @Test
     public void testGetObjectByIdGeometry1() {
         Object o = store.getObjectById( "MULTIPOLYGON_1" );
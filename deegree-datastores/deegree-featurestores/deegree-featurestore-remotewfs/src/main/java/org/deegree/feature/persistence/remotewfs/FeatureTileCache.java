@@ -0,0 +1,407 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.remotewfs;
+
+import static java.lang.Math.floor;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.SimpleGeometryFactory;
+import org.slf4j.Logger;
+
+/**
+ * Keeps features fetched from a remote WFS in memory, indexed by a regular grid of square tiles.
+ * <p>
+ * The grid is defined in a fixed CRS (per feature type), query envelopes in other CRS are transformed into it first, so
+ * requests in different CRS share the same tiles. A bbox request is mapped to the tiles it touches. Tiles that are not
+ * cached (or expired) are fetched in parallel using the configured {@link TileLoader}, concurrent requests for the
+ * same tile share a single fetch. The number of cached tiles is bounded, least recently used tiles are evicted first.
+ * Tiles that the loader reports as incomplete (e.g. truncated by a feature limit of the remote WFS) are never cached.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+class FeatureTileCache {
+
+    private static final Logger LOG = getLogger( FeatureTileCache.class );
+
+    private static final SimpleGeometryFactory FAC = new SimpleGeometryFactory();
+
+    /**
+     * Fetches the features of a single tile.
+     */
+    interface TileLoader {
+
+        /**
+         * Returns all features of the given type that interact with the given tile envelope.
+         * 
+         * @param ftName
+         *            name of the feature type, never <code>null</code>
+         * @param tileEnv
+         *            tile envelope (in the grid CRS), never <code>null</code>
+         * @return features, or <code>null</code> if not all features of the tile could be fetched
+         * @throws FeatureStoreException
+         */
+        List<Feature> load( QName ftName, Envelope tileEnv )
+                                throws FeatureStoreException;
+    }
+
+    private final double tileSize;
+
+    private final long ttlMillis;
+
+    private final int maxTiles;
+
+    private final TileLoader loader;
+
+    private final ExecutorService executor;
+
+    private final Map<TileKey, CachedTile> tiles;
+
+    private final ConcurrentHashMap<TileKey, Future<List<Feature>>> pending = new ConcurrentHashMap<TileKey, Future<List<Feature>>>();
+
+    /**
+     * Creates a new {@link FeatureTileCache}.
+     * 
+     * @param tileSize
+     *            edge length of a tile (in units of the grid CRS), must be positive
+     * @param ttlMillis
+     *            time in milliseconds after which a cached tile is fetched again, zero or less disables expiry
+     * @param maxTiles
+     *            maximum number of tiles kept in memory, must be positive
+     * @param maxParallelRequests
+     *            maximum number of concurrent tile requests, must be positive
+     * @param loader
+     *            used for fetching missing tiles, must not be <code>null</code>
+     */
+    FeatureTileCache( double tileSize, long ttlMillis, final int maxTiles, int maxParallelRequests, TileLoader loader ) {
+        this.tileSize = tileSize;
+        this.ttlMillis = ttlMillis;
+        this.maxTiles = maxTiles;
+        this.loader = loader;
+        this.tiles = new LinkedHashMap<TileKey, CachedTile>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = -4390426383493383467L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<TileKey, CachedTile> eldest ) {
+                return size() > maxTiles;
+            }
+        };
+        this.executor = Executors.newFixedThreadPool( maxParallelRequests, new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread t = new Thread( r, "remotewfs-tile-loader-" + count.incrementAndGet() );
+                t.setDaemon( true );
+                return t;
+            }
+        } );
+    }
+
+    /**
+     * Returns the cached features of all tiles that intersect the given envelope, fetching missing tiles first.
+     * <p>
+     * The result is a candidate set: it contains every feature that interacts with the envelope, but may also contain
+     * features that don't. Features with identical ids are only returned once.
+     * </p>
+     * 
+     * @param ftName
+     *            name of the feature type, must not be <code>null</code>
+     * @param gridCrs
+     *            CRS of the tile grid, may be <code>null</code> (grid and envelope use the same unknown CRS)
+     * @param bbox
+     *            query envelope, must not be <code>null</code>
+     * @return candidate features, or <code>null</code> if the envelope can't be transformed into the grid CRS, covers
+     *         more tiles than the cache can hold or touches an incomplete tile
+     * @throws FeatureStoreException
+     *             if fetching a tile failed
+     */
+    List<Feature> getFeatures( QName ftName, ICRS gridCrs, Envelope bbox )
+                            throws FeatureStoreException {
+        Envelope gridBbox = toGridCrs( bbox, gridCrs );
+        if ( gridBbox == null ) {
+            return null;
+        }
+        long minCol = (long) floor( gridBbox.getMin().get0() / tileSize );
+        long minRow = (long) floor( gridBbox.getMin().get1() / tileSize );
+        long maxCol = (long) floor( gridBbox.getMax().get0() / tileSize );
+        long maxRow = (long) floor( gridBbox.getMax().get1() / tileSize );
+        if ( ( maxCol - minCol + 1 ) * ( maxRow - minRow + 1 ) > maxTiles ) {
+            LOG.debug( "Envelope {} spans too many tiles, bypassing cache.", bbox );
+            return null;
+        }
+
+        String crsName = gridCrs == null ? null : gridCrs.getAlias();
+        List<TileKey> keys = new ArrayList<TileKey>();
+        for ( long row = minRow; row <= maxRow; ++row ) {
+            for ( long col = minCol; col <= maxCol; ++col ) {
+                keys.add( new TileKey( ftName, crsName, col, row ) );
+            }
+        }
+
+        List<List<Feature>> results = new ArrayList<List<Feature>>( keys.size() );
+        Map<TileKey, Future<List<Feature>>> misses = new LinkedHashMap<TileKey, Future<List<Feature>>>();
+        long now = System.currentTimeMillis();
+        synchronized ( tiles ) {
+            for ( TileKey key : keys ) {
+                CachedTile tile = tiles.get( key );
+                if ( tile != null && ( ttlMillis <= 0 || now - tile.created < ttlMillis ) ) {
+                    results.add( tile.features );
+                } else {
+                    misses.put( key, null );
+                }
+            }
+        }
+        if ( !misses.isEmpty() ) {
+            LOG.debug( "Fetching {} of {} tiles for '{}'.", new Object[] { misses.size(), keys.size(), ftName } );
+            for ( TileKey key : misses.keySet() ) {
+                misses.put( key, fetch( key, gridCrs ) );
+            }
+            boolean complete = true;
+            for ( Map.Entry<TileKey, Future<List<Feature>>> miss : misses.entrySet() ) {
+                List<Feature> features = await( miss.getKey(), miss.getValue() );
+                if ( features == null ) {
+                    LOG.debug( "Tile {} is incomplete, bypassing cache.", miss.getKey() );
+                    complete = false;
+                } else {
+                    results.add( features );
+                }
+            }
+            if ( !complete ) {
+                return null;
+            }
+        }
+        return merge( results );
+    }
+
+    private static Envelope toGridCrs( Envelope bbox, ICRS gridCrs ) {
+        ICRS bboxCrs = bbox.getCoordinateSystem();
+        if ( gridCrs == null || bboxCrs == null || gridCrs.equals( bboxCrs ) ) {
+            return bbox;
+        }
+        try {
+            return new GeometryTransformer( gridCrs ).transform( bbox );
+        } catch ( Exception e ) {
+            LOG.debug( "Envelope {} can't be transformed into the grid CRS, bypassing cache: {}", bbox,
+                       e.getMessage() );
+            return null;
+        }
+    }
+
+    /**
+     * Removes all cached tiles.
+     */
+    void clear() {
+        synchronized ( tiles ) {
+            tiles.clear();
+        }
+    }
+
+    /**
+     * Returns the number of tiles currently in the cache.
+     * 
+     * @return number of cached tiles
+     */
+    int size() {
+        synchronized ( tiles ) {
+            return tiles.size();
+        }
+    }
+
+    /**
+     * Stops the loader threads and removes all cached tiles. Requests waiting for tiles that have not been fetched yet
+     * fail.
+     */
+    void destroy() {
+        for ( Runnable queued : executor.shutdownNow() ) {
+            ( (Future<?>) queued ).cancel( false );
+        }
+        pending.clear();
+        clear();
+    }
+
+    private Future<List<Feature>> fetch( final TileKey key, ICRS crs ) {
+        final Envelope tileEnv = FAC.createEnvelope( key.col * tileSize, key.row * tileSize, ( key.col + 1 ) * tileSize,
+                                                     ( key.row + 1 ) * tileSize, crs );
+        FutureTask<List<Feature>> task = new FutureTask<List<Feature>>( new Callable<List<Feature>>() {
+            @Override
+            public List<Feature> call()
+                                    throws FeatureStoreException {
+                try {
+                    List<Feature> loaded = loader.load( key.ftName, tileEnv );
+                    if ( loaded == null ) {
+                        return null;
+                    }
+                    List<Feature> features = Collections.unmodifiableList( loaded );
+                    synchronized ( tiles ) {
+                        tiles.put( key, new CachedTile( features ) );
+                    }
+                    return features;
+                } finally {
+                    pending.remove( key );
+                }
+            }
+        } );
+        Future<List<Feature>> running = pending.putIfAbsent( key, task );
+        if ( running != null ) {
+            return running;
+        }
+        try {
+            executor.execute( task );
+        } catch ( RejectedExecutionException e ) {
+            // cache has been destroyed, the task will never run
+            pending.remove( key, task );
+            task.cancel( false );
+        }
+        return task;
+    }
+
+    private static List<Feature> await( TileKey key, Future<List<Feature>> future )
+                            throws FeatureStoreException {
+        try {
+            return future.get();
+        } catch ( InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new FeatureStoreException( "Interrupted while fetching tile " + key + "." );
+        } catch ( CancellationException e ) {
+            throw new FeatureStoreException( "Fetching tile " + key + " was cancelled, the cache has been destroyed." );
+        } catch ( ExecutionException e ) {
+            Throwable cause = e.getCause();
+            if ( cause instanceof FeatureStoreException ) {
+                throw (FeatureStoreException) cause;
+            }
+            throw new FeatureStoreException( "Error fetching tile " + key + ": " + cause.getMessage(), cause );
+        }
+    }
+
+    private static List<Feature> merge( List<List<Feature>> results ) {
+        if ( results.size() == 1 ) {
+            return results.get( 0 );
+        }
+        List<Feature> merged = new ArrayList<Feature>();
+        Set<String> ids = new HashSet<String>();
+        for ( List<Feature> features : results ) {
+            for ( Feature f : features ) {
+                if ( f.getId() == null || ids.add( f.getId() ) ) {
+                    merged.add( f );
+                }
+            }
+        }
+        return merged;
+    }
+
+    private static class CachedTile {
+
+        private final List<Feature> features;
+
+        private final long created = System.currentTimeMillis();
+
+        private CachedTile( List<Feature> features ) {
+            this.features = features;
+        }
+    }
+
+    private static class TileKey {
+
+        private final QName ftName;
+
+        private final String crsName;
+
+        private final long col;
+
+        private final long row;
+
+        private TileKey( QName ftName, String crsName, long col, long row ) {
+            this.ftName = ftName;
+            this.crsName = crsName;
+            this.col = col;
+            this.row = row;
+        }
+
+        @Override
+        public boolean equals( Object o ) {
+            if ( !( o instanceof TileKey ) ) {
+                return false;
+            }
+            TileKey that = (TileKey) o;
+            return col == that.col && row == that.row && ftName.equals( that.ftName )
+                   && ( crsName == null ? that.crsName == null : crsName.equals( that.crsName ) );
+        }
+
+        @Override
+        public int hashCode() {
+            int result = ftName.hashCode();
+            result = 31 * result + ( crsName == null ? 0 : crsName.hashCode() );
+            result = 31 * result + (int) ( col ^ ( col >>> 32 ) );
+            result = 31 * result + (int) ( row ^ ( row >>> 32 ) );
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return ftName + "/" + crsName + "/" + col + "/" + row;
+        }
+    }
+}
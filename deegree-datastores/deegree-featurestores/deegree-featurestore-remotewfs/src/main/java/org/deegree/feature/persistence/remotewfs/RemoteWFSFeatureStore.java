@@ -38,33 +38,49 @@ package org.deegree.feature.persistence.remotewfs;
 
 import static org.deegree.gml.GMLVersion.GML_31;
 import static org.deegree.protocol.wfs.WFSVersion.WFS_110;
+import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamException;
 
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.binary.BinaryFeatureReader;
 import org.deegree.feature.persistence.FeatureStore;
 import org.deegree.feature.persistence.FeatureStoreException;
 import org.deegree.feature.persistence.FeatureStoreTransaction;
 import org.deegree.feature.persistence.lock.LockManager;
 import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.persistence.remotewfs.FeatureTileCache.TileLoader;
 import org.deegree.feature.persistence.remotewfs.jaxb.RemoteWFSFeatureStoreConfig;
 import org.deegree.feature.stream.CombinedFeatureInputStream;
 import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.FilteredFeatureInputStream;
+import org.deegree.feature.stream.MemoryFeatureInputStream;
 import org.deegree.feature.types.AppSchema;
 import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.OperatorFilter;
 import org.deegree.filter.projection.PropertyName;
 import org.deegree.filter.sort.SortProperty;
+import org.deegree.filter.spatial.BBOX;
 import org.deegree.geometry.Envelope;
 import org.deegree.protocol.ows.exception.OWSExceptionReport;
+import org.deegree.protocol.ows.http.OwsHttpResponse;
 import org.deegree.protocol.wfs.client.GetFeatureResponse;
 import org.deegree.protocol.wfs.client.WFSClient;
 import org.deegree.protocol.wfs.client.WFSFeatureCollection;
@@ -75,10 +91,17 @@ import org.deegree.protocol.wfs.metadata.WFSFeatureType;
 import org.deegree.protocol.wfs.query.FilterQuery;
 import org.deegree.protocol.wfs.query.StandardPresentationParams;
 import org.deegree.workspace.Resource;
+import org.deegree.workspace.ResourceInitException;
 import org.deegree.workspace.ResourceMetadata;
+import org.slf4j.Logger;
 
 /**
  * {@link FeatureStore} implementation that is backed by a (remote) WFS instance.
+ * <p>
+ * If a cache is configured, single type queries with a bbox constraint are answered from a {@link FeatureTileCache}:
+ * missing grid tiles are fetched from the remote WFS in parallel, the actual filter, sort criteria and feature limit
+ * are applied locally.
+ * </p>
  * 
  * @see FeatureStore
  * @see WFSClient
@@ -90,41 +113,89 @@ import org.deegree.workspace.ResourceMetadata;
  */
 public class RemoteWFSFeatureStore implements FeatureStore {
 
-    // private static final Logger LOG = LoggerFactory.getLogger( RemoteWFSFeatureStore.class );
-    //
-    // private final RemoteWFSFeatureStoreConfig config;
+    private static final Logger LOG = getLogger( RemoteWFSFeatureStore.class );
+
+    private static final int DEFAULT_TTL_SECONDS = 300;
+
+    private static final int DEFAULT_MAX_TILES = 1000;
+
+    private static final int DEFAULT_MAX_PARALLEL_REQUESTS = 4;
+
+    private static final int DEFAULT_MAX_FEATURES_PER_TILE = 1000;
+
+    private final RemoteWFSFeatureStoreConfig config;
+
+    private final ResourceMetadata<FeatureStore> metadata;
 
     private WFSClient client;
 
     private AppSchema appSchema;
 
+    private FeatureTileCache tileCache;
+
+    private ICRS tileCrs;
+
+    private int maxFeaturesPerTile;
+
     /**
      * Creates a new {@link RemoteWFSFeatureStore} for the given capabilities URL.
      * 
      * @param config
      *            config, must not be <code>null</code>
+     * @param metadata
+     *            resource metadata, may be <code>null</code>
      */
-    RemoteWFSFeatureStore( RemoteWFSFeatureStoreConfig config ) {
-        // this.config = config;
+    RemoteWFSFeatureStore( RemoteWFSFeatureStoreConfig config, ResourceMetadata<FeatureStore> metadata ) {
+        this.config = config;
+        this.metadata = metadata;
     }
 
-    // @Override
-    // public void init( DeegreeWorkspace workspace )
-    // throws ResourceInitException {
-    // try {
-    // LOG.info( "Connecting to " + config.getCapabilitiesURL() + "..." );
-    // this.client = new WFSClient( new URL( config.getCapabilitiesURL() ) );
-    // this.appSchema = client.getAppSchema();
-    // LOG.info( "Ok." );
-    // } catch ( Exception e ) {
-    // LOG.info( "Error: " + e.getMessage() );
-    // throw new ResourceInitException( "Error connecting to WFS: " + e.getMessage(), e );
-    // }
-    // }
+    @Override
+    public void init() {
+        try {
+            LOG.info( "Connecting to " + config.getCapabilitiesURL() + "..." );
+            this.client = new WFSClient( new URL( config.getCapabilitiesURL() ) );
+            this.appSchema = client.getAppSchema();
+            LOG.info( "Ok." );
+        } catch ( Exception e ) {
+            LOG.info( "Error: " + e.getMessage() );
+            throw new ResourceInitException( "Error connecting to WFS: " + e.getMessage(), e );
+        }
+        RemoteWFSFeatureStoreConfig.Cache cacheConfig = config.getCache();
+        if ( cacheConfig != null ) {
+            int ttl = cacheConfig.getTimeToLive() != null ? cacheConfig.getTimeToLive() : DEFAULT_TTL_SECONDS;
+            int maxTiles = cacheConfig.getMaxTiles() != null ? cacheConfig.getMaxTiles() : DEFAULT_MAX_TILES;
+            int maxParallel = cacheConfig.getMaxParallelRequests() != null ? cacheConfig.getMaxParallelRequests()
+                                                                          : DEFAULT_MAX_PARALLEL_REQUESTS;
+            maxFeaturesPerTile = cacheConfig.getMaxFeaturesPerTile() != null ? cacheConfig.getMaxFeaturesPerTile()
+                                                                             : DEFAULT_MAX_FEATURES_PER_TILE;
+            if ( cacheConfig.getTileSize() <= 0 || maxTiles <= 0 || maxParallel <= 0 || maxFeaturesPerTile <= 0 ) {
+                throw new ResourceInitException( "TileSize, MaxTiles, MaxParallelRequests and MaxFeaturesPerTile "
+                                                 + "must be positive." );
+            }
+            if ( cacheConfig.getCRS() != null ) {
+                tileCrs = CRSManager.getCRSRef( cacheConfig.getCRS().trim() );
+            }
+            tileCache = new FeatureTileCache( cacheConfig.getTileSize(), ttl * 1000L, maxTiles, maxParallel,
+                                              new TileLoader() {
+                                                  @Override
+                                                  public List<Feature> load( QName ftName, Envelope tileEnv )
+                                                                          throws FeatureStoreException {
+                                                      return fetchTile( ftName, tileEnv );
+                                                  }
+                                              } );
+            LOG.info( "Caching features in tiles of size " + cacheConfig.getTileSize() + " (max. " + maxTiles
+                      + " tiles, " + maxParallel + " parallel requests, grid CRS: "
+                      + ( tileCrs != null ? tileCrs.getAlias() : "default CRS of the feature type" ) + ")." );
+        }
+    }
 
     @Override
     public void destroy() {
-        // TODO Auto-generated method stub
+        if ( tileCache != null ) {
+            tileCache.destroy();
+            tileCache = null;
+        }
     }
 
     @Override
@@ -162,17 +233,92 @@ public class RemoteWFSFeatureStore implements FeatureStore {
     @Override
     public FeatureInputStream query( Query query )
                             throws FeatureStoreException, FilterEvaluationException {
+        if ( tileCache != null && query.getTypeNames().length == 1 && query.getPrefilterBBoxEnvelope() != null ) {
+            QName ftName = query.getTypeNames()[0].getFeatureTypeName();
+            ICRS gridCrs = getTileCrs( ftName );
+            List<Feature> candidates = null;
+            if ( gridCrs != null ) {
+                candidates = tileCache.getFeatures( ftName, gridCrs, query.getPrefilterBBoxEnvelope() );
+            }
+            if ( candidates != null ) {
+                FeatureInputStream rs = new MemoryFeatureInputStream( new GenericFeatureCollection( null, candidates ) );
+                if ( query.getFilter() != null ) {
+                    rs = new FilteredFeatureInputStream( rs, query.getFilter() );
+                }
+                SortProperty[] sortCrit = query.getSortProperties();
+                if ( sortCrit != null && sortCrit.length > 0 ) {
+                    rs = new MemoryFeatureInputStream( Features.sortFc( rs.toCollection(), sortCrit ) );
+                }
+                if ( query.getMaxFeatures() >= 0 ) {
+                    rs = limit( rs, query.getMaxFeatures() );
+                }
+                return rs;
+            }
+        }
+        return doGetFeature( toWFSQuery( query ), null );
+    }
 
-        org.deegree.protocol.wfs.query.Query wfsQuery = toWFSQuery( query );
+    /**
+     * Returns the CRS of the tile grid for the given feature type: the configured one or the default CRS advertised by
+     * the remote WFS.
+     */
+    private ICRS getTileCrs( QName ftName ) {
+        if ( tileCrs != null ) {
+            return tileCrs;
+        }
+        WFSFeatureType ftMetadata = client.getFeatureType( ftName );
+        return ftMetadata != null ? ftMetadata.getDefaultCrs() : null;
+    }
 
-        StandardPresentationParams presentationParams = new StandardPresentationParams( null, null, ResultType.RESULTS,
-                                                                                        GML_31.getMimeType() );
+    private static FeatureInputStream limit( FeatureInputStream rs, int maxFeatures ) {
+        List<Feature> features = new ArrayList<Feature>();
+        try {
+            Iterator<Feature> iter = rs.iterator();
+            while ( features.size() < maxFeatures && iter.hasNext() ) {
+                features.add( iter.next() );
+            }
+        } finally {
+            rs.close();
+        }
+        return new MemoryFeatureInputStream( new GenericFeatureCollection( null, features ) );
+    }
+
+    private List<Feature> fetchTile( QName ftName, Envelope tileEnv )
+                            throws FeatureStoreException {
+        TypeName[] typeNames = new TypeName[] { new TypeName( ftName, null ) };
+        Filter filter = new OperatorFilter( new BBOX( tileEnv ) );
+        FeatureInputStream rs = doGetFeature( new FilterQuery( null, typeNames, null, null, null, null, filter ),
+                                              BigInteger.valueOf( maxFeaturesPerTile ) );
+        List<Feature> features;
+        try {
+            features = new ArrayList<Feature>( rs.toCollection() );
+        } finally {
+            rs.close();
+        }
+        if ( features.size() >= maxFeaturesPerTile ) {
+            // the response may have been truncated, caching it would silently drop features
+            LOG.debug( "Tile {} of '{}' reached the limit of {} features.",
+                       new Object[] { tileEnv, ftName, maxFeaturesPerTile } );
+            return null;
+        }
+        return features;
+    }
+
+    private FeatureInputStream doGetFeature( org.deegree.protocol.wfs.query.Query wfsQuery, BigInteger maxFeatures )
+                            throws FeatureStoreException {
+        String outputFormat = config.getBinaryOutputFormat();
+        String mimeType = outputFormat != null ? outputFormat.trim() : GML_31.getMimeType();
+        StandardPresentationParams presentationParams = new StandardPresentationParams( null, maxFeatures,
+                                                                                        ResultType.RESULTS, mimeType );
         GetFeature request = new GetFeature( WFS_110.getOGCVersion(), null, presentationParams, null,
                                              Collections.singletonList( wfsQuery ) );
 
         FeatureInputStream is = null;
         try {
             final GetFeatureResponse<Feature> response = client.doGetFeature( request );
+            if ( outputFormat != null ) {
+                return readBinary( response.getAsRawResponse(), appSchema );
+            }
             final WFSFeatureCollection<Feature> wfsFc = response.getAsWFSFeatureCollection();
             is = new FeatureInputStream() {
 
@@ -210,6 +356,27 @@ public class RemoteWFSFeatureStore implements FeatureStore {
         return is;
     }
 
+    /**
+     * Decodes a GetFeature response in the binary feature encoding, the response is closed with the returned stream.
+     */
+    static FeatureInputStream readBinary( OwsHttpResponse raw, AppSchema schema )
+                            throws OWSExceptionReport, XMLStreamException, IOException {
+        try {
+            raw.assertHttpStatus200();
+            raw.assertNoXmlContentTypeAndExceptionReport();
+            return new BinaryFeatureReader( raw.getAsBinaryStream(), schema ).getFeatures();
+        } catch ( OWSExceptionReport e ) {
+            raw.close();
+            throw e;
+        } catch ( XMLStreamException e ) {
+            raw.close();
+            throw e;
+        } catch ( IOException e ) {
+            raw.close();
+            throw e;
+        }
+    }
+
     @Override
     public FeatureInputStream query( final Query[] queries )
                             throws FeatureStoreException, FilterEvaluationException {
@@ -321,18 +488,6 @@ public class RemoteWFSFeatureStore implements FeatureStore {
      */
     @Override
     public ResourceMetadata<? extends Resource> getMetadata() {
-        // TODO Auto-generated method stub
-        return null;
-    }
-
-    /*
-     * (non-Javadoc)
-     * 
-     * @see org.deegree.workspace.Resource#init()
-     */
-    @Override
-    public void init() {
-        // TODO Auto-generated method stub
-
+        return metadata;
     }
 }
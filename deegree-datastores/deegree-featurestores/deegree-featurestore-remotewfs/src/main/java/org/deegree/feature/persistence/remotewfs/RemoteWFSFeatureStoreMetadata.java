@@ -0,0 +1,82 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.remotewfs;
+
+import static org.deegree.commons.xml.jaxb.JAXBUtils.unmarshall;
+import static org.deegree.feature.persistence.remotewfs.RemoteWFSFeatureStoreProvider.CONFIG_JAXB_PACKAGE;
+import static org.deegree.feature.persistence.remotewfs.RemoteWFSFeatureStoreProvider.CONFIG_SCHEMA;
+
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.remotewfs.jaxb.RemoteWFSFeatureStoreConfig;
+import org.deegree.workspace.ResourceBuilder;
+import org.deegree.workspace.ResourceInitException;
+import org.deegree.workspace.ResourceLocation;
+import org.deegree.workspace.Workspace;
+import org.deegree.workspace.standard.AbstractResourceMetadata;
+import org.deegree.workspace.standard.AbstractResourceProvider;
+
+/**
+ * Resource metadata for {@link RemoteWFSFeatureStore}s.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RemoteWFSFeatureStoreMetadata extends AbstractResourceMetadata<FeatureStore> {
+
+    public RemoteWFSFeatureStoreMetadata( Workspace workspace, ResourceLocation<FeatureStore> location,
+                                          AbstractResourceProvider<FeatureStore> provider ) {
+        super( workspace, location, provider );
+    }
+
+    @Override
+    public ResourceBuilder<FeatureStore> prepare() {
+        try {
+            final RemoteWFSFeatureStoreConfig config = (RemoteWFSFeatureStoreConfig) unmarshall( CONFIG_JAXB_PACKAGE,
+                                                                                                 CONFIG_SCHEMA,
+                                                                                                 location.getAsStream(),
+                                                                                                 workspace );
+            return new ResourceBuilder<FeatureStore>() {
+                @Override
+                public FeatureStore build() {
+                    return new RemoteWFSFeatureStore( config, RemoteWFSFeatureStoreMetadata.this );
+                }
+            };
+        } catch ( Exception e ) {
+            throw new ResourceInitException( e.getLocalizedMessage(), e );
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.remotewfs;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.GenericFeature;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.feature.persistence.remotewfs.FeatureTileCache.TileLoader;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.SimpleGeometryFactory;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FeatureTileCache}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureTileCacheTest {
+
+    private static final QName FT_NAME = new QName( "http://www.deegree.org/app", "Road" );
+
+    private static final FeatureType FT = new GenericFeatureType( FT_NAME, Collections.<PropertyType> emptyList(),
+                                                                  false );
+
+    private static final SimpleGeometryFactory FAC = new SimpleGeometryFactory();
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private FeatureTileCache cache;
+
+    @After
+    public void destroyCache() {
+        if ( cache != null ) {
+            cache.destroy();
+        }
+    }
+
+    @Test
+    public void testTilesAreFetchedOnlyOnce()
+                            throws FeatureStoreException {
+        cache = new FeatureTileCache( 10, 0, 100, 4, featurePerTile() );
+        assertEquals( 4, cache.getFeatures( FT_NAME, null, env( 5, 5, 15, 15 ) ).size() );
+        assertEquals( 4, requests.get() );
+        assertEquals( 1, cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) ).size() );
+        assertEquals( 4, requests.get() );
+        assertEquals( 2, cache.getFeatures( FT_NAME, null, env( 12, 5, 25, 8 ) ).size() );
+        assertEquals( 5, requests.get() );
+    }
+
+    @Test
+    public void testFeaturesSpanningTilesAreReturnedOnce()
+                            throws FeatureStoreException {
+        final Feature f = feature( "ROAD_1" );
+        cache = new FeatureTileCache( 10, 0, 100, 4, new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv ) {
+                requests.incrementAndGet();
+                return Collections.singletonList( f );
+            }
+        } );
+        assertEquals( 1, cache.getFeatures( FT_NAME, null, env( -5, -5, 25, 25 ) ).size() );
+        assertEquals( 16, requests.get() );
+    }
+
+    @Test
+    public void testExpiredTilesAreFetchedAgain()
+                            throws Exception {
+        cache = new FeatureTileCache( 10, 1, 100, 1, featurePerTile() );
+        cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+        Thread.sleep( 10 );
+        cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+        assertEquals( 2, requests.get() );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedTilesAreEvicted()
+                            throws FeatureStoreException {
+        cache = new FeatureTileCache( 10, 0, 2, 1, featurePerTile() );
+        cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+        cache.getFeatures( FT_NAME, null, env( 11, 1, 12, 2 ) );
+        cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+        cache.getFeatures( FT_NAME, null, env( 21, 1, 22, 2 ) );
+        assertEquals( 2, cache.size() );
+        assertEquals( 3, requests.get() );
+        cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+        assertEquals( 3, requests.get() );
+        cache.getFeatures( FT_NAME, null, env( 11, 1, 12, 2 ) );
+        assertEquals( 4, requests.get() );
+    }
+
+    @Test
+    public void testLargeEnvelopeBypassesCache()
+                            throws FeatureStoreException {
+        cache = new FeatureTileCache( 10, 0, 4, 1, featurePerTile() );
+        assertNull( cache.getFeatures( FT_NAME, null, env( 0, 0, 100, 100 ) ) );
+        assertEquals( 0, requests.get() );
+    }
+
+    @Test
+    public void testLoaderErrorIsPropagatedAndNotCached() {
+        cache = new FeatureTileCache( 10, 0, 100, 2, new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv )
+                                    throws FeatureStoreException {
+                requests.incrementAndGet();
+                throw new FeatureStoreException( "Remote WFS unavailable" );
+            }
+        } );
+        try {
+            cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+            fail( "Expected FeatureStoreException." );
+        } catch ( FeatureStoreException e ) {
+            assertEquals( "Remote WFS unavailable", e.getMessage() );
+        }
+        assertEquals( 0, cache.size() );
+    }
+
+    @Test(timeout = 10000)
+    public void testRequestsAfterDestroyFail() {
+        cache = new FeatureTileCache( 10, 0, 100, 2, featurePerTile() );
+        cache.destroy();
+        for ( int i = 0; i < 2; ++i ) {
+            try {
+                cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) );
+                fail( "Expected FeatureStoreException." );
+            } catch ( FeatureStoreException e ) {
+                // expected, the tile must not stay pending
+            }
+        }
+        assertEquals( 0, requests.get() );
+    }
+
+    @Test(timeout = 10000)
+    public void testQueuedTilesFailOnDestroy()
+                            throws Exception {
+        final CountDownLatch started = new CountDownLatch( 1 );
+        cache = new FeatureTileCache( 10, 0, 100, 1, new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv )
+                                    throws FeatureStoreException {
+                started.countDown();
+                try {
+                    new CountDownLatch( 1 ).await();
+                } catch ( InterruptedException e ) {
+                    throw new FeatureStoreException( "Interrupted" );
+                }
+                return null;
+            }
+        } );
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+        Thread request = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    // two tiles, the second one is queued behind the blocked first one
+                    cache.getFeatures( FT_NAME, null, env( 5, 1, 15, 2 ) );
+                } catch ( Exception e ) {
+                    error.set( e );
+                }
+            }
+        };
+        request.start();
+        started.await();
+        cache.destroy();
+        request.join();
+        assertNotNull( error.get() );
+    }
+
+    @Test
+    public void testIncompleteTilesAreNotCached()
+                            throws FeatureStoreException {
+        cache = new FeatureTileCache( 10, 0, 100, 2, new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv ) {
+                requests.incrementAndGet();
+                if ( tileEnv.getMin().get0() >= 10 ) {
+                    // e.g. truncated by the feature limit of the remote WFS
+                    return null;
+                }
+                return Collections.singletonList( feature( "ROAD_" + tileEnv.getMin().get0() ) );
+            }
+        } );
+        assertNull( cache.getFeatures( FT_NAME, null, env( 5, 1, 15, 2 ) ) );
+        assertEquals( 2, requests.get() );
+        assertEquals( 1, cache.size() );
+        assertNull( cache.getFeatures( FT_NAME, null, env( 11, 1, 12, 2 ) ) );
+        assertEquals( 3, requests.get() );
+        assertEquals( 1, cache.getFeatures( FT_NAME, null, env( 1, 1, 2, 2 ) ).size() );
+        assertEquals( 3, requests.get() );
+    }
+
+    @Test
+    public void testEnvelopesAreTransformedIntoGridCrs()
+                            throws Exception {
+        final ICRS gridCrs = CRSManager.lookup( "EPSG:4326" );
+        cache = new FeatureTileCache( 1, 0, 100, 1, new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv ) {
+                requests.incrementAndGet();
+                assertEquals( gridCrs, tileEnv.getCoordinateSystem() );
+                return Collections.singletonList( feature( "ROAD_" + tileEnv.getMin().get0() + "_"
+                                                           + tileEnv.getMin().get1() ) );
+            }
+        } );
+        Envelope bbox = FAC.createEnvelope( 7.1, 50.1, 7.2, 50.2, gridCrs );
+        Envelope utmBbox = new GeometryTransformer( CRSManager.lookup( "EPSG:25832" ) ).transform( bbox );
+        assertNotNull( cache.getFeatures( FT_NAME, gridCrs, bbox ) );
+        assertEquals( 1, requests.get() );
+        assertEquals( 1, cache.getFeatures( FT_NAME, gridCrs, utmBbox ).size() );
+        assertEquals( 1, requests.get() );
+    }
+
+    private TileLoader featurePerTile() {
+        return new TileLoader() {
+            @Override
+            public List<Feature> load( QName ftName, Envelope tileEnv ) {
+                requests.incrementAndGet();
+                return Collections.singletonList( feature( "ROAD_" + tileEnv.getMin().get0() + "_"
+                                                           + tileEnv.getMin().get1() ) );
+            }
+        };
+    }
+
+    private static Feature feature( String id ) {
+        return new GenericFeature( FT, id, Collections.<Property> emptyList(), null );
+    }
+
+    private static Envelope env( double minX, double minY, double maxX, double maxY ) {
+        return FAC.createEnvelope( minX, minY, maxX, maxY, null );
+    }
+
+}
@@ -0,0 +1,201 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.remotewfs;
+
+import static java.util.Arrays.asList;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POINT;
+import static org.deegree.feature.types.property.ValueRepresentation.INLINE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.http.HttpResponse;
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+import org.deegree.feature.binary.BinaryFeatureWriter;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.types.AppSchema;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericAppSchema;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.protocol.ows.exception.OWSExceptionReport;
+import org.deegree.protocol.ows.http.CloseRequiredInputStream;
+import org.deegree.protocol.ows.http.OwsHttpResponse;
+import org.junit.Test;
+
+/**
+ * Tests the decoding of binary GetFeature responses in {@link RemoteWFSFeatureStore}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class RemoteWFSFeatureStoreTest {
+
+    private static final String NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( NS, "name", "app" );
+
+    private static final QName GEOM = new QName( NS, "geom", "app" );
+
+    private final PropertyType[] props = { new SimplePropertyType( NAME, 0, 1, STRING, null, null ),
+                                          new GeometryPropertyType( GEOM, 0, 1, null, null, POINT, DIM_2, INLINE ) };
+
+    private final FeatureType ft = new GenericFeatureType( new QName( NS, "Place", "app" ), asList( props ), false );
+
+    private final AppSchema schema = new GenericAppSchema( new FeatureType[] { ft }, null, null, null, null, null );
+
+    @Test
+    public void testReadBinary()
+                            throws Exception {
+        StubResponse response = new StubResponse( encode( 10 ), null );
+        FeatureInputStream rs = RemoteWFSFeatureStore.readBinary( response, schema );
+        List<Feature> features = new ArrayList<Feature>();
+        for ( Feature f : rs ) {
+            features.add( f );
+        }
+        assertFalse( response.closed );
+        rs.close();
+        assertTrue( response.closed );
+
+        assertEquals( 10, features.size() );
+        Feature f = features.get( 4 );
+        assertEquals( "PLACE_4", f.getId() );
+        assertSame( ft, f.getType() );
+        assertEquals( "Place 4", ( (PrimitiveValue) f.getProperties( NAME ).get( 0 ).getValue() ).getAsText() );
+        assertEquals( 4, ( (Point) f.getProperties( GEOM ).get( 0 ).getValue() ).get0(), 0 );
+    }
+
+    @Test
+    public void testReadBinaryExceptionReport()
+                            throws Exception {
+        OWSExceptionReport report = new OWSExceptionReport( Collections.<OWSException> emptyList(), null, null );
+        StubResponse response = new StubResponse( new byte[0], report );
+        try {
+            RemoteWFSFeatureStore.readBinary( response, schema );
+            fail( "Expected exception." );
+        } catch ( OWSExceptionReport e ) {
+            assertSame( report, e );
+        }
+        assertTrue( response.closed );
+    }
+
+    private byte[] encode( int num )
+                            throws Exception {
+        GeometryFactory geomFac = new GeometryFactory();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        for ( int i = 0; i < num; i++ ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( props[0], NAME, new PrimitiveValue( "Place " + i,
+                                                                                  new PrimitiveType( STRING ) ) ) );
+            values.add( new GenericProperty( props[1], GEOM, geomFac.createPoint( null, i, i, null ) ) );
+            writer.write( ft.newFeature( "PLACE_" + i, values, null ) );
+        }
+        writer.close();
+        return bos.toByteArray();
+    }
+
+    private static class StubResponse implements OwsHttpResponse {
+
+        private final byte[] body;
+
+        private final OWSExceptionReport report;
+
+        private boolean closed;
+
+        StubResponse( byte[] body, OWSExceptionReport report ) {
+            this.body = body;
+            this.report = report;
+        }
+
+        @Override
+        public HttpResponse getAsHttpResponse() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CloseRequiredInputStream getAsBinaryStream() {
+            return new CloseRequiredInputStream( this, new ByteArrayInputStream( body ) );
+        }
+
+        @Override
+        public XMLStreamReader getAsXMLStream() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void assertHttpStatus200()
+                                throws OWSExceptionReport {
+            if ( report != null ) {
+                throw report;
+            }
+        }
+
+        @Override
+        public void assertNoXmlContentTypeAndExceptionReport() {
+            // binary response
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+    }
+
+}
@@ -59,6 +59,7 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -68,6 +69,7 @@ import org.deegree.commons.tom.gml.property.PropertyType;
 import org.deegree.commons.tom.primitive.BaseType;
 import org.deegree.commons.tom.primitive.PrimitiveType;
 import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.persistence.shape.ShapeFeatureStoreProvider.Mapping;
 import org.deegree.feature.property.SimpleProperty;
 import org.deegree.feature.types.GenericFeatureType;
@@ -322,6 +324,20 @@ public class DBFReader {
      */
     public HashMap<SimplePropertyType, Property> getEntry( int num )
                             throws IOException {
+        return getEntry( num, null );
+    }
+
+    /**
+     * @param num
+     *            zero based
+     * @param required
+     *            names of the properties to decode (see {@link Query#getRequiredPropertyNames()}), the other fields are
+     *            skipped, may be <code>null</code> (all properties)
+     * @return a map with the property types mapped to their value (which might be null)
+     * @throws IOException
+     */
+    public HashMap<SimplePropertyType, Property> getEntry( int num, Set<QName> required )
+                            throws IOException {
 
         ByteBuffer buffer = sharedBuffer.asReadOnlyBuffer();
         buffer.order( ByteOrder.LITTLE_ENDIAN );
@@ -342,7 +358,8 @@ public class DBFReader {
 
             byte[] bs = new byte[field.length];
 
-            if ( properties != null && !properties.containsKey( name ) ) {
+            if ( properties != null && !properties.containsKey( name ) || required != null
+                 && !Query.isRequired( required, field.propertyType.getName() ) ) {
                 buffer.position( buffer.position() + field.length );
                 continue;
             }
@@ -36,6 +36,7 @@
 package org.deegree.feature.persistence.shape;
 
 import static org.deegree.commons.utils.CollectionUtils.unzipPair;
+import static org.deegree.feature.persistence.FeatureStores.startQueryTimer;
 import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2_OR_3;
 import static org.deegree.feature.types.property.ValueRepresentation.BOTH;
 import static org.deegree.filter.Filters.splitOffBBoxConstraint;
@@ -57,12 +58,14 @@ import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
 import org.apache.commons.io.IOUtils;
 import org.deegree.commons.annotations.LoggingNotes;
-import org.deegree.commons.index.RTree;
+import org.deegree.commons.index.PackedRTree;
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.tom.gml.GMLObject;
 import org.deegree.commons.tom.gml.property.Property;
 import org.deegree.commons.tom.gml.property.PropertyType;
@@ -90,6 +93,7 @@ import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.FilteredFeatureInputStream;
 import org.deegree.feature.stream.IteratorFeatureInputStream;
 import org.deegree.feature.stream.MemoryFeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
 import org.deegree.feature.types.AppSchema;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.feature.types.GenericAppSchema;
@@ -98,8 +102,10 @@ import org.deegree.feature.types.property.GeometryPropertyType;
 import org.deegree.feature.types.property.SimplePropertyType;
 import org.deegree.filter.Filter;
 import org.deegree.filter.FilterEvaluationException;
+import org.deegree.filter.Filters;
 import org.deegree.filter.IdFilter;
 import org.deegree.filter.ResourceId;
+import org.deegree.filter.expression.ValueReference;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
@@ -111,6 +117,12 @@ import org.slf4j.Logger;
 
 /**
  * {@link FeatureStore} implementation that uses shape files as backend.
+ * <p>
+ * Spatial lookups use a packed Hilbert R-tree that is memory-mapped from a <code>.hrt</code> file next to the shape
+ * file (and rebuilt when the shape file is newer). Attribute lookups still go through the H2-backed {@link DBFIndex}
+ * if alphanumeric indexes are enabled, otherwise attribute filters are evaluated in memory on the candidates of the
+ * spatial lookup.
+ * </p>
  * 
  * @see FeatureStore
  * 
@@ -247,13 +259,13 @@ public class ShapeFeatureStore implements FeatureStore {
 
         shp = null;
 
-        File rtfile = new File( shpName + ".rti" );
+        File rtfile = new File( shpName + ".hrt" );
         RandomAccessFile raf = new RandomAccessFile( shpFile, "r" );
 
         if ( rtfile.exists() && !( rtfile.lastModified() < shpFile.lastModified() ) && !forceIndexRebuild ) {
             try {
-                LOG.debug( "Loading RTree from disk." );
-                RTree<Long> rtree = RTree.loadFromDisk( shpName + ".rti" );
+                LOG.debug( "Mapping RTree from disk." );
+                PackedRTree rtree = PackedRTree.loadFromDisk( rtfile );
                 shp = new SHPReader( raf, crs, rtree, rtree.getExtraFlag() );
             } catch ( IOException e ) {
                 LOG.debug( "Stack trace:", e );
@@ -266,28 +278,33 @@ public class ShapeFeatureStore implements FeatureStore {
 
         shp = new SHPReader( raf, crs, null, false );
 
-        LOG.debug( "Building rtree index in memory for '{}'", new File( shpName ).getName() );
+        LOG.debug( "Building rtree index for '{}'", new File( shpName ).getName() );
 
-        Pair<RTree<Long>, Boolean> p = createIndex( shp );
+        PackedRTree rtree = createIndex( shp );
         LOG.debug( "done building index." );
-        shp = new SHPReader( raf, crs, p.first, p.second );
-        p.first.writeTreeToDisk( shpName + ".rti" );
+        try {
+            rtree.writeTreeToDisk( rtfile );
+            // map it, so the nodes do not stay on the heap
+            rtree = PackedRTree.loadFromDisk( rtfile );
+        } catch ( IOException e ) {
+            LOG.debug( "Stack trace:", e );
+            LOG.warn( "Rtree index could not be written to {}, keeping it in memory.", rtfile );
+        }
+        shp = new SHPReader( raf, crs, rtree, rtree.getExtraFlag() );
         return shp;
     }
 
     /**
      * @param shapeReader
      */
-    private static Pair<RTree<Long>, Boolean> createIndex( SHPReader shapeReader ) {
-        Envelope env = shapeReader.getEnvelope();
-        // use 128 values per rect.
-        RTree<Long> result = new RTree<Long>( createEnvelope( env ), -1 );
-        // to work around Java's non-existent variant type
+    private static PackedRTree createIndex( SHPReader shapeReader ) {
         LOG.debug( "Read envelopes from shape file..." );
         Pair<ArrayList<Pair<float[], Long>>, Boolean> p = shapeReader.readEnvelopes();
         LOG.debug( "done reading envelopes." );
+        // use 16 values per node
+        PackedRTree result = new PackedRTree( 16, p.second );
         result.insertBulk( p.first );
-        return new Pair<RTree<Long>, Boolean>( result, p.second );
+        return result;
     }
 
     private void checkForUpdate() {
@@ -342,6 +359,52 @@ public class ShapeFeatureStore implements FeatureStore {
     @Override
     public FeatureInputStream query( Query query )
                             throws FilterEvaluationException, FeatureStoreException {
+        Timer timer = startQueryTimer( this, query );
+        FeatureInputStream rs = null;
+        try {
+            rs = doQuery( query );
+        } finally {
+            if ( rs == null ) {
+                timer.stop();
+            }
+        }
+        return new TimedFeatureInputStream( rs, timer );
+    }
+
+    private FeatureInputStream doQuery( Query query )
+                            throws FilterEvaluationException, FeatureStoreException {
+
+        Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>> selection = selectRecords( query );
+        if ( selection == null ) {
+            return null;
+        }
+        List<Pair<Integer, Long>> recNumsAndPos = selection.first;
+        Pair<Filter, SortProperty[]> p = selection.second;
+
+        FeatureInputStream rs = new IteratorFeatureInputStream( new FeatureIterator( recNumsAndPos.iterator(),
+                                                                                     query.getRequiredPropertyNames() ) );
+
+        if ( p.first != null ) {
+            LOG.debug( "Applying in-memory filtering." );
+            rs = new FilteredFeatureInputStream( rs, p.first );
+        }
+
+        if ( p.second != null && p.second.length > 0 ) {
+            LOG.debug( "Applying in-memory sorting." );
+            rs = new MemoryFeatureInputStream( Features.sortFc( rs.toCollection(), p.second ) );
+        }
+
+        return rs;
+    }
+
+    /**
+     * Determines the candidate records using the spatial index (and the alphanumeric index, if available).
+     * 
+     * @return the candidate record numbers and positions, and the filter and sort criteria that still have to be
+     *         applied in memory, <code>null</code> if the shape file is not available
+     */
+    private Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>> selectRecords( Query query )
+                            throws FilterEvaluationException, FeatureStoreException {
 
         if ( query.getTypeNames() == null || query.getTypeNames().length > 1 ) {
             String msg = "Only queries with exactly one or zero type name(s) are supported.";
@@ -363,14 +426,14 @@ public class ShapeFeatureStore implements FeatureStore {
 
         if ( query.getTypeNames().length == 0 && !( query.getFilter() instanceof IdFilter ) || idFilterNums != null
              && idFilterNums.isEmpty() ) {
-            return new MemoryFeatureInputStream( new GenericFeatureCollection() );
+            return noRecords();
         }
 
         if ( query.getTypeNames().length > 0 ) {
             QName featureType = query.getTypeNames()[0].getFeatureTypeName();
             if ( featureType != null && !featureType.equals( ft.getName() ) ) {
                 // or null?
-                return new MemoryFeatureInputStream( new GenericFeatureCollection() );
+                return noRecords();
             }
         }
 
@@ -404,20 +467,13 @@ public class ShapeFeatureStore implements FeatureStore {
         if ( p == null ) {
             p = new Pair<Filter, SortProperty[]>( filterPair.first, query.getSortProperties() );
         }
+        return new Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>>( recNumsAndPos, p );
+    }
 
-        FeatureInputStream rs = new IteratorFeatureInputStream( new FeatureIterator( recNumsAndPos.iterator() ) );
-
-        if ( p.first != null ) {
-            LOG.debug( "Applying in-memory filtering." );
-            rs = new FilteredFeatureInputStream( rs, p.first );
-        }
-
-        if ( p.second != null && p.second.length > 0 ) {
-            LOG.debug( "Applying in-memory sorting." );
-            rs = new MemoryFeatureInputStream( Features.sortFc( rs.toCollection(), p.second ) );
-        }
-
-        return rs;
+    private static Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>> noRecords() {
+        List<Pair<Integer, Long>> none = Collections.emptyList();
+        return new Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>>( none,
+                                                                                   new Pair<Filter, SortProperty[]>() );
     }
 
     @Override
@@ -453,7 +509,7 @@ public class ShapeFeatureStore implements FeatureStore {
         return new CombinedFeatureInputStream( rsIter );
     }
 
-    private Feature retrieveFeature( Pair<Integer, Long> recNumAndPos )
+    private Feature retrieveFeature( Pair<Integer, Long> recNumAndPos, Set<QName> required )
                             throws FeatureStoreException {
 
         String fid = buildFID( recNumAndPos.first );
@@ -466,7 +522,7 @@ public class ShapeFeatureStore implements FeatureStore {
             HashMap<SimplePropertyType, Property> entry;
             if ( dbf != null ) {
                 try {
-                    entry = dbf.getEntry( recNumAndPos.first );
+                    entry = dbf.getEntry( recNumAndPos.first, required );
                 } catch ( IOException e ) {
                     LOG.trace( "Stack trace", e );
                     throw new FeatureStoreException( e );
@@ -486,7 +542,10 @@ public class ShapeFeatureStore implements FeatureStore {
             props.add( new GenericProperty( ft.getDefaultGeometryPropertyDeclaration(), g ) );
             feature = ft.newFeature( fid, props, null );
 
-            cache.add( feature );
+            if ( required == null ) {
+                // only cache complete features
+                cache.add( feature );
+            }
         } else {
             LOG.trace( "Cache hit for feature {}", fid );
         }
@@ -500,8 +559,42 @@ public class ShapeFeatureStore implements FeatureStore {
     @Override
     public int queryHits( Query query )
                             throws FeatureStoreException, FilterEvaluationException {
-        // TODO
-        return query( query ).toCollection().size();
+        Timer timer = startQueryTimer( this, query );
+        try {
+            Pair<List<Pair<Integer, Long>>, Pair<Filter, SortProperty[]>> selection = selectRecords( query );
+            if ( selection == null ) {
+                return 0;
+            }
+            Filter filter = selection.second.first;
+            if ( filter == null ) {
+                // index lookups were exact, no need to touch the features
+                return selection.first.size();
+            }
+            // only decode the attributes the filter needs, sorting does not matter for counting
+            Set<QName> required = new HashSet<QName>();
+            for ( ValueReference propName : Filters.getPropertyNames( filter ) ) {
+                QName name = propName.getAsQName();
+                if ( name == null ) {
+                    required = null;
+                    break;
+                }
+                required.add( name );
+            }
+            LOG.debug( "Applying in-memory filtering for counting." );
+            FeatureIterator iter = new FeatureIterator( selection.first.iterator(), required );
+            FeatureInputStream rs = new FilteredFeatureInputStream( new IteratorFeatureInputStream( iter ), filter );
+            int hits = 0;
+            try {
+                for ( Iterator<Feature> features = rs.iterator(); features.hasNext(); features.next() ) {
+                    ++hits;
+                }
+            } finally {
+                rs.close();
+            }
+            return hits;
+        } finally {
+            timer.stop();
+        }
     }
 
     @Override
@@ -601,8 +694,11 @@ public class ShapeFeatureStore implements FeatureStore {
 
         private final Iterator<Pair<Integer, Long>> recIter;
 
-        FeatureIterator( Iterator<Pair<Integer, Long>> recIter ) {
+        private final Set<QName> required;
+
+        FeatureIterator( Iterator<Pair<Integer, Long>> recIter, Set<QName> required ) {
             this.recIter = recIter;
+            this.required = required;
         }
 
         @Override
@@ -633,7 +729,7 @@ public class ShapeFeatureStore implements FeatureStore {
         public Feature next() {
             Feature f = null;
             try {
-                f = retrieveFeature( recIter.next() );
+                f = retrieveFeature( recIter.next(), required );
             } catch ( FeatureStoreException e ) {
                 throw new RuntimeException( e.getMessage(), e );
             }
@@ -0,0 +1,199 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.shape;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POINT;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the decoding of DBF records, in particular the skipping of unrequired fields.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class DBFReaderTest {
+
+    private static final String APP_NS = "http://www.deegree.org/app";
+
+    private static final Charset ASCII = Charset.forName( "US-ASCII" );
+
+    private static final String[] NAMES = { "NAME", "KIND", "POP" };
+
+    private static final char[] TYPES = { 'C', 'C', 'N' };
+
+    private static final int[] LENGTHS = { 10, 6, 8 };
+
+    private File file;
+
+    private DBFReader reader;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        file = File.createTempFile( "dbfreadertest", ".dbf" );
+        file.deleteOnExit();
+        writeDbf( file, new String[][] { { "Bonn", "city", "327258" }, { "Beuel", "town", "" } } );
+        reader = new DBFReader( new RandomAccessFile( file, "r" ), ASCII, new QName( APP_NS, "Place", "app" ), POINT,
+                                null );
+    }
+
+    @After
+    public void tearDown()
+                            throws IOException {
+        reader.close();
+        file.delete();
+    }
+
+    @Test
+    public void testAllFields()
+                            throws IOException {
+        Map<String, String> values = getValues( reader.getEntry( 0 ) );
+        assertEquals( 3, values.size() );
+        assertEquals( "Bonn", values.get( "NAME" ) );
+        assertEquals( "city", values.get( "KIND" ) );
+        assertEquals( "327258", values.get( "POP" ) );
+    }
+
+    @Test
+    public void testRequiredFieldsOnly()
+                            throws IOException {
+        Set<QName> required = new HashSet<QName>();
+        required.add( new QName( APP_NS, "POP" ) );
+        Map<String, String> values = getValues( reader.getEntry( 0, required ) );
+        assertEquals( 1, values.size() );
+        assertEquals( "327258", values.get( "POP" ) );
+    }
+
+    @Test
+    public void testUnqualifiedRequiredField()
+                            throws IOException {
+        Set<QName> required = Collections.singleton( new QName( "KIND" ) );
+        Map<String, String> values = getValues( reader.getEntry( 1, required ) );
+        assertEquals( 1, values.size() );
+        assertEquals( "town", values.get( "KIND" ) );
+    }
+
+    @Test
+    public void testSkippedFieldsKeepRecordAlignment()
+                            throws IOException {
+        Set<QName> required = Collections.singleton( new QName( APP_NS, "KIND" ) );
+        assertEquals( "city", getValues( reader.getEntry( 0, required ) ).get( "KIND" ) );
+        assertEquals( "town", getValues( reader.getEntry( 1, required ) ).get( "KIND" ) );
+        assertNull( getValues( reader.getEntry( 1, null ) ).get( "POP" ) );
+    }
+
+    private static Map<String, String> getValues( Map<SimplePropertyType, Property> entry ) {
+        Map<String, String> values = new HashMap<String, String>();
+        for ( Map.Entry<SimplePropertyType, Property> e : entry.entrySet() ) {
+            if ( e.getValue() != null ) {
+                values.put( e.getKey().getName().getLocalPart(), e.getValue().getValue().toString() );
+            }
+        }
+        return values;
+    }
+
+    private static void writeDbf( File file, String[][] records )
+                            throws IOException {
+        int recordLength = 1;
+        for ( int length : LENGTHS ) {
+            recordLength += length;
+        }
+        int headerLength = 32 + 32 * NAMES.length + 1;
+        ByteBuffer buffer = ByteBuffer.allocate( headerLength + records.length * recordLength + 1 );
+        buffer.order( LITTLE_ENDIAN );
+        buffer.put( (byte) 3 );
+        buffer.put( new byte[] { 114, 1, 1 } );
+        buffer.putInt( records.length );
+        buffer.putShort( (short) headerLength );
+        buffer.putShort( (short) recordLength );
+        buffer.position( 32 );
+        for ( int i = 0; i < NAMES.length; ++i ) {
+            int start = buffer.position();
+            buffer.put( NAMES[i].getBytes( ASCII ) );
+            buffer.position( start + 11 );
+            buffer.put( (byte) TYPES[i] );
+            buffer.position( start + 16 );
+            buffer.put( (byte) LENGTHS[i] );
+            buffer.position( start + 32 );
+        }
+        buffer.put( (byte) 13 );
+        for ( String[] record : records ) {
+            buffer.put( (byte) ' ' );
+            for ( int i = 0; i < NAMES.length; ++i ) {
+                buffer.put( pad( record[i], LENGTHS[i] ).getBytes( ASCII ) );
+            }
+        }
+        buffer.put( (byte) 26 );
+        OutputStream out = new FileOutputStream( file );
+        try {
+            out.write( buffer.array() );
+        } finally {
+            out.close();
+        }
+    }
+
+    private static String pad( String value, int length ) {
+        StringBuilder sb = new StringBuilder( value );
+        while ( sb.length() < length ) {
+            sb.append( ' ' );
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,239 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.shape;
+
+import static java.nio.ByteOrder.BIG_ENDIAN;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.filter.Filter;
+import org.deegree.filter.Operator;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.comparison.PropertyIsEqualTo;
+import org.deegree.filter.expression.Literal;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.logical.And;
+import org.deegree.filter.spatial.BBOX;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the hit counting of the {@link ShapeFeatureStore} against the packed R-tree (.hrt) index.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ShapeFeatureStoreTest {
+
+    private static final String APP_NS = "http://www.deegree.org/app";
+
+    private static final Charset ASCII = Charset.forName( "US-ASCII" );
+
+    private static final String[][] PLACES = { { "Bonn", "city" }, { "Beuel", "town" }, { "Koeln", "city" },
+                                              { "Berlin", "city" } };
+
+    private static final double[][] POINTS = { { 7.10, 50.73 }, { 7.13, 50.74 }, { 6.96, 50.94 }, { 13.40, 52.52 } };
+
+    private static final int FIELD_LENGTH = 10;
+
+    private File dir;
+
+    private ShapeFeatureStore store;
+
+    @Before
+    public void setUp()
+                            throws IOException {
+        dir = File.createTempFile( "shapefeaturestoretest", "" );
+        dir.delete();
+        dir.mkdir();
+        writeShp( new File( dir, "places.shp" ) );
+        writeDbf( new File( dir, "places.dbf" ) );
+        store = new ShapeFeatureStore( new File( dir, "places.shp" ).getPath(), null, ASCII, APP_NS, null, "app",
+                                       false, null, null, null );
+        store.init();
+    }
+
+    @After
+    public void tearDown() {
+        store.destroy();
+        for ( File f : dir.listFiles() ) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void testIndexIsWritten() {
+        assertTrue( new File( dir, "places.hrt" ).exists() );
+    }
+
+    @Test
+    public void testHitsWithoutFilter()
+                            throws Exception {
+        assertEquals( 4, store.queryHits( query( null ) ) );
+    }
+
+    @Test
+    public void testHitsWithBBoxFilter()
+                            throws Exception {
+        assertEquals( 3, store.queryHits( query( new OperatorFilter( bbox() ) ) ) );
+    }
+
+    @Test
+    public void testHitsWithAttributeFilter()
+                            throws Exception {
+        assertEquals( 3, store.queryHits( query( new OperatorFilter( isCity() ) ) ) );
+    }
+
+    @Test
+    public void testHitsWithBBoxAndAttributeFilter()
+                            throws Exception {
+        assertEquals( 2, store.queryHits( query( new OperatorFilter( new And( bbox(), isCity() ) ) ) ) );
+    }
+
+    private static Query query( Filter filter ) {
+        TypeName[] typeNames = new TypeName[] { new TypeName( new QName( APP_NS, "places" ), null ) };
+        return new Query( typeNames, filter, null, null, null );
+    }
+
+    private static Operator bbox() {
+        Envelope env = new GeometryFactory().createEnvelope( 6.5, 50.5, 7.5, 51.0, null );
+        return new BBOX( env );
+    }
+
+    private static Operator isCity() {
+        ValueReference kind = new ValueReference( new QName( APP_NS, "KIND" ) );
+        return new PropertyIsEqualTo( kind, new Literal<PrimitiveValue>( "city" ), true, null );
+    }
+
+    private static void writeShp( File file )
+                            throws IOException {
+        int recordLength = 8 + 20;
+        ByteBuffer buffer = ByteBuffer.allocate( 100 + POINTS.length * recordLength );
+        buffer.order( BIG_ENDIAN );
+        buffer.putInt( SHPReader.FILETYPE );
+        buffer.position( 24 );
+        buffer.putInt( buffer.capacity() / 2 );
+        buffer.order( LITTLE_ENDIAN );
+        buffer.putInt( SHPReader.VERSION );
+        buffer.putInt( SHPReader.POINT );
+        double[] extent = { Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE };
+        for ( double[] p : POINTS ) {
+            extent[0] = Math.min( extent[0], p[0] );
+            extent[1] = Math.min( extent[1], p[1] );
+            extent[2] = Math.max( extent[2], p[0] );
+            extent[3] = Math.max( extent[3], p[1] );
+        }
+        for ( double d : extent ) {
+            buffer.putDouble( d );
+        }
+        buffer.position( 100 );
+        for ( int i = 0; i < POINTS.length; ++i ) {
+            buffer.order( BIG_ENDIAN );
+            buffer.putInt( i + 1 );
+            buffer.putInt( 10 );
+            buffer.order( LITTLE_ENDIAN );
+            buffer.putInt( SHPReader.POINT );
+            buffer.putDouble( POINTS[i][0] );
+            buffer.putDouble( POINTS[i][1] );
+        }
+        write( file, buffer );
+    }
+
+    private static void writeDbf( File file )
+                            throws IOException {
+        String[] names = { "NAME", "KIND" };
+        int recordLength = 1 + names.length * FIELD_LENGTH;
+        int headerLength = 32 + 32 * names.length + 1;
+        ByteBuffer buffer = ByteBuffer.allocate( headerLength + PLACES.length * recordLength + 1 );
+        buffer.order( LITTLE_ENDIAN );
+        buffer.put( (byte) 3 );
+        buffer.put( new byte[] { 114, 1, 1 } );
+        buffer.putInt( PLACES.length );
+        buffer.putShort( (short) headerLength );
+        buffer.putShort( (short) recordLength );
+        buffer.position( 32 );
+        for ( String name : names ) {
+            int start = buffer.position();
+            buffer.put( name.getBytes( ASCII ) );
+            buffer.position( start + 11 );
+            buffer.put( (byte) 'C' );
+            buffer.position( start + 16 );
+            buffer.put( (byte) FIELD_LENGTH );
+            buffer.position( start + 32 );
+        }
+        buffer.put( (byte) 13 );
+        for ( String[] place : PLACES ) {
+            buffer.put( (byte) ' ' );
+            for ( String value : place ) {
+                byte[] bytes = value.getBytes( ASCII );
+                buffer.put( bytes );
+                for ( int i = bytes.length; i < FIELD_LENGTH; ++i ) {
+                    buffer.put( (byte) ' ' );
+                }
+            }
+        }
+        buffer.put( (byte) 26 );
+        write( file, buffer );
+    }
+
+    private static void write( File file, ByteBuffer buffer )
+                            throws IOException {
+        OutputStream out = new FileOutputStream( file );
+        try {
+            out.write( buffer.array() );
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -38,6 +38,8 @@ package org.deegree.feature.persistence.sql;
 import static org.deegree.commons.xml.CommonNamespaces.OGCNS;
 import static org.deegree.commons.xml.CommonNamespaces.XLNNS;
 import static org.deegree.commons.xml.CommonNamespaces.XSINS;
+import static org.deegree.feature.persistence.FeatureStores.startQueryTimer;
+import static org.deegree.feature.persistence.query.Query.QueryHint.HINT_RESOLUTION;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.lang.reflect.Constructor;
@@ -61,6 +63,7 @@ import org.deegree.commons.annotations.LoggingNotes;
 import org.deegree.commons.jdbc.ResultSetIterator;
 import org.deegree.commons.jdbc.SQLIdentifier;
 import org.deegree.commons.jdbc.TableName;
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.tom.CombinedReferenceResolver;
 import org.deegree.commons.tom.TypedObjectNode;
 import org.deegree.commons.tom.gml.GMLObject;
@@ -113,6 +116,7 @@ import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.feature.stream.FilteredFeatureInputStream;
 import org.deegree.feature.stream.IteratorFeatureInputStream;
 import org.deegree.feature.stream.MemoryFeatureInputStream;
+import org.deegree.feature.stream.TimedFeatureInputStream;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension;
 import org.deegree.feature.types.property.GeometryPropertyType.GeometryType;
@@ -126,6 +130,7 @@ import org.deegree.filter.spatial.BBOX;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.Geometry;
 import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.utils.GeometryParticleConverter;
 import org.deegree.protocol.wfs.getfeature.TypeName;
 import org.deegree.sqldialect.SQLDialect;
 import org.deegree.sqldialect.filter.AbstractWhereBuilder;
@@ -162,6 +167,15 @@ public class SQLFeatureStore implements FeatureStore {
 
     private static final int DEFAULT_CACHE_SIZE = 10000;
 
+    /**
+     * Name of the system property that controls the generalization of geometries for queries with a
+     * {@link org.deegree.feature.persistence.query.Query.QueryHint#HINT_RESOLUTION} hint (map rendering). The value is
+     * the simplification tolerance as a fraction of the pixel size, default is 0.5, 0 disables the generalization.
+     */
+    public static final String GENERALIZATION = "deegree.sqlfeaturestore.generalization";
+
+    private static final double DEFAULT_GENERALIZATION = 0.5;
+
     private final SQLFeatureStoreJAXB config;
 
     private final URL configURL;
@@ -881,6 +895,20 @@ public class SQLFeatureStore implements FeatureStore {
     @Override
     public FeatureInputStream query( Query query )
                             throws FeatureStoreException, FilterEvaluationException {
+        Timer timer = startQueryTimer( this, query );
+        FeatureInputStream rs = null;
+        try {
+            rs = doQuery( query );
+        } finally {
+            if ( rs == null ) {
+                timer.stop();
+            }
+        }
+        return new TimedFeatureInputStream( rs, timer );
+    }
+
+    private FeatureInputStream doQuery( Query query )
+                            throws FeatureStoreException, FilterEvaluationException {
 
         if ( query.getTypeNames() == null || query.getTypeNames().length > 1 ) {
             String msg = "Join queries between multiple feature types are not by SQLFeatureStore (yet).";
@@ -929,7 +957,16 @@ public class SQLFeatureStore implements FeatureStore {
         }
 
         if ( wmsStyleQuery ) {
-            return queryMultipleFts( queries, env );
+            Timer timer = startQueryTimer( this, queries );
+            FeatureInputStream rs = null;
+            try {
+                rs = queryMultipleFts( queries, env );
+            } finally {
+                if ( rs == null ) {
+                    timer.stop();
+                }
+            }
+            return new TimedFeatureInputStream( rs, timer );
         }
 
         Iterator<FeatureInputStream> rsIter = new Iterator<FeatureInputStream>() {
@@ -1315,8 +1352,13 @@ public class SQLFeatureStore implements FeatureStore {
             LOG.debug( "WHERE clause: " + wb.getWhere() );
             LOG.debug( "ORDER BY clause: " + wb.getOrderBy() );
 
+            double tolerance = getGeneralizationTolerance( query, ftMapping, wb );
+            if ( tolerance > 0 ) {
+                LOG.debug( "Generalizing geometries with a tolerance of {}.", tolerance );
+            }
             FeatureBuilder builder = new FeatureBuilderRelational( this, ft, ftMapping, conn, ftTableAlias,
-                                                                   nullEscalation );
+                                                                   nullEscalation, tolerance,
+                                                                   query.getRequiredPropertyNames() );
             List<String> columns = builder.getInitialSelectList();
 
             BlobMapping blobMapping = getSchema().getBlobMapping();
@@ -1404,6 +1446,74 @@ public class SQLFeatureStore implements FeatureStore {
         return result;
     }
 
+    /**
+     * Derives the simplification tolerance for the geometries of a map query from its resolution hint, in units of the
+     * storage CRS.
+     * 
+     * @return the tolerance, or -1 if the geometries must not be generalized (no resolution hint, in-memory
+     *         post-filtering, or the query envelope cannot be related to the storage CRS)
+     */
+    private double getGeneralizationTolerance( Query query, FeatureTypeMapping ftMapping, AbstractWhereBuilder wb ) {
+        Pair<TableName, GeometryMapping> geomMapping = ftMapping.getDefaultGeometryMapping();
+        if ( wb.getPostFilter() != null || geomMapping == null ) {
+            return -1;
+        }
+        ParticleConverter<?> converter = getConverter( geomMapping.second );
+        if ( !( converter instanceof GeometryParticleConverter ) ) {
+            return -1;
+        }
+        return getGeneralizationTolerance( query, ( (GeometryParticleConverter) converter ).getCrs() );
+    }
+
+    /**
+     * Derives the simplification tolerance for the geometries of a map query from its resolution hint and envelope.
+     * 
+     * @param query
+     *            query, must not be <code>null</code>
+     * @param storageCrs
+     *            CRS of the geometry column, may be <code>null</code> (assumed to be the query CRS)
+     * @return the tolerance in units of the storage CRS, or -1 if the geometries must not be generalized
+     */
+    static double getGeneralizationTolerance( Query query, ICRS storageCrs ) {
+        Object resolution = query.getHint( HINT_RESOLUTION );
+        double factor = getGeneralizationFactor();
+        if ( factor <= 0 || !( resolution instanceof Double ) ) {
+            return -1;
+        }
+        Envelope bbox = query.getPrefilterBBoxEnvelope();
+        if ( bbox == null || bbox.getSpan0() <= 0 || bbox.getSpan1() <= 0 ) {
+            return -1;
+        }
+        double tolerance = (Double) resolution * factor;
+        ICRS queryCrs = bbox.getCoordinateSystem();
+        if ( storageCrs != null && queryCrs != null && !storageCrs.equals( queryCrs ) ) {
+            try {
+                Envelope transformed = new GeometryTransformer( storageCrs ).transform( bbox );
+                // ratio of the areas is independent of the axis order
+                double ratio = ( transformed.getSpan0() * transformed.getSpan1() )
+                               / ( bbox.getSpan0() * bbox.getSpan1() );
+                tolerance *= Math.sqrt( ratio );
+            } catch ( Exception e ) {
+                LOG.debug( "Not generalizing geometries, query envelope cannot be transformed: {}", e.getMessage() );
+                return -1;
+            }
+        }
+        return tolerance > 0 && !Double.isInfinite( tolerance ) ? tolerance : -1;
+    }
+
+    private static double getGeneralizationFactor() {
+        String value = System.getProperty( GENERALIZATION );
+        if ( value == null ) {
+            return DEFAULT_GENERALIZATION;
+        }
+        try {
+            return Double.parseDouble( value );
+        } catch ( NumberFormatException e ) {
+            LOG.warn( "Invalid value '{}' for {}, using {}.", value, GENERALIZATION, DEFAULT_GENERALIZATION );
+            return DEFAULT_GENERALIZATION;
+        }
+    }
+
     private FeatureInputStream queryMultipleFts( Query[] queries, Envelope looseBBox )
                             throws FeatureStoreException {
         FeatureInputStream result = null;
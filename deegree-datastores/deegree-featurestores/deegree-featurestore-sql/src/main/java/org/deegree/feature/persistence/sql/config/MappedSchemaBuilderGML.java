@@ -108,6 +108,7 @@ import org.deegree.feature.types.property.GeometryPropertyType.GeometryType;
 import org.deegree.feature.types.property.ObjectPropertyType;
 import org.deegree.filter.expression.ValueReference;
 import org.deegree.gml.GMLVersion;
+import org.deegree.gml.schema.AppSchemaCache;
 import org.deegree.gml.schema.GMLAppSchemaReader;
 import org.deegree.gml.schema.GMLSchemaInfoSet;
 import org.deegree.sqldialect.filter.MappingExpression;
@@ -289,14 +290,15 @@ public class MappedSchemaBuilderGML extends AbstractMappedSchemaBuilder {
                 schemaURLs[i++] = resolver.resolve( gmlSchema.trim() ).toString();
             }
 
-            GMLAppSchemaReader decoder = null;
+            // the mapped schema takes over the feature types, so only the schema infoset can be shared
+            GMLSchemaInfoSet schemaInfoSet = null;
             if ( schemaURLs.length == 1 && schemaURLs[0].startsWith( "file:" ) ) {
                 File file = new File( new URL( schemaURLs[0] ).toURI() );
-                decoder = new GMLAppSchemaReader( null, null, file );
+                schemaInfoSet = AppSchemaCache.getSchemaInfoSet( null, file );
             } else {
-                decoder = new GMLAppSchemaReader( null, null, schemaURLs );
+                schemaInfoSet = AppSchemaCache.getSchemaInfoSet( null, schemaURLs );
             }
-            appSchema = decoder.extractAppSchema();
+            appSchema = new GMLAppSchemaReader( schemaInfoSet, null ).extractAppSchema();
         } catch ( Throwable t ) {
             t.printStackTrace();
             String msg = "Error building GML application schema: " + t.getMessage();
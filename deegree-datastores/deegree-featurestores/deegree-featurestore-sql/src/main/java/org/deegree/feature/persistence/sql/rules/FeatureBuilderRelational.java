@@ -55,6 +55,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLInputFactory;
@@ -83,11 +84,13 @@ import org.deegree.commons.xml.stax.XMLStreamReaderWrapper;
 import org.deegree.feature.Feature;
 import org.deegree.feature.persistence.sql.FeatureBuilder;
 import org.deegree.feature.persistence.sql.FeatureTypeMapping;
+import org.deegree.feature.persistence.query.Query;
 import org.deegree.feature.persistence.sql.SQLFeatureStore;
 import org.deegree.feature.persistence.sql.expressions.TableJoin;
 import org.deegree.feature.property.GenericProperty;
 import org.deegree.feature.types.AppSchemaGeometryHierarchy;
 import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
 import org.deegree.feature.types.property.ObjectPropertyType;
 import org.deegree.filter.expression.ValueReference;
 import org.deegree.geometry.Geometry;
@@ -96,6 +99,7 @@ import org.deegree.geometry.primitive.LineString;
 import org.deegree.geometry.primitive.Polygon;
 import org.deegree.geometry.primitive.patches.SurfacePatch;
 import org.deegree.geometry.primitive.segments.CurveSegment;
+import org.deegree.geometry.utils.GeometryParticleConverter;
 import org.deegree.gml.GMLInputFactory;
 import org.deegree.gml.GMLOutputFactory;
 import org.deegree.gml.GMLStreamReader;
@@ -147,6 +151,10 @@ public class FeatureBuilderRelational implements FeatureBuilder {
 
     private final boolean nullEscalation;
 
+    private final double generalizationTolerance;
+
+    private final Set<QName> requiredProps;
+
     /**
      * Creates a new {@link FeatureBuilderRelational} instance.
      * 
@@ -158,12 +166,71 @@ public class FeatureBuilderRelational implements FeatureBuilder {
      *            feature type mapping, must not be <code>null</code>
      * @param conn
      *            JDBC connection (used for performing subsequent SELECTs), must not be <code>null</code>
-     * @param escalationPolicy
-     *            the void escalation policy, must not be <code>null</code>
+     * @param ftTableAlias
+     *            alias of the feature type table used in the query, must not be <code>null</code>
+     * @param nullEscalation
+     *            true, if a missing value for a non-voidable particle should make the enclosing element void
      */
     public FeatureBuilderRelational( SQLFeatureStore fs, FeatureType ft, FeatureTypeMapping ftMapping, Connection conn,
                                      String ftTableAlias, boolean nullEscalation ) {
+        this( fs, ft, ftMapping, conn, ftTableAlias, nullEscalation, -1 );
+    }
+
+    /**
+     * Creates a new {@link FeatureBuilderRelational} instance that fetches generalized geometries. Features with
+     * generalized geometries are not added to the feature cache.
+     * 
+     * @param fs
+     *            feature store, must not be <code>null</code>
+     * @param ft
+     *            feature type, must not be <code>null</code>
+     * @param ftMapping
+     *            feature type mapping, must not be <code>null</code>
+     * @param conn
+     *            JDBC connection (used for performing subsequent SELECTs), must not be <code>null</code>
+     * @param ftTableAlias
+     *            alias of the feature type table used in the query, must not be <code>null</code>
+     * @param nullEscalation
+     *            true, if a missing value for a non-voidable particle should make the enclosing element void
+     * @param generalizationTolerance
+     *            simplification tolerance for geometries in units of the storage CRS, a value &lt;= 0 disables
+     *            generalization
+     */
+    public FeatureBuilderRelational( SQLFeatureStore fs, FeatureType ft, FeatureTypeMapping ftMapping, Connection conn,
+                                     String ftTableAlias, boolean nullEscalation, double generalizationTolerance ) {
+        this( fs, ft, ftMapping, conn, ftTableAlias, nullEscalation, generalizationTolerance, null );
+    }
+
+    /**
+     * Creates a new {@link FeatureBuilderRelational} instance that fetches generalized geometries and only the given
+     * properties. Geometry properties are always fetched. Features that are generalized or miss properties are not
+     * added to the feature cache.
+     * 
+     * @param fs
+     *            feature store, must not be <code>null</code>
+     * @param ft
+     *            feature type, must not be <code>null</code>
+     * @param ftMapping
+     *            feature type mapping, must not be <code>null</code>
+     * @param conn
+     *            JDBC connection (used for performing subsequent SELECTs), must not be <code>null</code>
+     * @param ftTableAlias
+     *            alias of the feature type table used in the query, must not be <code>null</code>
+     * @param nullEscalation
+     *            true, if a missing value for a non-voidable particle should make the enclosing element void
+     * @param generalizationTolerance
+     *            simplification tolerance for geometries in units of the storage CRS, a value &lt;= 0 disables
+     *            generalization
+     * @param requiredProps
+     *            names of the properties to fetch (see {@link Query#getRequiredPropertyNames()}), may be
+     *            <code>null</code> (all properties)
+     */
+    public FeatureBuilderRelational( SQLFeatureStore fs, FeatureType ft, FeatureTypeMapping ftMapping, Connection conn,
+                                     String ftTableAlias, boolean nullEscalation, double generalizationTolerance,
+                                     Set<QName> requiredProps ) {
         this.fs = fs;
+        this.generalizationTolerance = generalizationTolerance;
+        this.requiredProps = requiredProps;
         this.ft = ft;
         this.ftMapping = ftMapping;
         this.conn = conn;
@@ -187,12 +254,26 @@ public class FeatureBuilderRelational implements FeatureBuilder {
             addColumn( qualifiedSqlExprToRsIdx, tableAlias + "." + fidColumn.first.getName() );
         }
         for ( Mapping mapping : ftMapping.getMappings() ) {
-            addSelectColumns( mapping, qualifiedSqlExprToRsIdx, true );
+            if ( !isProjectedOut( mapping ) ) {
+                addSelectColumns( mapping, qualifiedSqlExprToRsIdx, true );
+            }
         }
         LOG.debug( "Initial select columns: " + qualifiedSqlExprToRsIdx );
         return new ArrayList<String>( qualifiedSqlExprToRsIdx.keySet() );
     }
 
+    private boolean isProjectedOut( Mapping mapping ) {
+        if ( requiredProps == null ) {
+            return false;
+        }
+        QName childEl = getChildElementStepAsQName( mapping.getPath() );
+        if ( childEl == null ) {
+            return false;
+        }
+        PropertyType pt = ft.getPropertyDeclaration( childEl );
+        return !( pt instanceof GeometryPropertyType ) && !Query.isRequired( requiredProps, childEl );
+    }
+
     private void addColumn( LinkedHashMap<String, Integer> colToRsIdx, String column ) {
         if ( !colToRsIdx.containsKey( column ) ) {
             colToRsIdx.put( column, colToRsIdx.size() + 1 );
@@ -230,7 +311,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
                 }
             } else if ( mapping instanceof GeometryMapping ) {
                 if ( particleConverter != null ) {
-                    addColumn( colToRsIdx, particleConverter.getSelectSnippet( tableAlias ) );
+                    addColumn( colToRsIdx, getGeometrySelectSnippet( particleConverter ) );
                 } else {
                     LOG.info( "Omitting mapping '" + mapping + "' from SELECT list. Not mapped to column.'" );
                 }
@@ -253,6 +334,13 @@ public class FeatureBuilderRelational implements FeatureBuilder {
         }
     }
 
+    private String getGeometrySelectSnippet( ParticleConverter<?> converter ) {
+        if ( generalizationTolerance > 0 && converter instanceof GeometryParticleConverter ) {
+            return ( (GeometryParticleConverter) converter ).getSelectSnippet( tableAlias, generalizationTolerance );
+        }
+        return converter.getSelectSnippet( tableAlias );
+    }
+
     @Override
     public Feature buildFeature( ResultSet rs )
                             throws SQLException {
@@ -273,6 +361,9 @@ public class FeatureBuilderRelational implements FeatureBuilder {
                 LOG.debug( "Recreating feature '" + gmlId + "' from db (relational mode)." );
                 List<Property> props = new ArrayList<Property>();
                 for ( Mapping mapping : ftMapping.getMappings() ) {
+                    if ( isProjectedOut( mapping ) ) {
+                        continue;
+                    }
                     ValueReference propName = mapping.getPath();
                     QName childEl = getChildElementStepAsQName( propName );
                     if ( childEl != null ) {
@@ -286,7 +377,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
                     }
                 }
                 feature = ft.newFeatureInstance( gmlId, props, null );
-                if ( fs.getCache() != null ) {
+                if ( fs.getCache() != null && generalizationTolerance <= 0 && requiredProps == null ) {
                     fs.getCache().add( feature );
                 }
             } else {
@@ -447,7 +538,7 @@ public class FeatureBuilderRelational implements FeatureBuilder {
             GeometryMapping pm = (GeometryMapping) mapping;
             MappingExpression me = pm.getMapping();
             if ( me instanceof DBField ) {
-                String col = converter.getSelectSnippet( tableAlias );
+                String col = getGeometrySelectSnippet( converter );
                 int colIndex = colToRsIdx.get( col );
                 particle = converter.toParticle( rs, colIndex );
                 Geometry geom = ( (Geometry) particle );
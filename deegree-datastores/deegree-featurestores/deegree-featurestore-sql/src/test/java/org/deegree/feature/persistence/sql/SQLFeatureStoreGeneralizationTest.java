@@ -0,0 +1,128 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql;
+
+import static org.deegree.feature.persistence.sql.SQLFeatureStore.GENERALIZATION;
+import static org.deegree.feature.persistence.sql.SQLFeatureStore.getGeneralizationTolerance;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.filter.Filter;
+import org.deegree.filter.OperatorFilter;
+import org.deegree.filter.spatial.BBOX;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.protocol.wfs.getfeature.TypeName;
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Tests the derivation of the generalization tolerance for map queries in {@link SQLFeatureStore}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class SQLFeatureStoreGeneralizationTest {
+
+    private static final double DELTA = 1E-9;
+
+    @After
+    public void tearDown() {
+        System.clearProperty( GENERALIZATION );
+    }
+
+    @Test
+    public void testHalfPixelByDefault() {
+        assertEquals( 1.0, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( null ) ), null ), DELTA );
+    }
+
+    @Test
+    public void testConfiguredFactor() {
+        System.setProperty( GENERALIZATION, "0.25" );
+        assertEquals( 0.5, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( null ) ), null ), DELTA );
+    }
+
+    @Test
+    public void testInvalidFactorUsesDefault() {
+        System.setProperty( GENERALIZATION, "half" );
+        assertEquals( 1.0, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( null ) ), null ), DELTA );
+    }
+
+    @Test
+    public void testDisabled() {
+        System.setProperty( GENERALIZATION, "0" );
+        assertEquals( -1, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( null ) ), null ), DELTA );
+    }
+
+    @Test
+    public void testNoResolutionHint() {
+        assertEquals( -1, getGeneralizationTolerance( createQuery( -1, createEnvelope( null ) ), null ), DELTA );
+    }
+
+    @Test
+    public void testNoEnvelope() {
+        assertEquals( -1, getGeneralizationTolerance( createQuery( 2.0, null ), null ), DELTA );
+    }
+
+    @Test
+    public void testSameCrs() {
+        ICRS crs = mock( ICRS.class );
+        assertEquals( 1.0, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( crs ) ), crs ), DELTA );
+    }
+
+    @Test
+    public void testUntransformableEnvelope() {
+        ICRS storageCrs = mock( ICRS.class );
+        ICRS queryCrs = mock( ICRS.class );
+        assertEquals( -1, getGeneralizationTolerance( createQuery( 2.0, createEnvelope( queryCrs ) ), storageCrs ),
+                      DELTA );
+    }
+
+    private static Envelope createEnvelope( ICRS crs ) {
+        return new GeometryFactory().createEnvelope( 0, 0, 100, 50, crs );
+    }
+
+    private static Query createQuery( double resolution, Envelope bbox ) {
+        Filter filter = bbox == null ? null : new OperatorFilter( new BBOX( bbox ) );
+        TypeName[] typeNames = new TypeName[] { new TypeName( new QName( "Road" ), null ) };
+        return new Query( typeNames, filter, null, -1, -1, resolution );
+    }
+
+}
@@ -0,0 +1,165 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.feature.persistence.sql.rules;
+
+import static java.util.Collections.singleton;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.GEOMETRY;
+import static org.deegree.feature.types.property.ValueRepresentation.BOTH;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.jdbc.SQLIdentifier;
+import org.deegree.commons.jdbc.TableName;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.BaseType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.sql.ParticleConverter;
+import org.deegree.commons.utils.Pair;
+import org.deegree.feature.persistence.sql.FeatureTypeMapping;
+import org.deegree.feature.persistence.sql.SQLFeatureStore;
+import org.deegree.feature.persistence.sql.id.FIDMapping;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.filter.expression.ValueReference;
+import org.deegree.sqldialect.filter.DBField;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests the projection of unrequired properties in {@link FeatureBuilderRelational}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureBuilderRelationalTest {
+
+    private static final String APP_NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( APP_NS, "name", "app" );
+
+    private static final QName KIND = new QName( APP_NS, "kind", "app" );
+
+    private static final QName GEOM = new QName( APP_NS, "geom", "app" );
+
+    private SQLFeatureStore fs;
+
+    private FeatureType ft;
+
+    private FeatureTypeMapping ftMapping;
+
+    @Before
+    public void setUp() {
+        List<PropertyType> pts = new ArrayList<PropertyType>();
+        pts.add( new SimplePropertyType( NAME, 0, 1, BaseType.STRING, null, null ) );
+        pts.add( new SimplePropertyType( KIND, 0, 1, BaseType.STRING, null, null ) );
+        pts.add( new GeometryPropertyType( GEOM, 0, 1, null, null, GEOMETRY, DIM_2, BOTH ) );
+        ft = new GenericFeatureType( new QName( APP_NS, "Road", "app" ), pts, false );
+
+        fs = mock( SQLFeatureStore.class );
+        when( fs.getNamespaceContext() ).thenReturn( Collections.singletonMap( "app", APP_NS ) );
+        List<Mapping> mappings = new ArrayList<Mapping>();
+        mappings.add( primitive( NAME ) );
+        mappings.add( primitive( KIND ) );
+        Mapping geom = new GeometryMapping( new ValueReference( GEOM ), true, new DBField( "geom" ), GEOMETRY, null,
+                                            null );
+        doReturn( converter( "geom" ) ).when( fs ).getConverter( geom );
+        mappings.add( geom );
+
+        List<Pair<SQLIdentifier, BaseType>> fidColumns = new ArrayList<Pair<SQLIdentifier, BaseType>>();
+        fidColumns.add( new Pair<SQLIdentifier, BaseType>( new SQLIdentifier( "id" ), BaseType.INTEGER ) );
+        FIDMapping fidMapping = new FIDMapping( "ROAD_", "", fidColumns, null );
+        ftMapping = new FeatureTypeMapping( ft.getName(), new TableName( "road" ), fidMapping, mappings );
+    }
+
+    @Test
+    public void testAllProperties() {
+        assertEquals( columns( "X1.id", "X1.name", "X1.kind", "X1.geom" ), getInitialSelectList( null ) );
+    }
+
+    @Test
+    public void testUnrequiredPropertiesAreNotSelected() {
+        assertEquals( columns( "X1.id", "X1.kind", "X1.geom" ), getInitialSelectList( singleton( KIND ) ) );
+    }
+
+    @Test
+    public void testGeometriesAreAlwaysSelected() {
+        assertEquals( columns( "X1.id", "X1.geom" ), getInitialSelectList( Collections.<QName> emptySet() ) );
+    }
+
+    @Test
+    public void testUnqualifiedRequiredProperty() {
+        Set<QName> required = singleton( new QName( "name" ) );
+        assertEquals( columns( "X1.id", "X1.name", "X1.geom" ), getInitialSelectList( required ) );
+    }
+
+    private List<String> getInitialSelectList( Set<QName> required ) {
+        FeatureBuilderRelational builder = new FeatureBuilderRelational( fs, ft, ftMapping, null, "X1", false, -1,
+                                                                         required );
+        return builder.getInitialSelectList();
+    }
+
+    private Mapping primitive( QName name ) {
+        Mapping mapping = new PrimitiveMapping( new ValueReference( name ), true, new DBField( name.getLocalPart() ),
+                                                new PrimitiveType( BaseType.STRING ), null, null );
+        doReturn( converter( name.getLocalPart() ) ).when( fs ).getConverter( mapping );
+        return mapping;
+    }
+
+    private static ParticleConverter<?> converter( String column ) {
+        ParticleConverter<?> converter = mock( ParticleConverter.class );
+        when( converter.getSelectSnippet( "X1" ) ).thenReturn( "X1." + column );
+        return converter;
+    }
+
+    private static List<String> columns( String... columns ) {
+        List<String> list = new ArrayList<String>();
+        Collections.addAll( list, columns );
+        return list;
+    }
+
+}
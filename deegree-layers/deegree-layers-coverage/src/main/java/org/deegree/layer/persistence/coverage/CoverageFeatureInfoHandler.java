@@ -42,6 +42,7 @@
 package org.deegree.layer.persistence.coverage;
 
 import static java.lang.Integer.MAX_VALUE;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.NEAREST_NEIGHBOR;
 import static org.deegree.coverage.raster.utils.CoverageTransform.transform;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -64,6 +65,9 @@ import org.deegree.coverage.raster.data.RasterData;
 import org.deegree.coverage.raster.data.info.DataType;
 import org.deegree.coverage.raster.geom.Grid;
 import org.deegree.coverage.raster.interpolation.InterpolationType;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.exceptions.TransformationException;
+import org.deegree.cs.exceptions.UnknownCRSException;
 import org.deegree.feature.Feature;
 import org.deegree.feature.FeatureCollection;
 import org.deegree.feature.GenericFeature;
@@ -71,6 +75,8 @@ import org.deegree.feature.GenericFeatureCollection;
 import org.deegree.feature.property.GenericProperty;
 import org.deegree.feature.types.FeatureType;
 import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryTransformer;
+import org.deegree.geometry.primitive.Point;
 import org.deegree.layer.dims.Dimension;
 import org.slf4j.Logger;
 
@@ -109,9 +115,14 @@ class CoverageFeatureInfoHandler {
 
     FeatureCollection handleFeatureInfo() {
         try {
-            SimpleRaster res = transform( raster, bbox, Grid.fromSize( 1, 1, MAX_VALUE, bbox ),
-                                          interpol.toString() ).getAsSimpleRaster();
-            RasterData data = res.getRasterData();
+            RasterData data;
+            if ( interpol == NEAREST_NEIGHBOR ) {
+                data = sampleCenter();
+            } else {
+                SimpleRaster res = transform( raster, bbox, Grid.fromSize( 1, 1, MAX_VALUE, bbox ),
+                                              interpol.toString() ).getAsSimpleRaster();
+                data = res.getRasterData();
+            }
             GenericFeatureCollection col = new GenericFeatureCollection();
             List<Property> props = new LinkedList<Property>();
             DataType dataType = data.getDataType();
@@ -153,6 +164,20 @@ class CoverageFeatureInfoHandler {
         return null;
     }
 
+    /**
+     * Reads the pixel at the center of the click box, without transforming (and loading) whole tiles.
+     */
+    private RasterData sampleCenter()
+                            throws TransformationException, UnknownCRSException {
+        Point center = bbox.getCentroid();
+        ICRS bboxCrs = bbox.getCoordinateSystem();
+        ICRS rasterCrs = raster.getCoordinateSystem();
+        if ( bboxCrs != null && rasterCrs != null && !bboxCrs.equals( rasterCrs ) ) {
+            center = new GeometryTransformer( rasterCrs ).transform( center, bboxCrs );
+        }
+        return raster.samplePixels( new double[] { center.get0(), center.get1() } );
+    }
+
     private PropertyType findValueProperty() {
         List<PropertyType> propertyDeclarations = featureType.getPropertyDeclarations();
         for ( PropertyType propertyType : propertyDeclarations ) {
@@ -51,6 +51,7 @@ import org.deegree.layer.AbstractLayer;
 import org.deegree.layer.LayerQuery;
 import org.deegree.layer.metadata.LayerMetadata;
 import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
+import org.deegree.rendering.r2d.context.MapOptions.Quality;
 import org.deegree.style.StyleRef;
 import org.deegree.style.se.unevaluated.Style;
 import org.slf4j.Logger;
@@ -66,6 +67,9 @@ public class CoverageLayer extends AbstractLayer {
 
     private static final Logger LOG = getLogger( CoverageLayer.class );
 
+    // maximum error (in source pixels) of the approximated raster transformation used for low quality rendering
+    private static final double LOW_QUALITY_MAX_ERROR = 0.5;
+
     private final AbstractRaster raster;
 
     private final MultiResolutionRaster multiraster;
@@ -97,8 +101,14 @@ public class CoverageLayer extends AbstractLayer {
                 raster = multiraster.getRaster( query.getResolution() );
             }
 
-            return new CoverageLayerData( raster, bbox, query.getWidth(), query.getHeight(), interpol, filter, style,
-                                          getMetadata().getFeatureTypes().get( 0 ) );
+            CoverageLayerData data = new CoverageLayerData( raster, bbox, query.getWidth(), query.getHeight(),
+                                                            interpol, filter, style,
+                                                            getMetadata().getFeatureTypes().get( 0 ) );
+            Quality quality = query.getRenderingOptions().getQuality( getMetadata().getName() );
+            if ( quality == Quality.LOW ) {
+                data.setMaxApproximationError( LOW_QUALITY_MAX_ERROR );
+            }
+            return data;
         } catch ( OWSException e ) {
             throw e;
         } catch ( Throwable e ) {
@@ -91,6 +91,8 @@ public class CoverageLayerData implements LayerData {
 
     private CoverageDimensionHandler dimensionHandler;
 
+    private double maxApproximationError = -1;
+
     public CoverageLayerData( AbstractRaster raster, Envelope bbox, int width, int height, InterpolationType interpol,
                               RangeSet filter, Style style, FeatureType featureType ) {
         this( raster, bbox, width, height, interpol, filter, style, featureType, null );
@@ -111,6 +113,15 @@ public class CoverageLayerData implements LayerData {
         this.dimensionHandler = dimensionHandler;
     }
 
+    /**
+     * @param maxApproximationError
+     *            the maximum error (in source pixels) of the approximated transformation of the raster, a value &lt;= 0
+     *            transforms exactly (default)
+     */
+    public void setMaxApproximationError( double maxApproximationError ) {
+        this.maxApproximationError = maxApproximationError;
+    }
+
     @Override
     public void render( RenderContext context ) {
         try {
@@ -139,7 +150,7 @@ public class CoverageLayerData implements LayerData {
 
             AbstractRaster result;
             result = CoverageTransform.transform( raster, bbox, Grid.fromSize( width, height, MAX_VALUE, bbox ),
-                                                  interpol.toString() );
+                                                  interpol.toString(), maxApproximationError );
 
             if ( filter != null ) {
                 RangeSet cbr = createBandRangeSetFromRaster( null, null, result );
@@ -0,0 +1,158 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.layer.persistence.coverage;
+
+import static java.lang.Integer.MAX_VALUE;
+import static org.deegree.commons.tom.primitive.BaseType.DECIMAL;
+import static org.deegree.coverage.raster.interpolation.InterpolationType.NEAREST_NEIGHBOR;
+import static org.deegree.coverage.raster.utils.CoverageTransform.transform;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.coverage.raster.SimpleRaster;
+import org.deegree.coverage.raster.data.RasterData;
+import org.deegree.coverage.raster.data.info.BandType;
+import org.deegree.coverage.raster.data.info.DataType;
+import org.deegree.coverage.raster.data.info.InterleaveType;
+import org.deegree.coverage.raster.data.info.RasterDataInfo;
+import org.deegree.coverage.raster.data.nio.PixelInterleavedRasterData;
+import org.deegree.coverage.raster.geom.Grid;
+import org.deegree.coverage.raster.geom.RasterGeoReference;
+import org.deegree.coverage.raster.geom.RasterGeoReference.OriginLocation;
+import org.deegree.coverage.raster.geom.RasterRect;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.cs.persistence.CRSManager;
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.Envelope;
+import org.deegree.geometry.GeometryFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests the nearest neighbour feature info of {@link CoverageFeatureInfoHandler}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class CoverageFeatureInfoHandlerTest {
+
+    private static final int SIZE = 16;
+
+    private static final double RES = 10;
+
+    private static final double MIN_X = 420000;
+
+    private static final double MIN_Y = 4500000;
+
+    private static final GeometryFactory FAC = new GeometryFactory();
+
+    private static ICRS crs;
+
+    private static SimpleRaster raster;
+
+    private static FeatureType featureType;
+
+    /**
+     * Creates a three band byte raster and the feature type of the feature info.
+     */
+    @BeforeClass
+    public static void init() {
+        crs = CRSManager.getCRSRef( "epsg:26912" );
+        RasterDataInfo info = new RasterDataInfo( new BandType[] { BandType.RED, BandType.GREEN, BandType.BLUE },
+                                                  DataType.BYTE, InterleaveType.PIXEL );
+        PixelInterleavedRasterData data = new PixelInterleavedRasterData( new RasterRect( 0, 0, SIZE, SIZE ), SIZE,
+                                                                          SIZE, info );
+        for ( int y = 0; y < SIZE; ++y ) {
+            for ( int x = 0; x < SIZE; ++x ) {
+                data.setPixel( x, y, new byte[] { (byte) x, (byte) y, (byte) ( x * SIZE + y ) } );
+            }
+        }
+        Envelope env = FAC.createEnvelope( MIN_X, MIN_Y, MIN_X + SIZE * RES, MIN_Y + SIZE * RES, crs );
+        raster = new SimpleRaster( data, env, RasterGeoReference.create( OriginLocation.OUTER, env, SIZE, SIZE ),
+                                   null );
+        QName valueProp = new QName( "http://www.deegree.org/app", "value", "app" );
+        List<PropertyType> props = Collections.<PropertyType> singletonList( new SimplePropertyType( valueProp, 0, -1,
+                                                                                                     DECIMAL, null,
+                                                                                                     null ) );
+        featureType = new GenericFeatureType( new QName( "http://www.deegree.org/app", "data", "app" ), props, false );
+    }
+
+    /**
+     * The sampled values must be the ones of the former nearest neighbour transformation to a 1x1 raster.
+     */
+    @Test
+    public void testNearestNeighbourEqualsTransform()
+                            throws Exception {
+        for ( int row = 0; row < SIZE; row += 3 ) {
+            for ( int col = 0; col < SIZE; col += 3 ) {
+                double x = MIN_X + ( col + 0.33 ) * RES;
+                double y = MIN_Y + ( SIZE - row - 0.33 ) * RES;
+                Envelope bbox = FAC.createEnvelope( x - RES / 2, y - RES / 2, x + RES / 2, y + RES / 2, crs );
+                CoverageFeatureInfoHandler handler = new CoverageFeatureInfoHandler( raster, bbox, featureType,
+                                                                                     NEAREST_NEIGHBOR, null );
+                FeatureCollection fc = handler.handleFeatureInfo();
+                assertNotNull( fc );
+                assertEquals( 1, fc.size() );
+                Feature f = fc.iterator().next();
+                List<Property> props = f.getProperties();
+
+                SimpleRaster old = transform( raster, bbox, Grid.fromSize( 1, 1, MAX_VALUE, bbox ),
+                                              NEAREST_NEIGHBOR.toString() ).getAsSimpleRaster();
+                RasterData expected = old.getRasterData();
+                assertEquals( expected.getBands(), props.size() );
+                for ( int i = 0; i < expected.getBands(); ++i ) {
+                    BigDecimal value = (BigDecimal) ( (PrimitiveValue) props.get( i ).getValue() ).getValue();
+                    assertEquals( "pixel " + col + "," + row + ", band " + i, 0xff & expected.getByteSample( 0, 0, i ),
+                                  value.intValue() );
+                }
+            }
+        }
+    }
+
+}
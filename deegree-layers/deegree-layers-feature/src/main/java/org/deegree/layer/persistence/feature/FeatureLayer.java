@@ -114,6 +114,10 @@ public class FeatureLayer extends AbstractLayer {
                                     + getMetadata().getName() + ".", "StyleNotDefined", "styles" );
         }
         style = style.filter( query.getScale() );
+        if ( !style.isDefault() && style.getRules().isEmpty() ) {
+            LOG.debug( "No rules of style {} apply at scale {}, skipping query.", style.getName(), query.getScale() );
+            return null;
+        }
 
         OperatorFilter filter = buildFilterForMap( this.filter, style, query, dimFilterBuilder, headers );
 
@@ -137,8 +141,10 @@ public class FeatureLayer extends AbstractLayer {
 
         filter = Filters.repair( filter, AppSchemas.collectProperyNames( featureStore.getSchema(), ftName ) );
 
+        Set<ValueReference> properties = Styles.getReferencedProperties( style );
+
         QueryBuilder builder = new QueryBuilder( featureStore, filter, ftName, bbox, query, geomProp, sortBy,
-                                                 getMetadata().getName() );
+                                                 getMetadata().getName(), properties );
         List<Query> queries = builder.buildMapQueries();
 
         if ( queries.isEmpty() ) {
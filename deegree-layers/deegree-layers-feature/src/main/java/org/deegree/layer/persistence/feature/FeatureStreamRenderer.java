@@ -51,7 +51,6 @@ import org.deegree.feature.Feature;
 import org.deegree.feature.stream.FeatureInputStream;
 import org.deegree.filter.XPathEvaluator;
 import org.deegree.geometry.Geometry;
-import org.deegree.rendering.r2d.labelplacement.AutoLabelPlacement;
 import org.deegree.rendering.r2d.Renderer;
 import org.deegree.rendering.r2d.TextRenderer;
 import org.deegree.rendering.r2d.LabelRenderer;
@@ -49,6 +49,7 @@ import static org.deegree.layer.persistence.feature.FilterBuilder.buildFilter;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 
 import javax.xml.namespace.QName;
 
@@ -59,6 +60,8 @@ import org.deegree.feature.types.FeatureType;
 import org.deegree.filter.Filter;
 import org.deegree.filter.OperatorFilter;
 import org.deegree.filter.expression.ValueReference;
+import org.deegree.filter.projection.ProjectionClause;
+import org.deegree.filter.projection.PropertyName;
 import org.deegree.filter.sort.SortProperty;
 import org.deegree.geometry.Envelope;
 import org.deegree.layer.LayerQuery;
@@ -90,8 +93,20 @@ class QueryBuilder {
 
     private String layerName;
 
+    private Set<ValueReference> properties;
+
     QueryBuilder( FeatureStore featureStore, OperatorFilter filter, QName ftName, Envelope bbox, LayerQuery query,
                   ValueReference geomProp, SortProperty[] sortBy, String layerName ) {
+        this( featureStore, filter, ftName, bbox, query, geomProp, sortBy, layerName, null );
+    }
+
+    /**
+     * @param properties
+     *            the properties needed for rendering, used as projection for map queries, may be <code>null</code>
+     *            (all properties)
+     */
+    QueryBuilder( FeatureStore featureStore, OperatorFilter filter, QName ftName, Envelope bbox, LayerQuery query,
+                  ValueReference geomProp, SortProperty[] sortBy, String layerName, Set<ValueReference> properties ) {
         this.featureStore = featureStore;
         this.filter = filter;
         this.ftName = ftName;
@@ -100,12 +115,14 @@ class QueryBuilder {
         this.geomProp = geomProp;
         this.sortBy = sortBy;
         this.layerName = layerName;
+        this.properties = properties;
     }
 
     List<Query> buildMapQueries() {
         List<Query> queries = new ArrayList<Query>();
         Integer maxFeats = query.getRenderingOptions().getMaxFeatures( layerName );
         final int maxFeatures = maxFeats == null ? -1 : maxFeats;
+        final List<ProjectionClause> projections = buildProjections();
         if ( ftName == null && featureStore != null ) {
             final Filter filter2 = filter;
             queries.addAll( map( featureStore.getSchema().getFeatureTypes( null, false, false ),
@@ -114,12 +131,13 @@ class QueryBuilder {
                                      public Query apply( FeatureType u ) {
                                          Filter fil = addBBoxConstraint( bbox, filter2, geomProp, true );
                                          return createQuery( u.getName(), fil, round( query.getScale() ), maxFeatures,
-                                                             query.getResolution(), sortBy );
+                                                             query.getResolution(), sortBy, projections );
                                      }
                                  } ) );
         } else {
             Query fquery = createQuery( ftName, addBBoxConstraint( bbox, filter, geomProp, true ),
-                                        round( query.getScale() ), maxFeatures, query.getResolution(), sortBy );
+                                        round( query.getScale() ), maxFeatures, query.getResolution(), sortBy,
+                                        projections );
             queries.add( fquery );
         }
 
@@ -156,10 +174,29 @@ class QueryBuilder {
         return queries;
     }
 
+    private List<ProjectionClause> buildProjections() {
+        if ( properties == null || properties.isEmpty() ) {
+            return null;
+        }
+        List<ProjectionClause> projections = new ArrayList<ProjectionClause>( properties.size() + 1 );
+        for ( ValueReference prop : properties ) {
+            projections.add( new PropertyName( prop, null, null ) );
+        }
+        if ( geomProp != null && !properties.contains( geomProp ) ) {
+            projections.add( new PropertyName( geomProp, null, null ) );
+        }
+        return projections;
+    }
+
     static Query createQuery( QName ftName, Filter filter, int scale, int maxFeatures, double resolution,
                               SortProperty[] sort ) {
+        return createQuery( ftName, filter, scale, maxFeatures, resolution, sort, null );
+    }
+
+    static Query createQuery( QName ftName, Filter filter, int scale, int maxFeatures, double resolution,
+                              SortProperty[] sort, List<ProjectionClause> projections ) {
         TypeName[] typeNames = new TypeName[] { new TypeName( ftName, null ) };
-        return new Query( typeNames, filter, sort, scale, maxFeatures, resolution );
+        return new Query( typeNames, filter, sort, scale, maxFeatures, resolution, projections );
     }
 
 }
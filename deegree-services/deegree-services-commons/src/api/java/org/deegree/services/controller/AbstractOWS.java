@@ -450,6 +450,8 @@ public abstract class AbstractOWS implements OWS {
                 throw new ServletException( e );
             }
             response.setExceptionSent();
+        } else {
+            response.sendInBandException( exception );
         }
 
         if ( userAgent != null && userAgent.toLowerCase().contains( "mozilla" ) ) {
@@ -48,7 +48,11 @@ import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
+import org.deegree.commons.metrics.MetricsRegistry;
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.utils.ComparablePair;
 import org.deegree.commons.utils.ConfigManager;
 import org.deegree.commons.utils.Pair;
@@ -59,11 +63,14 @@ import org.deegree.cs.persistence.CRSManager;
 import org.deegree.geometry.Envelope;
 import org.deegree.geometry.GeometryFactory;
 import org.deegree.geometry.GeometryTransformer;
+import org.deegree.services.OWS;
+import org.deegree.services.OWSProvider;
 import org.h2.util.IOUtils;
 import org.slf4j.Logger;
 
 /**
- * Keeps track of request and runtime statistics for the {@link OGCFrontController}.
+ * Keeps track of request and runtime statistics for the {@link OGCFrontController}. The counters are lock-free, the
+ * latencies per service and operation are recorded in the {@link MetricsRegistry}.
  * 
  * @author <a href="mailto:schneider@lat-lon.de">Markus Schneider</a>
  * @author last edited by: $Author$
@@ -74,13 +81,15 @@ public class FrontControllerStats {
 
     private static final Logger LOG = getLogger( FrontControllerStats.class );
 
-    private static long numDispatched;
+    private static final LongAdder numDispatched = new LongAdder();
 
-    private static long numFinished;
+    private static final LongAdder numFinished = new LongAdder();
 
-    private static double averageResponseTime;
+    private static final LongAdder totalResponseTime = new LongAdder();
 
-    private static double maxResponseTime;
+    private static final LongAccumulator maxResponseTime = new LongAccumulator( Math::max, 0 );
+
+    private static final Object requestLogLock = new Object();
 
     private static Envelope bbox;
 
@@ -92,60 +101,53 @@ public class FrontControllerStats {
      * Called by the {@link OGCFrontController} to indicate that a new request has just been dispatched to an
      * {@link AbstractOWS}.
      * 
-     * @return current time
+     * @param ows
+     *            the service the request is dispatched to, may be <code>null</code>
+     * @param request
+     *            name of the requested operation, may be <code>null</code>
+     * @return the started request timer
      */
-    synchronized static long requestDispatched() {
-        numDispatched++;
-        return System.currentTimeMillis();
+    static Timer requestDispatched( OWS ows, String request ) {
+        numDispatched.increment();
+        return MetricsRegistry.requestTimer( getServiceName( ows ), request );
     }
 
     /**
      * Called by the {@link OGCFrontController} to indicate that a dispatched request has been finished.
      * 
-     * @param dispatchTime
-     *            time when the request has been dispatched
+     * @param timer
+     *            timer returned by {@link #requestDispatched(OWS, String)}
      */
-    synchronized static void requestFinished( long dispatchTime ) {
-        long duration = System.currentTimeMillis() - dispatchTime;
-        if ( duration > maxResponseTime ) {
-            maxResponseTime = duration;
+    static void requestFinished( Timer timer ) {
+        long duration = timer.stop() / 1000;
+        totalResponseTime.add( duration );
+        maxResponseTime.accumulate( duration );
+        numFinished.increment();
+    }
+
+    private static String getServiceName( OWS ows ) {
+        if ( ows == null || ows.getMetadata() == null || !( ows.getMetadata().getProvider() instanceof OWSProvider ) ) {
+            return null;
         }
-        averageResponseTime = ( averageResponseTime * numFinished + duration ) / ( numFinished + 1 );
-        numFinished++;
+        String[] names = ( (OWSProvider) ows.getMetadata().getProvider() ).getImplementationMetadata().getImplementedServiceName();
+        return names.length == 0 ? null : names[0];
     }
 
     /**
+     * Appends an incoming KVP request to the request log. Only the file access is serialized, so the request threads
+     * are not blocked by each other otherwise.
+     * 
      * @param request
      *            the query string
      * @param timestamp
      */
-    public synchronized static void incomingKVP( String request, long timestamp ) {
+    public static void incomingKVP( String request, long timestamp ) {
         try {
-            OutputStream os = ConfigManager.getOutputResource( "requests.txt", true );
-            PrintWriter out = new PrintWriter( new OutputStreamWriter( os, "UTF-8" ) );
-            out.println( timestamp + " " + request );
-            out.close();
-            if ( request.toUpperCase().contains( "REQUEST=GETMAP" ) ) {
-                try {
-                    Map<String, String> map = KVPUtils.getNormalizedKVPMap( request, "UTF-8" );
-                    if ( map.get( "LAYERS" ).equals( "statistics" ) ) {
-                        return;
-                    }
-                    double[] ds = splitAsDoubles( map.get( "BBOX" ), "," );
-                    Envelope newBox = fac.createEnvelope( ds[0], ds[1], ds[2], ds[3],
-                                                          CRSManager.getCRSRef( map.get( "SRS" ) ) );
-                    if ( bbox != null ) {
-                        bbox.merge( trans.transform( newBox ) );
-                    }
-                } catch ( UnsupportedEncodingException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( IllegalArgumentException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( TransformationException e ) {
-                    LOG.trace( "Stack trace:", e );
-                } catch ( UnknownCRSException e ) {
-                    LOG.trace( "Stack trace:", e );
-                }
+            synchronized ( requestLogLock ) {
+                OutputStream os = ConfigManager.getOutputResource( "requests.txt", true );
+                PrintWriter out = new PrintWriter( new OutputStreamWriter( os, "UTF-8" ) );
+                out.println( timestamp + " " + request );
+                out.close();
             }
         } catch ( FileNotFoundException e ) {
             LOG.debug( "Could not find the file to store requests." );
@@ -162,7 +164,7 @@ public class FrontControllerStats {
      * @return number of dispatched requests
      */
     public static long getDispatchedRequests() {
-        return numDispatched;
+        return numDispatched.sum();
     }
 
     /**
@@ -172,7 +174,7 @@ public class FrontControllerStats {
      * @return number of active requests
      */
     public static long getActiveRequests() {
-        return numDispatched - numFinished;
+        return numDispatched.sum() - numFinished.sum();
     }
 
     /**
@@ -181,7 +183,8 @@ public class FrontControllerStats {
      * @return the average response time
      */
     public static long getAverageResponseTime() {
-        return (long) averageResponseTime;
+        long finished = numFinished.sum();
+        return finished == 0 ? 0 : totalResponseTime.sum() / finished;
     }
 
     /**
@@ -190,7 +193,7 @@ public class FrontControllerStats {
      * @return the maximum response time
      */
     public static long getMaximumResponseTime() {
-        return (long) maxResponseTime;
+        return maxResponseTime.get();
     }
 
     /**
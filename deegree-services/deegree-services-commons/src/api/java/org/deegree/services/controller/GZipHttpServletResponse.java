@@ -53,7 +53,10 @@ import org.slf4j.LoggerFactory;
  * @author last edited by: $Author: markus $
  * 
  * @version $Revision: $, $Date: $
+ * 
+ * @deprecated superseded by {@link org.deegree.services.controller.utils.HttpResponseBuffer#enableCompression(org.deegree.services.controller.utils.ResponseCompression, String)}
  */
+@Deprecated
 public class GZipHttpServletResponse implements HttpServletResponse {
 
     private static Logger LOG = LoggerFactory.getLogger( GZipHttpServletResponse.class );
@@ -47,7 +47,10 @@ import javax.servlet.ServletOutputStream;
  * @author last edited by: $Author: markus $
  * 
  * @version $Revision: $, $Date: $
+ * 
+ * @deprecated superseded by {@link org.deegree.services.controller.utils.HttpResponseBuffer#enableCompression(org.deegree.services.controller.utils.ResponseCompression, String)}
  */
+@Deprecated
 public class GZipServletOutputStream extends ServletOutputStream {
 
     private final GZipHttpServletResponse response;
@@ -99,6 +99,8 @@ import org.deegree.commons.annotations.LoggingNotes;
 import org.deegree.commons.concurrent.Executor;
 import org.deegree.commons.config.DeegreeWorkspace;
 import org.deegree.commons.config.ResourceInitException;
+import org.deegree.commons.metrics.MetricsRegistry;
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.tom.ows.Version;
 import org.deegree.commons.utils.DeegreeAALogoUtils;
@@ -117,6 +119,7 @@ import org.deegree.services.controller.exception.serializer.XMLExceptionSerializ
 import org.deegree.services.controller.security.SecurityConfiguration;
 import org.deegree.services.controller.utils.HttpResponseBuffer;
 import org.deegree.services.controller.utils.LoggingHttpResponseWrapper;
+import org.deegree.services.controller.utils.ResponseCompression;
 import org.deegree.services.controller.watchdog.RequestWatchdog;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType.RequestTimeoutMilliseconds;
@@ -190,6 +193,8 @@ public class OGCFrontController extends HttpServlet {
 
     private transient OwsManager serviceConfiguration;
 
+    private transient ResponseCompression responseCompression;
+
     private transient DeegreeWorkspace workspace;
 
     private transient String ctxPath;
@@ -325,7 +330,7 @@ public class OGCFrontController extends HttpServlet {
 
             logHeaders( request );
             addHeaders( responseBuffer );
-            responseBuffer = handleCompression( responseBuffer );
+            responseBuffer = handleCompression( request, responseBuffer );
 
             String queryString = request.getQueryString();
             try {
@@ -393,9 +398,11 @@ public class OGCFrontController extends HttpServlet {
         } finally {
             getInstance().CONTEXT.remove();
             responseBuffer.flushBuffer();
+            responseBuffer.finishCompression();
             if ( mainConfig.isValidateResponses() != null && mainConfig.isValidateResponses() ) {
                 validateResponse( responseBuffer );
             }
+            checkAborted( responseBuffer );
         }
     }
 
@@ -436,7 +443,7 @@ public class OGCFrontController extends HttpServlet {
         try {
             logHeaders( request );
             addHeaders( responseBuffer );
-            responseBuffer = handleCompression( responseBuffer );
+            responseBuffer = handleCompression( request, responseBuffer );
 
             LOG.debug( "doPost(), contentType: '" + request.getContentType() + "'" );
 
@@ -521,9 +528,22 @@ public class OGCFrontController extends HttpServlet {
         } finally {
             instance.CONTEXT.remove();
             responseBuffer.flushBuffer();
+            responseBuffer.finishCompression();
             if ( mainConfig.isValidateResponses() != null && mainConfig.isValidateResponses() ) {
                 validateResponse( responseBuffer );
             }
+            checkAborted( responseBuffer );
+        }
+    }
+
+    /**
+     * Makes the container drop the connection if a committed response has been aborted, so the client does not take
+     * the truncated response for a complete one.
+     */
+    private static void checkAborted( HttpResponseBuffer responseBuffer )
+                            throws ServletException {
+        if ( responseBuffer.isAborted() ) {
+            throw new ServletException( "Response has been aborted after it was committed." );
         }
     }
 
@@ -614,14 +634,14 @@ public class OGCFrontController extends HttpServlet {
         return ows;
     }
 
-    private static HttpResponseBuffer handleCompression( HttpResponseBuffer response ) {
-        // TODO check if we should enable this in any case (XML, images, ...)
-        // String encoding = request.getHeader( "Accept-Encoding" );
-        // boolean supportsGzip = encoding != null && encoding.toLowerCase().contains( "gzip" );
-        // if ( supportsGzip ) {
-        // LOG.debug( "Using GZIP-compression" );
-        // response = new GZipHttpServletResponse( response );
-        // }
+    private HttpResponseBuffer handleCompression( HttpServletRequest request, HttpResponseBuffer response ) {
+        if ( responseCompression != null ) {
+            String encoding = responseCompression.negotiateEncoding( request.getHeader( "Accept-Encoding" ) );
+            if ( encoding != null ) {
+                LOG.debug( "Client accepts '{}' content coding.", encoding );
+                response.enableCompression( responseCompression, encoding );
+            }
+        }
         return response;
     }
 
@@ -802,12 +822,12 @@ public class OGCFrontController extends HttpServlet {
             }
 
             LOG.debug( "Dispatching request to OWS class: " + ows.getClass().getName() );
-            long dispatchTime = FrontControllerStats.requestDispatched();
+            Timer timer = FrontControllerStats.requestDispatched( ows, request );
             try {
                 watchTimeout( ows, request );
                 ows.doKVP( normalizedKVPParams, requestWrapper, response, multiParts );
             } finally {
-                FrontControllerStats.requestFinished( dispatchTime );
+                FrontControllerStats.requestFinished( timer );
                 unwatchTimeout();
             }
         } catch ( SecurityException e ) {
@@ -889,12 +909,12 @@ public class OGCFrontController extends HttpServlet {
             }
             if ( ows != null ) {
                 LOG.debug( "Dispatching request to OWS: " + ows.getClass().getName() );
-                long dispatchTime = FrontControllerStats.requestDispatched();
+                Timer timer = FrontControllerStats.requestDispatched( ows, xmlStream.getLocalName() );
                 try {
                     watchTimeout( ows, xmlStream.getLocalName() );
                     ows.doXML( xmlStream, requestWrapper, response, multiParts );
                 } finally {
-                    FrontControllerStats.requestFinished( dispatchTime );
+                    FrontControllerStats.requestFinished( timer );
                     unwatchTimeout();
                 }
             }
@@ -1009,12 +1029,12 @@ public class OGCFrontController extends HttpServlet {
             }
 
             LOG.debug( "Dispatching request to OWS class: " + ows.getClass().getName() );
-            long dispatchTime = FrontControllerStats.requestDispatched();
+            Timer timer = FrontControllerStats.requestDispatched( ows, env.getSOAPBodyFirstElementLocalName() );
             try {
                 watchTimeout( ows, env.getSOAPBodyFirstElementLocalName() );
                 ows.doSOAP( env, requestWrapper, response, multiParts, factory );
             } finally {
-                FrontControllerStats.requestFinished( dispatchTime );
+                FrontControllerStats.requestFinished( timer );
             }
         } catch ( SecurityException e ) {
             if ( credentialsProvider != null ) {
@@ -1083,6 +1103,7 @@ public class OGCFrontController extends HttpServlet {
             LOG.info( "- XMLInputFactory    " + XMLInputFactory.newInstance().getClass().getCanonicalName() );
             LOG.info( "" );
 
+            MetricsRegistry.registerMBean();
             initWorkspace();
 
         } catch ( NoClassDefFoundError e ) {
@@ -1135,6 +1156,7 @@ public class OGCFrontController extends HttpServlet {
         serviceConfiguration = workspace.getNewWorkspace().getResourceManager( OwsManager.class );
         OwsGlobalConfigLoader loader = workspace.getNewWorkspace().getInitializable( OwsGlobalConfigLoader.class );
         mainConfig = loader.getMainConfig();
+        responseCompression = loader.getResponseCompression();
         if ( mainConfig != null ) {
             initHardcodedUrls( mainConfig );
         }
@@ -1381,6 +1403,7 @@ public class OGCFrontController extends HttpServlet {
     public void destroy() {
         super.destroy();
         destroyWorkspace();
+        MetricsRegistry.unregisterMBean();
         if ( mainConfig.isPreventClassloaderLeaks() == null || mainConfig.isPreventClassloaderLeaks() ) {
             plugClassLoaderLeaks();
         }
@@ -1550,6 +1573,8 @@ public class OGCFrontController extends HttpServlet {
                     throw new ServletException( e2 );
                 }
                 res.setExceptionSent();
+            } else {
+                res.sendInBandException( e );
             }
         }
 
@@ -78,6 +78,10 @@ public class RequestContext {
 
     private final String xForwardedProto;
 
+    private final String acceptEncoding;
+
+    private final String ifNoneMatch;
+
     /**
      * @param request
      *            request for which the context will be created, must not be <code>null</code>
@@ -100,6 +104,8 @@ public class RequestContext {
         xForwardedPort = request.getHeader( "X-Forwarded-Port" );
         xForwardedHost = request.getHeader( "X-Forwarded-Host" );
         xForwardedProto = request.getHeader( "X-Forwarded-Proto" );
+        acceptEncoding = request.getHeader( "Accept-Encoding" );
+        ifNoneMatch = request.getHeader( "If-None-Match" );
         if ( LOG.isDebugEnabled() ) {
             LOG.debug( "Request URL: " + requestedEndpointUrl );
             LOG.debug( "Webapp base URL (derived from request): " + webappBaseUrl );
@@ -193,6 +199,20 @@ public class RequestContext {
         return xForwardedPort;
     }
 
+    /**
+     * @return the request's 'Accept-Encoding' header, can be <code>null</code>
+     */
+    public String getAcceptEncoding() {
+        return acceptEncoding;
+    }
+
+    /**
+     * @return the request's 'If-None-Match' header, can be <code>null</code>
+     */
+    public String getIfNoneMatch() {
+        return ifNoneMatch;
+    }
+
     @Override
     public String toString() {
         return "{credentials=" + credentials + ",requestURL=" + requestedEndpointUrl + "}";
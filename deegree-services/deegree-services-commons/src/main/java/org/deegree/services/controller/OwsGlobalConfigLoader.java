@@ -33,11 +33,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
+import java.util.List;
 
 import javax.xml.bind.JAXBElement;
 
 import org.deegree.commons.utils.net.DURL;
 import org.deegree.commons.xml.jaxb.JAXBUtils;
+import org.deegree.services.controller.utils.ResponseCompression;
 import org.deegree.services.controller.utils.StandardRequestLogger;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType.RequestLogging;
@@ -76,6 +78,8 @@ public class OwsGlobalConfigLoader implements Initializable {
 
     private boolean logOnlySuccessful;
 
+    private ResponseCompression responseCompression;
+
     @Override
     public void init( Workspace workspace ) {
         File wsDir = ( (DefaultWorkspace) workspace ).getLocation();
@@ -119,6 +123,7 @@ public class OwsGlobalConfigLoader implements Initializable {
         }
 
         initRequestLogger();
+        initResponseCompression();
     }
 
     /**
@@ -160,6 +165,24 @@ public class OwsGlobalConfigLoader implements Initializable {
         }
     }
 
+    private void initResponseCompression() {
+        DeegreeServiceControllerType.ResponseCompression conf = mainConfig.getResponseCompression();
+        if ( conf == null ) {
+            responseCompression = new ResponseCompression();
+        } else if ( !conf.isEnabled() ) {
+            LOG.info( "Response compression is disabled." );
+            responseCompression = null;
+        } else {
+            int minimumSize = conf.getMinimumSize() != null ? conf.getMinimumSize()
+                                                           : ResponseCompression.DEFAULT_MINIMUM_SIZE;
+            int level = conf.getLevel() != null ? conf.getLevel() : ResponseCompression.DEFAULT_LEVEL;
+            List<String> uncompressed = conf.getUncompressedMimeType().isEmpty() ? null
+                                                                                 : conf.getUncompressedMimeType();
+            responseCompression = new ResponseCompression( minimumSize, level, conf.getCompressedMimeType(),
+                                                           uncompressed );
+        }
+    }
+
     private static RequestLogger instantiateRequestLogger( RequestLogging.RequestLogger conf ) {
         if ( conf != null ) {
             String cls = conf.getClazz();
@@ -219,6 +242,13 @@ public class OwsGlobalConfigLoader implements Initializable {
         this.requestLogger = requestLogger;
     }
 
+    /**
+     * @return the response compression policy, may be <code>null</code> (compression disabled)
+     */
+    public ResponseCompression getResponseCompression() {
+        return responseCompression;
+    }
+
     /**
      * @return the logOnlySuccessful
      */
@@ -0,0 +1,323 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static javax.servlet.http.HttpServletResponse.SC_NOT_MODIFIED;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.services.controller.OGCFrontController;
+import org.deegree.services.controller.RequestContext;
+import org.slf4j.Logger;
+
+/**
+ * Keeps rendered capabilities documents, so they don't have to be rebuilt for every GetCapabilities request.
+ * <p>
+ * Every variant of a document (version, format, sections, service URLs, ...) is identified by a key chosen by the
+ * service. A variant is rendered once, stored together with a gzip compressed copy and an entity tag, and afterwards
+ * served directly: clients that accept gzip get the compressed bytes, clients that send a matching
+ * <code>If-None-Match</code> header get a <code>304 Not Modified</code>. The compressed and the identity
+ * representation have different entity tags. Services must call {@link #invalidate()} (or
+ * {@link #invalidateIfChanged(Object)}) whenever the content of their capabilities may have changed. Otherwise,
+ * cached documents live as long as the service resource itself.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class CapabilitiesCache {
+
+    private static final Logger LOG = getLogger( CapabilitiesCache.class );
+
+    private static final int DEFAULT_MAX_VARIANTS = 64;
+
+    /**
+     * Writes a complete capabilities document.
+     */
+    public interface CapabilitiesRenderer {
+
+        /**
+         * Writes the capabilities document to the given stream.
+         * 
+         * @param os
+         *            stream to write to, never <code>null</code>
+         * @throws IOException
+         * @throws XMLStreamException
+         * @throws OWSException
+         */
+        void render( OutputStream os )
+                                throws IOException, XMLStreamException, OWSException;
+    }
+
+    private final Map<String, CachedCapabilities> variants;
+
+    private Object state;
+
+    /**
+     * Creates a new {@link CapabilitiesCache} that holds up to 64 variants.
+     */
+    public CapabilitiesCache() {
+        this( DEFAULT_MAX_VARIANTS );
+    }
+
+    /**
+     * Creates a new {@link CapabilitiesCache}.
+     * 
+     * @param maxVariants
+     *            maximum number of variants to keep, least recently used ones are dropped first
+     */
+    public CapabilitiesCache( final int maxVariants ) {
+        variants = new LinkedHashMap<String, CachedCapabilities>( 16, 0.75f, true ) {
+
+            private static final long serialVersionUID = 3818473473856180497L;
+
+            @Override
+            protected boolean removeEldestEntry( Map.Entry<String, CachedCapabilities> eldest ) {
+                return size() > maxVariants;
+            }
+        };
+    }
+
+    /**
+     * Writes the cached variant with the given key to the response body, rendering it first if necessary.
+     * <p>
+     * The content type (and character encoding) must be set on the response by the caller. The body of the response
+     * must not have been started yet.
+     * </p>
+     * 
+     * @param key
+     *            identifies the variant, must not be <code>null</code>
+     * @param response
+     *            response to write to, must not be <code>null</code>
+     * @param renderer
+     *            used if the variant is not cached yet, must not be <code>null</code>
+     * @throws IOException
+     * @throws OWSException
+     */
+    public void serve( String key, HttpResponseBuffer response, CapabilitiesRenderer renderer )
+                            throws IOException, OWSException {
+        CachedCapabilities capabilities = get( key, renderer );
+        RequestContext context = OGCFrontController.getContext();
+        // each representation (identity or gzip) has its own entity tag
+        boolean gzip = context != null && acceptsGzip( context.getAcceptEncoding() );
+        String eTag = gzip ? capabilities.getGzipETag() : capabilities.getETag();
+        response.setHeader( "ETag", eTag );
+        response.setDateHeader( "Last-Modified", capabilities.getLastModified() );
+        response.setHeader( "Vary", "Accept-Encoding" );
+        if ( context != null && matches( context.getIfNoneMatch(), eTag ) ) {
+            response.setStatus( SC_NOT_MODIFIED );
+            return;
+        }
+        byte[] body = capabilities.getBytes();
+        if ( gzip ) {
+            response.setHeader( "Content-Encoding", "gzip" );
+            body = capabilities.getGzipBytes();
+        }
+        response.setContentLength( body.length );
+        response.getOutputStream().write( body );
+    }
+
+    /**
+     * Drops all cached variants.
+     */
+    public void invalidate() {
+        synchronized ( variants ) {
+            if ( !variants.isEmpty() ) {
+                LOG.debug( "Invalidating {} cached capabilities document(s).", variants.size() );
+                variants.clear();
+            }
+        }
+    }
+
+    /**
+     * Drops all cached variants if the given state differs from the one of the previous call. Services can use this to
+     * tie the cached documents to the state of the resources they are built from.
+     * 
+     * @param state
+     *            current state of the resources the capabilities depend on (compared using <code>equals</code>), must
+     *            not be <code>null</code>
+     */
+    public void invalidateIfChanged( Object state ) {
+        synchronized ( variants ) {
+            if ( !state.equals( this.state ) ) {
+                if ( this.state != null ) {
+                    LOG.debug( "Resources of the capabilities have changed." );
+                }
+                invalidate();
+                this.state = state;
+            }
+        }
+    }
+
+    CachedCapabilities get( String key, CapabilitiesRenderer renderer )
+                            throws IOException, OWSException {
+        synchronized ( variants ) {
+            CachedCapabilities capabilities = variants.get( key );
+            if ( capabilities != null ) {
+                return capabilities;
+            }
+        }
+        CachedCapabilities capabilities = render( renderer );
+        synchronized ( variants ) {
+            CachedCapabilities concurrent = variants.get( key );
+            if ( concurrent != null ) {
+                return concurrent;
+            }
+            variants.put( key, capabilities );
+        }
+        return capabilities;
+    }
+
+    private static CachedCapabilities render( CapabilitiesRenderer renderer )
+                            throws IOException, OWSException {
+        long begin = System.currentTimeMillis();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        try {
+            renderer.render( bos );
+        } catch ( XMLStreamException e ) {
+            throw new IOException( e );
+        }
+        byte[] bytes = bos.toByteArray();
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream( bytes.length / 4 + 64 );
+        GZIPOutputStream gzos = new GZIPOutputStream( gzipped );
+        gzos.write( bytes );
+        gzos.close();
+        CachedCapabilities capabilities = new CachedCapabilities( bytes, gzipped.toByteArray(), createETag( bytes ) );
+        LOG.debug( "Rendered capabilities document ({} bytes, {} gzipped) in {} ms.",
+                   new Object[] { bytes.length, capabilities.getGzipBytes().length,
+                                 System.currentTimeMillis() - begin } );
+        return capabilities;
+    }
+
+    private static String createETag( byte[] bytes ) {
+        try {
+            byte[] digest = MessageDigest.getInstance( "MD5" ).digest( bytes );
+            return "\"" + new BigInteger( 1, digest ).toString( 16 ) + "\"";
+        } catch ( NoSuchAlgorithmException e ) {
+            // MD5 is required to be supported by every Java platform
+            throw new IllegalStateException( e );
+        }
+    }
+
+    static boolean matches( String ifNoneMatch, String eTag ) {
+        if ( ifNoneMatch == null ) {
+            return false;
+        }
+        for ( String candidate : ifNoneMatch.split( "," ) ) {
+            candidate = candidate.trim();
+            if ( candidate.startsWith( "W/" ) ) {
+                candidate = candidate.substring( 2 );
+            }
+            if ( candidate.equals( "*" ) || candidate.equals( eTag ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static boolean acceptsGzip( String acceptEncoding ) {
+        if ( acceptEncoding == null ) {
+            return false;
+        }
+        for ( String coding : acceptEncoding.toLowerCase().split( "," ) ) {
+            String[] parts = coding.split( ";" );
+            if ( !"gzip".equals( parts[0].trim() ) ) {
+                continue;
+            }
+            for ( int i = 1; i < parts.length; i++ ) {
+                String param = parts[i].trim();
+                if ( param.startsWith( "q=" ) ) {
+                    try {
+                        return Double.parseDouble( param.substring( 2 ).trim() ) > 0;
+                    } catch ( NumberFormatException e ) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    static class CachedCapabilities {
+
+        private final byte[] bytes;
+
+        private final byte[] gzipBytes;
+
+        private final String eTag;
+
+        private final long lastModified = System.currentTimeMillis();
+
+        private CachedCapabilities( byte[] bytes, byte[] gzipBytes, String eTag ) {
+            this.bytes = bytes;
+            this.gzipBytes = gzipBytes;
+            this.eTag = eTag;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        byte[] getGzipBytes() {
+            return gzipBytes;
+        }
+
+        String getETag() {
+            return eTag;
+        }
+
+        String getGzipETag() {
+            return eTag.substring( 0, eTag.length() - 1 ) + "-gzip\"";
+        }
+
+        long getLastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -57,12 +57,14 @@ import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 
+import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.utils.io.StreamBufferStore;
 import org.deegree.commons.xml.CommonNamespaces;
 import org.deegree.commons.xml.schema.SchemaValidationEvent;
 import org.deegree.commons.xml.schema.SchemaValidator;
 import org.deegree.commons.xml.stax.IndentingXMLStreamWriter;
 import org.deegree.services.controller.Credentials;
+import org.deegree.services.controller.utils.ResponseCompression.CompressingOutputStream;
 import org.slf4j.Logger;
 
 /**
@@ -83,6 +85,17 @@ import org.slf4j.Logger;
  * called. This is unlike the original servlet API that throws an {@link IllegalStateException} when getWriter is called
  * after getOutputStream, or vice versa.
  * </p>
+ * <p>
+ * If {@link #enableCompression(ResponseCompression, String) compression} is enabled, the decision whether to compress
+ * is made when the first data is actually sent, i.e. after the content type is known and (for buffered output) the
+ * size of the response. Compressed responses are completed by {@link #finishCompression()}.
+ * </p>
+ * <p>
+ * For very large responses, operations may opt into {@link #enableStreaming() streaming}: the response is buffered in
+ * memory up to a threshold only. Small responses behave exactly as before, larger ones are committed as soon as the
+ * threshold is exceeded and sent without further buffering. Exceptions that occur after that point can't replace the
+ * response any more, they are reported {@link #sendInBandException(OWSException) in-band} instead.
+ * </p>
  * 
  * @author <a href="mailto:bezema@lat-lon.de">Rutger Bezema</a>
  * @author <a href="mailto:tonnhofer@lat-lon.de">Oliver Tonnhofer</a>
@@ -95,6 +108,9 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
 
     private static final Logger LOG = getLogger( HttpResponseBuffer.class );
 
+    /** Default number of bytes that a streamed response is buffered before it is committed. */
+    public static final int DEFAULT_STREAMING_THRESHOLD = 64 * 1024;
+
     private boolean addEncoding = true;
 
     // if buffer == null, buffering is disabled
@@ -118,6 +134,27 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
 
     private final HttpServletResponse wrappee;
 
+    private ResponseCompression compression;
+
+    private String contentEncoding;
+
+    private boolean compressionDecided;
+
+    private CompressingOutputStream compressor;
+
+    // used instead of the original stream if buffering is disabled and compression is enabled
+    private ServletOutputStream compressingOutputStream;
+
+    private PrintWriter compressingWriter;
+
+    // > 0, if streaming has been enabled
+    private int streamingThreshold;
+
+    // true, if a streamed response has exceeded the threshold and has been committed
+    private boolean streamed;
+
+    private boolean aborted;
+
     /**
      * @param response
      */
@@ -151,11 +188,127 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         this.buffer = null;
     }
 
+    /**
+     * Enables streaming of the response with the {@link #DEFAULT_STREAMING_THRESHOLD}.
+     * 
+     * @see #enableStreaming(int)
+     */
+    public void enableStreaming() {
+        enableStreaming( DEFAULT_STREAMING_THRESHOLD );
+    }
+
+    /**
+     * Enables streaming of the response.
+     * <p>
+     * The first <code>threshold</code> bytes are buffered in memory as usual, so small responses can still be discarded
+     * (e.g. to send an exception report instead). As soon as the response grows beyond the threshold, status and
+     * headers are committed and the body is sent to the client while it is written, without spilling it to a
+     * temporary file first.
+     * </p>
+     * <p>
+     * This method may only be called, if neither {@link #getWriter()}, {@link #getOutputStream()} nor
+     * {@link #getXMLWriter()} has been called before.
+     * </p>
+     * 
+     * @param threshold
+     *            number of bytes to buffer before the response is committed, must be positive
+     */
+    public void enableStreaming( int threshold ) {
+        if ( returnType != ReturnType.NOT_DEFINED_YET ) {
+            throw new IllegalStateException(
+                                             "getOutputStream() / getWriter() has already been called for this response, cannot enable streaming" );
+        }
+        if ( threshold <= 0 ) {
+            throw new IllegalArgumentException( "Streaming threshold must be positive." );
+        }
+        if ( buffer == null ) {
+            LOG.debug( "Buffering is disabled, ignoring request to enable streaming." );
+            return;
+        }
+        LOG.debug( "Enabling streaming, threshold is {} bytes.", threshold );
+        streamingThreshold = threshold;
+        buffer = new StreamBufferStore( threshold );
+        outputStream = new StreamingServletOutputStream();
+    }
+
+    /**
+     * Returns whether this is a streamed response that has already been committed, i.e. that can't be discarded any
+     * more.
+     * 
+     * @return true, if the response has been committed early because of streaming, false otherwise
+     */
+    public boolean isStreamed() {
+        return streamed;
+    }
+
+    /**
+     * Reports an exception that occurred after the response has been committed.
+     * <p>
+     * The response can't be replaced with an exception report at this point. Instead, if the response is XML, an
+     * explanatory comment is appended to the partial document and the response is marked as
+     * {@link #isAborted() aborted}: the front controller does not complete it regularly, so the client notices the
+     * truncated transfer (missing final chunk or compression trailer, closed connection).
+     * </p>
+     * 
+     * @param e
+     *            exception to report, must not be <code>null</code>
+     */
+    public void sendInBandException( OWSException e ) {
+        LOG.warn( "Exception occurred after the response has been committed, aborting response: "
+                  + e.getLocalizedMessage() );
+        aborted = true;
+        setExceptionSent();
+        if ( xmlWriter != null ) {
+            try {
+                String msg = e.getExceptionCode() + ": " + e.getMessage();
+                xmlWriter.writeComment( " Response aborted. " + msg.replace( "--", "- -" ) + " " );
+                xmlWriter.flush();
+            } catch ( XMLStreamException xe ) {
+                LOG.debug( "Could not write in-band exception: " + xe.getLocalizedMessage() );
+            }
+        }
+    }
+
+    /**
+     * @return true, if the response has been aborted after it was committed, see
+     *         {@link #sendInBandException(OWSException)}
+     */
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * Enables the compression of the response body.
+     * <p>
+     * The body is only compressed if the policy accepts its content type and size, and if no
+     * <code>Content-Encoding</code> or <code>Content-Length</code> header has been set by the service.
+     * </p>
+     * 
+     * @param compression
+     *            compression policy, must not be <code>null</code>
+     * @param encoding
+     *            content coding accepted by the client, see {@link ResponseCompression#negotiateEncoding(String)}
+     */
+    public void enableCompression( ResponseCompression compression, String encoding ) {
+        this.compression = compression;
+        this.contentEncoding = encoding;
+    }
+
     @Override
     public PrintWriter getWriter()
                             throws IOException {
         if ( buffer == null ) {
-            return super.getWriter();
+            if ( compression == null ) {
+                return super.getWriter();
+            }
+            if ( compressingWriter == null ) {
+                String encoding = getCharacterEncoding();
+                if ( encoding == null || "".equals( encoding ) ) {
+                    encoding = Charset.defaultCharset().name();
+                }
+                compressingWriter = new PrintWriter( new OutputStreamWriter( getOutputStream(), encoding ) );
+            }
+            return compressingWriter;
         }
 
         if ( returnType == ReturnType.NOT_DEFINED_YET ) {
@@ -177,7 +330,13 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
     public ServletOutputStream getOutputStream()
                             throws IOException {
         if ( buffer == null ) {
-            return super.getOutputStream();
+            if ( compression == null ) {
+                return super.getOutputStream();
+            }
+            if ( compressingOutputStream == null ) {
+                compressingOutputStream = new CompressingServletOutputStream();
+            }
+            return compressingOutputStream;
         }
         if ( returnType == ReturnType.NOT_DEFINED_YET ) {
             returnType = ReturnType.OUTPUT_STREAM;
@@ -250,7 +409,7 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
      */
     public void validate() {
 
-        if ( buffer != null ) {
+        if ( buffer != null && !streamed ) {
 
             boolean isXML = xmlWriter != null || ( getContentType() != null && getContentType().contains( "xml" ) );
 
@@ -307,12 +466,90 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
                 throw new IOException( e );
             }
         }
+        if ( compressingWriter != null ) {
+            compressingWriter.flush();
+        }
         if ( buffer != null ) {
             buffer.flush();
-            buffer.writeTo( super.getOutputStream() );
-            buffer.reset();
+            if ( buffer.size() > 0 ) {
+                buffer.writeTo( getTargetStream( buffer.size() ) );
+                buffer.reset();
+            }
+        }
+        if ( compressor != null ) {
+            compressor.flush();
+        }
+        super.flushBuffer();
+    }
+
+    /**
+     * Writes the end of the compressed body, if the response has been compressed. Must be called after the final
+     * {@link #flushBuffer()}.
+     * 
+     * @throws IOException
+     */
+    public void finishCompression()
+                            throws IOException {
+        if ( compressor != null ) {
+            if ( aborted ) {
+                // omit the trailer, so the client can't mistake the truncated response for a complete one
+                compressor.discard();
+                return;
+            }
+            compressor.finish();
+            super.flushBuffer();
         }
+    }
+
+    /**
+     * Returns the stream that the body must be sent to, deciding on compression on the first call.
+     * 
+     * @param size
+     *            number of bytes that are about to be sent, -1 if unknown
+     */
+    private OutputStream getTargetStream( long size )
+                            throws IOException {
+        if ( !compressionDecided && compression != null ) {
+            compressionDecided = true;
+            if ( !isCommitted() && !containsHeader( "Content-Encoding" ) && !containsHeader( "Content-Length" )
+                 && compression.isCompressible( getContentType(), size ) ) {
+                LOG.debug( "Compressing response ({}).", contentEncoding );
+                setHeader( "Content-Encoding", contentEncoding );
+                if ( !containsHeader( "Vary" ) ) {
+                    setHeader( "Vary", "Accept-Encoding" );
+                }
+                compressor = compression.createStream( super.getOutputStream(), contentEncoding );
+            }
+        }
+        if ( compressor != null ) {
+            return compressor;
+        }
+        return super.getOutputStream();
+    }
+
+    /**
+     * Commits a streamed response that has outgrown the threshold and sends the buffered data.
+     */
+    private OutputStream startStreaming( long size )
+                            throws IOException {
+        LOG.debug( "Response exceeds {} bytes, committing it and streaming the remaining output.", streamingThreshold );
+        OutputStream target = getTargetStream( size );
+        buffer.flush();
+        buffer.writeTo( target );
+        buffer.reset();
+        target.flush();
         super.flushBuffer();
+        streamed = true;
+        return target;
+    }
+
+    private void discardCompression() {
+        if ( compressor != null ) {
+            compressor.discard();
+            compressor = null;
+        }
+        compressionDecided = false;
+        compressingWriter = null;
     }
 
     @Override
@@ -325,6 +562,8 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         } else {
             super.reset(); // throws IllegalStateException
         }
+        // only reached if nothing has been committed yet
+        discardCompression();
     }
 
     @Override
@@ -335,6 +574,16 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
         return super.getBufferSize();
     }
 
+    /**
+     * Returns whether the body of this (buffered) response has been started, i.e. if {@link #getWriter()},
+     * {@link #getOutputStream()} or {@link #getXMLWriter()} has been called since the last {@link #reset()}.
+     * 
+     * @return true, if the body has been started, false otherwise
+     */
+    public boolean isBodyStarted() {
+        return returnType != ReturnType.NOT_DEFINED_YET;
+    }
+
     /**
      * @return the buffer
      */
@@ -383,4 +632,73 @@ public class HttpResponseBuffer extends HttpServletResponseWrapper {
             buffer.write( b );
         }
     }
+
+    /**
+     * {@link ServletOutputStream} that buffers until the streaming threshold is exceeded and writes through afterwards.
+     */
+    private class StreamingServletOutputStream extends ServletOutputStream {
+
+        private OutputStream target;
+
+        @Override
+        public void write( byte[] b, int off, int len )
+                                throws IOException {
+            getStream( len ).write( b, off, len );
+        }
+
+        @Override
+        public void write( int b )
+                                throws IOException {
+            getStream( 1 ).write( b );
+        }
+
+        @Override
+        public void flush()
+                                throws IOException {
+            if ( target != null ) {
+                target.flush();
+            }
+        }
+
+        private OutputStream getStream( int len )
+                                throws IOException {
+            if ( target == null ) {
+                if ( buffer.size() + len <= streamingThreshold ) {
+                    return buffer;
+                }
+                target = startStreaming( buffer.size() + len );
+            }
+            return target;
+        }
+    }
+
+    /**
+     * Unbuffered {@link ServletOutputStream} that compresses the output (if applicable) while it is written.
+     */
+    private class CompressingServletOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write( byte[] b, int off, int len )
+                                throws IOException {
+            if ( len > 0 ) {
+                getTargetStream( -1 ).write( b, off, len );
+            }
+        }
+
+        @Override
+        public void write( int b )
+                                throws IOException {
+            getTargetStream( -1 ).write( b );
+        }
+
+        @Override
+        public void flush()
+                                throws IOException {
+            if ( compressor != null ) {
+                compressor.flush();
+            } else {
+                HttpResponseBuffer.super.getOutputStream().flush();
+            }
+        }
+    }
 }
@@ -0,0 +1,344 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.unmodifiableList;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Policy for the on-the-fly compression of service responses.
+ * <p>
+ * Decides which content coding (<code>gzip</code> or <code>deflate</code>) to use for a given
+ * <code>Accept-Encoding</code> request header and whether a response of a certain mime type and size is worth
+ * compressing at all. Formats that are compressed already (PNG, JPEG, ...) are excluded by default. The actual
+ * compression is done by {@link HttpResponseBuffer} while the response is written.
+ * </p>
+ * 
+ * @see HttpResponseBuffer#enableCompression(ResponseCompression, String)
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ResponseCompression {
+
+    /** Content coding token for gzip. */
+    public static final String GZIP = "gzip";
+
+    /** Content coding token for deflate (zlib format). */
+    public static final String DEFLATE = "deflate";
+
+    /** Responses smaller than this (in bytes) are not compressed by default. */
+    public static final int DEFAULT_MINIMUM_SIZE = 1024;
+
+    /** Default deflate compression level, trades speed against size like most HTTP servers do. */
+    public static final int DEFAULT_LEVEL = 6;
+
+    /** Mime types that are never compressed by default, as they are compressed already. */
+    public static final List<String> DEFAULT_UNCOMPRESSED_MIME_TYPES = unmodifiableList( asList( "image/png",
+                                                                                                 "image/jpeg",
+                                                                                                 "image/jpg",
+                                                                                                 "image/gif",
+                                                                                                 "image/tiff",
+                                                                                                 "image/webp",
+                                                                                                 "application/zip",
+                                                                                                 "application/gzip",
+                                                                                                 "application/x-gzip" ) );
+
+    private final int minimumSize;
+
+    private final int level;
+
+    private final List<String> compressedMimeTypes;
+
+    private final List<String> uncompressedMimeTypes;
+
+    /**
+     * Creates a new {@link ResponseCompression} with default settings.
+     */
+    public ResponseCompression() {
+        this( DEFAULT_MINIMUM_SIZE, DEFAULT_LEVEL, null, null );
+    }
+
+    /**
+     * Creates a new {@link ResponseCompression}.
+     * 
+     * @param minimumSize
+     *            responses smaller than this number of bytes are sent uncompressed
+     * @param level
+     *            deflate compression level (1-9)
+     * @param compressedMimeTypes
+     *            if not <code>null</code> and not empty, only responses with a matching mime type are compressed,
+     *            entries may use wildcards for the subtype (e.g. <code>text/*</code>)
+     * @param uncompressedMimeTypes
+     *            responses with a matching mime type are never compressed, may be <code>null</code> (use
+     *            {@link #DEFAULT_UNCOMPRESSED_MIME_TYPES})
+     */
+    public ResponseCompression( int minimumSize, int level, List<String> compressedMimeTypes,
+                                List<String> uncompressedMimeTypes ) {
+        if ( level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION ) {
+            throw new IllegalArgumentException( "Invalid compression level: " + level );
+        }
+        this.minimumSize = Math.max( 0, minimumSize );
+        this.level = level;
+        this.compressedMimeTypes = normalize( compressedMimeTypes );
+        if ( uncompressedMimeTypes == null ) {
+            uncompressedMimeTypes = DEFAULT_UNCOMPRESSED_MIME_TYPES;
+        }
+        this.uncompressedMimeTypes = normalize( uncompressedMimeTypes );
+    }
+
+    /**
+     * Determines the content coding to use for a request.
+     * 
+     * @param acceptEncoding
+     *            value of the <code>Accept-Encoding</code> request header, may be <code>null</code>
+     * @return {@link #GZIP}, {@link #DEFLATE} or <code>null</code>, if the client accepts neither
+     */
+    public String negotiateEncoding( String acceptEncoding ) {
+        if ( acceptEncoding == null ) {
+            return null;
+        }
+        float gzip = -1;
+        float deflate = -1;
+        float any = -1;
+        for ( String part : acceptEncoding.split( "," ) ) {
+            String[] tokens = part.split( ";" );
+            String coding = tokens[0].trim().toLowerCase( Locale.ENGLISH );
+            float q = 1;
+            for ( int i = 1; i < tokens.length; i++ ) {
+                String param = tokens[i].trim();
+                if ( param.startsWith( "q=" ) || param.startsWith( "Q=" ) ) {
+                    try {
+                        q = Float.parseFloat( param.substring( 2 ).trim() );
+                    } catch ( NumberFormatException e ) {
+                        q = 0;
+                    }
+                }
+            }
+            if ( GZIP.equals( coding ) || "x-gzip".equals( coding ) ) {
+                gzip = Math.max( gzip, q );
+            } else if ( DEFLATE.equals( coding ) ) {
+                deflate = Math.max( deflate, q );
+            } else if ( "*".equals( coding ) ) {
+                any = q;
+            }
+        }
+        if ( gzip < 0 ) {
+            gzip = any;
+        }
+        if ( deflate < 0 ) {
+            deflate = any;
+        }
+        if ( gzip > 0 && gzip >= deflate ) {
+            return GZIP;
+        }
+        if ( deflate > 0 ) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    /**
+     * Determines whether a response is worth compressing.
+     * 
+     * @param contentType
+     *            content type of the response (parameters are ignored), may be <code>null</code>
+     * @param size
+     *            size of the (uncompressed) response in bytes, or <code>-1</code> if not known yet
+     * @return true, if the response should be compressed, false otherwise
+     */
+    public boolean isCompressible( String contentType, long size ) {
+        if ( contentType == null || ( size >= 0 && size < minimumSize ) ) {
+            return false;
+        }
+        String mimeType = contentType;
+        int semicolon = mimeType.indexOf( ';' );
+        if ( semicolon != -1 ) {
+            mimeType = mimeType.substring( 0, semicolon );
+        }
+        mimeType = mimeType.trim().toLowerCase( Locale.ENGLISH );
+        if ( matches( uncompressedMimeTypes, mimeType ) ) {
+            return false;
+        }
+        return compressedMimeTypes.isEmpty() || matches( compressedMimeTypes, mimeType );
+    }
+
+    /**
+     * Creates a stream that compresses everything written to it. The stream supports sync flushing, i.e.
+     * {@link OutputStream#flush()} pushes all data written so far to the client.
+     * 
+     * @param os
+     *            stream to write the compressed data to, must not be <code>null</code>
+     * @param encoding
+     *            {@link #GZIP} or {@link #DEFLATE}
+     * @return compressing stream, never <code>null</code>
+     * @throws IOException
+     */
+    public CompressingOutputStream createStream( OutputStream os, String encoding )
+                            throws IOException {
+        return new CompressingOutputStream( os, level, GZIP.equals( encoding ) );
+    }
+
+    /**
+     * @return responses smaller than this number of bytes are sent uncompressed
+     */
+    public int getMinimumSize() {
+        return minimumSize;
+    }
+
+    /**
+     * @return the deflate compression level
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    private static boolean matches( List<String> patterns, String mimeType ) {
+        for ( String pattern : patterns ) {
+            if ( pattern.endsWith( "/*" ) ) {
+                if ( mimeType.startsWith( pattern.substring( 0, pattern.length() - 1 ) ) ) {
+                    return true;
+                }
+            } else if ( pattern.equals( "*" ) || pattern.equals( mimeType ) ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<String> normalize( List<String> mimeTypes ) {
+        List<String> normalized = new ArrayList<String>();
+        if ( mimeTypes != null ) {
+            for ( String mimeType : mimeTypes ) {
+                if ( mimeType != null && !mimeType.trim().isEmpty() ) {
+                    normalized.add( mimeType.trim().toLowerCase( Locale.ENGLISH ) );
+                }
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * {@link DeflaterOutputStream} that writes either the gzip or the zlib format with a configurable level and owns
+     * its {@link Deflater}, so native memory is released as soon as the stream is finished.
+     */
+    public static class CompressingOutputStream extends DeflaterOutputStream {
+
+        private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+        private final CRC32 crc;
+
+        private boolean finished;
+
+        CompressingOutputStream( OutputStream os, int level, boolean gzip ) throws IOException {
+            super( os, new Deflater( level, gzip ), 8192, true );
+            if ( gzip ) {
+                crc = new CRC32();
+                os.write( GZIP_HEADER );
+            } else {
+                crc = null;
+            }
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len )
+                                throws IOException {
+            super.write( b, off, len );
+            if ( crc != null ) {
+                crc.update( b, off, len );
+            }
+        }
+
+        @Override
+        public void flush()
+                                throws IOException {
+            if ( finished ) {
+                out.flush();
+            } else {
+                super.flush();
+            }
+        }
+
+        /**
+         * Writes the remaining compressed data (and the gzip trailer) without closing the underlying stream.
+         */
+        @Override
+        public void finish()
+                                throws IOException {
+            if ( finished ) {
+                return;
+            }
+            finished = true;
+            try {
+                super.finish();
+                if ( crc != null ) {
+                    writeIntLE( (int) crc.getValue() );
+                    writeIntLE( (int) def.getBytesRead() );
+                }
+            } finally {
+                def.end();
+            }
+        }
+
+        /**
+         * Discards this stream without writing any further data, e.g. after the response has been reset.
+         */
+        public void discard() {
+            if ( !finished ) {
+                finished = true;
+                def.end();
+            }
+        }
+
+        private void writeIntLE( int i )
+                                throws IOException {
+            out.write( i & 0xff );
+            out.write( ( i >> 8 ) & 0xff );
+            out.write( ( i >> 16 ) & 0xff );
+            out.write( ( i >> 24 ) & 0xff );
+        }
+    }
+
+}
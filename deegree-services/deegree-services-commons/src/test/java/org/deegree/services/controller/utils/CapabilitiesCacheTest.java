@@ -0,0 +1,197 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.services.controller.utils.CapabilitiesCache.CachedCapabilities;
+import org.deegree.services.controller.utils.CapabilitiesCache.CapabilitiesRenderer;
+import org.junit.Test;
+
+/**
+ * Tests for {@link CapabilitiesCache}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class CapabilitiesCacheTest {
+
+    @Test
+    public void testVariantIsRenderedOnce()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        CountingRenderer renderer = new CountingRenderer( "<WMS_Capabilities/>" );
+        CachedCapabilities first = cache.get( "1.3.0|text/xml", renderer );
+        CachedCapabilities second = cache.get( "1.3.0|text/xml", renderer );
+        assertSame( first, second );
+        assertEquals( 1, renderer.count );
+        assertEquals( "<WMS_Capabilities/>", new String( first.getBytes(), "UTF-8" ) );
+    }
+
+    @Test
+    public void testGzipCopyMatchesDocument()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        CachedCapabilities capabilities = cache.get( "2.0.0", new CountingRenderer( "<wfs:WFS_Capabilities/>" ) );
+        assertArrayEquals( capabilities.getBytes(), gunzip( capabilities.getGzipBytes() ) );
+    }
+
+    @Test
+    public void testInvalidateRendersAgain()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        CountingRenderer renderer = new CountingRenderer( "<WMS_Capabilities/>" );
+        CachedCapabilities first = cache.get( "1.3.0", renderer );
+        cache.invalidate();
+        CachedCapabilities second = cache.get( "1.3.0", renderer );
+        assertNotSame( first, second );
+        assertEquals( 2, renderer.count );
+        assertEquals( first.getETag(), second.getETag() );
+    }
+
+    @Test
+    public void testDifferentContentHasDifferentETag()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        String eTag1 = cache.get( "1.1.1", new CountingRenderer( "<WMT_MS_Capabilities/>" ) ).getETag();
+        String eTag2 = cache.get( "1.3.0", new CountingRenderer( "<WMS_Capabilities/>" ) ).getETag();
+        assertFalse( eTag1.equals( eTag2 ) );
+    }
+
+    @Test
+    public void testInvalidateIfChanged()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        cache.invalidateIfChanged( asList( 1, 2 ) );
+        CountingRenderer renderer = new CountingRenderer( "<WMS_Capabilities/>" );
+        cache.get( "1.3.0", renderer );
+        cache.invalidateIfChanged( asList( 1, 2 ) );
+        cache.get( "1.3.0", renderer );
+        assertEquals( 1, renderer.count );
+        cache.invalidateIfChanged( asList( 1, 3 ) );
+        cache.get( "1.3.0", renderer );
+        assertEquals( 2, renderer.count );
+    }
+
+    @Test
+    public void testGzipHasDifferentETag()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache();
+        CachedCapabilities capabilities = cache.get( "1.3.0", new CountingRenderer( "<WMS_Capabilities/>" ) );
+        assertFalse( capabilities.getETag().equals( capabilities.getGzipETag() ) );
+        assertTrue( capabilities.getGzipETag().startsWith( "\"" ) && capabilities.getGzipETag().endsWith( "\"" ) );
+        assertFalse( CapabilitiesCache.matches( capabilities.getETag(), capabilities.getGzipETag() ) );
+    }
+
+    @Test
+    public void testLeastRecentlyUsedVariantIsDropped()
+                            throws Exception {
+        CapabilitiesCache cache = new CapabilitiesCache( 2 );
+        CountingRenderer renderer = new CountingRenderer( "<WMS_Capabilities/>" );
+        cache.get( "a", renderer );
+        cache.get( "b", renderer );
+        cache.get( "a", renderer );
+        cache.get( "c", renderer );
+        assertEquals( 3, renderer.count );
+        cache.get( "a", renderer );
+        assertEquals( 3, renderer.count );
+        cache.get( "b", renderer );
+        assertEquals( 4, renderer.count );
+    }
+
+    @Test
+    public void testAcceptsGzip() {
+        assertTrue( CapabilitiesCache.acceptsGzip( "gzip, deflate" ) );
+        assertTrue( CapabilitiesCache.acceptsGzip( "deflate, GZIP;q=0.5" ) );
+        assertFalse( CapabilitiesCache.acceptsGzip( "gzip;q=0" ) );
+        assertFalse( CapabilitiesCache.acceptsGzip( "deflate" ) );
+        assertFalse( CapabilitiesCache.acceptsGzip( null ) );
+    }
+
+    @Test
+    public void testMatchesETag() {
+        assertTrue( CapabilitiesCache.matches( "\"abc\"", "\"abc\"" ) );
+        assertTrue( CapabilitiesCache.matches( "\"xyz\", W/\"abc\"", "\"abc\"" ) );
+        assertTrue( CapabilitiesCache.matches( "*", "\"abc\"" ) );
+        assertFalse( CapabilitiesCache.matches( "\"xyz\"", "\"abc\"" ) );
+        assertFalse( CapabilitiesCache.matches( null, "\"abc\"" ) );
+    }
+
+    private static byte[] gunzip( byte[] bytes )
+                            throws IOException {
+        InputStream is = new GZIPInputStream( new ByteArrayInputStream( bytes ) );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        int read;
+        while ( ( read = is.read( buffer ) ) != -1 ) {
+            bos.write( buffer, 0, read );
+        }
+        return bos.toByteArray();
+    }
+
+    private static class CountingRenderer implements CapabilitiesRenderer {
+
+        private final String document;
+
+        private int count;
+
+        private CountingRenderer( String document ) {
+            this.document = document;
+        }
+
+        @Override
+        public void render( OutputStream os )
+                                throws IOException, OWSException {
+            count++;
+            os.write( document.getBytes( "UTF-8" ) );
+        }
+    }
+
+}
@@ -0,0 +1,178 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.controller.utils;
+
+import static java.util.Arrays.asList;
+import static org.deegree.services.controller.utils.ResponseCompression.DEFLATE;
+import static org.deegree.services.controller.utils.ResponseCompression.GZIP;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.deegree.services.controller.utils.ResponseCompression.CompressingOutputStream;
+import org.junit.Test;
+
+/**
+ * Tests for {@link ResponseCompression}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class ResponseCompressionTest {
+
+    private final ResponseCompression compression = new ResponseCompression();
+
+    @Test
+    public void testNegotiateEncoding() {
+        assertNull( compression.negotiateEncoding( null ) );
+        assertNull( compression.negotiateEncoding( "identity" ) );
+        assertEquals( GZIP, compression.negotiateEncoding( "gzip, deflate" ) );
+        assertEquals( GZIP, compression.negotiateEncoding( "deflate, gzip" ) );
+        assertEquals( GZIP, compression.negotiateEncoding( "x-gzip" ) );
+        assertEquals( DEFLATE, compression.negotiateEncoding( "deflate" ) );
+        assertEquals( DEFLATE, compression.negotiateEncoding( "gzip;q=0.5, deflate" ) );
+    }
+
+    @Test
+    public void testNegotiateEncodingQualityZeroAndWildcard() {
+        assertNull( compression.negotiateEncoding( "gzip;q=0" ) );
+        assertEquals( DEFLATE, compression.negotiateEncoding( "gzip;q=0, *" ) );
+        assertEquals( GZIP, compression.negotiateEncoding( "*" ) );
+        assertNull( compression.negotiateEncoding( "*;q=0" ) );
+    }
+
+    @Test
+    public void testDefaultMimeTypeRules() {
+        assertTrue( compression.isCompressible( "text/xml; subtype=gml/3.2.1", 4096 ) );
+        assertTrue( compression.isCompressible( "application/json", -1 ) );
+        assertFalse( compression.isCompressible( "image/png", 4096 ) );
+        assertFalse( compression.isCompressible( "IMAGE/JPEG", 4096 ) );
+        assertFalse( compression.isCompressible( null, 4096 ) );
+    }
+
+    @Test
+    public void testMinimumSize() {
+        assertFalse( compression.isCompressible( "text/xml", ResponseCompression.DEFAULT_MINIMUM_SIZE - 1 ) );
+        assertTrue( compression.isCompressible( "text/xml", ResponseCompression.DEFAULT_MINIMUM_SIZE ) );
+    }
+
+    @Test
+    public void testConfiguredMimeTypeRules() {
+        ResponseCompression custom = new ResponseCompression( 0, 1, asList( "text/*", "application/xml" ),
+                                                              asList( "text/csv" ) );
+        assertTrue( custom.isCompressible( "text/html", 1 ) );
+        assertTrue( custom.isCompressible( "application/xml", 1 ) );
+        assertFalse( custom.isCompressible( "text/csv", 1 ) );
+        assertFalse( custom.isCompressible( "application/json", 1 ) );
+        assertFalse( custom.isCompressible( "image/png", 1 ) );
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new ResponseCompression( 0, 10, null, null );
+    }
+
+    @Test
+    public void testGzipRoundTripWithIntermediateFlush()
+                            throws IOException {
+        byte[] data = createData();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CompressingOutputStream os = compression.createStream( bos, GZIP );
+        os.write( data, 0, 1000 );
+        os.flush();
+        // everything written so far must be decodable after a sync flush
+        int flushedSize = bos.size();
+        assertTrue( flushedSize > 10 );
+        os.write( data, 1000, data.length - 1000 );
+        os.finish();
+        assertTrue( bos.size() < data.length );
+        assertArrayEquals( data, read( new GZIPInputStream( new ByteArrayInputStream( bos.toByteArray() ) ) ) );
+    }
+
+    @Test
+    public void testDeflateRoundTrip()
+                            throws IOException {
+        byte[] data = createData();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CompressingOutputStream os = compression.createStream( bos, DEFLATE );
+        os.write( data );
+        os.finish();
+        os.finish();
+        assertArrayEquals( data, read( new InflaterInputStream( new ByteArrayInputStream( bos.toByteArray() ) ) ) );
+    }
+
+    @Test
+    public void testDiscardWritesNothing()
+                            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        CompressingOutputStream os = compression.createStream( bos, DEFLATE );
+        os.write( createData() );
+        int size = bos.size();
+        os.discard();
+        os.finish();
+        assertEquals( size, bos.size() );
+    }
+
+    private static byte[] createData()
+                            throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0; i < 2000; i++ ) {
+            sb.append( "<gml:pos>" ).append( i ).append( ".5 " ).append( i * 2 ).append( ".25</gml:pos>" );
+        }
+        return sb.toString().getBytes( "UTF-8" );
+    }
+
+    private static byte[] read( InputStream is )
+                            throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int read;
+        while ( ( read = is.read( buffer ) ) != -1 ) {
+            bos.write( buffer, 0, read );
+        }
+        return bos.toByteArray();
+    }
+
+}
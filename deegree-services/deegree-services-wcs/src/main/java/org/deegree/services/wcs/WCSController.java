@@ -294,6 +294,8 @@ public class WCSController extends AbstractOWS {
                 throw new OWSException( "An error occured while creating the coverage result: " + e.getMessage(),
                                         NO_APPLICABLE_CODE );
             }
+            // coverages may be huge, don't hold them back until they are complete
+            response.enableStreaming();
             result.write( response.getOutputStream() );
 
         } else {
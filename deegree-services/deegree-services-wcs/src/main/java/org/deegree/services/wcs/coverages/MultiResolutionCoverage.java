@@ -86,6 +86,10 @@ public class MultiResolutionCoverage extends WCSCoverage {
                             throws WCServiceException {
         AbstractRaster rasterLevel = ( (MultiResolutionRaster) coverage ).getRaster( grid.getResolution() );
 
+        if ( requestedRangeset == null && StreamingRasterResult.isStreamable( format ) ) {
+            // the range set filter needs the complete result, all other results can be written strip by strip
+            return new StreamingRasterResult( rasterLevel, env, grid, interpolation, format );
+        }
         AbstractRaster result;
         try {
             result = CoverageTransform.transform( rasterLevel, env, grid, interpolation );
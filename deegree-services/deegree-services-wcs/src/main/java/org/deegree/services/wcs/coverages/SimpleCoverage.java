@@ -82,6 +82,10 @@ public class SimpleCoverage extends WCSCoverage {
     public CoverageResult getCoverageResult( Envelope env, Grid grid, String format, String interpolation,
                                              RangeSet requestedRangeset )
                             throws WCServiceException {
+        if ( requestedRangeset == null && StreamingRasterResult.isStreamable( format ) ) {
+            // the range set filter needs the complete result, all other results can be written strip by strip
+            return new StreamingRasterResult( (AbstractRaster) coverage, env, grid, interpolation, format );
+        }
         AbstractRaster result;
         try {
             result = transform( (AbstractRaster) coverage, env, grid, interpolation );
@@ -0,0 +1,117 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wcs.coverages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.deegree.coverage.raster.AbstractRaster;
+import org.deegree.coverage.raster.geom.Grid;
+import org.deegree.coverage.raster.io.RasterIOOptions;
+import org.deegree.coverage.raster.io.RasterStripWriter;
+import org.deegree.coverage.raster.utils.CoverageTransform;
+import org.deegree.coverage.raster.utils.RasterFactory;
+import org.deegree.cs.exceptions.TransformationException;
+import org.deegree.geometry.Envelope;
+import org.deegree.services.wcs.model.CoverageResult;
+
+/**
+ * {@link CoverageResult} which transforms and encodes the requested grid strip by strip while writing it, so the memory
+ * consumption does not depend on the size of the requested coverage.
+ * 
+ * @see CoverageTransform#transform(AbstractRaster, Envelope, Grid, String, RasterStripWriter, OutputStream,
+ *      RasterIOOptions, int)
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class StreamingRasterResult implements CoverageResult {
+
+    private final AbstractRaster raster;
+
+    private final Envelope env;
+
+    private final Grid grid;
+
+    private final String interpolation;
+
+    private final String format;
+
+    /**
+     * @param raster
+     *            the source raster
+     * @param env
+     *            the requested envelope
+     * @param grid
+     *            the requested output grid
+     * @param interpolation
+     *            the interpolation method
+     * @param format
+     *            the output format, must be supported by {@link #isStreamable(String)}
+     */
+    public StreamingRasterResult( AbstractRaster raster, Envelope env, Grid grid, String interpolation, String format ) {
+        this.raster = raster;
+        this.env = env;
+        this.grid = grid;
+        this.interpolation = interpolation;
+        this.format = format;
+    }
+
+    /**
+     * @param format
+     *            the requested output format
+     * @return true if results of the given format can be written strip by strip
+     */
+    public static boolean isStreamable( String format ) {
+        return RasterFactory.getRasterStripWriter( format ) != null;
+    }
+
+    @Override
+    public void write( OutputStream out )
+                            throws IOException {
+        RasterStripWriter writer = RasterFactory.getRasterStripWriter( format );
+        if ( writer == null ) {
+            throw new IOException( "The format " + format + " can not be written strip by strip." );
+        }
+        try {
+            CoverageTransform.transform( raster, env, grid, interpolation, writer, out, new RasterIOOptions(),
+                                         CoverageTransform.DEFAULT_STRIP_SIZE );
+        } catch ( TransformationException e ) {
+            throw new IOException( "error while transforming raster result: " + e.getMessage(), e );
+        }
+    }
+
+}
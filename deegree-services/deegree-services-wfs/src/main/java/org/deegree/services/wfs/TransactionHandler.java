@@ -271,6 +271,8 @@ class TransactionHandler {
                 LOG.debug( "Committing feature store transaction:" + ta );
                 ta.commit();
             }
+            // feature type envelopes may have changed
+            master.getCapabilitiesCache().invalidate();
         } catch ( MissingParameterException e ) {
             // needed for CITE compliance (wfs:wfs-1.1.0-Transaction-tc12.1)
             LOG.debug( "Error occured during transaction, performing rollback." );
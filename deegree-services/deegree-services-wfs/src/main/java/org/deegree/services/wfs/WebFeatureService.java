@@ -57,6 +57,7 @@ import org.deegree.commons.utils.kvp.KVPUtils;
 import org.deegree.commons.utils.kvp.MissingParameterException;
 import org.deegree.commons.xml.XMLAdapter;
 import org.deegree.commons.xml.XMLParsingException;
+import org.deegree.commons.xml.stax.IndentingXMLStreamWriter;
 import org.deegree.commons.xml.stax.SchemaLocationXMLStreamWriter;
 import org.deegree.commons.xml.stax.XMLStreamUtils;
 import org.deegree.cs.CRSUtils;
@@ -113,6 +114,8 @@ import org.deegree.services.controller.AbstractOWS;
 import org.deegree.services.controller.ImplementationMetadata;
 import org.deegree.services.controller.OGCFrontController;
 import org.deegree.services.controller.exception.serializer.XMLExceptionSerializer;
+import org.deegree.services.controller.utils.CapabilitiesCache;
+import org.deegree.services.controller.utils.CapabilitiesCache.CapabilitiesRenderer;
 import org.deegree.services.controller.utils.HttpResponseBuffer;
 import org.deegree.services.encoding.LimitedSupportedEncodings;
 import org.deegree.services.encoding.SupportedEncodings;
@@ -121,6 +124,7 @@ import org.deegree.services.i18n.Messages;
 import org.deegree.services.jaxb.controller.DeegreeServiceControllerType;
 import org.deegree.services.jaxb.metadata.DeegreeServicesMetadataType;
 import org.deegree.services.jaxb.wfs.AbstractFormatType;
+import org.deegree.services.jaxb.wfs.BinaryFormat;
 import org.deegree.services.jaxb.wfs.CustomFormat;
 import org.deegree.services.jaxb.wfs.DeegreeWFS;
 import org.deegree.services.jaxb.wfs.DeegreeWFS.EnableTransactions;
@@ -140,6 +144,7 @@ import org.deegree.services.ows.OWS100ExceptionReportSerializer;
 import org.deegree.services.ows.OWS110ExceptionReportSerializer;
 import org.deegree.services.ows.PreOWSExceptionReportSerializer;
 import org.deegree.services.wfs.format.Format;
+import org.deegree.services.wfs.query.FeatureQueryExecutor;
 import org.deegree.services.wfs.query.StoredQueryHandler;
 import org.deegree.workspace.ResourceIdentifier;
 import org.deegree.workspace.ResourceInitException;
@@ -155,11 +160,13 @@ import javax.servlet.http.HttpServletRequest;
 import javax.xml.bind.JAXBElement;
 import javax.xml.namespace.QName;
 import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.dom.DOMSource;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
 import java.net.URL;
 import java.util.ArrayList;
@@ -230,6 +237,10 @@ public class WebFeatureService extends AbstractOWS {
 
     private static final int DEFAULT_MAX_FEATURES = 15000;
 
+    private static final int DEFAULT_QUERY_THREADS = 4;
+
+    private static final int QUERY_PREFETCH_SIZE = 256;
+
     private WfsFeatureStoreManager service;
 
     private LockFeatureHandler lockFeatureHandler;
@@ -258,12 +269,16 @@ public class WebFeatureService extends AbstractOWS {
 
     private boolean checkAreaOfUse;
 
+    private FeatureQueryExecutor queryExecutor;
+
     private boolean enableResponsePaging;
 
     private boolean allowFeatureReferencesToDatastore = false;
 
     private OWSMetadataProvider mdProvider;
 
+    private final CapabilitiesCache capabilitiesCache = new CapabilitiesCache();
+
     private ReferencePatternMatcher referencePatternMatcher;
 
     public WebFeatureService( ResourceMetadata<OWS> metadata, Workspace workspace, Object jaxbConfig ) {
@@ -296,6 +311,9 @@ public class WebFeatureService extends AbstractOWS {
                                                                    : jaxbConfig.getQueryMaxFeatures().intValue();
         resolveTimeOutInSeconds = jaxbConfig.getResolveTimeOutInSeconds();
         checkAreaOfUse = jaxbConfig.isQueryCheckAreaOfUse() == null ? false : jaxbConfig.isQueryCheckAreaOfUse();
+        int queryThreads = jaxbConfig.getQueryThreads() == null ? DEFAULT_QUERY_THREADS
+                                                                : jaxbConfig.getQueryThreads().intValue();
+        queryExecutor = new FeatureQueryExecutor( queryThreads, QUERY_PREFETCH_SIZE );
         enableResponsePaging = jaxbConfig.isEnableResponsePaging() == null ? false
                                                                           : jaxbConfig.isEnableResponsePaging();
 
@@ -569,6 +587,8 @@ public class WebFeatureService extends AbstractOWS {
                 Format format = null;
                 if ( formatDef instanceof GMLFormat ) {
                     format = new org.deegree.services.wfs.format.gml.GmlFormat( this, (GMLFormat) formatDef );
+                } else if ( formatDef instanceof BinaryFormat ) {
+                    format = new org.deegree.services.wfs.format.binary.BinaryFormat( this, (BinaryFormat) formatDef );
                 } else if ( formatDef instanceof CustomFormat ) {
                     CustomFormat cf = (CustomFormat) formatDef;
                     String className = cf.getJavaClass();
@@ -695,6 +715,19 @@ public class WebFeatureService extends AbstractOWS {
     @Override
     public void destroy() {
         LOG.debug( "destroy" );
+        capabilitiesCache.invalidate();
+        if ( queryExecutor != null ) {
+            queryExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Returns the cache for rendered capabilities documents.
+     * 
+     * @return the cache, never <code>null</code>
+     */
+    CapabilitiesCache getCapabilitiesCache() {
+        return capabilitiesCache;
     }
 
     /**
@@ -753,7 +786,7 @@ public class WebFeatureService extends AbstractOWS {
             Map<String, String> nsMap = service.getPrefixToNs();
 
             if ( disableBuffering ) {
-                response.disableBuffering();
+                response.enableStreaming();
             }
 
             switch ( requestType ) {
@@ -895,7 +928,7 @@ public class WebFeatureService extends AbstractOWS {
             }
 
             if ( disableBuffering ) {
-                response.disableBuffering();
+                response.enableStreaming();
             }
 
             switch ( requestType ) {
@@ -1237,12 +1270,40 @@ public class WebFeatureService extends AbstractOWS {
         }
         final Collection<FeatureType> sortedFts = getFeatureTypesToExport();
 
-        XMLStreamWriter xmlWriter = getXMLResponseWriter( response, "text/xml", null );
-        GetCapabilitiesHandler adapter = new GetCapabilitiesHandler( this, service, negotiatedVersion, xmlWriter,
-                                                                     sortedFts, sectionsUC, enableTransactions,
-                                                                     queryCRS, supportedEncodings, mdProvider );
-        adapter.export();
-        xmlWriter.flush();
+        if ( response.isBodyStarted() ) {
+            // SOAP, the document is embedded into an already started response
+            XMLStreamWriter xmlWriter = getXMLResponseWriter( response, "text/xml", null );
+            GetCapabilitiesHandler adapter = new GetCapabilitiesHandler( this, service, negotiatedVersion, xmlWriter,
+                                                                         sortedFts, sectionsUC, enableTransactions,
+                                                                         queryCRS, supportedEncodings, mdProvider );
+            adapter.export();
+            xmlWriter.flush();
+            return;
+        }
+
+        String key = negotiatedVersion + "|" + ( sectionsUC == null ? "ALL" : new TreeSet<String>( sectionsUC ) )
+                     + "|" + OGCFrontController.getHttpGetURL() + "|" + OGCFrontController.getHttpPostURL();
+        final Version version = negotiatedVersion;
+        final Set<String> exportedSections = sectionsUC;
+        response.setCharacterEncoding( "UTF-8" );
+        response.setContentType( "text/xml" );
+        capabilitiesCache.serve( key, response, new CapabilitiesRenderer() {
+            @Override
+            public void render( OutputStream os )
+                                    throws XMLStreamException {
+                XMLStreamWriter xmlWriter = new IndentingXMLStreamWriter(
+                                                                          XMLOutputFactory.newInstance().createXMLStreamWriter( os,
+                                                                                                                                "UTF-8" ) );
+                xmlWriter.writeStartDocument( "UTF-8", "1.0" );
+                GetCapabilitiesHandler adapter = new GetCapabilitiesHandler( WebFeatureService.this, service, version,
+                                                                             xmlWriter, sortedFts, exportedSections,
+                                                                             enableTransactions, queryCRS,
+                                                                             supportedEncodings, mdProvider );
+                adapter.export();
+                xmlWriter.writeEndDocument();
+                xmlWriter.close();
+            }
+        } );
     }
 
     private Collection<FeatureType> getFeatureTypesToExport() {
@@ -1424,6 +1485,14 @@ public class WebFeatureService extends AbstractOWS {
         return checkAreaOfUse;
     }
 
+    /**
+     * @return the executor for retrieving the features of several feature stores, never <code>null</code> after
+     *         initialization
+     */
+    public FeatureQueryExecutor getQueryExecutor() {
+        return queryExecutor;
+    }
+
     public ICRS getDefaultQueryCrs() {
         return defaultQueryCRS;
     }
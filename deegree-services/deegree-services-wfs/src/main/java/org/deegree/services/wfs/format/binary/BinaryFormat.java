@@ -0,0 +1,252 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.binary;
+
+import static org.apache.commons.lang.StringUtils.trim;
+import static org.deegree.commons.ows.exception.OWSException.OPTION_NOT_SUPPORTED;
+import static org.deegree.protocol.wfs.getfeature.ResultType.RESULTS;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.ows.exception.OWSException;
+import org.deegree.cs.coordinatesystems.ICRS;
+import org.deegree.feature.Feature;
+import org.deegree.feature.binary.BinaryFeatureWriter;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.filter.projection.ProjectionClause;
+import org.deegree.filter.projection.PropertyName;
+import org.deegree.protocol.wfs.describefeaturetype.DescribeFeatureType;
+import org.deegree.protocol.wfs.getfeature.GetFeature;
+import org.deegree.protocol.wfs.getfeature.ResultType;
+import org.deegree.protocol.wfs.getfeaturewithlock.GetFeatureWithLock;
+import org.deegree.protocol.wfs.getgmlobject.GetGmlObject;
+import org.deegree.protocol.wfs.getpropertyvalue.GetPropertyValue;
+import org.deegree.services.controller.utils.HttpResponseBuffer;
+import org.deegree.services.wfs.WebFeatureService;
+import org.deegree.services.wfs.format.Format;
+import org.deegree.services.wfs.query.FeatureQueryExecutor.Results;
+import org.deegree.services.wfs.query.QueryAnalyzer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link Format} that returns GetFeature results in the compact binary encoding of {@link BinaryFeatureWriter}.
+ * <p>
+ * Geometries are written as WKB in the requested (or default) query CRS. If the spatial index is enabled, the
+ * features are collected first and written as spatially indexed layers, otherwise they are streamed. Only feature
+ * types with simple and geometry properties can be encoded. Hits, GetFeatureWithLock, DescribeFeatureType,
+ * GetGmlObject and GetPropertyValue requests are not supported.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BinaryFormat implements Format {
+
+    private static final Logger LOG = LoggerFactory.getLogger( BinaryFormat.class );
+
+    private static final int INDEX_NODE_SIZE = 16;
+
+    private final WebFeatureService master;
+
+    private final String mimeType;
+
+    private final boolean spatialIndex;
+
+    /**
+     * Creates a new {@link BinaryFormat} instance.
+     * 
+     * @param master
+     *            service that uses this format, must not be <code>null</code>
+     * @param formatDef
+     *            JAXB configuration options, must not be <code>null</code>
+     */
+    public BinaryFormat( WebFeatureService master, org.deegree.services.jaxb.wfs.BinaryFormat formatDef ) {
+        this.master = master;
+        this.mimeType = trim( formatDef.getMimeType().get( 0 ) );
+        this.spatialIndex = formatDef.isSpatialIndex() != null && formatDef.isSpatialIndex();
+    }
+
+    @Override
+    public void destroy() {
+        // nothing to do
+    }
+
+    @Override
+    public void doDescribeFeatureType( DescribeFeatureType request, HttpResponseBuffer response, boolean isSoap )
+                            throws OWSException {
+        throw new OWSException( "DescribeFeatureType is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    @Override
+    public void doGetFeature( GetFeature request, HttpResponseBuffer response )
+                            throws Exception {
+        ResultType type = request.getPresentationParams().getResultType();
+        if ( type != RESULTS && type != null ) {
+            throw new OWSException( "ResultType '" + type + "' is not supported for output format '" + mimeType
+                                    + "'.", OPTION_NOT_SUPPORTED, "resultType" );
+        }
+        if ( request instanceof GetFeatureWithLock ) {
+            throw new OWSException( "GetFeatureWithLock is not supported for output format '" + mimeType + "'.",
+                                    OPTION_NOT_SUPPORTED, "outputFormat" );
+        }
+
+        QueryAnalyzer analyzer = new QueryAnalyzer( request.getQueries(), master, master.getStoreManager(),
+                                                    master.getCheckAreaOfUse() );
+        for ( FeatureType ft : analyzer.getFeatureTypes() ) {
+            if ( !BinaryFeatureWriter.isSupported( ft ) ) {
+                throw new OWSException( "Feature type '" + ft.getName() + "' cannot be encoded in output format '"
+                                        + mimeType + "': only simple and geometry properties are supported.",
+                                        OPTION_NOT_SUPPORTED, "typeName" );
+            }
+        }
+
+        int maxFeatures = master.getQueryMaxFeatures();
+        BigInteger count = request.getPresentationParams().getCount();
+        if ( count != null && ( maxFeatures < 1 || count.intValue() < maxFeatures ) ) {
+            maxFeatures = count.intValue();
+        }
+        int startIndex = 0;
+        if ( request.getPresentationParams().getStartIndex() != null ) {
+            startIndex = request.getPresentationParams().getStartIndex().intValue();
+        }
+
+        ICRS crs = analyzer.getRequestedCRS() != null ? analyzer.getRequestedCRS() : master.getDefaultQueryCrs();
+        response.setContentType( mimeType );
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( response.getOutputStream(), crs );
+        writer.setPropertyNames( getPropertyNames( analyzer.getProjections() ) );
+
+        int featuresAdded = writeFeatures( master.getQueryExecutor().execute( analyzer.getQueries() ), writer,
+                                           maxFeatures, startIndex, spatialIndex );
+        writer.close();
+        LOG.debug( "Wrote " + featuresAdded + " features in binary output format." );
+    }
+
+    /**
+     * Writes the features of the given results, skipping duplicates.
+     * 
+     * @param results
+     *            the query results, will be closed, must not be <code>null</code>
+     * @param writer
+     *            writer to write to, will not be closed, must not be <code>null</code>
+     * @param maxFeatures
+     *            maximum number of features to write, negative for no limit
+     * @param startIndex
+     *            number of features to skip
+     * @param spatialIndex
+     *            whether to write spatially indexed layers (the features are collected first)
+     * @return the number of features written
+     */
+    static int writeFeatures( Results results, BinaryFeatureWriter writer, int maxFeatures, int startIndex,
+                              boolean spatialIndex )
+                            throws Exception {
+        List<Feature> collected = spatialIndex ? new ArrayList<Feature>() : null;
+        Set<String> fids = new HashSet<String>();
+        int featuresAdded = 0;
+        int featuresSkipped = 0;
+        try {
+            FeatureInputStream rs;
+            while ( featuresAdded != maxFeatures && ( rs = results.next() ) != null ) {
+                try {
+                    for ( Feature feature : rs ) {
+                        if ( featuresAdded == maxFeatures ) {
+                            break;
+                        }
+                        if ( featuresSkipped < startIndex ) {
+                            featuresSkipped++;
+                        } else if ( fids.add( feature.getId() ) ) {
+                            if ( collected != null ) {
+                                collected.add( feature );
+                            } else {
+                                writer.write( feature );
+                            }
+                            featuresAdded++;
+                        }
+                    }
+                } finally {
+                    rs.close();
+                }
+            }
+        } finally {
+            results.close();
+        }
+        if ( collected != null ) {
+            writer.writeIndexed( collected, INDEX_NODE_SIZE );
+        }
+        return featuresAdded;
+    }
+
+    @Override
+    public void doGetGmlObject( GetGmlObject request, HttpResponseBuffer response )
+                            throws OWSException {
+        throw new OWSException( "GetGmlObject is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    @Override
+    public void doGetPropertyValue( GetPropertyValue request, HttpResponseBuffer response )
+                            throws OWSException {
+        throw new OWSException( "GetPropertyValue is not supported for output format '" + mimeType + "'.",
+                                OPTION_NOT_SUPPORTED, "outputFormat" );
+    }
+
+    private static Set<QName> getPropertyNames( List<ProjectionClause> projections ) {
+        if ( projections == null || projections.isEmpty() ) {
+            return null;
+        }
+        Set<QName> propNames = new HashSet<QName>();
+        for ( ProjectionClause projection : projections ) {
+            if ( projection instanceof PropertyName ) {
+                QName qName = ( (PropertyName) projection ).getPropertyName().getAsQName();
+                if ( qName != null ) {
+                    propNames.add( qName );
+                } else {
+                    LOG.debug( "Only simple qualified element names are allowed for PropertyName projections. Ignoring '"
+                               + ( (PropertyName) projection ).getPropertyName() + "'" );
+                }
+            }
+        }
+        return propNames.isEmpty() ? null : propNames;
+    }
+}
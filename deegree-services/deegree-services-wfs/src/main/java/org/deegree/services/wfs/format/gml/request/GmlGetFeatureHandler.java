@@ -110,6 +110,7 @@ import org.deegree.services.wfs.WebFeatureService;
 import org.deegree.services.wfs.WfsFeatureStoreManager;
 import org.deegree.services.wfs.format.gml.BufferableXMLStreamWriter;
 import org.deegree.services.wfs.format.gml.GmlFormat;
+import org.deegree.services.wfs.query.FeatureQueryExecutor.Results;
 import org.deegree.services.wfs.query.QueryAnalyzer;
 import org.deegree.services.wfs.util.ResponsePagingUtils;
 import org.slf4j.Logger;
@@ -515,30 +516,33 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         int featuresAdded = 0;
         int featuresSkipped = 0;
         GmlXlinkOptions resolveState = gmlStream.getReferenceResolveStrategy().getResolveOptions();
-        for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
-            FeatureStore fs = fsToQueries.getKey();
-            Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
-            FeatureInputStream rs = fs.query( queries );
-            try {
-                for ( Feature member : rs ) {
-                    if ( lock != null && !lock.isLocked( member.getId() ) ) {
-                        continue;
-                    }
-                    if ( featuresAdded == maxFeatures ) {
-                        // limit the number of features written to maxfeatures
-                        break;
-                    }
-                    if ( featuresSkipped < startIndex ) {
-                        featuresSkipped++;
-                    } else {
-                        writeMemberFeature( member, gmlStream, xmlStream, resolveState, featureMemberEl );
-                        featuresAdded++;
+        Results results = format.getMaster().getQueryExecutor().execute( analyzer.getQueries() );
+        try {
+            FeatureInputStream rs;
+            while ( featuresAdded != maxFeatures && ( rs = results.next() ) != null ) {
+                try {
+                    for ( Feature member : rs ) {
+                        if ( lock != null && !lock.isLocked( member.getId() ) ) {
+                            continue;
+                        }
+                        if ( featuresAdded == maxFeatures ) {
+                            // limit the number of features written to maxfeatures
+                            break;
+                        }
+                        if ( featuresSkipped < startIndex ) {
+                            featuresSkipped++;
+                        } else {
+                            writeMemberFeature( member, gmlStream, xmlStream, resolveState, featureMemberEl );
+                            featuresAdded++;
+                        }
                     }
+                } finally {
+                    LOG.debug( "Closing FeatureResultSet (stream)" );
+                    rs.close();
                 }
-            } finally {
-                LOG.debug( "Closing FeatureResultSet (stream)" );
-                rs.close();
             }
+        } finally {
+            results.close();
         }
     }
 
@@ -554,30 +558,33 @@ public class GmlGetFeatureHandler extends AbstractGmlRequestHandler {
         // retrieve maxfeatures features
         int featuresAdded = 0;
         int featuresSkipped = 0;
-        for ( Map.Entry<FeatureStore, List<Query>> fsToQueries : analyzer.getQueries().entrySet() ) {
-            FeatureStore fs = fsToQueries.getKey();
-            Query[] queries = fsToQueries.getValue().toArray( new Query[fsToQueries.getValue().size()] );
-            FeatureInputStream rs = fs.query( queries );
-            try {
-                for ( Feature feature : rs ) {
-                    if ( lock != null && !lock.isLocked( feature.getId() ) ) {
-                        continue;
-                    }
-                    if ( featuresAdded == maxFeatures ) {
-                        break;
-                    }
-                    if ( featuresSkipped < startIndex ) {
-                        featuresSkipped++;
-                    } else if ( !fids.contains( feature.getId() ) ) {
-                        allFeatures.add( feature );
-                        fids.add( feature.getId() );
-                        featuresAdded++;
+        Results results = format.getMaster().getQueryExecutor().execute( analyzer.getQueries() );
+        try {
+            FeatureInputStream rs;
+            while ( featuresAdded != maxFeatures && ( rs = results.next() ) != null ) {
+                try {
+                    for ( Feature feature : rs ) {
+                        if ( lock != null && !lock.isLocked( feature.getId() ) ) {
+                            continue;
+                        }
+                        if ( featuresAdded == maxFeatures ) {
+                            break;
+                        }
+                        if ( featuresSkipped < startIndex ) {
+                            featuresSkipped++;
+                        } else if ( !fids.contains( feature.getId() ) ) {
+                            allFeatures.add( feature );
+                            fids.add( feature.getId() );
+                            featuresAdded++;
+                        }
                     }
+                } finally {
+                    LOG.debug( "Closing FeatureResultSet (cached)" );
+                    rs.close();
                 }
-            } finally {
-                LOG.debug( "Closing FeatureResultSet (cached)" );
-                rs.close();
             }
+        } finally {
+            results.close();
         }
 
         XMLStreamWriter xmlStream = gmlStream.getXMLStream();
@@ -0,0 +1,401 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.query;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.slf4j.LoggerFactory.getLogger;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.FeatureCollection;
+import org.deegree.feature.Features;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.filter.FilterEvaluationException;
+import org.slf4j.Logger;
+
+/**
+ * Retrieves the results of the queries for several feature stores concurrently, while the results are still consumed
+ * one store after another in the original order.
+ * <p>
+ * While the caller consumes the features of one store, the queries of the following stores (at most one per thread)
+ * are already performed by worker threads, which keep a bounded queue of features per store filled. A store query
+ * that has not been picked up by a worker when the caller gets to it is performed by the caller itself, so the
+ * caller never waits for a busy pool. With a single store or less than two threads, queries are performed by the
+ * caller only, just as without this executor.
+ * </p>
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureQueryExecutor {
+
+    private static final Logger LOG = getLogger( FeatureQueryExecutor.class );
+
+    // time after which a blocked worker checks whether the consumer has gone away (and a waiting consumer whether the
+    // worker has stopped)
+    private static final long OFFER_TIMEOUT = 100;
+
+    private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+    private final ExecutorService pool;
+
+    private final int threads;
+
+    private final int prefetchSize;
+
+    /**
+     * @param threads
+     *            number of worker threads, less than two disables concurrent retrieval
+     * @param prefetchSize
+     *            maximum number of features retrieved ahead per store, must be positive
+     */
+    public FeatureQueryExecutor( int threads, int prefetchSize ) {
+        this.threads = threads;
+        this.prefetchSize = prefetchSize;
+        if ( threads < 2 ) {
+            pool = null;
+            return;
+        }
+        final String prefix = "wfs-query-" + POOL_NUMBER.incrementAndGet() + "-";
+        pool = Executors.newFixedThreadPool( threads, new ThreadFactory() {
+            private final AtomicInteger number = new AtomicInteger();
+
+            @Override
+            public Thread newThread( Runnable r ) {
+                Thread thread = new Thread( r, prefix + number.incrementAndGet() );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+    }
+
+    /**
+     * Starts retrieving the results of the given queries.
+     * 
+     * @param fsToQueries
+     *            the queries per store, in the order the results are consumed, must not be <code>null</code>
+     * @return the results, must be closed by the caller, never <code>null</code>
+     */
+    public Results execute( Map<FeatureStore, List<Query>> fsToQueries ) {
+        List<StoreQuery> storeQueries = new ArrayList<StoreQuery>( fsToQueries.size() );
+        for ( Map.Entry<FeatureStore, List<Query>> fsToQuery : fsToQueries.entrySet() ) {
+            List<Query> queries = fsToQuery.getValue();
+            storeQueries.add( new StoreQuery( fsToQuery.getKey(), queries.toArray( new Query[queries.size()] ) ) );
+        }
+        return new Results( storeQueries );
+    }
+
+    /**
+     * Stops the worker threads, results being retrieved are discarded.
+     */
+    public void shutdown() {
+        if ( pool != null ) {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * The results of the queries, to be consumed store by store.
+     */
+    public class Results {
+
+        private final List<StoreQuery> storeQueries;
+
+        private int next;
+
+        private int submitted;
+
+        private Results( List<StoreQuery> storeQueries ) {
+            this.storeQueries = storeQueries;
+            if ( pool != null && storeQueries.size() > 1 ) {
+                // the first one is performed by the caller anyway
+                submitted = 1;
+            } else {
+                submitted = storeQueries.size();
+            }
+        }
+
+        /**
+         * Returns the features of the next store. The stream should be closed before requesting the next one.
+         * 
+         * @return the features of the next store, <code>null</code> if there are no more stores
+         * @throws FeatureStoreException
+         *             if the query could not be performed
+         * @throws FilterEvaluationException
+         *             if the filter contained in the query could not be evaluated
+         */
+        public FeatureInputStream next()
+                                throws FeatureStoreException, FilterEvaluationException {
+            if ( next == storeQueries.size() ) {
+                return null;
+            }
+            StoreQuery current = storeQueries.get( next++ );
+            while ( submitted < storeQueries.size() && submitted < next + threads ) {
+                try {
+                    pool.execute( storeQueries.get( submitted ) );
+                } catch ( RuntimeException e ) {
+                    // rejected (shut down), performed by the caller then
+                    LOG.debug( "Could not submit store query: {}", e.getLocalizedMessage() );
+                }
+                ++submitted;
+            }
+            return current.open();
+        }
+
+        /**
+         * Stops the retrieval for the remaining stores.
+         */
+        public void close() {
+            for ( int i = next; i < storeQueries.size(); ++i ) {
+                storeQueries.get( i ).cancel();
+            }
+            next = storeQueries.size();
+        }
+
+    }
+
+    private class StoreQuery implements Runnable {
+
+        private final FeatureStore fs;
+
+        private final Query[] queries;
+
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private final BlockingQueue<Object> queue = new ArrayBlockingQueue<Object>( prefetchSize );
+
+        private volatile boolean closed;
+
+        // END or Failure, set by the worker when it stops
+        private volatile Object terminal;
+
+        StoreQuery( FeatureStore fs, Query[] queries ) {
+            this.fs = fs;
+            this.queries = queries;
+        }
+
+        @Override
+        public void run() {
+            if ( !claimed.compareAndSet( false, true ) ) {
+                return;
+            }
+            Object last = null;
+            try {
+                FeatureInputStream rs = fs.query( queries );
+                try {
+                    for ( Feature f : rs ) {
+                        if ( !offer( f ) ) {
+                            LOG.debug( "Consumer went away or worker was interrupted, stopping retrieval." );
+                            return;
+                        }
+                    }
+                } finally {
+                    rs.close();
+                }
+                last = End.END;
+            } catch ( Throwable t ) {
+                last = new Failure( t );
+            } finally {
+                // always deliver a terminal message, the consumer may be waiting for it (e.g. on shutdown)
+                if ( last == null ) {
+                    last = new Failure( new FeatureStoreException( "Retrieval of the features was interrupted." ) );
+                }
+                terminal = last;
+                queue.offer( last );
+            }
+        }
+
+        private boolean offer( Object o ) {
+            try {
+                while ( !closed ) {
+                    if ( queue.offer( o, OFFER_TIMEOUT, MILLISECONDS ) ) {
+                        return true;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        FeatureInputStream open()
+                                throws FeatureStoreException, FilterEvaluationException {
+            if ( claimed.compareAndSet( false, true ) ) {
+                return fs.query( queries );
+            }
+            Object first = take();
+            if ( first instanceof Failure ) {
+                closed = true;
+                Throwable t = ( (Failure) first ).cause;
+                if ( t instanceof FeatureStoreException ) {
+                    throw (FeatureStoreException) t;
+                }
+                if ( t instanceof FilterEvaluationException ) {
+                    throw (FilterEvaluationException) t;
+                }
+                throw new FeatureStoreException( t.getLocalizedMessage(), t );
+            }
+            return new PrefetchedFeatureInputStream( first );
+        }
+
+        Object take() {
+            try {
+                while ( true ) {
+                    Object o = queue.poll();
+                    if ( o != null ) {
+                        return o;
+                    }
+                    // the terminal message is set after all features have been queued, but may not fit into the queue
+                    Object last = terminal;
+                    if ( last != null ) {
+                        o = queue.poll();
+                        return o != null ? o : last;
+                    }
+                    o = queue.poll( OFFER_TIMEOUT, MILLISECONDS );
+                    if ( o != null ) {
+                        return o;
+                    }
+                }
+            } catch ( InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException( e );
+            }
+        }
+
+        void cancel() {
+            claimed.set( true );
+            closed = true;
+            queue.clear();
+        }
+
+        private class PrefetchedFeatureInputStream implements FeatureInputStream, Iterator<Feature> {
+
+            private Object nextMessage;
+
+            PrefetchedFeatureInputStream( Object first ) {
+                nextMessage = first;
+            }
+
+            @Override
+            public Iterator<Feature> iterator() {
+                return this;
+            }
+
+            @Override
+            public boolean hasNext() {
+                if ( nextMessage == null ) {
+                    nextMessage = take();
+                }
+                if ( nextMessage instanceof Failure ) {
+                    Throwable t = ( (Failure) nextMessage ).cause;
+                    nextMessage = End.END;
+                    closed = true;
+                    throw new RuntimeException( t.getLocalizedMessage(), t );
+                }
+                return nextMessage != End.END;
+            }
+
+            @Override
+            public Feature next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException();
+                }
+                Feature f = (Feature) nextMessage;
+                nextMessage = null;
+                return f;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void close() {
+                nextMessage = End.END;
+                cancel();
+            }
+
+            @Override
+            public FeatureCollection toCollection() {
+                return Features.toCollection( this );
+            }
+
+            @Override
+            public int count() {
+                int i = 0;
+                while ( hasNext() ) {
+                    next();
+                    i++;
+                }
+                close();
+                return i;
+            }
+
+        }
+
+    }
+
+    private enum End {
+        END
+    }
+
+    private static class Failure {
+
+        private final Throwable cause;
+
+        Failure( Throwable cause ) {
+            this.cause = cause;
+        }
+
+    }
+
+}
@@ -0,0 +1,179 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.format.binary;
+
+import static java.util.Arrays.asList;
+import static org.deegree.commons.tom.primitive.BaseType.STRING;
+import static org.deegree.feature.types.property.GeometryPropertyType.CoordinateDimension.DIM_2;
+import static org.deegree.feature.types.property.GeometryPropertyType.GeometryType.POINT;
+import static org.deegree.feature.types.property.ValueRepresentation.INLINE;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.namespace.QName;
+
+import org.deegree.commons.tom.gml.property.Property;
+import org.deegree.commons.tom.gml.property.PropertyType;
+import org.deegree.commons.tom.primitive.PrimitiveType;
+import org.deegree.commons.tom.primitive.PrimitiveValue;
+import org.deegree.feature.Feature;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.binary.BinaryFeatureReader;
+import org.deegree.feature.binary.BinaryFeatureWriter;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.property.GenericProperty;
+import org.deegree.feature.stream.MemoryFeatureInputStream;
+import org.deegree.feature.types.FeatureType;
+import org.deegree.feature.types.GenericFeatureType;
+import org.deegree.feature.types.property.GeometryPropertyType;
+import org.deegree.feature.types.property.SimplePropertyType;
+import org.deegree.geometry.GeometryFactory;
+import org.deegree.geometry.primitive.Point;
+import org.deegree.services.wfs.query.FeatureQueryExecutor;
+import org.junit.Test;
+
+/**
+ * Tests for {@link BinaryFormat}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class BinaryFormatTest {
+
+    private static final String NS = "http://www.deegree.org/app";
+
+    private static final QName NAME = new QName( NS, "name", "app" );
+
+    private static final QName GEOM = new QName( NS, "geom", "app" );
+
+    private final PropertyType[] props = { new SimplePropertyType( NAME, 0, 1, STRING, null, null ),
+                                          new GeometryPropertyType( GEOM, 0, 1, null, null, POINT, DIM_2, INLINE ) };
+
+    private final FeatureType ft = new GenericFeatureType( new QName( NS, "Place", "app" ), asList( props ), false );
+
+    private final GeometryFactory geomFac = new GeometryFactory();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRoundTrip()
+                            throws Exception {
+        List<Feature> features = createFeatures( 0, 5 );
+        List<Feature> read = writeAndRead( asList( features ), -1, 0, false );
+        assertEquals( ids( features ), ids( read ) );
+        Point p = (Point) read.get( 3 ).getProperties( GEOM ).get( 0 ).getValue();
+        assertEquals( 3, p.get0(), 0 );
+        PrimitiveValue name = (PrimitiveValue) read.get( 3 ).getProperties( NAME ).get( 0 ).getValue();
+        assertEquals( "Place 3", name.getAsText() );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testStartIndexMaxFeaturesAndDuplicates()
+                            throws Exception {
+        List<Feature> first = createFeatures( 0, 5 );
+        // the second store returns two of the features again
+        List<Feature> second = createFeatures( 3, 5 );
+        List<Feature> read = writeAndRead( asList( first, second ), 5, 2, false );
+        assertEquals( asList( "PLACE_2", "PLACE_3", "PLACE_4", "PLACE_5", "PLACE_6" ), ids( read ) );
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSpatialIndex()
+                            throws Exception {
+        List<Feature> features = createFeatures( 0, 100 );
+        List<Feature> read = writeAndRead( asList( features ), -1, 0, true );
+        assertEquals( ids( features ), ids( read ) );
+    }
+
+    private List<Feature> writeAndRead( List<List<Feature>> perStore, int maxFeatures, int startIndex,
+                                        boolean spatialIndex )
+                            throws Exception {
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        for ( List<Feature> features : perStore ) {
+            FeatureStore fs = mock( FeatureStore.class );
+            GenericFeatureCollection fc = new GenericFeatureCollection( null, features );
+            when( fs.query( any( Query[].class ) ) ).thenReturn( new MemoryFeatureInputStream( fc ) );
+            fsToQueries.put( fs, Collections.singletonList( mock( Query.class ) ) );
+        }
+        FeatureQueryExecutor executor = new FeatureQueryExecutor( 0, 16 );
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        BinaryFeatureWriter writer = new BinaryFeatureWriter( bos, null );
+        BinaryFormat.writeFeatures( executor.execute( fsToQueries ), writer, maxFeatures, startIndex, spatialIndex );
+        writer.close();
+
+        List<Feature> read = new ArrayList<Feature>();
+        BinaryFeatureReader reader = new BinaryFeatureReader( new ByteArrayInputStream( bos.toByteArray() ), null );
+        Feature f;
+        while ( ( f = reader.read() ) != null ) {
+            read.add( f );
+        }
+        reader.close();
+        return read;
+    }
+
+    private List<Feature> createFeatures( int first, int num ) {
+        List<Feature> features = new ArrayList<Feature>();
+        for ( int i = first; i < first + num; i++ ) {
+            List<Property> values = new ArrayList<Property>();
+            values.add( new GenericProperty( props[0], NAME, new PrimitiveValue( "Place " + i,
+                                                                                  new PrimitiveType( STRING ) ) ) );
+            values.add( new GenericProperty( props[1], GEOM, geomFac.createPoint( null, i, i, null ) ) );
+            features.add( ft.newFeature( "PLACE_" + i, values, null ) );
+        }
+        return features;
+    }
+
+    private static List<String> ids( List<Feature> features ) {
+        List<String> ids = new ArrayList<String>();
+        for ( Feature f : features ) {
+            ids.add( f.getId() );
+        }
+        return ids;
+    }
+
+}
@@ -0,0 +1,280 @@
+/*----------------------------------------------------------------------------
+ This file is part of deegree, http://deegree.org/
+ Copyright (C) 2001-2014 by:
+ - Department of Geography, University of Bonn -
+ and
+ - lat/lon GmbH -
+
+ This library is free software; you can redistribute it and/or modify it under
+ the terms of the GNU Lesser General Public License as published by the Free
+ Software Foundation; either version 2.1 of the License, or (at your option)
+ any later version.
+ This library is distributed in the hope that it will be useful, but WITHOUT
+ ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ details.
+ You should have received a copy of the GNU Lesser General Public License
+ along with this library; if not, write to the Free Software Foundation, Inc.,
+ 59 Temple Place, Suite 330, Boston, MA 02111-1307 USA
+
+ Contact information:
+
+ lat/lon GmbH
+ Aennchenstr. 19, 53177 Bonn
+ Germany
+ http://lat-lon.de/
+
+ Department of Geography, University of Bonn
+ Prof. Dr. Klaus Greve
+ Postfach 1147, 53001 Bonn
+ Germany
+ http://www.geographie.uni-bonn.de/deegree/
+
+ e-mail: info@deegree.org
+ ----------------------------------------------------------------------------*/
+package org.deegree.services.wfs.query;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.deegree.feature.Feature;
+import org.deegree.feature.GenericFeatureCollection;
+import org.deegree.feature.persistence.FeatureStore;
+import org.deegree.feature.persistence.FeatureStoreException;
+import org.deegree.feature.persistence.query.Query;
+import org.deegree.feature.stream.FeatureInputStream;
+import org.deegree.feature.stream.MemoryFeatureInputStream;
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Tests for {@link FeatureQueryExecutor}.
+ * 
+ * @author <a href="mailto:info@deegree.org">deegree</a>
+ * 
+ * @since 3.4
+ */
+public class FeatureQueryExecutorTest {
+
+    private final FeatureQueryExecutor executor = new FeatureQueryExecutor( 4, 2 );
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void testResultsKeepStoreOrder()
+                            throws Exception {
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        List<List<Feature>> expected = new ArrayList<List<Feature>>();
+        for ( int i = 0; i < 5; i++ ) {
+            List<Feature> features = features( 10 );
+            fsToQueries.put( store( features, null ), queries() );
+            expected.add( features );
+        }
+
+        FeatureQueryExecutor.Results results = executor.execute( fsToQueries );
+        try {
+            for ( List<Feature> features : expected ) {
+                FeatureInputStream rs = results.next();
+                List<Feature> actual = new ArrayList<Feature>();
+                for ( Feature f : rs ) {
+                    actual.add( f );
+                }
+                rs.close();
+                assertEquals( features, actual );
+            }
+            assertNull( results.next() );
+        } finally {
+            results.close();
+        }
+    }
+
+    @Test
+    public void testFollowingStoresAreQueriedConcurrently()
+                            throws Exception {
+        // the first store only delivers once the second one has been queried
+        CountDownLatch secondQueried = new CountDownLatch( 1 );
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        fsToQueries.put( store( features( 1 ), secondQueried ), queries() );
+        FeatureStore second = mock( FeatureStore.class );
+        when( second.query( any( Query[].class ) ) ).thenAnswer( countDown( features( 1 ), secondQueried ) );
+        fsToQueries.put( second, queries() );
+
+        FeatureQueryExecutor.Results results = executor.execute( fsToQueries );
+        try {
+            assertEquals( 1, results.next().count() );
+            assertEquals( 1, results.next().count() );
+        } finally {
+            results.close();
+        }
+    }
+
+    @Test
+    public void testCloseStopsRetrieval()
+                            throws Exception {
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        fsToQueries.put( store( features( 1 ), null ), queries() );
+        FeatureStore last = null;
+        for ( int i = 0; i < 10; i++ ) {
+            last = store( features( 100 ), null );
+            fsToQueries.put( last, queries() );
+        }
+
+        FeatureQueryExecutor.Results results = executor.execute( fsToQueries );
+        FeatureInputStream rs = results.next();
+        rs.close();
+        results.close();
+        assertNull( results.next() );
+        verify( last, never() ).query( any( Query[].class ) );
+    }
+
+    @Test
+    public void testQueryExceptionIsRethrown()
+                            throws Exception {
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        fsToQueries.put( store( features( 1 ), null ), queries() );
+        FeatureStore failing = mock( FeatureStore.class );
+        FeatureStoreException e = new FeatureStoreException( "failed" );
+        when( failing.query( any( Query[].class ) ) ).thenThrow( e );
+        fsToQueries.put( failing, queries() );
+
+        FeatureQueryExecutor.Results results = executor.execute( fsToQueries );
+        try {
+            results.next().close();
+            results.next();
+            fail( "Expected exception." );
+        } catch ( FeatureStoreException actual ) {
+            assertSame( e, actual );
+        } finally {
+            results.close();
+        }
+    }
+
+    @Test
+    public void testShutdownReleasesWaitingConsumer()
+                            throws Exception {
+        // the second store is picked up by a worker, but never delivers
+        final CountDownLatch started = new CountDownLatch( 1 );
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        fsToQueries.put( store( features( 1 ), null ), queries() );
+        FeatureStore hanging = mock( FeatureStore.class );
+        when( hanging.query( any( Query[].class ) ) ).thenAnswer( new Answer<FeatureInputStream>() {
+            @Override
+            public FeatureInputStream answer( InvocationOnMock invocation )
+                                    throws Throwable {
+                started.countDown();
+                new CountDownLatch( 1 ).await();
+                return null;
+            }
+        } );
+        fsToQueries.put( hanging, queries() );
+
+        final FeatureQueryExecutor.Results results = executor.execute( fsToQueries );
+        results.next().close();
+        assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+
+        final AtomicReference<Exception> caught = new AtomicReference<Exception>();
+        Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    results.next();
+                } catch ( Exception e ) {
+                    caught.set( e );
+                }
+            }
+        };
+        consumer.start();
+        while ( consumer.getState() != Thread.State.TIMED_WAITING && consumer.isAlive() ) {
+            Thread.sleep( 10 );
+        }
+        executor.shutdown();
+        consumer.join( 10000 );
+        assertFalse( consumer.isAlive() );
+        assertTrue( caught.get() instanceof FeatureStoreException );
+        results.close();
+    }
+
+    @Test
+    public void testSequentialWithoutThreads()
+                            throws Exception {
+        FeatureQueryExecutor sequential = new FeatureQueryExecutor( 0, 2 );
+        Map<FeatureStore, List<Query>> fsToQueries = new LinkedHashMap<FeatureStore, List<Query>>();
+        List<Feature> features = features( 3 );
+        FeatureStore fs = store( features, null );
+        fsToQueries.put( fs, queries() );
+        fsToQueries.put( store( features( 3 ), null ), queries() );
+
+        FeatureQueryExecutor.Results results = sequential.execute( fsToQueries );
+        assertTrue( results.next() instanceof MemoryFeatureInputStream );
+        assertTrue( results.next() instanceof MemoryFeatureInputStream );
+        assertNull( results.next() );
+        results.close();
+    }
+
+    private static FeatureStore store( List<Feature> features, CountDownLatch await )
+                            throws Exception {
+        FeatureStore fs = mock( FeatureStore.class );
+        when( fs.query( any( Query[].class ) ) ).thenAnswer( await( features, await ) );
+        return fs;
+    }
+
+    private static Answer<FeatureInputStream> await( final List<Feature> features, final CountDownLatch latch ) {
+        return new Answer<FeatureInputStream>() {
+            @Override
+            public FeatureInputStream answer( InvocationOnMock invocation )
+                                    throws Throwable {
+                if ( latch != null ) {
+                    assertTrue( latch.await( 10, TimeUnit.SECONDS ) );
+                }
+                return new MemoryFeatureInputStream( new GenericFeatureCollection( null, features ) );
+            }
+        };
+    }
+
+    private static Answer<FeatureInputStream> countDown( final List<Feature> features, final CountDownLatch latch ) {
+        return new Answer<FeatureInputStream>() {
+            @Override
+            public FeatureInputStream answer( InvocationOnMock invocation )
+                                    throws Throwable {
+                latch.countDown();
+                return new MemoryFeatureInputStream( new GenericFeatureCollection( null, features ) );
+            }
+        };
+    }
+
+    private static List<Feature> features( int n ) {
+        List<Feature> features = new ArrayList<Feature>();
+        for ( int i = 0; i < n; i++ ) {
+            features.add( mock( Feature.class ) );
+        }
+        return features;
+    }
+
+    private static List<Query> queries() {
+        return Collections.singletonList( mock( Query.class ) );
+    }
+
+}
@@ -56,6 +56,8 @@ import java.util.List;
 import java.util.ListIterator;
 
 import org.deegree.commons.annotations.LoggingNotes;
+import org.deegree.commons.metrics.MetricsRegistry;
+import org.deegree.commons.metrics.Timer;
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.utils.Pair;
 import org.deegree.feature.Feature;
@@ -209,15 +211,26 @@ public class MapService {
 
         ScaleFunction.getCurrentScaleValue().set( scale );
 
-        List<LayerData> layerDataList = checkStyleValidAndBuildLayerDataList( gm, headers, scale, queryIter );
+        List<String> layerNames = new ArrayList<String>();
+        List<LayerData> layerDataList = checkStyleValidAndBuildLayerDataList( gm, headers, scale, queryIter,
+                                                                              layerNames );
         Iterator<MapOptions> optIter = mapOptions.iterator();
+        Iterator<String> nameIter = layerNames.iterator();
         for ( LayerData d : layerDataList ) {
             ctx.applyOptions( optIter.next() );
+            String name = nameIter.next();
+            if ( d == null ) {
+                // layer has nothing to render at this scale
+                continue;
+            }
+            Timer timer = MetricsRegistry.layerTimer( name, "render" );
             try {
                 d.render( ctx );
             } catch ( InterruptedException e ) {
                 String msg = "Request time-out.";
                 throw new OWSException( msg, NO_APPLICABLE_CODE );
+            } finally {
+                timer.stop();
             }
         }
         ctx.optimizeAndDrawLabels();
@@ -227,7 +240,8 @@ public class MapService {
 
     private List<LayerData> checkStyleValidAndBuildLayerDataList( org.deegree.protocol.wms.ops.GetMap gm,
                                                                   List<String> headers, double scale,
-                                                                  ListIterator<LayerQuery> queryIter )
+                                                                  ListIterator<LayerQuery> queryIter,
+                                                                  List<String> layerNames )
                             throws OWSException {
         List<LayerData> layerDataList = new ArrayList<LayerData>();
         for ( LayerRef lr : gm.getLayers() ) {
@@ -240,7 +254,15 @@ public class MapService {
                     continue;
                 }
                 if ( layer.isStyleApplicable( query.getStyle() ) ) {
-                    layerDataList.add( layer.mapQuery( query, headers ) );
+                    String name = layer.getMetadata().getName();
+                    // layer data is evaluated lazily, fetching the features is part of the render phase
+                    Timer timer = MetricsRegistry.layerTimer( name, "prepare" );
+                    try {
+                        layerDataList.add( layer.mapQuery( query, headers ) );
+                    } finally {
+                        timer.stop();
+                    }
+                    layerNames.add( name );
                 }
             }
         }
@@ -277,6 +299,7 @@ public class MapService {
                             throws OWSException {
         List<LayerQuery> queries = prepareGetFeatures( gfi );
         List<LayerData> list = new ArrayList<LayerData>();
+        List<String> layerNames = new ArrayList<String>();
 
         double scale = calcScaleWMS130( gfi.getWidth(), gfi.getHeight(), gfi.getEnvelope(), gfi.getCoordinateSystem(),
                                         DEFAULT_PIXEL_SIZE );
@@ -296,13 +319,31 @@ public class MapService {
                                             LAYER_NOT_QUERYABLE );
                 }
 
-                list.add( l.infoQuery( query, headers ) );
+                String name = l.getMetadata().getName();
+                Timer timer = MetricsRegistry.layerTimer( name, "prepare" );
+                try {
+                    list.add( l.infoQuery( query, headers ) );
+                } finally {
+                    timer.stop();
+                }
+                layerNames.add( name );
             }
         }
 
         List<Feature> feats = new ArrayList<Feature>( gfi.getFeatureCount() );
+        Iterator<String> nameIter = layerNames.iterator();
         for ( LayerData d : list ) {
-            FeatureCollection col = d.info();
+            String name = nameIter.next();
+            if ( d == null ) {
+                continue;
+            }
+            FeatureCollection col;
+            Timer timer = MetricsRegistry.layerTimer( name, "info" );
+            try {
+                col = d.info();
+            } finally {
+                timer.stop();
+            }
             if ( col != null ) {
                 feats.addAll( col );
             }
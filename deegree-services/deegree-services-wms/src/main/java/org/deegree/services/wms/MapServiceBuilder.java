@@ -50,6 +50,7 @@ import org.deegree.rendering.r2d.context.MapOptions;
 import org.deegree.rendering.r2d.context.MapOptions.Antialias;
 import org.deegree.rendering.r2d.context.MapOptions.Interpolation;
 import org.deegree.rendering.r2d.context.MapOptions.Quality;
+import org.deegree.rendering.r2d.encoding.ImageEncodingOptions;
 import org.deegree.services.jaxb.wms.LayerOptionsType;
 import org.deegree.services.jaxb.wms.ServiceConfigurationType;
 import org.deegree.workspace.Workspace;
@@ -104,7 +105,17 @@ class MapServiceBuilder {
             } else {
                 LOG.debug( "Using default feature info radius of {}.", featureInfoRadius );
             }
-            return new MapOptions( quali, interpol, alias, maxFeatures, featureInfoRadius );
+            MapOptions options = new MapOptions( quali, interpol, alias, maxFeatures, featureInfoRadius );
+            if ( sf != null && sf.getImageEncoding() != null ) {
+                try {
+                    options.setImageEncoding( ImageEncodingOptions.parse( sf.getImageEncoding().getCompressionLevel(),
+                                                                          sf.getImageEncoding().getFilter() ) );
+                    LOG.debug( "Using global image encoding settings: {}.", options.getImageEncoding() );
+                } catch ( IllegalArgumentException e ) {
+                    LOG.warn( "Ignoring invalid image encoding options: {}", e.getMessage() );
+                }
+            }
+            return options;
         }
         return null;
     }
@@ -36,7 +36,6 @@
 
 package org.deegree.services.wms.controller;
 
-import static javax.imageio.ImageIO.write;
 import static org.deegree.commons.ows.exception.OWSException.OPERATION_NOT_SUPPORTED;
 import static org.deegree.commons.utils.ArrayUtils.join;
 import static org.deegree.commons.utils.CollectionUtils.getStringJoiner;
@@ -48,6 +47,7 @@ import static org.deegree.protocol.wms.WMSConstants.VERSION_130;
 import static org.deegree.services.controller.OGCFrontController.getHttpGetURL;
 import static org.deegree.services.i18n.Messages.get;
 import static org.deegree.services.metadata.MetadataUtils.convertFromJAXB;
+import static org.deegree.workspace.WorkspaceUtils.collectDependencies;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.awt.image.BufferedImage;
@@ -129,6 +129,7 @@ import org.deegree.protocol.wms.ops.GetMap;
 import org.deegree.rendering.r2d.ImageSerializer;
 import org.deegree.rendering.r2d.context.RenderContext;
 import org.deegree.rendering.r2d.context.RenderingInfo;
+import org.deegree.rendering.r2d.encoding.ImageEncoder;
 import org.deegree.services.OWS;
 import org.deegree.services.OWSProvider;
 import org.deegree.services.OwsManager;
@@ -137,6 +138,7 @@ import org.deegree.services.controller.ImplementationMetadata;
 import org.deegree.services.controller.OGCFrontController;
 import org.deegree.services.controller.exception.serializer.ExceptionSerializer;
 import org.deegree.services.controller.exception.serializer.XMLExceptionSerializer;
+import org.deegree.services.controller.utils.CapabilitiesCache;
 import org.deegree.services.controller.utils.HttpResponseBuffer;
 import org.deegree.services.controller.utils.StandardFeatureInfoContext;
 import org.deegree.services.encoding.SupportedEncodings;
@@ -165,7 +167,8 @@ import org.deegree.services.wms.controller.plugins.OutputFormatProvider;
 import org.deegree.services.wms.utils.GetMapLimitChecker;
 import org.deegree.services.wms.utils.SupportedEncodingsParser;
 import org.deegree.style.StyleRef;
-import org.deegree.style.utils.ColorQuantizer;
+import org.deegree.workspace.Resource;
+import org.deegree.workspace.ResourceIdentifier;
 import org.deegree.workspace.ResourceInitException;
 import org.deegree.workspace.ResourceMetadata;
 import org.deegree.workspace.Workspace;
@@ -207,6 +210,8 @@ public class WMSController extends AbstractOWS {
 
     private CapabilitiesManager capabilitiesManager;
 
+    private final CapabilitiesCache capabilitiesCache = new CapabilitiesCache();
+
     private ExceptionsManager exceptionsManager;
 
     private OutputFormatProvider ouputFormatProvider;
@@ -703,17 +708,10 @@ public class WMSController extends AbstractOWS {
             return;
         }
 
-        format = format.substring( format.indexOf( "/" ) + 1 );
-        if ( format.equals( "x-ms-bmp" ) ) {
-            format = "bmp";
-        }
-        if ( format.equals( "png; subtype=8bit" ) || format.equals( "png; mode=8bit" ) ) {
-            img = ColorQuantizer.quantizeImage( img, 256, false, false );
-            format = "png";
-        }
         LOG.debug( "Sending in format " + format );
-        if ( !write( img, format, response.getOutputStream() ) ) {
-            throw new OWSException( get( "WMS.CANNOT_ENCODE_IMAGE", format ), OWSException.NO_APPLICABLE_CODE );
+        if ( !ImageEncoder.encode( img, format, response.getOutputStream(), null ) ) {
+            throw new OWSException( get( "WMS.CANNOT_ENCODE_IMAGE", ImageEncoder.getFormatName( format ) ),
+                                    OWSException.NO_APPLICABLE_CODE );
         }
     }
 
@@ -769,6 +767,34 @@ public class WMSController extends AbstractOWS {
         return capabilitiesManager;
     }
 
+    /**
+     * Returns the cache for rendered capabilities documents. Cached documents are dropped if one of the workspace
+     * resources the service depends on (themes, layers, stores, metadata, ...) has been re-initialized or the update
+     * sequence has changed.
+     * 
+     * @return the cache for rendered capabilities documents, never <code>null</code>
+     */
+    public CapabilitiesCache getCapabilitiesCache() {
+        capabilitiesCache.invalidateIfChanged( getCapabilitiesState() );
+        return capabilitiesCache;
+    }
+
+    private List<Object> getCapabilitiesState() {
+        List<Object> state = new ArrayList<Object>();
+        state.add( service.getCurrentUpdateSequence() );
+        List<ResourceMetadata<? extends Resource>> dependencies = new ArrayList<ResourceMetadata<? extends Resource>>();
+        collectDependencies( dependencies, workspace.getDependencyGraph().getNode( metadata.getIdentifier() ) );
+        for ( ResourceMetadata<? extends Resource> md : dependencies ) {
+            // a re-initialized resource is a new instance
+            state.add( System.identityHashCode( getResource( md.getIdentifier() ) ) );
+        }
+        return state;
+    }
+
+    private <T extends Resource> T getResource( ResourceIdentifier<T> id ) {
+        return workspace.getResource( id.getProvider(), id.getId() );
+    }
+
     /**
      * @return the supported encodings configured in the DeegreeWMS, should not be <code>null</code>
      */
@@ -1208,7 +1234,7 @@ public class WMSController extends AbstractOWS {
 
     @Override
     public void destroy() {
-        // nothing to do
+        capabilitiesCache.invalidate();
     }
 
 }
@@ -39,7 +39,6 @@ package org.deegree.services.wms.controller;
 import static org.deegree.commons.ows.exception.OWSException.INVALID_SRS;
 import static org.deegree.services.i18n.Messages.get;
 
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -99,25 +98,25 @@ public class WMSController111 extends WMSControllerBase {
     }
 
     @Override
-    protected void exportCapas( String getUrl, String postUrl, MapService service, HttpResponseBuffer response,
-                                ServiceIdentification identification, ServiceProvider provider,
-                                Map<String, String> customParameters, WMSController controller,
-                                OWSMetadataProvider metadata )
-                            throws IOException, OWSException {
-        response.setContentType( "application/vnd.ogc.wms_xml" );
+    protected String prepareCapabilitiesResponse( HttpResponseBuffer response, Map<String, String> customParameters ) {
+        String format = "application/vnd.ogc.wms_xml";
         String userAgent = OGCFrontController.getContext().getUserAgent();
 
         if ( userAgent != null && userAgent.toLowerCase().contains( "mozilla" ) ) {
-            response.setContentType( "application/xml" );
+            format = "application/xml";
         }
-
+        response.setContentType( format );
+        response.setCharacterEncoding( "UTF-8" );
         response.addHeader( "Content-Disposition", "inline; filename=\"capabilities.xml\"" );
-        try {
-            XMLStreamWriter xmlWriter = response.getXMLWriter();
-            new Capabilities111XMLAdapter( identification, provider, metadata, getUrl, postUrl, service, controller ).export( xmlWriter );
-        } catch ( XMLStreamException e ) {
-            throw new IOException( e );
-        }
+        return format;
+    }
+
+    @Override
+    protected void exportCapabilities( XMLStreamWriter xmlWriter, String getUrl, String postUrl, MapService service,
+                                       ServiceIdentification identification, ServiceProvider provider,
+                                       WMSController controller, OWSMetadataProvider metadata )
+                            throws XMLStreamException {
+        new Capabilities111XMLAdapter( identification, provider, metadata, getUrl, postUrl, service, controller ).export( xmlWriter );
     }
 
     @Override
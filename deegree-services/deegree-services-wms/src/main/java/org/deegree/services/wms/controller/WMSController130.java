@@ -42,6 +42,7 @@ import static org.deegree.services.i18n.Messages.get;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 import javax.servlet.ServletException;
@@ -104,29 +105,45 @@ public class WMSController130 extends WMSControllerBase {
     }
 
     @Override
-    protected void exportCapas( String getUrl, String postUrl, MapService service, HttpResponseBuffer response,
-                                ServiceIdentification identification, ServiceProvider provider,
-                                Map<String, String> customParameters, WMSController controller,
-                                OWSMetadataProvider metadata )
-                            throws IOException, OWSException {
+    protected String prepareCapabilitiesResponse( HttpResponseBuffer response, Map<String, String> customParameters )
+                            throws OWSException {
         String format = detectFormat( customParameters );
         response.setContentType( format );
+        if ( TEXT_XML_FORMAT.equals( format ) ) {
+            response.setCharacterEncoding( "UTF-8" );
+        }
+        return format;
+    }
+
+    @Override
+    protected void exportCapabilities( XMLStreamWriter xmlWriter, String getUrl, String postUrl, MapService service,
+                                       ServiceIdentification identification, ServiceProvider provider,
+                                       WMSController controller, OWSMetadataProvider metadata )
+                            throws XMLStreamException {
+        new Capabilities130XMLAdapter( identification, provider, metadata, getUrl, postUrl, service, controller ).export( xmlWriter );
+    }
 
-        try {
-            if ( TEXT_XML_FORMAT.equals( format ) ) {
-                XMLStreamWriter xmlWriter = response.getXMLWriter();
-                new Capabilities130XMLAdapter( identification, provider, metadata, getUrl, postUrl, service, controller ).export( xmlWriter );
-            } else {
-                ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter( stream );
-                new Capabilities130XMLAdapter( identification, provider, metadata, getUrl, postUrl, service, controller ).export( xmlWriter );
-                xmlWriter.close();
-                capabilitiesManager.serializeCapabilities( format, new ByteArrayInputStream( stream.toByteArray() ),
-                                                           response.getOutputStream() );
-            }
-        } catch ( XMLStreamException e ) {
-            throw new IOException( e );
+    @Override
+    protected boolean isXmlFormat( String format ) {
+        return TEXT_XML_FORMAT.equals( format );
+    }
+
+    @Override
+    protected void writeCapabilities( OutputStream os, String format, String getUrl, String postUrl,
+                                      MapService service, ServiceIdentification identification,
+                                      ServiceProvider provider, WMSController controller,
+                                      OWSMetadataProvider metadata )
+                            throws IOException, XMLStreamException, OWSException {
+        if ( isXmlFormat( format ) ) {
+            super.writeCapabilities( os, format, getUrl, postUrl, service, identification, provider, controller,
+                                     metadata );
+            return;
         }
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        XMLStreamWriter xmlWriter = XMLOutputFactory.newInstance().createXMLStreamWriter( stream );
+        exportCapabilities( xmlWriter, getUrl, postUrl, service, identification, provider, controller, metadata );
+        xmlWriter.close();
+        capabilitiesManager.serializeCapabilities( format, new ByteArrayInputStream( stream.toByteArray() ), os );
     }
 
     @Override
@@ -41,17 +41,22 @@ import static org.deegree.services.i18n.Messages.get;
 import static org.slf4j.LoggerFactory.getLogger;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 
 import javax.servlet.ServletException;
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.deegree.commons.ows.exception.OWSException;
 import org.deegree.commons.ows.metadata.ServiceIdentification;
 import org.deegree.commons.ows.metadata.ServiceProvider;
 import org.deegree.commons.tom.ows.Version;
+import org.deegree.commons.xml.stax.IndentingXMLStreamWriter;
 import org.deegree.protocol.wms.WMSConstants.WMSRequestType;
 import org.deegree.services.controller.exception.serializer.XMLExceptionSerializer;
+import org.deegree.services.controller.utils.CapabilitiesCache.CapabilitiesRenderer;
 import org.deegree.services.controller.utils.HttpResponseBuffer;
 import org.deegree.services.metadata.OWSMetadataProvider;
 import org.deegree.services.wms.MapService;
@@ -118,15 +123,143 @@ public abstract class WMSControllerBase implements Controller {
 
         XMLOutputFactory factory = XMLOutputFactory.newInstance();
         factory.setProperty( IS_REPAIRING_NAMESPACES, true );
-        exportCapas( getUrl, postUrl, service, response, identification, provider, customParameters, controller,
-                     metadata );
+
+        String format = prepareCapabilitiesResponse( response, customParameters );
+        if ( response.isBodyStarted() ) {
+            // e.g. SOAP, the document is embedded into an already started response
+            try {
+                if ( isXmlFormat( format ) ) {
+                    exportCapabilities( response.getXMLWriter(), getUrl, postUrl, service, identification, provider,
+                                        controller, metadata );
+                } else {
+                    writeCapabilities( response.getOutputStream(), format, getUrl, postUrl, service, identification,
+                                       provider, controller, metadata );
+                }
+            } catch ( XMLStreamException e ) {
+                throw new IOException( e );
+            }
+            return;
+        }
+        String key = getVersion() + "|" + format + "|" + getUrl + "|" + postUrl;
+        controller.getCapabilitiesCache().serve( key, response,
+                                                 new CachedCapabilitiesRenderer( format, getUrl, postUrl, service,
+                                                                                 identification, provider, controller,
+                                                                                 metadata ) );
+    }
+
+    /**
+     * Sets the content type and headers of a capabilities response.
+     * 
+     * @param response
+     *            response to prepare, never <code>null</code>
+     * @param customParameters
+     *            the request parameters, never <code>null</code>
+     * @return the format of the capabilities document, never <code>null</code>
+     * @throws OWSException
+     *             if the requested format is not supported
+     */
+    protected abstract String prepareCapabilitiesResponse( HttpResponseBuffer response,
+                                                           Map<String, String> customParameters )
+                            throws OWSException;
+
+    /**
+     * Exports the capabilities as XML to the given writer, without starting or ending the document.
+     * 
+     * @param xmlWriter
+     *            writer to export to, never <code>null</code>
+     * @throws XMLStreamException
+     */
+    protected abstract void exportCapabilities( XMLStreamWriter xmlWriter, String getUrl, String postUrl,
+                                                MapService service, ServiceIdentification identification,
+                                                ServiceProvider provider, WMSController controller,
+                                                OWSMetadataProvider metadata )
+                            throws XMLStreamException;
+
+    /**
+     * @param format
+     *            format as returned by {@link #prepareCapabilitiesResponse(HttpResponseBuffer, Map)}
+     * @return <code>true</code>, if the format is the plain XML document written by
+     *         {@link #exportCapabilities(XMLStreamWriter, String, String, MapService, ServiceIdentification, ServiceProvider, WMSController, OWSMetadataProvider)}
+     */
+    protected boolean isXmlFormat( String format ) {
+        return true;
+    }
+
+    /**
+     * Writes a complete capabilities document in the given format. The default implementation writes the XML document.
+     * 
+     * @param os
+     *            stream to write to, never <code>null</code>
+     * @param format
+     *            format as returned by {@link #prepareCapabilitiesResponse(HttpResponseBuffer, Map)}
+     * @throws IOException
+     * @throws XMLStreamException
+     * @throws OWSException
+     */
+    protected void writeCapabilities( OutputStream os, String format, String getUrl, String postUrl,
+                                      MapService service, ServiceIdentification identification,
+                                      ServiceProvider provider, WMSController controller, OWSMetadataProvider metadata )
+                            throws IOException, XMLStreamException, OWSException {
+        XMLStreamWriter xmlWriter = createDocumentWriter( os );
+        exportCapabilities( xmlWriter, getUrl, postUrl, service, identification, provider, controller, metadata );
+        xmlWriter.writeEndDocument();
+        xmlWriter.close();
+    }
+
+    /**
+     * Creates a writer for a standalone XML document (UTF-8 encoded, preamble already written).
+     * 
+     * @param os
+     *            stream to write to, never <code>null</code>
+     * @return writer, never <code>null</code>
+     * @throws XMLStreamException
+     */
+    protected static XMLStreamWriter createDocumentWriter( OutputStream os )
+                            throws XMLStreamException {
+        XMLStreamWriter xmlWriter = new IndentingXMLStreamWriter(
+                                                                  XMLOutputFactory.newInstance().createXMLStreamWriter( os,
+                                                                                                                        "UTF-8" ) );
+        xmlWriter.writeStartDocument( "UTF-8", "1.0" );
+        return xmlWriter;
     }
 
-    protected abstract void exportCapas( String getUrl, String postUrl, MapService service,
-                                         HttpResponseBuffer response, ServiceIdentification identification,
-                                         ServiceProvider provider, Map<String, String> customParameters,
-                                         WMSController controller, OWSMetadataProvider metadata )
-                            throws IOException, OWSException;
+    private class CachedCapabilitiesRenderer implements CapabilitiesRenderer {
+
+        private final String format;
+
+        private final String getUrl;
+
+        private final String postUrl;
+
+        private final MapService service;
+
+        private final ServiceIdentification identification;
+
+        private final ServiceProvider provider;
+
+        private final WMSController controller;
+
+        private final OWSMetadataProvider metadata;
+
+        private CachedCapabilitiesRenderer( String format, String getUrl, String postUrl, MapService service,
+                                            ServiceIdentification identification, ServiceProvider provider,
+                                            WMSController controller, OWSMetadataProvider metadata ) {
+            this.format = format;
+            this.getUrl = getUrl;
+            this.postUrl = postUrl;
+            this.service = service;
+            this.identification = identification;
+            this.provider = provider;
+            this.controller = controller;
+            this.metadata = metadata;
+        }
+
+        @Override
+        public void render( OutputStream os )
+                                throws IOException, XMLStreamException, OWSException {
+            writeCapabilities( os, format, getUrl, postUrl, service, identification, provider, controller, metadata );
+        }
+    }
 
     protected abstract Version getVersion();
 